@@ -46,6 +46,7 @@ CREATE TABLE IF NOT EXISTS p_llm_model (
     description TEXT COMMENT '模型描述',
     temperature DOUBLE COMMENT '温度参数',
     max_tokens INT COMMENT '最大token数',
+    hedge_enabled TINYINT(1) DEFAULT 0 COMMENT '是否启用对冲请求（非流式对话）',
     create_time DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     create_by VARCHAR(64) DEFAULT NULL COMMENT '创建人',
@@ -56,6 +57,23 @@ CREATE TABLE IF NOT EXISTS p_llm_model (
     INDEX idx_is_delete (is_delete)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='LLM模型表';
 
+-- 模型渠道池表（同一模型由多个渠道按权重提供服务，支持负载均衡和故障转移）
+CREATE TABLE IF NOT EXISTS p_llm_model_channel (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
+    model_id BIGINT NOT NULL COMMENT '模型ID',
+    channel_id BIGINT NOT NULL COMMENT '渠道ID',
+    weight INT DEFAULT 100 COMMENT '权重（越大分到的流量越多）',
+    enabled TINYINT(1) DEFAULT 1 COMMENT '是否启用',
+    create_time DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    create_by VARCHAR(64) DEFAULT NULL COMMENT '创建人',
+    update_by VARCHAR(64) DEFAULT NULL COMMENT '更新人',
+    is_delete TINYINT(3) UNSIGNED DEFAULT 0 COMMENT '是否删除，0：正常，1：删除',
+    INDEX idx_model_id (model_id),
+    INDEX idx_channel_id (channel_id),
+    INDEX idx_is_delete (is_delete)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='模型渠道池表';
+
 -- Agent表
 CREATE TABLE IF NOT EXISTS p_agents (
     id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
@@ -123,7 +141,7 @@ CREATE TABLE IF NOT EXISTS a_conversations (
     summary TEXT COMMENT '会话摘要',
     message_count INT DEFAULT 0 COMMENT '消息总数',
     total_tokens INT DEFAULT 0 COMMENT '总tokens消耗',
-    last_message_time DATETIME COMMENT '最后消息时间',
+    last_message_time DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '最后消息时间（新会话为创建时间）',
     is_archived TINYINT DEFAULT 0 COMMENT '是否归档，0：否，1：是',
     is_pinned TINYINT DEFAULT 0 COMMENT '是否置顶，0：否，1：是',
     tags VARCHAR(500) COMMENT '标签（逗号分隔）',
@@ -133,16 +151,23 @@ CREATE TABLE IF NOT EXISTS a_conversations (
     create_by VARCHAR(64) DEFAULT NULL COMMENT '创建人',
     update_by VARCHAR(64) DEFAULT NULL COMMENT '更新人',
     is_delete TINYINT(3) UNSIGNED DEFAULT 0 COMMENT '是否删除，0：正常，1：删除',
-    INDEX idx_conversation_code (conversation_code),
-    INDEX idx_agent_slug (agent_slug),
     INDEX idx_model_id (model_id),
     INDEX idx_update_time (update_time),
     INDEX idx_last_message_time (last_message_time),
-    INDEX idx_is_archived (is_archived),
-    INDEX idx_is_pinned (is_pinned),
-    INDEX idx_is_delete (is_delete)
+    INDEX idx_is_delete (is_delete),
+    -- 会话列表（游标分页）：WHERE is_delete=0 AND is_archived=? ORDER BY is_pinned DESC, last_message_time DESC, id DESC
+    INDEX idx_list (is_delete, is_archived, is_pinned, last_message_time),
+    -- 按 Agent 查询会话列表：WHERE agent_slug=? AND is_delete=0 ORDER BY is_pinned DESC, last_message_time DESC
+    INDEX idx_agent_list (agent_slug, is_delete, is_pinned, last_message_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='会话表';
 
+-- 已有表升级（游标分页 / 组合索引）--- 备注：数据库未执行
+-- UPDATE a_conversations SET last_message_time = create_time WHERE last_message_time IS NULL;
+-- ALTER TABLE a_conversations MODIFY COLUMN last_message_time DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '最后消息时间（新会话为创建时间）',
+--     DROP INDEX idx_conversation_code, DROP INDEX idx_agent_slug, DROP INDEX idx_is_archived, DROP INDEX idx_is_pinned,
+--     ADD INDEX idx_list (is_delete, is_archived, is_pinned, last_message_time),
+--     ADD INDEX idx_agent_list (agent_slug, is_delete, is_pinned, last_message_time);
+
 -- 聊天历史表（消息记录）
 CREATE TABLE IF NOT EXISTS a_chat_history (
     id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
@@ -158,14 +183,18 @@ CREATE TABLE IF NOT EXISTS a_chat_history (
     create_by VARCHAR(64) DEFAULT NULL COMMENT '创建人',
     update_by VARCHAR(64) DEFAULT NULL COMMENT '更新人',
     is_delete TINYINT(3) UNSIGNED DEFAULT 0 COMMENT '是否删除，0：正常，1：删除',
-    INDEX idx_message_code (message_code),
-    INDEX idx_conversation_code (conversation_code),
     INDEX idx_turn_code (turn_code),
     INDEX idx_create_time (create_time),
     INDEX idx_is_delete (is_delete),
-    UNIQUE INDEX uk_conv_msg_idx (conversation_code, message_index) COMMENT '会话标识+消息序号唯一约束'
+    UNIQUE INDEX uk_conv_msg_idx (conversation_code, message_index) COMMENT '会话标识+消息序号唯一约束',
+    -- 会话消息读取 / 游标分页 / MAX(message_index)：WHERE conversation_code=? AND is_delete=0 ORDER BY message_index
+    INDEX idx_conv_live (conversation_code, is_delete, message_index)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='聊天历史表';
 
+-- 已有表升级（组合索引；message_code 已有唯一索引，conversation_code 是 uk_conv_msg_idx 的前缀）--- 备注：数据库未执行
+-- ALTER TABLE a_chat_history DROP INDEX idx_message_code, DROP INDEX idx_conversation_code,
+--     ADD INDEX idx_conv_live (conversation_code, is_delete, message_index);
+
 -- 对话轮次表（一次问答的关联）
 CREATE TABLE IF NOT EXISTS a_conversation_turns (
     id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
@@ -187,7 +216,7 @@ CREATE TABLE IF NOT EXISTS a_conversation_turns (
     first_token_ms INT COMMENT '首token耗时(毫秒)',
 
     -- 状态
-    status VARCHAR(20) DEFAULT 'PENDING' COMMENT '状态：PENDING/PROCESSING/SUCCESS/FAILED/TIMEOUT',
+    status VARCHAR(20) DEFAULT 'PENDING' COMMENT '状态：PENDING/PROCESSING/SUCCESS/FAILED/TIMEOUT/INTERRUPTED',
     error_message TEXT COMMENT '错误信息',
 
     -- 模型信息
@@ -207,14 +236,51 @@ CREATE TABLE IF NOT EXISTS a_conversation_turns (
     update_by VARCHAR(64) DEFAULT NULL COMMENT '更新人',
     is_delete TINYINT(3) UNSIGNED DEFAULT 0 COMMENT '是否删除，0：正常，1：删除',
 
-    INDEX idx_turn_code (turn_code),
-    INDEX idx_conversation_code (conversation_code),
     INDEX idx_status (status),
     INDEX idx_create_time (create_time),
     INDEX idx_is_delete (is_delete),
-    UNIQUE INDEX uk_conv_turn_idx (conversation_code, turn_index) COMMENT '会话标识+轮次序号唯一约束'
+    UNIQUE INDEX uk_conv_turn_idx (conversation_code, turn_index) COMMENT '会话标识+轮次序号唯一约束',
+    -- 会话轮次读取 / MAX(turn_index)：WHERE conversation_code=? AND is_delete=0 ORDER BY turn_index
+    INDEX idx_conv_live (conversation_code, is_delete, turn_index)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='对话轮次表';
 
+-- 已有表升级（组合索引；turn_code 已有唯一索引，conversation_code 是 uk_conv_turn_idx 的前缀）--- 备注：数据库未执行
+-- ALTER TABLE a_conversation_turns DROP INDEX idx_turn_code, DROP INDEX idx_conversation_code,
+--     ADD INDEX idx_conv_live (conversation_code, is_delete, turn_index);
+
+-- 聊天历史冷归档索引表（超过保留期的会话按月份归档到本地 NDJSON.gz 文件）
+-- 会话行保留在 a_conversations，消息和轮次从在线表物理删除；按需恢复时从归档文件读回
+CREATE TABLE IF NOT EXISTS a_chat_archives (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
+    conversation_code VARCHAR(100) NOT NULL UNIQUE COMMENT '会话标识',
+    archive_month VARCHAR(7) NOT NULL COMMENT '时间分区（会话最后消息时间所在月份，yyyy-MM）',
+    file_path VARCHAR(500) NOT NULL COMMENT '归档文件路径（相对归档根目录）',
+    message_count INT DEFAULT 0 COMMENT '归档的消息数',
+    turn_count INT DEFAULT 0 COMMENT '归档的轮次数',
+    raw_bytes BIGINT DEFAULT 0 COMMENT '归档内容的原始大小（字节，未压缩）',
+    max_message_id BIGINT DEFAULT 0 COMMENT '在线消息清理上界（归档时会话消息的最大 id）',
+    max_turn_id BIGINT DEFAULT 0 COMMENT '在线轮次清理上界（归档时会话轮次的最大 id）',
+    last_message_time DATETIME COMMENT '会话最后消息时间',
+    status VARCHAR(20) NOT NULL DEFAULT 'PURGING' COMMENT '状态：PURGING（已写入文件，在线数据清理中）/ARCHIVED/RESTORED',
+    archive_time DATETIME COMMENT '归档时间',
+    restore_time DATETIME COMMENT '最近一次恢复时间',
+    create_time DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    create_by VARCHAR(64) DEFAULT NULL COMMENT '创建人',
+    update_by VARCHAR(64) DEFAULT NULL COMMENT '更新人',
+    is_delete TINYINT(3) UNSIGNED DEFAULT 0 COMMENT '是否删除，0：正常，1：删除',
+    INDEX idx_archive_month (archive_month),
+    INDEX idx_status (status)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='聊天历史冷归档索引表';
+
+-- 定时任务租约锁（多节点部署时同一任务同一时刻只在一个节点执行）
+CREATE TABLE IF NOT EXISTS a_scheduler_locks (
+    lock_name VARCHAR(64) PRIMARY KEY COMMENT '锁名称（任务名）',
+    lock_owner VARCHAR(128) COMMENT '持有节点',
+    lock_until DATETIME(3) NOT NULL COMMENT '租约到期时间',
+    update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='定时任务租约锁';
+
 -- 媒体文件表（支持多模态消息）
 CREATE TABLE IF NOT EXISTS a_media_files (
     id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
@@ -357,6 +423,26 @@ CREATE TABLE IF NOT EXISTS a_graph_tasks (
     end_time DATETIME COMMENT '结束时间',
     error_message TEXT COMMENT '错误信息',
     graph_config_snapshot TEXT COMMENT '执行时的工作流配置快照（JSON 格式）',
+
+    -- 异步执行（提交接口立即返回 task_code，后台 Worker 按租约 + 心跳认领执行）
+    task_type VARCHAR(20) COMMENT '异步任务类型：RESEARCH/WORKFLOW/REACT_AGENT（为空表示同步执行记录，不进入队列）',
+    target_slug VARCHAR(100) COMMENT '工作流 / ReactAgent 的 slug',
+    input_params TEXT COMMENT '执行参数（JSON：工作流初始状态等）',
+    result_data MEDIUMTEXT COMMENT '完整执行结果（JSON）',
+    api_key_id BIGINT COMMENT '提交任务的 API Key ID（公平调度分组，管理后台提交为空）',
+    priority INT DEFAULT 0 COMMENT '优先级（越大越先执行）',
+    attempts INT DEFAULT 0 COMMENT '已执行次数',
+    max_attempts INT DEFAULT 1 COMMENT '最大执行次数',
+    next_run_time DATETIME(3) DEFAULT CURRENT_TIMESTAMP(3) COMMENT '最早可执行时间（重试退避）',
+    lease_owner VARCHAR(128) COMMENT '持有租约的节点',
+    lease_until DATETIME(3) COMMENT '租约到期时间（过期后其它节点可重新认领）',
+    heartbeat_time DATETIME(3) COMMENT '最近一次心跳时间',
+    callback_url VARCHAR(1000) COMMENT '结果回调地址',
+    callback_status VARCHAR(20) COMMENT '回调状态：PENDING/DELIVERED/FAILED',
+    callback_attempts INT DEFAULT 0 COMMENT '已回调次数',
+    next_callback_time DATETIME(3) COMMENT '下次回调时间（失败按指数退避）',
+    callback_error TEXT COMMENT '最近一次回调失败原因',
+
     create_time DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     create_by VARCHAR(64) DEFAULT NULL COMMENT '创建人',
@@ -368,9 +454,37 @@ CREATE TABLE IF NOT EXISTS a_graph_tasks (
     INDEX idx_conversation_code (conversation_code),
     INDEX idx_status (status),
     INDEX idx_create_time (create_time),
-    INDEX idx_is_delete (is_delete)
+    INDEX idx_is_delete (is_delete),
+    INDEX idx_claim (status, priority, next_run_time),
+    INDEX idx_lease (status, lease_until),
+    INDEX idx_api_key_status (api_key_id, status),
+    INDEX idx_callback (callback_status, next_callback_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='Graph工作流任务执行记录表';
 
+-- 已有表升级（异步任务队列 / 结果回调）--- 备注：数据库未执行
+-- ALTER TABLE a_graph_tasks
+--     ADD COLUMN task_type VARCHAR(20) COMMENT '异步任务类型：RESEARCH/WORKFLOW/REACT_AGENT（为空表示同步执行记录，不进入队列）' AFTER graph_config_snapshot,
+--     ADD COLUMN target_slug VARCHAR(100) COMMENT '工作流 / ReactAgent 的 slug' AFTER task_type,
+--     ADD COLUMN input_params TEXT COMMENT '执行参数（JSON：工作流初始状态等）' AFTER target_slug,
+--     ADD COLUMN result_data MEDIUMTEXT COMMENT '完整执行结果（JSON）' AFTER input_params,
+--     ADD COLUMN api_key_id BIGINT COMMENT '提交任务的 API Key ID（公平调度分组，管理后台提交为空）' AFTER result_data,
+--     ADD COLUMN priority INT DEFAULT 0 COMMENT '优先级（越大越先执行）' AFTER api_key_id,
+--     ADD COLUMN attempts INT DEFAULT 0 COMMENT '已执行次数' AFTER priority,
+--     ADD COLUMN max_attempts INT DEFAULT 1 COMMENT '最大执行次数' AFTER attempts,
+--     ADD COLUMN next_run_time DATETIME(3) DEFAULT CURRENT_TIMESTAMP(3) COMMENT '最早可执行时间（重试退避）' AFTER max_attempts,
+--     ADD COLUMN lease_owner VARCHAR(128) COMMENT '持有租约的节点' AFTER next_run_time,
+--     ADD COLUMN lease_until DATETIME(3) COMMENT '租约到期时间（过期后其它节点可重新认领）' AFTER lease_owner,
+--     ADD COLUMN heartbeat_time DATETIME(3) COMMENT '最近一次心跳时间' AFTER lease_until,
+--     ADD COLUMN callback_url VARCHAR(1000) COMMENT '结果回调地址' AFTER heartbeat_time,
+--     ADD COLUMN callback_status VARCHAR(20) COMMENT '回调状态：PENDING/DELIVERED/FAILED' AFTER callback_url,
+--     ADD COLUMN callback_attempts INT DEFAULT 0 COMMENT '已回调次数' AFTER callback_status,
+--     ADD COLUMN next_callback_time DATETIME(3) COMMENT '下次回调时间（失败按指数退避）' AFTER callback_attempts,
+--     ADD COLUMN callback_error TEXT COMMENT '最近一次回调失败原因' AFTER next_callback_time,
+--     ADD INDEX idx_claim (status, priority, next_run_time),
+--     ADD INDEX idx_lease (status, lease_until),
+--     ADD INDEX idx_api_key_status (api_key_id, status),
+--     ADD INDEX idx_callback (callback_status, next_callback_time);
+
 -- Graph 工作流步骤执行记录表
 CREATE TABLE IF NOT EXISTS a_graph_steps (
     id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
@@ -469,6 +583,35 @@ CREATE TABLE IF NOT EXISTS a_knowledge_documents (
     INDEX idx_is_delete (is_delete)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='知识库文档表';
 
+-- 文档入库任务表（后台 Worker 认领执行，租约 + 心跳保证多节点不重复处理）
+CREATE TABLE IF NOT EXISTS a_document_jobs (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
+    job_code VARCHAR(32) NOT NULL UNIQUE COMMENT '任务唯一标识（32位UUID）',
+    doc_code VARCHAR(32) NOT NULL COMMENT '关联的文档 Code',
+    kb_code VARCHAR(32) NOT NULL COMMENT '关联的知识库 Code',
+    priority INT DEFAULT 0 COMMENT '优先级（越大越先执行，来自知识库 metadata.ingestionPriority）',
+    status VARCHAR(20) DEFAULT 'QUEUED' COMMENT '状态：QUEUED/RUNNING/SUCCEEDED/DEAD',
+    attempts INT DEFAULT 0 COMMENT '已执行次数',
+    max_attempts INT DEFAULT 3 COMMENT '最大执行次数（耗尽后进入死信）',
+    next_run_time DATETIME(3) DEFAULT CURRENT_TIMESTAMP(3) COMMENT '最早可执行时间（重试退避）',
+    lease_owner VARCHAR(128) COMMENT '持有租约的节点',
+    lease_until DATETIME(3) COMMENT '租约到期时间（过期后其它节点可重新认领）',
+    heartbeat_time DATETIME(3) COMMENT '最近一次心跳时间',
+    start_time DATETIME(3) COMMENT '最近一次开始执行时间',
+    finish_time DATETIME(3) COMMENT '完成/进入死信时间',
+    chunk_count INT DEFAULT 0 COMMENT '生成的文本块数量',
+    last_error TEXT COMMENT '最近一次失败原因',
+    create_time DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    create_by VARCHAR(64) DEFAULT NULL COMMENT '创建人',
+    update_by VARCHAR(64) DEFAULT NULL COMMENT '更新人',
+    is_delete TINYINT(3) UNSIGNED DEFAULT 0 COMMENT '是否删除，0：正常，1：删除',
+    INDEX idx_claim (status, priority, next_run_time),
+    INDEX idx_lease (status, lease_until),
+    INDEX idx_doc_code (doc_code),
+    INDEX idx_kb_code (kb_code)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文档入库任务表';
+
 -- =============================================
 -- ReactAgent 配置表
 -- 支持 SINGLE / SEQUENTIAL / SUPERVISOR 三种模式
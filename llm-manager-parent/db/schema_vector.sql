@@ -17,6 +17,7 @@ CREATE TABLE IF NOT EXISTS a_knowledge_vectors (
     kb_code VARCHAR(32) NOT NULL COMMENT '知识库 Code',
     doc_code VARCHAR(32) DEFAULT NULL COMMENT '文档 Code（a_knowledge_documents.doc_code）',
     chunk_index INT DEFAULT NULL COMMENT '分块序号（同一 doc_code 内从 0 开始）',
+    content_hash CHAR(64) DEFAULT NULL COMMENT '文本块内容 SHA-256（增量重建索引、向量复用）',
     content MEDIUMTEXT NOT NULL COMMENT '文本块内容',
     embedding VECTOR(1536) NOT NULL COMMENT '向量（Embedding）',
     metadata JSON COMMENT '元数据（JSON 格式）',
@@ -28,8 +29,26 @@ CREATE TABLE IF NOT EXISTS a_knowledge_vectors (
     INDEX idx_kb_code (kb_code),
     INDEX idx_doc_code (doc_code),
     INDEX idx_kb_doc (kb_code, doc_code),
+    INDEX idx_kb_content_hash (kb_code, content_hash),
+    INDEX idx_kb_update_time (kb_code, update_time),
     INDEX idx_is_delete (is_delete),
     -- 向量索引：使用余弦距离（推荐）
     VECTOR INDEX idx_embedding ((VEC_COSINE_DISTANCE(embedding)))
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='知识库向量表（TiDB Vector Search）';
 
+
+-- 已有表升级（增量重建索引）--- 备注：数据库未执行
+-- ALTER TABLE a_knowledge_vectors ADD COLUMN content_hash CHAR(64) DEFAULT NULL COMMENT '文本块内容 SHA-256（增量重建索引、向量复用）' AFTER chunk_index;
+-- ALTER TABLE a_knowledge_vectors ADD INDEX idx_kb_content_hash (kb_code, content_hash);
+
+
+-- 已有表升级（向量量化：各节点按 update_time 增量同步量化索引）--- 备注：数据库未执行
+-- ALTER TABLE a_knowledge_vectors ADD INDEX idx_kb_update_time (kb_code, update_time);
+
+
+-- 常用过滤 metadata key 的生成列与索引（示例）--- 备注：由 TidbMetadataColumns 按
+-- llm.rag.vector-store.tidb-filter-columns / 知识库 metadata.filterColumns 自动创建，一般无需手动执行
+-- ALTER TABLE a_knowledge_vectors ADD COLUMN m_doctype VARCHAR(255) AS (LEFT(JSON_UNQUOTE(JSON_EXTRACT(metadata, '$."docType"')), 255)) VIRTUAL COMMENT 'metadata:docType';
+-- ALTER TABLE a_knowledge_vectors ADD INDEX idx_m_doctype (kb_code, m_doctype);
+-- ALTER TABLE a_knowledge_vectors ADD COLUMN m_publishyear DOUBLE AS (CAST(JSON_EXTRACT(metadata, '$."publishYear"') AS DOUBLE)) VIRTUAL COMMENT 'metadata:publishYear';
+-- ALTER TABLE a_knowledge_vectors ADD INDEX idx_m_publishyear (kb_code, m_publishyear);
@@ -2,18 +2,34 @@ package com.llmmanager.agent.agent;
 
 import com.llmmanager.agent.advisor.AdvisorManager;
 import com.llmmanager.agent.advisor.ThinkingAdvisor;
+import com.llmmanager.agent.cache.CacheRegion;
+import com.llmmanager.agent.cache.CacheRegionManager;
+import com.llmmanager.agent.config.FastPathProperties;
 import com.llmmanager.agent.config.ToolFunctionManager;
 import com.llmmanager.agent.dto.ChatRequest;
 import com.llmmanager.agent.mcp.McpClientManager;
 import com.llmmanager.agent.message.MediaMessage;
 import com.llmmanager.agent.model.ThinkingAwareOpenAiApi;
 import com.llmmanager.agent.rag.RagAdvisorBuilder;
+import com.llmmanager.agent.routing.ChannelEndpoint;
+import com.llmmanager.agent.routing.ChannelRouter;
+import com.llmmanager.agent.routing.FailoverChatModel;
+import com.llmmanager.agent.routing.HedgingChatModel;
+import com.llmmanager.agent.routing.RequestCoalescer;
+import com.llmmanager.agent.routing.RequestHedger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.api.Advisor;
 import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.content.Media;
 import org.springframework.ai.openai.OpenAiChatModel;
 import org.springframework.ai.openai.OpenAiChatOptions;
@@ -30,9 +46,9 @@ import javax.annotation.Resource;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * LLM对话代理 - 统一版（基于 Spring AI）
@@ -42,6 +58,8 @@ import java.util.concurrent.ConcurrentHashMap;
  * - Agent 层只关心与 LLM 交互，不关心格式处理
  * - 流式接口统一返回 Flux<ChatResponse>，由 Service 层处理格式转换
  * - 支持：同步对话、流式对话、历史对话、工具调用、多模态
+ * - 单轮对话快速路径：不带会话、记忆、RAG、工具和思考模式的请求使用缓存的精简 ChatClient，
+ *   只经过全局 Advisor（如 MetricsAdvisor），不再逐请求构建 ChatClient 和条件 Advisor（见 isLeanRequest）
  */
 @Slf4j
 @Component
@@ -68,8 +86,48 @@ public class LlmChatAgent {
     @Autowired(required = false)
     private RagAdvisorBuilder ragAdvisorBuilder;
 
-    // 缓存 ChatModel 实例
-    private static final Map<String, ChatModel> chatModelCache = new ConcurrentHashMap<>();
+    @Resource
+    private ChannelRouter channelRouter;
+
+    @Resource
+    private RequestHedger requestHedger;
+
+    @Resource
+    private RequestCoalescer requestCoalescer;
+
+    @Resource
+    private CacheRegionManager cacheRegionManager;
+
+    @Resource
+    private FastPathProperties fastPathProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * ChatModel 缓存区域（本地缓存，渠道变更时经失效广播清理所有节点）
+     */
+    private static final String CHAT_MODEL_REGION = "chat-model.agent";
+
+    /**
+     * 渠道池 FailoverChatModel 缓存区域（key 为池内全部成员的签名，任一渠道变更时整体清空）
+     */
+    private static final String FAILOVER_MODEL_REGION = "chat-model.agent.failover";
+
+    /**
+     * 快速路径 ChatClient 缓存区域（只带全局 Advisor；key 为渠道 / 渠道池成员 + 对冲开关，渠道变更时整体清空）
+     */
+    private static final String LEAN_CLIENT_REGION = "chat-client.lean";
+
+    private Counter leanPathCounter;
+
+    private Counter fullPathCounter;
+
+    @PostConstruct
+    public void init() {
+        leanPathCounter = Counter.builder("llm.chat.path").tag("path", "lean").register(meterRegistry);
+        fullPathCounter = Counter.builder("llm.chat.path").tag("path", "full").register(meterRegistry);
+    }
 
     // ==================== 同步对话 ====================
 
@@ -82,20 +140,28 @@ public class LlmChatAgent {
 
     /**
      * 执行同步对话（支持历史）
+     *
+     * 无状态且不带工具的相同请求同时在途时合并为一次上游调用（见 RequestCoalescer）
      */
     public String chat(ChatRequest request, String conversationCode) {
+        return requestCoalescer.call(RequestCoalescer.keyOf(request, conversationCode), request.getModelIdentifier(),
+                () -> doChat(request, conversationCode));
+    }
+
+    private String doChat(ChatRequest request, String conversationCode) {
+        if (isLeanRequest(request, conversationCode)) {
+            leanPathCounter.increment();
+            return leanChatClient(request).prompt(buildLeanPrompt(request)).call().chatResponse()
+                    .getResult().getOutput().getText();
+        }
+
         ChatClient chatClient = createChatClient(request, conversationCode);
         OpenAiChatOptions options = buildOptions(request);
 
         var promptBuilder = chatClient.prompt();
 
-        // 系统提示词
-        if (StringUtils.hasText(request.getSystemPrompt())) {
-            promptBuilder.system(request.getSystemPrompt());
-        }
-
-        // 用户消息（支持多模态）
-        addUserMessage(promptBuilder, request);
+        // 系统提示词 + 用户消息（支持多模态），或客户端自带的完整消息列表
+        addMessages(promptBuilder, request);
 
         // 工具调用
         addTools(promptBuilder, request);
@@ -140,8 +206,20 @@ public class LlmChatAgent {
      * - 工具调用（request.enableTools = true）
      * - 多模态（request.mediaContents）
      * - 思考模式（通过 ThinkingAdvisor 处理，自动将 thinking 参数注入到顶层）
+     *
+     * 无状态且不带工具的相同请求同时在途时共享一次上游流，后加入者从头重放（见 RequestCoalescer）
      */
     public Flux<ChatResponse> stream(ChatRequest request, String conversationCode) {
+        return requestCoalescer.stream(RequestCoalescer.keyOf(request, conversationCode), request.getModelIdentifier(),
+                () -> doStream(request, conversationCode));
+    }
+
+    private Flux<ChatResponse> doStream(ChatRequest request, String conversationCode) {
+        if (isLeanRequest(request, conversationCode)) {
+            leanPathCounter.increment();
+            return leanChatClient(request).prompt(buildLeanPrompt(request)).stream().chatResponse();
+        }
+
         // 打印完整的请求参数
         // logFullRequest(request, conversationCode);
 
@@ -153,13 +231,8 @@ public class LlmChatAgent {
 
         var promptBuilder = chatClient.prompt();
 
-        // 系统提示词
-        if (StringUtils.hasText(request.getSystemPrompt())) {
-            promptBuilder.system(request.getSystemPrompt());
-        }
-
-        // 用户消息（支持多模态）
-        addUserMessage(promptBuilder, request);
+        // 系统提示词 + 用户消息（支持多模态），或客户端自带的完整消息列表
+        addMessages(promptBuilder, request);
 
         // 工具调用
         addTools(promptBuilder, request);
@@ -258,6 +331,40 @@ public class LlmChatAgent {
         return builder.build();
     }
 
+    /**
+     * 快速路径 Prompt：与 addMessages 相同的消息组织方式，options 随 Prompt 传入
+     */
+    private Prompt buildLeanPrompt(ChatRequest request) {
+        List<Message> messages = new ArrayList<>();
+        if (request.hasMessages()) {
+            messages.addAll(request.getMessages());
+        } else {
+            if (StringUtils.hasText(request.getSystemPrompt())) {
+                messages.add(new SystemMessage(request.getSystemPrompt()));
+            }
+            Media[] mediaArray = request.hasMedia() ? convertToSpringAiMedia(request.getMediaContents()) : new Media[0];
+            messages.add(UserMessage.builder()
+                    .text(request.getUserMessage())
+                    .media(Arrays.asList(mediaArray))
+                    .build());
+        }
+        return new Prompt(messages, buildOptions(request));
+    }
+
+    /**
+     * 添加消息：携带完整消息列表时原样透传，否则使用系统提示词 + 用户消息
+     */
+    private void addMessages(ChatClient.ChatClientRequestSpec promptBuilder, ChatRequest request) {
+        if (request.hasMessages()) {
+            promptBuilder.messages(request.getMessages());
+            return;
+        }
+        if (StringUtils.hasText(request.getSystemPrompt())) {
+            promptBuilder.system(request.getSystemPrompt());
+        }
+        addUserMessage(promptBuilder, request);
+    }
+
     /**
      * 添加用户消息（支持多模态）
      */
@@ -359,9 +466,10 @@ public class LlmChatAgent {
      * 3. ThinkingAdvisor (order=100) - 注入 thinking 参数到 ChatOptions
      */
     private ChatClient createChatClient(ChatRequest request, String conversationCode) {
-        ChatModel chatModel = getOrCreateChatModel(request);
-        // 使用 AdvisorManager 增强 Builder，自动注入全局 Advisor
-        ChatClient.Builder builder = advisorManager.enhance(ChatClient.builder(chatModel));
+        fullPathCounter.increment();
+
+        // ChatModel（含渠道池 / 对冲包装）+ 全局 Advisor（通过 AdvisorManager 自动注入）
+        ChatClient.Builder builder = advisorManager.enhance(ChatClient.builder(resolveChatModel(request)));
 
         // 收集业务相关的 Advisor
         List<Advisor> advisors = new ArrayList<>();
@@ -394,6 +502,49 @@ public class LlmChatAgent {
         return builder.build();
     }
 
+    /**
+     * 是否走快速路径
+     *
+     * 条件 Advisor 一个都不需要（无会话 / 记忆、无 RAG、无思考模式）且不带工具时，使用缓存的精简 ChatClient：
+     * 不逐请求构建 ChatClient，也不查询会话记忆；全局 Advisor（如 MetricsAdvisor）照常执行，
+     * 指标与完整路径一致，另计入 llm.chat.path{path=lean}
+     */
+    private boolean isLeanRequest(ChatRequest request, String conversationCode) {
+        return Boolean.TRUE.equals(fastPathProperties.getEnabled())
+                && conversationCode == null
+                && !StringUtils.hasText(request.getConversationCode())
+                && !Boolean.TRUE.equals(request.getEnableMemory())
+                && !Boolean.TRUE.equals(request.getEnableRag())
+                && !Boolean.TRUE.equals(request.getEnableTools())
+                && !Boolean.TRUE.equals(request.getEnableMcpTools())
+                && (!StringUtils.hasText(request.getThinkingMode()) || "auto".equalsIgnoreCase(request.getThinkingMode()));
+    }
+
+    /**
+     * 快速路径 ChatClient（只带全局 Advisor，按渠道 / 渠道池成员和对冲开关缓存）
+     *
+     * 全局 Advisor 在启动时注册；运行时增删全局 Advisor 后需调用 clearAllCache
+     */
+    private ChatClient leanChatClient(ChatRequest request) {
+        List<ChannelEndpoint> pool = request.getChannelPool();
+        String modelKey = pool != null && pool.size() > 1 ? buildPoolCacheKey(pool) : buildCacheKey(request);
+        String cacheKey = Boolean.TRUE.equals(request.getHedgeEnabled())
+                ? modelKey + "_hedge_" + request.getModelIdentifier()
+                : modelKey;
+        return leanClientCache().get(cacheKey, k -> createChatClient(resolveChatModel(request)));
+    }
+
+    /**
+     * 请求使用的 ChatModel（含渠道池 / 对冲包装）
+     */
+    private ChatModel resolveChatModel(ChatRequest request) {
+        ChatModel chatModel = getOrCreateChatModel(request);
+        if (Boolean.TRUE.equals(request.getHedgeEnabled())) {
+            chatModel = new HedgingChatModel(chatModel, request.getModelIdentifier(), requestHedger);
+        }
+        return chatModel;
+    }
+
     /**
      * 构建 RAG Advisor
      */
@@ -432,9 +583,26 @@ public class LlmChatAgent {
      * 参考：https://github.com/spring-projects/spring-ai/issues/4879
      */
     private ChatModel getOrCreateChatModel(ChatRequest request) {
+        List<ChannelEndpoint> pool = request.getChannelPool();
+        if (pool != null && pool.size() > 1) {
+            // 渠道池：每个渠道一个不重试的 ChatModel，由 FailoverChatModel 负责选择和切换；
+            // 同一组成员复用同一个 FailoverChatModel，渠道健康状态保存在 ChannelRouter 中
+            return failoverModelCache().get(buildPoolCacheKey(pool), k -> {
+                Map<ChannelEndpoint, ChatModel> members = new LinkedHashMap<>();
+                for (ChannelEndpoint endpoint : pool) {
+                    String memberKey = endpoint.getChannelId() + "_" + endpoint.getApiKey() + "_" + endpoint.getBaseUrl() + "_pool";
+                    members.put(endpoint, chatModelCache().get(memberKey, mk -> OpenAiChatModel.builder()
+                            .openAiApi(new ThinkingAwareOpenAiApi(endpoint.getBaseUrl(), endpoint.getApiKey()))
+                            .retryTemplate(FailoverChatModel.NO_RETRY_TEMPLATE)
+                            .build()));
+                }
+                return new FailoverChatModel(members, channelRouter);
+            });
+        }
+
         String cacheKey = buildCacheKey(request);
 
-        return chatModelCache.computeIfAbsent(cacheKey, k -> {
+        return chatModelCache().get(cacheKey, k -> {
             // 使用 ThinkingAwareOpenAiApi 替代普通的 OpenAiApi
             // ThinkingAwareOpenAiApi 会在 HTTP 请求发送前从 metadata 读取并展开到 extraBody
             ThinkingAwareOpenAiApi openAiApi = new ThinkingAwareOpenAiApi(
@@ -450,10 +618,34 @@ public class LlmChatAgent {
         });
     }
 
+    private CacheRegion<ChatModel> chatModelCache() {
+        return cacheRegionManager.localRegion(CHAT_MODEL_REGION);
+    }
+
     private String buildCacheKey(ChatRequest request) {
         return request.getChannelId() + "_" + request.getApiKey() + "_" + request.getBaseUrl();
     }
 
+    private CacheRegion<ChatModel> failoverModelCache() {
+        return cacheRegionManager.localRegion(FAILOVER_MODEL_REGION);
+    }
+
+    private CacheRegion<ChatClient> leanClientCache() {
+        return cacheRegionManager.localRegion(LEAN_CLIENT_REGION);
+    }
+
+    /**
+     * 渠道池缓存 key：按顺序拼接每个成员的渠道、密钥、地址和权重，成员或权重变化即为新 key
+     */
+    private String buildPoolCacheKey(List<ChannelEndpoint> pool) {
+        StringBuilder key = new StringBuilder();
+        for (ChannelEndpoint endpoint : pool) {
+            key.append(endpoint.getChannelId()).append('_').append(endpoint.getApiKey()).append('_')
+                    .append(endpoint.getBaseUrl()).append('_').append(endpoint.getWeight()).append('|');
+        }
+        return key.toString();
+    }
+
     // ==================== Spring AI 原生 API ====================
 
     /**
@@ -488,11 +680,15 @@ public class LlmChatAgent {
     // ==================== 缓存管理 ====================
 
     public void clearCacheForChannel(Long channelId) {
-        chatModelCache.entrySet().removeIf(entry -> entry.getKey().startsWith(channelId + "_"));
+        chatModelCache().invalidatePrefix(channelId + "_");
+        failoverModelCache().invalidateAll();
+        leanClientCache().invalidateAll();
     }
 
     public void clearAllCache() {
-        chatModelCache.clear();
+        chatModelCache().invalidateAll();
+        failoverModelCache().invalidateAll();
+        leanClientCache().invalidateAll();
     }
 
     public void clearConversationHistory(String conversationCode) {
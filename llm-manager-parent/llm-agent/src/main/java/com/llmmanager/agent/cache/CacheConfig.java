@@ -0,0 +1,60 @@
+package com.llmmanager.agent.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 两级缓存配置
+ *
+ * llm.cache.redis-enabled=true 时启用 Redis 共享层和 pub/sub 失效广播，否则只使用本地缓存。
+ */
+@Slf4j
+@Configuration
+public class CacheConfig {
+
+    /**
+     * 失效广播监听容器（仅启用 Redis 时创建）
+     */
+    @Bean
+    @ConditionalOnProperty(name = "llm.cache.redis-enabled", havingValue = "true", matchIfMissing = false)
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    @Bean
+    public CacheRegionManager cacheRegionManager(CacheProperties properties,
+                                                 ObjectProvider<StringRedisTemplate> redisTemplateProvider,
+                                                 ObjectProvider<RedisMessageListenerContainer> listenerContainerProvider,
+                                                 ObjectProvider<ObjectMapper> objectMapperProvider,
+                                                 ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        // 使用 Spring 的 ObjectMapper（已注册 JavaTimeModule，实体中的 LocalDateTime 可以序列化）
+        ObjectMapper objectMapper = objectMapperProvider.getIfAvailable(() -> JsonMapper.builder().findAndAddModules().build());
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable(SimpleMeterRegistry::new);
+
+        RemoteCacheStore remoteStore = null;
+        CacheInvalidationBus bus = CacheInvalidationBus.LOCAL;
+        if (properties.isRedisEnabled()) {
+            StringRedisTemplate redisTemplate = redisTemplateProvider.getIfAvailable();
+            RedisMessageListenerContainer listenerContainer = listenerContainerProvider.getIfAvailable();
+            if (redisTemplate != null && listenerContainer != null) {
+                remoteStore = new RedisRemoteCacheStore(redisTemplate, properties);
+                bus = new RedisCacheInvalidationBus(redisTemplate, listenerContainer, objectMapper, properties.getChannel());
+            } else {
+                log.warn("[CacheConfig] llm.cache.redis-enabled=true 但未找到 Redis 连接，退化为本地缓存");
+            }
+        }
+        return new CacheRegionManager(properties, remoteStore, bus, objectMapper, meterRegistry);
+    }
+}
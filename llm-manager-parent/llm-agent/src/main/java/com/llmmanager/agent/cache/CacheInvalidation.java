@@ -0,0 +1,51 @@
+package com.llmmanager.agent.cache;
+
+import lombok.Data;
+
+/**
+ * 缓存失效消息（经 pub/sub 广播到所有节点）
+ */
+@Data
+public class CacheInvalidation {
+
+    /**
+     * 失效范围
+     */
+    public enum Scope {
+        /** 单个键 */
+        KEY,
+        /** 键前缀（如某个渠道的全部缓存） */
+        PREFIX,
+        /** 整个区域 */
+        ALL
+    }
+
+    private String region;
+
+    private Scope scope;
+
+    /**
+     * 键或前缀（scope=ALL 时为空）
+     */
+    private String key;
+
+    /**
+     * 发出节点
+     */
+    private String origin;
+
+    /**
+     * 发出时间（毫秒），用于统计广播延迟
+     */
+    private long sentAt;
+
+    public static CacheInvalidation of(String region, Scope scope, String key, String origin) {
+        CacheInvalidation invalidation = new CacheInvalidation();
+        invalidation.setRegion(region);
+        invalidation.setScope(scope);
+        invalidation.setKey(key);
+        invalidation.setOrigin(origin);
+        invalidation.setSentAt(System.currentTimeMillis());
+        return invalidation;
+    }
+}
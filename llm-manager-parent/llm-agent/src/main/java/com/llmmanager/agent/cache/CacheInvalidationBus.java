@@ -0,0 +1,32 @@
+package com.llmmanager.agent.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * 缓存失效广播
+ */
+public interface CacheInvalidationBus {
+
+    /**
+     * 单节点部署（未启用 Redis）：不广播
+     */
+    CacheInvalidationBus LOCAL = new CacheInvalidationBus() {
+        @Override
+        public void publish(CacheInvalidation invalidation) {
+        }
+
+        @Override
+        public void subscribe(Consumer<CacheInvalidation> listener) {
+        }
+    };
+
+    /**
+     * 广播失效消息（发出节点自己也会收到，由接收方按 origin 忽略）
+     */
+    void publish(CacheInvalidation invalidation);
+
+    /**
+     * 订阅其它节点发出的失效消息
+     */
+    void subscribe(Consumer<CacheInvalidation> listener);
+}
@@ -0,0 +1,88 @@
+package com.llmmanager.agent.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 两级缓存配置属性
+ *
+ * 配置示例：
+ * <pre>{@code
+ * llm:
+ *   cache:
+ *     redis-enabled: true            # 开启 Redis 共享层和跨节点失效广播
+ *     regions:
+ *       api-key:
+ *         local-ttl-seconds: 60
+ *         remote-ttl-seconds: 600
+ * }</pre>
+ */
+@Data
+@ConfigurationProperties(prefix = "llm.cache")
+public class CacheProperties {
+
+    /**
+     * 是否启用 Redis（共享缓存层 + pub/sub 失效广播）；关闭时只有本地缓存，失效只作用于本节点
+     * 默认：false
+     */
+    private boolean redisEnabled = false;
+
+    /**
+     * Redis 键前缀
+     * 默认：llm:cache:
+     */
+    private String keyPrefix = "llm:cache:";
+
+    /**
+     * 失效广播频道
+     * 默认：llm:cache:invalidation
+     */
+    private String channel = "llm:cache:invalidation";
+
+    /**
+     * 节点标识（忽略本节点发出的广播），为空时自动生成
+     */
+    private String nodeId;
+
+    /**
+     * 未单独配置的区域使用的默认配置
+     */
+    private Region defaults = new Region();
+
+    /**
+     * 按区域名的配置
+     */
+    private Map<String, Region> regions = new LinkedHashMap<>();
+
+    public Region regionConfig(String name) {
+        return regions.getOrDefault(name, defaults);
+    }
+
+    /**
+     * 缓存区域配置
+     */
+    @Data
+    public static class Region {
+
+        /**
+         * 本地缓存过期时间（秒），0 表示不过期（只在失效或容量淘汰时移除）
+         * 默认：0
+         */
+        private long localTtlSeconds = 0;
+
+        /**
+         * 本地缓存最大条数
+         * 默认：10000
+         */
+        private int localMaxSize = 10000;
+
+        /**
+         * Redis 共享层过期时间（秒），仅共享区域生效
+         * 默认：600
+         */
+        private long remoteTtlSeconds = 600;
+    }
+}
@@ -0,0 +1,426 @@
+package com.llmmanager.agent.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 缓存区域（本地近端缓存 + 可选的 Redis 共享层）
+ *
+ * 两种区域：
+ * - 本地区域：值不可序列化（ChatModel、CompiledGraph 等），只在本节点缓存，失效通过广播作用到所有节点
+ * - 共享区域：值可 JSON 序列化，本地未命中时先查 Redis，再回源加载并回填两级缓存
+ *
+ * 防止旧值回填：
+ * - 本地：每个键有代数、区域有纪元，失效时递增；加载前记下代数 / 纪元，回填时不一致则放弃
+ * - 共享层：读取时拿到键版本 / 区域纪元，回填使用条件写入（见 RemoteCacheStore）
+ *
+ * 指标（标签 region）：llm.cache.gets{result}、llm.cache.load、llm.cache.invalidations{origin}、
+ * llm.cache.stale_rejected{tier}、llm.cache.remote.errors、llm.cache.size
+ *
+ * @param <V> 缓存值类型
+ */
+@Slf4j
+public class CacheRegion<V> {
+
+    private final String name;
+
+    private final CacheProperties.Region config;
+
+    private final CacheRegionManager manager;
+
+    /**
+     * 共享层值类型（本地区域为 null）
+     */
+    private final JavaType remoteType;
+
+    private final Map<String, LocalEntry<V>> local = new ConcurrentHashMap<>();
+
+    /**
+     * 本地区域正在加载的键 → 加载结果（同一个键的并发未命中等待同一次加载）
+     */
+    private final Map<String, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * 键 → 失效代数（只记录失效过的键）
+     */
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    /**
+     * 区域纪元（前缀 / 整体失效时递增）
+     */
+    private final AtomicLong epoch = new AtomicLong();
+
+    private final Counter localHits;
+    private final Counter remoteHits;
+    private final Counter misses;
+    private final Counter selfInvalidations;
+    private final Counter peerInvalidations;
+    private final Counter localStaleRejected;
+    private final Counter remoteStaleRejected;
+    private final Counter remoteErrors;
+    private final Timer loadTimer;
+
+    CacheRegion(String name, CacheProperties.Region config, CacheRegionManager manager, JavaType remoteType,
+                MeterRegistry meterRegistry) {
+        this.name = name;
+        this.config = config;
+        this.manager = manager;
+        this.remoteType = remoteType;
+
+        this.localHits = meterRegistry.counter("llm.cache.gets", "region", name, "result", "local_hit");
+        this.remoteHits = meterRegistry.counter("llm.cache.gets", "region", name, "result", "remote_hit");
+        this.misses = meterRegistry.counter("llm.cache.gets", "region", name, "result", "miss");
+        this.selfInvalidations = meterRegistry.counter("llm.cache.invalidations", "region", name, "origin", "self");
+        this.peerInvalidations = meterRegistry.counter("llm.cache.invalidations", "region", name, "origin", "peer");
+        this.localStaleRejected = meterRegistry.counter("llm.cache.stale_rejected", "region", name, "tier", "local");
+        this.remoteStaleRejected = meterRegistry.counter("llm.cache.stale_rejected", "region", name, "tier", "remote");
+        this.remoteErrors = meterRegistry.counter("llm.cache.remote.errors", "region", name);
+        this.loadTimer = Timer.builder("llm.cache.load").tag("region", name)
+                .description("缓存未命中时回源加载耗时").register(meterRegistry);
+        Gauge.builder("llm.cache.size", local, Map::size).tag("region", name)
+                .description("本地缓存条数").register(meterRegistry);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isShared() {
+        return remoteType != null && manager.getRemoteStore() != null;
+    }
+
+    // ==================== 读取 ====================
+
+    /**
+     * 只读缓存，不回源
+     */
+    public V get(String key) {
+        LocalEntry<V> entry = local.get(key);
+        if (entry != null && !entry.isExpired()) {
+            localHits.increment();
+            return entry.value;
+        }
+        if (!isShared()) {
+            misses.increment();
+            return null;
+        }
+        long generation = generation(key);
+        long currentEpoch = epoch.get();
+        RemoteCacheStore.RemoteRead read = remoteGet(key);
+        V value = read != null ? deserialize(read.payload()) : null;
+        if (value == null) {
+            misses.increment();
+            return null;
+        }
+        remoteHits.increment();
+        putLocalIfCurrent(key, value, generation, currentEpoch);
+        return value;
+    }
+
+    /**
+     * 读取缓存，未命中时调用 loader 加载并回填（loader 返回 null 时不缓存）
+     */
+    public V get(String key, Function<String, V> loader) {
+        LocalEntry<V> entry = local.get(key);
+        if (entry != null && !entry.isExpired()) {
+            localHits.increment();
+            return entry.value;
+        }
+        if (!isShared()) {
+            return loadLocal(key, loader);
+        }
+
+        long generation = generation(key);
+        long currentEpoch = epoch.get();
+        RemoteCacheStore.RemoteRead read = remoteGet(key);
+        if (read != null) {
+            V cached = deserialize(read.payload());
+            if (cached != null) {
+                remoteHits.increment();
+                putLocalIfCurrent(key, cached, generation, currentEpoch);
+                return cached;
+            }
+        }
+
+        misses.increment();
+        V value = loadTimer.record(() -> loader.apply(key));
+        if (value == null) {
+            return null;
+        }
+        // 共享层不可用（read == null）时只回填本地
+        if (read != null) {
+            String payload = serialize(value);
+            if (payload != null && !remotePutIfVersion(key, payload, read)) {
+                remoteStaleRejected.increment();
+                log.debug("[CacheRegion] 加载期间键已失效，放弃回填共享层: region={}, key={}", name, key);
+            }
+        }
+        if (!putLocalIfCurrent(key, value, generation, currentEpoch)) {
+            localStaleRejected.increment();
+        }
+        return value;
+    }
+
+    /**
+     * 直接写入（本地区域用于缓存已构建好的对象）
+     */
+    public void put(String key, V value) {
+        if (value == null) {
+            return;
+        }
+        if (isShared()) {
+            RemoteCacheStore.RemoteRead read = remoteGet(key);
+            String payload = serialize(value);
+            if (read != null && payload != null) {
+                remotePutIfVersion(key, payload, read);
+            }
+        }
+        local.put(key, new LocalEntry<>(value, expireAt()));
+        evictIfNeeded();
+    }
+
+    public int size() {
+        return local.size();
+    }
+
+    // ==================== 失效（广播到所有节点） ====================
+
+    /**
+     * 失效单个键
+     */
+    public void invalidate(String key) {
+        if (isShared()) {
+            try {
+                manager.getRemoteStore().invalidate(name, key);
+            } catch (Exception e) {
+                remoteErrors.increment();
+                log.warn("[CacheRegion] 共享层失效失败: region={}, key={}, error={}", name, key, e.getMessage());
+            }
+        }
+        invalidateLocal(key);
+        selfInvalidations.increment();
+        manager.publish(CacheInvalidation.of(name, CacheInvalidation.Scope.KEY, key, manager.getNodeId()));
+    }
+
+    /**
+     * 失效指定前缀的所有键（共享层无法按前缀删除，整体递增纪元）
+     */
+    public void invalidatePrefix(String prefix) {
+        remoteInvalidateAll();
+        invalidateLocalPrefix(prefix);
+        selfInvalidations.increment();
+        manager.publish(CacheInvalidation.of(name, CacheInvalidation.Scope.PREFIX, prefix, manager.getNodeId()));
+    }
+
+    /**
+     * 失效整个区域
+     */
+    public void invalidateAll() {
+        remoteInvalidateAll();
+        invalidateLocalAll();
+        selfInvalidations.increment();
+        manager.publish(CacheInvalidation.of(name, CacheInvalidation.Scope.ALL, null, manager.getNodeId()));
+    }
+
+    /**
+     * 处理其它节点的失效广播（共享层已由发出节点处理，这里只清本地）
+     */
+    void applyPeerInvalidation(CacheInvalidation invalidation) {
+        switch (invalidation.getScope()) {
+            case KEY -> invalidateLocal(invalidation.getKey());
+            case PREFIX -> invalidateLocalPrefix(invalidation.getKey());
+            case ALL -> invalidateLocalAll();
+        }
+        peerInvalidations.increment();
+    }
+
+    // ==================== 内部实现 ====================
+
+    /**
+     * 本地区域：同一个键并发未命中只加载一次
+     *
+     * 加载在 ConcurrentHashMap.compute 之外进行（loader 可能很慢，或再访问同一区域的其它键，
+     * 在 compute 内执行会长时间占住桶锁甚至死锁）：先抢占键的占位 future，抢到的线程加载，
+     * 其余线程等待其结果；加载失败时等待方重新抢占。回填时校验代数 / 纪元，加载期间的失效会使结果不回填。
+     */
+    private V loadLocal(String key, Function<String, V> loader) {
+        while (true) {
+            CompletableFuture<V> placeholder = new CompletableFuture<>();
+            CompletableFuture<V> inFlight = loading.putIfAbsent(key, placeholder);
+            if (inFlight != null) {
+                try {
+                    V value = inFlight.join();
+                    localHits.increment();
+                    return value;
+                } catch (CompletionException | CancellationException e) {
+                    continue;
+                }
+            }
+
+            try {
+                LocalEntry<V> entry = local.get(key);
+                if (entry != null && !entry.isExpired()) {
+                    localHits.increment();
+                    placeholder.complete(entry.value);
+                    return entry.value;
+                }
+                long generation = generation(key);
+                long currentEpoch = epoch.get();
+                misses.increment();
+                V value = loadTimer.record(() -> loader.apply(key));
+                if (value != null && !putLocalIfCurrent(key, value, generation, currentEpoch)) {
+                    localStaleRejected.increment();
+                    log.debug("[CacheRegion] 加载期间键已失效，放弃回填本地: region={}, key={}", name, key);
+                }
+                placeholder.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                placeholder.completeExceptionally(e);
+                throw e;
+            } finally {
+                loading.remove(key, placeholder);
+            }
+        }
+    }
+
+    private boolean putLocalIfCurrent(String key, V value, long generation, long expectedEpoch) {
+        if (epoch.get() != expectedEpoch || generation(key) != generation) {
+            return false;
+        }
+        LocalEntry<V> entry = new LocalEntry<>(value, expireAt());
+        local.put(key, entry);
+        // 检查和写入之间发生了失效：撤回本次写入
+        if (epoch.get() != expectedEpoch || generation(key) != generation) {
+            local.remove(key, entry);
+            return false;
+        }
+        evictIfNeeded();
+        return true;
+    }
+
+    private long generation(String key) {
+        return generations.getOrDefault(key, 0L);
+    }
+
+    private void invalidateLocal(String key) {
+        if (key == null) {
+            return;
+        }
+        generations.merge(key, 1L, Long::sum);
+        local.remove(key);
+        if (generations.size() > config.getLocalMaxSize()) {
+            // 代数表过大：整体递增纪元后清空，进行中的加载同样会被拒绝回填
+            epoch.incrementAndGet();
+            generations.clear();
+        }
+    }
+
+    private void invalidateLocalPrefix(String prefix) {
+        if (prefix == null) {
+            return;
+        }
+        epoch.incrementAndGet();
+        local.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private void invalidateLocalAll() {
+        epoch.incrementAndGet();
+        local.clear();
+    }
+
+    private void remoteInvalidateAll() {
+        if (!isShared()) {
+            return;
+        }
+        try {
+            manager.getRemoteStore().invalidateAll(name);
+        } catch (Exception e) {
+            remoteErrors.increment();
+            log.warn("[CacheRegion] 共享层整体失效失败: region={}, error={}", name, e.getMessage());
+        }
+    }
+
+    private RemoteCacheStore.RemoteRead remoteGet(String key) {
+        try {
+            return manager.getRemoteStore().get(name, key);
+        } catch (Exception e) {
+            remoteErrors.increment();
+            log.debug("[CacheRegion] 共享层读取失败，回源加载: region={}, error={}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean remotePutIfVersion(String key, String payload, RemoteCacheStore.RemoteRead read) {
+        try {
+            return manager.getRemoteStore().putIfVersion(name, key, payload, read,
+                    config.getRemoteTtlSeconds() * 1000L);
+        } catch (Exception e) {
+            remoteErrors.increment();
+            log.debug("[CacheRegion] 共享层写入失败: region={}, error={}", name, e.getMessage());
+            return true;
+        }
+    }
+
+    private String serialize(V value) {
+        try {
+            return manager.getObjectMapper().writeValueAsString(value);
+        } catch (Exception e) {
+            log.warn("[CacheRegion] 缓存值序列化失败: region={}, error={}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private V deserialize(String payload) {
+        if (payload == null) {
+            return null;
+        }
+        try {
+            return manager.getObjectMapper().readValue(payload, remoteType);
+        } catch (Exception e) {
+            log.warn("[CacheRegion] 缓存值反序列化失败，按未命中处理: region={}, error={}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private long expireAt() {
+        return config.getLocalTtlSeconds() > 0
+                ? System.currentTimeMillis() + config.getLocalTtlSeconds() * 1000L
+                : 0L;
+    }
+
+    /**
+     * 超过容量时先清理过期条目，仍超出则按迭代顺序淘汰到 90%
+     */
+    private void evictIfNeeded() {
+        int max = config.getLocalMaxSize();
+        if (local.size() <= max) {
+            return;
+        }
+        local.values().removeIf(LocalEntry::isExpired);
+        int target = max * 9 / 10;
+        Iterator<String> iterator = local.keySet().iterator();
+        while (local.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private record LocalEntry<V>(V value, long expireAt) {
+        boolean isExpired() {
+            return expireAt > 0 && System.currentTimeMillis() > expireAt;
+        }
+    }
+}
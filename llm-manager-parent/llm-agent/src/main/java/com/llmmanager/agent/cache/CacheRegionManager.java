@@ -0,0 +1,122 @@
+package com.llmmanager.agent.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 缓存区域管理器
+ *
+ * 各组件通过区域名获取缓存区域：
+ * - localRegion：本地缓存，失效经广播作用到所有节点
+ * - sharedRegion：本地 + Redis 两级缓存（未启用 Redis 时退化为本地缓存）
+ *
+ * 同名区域只创建一次；收到其它节点的失效广播时分发到对应区域。
+ */
+@Slf4j
+public class CacheRegionManager {
+
+    private final CacheProperties properties;
+
+    private final RemoteCacheStore remoteStore;
+
+    private final CacheInvalidationBus bus;
+
+    private final ObjectMapper objectMapper;
+
+    private final MeterRegistry meterRegistry;
+
+    private final String nodeId;
+
+    private final Map<String, CacheRegion<?>> regions = new ConcurrentHashMap<>();
+
+    /**
+     * @param remoteStore 共享层，为 null 时所有区域只使用本地缓存
+     */
+    public CacheRegionManager(CacheProperties properties, RemoteCacheStore remoteStore, CacheInvalidationBus bus,
+                              ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.remoteStore = remoteStore;
+        this.bus = bus != null ? bus : CacheInvalidationBus.LOCAL;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.nodeId = StringUtils.hasText(properties.getNodeId())
+                ? properties.getNodeId()
+                : UUID.randomUUID().toString().substring(0, 8);
+        this.bus.subscribe(this::onInvalidation);
+        log.info("[CacheRegionManager] 初始化完成: nodeId={}, sharedTier={}", nodeId, remoteStore != null);
+    }
+
+    /**
+     * 获取本地区域（值不需要可序列化）
+     */
+    @SuppressWarnings("unchecked")
+    public <V> CacheRegion<V> localRegion(String name) {
+        return (CacheRegion<V>) regions.computeIfAbsent(name, n -> createRegion(n, null));
+    }
+
+    /**
+     * 获取共享区域（值需能被 Jackson 序列化 / 反序列化）
+     */
+    @SuppressWarnings("unchecked")
+    public <V> CacheRegion<V> sharedRegion(String name, Class<V> valueType) {
+        return (CacheRegion<V>) regions.computeIfAbsent(name,
+                n -> createRegion(n, objectMapper.constructType(valueType)));
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    RemoteCacheStore getRemoteStore() {
+        return remoteStore;
+    }
+
+    ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    void publish(CacheInvalidation invalidation) {
+        try {
+            bus.publish(invalidation);
+        } catch (Exception e) {
+            // 广播失败时其它节点依赖本地 TTL 兜底
+            log.warn("[CacheRegionManager] 失效广播失败: region={}, key={}, error={}",
+                    invalidation.getRegion(), invalidation.getKey(), e.getMessage());
+        }
+    }
+
+    private CacheRegion<?> createRegion(String name, JavaType remoteType) {
+        return new CacheRegion<>(name, properties.regionConfig(name), this, remoteType, meterRegistry);
+    }
+
+    private void onInvalidation(CacheInvalidation invalidation) {
+        if (invalidation == null || nodeId.equals(invalidation.getOrigin())) {
+            return;
+        }
+        CacheRegion<?> region = regions.get(invalidation.getRegion());
+        if (region == null) {
+            // 本节点尚未使用该区域，没有需要清理的数据
+            return;
+        }
+        region.applyPeerInvalidation(invalidation);
+        if (invalidation.getSentAt() > 0) {
+            long lag = Math.max(0, System.currentTimeMillis() - invalidation.getSentAt());
+            Timer.builder("llm.cache.invalidation.lag")
+                    .tag("region", invalidation.getRegion())
+                    .description("失效广播从发出到本节点生效的延迟")
+                    .register(meterRegistry)
+                    .record(Duration.ofMillis(lag));
+        }
+        log.debug("[CacheRegionManager] 应用远端失效: region={}, scope={}, key={}, origin={}",
+                invalidation.getRegion(), invalidation.getScope(), invalidation.getKey(), invalidation.getOrigin());
+    }
+}
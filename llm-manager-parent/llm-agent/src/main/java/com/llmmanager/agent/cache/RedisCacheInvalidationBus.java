@@ -0,0 +1,57 @@
+package com.llmmanager.agent.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * 基于 Redis pub/sub 的失效广播
+ *
+ * pub/sub 不保证送达（订阅断开期间的消息会丢失），本地区域可配置 local-ttl-seconds 作为兜底。
+ */
+@Slf4j
+public class RedisCacheInvalidationBus implements CacheInvalidationBus {
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final ObjectMapper objectMapper;
+
+    private final String channel;
+
+    public RedisCacheInvalidationBus(StringRedisTemplate redisTemplate, RedisMessageListenerContainer listenerContainer,
+                                     ObjectMapper objectMapper, String channel) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.objectMapper = objectMapper;
+        this.channel = channel;
+    }
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        try {
+            redisTemplate.convertAndSend(channel, objectMapper.writeValueAsString(invalidation));
+        } catch (Exception e) {
+            throw new IllegalStateException("失效广播发送失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> listener) {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            try {
+                String body = new String(message.getBody(), StandardCharsets.UTF_8);
+                listener.accept(objectMapper.readValue(body, CacheInvalidation.class));
+            } catch (Exception e) {
+                log.warn("[RedisCacheInvalidationBus] 失效消息处理失败: {}", e.getMessage());
+            }
+        }, new ChannelTopic(channel));
+        log.info("[RedisCacheInvalidationBus] 已订阅失效广播频道: {}", channel);
+    }
+}
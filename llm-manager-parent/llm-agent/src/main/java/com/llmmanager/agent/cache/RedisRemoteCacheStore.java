@@ -0,0 +1,121 @@
+package com.llmmanager.agent.cache;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 基于 Redis 的共享缓存层
+ *
+ * 键布局（{region} 为 hash tag，保证同一区域的键在 Redis Cluster 中落在同一个 slot，Lua 脚本可以同时访问）：
+ * - {prefix}{region}:v:{key}  键版本，失效时 INCR
+ * - {prefix}{region}:epoch    区域纪元，整体失效时 INCR
+ * - {prefix}{region}:d:{key}  缓存值，格式 "版本:纪元:JSON"
+ *
+ * 读取时只有缓存值里记录的版本 / 纪元与当前一致才算命中；回填通过 Lua 脚本比较版本后写入。
+ */
+public class RedisRemoteCacheStore implements RemoteCacheStore {
+
+    /**
+     * 版本号最短保留时间：需长于缓存值 TTL，避免版本回到 0 后旧值重新可读
+     */
+    private static final long MIN_VERSION_TTL_MILLIS = 24 * 3600 * 1000L;
+
+    private static final DefaultRedisScript<Long> PUT_IF_VERSION = new DefaultRedisScript<>(
+            "local v = tonumber(redis.call('GET', KEYS[2]) or '0') " +
+            "local e = tonumber(redis.call('GET', KEYS[3]) or '0') " +
+            "if v ~= tonumber(ARGV[1]) or e ~= tonumber(ARGV[2]) then return 0 end " +
+            "redis.call('SET', KEYS[1], ARGV[1] .. ':' .. ARGV[2] .. ':' .. ARGV[3], 'PX', ARGV[4]) " +
+            "return 1",
+            Long.class);
+
+    private static final DefaultRedisScript<Long> INVALIDATE = new DefaultRedisScript<>(
+            "redis.call('INCR', KEYS[2]) " +
+            "redis.call('PEXPIRE', KEYS[2], ARGV[1]) " +
+            "redis.call('DEL', KEYS[1]) " +
+            "return 1",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final CacheProperties properties;
+
+    public RedisRemoteCacheStore(StringRedisTemplate redisTemplate, CacheProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+    }
+
+    @Override
+    public RemoteRead get(String region, String key) {
+        List<String> values = redisTemplate.opsForValue().multiGet(
+                Arrays.asList(dataKey(region, key), versionKey(region, key), epochKey(region)));
+        String data = values != null ? values.get(0) : null;
+        long version = parseLong(values != null ? values.get(1) : null);
+        long epoch = parseLong(values != null ? values.get(2) : null);
+
+        String payload = null;
+        if (data != null) {
+            int first = data.indexOf(':');
+            int second = first >= 0 ? data.indexOf(':', first + 1) : -1;
+            if (second > 0
+                    && parseLong(data.substring(0, first)) == version
+                    && parseLong(data.substring(first + 1, second)) == epoch) {
+                payload = data.substring(second + 1);
+            }
+        }
+        return new RemoteRead(payload, version, epoch);
+    }
+
+    @Override
+    public boolean putIfVersion(String region, String key, String payload, RemoteRead readVersion, long ttlMillis) {
+        Long result = redisTemplate.execute(PUT_IF_VERSION,
+                Arrays.asList(dataKey(region, key), versionKey(region, key), epochKey(region)),
+                String.valueOf(readVersion.version()), String.valueOf(readVersion.epoch()),
+                payload, String.valueOf(Math.max(ttlMillis, 1000L)));
+        return result != null && result == 1L;
+    }
+
+    @Override
+    public void invalidate(String region, String key) {
+        long versionTtl = Math.max(properties.regionConfig(region).getRemoteTtlSeconds() * 2000L,
+                MIN_VERSION_TTL_MILLIS);
+        redisTemplate.execute(INVALIDATE,
+                Arrays.asList(dataKey(region, key), versionKey(region, key)),
+                String.valueOf(versionTtl));
+    }
+
+    @Override
+    public void invalidateAll(String region) {
+        // 旧纪元的缓存值不再可读，随 TTL 自然过期
+        redisTemplate.opsForValue().increment(epochKey(region));
+    }
+
+    private String base(String region) {
+        return properties.getKeyPrefix() + "{" + region + "}:";
+    }
+
+    private String dataKey(String region, String key) {
+        return base(region) + "d:" + key;
+    }
+
+    private String versionKey(String region, String key) {
+        return base(region) + "v:" + key;
+    }
+
+    private String epochKey(String region) {
+        return base(region) + "epoch";
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+}
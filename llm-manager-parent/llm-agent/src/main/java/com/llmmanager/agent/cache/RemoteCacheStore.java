@@ -0,0 +1,44 @@
+package com.llmmanager.agent.cache;
+
+/**
+ * 共享缓存层（Redis）
+ *
+ * 每个键带一个版本号、每个区域带一个纪元号，失效时递增。读取时一并返回当前版本，
+ * 回填只在版本未变化时成功：加载期间其它节点修改了数据并失效，加载到的旧值不会再写回共享层。
+ */
+public interface RemoteCacheStore {
+
+    /**
+     * 读取缓存值和当前版本
+     *
+     * @return 不会为 null；缓存不存在或版本不匹配时 payload 为 null
+     */
+    RemoteRead get(String region, String key);
+
+    /**
+     * 版本未变化时写入
+     *
+     * @return 是否写入（false 表示读取之后发生过失效）
+     */
+    boolean putIfVersion(String region, String key, String payload, RemoteRead readVersion, long ttlMillis);
+
+    /**
+     * 递增键版本并删除缓存值
+     */
+    void invalidate(String region, String key);
+
+    /**
+     * 递增区域纪元（区域内所有键失效）
+     */
+    void invalidateAll(String region);
+
+    /**
+     * 读取结果
+     *
+     * @param payload 缓存值（JSON），未命中时为 null
+     * @param version 读取时的键版本
+     * @param epoch   读取时的区域纪元
+     */
+    record RemoteRead(String payload, long version, long epoch) {
+    }
+}
@@ -0,0 +1,48 @@
+package com.llmmanager.agent.concurrent;
+
+import org.apache.commons.logging.Log;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.boot.logging.DeferredLogFactory;
+import org.springframework.boot.thread.Threading;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+/**
+ * 虚拟线程模式启动处理（META-INF/spring.factories 注册）
+ *
+ * spring.threads.virtual.enabled=true 时：
+ * - JDK 21+：Spring Boot 将 Tomcat 请求线程、@Async / applicationTaskExecutor 切换为虚拟线程；
+ *   本处理器额外启用 VirtualThreads（内部线程池）并让 Reactor boundedElastic 调度器使用虚拟线程
+ *   （智能体 / 工作流流式执行、请求对冲都在该调度器上阻塞等待模型响应）
+ * - JDK 17：Spring Boot 忽略该配置，这里只输出警告，继续使用平台线程
+ *
+ * 必须在任何 Bean 创建、Reactor Schedulers 初始化之前执行，因此不能放在普通配置类中
+ */
+public class VirtualThreadEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    static final String REACTOR_VIRTUAL_THREADS = "reactor.schedulers.defaultBoundedElasticOnVirtualThreads";
+
+    private final Log log;
+
+    public VirtualThreadEnvironmentPostProcessor(DeferredLogFactory logFactory) {
+        this.log = logFactory.getLog(VirtualThreadEnvironmentPostProcessor.class);
+    }
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            return;
+        }
+        if (!Threading.VIRTUAL.isActive(environment)) {
+            log.warn("[VirtualThreads] 已配置 spring.threads.virtual.enabled=true，但当前 JDK "
+                    + Runtime.version().feature() + " 不支持虚拟线程（需要 21+），继续使用平台线程");
+            return;
+        }
+
+        VirtualThreads.enable();
+        if (System.getProperty(REACTOR_VIRTUAL_THREADS) == null) {
+            System.setProperty(REACTOR_VIRTUAL_THREADS, "true");
+        }
+        log.info("[VirtualThreads] 虚拟线程模式已启用: Tomcat 请求线程、@Async、Reactor boundedElastic、内部任务执行器");
+    }
+}
@@ -0,0 +1,147 @@
+package com.llmmanager.agent.concurrent;
+
+import com.llmmanager.agent.config.ThreadingProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 虚拟线程钉住（pinning）监控
+ *
+ * 虚拟线程在 synchronized 块或本地方法中阻塞时无法卸载，会一直占用载体线程（carrier）；
+ * 载体线程数默认等于 CPU 核数，钉住多了整个进程的并发就退化为核数。
+ *
+ * 通过进程内 JFR 事件流订阅 jdk.VirtualThreadPinned（超过阈值的钉住），按代码位置聚合：
+ * - 指标：llm.threads.virtual.pinned{site}（Timer，次数 + 钉住时长）
+ * - 日志：同一位置按间隔输出 WARN，附带调用栈前几帧
+ *
+ * 代码位置取调用栈中第一个 com.llmmanager 帧（没有时取第一个非 JDK 帧），
+ * 定位到后将该处的 synchronized 改为 ReentrantLock，或把阻塞 I/O 移出同步块。
+ *
+ * 只在虚拟线程模式（spring.threads.virtual.enabled=true 且 JDK 21+）下创建；
+ * 也可不启用本监控，改用 JVM 参数 -Djdk.tracePinnedThreads=short 输出到标准输出。
+ */
+@Slf4j
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private static final String APP_PACKAGE = "com.llmmanager.";
+
+    private static final int MAX_LOGGED_FRAMES = 8;
+
+    @Resource
+    private ThreadingProperties properties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Long> lastLoggedAt = new ConcurrentHashMap<>();
+
+    private RecordingStream stream;
+
+    @PostConstruct
+    public void start() {
+        if (!Boolean.TRUE.equals(properties.getPinningMonitorEnabled())) {
+            return;
+        }
+        try {
+            stream = new RecordingStream();
+            stream.enable(PINNED_EVENT)
+                    .withThreshold(Duration.ofMillis(properties.getPinningThresholdMs()))
+                    .withStackTrace();
+            stream.onEvent(PINNED_EVENT, this::onPinned);
+            stream.startAsync();
+            log.info("[VirtualThreadPinningMonitor] 已启动, threshold={}ms", properties.getPinningThresholdMs());
+        } catch (Exception e) {
+            // JFR 不可用（如 JVM 以 -XX:-FlightRecorder 启动）时不影响业务
+            log.warn("[VirtualThreadPinningMonitor] 启动失败，钉住诊断不可用: {}", e.getMessage());
+            stream = null;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        List<RecordedFrame> frames = event.getStackTrace() != null
+                ? event.getStackTrace().getFrames() : List.of();
+        String site = site(frames);
+        Duration duration = event.getDuration();
+
+        Timer.builder("llm.threads.virtual.pinned")
+                .tag("site", site)
+                .register(meterRegistry)
+                .record(duration);
+
+        long now = System.currentTimeMillis();
+        long intervalMs = properties.getPinningLogIntervalSeconds() * 1000;
+        Long last = lastLoggedAt.get(site);
+        if (last != null && now - last < intervalMs) {
+            return;
+        }
+        lastLoggedAt.put(site, now);
+        log.warn("[VirtualThreadPinningMonitor] 虚拟线程被钉住 {}ms, site: {}, stack:\n{}",
+                duration.toMillis(), site, appStack(event.getStackTrace()));
+    }
+
+    private static String site(List<RecordedFrame> frames) {
+        RecordedFrame fallback = null;
+        for (RecordedFrame frame : frames) {
+            if (!frame.isJavaFrame()) {
+                continue;
+            }
+            String type = frame.getMethod().getType().getName();
+            if (type.startsWith(APP_PACKAGE)) {
+                return describe(frame);
+            }
+            if (fallback == null && !type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                fallback = frame;
+            }
+        }
+        return fallback != null ? describe(fallback) : "unknown";
+    }
+
+    private static String appStack(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "  (无调用栈)";
+        }
+        StringBuilder text = new StringBuilder();
+        int logged = 0;
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (logged >= MAX_LOGGED_FRAMES) {
+                break;
+            }
+            if (frame.isJavaFrame()) {
+                text.append("  at ").append(describe(frame)).append(':').append(frame.getLineNumber()).append('\n');
+                logged++;
+            }
+        }
+        return text.toString();
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+    }
+}
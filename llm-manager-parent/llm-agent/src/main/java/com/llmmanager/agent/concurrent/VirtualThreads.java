@@ -0,0 +1,108 @@
+package com.llmmanager.agent.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 虚拟线程支持
+ *
+ * 项目以 Java 17 编译，虚拟线程 API（JDK 21）通过反射调用：
+ * - 运行在 JDK 21+ 且 spring.threads.virtual.enabled=true 时，由 VirtualThreadEnvironmentPostProcessor 在启动早期调用 enable()
+ * - 未启用时所有方法退回平台线程，行为与原实现一致
+ *
+ * 供不由 Spring 管理的内部线程池使用（如 ParallelPatternExecutor）；
+ * Tomcat 请求线程和 @Async 执行器由 Spring Boot 根据同一配置自行切换。
+ */
+public final class VirtualThreads {
+
+    private static volatile boolean enabled = false;
+
+    private static volatile ExecutorService sharedTaskExecutor;
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 当前 JDK 是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    /**
+     * 启用虚拟线程（JDK 不支持时忽略）
+     */
+    public static void enable() {
+        enabled = isSupported();
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 线程工厂：启用时创建虚拟线程，否则创建守护平台线程
+     *
+     * @param namePrefix 线程名前缀，线程名为 namePrefix + 序号
+     */
+    public static ThreadFactory threadFactory(String namePrefix) {
+        if (enabled) {
+            return virtualThreadFactory(namePrefix);
+        }
+        AtomicInteger index = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 阻塞任务执行器：启用时每个任务一个虚拟线程，否则为按需扩容的平台线程池
+     */
+    public static ExecutorService newTaskExecutor(String namePrefix) {
+        ThreadFactory factory = threadFactory(namePrefix);
+        if (enabled) {
+            try {
+                Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+                return (ExecutorService) method.invoke(null, factory);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("创建虚拟线程执行器失败", e);
+            }
+        }
+        return Executors.newCachedThreadPool(factory);
+    }
+
+    /**
+     * 进程内共享的阻塞任务执行器（按需创建，随 JVM 退出）
+     */
+    public static ExecutorService sharedTaskExecutor() {
+        ExecutorService executor = sharedTaskExecutor;
+        if (executor == null) {
+            synchronized (VirtualThreads.class) {
+                if (sharedTaskExecutor == null) {
+                    sharedTaskExecutor = newTaskExecutor("agent-task-");
+                }
+                executor = sharedTaskExecutor;
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Thread.ofVirtual().name(prefix, 1).factory()
+     */
+    private static ThreadFactory virtualThreadFactory(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("创建虚拟线程工厂失败", e);
+        }
+    }
+}
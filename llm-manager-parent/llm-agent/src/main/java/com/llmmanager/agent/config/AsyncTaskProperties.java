@@ -0,0 +1,160 @@
+package com.llmmanager.agent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 异步任务配置属性
+ *
+ * 长耗时的 DeepResearch / 动态工作流 / ReactAgent 通过异步接口提交到 a_graph_tasks，
+ * 由后台 Worker 认领执行；结果通过轮询、SSE 进度或回调地址获取。
+ */
+@Data
+@ConfigurationProperties(prefix = "llm.async-tasks")
+public class AsyncTaskProperties {
+
+    /**
+     * 是否启用异步任务（需先执行 a_graph_tasks 的升级 SQL）
+     * 默认：false
+     */
+    private Boolean enabled = false;
+
+    /**
+     * 本节点同时执行的任务数
+     * 默认：4
+     */
+    private Integer concurrency = 4;
+
+    /**
+     * 单个 API Key 同时执行的任务上限（集群范围，<= 0 表示不限制）
+     * 默认：2
+     */
+    private Integer maxRunningPerKey = 2;
+
+    /**
+     * 单个 API Key 未结束（排队 + 执行中）的任务上限，超过时拒绝提交（<= 0 表示不限制）
+     * 默认：100
+     */
+    private Integer maxActivePerKey = 100;
+
+    /**
+     * 调用方可指定的最大优先级（提交的优先级限制在 0 ~ maxPriority）
+     * 默认：9
+     */
+    private Integer maxPriority = 9;
+
+    /**
+     * 默认优先级
+     * 默认：0
+     */
+    private Integer defaultPriority = 0;
+
+    /**
+     * 轮询认领间隔（毫秒）
+     * 默认：1000
+     */
+    private Long pollIntervalMs = 1000L;
+
+    /**
+     * 租约时长（毫秒），超过未续约的任务由其它节点接管
+     * 默认：60000
+     */
+    private Long leaseMs = 60000L;
+
+    /**
+     * 心跳续约间隔（毫秒）
+     * 默认：15000
+     */
+    private Long heartbeatIntervalMs = 15000L;
+
+    /**
+     * 最大执行次数（大于 1 时失败 / 节点失联后按指数退避重新执行）
+     * 默认：1
+     */
+    private Integer maxAttempts = 1;
+
+    /**
+     * 失败重试退避（毫秒），按指数增长
+     * 默认：30000
+     */
+    private Long retryBackoffMs = 30000L;
+
+    /**
+     * 最大重试退避（毫秒）
+     * 默认：600000
+     */
+    private Long maxRetryBackoffMs = 600000L;
+
+    /**
+     * 单个任务的最长执行时间（毫秒），超时记为失败
+     * 默认：1800000（30 分钟）
+     */
+    private Long taskTimeoutMs = 1800000L;
+
+    /**
+     * SSE 订阅者加入时重放的最近进度事件数
+     * 默认：512
+     */
+    private Integer progressReplaySize = 512;
+
+    /**
+     * SSE 在任务排队或在其它节点执行时查询任务状态的间隔（毫秒）
+     * 默认：2000
+     */
+    private Long statusPollIntervalMs = 2000L;
+
+    /**
+     * 节点标识（默认 主机名:进程号）
+     */
+    private String nodeId;
+
+    /**
+     * 结果回调配置
+     */
+    private CallbackConfig callback = new CallbackConfig();
+
+    @Data
+    public static class CallbackConfig {
+
+        /**
+         * 最大投递次数（耗尽后回调状态为 FAILED，结果仍可轮询获取）
+         * 默认：5
+         */
+        private Integer maxAttempts = 5;
+
+        /**
+         * 投递失败退避（毫秒），按指数增长
+         * 默认：5000
+         */
+        private Long retryBackoffMs = 5000L;
+
+        /**
+         * 最大投递退避（毫秒）
+         * 默认：300000
+         */
+        private Long maxRetryBackoffMs = 300000L;
+
+        /**
+         * 连接 / 读取超时（毫秒）
+         * 默认：10000
+         */
+        private Long timeoutMs = 10000L;
+
+        /**
+         * 同时投递的回调数
+         * 默认：2
+         */
+        private Integer concurrency = 2;
+
+        /**
+         * 签名密钥：配置后请求头 X-LLM-Signature 携带 sha256=HMAC-SHA256(secret, body) 的十六进制值
+         */
+        private String secret;
+
+        /**
+         * 是否允许回调到回环 / 内网地址（本地联调时开启）
+         * 默认：false
+         */
+        private Boolean allowPrivateNetwork = false;
+    }
+}
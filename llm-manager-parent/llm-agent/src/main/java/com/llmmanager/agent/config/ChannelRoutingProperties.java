@@ -0,0 +1,38 @@
+package com.llmmanager.agent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 多渠道路由配置属性（一个模型由多个渠道组成的加权渠道池提供服务时生效）
+ */
+@Data
+@ConfigurationProperties(prefix = "llm.routing")
+public class ChannelRoutingProperties {
+
+    /**
+     * 渠道选择策略
+     * - LEAST_OUTSTANDING：按 (在途请求数 + 1) / 权重 选择
+     * - EWMA：按 EWMA 延迟 × (在途请求数 + 1) / 权重 选择
+     * 默认：EWMA
+     */
+    private String strategy = "EWMA";
+
+    /**
+     * 连续失败（429 / 5xx / 超时 / 连接失败）多少次后摘除渠道
+     * 默认：3
+     */
+    private Integer ejectThreshold = 3;
+
+    /**
+     * 渠道摘除冷却时长（毫秒），冷却期内不参与选择；到期后放行一个试探请求，成功恢复、失败重新摘除
+     * 默认：30000
+     */
+    private Long ejectDurationMs = 30000L;
+
+    /**
+     * 延迟 EWMA 平滑系数（0-1，越大越偏向最近的请求）
+     * 默认：0.3
+     */
+    private Double ewmaAlpha = 0.3;
+}
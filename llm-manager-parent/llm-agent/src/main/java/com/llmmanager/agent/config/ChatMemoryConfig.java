@@ -1,6 +1,7 @@
 package com.llmmanager.agent.config;
 
 import com.llmmanager.agent.advisor.AdvisorManager;
+import com.llmmanager.agent.cache.CacheProperties;
 import com.llmmanager.agent.storage.memory.MybatisChatMemoryRepository;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.memory.ChatMemory;
@@ -18,7 +19,16 @@ import org.springframework.context.annotation.Configuration;
         ChatMemoryProperties.class,
         McpClientProperties.class,
         HttpToolsProperties.class,
-        WebSearchToolsProperties.class
+        WebSearchToolsProperties.class,
+        StreamProperties.class,
+        ChannelRoutingProperties.class,
+        HedgingProperties.class,
+        ReadWriteRoutingProperties.class,
+        CoalescingProperties.class,
+        CacheProperties.class,
+        FastPathProperties.class,
+        ThreadingProperties.class,
+        AsyncTaskProperties.class
 })
 public class ChatMemoryConfig {
 
@@ -23,7 +23,7 @@ public class ChatMemoryProperties {
     private Integer maxMessages = 10;
 
     /**
-     * 是否启用历史消息清理
+     * 是否启用历史消息清理（后台按 retention.interval-minutes 定期执行归档 / 清理）
      * 默认：false
      */
     private Boolean enableCleanup = false;
@@ -33,4 +33,71 @@ public class ChatMemoryProperties {
      * 默认：7天
      */
     private Integer retentionDays = 7;
+
+    /**
+     * 历史保留 / 冷归档配置
+     */
+    private Retention retention = new Retention();
+
+    /**
+     * 历史保留 / 冷归档配置
+     *
+     * 最后消息时间超过 retentionDays 的会话整体处理：
+     * - archiveEnabled=true：写入 archivePath 下按月份分区的 NDJSON.gz 文件后从在线表物理删除，可按需恢复
+     * - archiveEnabled=false：直接物理删除
+     * 另外分批物理删除已软删除（is_delete=1）的消息、轮次和会话。
+     */
+    @Data
+    public static class Retention {
+
+        /**
+         * 是否归档到文件（false 时过期会话直接删除）
+         */
+        private Boolean archiveEnabled = true;
+
+        /**
+         * 归档根目录（按 yyyy-MM 分子目录）
+         */
+        private String archivePath = "./data/chat-archive";
+
+        /**
+         * 执行间隔（分钟）
+         */
+        private Long intervalMinutes = 60L;
+
+        /**
+         * 启动后首次执行的延迟（分钟）
+         */
+        private Long initialDelayMinutes = 5L;
+
+        /**
+         * 每批处理的会话数（同一批、同一月份的会话写入同一个归档文件）
+         */
+        private Integer conversationBatchSize = 200;
+
+        /**
+         * 单条 DELETE 删除的最大行数
+         */
+        private Integer deleteBatchSize = 500;
+
+        /**
+         * 两次 DELETE 之间的间隔（毫秒），降低对在线写入和复制延迟的影响
+         */
+        private Long batchPauseMs = 50L;
+
+        /**
+         * 单次执行的最长时间（分钟），超过后停止，剩余部分下次继续
+         */
+        private Long maxRunMinutes = 20L;
+
+        /**
+         * 是否物理删除已软删除的记录
+         */
+        private Boolean purgeSoftDeleted = true;
+
+        /**
+         * 节点标识（为空时取 主机名:进程号），用于多节点互斥
+         */
+        private String nodeId;
+    }
 }
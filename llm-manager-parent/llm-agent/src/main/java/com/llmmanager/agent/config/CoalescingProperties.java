@@ -0,0 +1,33 @@
+package com.llmmanager.agent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 请求合并（singleflight）配置属性
+ *
+ * 同时在途的完全相同的无状态对话请求（无 conversationCode、无工具调用）共享一次上游调用
+ */
+@Data
+@ConfigurationProperties(prefix = "llm.coalescing")
+public class CoalescingProperties {
+
+    /**
+     * 同步对话是否合并
+     * 默认：true
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 流式对话是否合并（后加入的订阅者从头重放已输出的片段）
+     * 默认：true
+     */
+    private Boolean streamEnabled = true;
+
+    /**
+     * 同步 follower 等待 leader 结果的最长时间（毫秒），应覆盖一次模型调用的耗时；
+     * 超时后 follower 不再等待，自行发起调用
+     * 默认：120000
+     */
+    private Long followerTimeoutMs = 120000L;
+}
@@ -0,0 +1,21 @@
+package com.llmmanager.agent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 单轮对话快速路径配置属性
+ *
+ * 不带会话、记忆、RAG、工具和思考模式的请求使用缓存的精简 ChatClient，不逐请求构建 ChatClient 和条件 Advisor；
+ * MetricsAdvisor 等全局 Advisor 照常执行
+ */
+@Data
+@ConfigurationProperties(prefix = "llm.fast-path")
+public class FastPathProperties {
+
+    /**
+     * 是否启用快速路径
+     * 默认：true
+     */
+    private Boolean enabled = true;
+}
@@ -0,0 +1,54 @@
+package com.llmmanager.agent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 对冲请求配置属性（非流式对话，模型开启 hedge_enabled 时生效）
+ */
+@Data
+@ConfigurationProperties(prefix = "llm.hedging")
+public class HedgingProperties {
+
+    /**
+     * 全局开关（关闭后所有模型都不对冲）
+     * 默认：true
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 对冲阈值取该模型最近响应耗时的分位数
+     * 默认：0.9（p90）
+     */
+    private Double percentile = 0.9;
+
+    /**
+     * 每个模型保留的最近耗时样本数
+     * 默认：256
+     */
+    private Integer windowSize = 256;
+
+    /**
+     * 样本数不足时不对冲（阈值不可靠）
+     * 默认：20
+     */
+    private Integer minSamples = 20;
+
+    /**
+     * 对冲阈值下限（毫秒），避免对本来就很快的请求对冲
+     * 默认：100
+     */
+    private Long minDelayMs = 100L;
+
+    /**
+     * 对冲预算：额外请求数占主请求数的比例上限
+     * 默认：0.05（≤5%）
+     */
+    private Double budgetRatio = 0.05;
+
+    /**
+     * 对冲预算可累积的上限（允许短时突发的对冲次数）
+     * 默认：10
+     */
+    private Double maxBudget = 10.0;
+}
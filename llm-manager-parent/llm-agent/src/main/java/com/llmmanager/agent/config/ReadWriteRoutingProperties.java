@@ -0,0 +1,106 @@
+package com.llmmanager.agent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离配置属性
+ *
+ * 开启后标注了 @ReadOnlyRoute 的只读查询（管理后台的会话列表、历史消息、任务 / 步骤查看、知识库统计等）
+ * 路由到从库连接池，聊天写入路径继续独占主库连接池。
+ * 主库连接池沿用 spring.datasource / spring.datasource.druid 配置，从库连接池各自独立设置大小。
+ */
+@Data
+@ConfigurationProperties(prefix = "llm.datasource.read-write")
+public class ReadWriteRoutingProperties {
+
+    /**
+     * 是否启用读写分离（未配置从库时即使开启也全部走主库）
+     * 默认：false
+     */
+    private Boolean enabled = false;
+
+    /**
+     * 读己之写窗口（毫秒）：会话写入后该时间内，按会话查询的只读请求仍走主库。
+     * 应大于从库的正常复制延迟。
+     * 默认：5000
+     */
+    private Long readYourWritesWindowMs = 5000L;
+
+    /**
+     * 最多跟踪的最近写入会话数（超过后清理已过窗口的记录）
+     * 默认：100000
+     */
+    private Integer maxTrackedConversations = 100000;
+
+    /**
+     * 从库获取连接失败后暂停路由的时间（毫秒），期间只读请求回落主库
+     * 默认：30000
+     */
+    private Long replicaCooldownMs = 30000L;
+
+    /**
+     * 从库列表（按轮询分配只读请求）
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    /**
+     * 从库连接池配置
+     */
+    @Data
+    public static class Replica {
+
+        /**
+         * 连接池名称（用于日志、指标标签和 Druid 监控页），为空时使用 replica-序号
+         */
+        private String name;
+
+        /**
+         * JDBC 地址
+         */
+        private String url;
+
+        /**
+         * 用户名（为空时沿用主库）
+         */
+        private String username;
+
+        /**
+         * 密码（为空时沿用主库）
+         */
+        private String password;
+
+        /**
+         * 初始化连接数
+         * 默认：2
+         */
+        private Integer initialSize = 2;
+
+        /**
+         * 最小空闲连接数
+         * 默认：2
+         */
+        private Integer minIdle = 2;
+
+        /**
+         * 最大活跃连接数
+         * 默认：20
+         */
+        private Integer maxActive = 20;
+
+        /**
+         * 获取连接的最大等待时间（毫秒），比主库短，从库繁忙时尽快回落
+         * 默认：3000
+         */
+        private Long maxWait = 3000L;
+
+        /**
+         * Druid filters（只读连接不需要 wall 防注入过滤）
+         * 默认：stat
+         */
+        private String filters = "stat";
+    }
+}
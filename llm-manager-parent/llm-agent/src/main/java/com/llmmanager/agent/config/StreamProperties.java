@@ -0,0 +1,31 @@
+package com.llmmanager.agent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 流式执行配置属性（对话 / 工作流 / Agent 的 SSE 流）
+ */
+@Data
+@ConfigurationProperties(prefix = "llm.stream")
+public class StreamProperties {
+
+    /**
+     * 单次执行的事件缓冲区大小（超过后生产端阻塞等待，形成背压）
+     * 默认：256
+     */
+    private Integer bufferSize = 256;
+
+    /**
+     * 缓冲区满时生产端的最长等待时间（毫秒），超时视为消费端过慢并中止执行
+     * 默认：30000
+     */
+    private Long emitTimeoutMs = 30000L;
+
+    /**
+     * SSE 心跳间隔（毫秒），0 表示关闭
+     * 上游长时间无输出（如思考阶段）时定期写出注释行，使断开的连接能被及时发现并取消上游请求
+     * 默认：15000
+     */
+    private Long heartbeatIntervalMs = 15000L;
+}
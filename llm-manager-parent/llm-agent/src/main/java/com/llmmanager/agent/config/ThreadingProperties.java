@@ -0,0 +1,32 @@
+package com.llmmanager.agent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 虚拟线程诊断配置属性
+ *
+ * 虚拟线程模式本身由 spring.threads.virtual.enabled 开启（需要 JDK 21+），这里只配置钉住（pinning）诊断
+ */
+@Data
+@ConfigurationProperties(prefix = "llm.threading")
+public class ThreadingProperties {
+
+    /**
+     * 虚拟线程模式下是否监控钉住事件（JFR jdk.VirtualThreadPinned）
+     * 默认：true
+     */
+    private Boolean pinningMonitorEnabled = true;
+
+    /**
+     * 钉住时长超过该值才记录（毫秒）
+     * 默认：20
+     */
+    private Long pinningThresholdMs = 20L;
+
+    /**
+     * 同一代码位置的钉住告警日志最小间隔（秒），指标不受影响
+     * 默认：60
+     */
+    private Long pinningLogIntervalSeconds = 60L;
+}
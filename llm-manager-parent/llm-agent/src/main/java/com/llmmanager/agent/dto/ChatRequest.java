@@ -29,6 +29,17 @@ public class ChatRequest {
      */
     private Long channelId;
 
+    /**
+     * 渠道池（可选，多于一个成员时启用负载均衡和故障转移，此时忽略上面的单渠道配置）
+     */
+    private java.util.List<com.llmmanager.agent.routing.ChannelEndpoint> channelPool;
+
+    /**
+     * 是否启用对冲请求（仅同步调用生效，慢请求时发起第二个相同请求，先返回者生效）
+     */
+    @Builder.Default
+    private Boolean hedgeEnabled = false;
+
     // ==================== 模型参数 ====================
 
     /**
@@ -79,6 +90,12 @@ public class ChatRequest {
      */
     private java.util.List<MediaMessage.MediaContent> mediaContents;
 
+    /**
+     * 完整消息列表（可选，OpenAI 兼容接口透传客户端自带的历史，含 assistant / tool 消息和多模态片段）
+     * 设置后忽略 systemPrompt / userMessage / mediaContents，按列表原样发送给模型
+     */
+    private java.util.List<org.springframework.ai.chat.messages.Message> messages;
+
     // ==================== 历史记忆相关 ====================
 
     /**
@@ -232,4 +249,11 @@ public class ChatRequest {
     public boolean hasMedia() {
         return mediaContents != null && !mediaContents.isEmpty();
     }
+
+    /**
+     * 是否携带完整消息列表
+     */
+    public boolean hasMessages() {
+        return messages != null && !messages.isEmpty();
+    }
 }
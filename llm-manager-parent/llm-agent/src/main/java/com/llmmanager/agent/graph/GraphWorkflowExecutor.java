@@ -4,6 +4,8 @@ import com.alibaba.cloud.ai.graph.CompiledGraph;
 import com.alibaba.cloud.ai.graph.NodeOutput;
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.RunnableConfig;
+import com.llmmanager.agent.cache.CacheRegion;
+import com.llmmanager.agent.cache.CacheRegionManager;
 import com.llmmanager.agent.graph.workflow.DeepResearchWorkflow;
 import com.llmmanager.agent.graph.workflow.DeepResearchWorkflow.ResearchProgress;
 import com.llmmanager.agent.graph.workflow.DeepResearchWorkflow.ResearchResult;
@@ -14,11 +16,11 @@ import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 
+import jakarta.annotation.Resource;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Graph 工作流执行器（通用执行层）
@@ -39,8 +41,14 @@ import java.util.concurrent.ConcurrentHashMap;
 @Service
 public class GraphWorkflowExecutor {
 
-    private final Map<String, DeepResearchWorkflow> deepResearchCache = new ConcurrentHashMap<>();
-    private final Map<String, CompiledGraph> compiledGraphCache = new ConcurrentHashMap<>();
+    /**
+     * 工作流实例缓存区域（本地缓存，CompiledGraph 不可序列化；渠道变更时经失效广播清理所有节点）
+     */
+    private static final String DEEP_RESEARCH_REGION = "graph.deep-research";
+    private static final String COMPILED_GRAPH_REGION = "graph.compiled";
+
+    @Resource
+    private CacheRegionManager cacheRegionManager;
 
     // ==================== 通用执行方法（供所有 Graph 工作流复用） ====================
 
@@ -109,7 +117,7 @@ public class GraphWorkflowExecutor {
     public Map<String, Object> executeWithCache(CompiledGraph compiledGraph, String cacheKey,
                                                   Map<String, Object> initialState) {
         // 缓存 CompiledGraph
-        compiledGraphCache.putIfAbsent(cacheKey, compiledGraph);
+        compiledGraphCache().get(cacheKey, k -> compiledGraph);
         return execute(compiledGraph, initialState);
     }
 
@@ -121,7 +129,7 @@ public class GraphWorkflowExecutor {
      * @return 执行结果，如果缓存不存在返回错误
      */
     public Map<String, Object> executeFromCache(String cacheKey, Map<String, Object> initialState) {
-        CompiledGraph cached = compiledGraphCache.get(cacheKey);
+        CompiledGraph cached = compiledGraphCache().get(cacheKey);
         if (cached == null) {
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
@@ -165,7 +173,15 @@ public class GraphWorkflowExecutor {
      * 获取或创建 DeepResearch 工作流实例
      */
     private DeepResearchWorkflow getOrCreateDeepResearchWorkflow(ChatClient chatClient, String cacheKey) {
-        return deepResearchCache.computeIfAbsent(cacheKey, k -> new DeepResearchWorkflow(chatClient, 3));
+        return deepResearchCache().get(cacheKey, k -> new DeepResearchWorkflow(chatClient, 3));
+    }
+
+    private CacheRegion<DeepResearchWorkflow> deepResearchCache() {
+        return cacheRegionManager.localRegion(DEEP_RESEARCH_REGION);
+    }
+
+    private CacheRegion<CompiledGraph> compiledGraphCache() {
+        return cacheRegionManager.localRegion(COMPILED_GRAPH_REGION);
     }
 
     // ==================== 缓存管理 ====================
@@ -175,8 +191,8 @@ public class GraphWorkflowExecutor {
      */
     public void clearCacheForChannel(Long channelId) {
         String prefix = channelId + "_";
-        deepResearchCache.entrySet().removeIf(entry -> entry.getKey().startsWith(prefix));
-        compiledGraphCache.entrySet().removeIf(entry -> entry.getKey().startsWith(prefix));
+        deepResearchCache().invalidatePrefix(prefix);
+        compiledGraphCache().invalidatePrefix(prefix);
         log.info("[GraphWorkflowExecutor] 已清除渠道 {} 的缓存", channelId);
     }
 
@@ -184,8 +200,8 @@ public class GraphWorkflowExecutor {
      * 清除所有缓存
      */
     public void clearAllCache() {
-        deepResearchCache.clear();
-        compiledGraphCache.clear();
+        deepResearchCache().invalidateAll();
+        compiledGraphCache().invalidateAll();
         log.info("[GraphWorkflowExecutor] 已清除所有缓存");
     }
 
@@ -240,7 +256,7 @@ public class GraphWorkflowExecutor {
 
             // 4. 查找缓存的 CompiledGraph
             String cacheKey = buildCacheKey(snapshot);
-            CompiledGraph compiledGraph = compiledGraphCache.get(cacheKey);
+            CompiledGraph compiledGraph = compiledGraphCache().get(cacheKey);
 
             if (compiledGraph == null) {
                 log.warn("[GraphWorkflowExecutor] 缓存中不存在工作流，需要重新构建: {}", cacheKey);
@@ -307,7 +323,7 @@ public class GraphWorkflowExecutor {
 
             // 4. 查找缓存的 CompiledGraph
             String cacheKey = buildCacheKey(snapshot);
-            CompiledGraph compiledGraph = compiledGraphCache.get(cacheKey);
+            CompiledGraph compiledGraph = compiledGraphCache().get(cacheKey);
 
             if (compiledGraph == null) {
                 log.warn("[GraphWorkflowExecutor] 缓存中不存在工作流，需要重新构建: {}", cacheKey);
@@ -357,7 +373,7 @@ public class GraphWorkflowExecutor {
      * @param compiledGraph 编译后的工作流图
      */
     public void cacheCompiledGraph(String cacheKey, CompiledGraph compiledGraph) {
-        compiledGraphCache.put(cacheKey, compiledGraph);
+        compiledGraphCache().put(cacheKey, compiledGraph);
         log.debug("[GraphWorkflowExecutor] 已缓存工作流: {}", cacheKey);
     }
 
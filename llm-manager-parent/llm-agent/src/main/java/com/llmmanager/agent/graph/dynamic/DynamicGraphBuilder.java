@@ -11,12 +11,16 @@ import com.alibaba.cloud.ai.graph.state.strategy.AppendStrategy;
 import com.alibaba.cloud.ai.graph.state.strategy.ReplaceStrategy;
 import com.llmmanager.agent.graph.dynamic.dto.*;
 import com.llmmanager.agent.graph.dynamic.executor.NodeExecutor;
+import com.llmmanager.agent.stream.ExecutionEvent;
+import com.llmmanager.agent.stream.ExecutionEventSink;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
 import static com.alibaba.cloud.ai.graph.StateGraph.END;
@@ -59,6 +63,25 @@ public class DynamicGraphBuilder {
      * @throws GraphStateException 如果构建失败
      */
     public CompiledGraph build(GraphWorkflowConfig config, ChatClient chatClient) throws GraphStateException {
+        return build(config, chatClient, null);
+    }
+
+    /**
+     * 根据配置构建 CompiledGraph（流式模式）
+     *
+     * eventSink 不为空时：
+     * - 每个节点执行前后推送 node_start / node_end 事件
+     * - 节点执行器可推送增量输出（如 LLM token）
+     * - 订阅者取消后，后续节点不再执行
+     *
+     * @param config     工作流配置
+     * @param chatClient ChatClient 实例
+     * @param eventSink  事件通道（null 表示同步模式）
+     * @return 编译后的 CompiledGraph
+     * @throws GraphStateException 如果构建失败
+     */
+    public CompiledGraph build(GraphWorkflowConfig config, ChatClient chatClient,
+                               ExecutionEventSink eventSink) throws GraphStateException {
         log.info("[DynamicGraphBuilder] 开始构建工作流: {}", config.getName());
 
         // 1. 验证配置
@@ -72,7 +95,7 @@ public class DynamicGraphBuilder {
 
         // 4. 添加节点
         for (NodeConfig nodeConfig : config.getNodes()) {
-            addNode(stateGraph, nodeConfig, chatClient);
+            addNode(stateGraph, nodeConfig, chatClient, eventSink);
         }
 
         // 5. 添加边
@@ -119,19 +142,48 @@ public class DynamicGraphBuilder {
     /**
      * 添加节点
      */
-    private void addNode(StateGraph stateGraph, NodeConfig nodeConfig, ChatClient chatClient) throws GraphStateException {
+    private void addNode(StateGraph stateGraph, NodeConfig nodeConfig, ChatClient chatClient,
+                         ExecutionEventSink eventSink) throws GraphStateException {
         log.debug("[DynamicGraphBuilder] 添加节点: {} (类型: {})", nodeConfig.getId(), nodeConfig.getType());
 
         // 查找对应的节点执行器
         NodeExecutor executor = findExecutor(nodeConfig.getType());
 
         // 创建节点动作
-        AsyncNodeAction action = executor.createAction(nodeConfig, chatClient);
+        AsyncNodeAction action;
+        if (eventSink != null) {
+            action = withNodeEvents(nodeConfig.getId(), executor.createAction(nodeConfig, chatClient, eventSink), eventSink);
+        } else {
+            action = executor.createAction(nodeConfig, chatClient);
+        }
 
         // 添加到 StateGraph
         stateGraph.addNode(nodeConfig.getId(), action);
     }
 
+    /**
+     * 包装节点动作，推送 node_start / node_end 事件
+     */
+    private AsyncNodeAction withNodeEvents(String nodeId, AsyncNodeAction action, ExecutionEventSink eventSink) {
+        return (OverAllState state) -> {
+            try {
+                // 订阅者已取消时抛出异常，中止后续节点
+                eventSink.emit(ExecutionEvent.nodeStart(nodeId));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+
+            long startTime = System.currentTimeMillis();
+            return action.apply(state).thenApply(updates -> {
+                Map<String, Object> data = new HashMap<>();
+                data.put("durationMs", System.currentTimeMillis() - startTime);
+                data.put("outputKeys", updates != null ? updates.keySet() : Set.of());
+                eventSink.emit(ExecutionEvent.nodeEnd(nodeId, data));
+                return updates;
+            });
+        };
+    }
+
     /**
      * 添加边
      */
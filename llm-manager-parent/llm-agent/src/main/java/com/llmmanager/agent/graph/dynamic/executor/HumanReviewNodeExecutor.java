@@ -7,6 +7,7 @@ import com.llmmanager.agent.review.HumanReviewRecordService;
 import com.llmmanager.agent.review.exception.HumanReviewRequiredException;
 import com.llmmanager.agent.review.snapshot.GraphStateSnapshot;
 import com.llmmanager.agent.storage.core.entity.PendingReview;
+import com.llmmanager.agent.template.CompiledPromptTemplate;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.stereotype.Component;
@@ -16,8 +17,6 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * 人工审核节点执行器
@@ -56,9 +55,6 @@ public class HumanReviewNodeExecutor implements NodeExecutor {
     @Resource
     private HumanReviewRecordService humanReviewRecordService;
 
-    // 占位符匹配模式：{key}
-    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\{(\\w+)}");
-
     @Override
     public String getNodeType() {
         return "HUMAN_REVIEW_NODE";
@@ -91,6 +87,9 @@ public class HumanReviewNodeExecutor implements NodeExecutor {
         // 解析 context_keys
         String[] contextKeys = parseContextKeys(contextKeysObj);
 
+        // 审核提示模板只解析一次
+        CompiledPromptTemplate compiledPrompt = CompiledPromptTemplate.of(promptTemplate);
+
         // 返回异步节点动作
         return (OverAllState state) -> CompletableFuture.supplyAsync(() -> {
             log.info("[HumanReviewNodeExecutor] 节点 '{}' 开始执行，准备创建人工审核", nodeConfig.getId());
@@ -101,7 +100,7 @@ public class HumanReviewNodeExecutor implements NodeExecutor {
                 log.debug("[HumanReviewNodeExecutor] 提取的上下文数据: {}", contextData);
 
                 // 2. 格式化审核提示（替换 {key} 占位符）
-                String formattedPrompt = formatPrompt(promptTemplate, state);
+                String formattedPrompt = formatPrompt(compiledPrompt, state);
                 log.info("[HumanReviewNodeExecutor] 格式化后的审核提示: {}", formattedPrompt);
 
                 // 3. 获取 graphTaskId（从状态中获取，可选）
@@ -184,21 +183,10 @@ public class HumanReviewNodeExecutor implements NodeExecutor {
     /**
      * 格式化审核提示（替换 {key} 占位符）
      */
-    private String formatPrompt(String template, OverAllState state) {
-        Matcher matcher = PLACEHOLDER_PATTERN.matcher(template);
-        StringBuilder result = new StringBuilder();
-
-        while (matcher.find()) {
-            String key = matcher.group(1);
-            String replacement = state.value(key)
-                    .map(Object::toString)
-                    .orElse("{" + key + "}"); // 如果找不到，保留原占位符
-
-            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
-        }
-        matcher.appendTail(result);
-
-        return result.toString();
+    private String formatPrompt(CompiledPromptTemplate template, OverAllState state) {
+        return template.render(
+                key -> state.value(key).orElse(null),
+                CompiledPromptTemplate.MissingVariable.KEEP_PLACEHOLDER); // 如果找不到，保留原占位符
     }
 
     /**
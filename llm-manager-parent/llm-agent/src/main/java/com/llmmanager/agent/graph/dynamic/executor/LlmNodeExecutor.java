@@ -3,13 +3,17 @@ package com.llmmanager.agent.graph.dynamic.executor;
 import com.alibaba.cloud.ai.graph.action.AsyncNodeAction;
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.llmmanager.agent.graph.dynamic.dto.NodeConfig;
+import com.llmmanager.agent.stream.ExecutionEvent;
+import com.llmmanager.agent.stream.ExecutionEventSink;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * LLM 调用节点执行器（官方推荐方式）
@@ -27,11 +31,18 @@ import java.util.concurrent.CompletableFuture;
  * - system_prompt (可选): 系统提示词，指导 LLM 行为
  * - temperature (可选): 温度参数（0-1）
  * - max_tokens (可选): 最大生成 token 数
+ *
+ * 流式模式：通过 createAction(nodeConfig, chatClient, eventSink) 创建时，逐 token 推送增量输出
  */
 @Slf4j
 @Component("LlmNodeExecutor")
 public class LlmNodeExecutor implements NodeExecutor {
 
+    /**
+     * 流式输出时执行线程与上游之间的预取数量（上游最多领先执行线程这么多个 token）
+     */
+    private static final int STREAM_PREFETCH = 16;
+
     @Override
     public String getNodeType() {
         return "LLM_NODE";
@@ -44,6 +55,17 @@ public class LlmNodeExecutor implements NodeExecutor {
 
     @Override
     public AsyncNodeAction createAction(NodeConfig nodeConfig, ChatClient chatClient) {
+        return createAction(nodeConfig, chatClient, null);
+    }
+
+    /**
+     * 创建节点动作
+     *
+     * eventSink 不为空时使用流式调用，每个 token 增量实时推送到 eventSink，
+     * 完整结果仍然拼接后写入 state，保证最终状态与同步模式一致。
+     */
+    @Override
+    public AsyncNodeAction createAction(NodeConfig nodeConfig, ChatClient chatClient, ExecutionEventSink eventSink) {
         // 提取配置参数
         Map<String, Object> config = nodeConfig.getConfig();
         String inputKey = (String) config.get("input_key");
@@ -83,34 +105,13 @@ public class LlmNodeExecutor implements NodeExecutor {
                 log.debug("[LlmNodeExecutor] 输入内容: {}", userInput);
 
                 // 2. 构建 ChatClient 请求（官方推荐方式）
-                ChatClient.ChatClientRequestSpec requestSpec = chatClient.prompt();
-
-                // 设置系统提示词（如果有）
-                if (systemPrompt != null && !systemPrompt.trim().isEmpty()) {
-                    requestSpec = requestSpec.system(systemPrompt);
-                    log.debug("[LlmNodeExecutor] 系统提示词: {}", systemPrompt);
-                }
-
-                // 设置用户消息
-                requestSpec = requestSpec.user(userInput);
+                ChatClient.ChatClientRequestSpec requestSpec =
+                        buildRequestSpec(chatClient, systemPrompt, userInput, temperature, maxTokens);
 
-                // 设置可选参数
-                if (temperature != null || maxTokens != null) {
-                    org.springframework.ai.openai.OpenAiChatOptions.Builder optionsBuilder =
-                            org.springframework.ai.openai.OpenAiChatOptions.builder();
-
-                    if (temperature != null) {
-                        optionsBuilder.temperature(temperature);
-                    }
-                    if (maxTokens != null) {
-                        optionsBuilder.maxTokens(maxTokens);
-                    }
-
-                    requestSpec = requestSpec.options(optionsBuilder.build());
-                }
-
-                // 3. 调用 LLM
-                String result = requestSpec.call().content();
+                // 3. 调用 LLM（流式模式下逐 token 推送）
+                String result = eventSink != null
+                        ? streamContent(requestSpec, nodeConfig.getId(), eventSink)
+                        : requestSpec.call().content();
                 log.info("[LlmNodeExecutor] 节点 '{}' 执行成功，结果长度: {}",
                         nodeConfig.getId(), result != null ? result.length() : 0);
 
@@ -124,6 +125,11 @@ public class LlmNodeExecutor implements NodeExecutor {
                 return updates;
 
             } catch (Exception e) {
+                // 客户端已断开：直接中止整个工作流，不再继续后续节点
+                if (eventSink != null && eventSink.isCancelled()) {
+                    throw new CancellationException("节点 '" + nodeConfig.getId() + "' 已取消");
+                }
+
                 log.error("[LlmNodeExecutor] 节点 '{}' 执行失败", nodeConfig.getId(), e);
 
                 // 返回错误信息
@@ -135,6 +141,59 @@ public class LlmNodeExecutor implements NodeExecutor {
         });
     }
 
+    /**
+     * 构建 ChatClient 请求
+     */
+    private ChatClient.ChatClientRequestSpec buildRequestSpec(ChatClient chatClient, String systemPrompt,
+                                                              String userInput, Double temperature, Integer maxTokens) {
+        ChatClient.ChatClientRequestSpec requestSpec = chatClient.prompt();
+
+        // 设置系统提示词（如果有）
+        if (systemPrompt != null && !systemPrompt.trim().isEmpty()) {
+            requestSpec = requestSpec.system(systemPrompt);
+            log.debug("[LlmNodeExecutor] 系统提示词: {}", systemPrompt);
+        }
+
+        // 设置用户消息
+        requestSpec = requestSpec.user(userInput);
+
+        // 设置可选参数
+        if (temperature != null || maxTokens != null) {
+            org.springframework.ai.openai.OpenAiChatOptions.Builder optionsBuilder =
+                    org.springframework.ai.openai.OpenAiChatOptions.builder();
+
+            if (temperature != null) {
+                optionsBuilder.temperature(temperature);
+            }
+            if (maxTokens != null) {
+                optionsBuilder.maxTokens(maxTokens);
+            }
+
+            requestSpec = requestSpec.options(optionsBuilder.build());
+        }
+
+        return requestSpec;
+    }
+
+    /**
+     * 流式调用 LLM，逐 token 推送到 eventSink，返回拼接后的完整结果
+     *
+     * 在节点执行线程上以 toStream(STREAM_PREFETCH) 拉取 token：Netty IO 线程只负责把数据放入小队列，
+     * eventSink.emit() 在缓冲区满时阻塞的是执行线程，队列满后不再向上游请求数据（背压）；
+     * 客户端断开时 emit() 抛出异常，关闭 Stream 取消上游 HTTP 流。
+     */
+    private String streamContent(ChatClient.ChatClientRequestSpec requestSpec, String nodeId,
+                                 ExecutionEventSink eventSink) {
+        StringBuilder content = new StringBuilder();
+        try (Stream<String> deltas = requestSpec.stream().content().toStream(STREAM_PREFETCH)) {
+            deltas.forEach(delta -> {
+                content.append(delta);
+                eventSink.emit(ExecutionEvent.token(nodeId, delta));
+            });
+        }
+        return content.toString();
+    }
+
     @Override
     public String getConfigSchema() {
         return """
@@ -2,6 +2,7 @@ package com.llmmanager.agent.graph.dynamic.executor;
 
 import com.alibaba.cloud.ai.graph.action.AsyncNodeAction;
 import com.llmmanager.agent.graph.dynamic.dto.NodeConfig;
+import com.llmmanager.agent.stream.ExecutionEventSink;
 import org.springframework.ai.chat.client.ChatClient;
 
 /**
@@ -35,6 +36,21 @@ public interface NodeExecutor {
      */
     AsyncNodeAction createAction(NodeConfig nodeConfig, ChatClient chatClient);
 
+    /**
+     * 创建支持流式事件的节点动作（可选）
+     *
+     * 流式执行模式下由 DynamicGraphBuilder 调用，节点可通过 eventSink 推送增量输出（如 LLM token）。
+     * 默认实现忽略 eventSink，与同步模式行为一致。
+     *
+     * @param nodeConfig 节点配置
+     * @param chatClient ChatClient 实例
+     * @param eventSink  事件通道（同步模式下为 null）
+     * @return AsyncNodeAction 实例
+     */
+    default AsyncNodeAction createAction(NodeConfig nodeConfig, ChatClient chatClient, ExecutionEventSink eventSink) {
+        return createAction(nodeConfig, chatClient);
+    }
+
     /**
      * 获取节点类型的配置参数 JSON Schema（可选）
      *
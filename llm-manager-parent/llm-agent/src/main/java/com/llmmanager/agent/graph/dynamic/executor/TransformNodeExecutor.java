@@ -5,6 +5,7 @@ import com.alibaba.cloud.ai.graph.OverAllState;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.llmmanager.agent.graph.dynamic.dto.NodeConfig;
+import com.llmmanager.agent.template.CompiledPromptTemplate;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.stereotype.Component;
@@ -75,6 +76,11 @@ public class TransformNodeExecutor implements NodeExecutor {
             throw new IllegalArgumentException("转换节点配置缺少 output_key 参数");
         }
 
+        // FORMAT 的 "key: value" 行模板在创建节点时编译一次
+        CompiledPromptTemplate formatTemplate = "FORMAT".equalsIgnoreCase(transformType)
+                ? compileFormatTemplate(inputKeys)
+                : null;
+
         // 返回异步节点动作
         return (OverAllState state) -> CompletableFuture.supplyAsync(() -> {
             try {
@@ -90,7 +96,7 @@ public class TransformNodeExecutor implements NodeExecutor {
                         result = extractValue(state, inputKeys.get(0));
                         break;
                     case "FORMAT":
-                        result = formatValues(state, inputKeys);
+                        result = formatValues(state, formatTemplate);
                         break;
                     case "SPLIT_LINES":
                         result = splitLines(state, inputKeys.get(0));
@@ -131,13 +137,29 @@ public class TransformNodeExecutor implements NodeExecutor {
     }
 
     /**
-     * MERGE：合并多个字段的值
+     * MERGE：合并多个字段的值（先取值再按总长度分配缓冲区，单遍拼接）
      */
     private String mergeValues(OverAllState state, List<String> inputKeys) {
-        return inputKeys.stream()
-                .map(key -> state.value(key).orElse("").toString())
-                .filter(s -> !s.isEmpty())
-                .collect(Collectors.joining("\n"));
+        String[] values = new String[inputKeys.size()];
+        int length = 0;
+        for (int i = 0; i < values.length; i++) {
+            String value = state.value(inputKeys.get(i)).orElse("").toString();
+            if (!value.isEmpty()) {
+                values[i] = value;
+                length += value.length() + 1;
+            }
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        for (String value : values) {
+            if (value != null) {
+                if (sb.length() > 0) {
+                    sb.append('\n');
+                }
+                sb.append(value);
+            }
+        }
+        return sb.toString();
     }
 
     /**
@@ -150,13 +172,20 @@ public class TransformNodeExecutor implements NodeExecutor {
     /**
      * FORMAT：格式化多个字段
      */
-    private String formatValues(OverAllState state, List<String> inputKeys) {
-        StringBuilder sb = new StringBuilder();
-        for (String key : inputKeys) {
-            Object value = state.value(key).orElse("");
-            sb.append(key).append(": ").append(value).append("\n");
+    private String formatValues(OverAllState state, CompiledPromptTemplate formatTemplate) {
+        return formatTemplate.render(key -> state.value(key).orElse(null), CompiledPromptTemplate.MissingVariable.EMPTY).trim();
+    }
+
+    /**
+     * 按 input_keys 生成 FORMAT 模板：key1: {key1}\nkey2: {key2}...
+     */
+    private static CompiledPromptTemplate compileFormatTemplate(List<String> inputKeys) {
+        List<String> literals = new ArrayList<>(inputKeys.size() + 1);
+        for (int i = 0; i < inputKeys.size(); i++) {
+            literals.add((i > 0 ? "\n" : "") + inputKeys.get(i) + ": ");
         }
-        return sb.toString().trim();
+        literals.add("\n");
+        return CompiledPromptTemplate.of(literals, inputKeys);
     }
 
     /**
@@ -14,6 +14,8 @@ import org.springframework.stereotype.Component;
  *     enabled: true           # 总开关
  *     metrics-enabled: true   # 指标收集开关
  *     tracing-enabled: true   # 分布式追踪开关（TraceId/SpanId 日志记录）
+ *     sql:
+ *       enabled: true         # SQL 统计（慢查询 / N+1 检测 / 异步采样 SQL 日志）
  * }</pre>
  *
  * 注意：Zipkin 开关通过排除自动配置类实现，参见 application.yml 中的 spring.autoconfigure.exclude
@@ -40,4 +42,61 @@ public class ObservabilityProperties {
      * 控制 Micrometer Tracing 是否启用（TraceId/SpanId 生成和日志记录）
      */
     private boolean tracingEnabled = true;
+
+    /**
+     * SQL 统计配置
+     */
+    private Sql sql = new Sql();
+
+    /**
+     * SQL 统计配置（MyBatis 拦截器，按请求汇总语句数、数据库耗时、最慢语句和重复查询）
+     */
+    @Data
+    public static class Sql {
+
+        /**
+         * 是否启用 SQL 统计
+         */
+        private boolean enabled = false;
+
+        /**
+         * 慢查询阈值（毫秒），超过的语句一定记录日志
+         */
+        private long slowThresholdMs = 200;
+
+        /**
+         * 同一请求内同一条查询执行次数达到该值视为重复查询（参数不同为 N+1，参数相同为重复读取）
+         */
+        private int repeatThreshold = 5;
+
+        /**
+         * 每个请求保留的最慢语句条数
+         */
+        private int topStatements = 5;
+
+        /**
+         * 每个请求最多跟踪的不同语句数（超过后只计数不再分语句统计）
+         */
+        private int maxTrackedStatements = 200;
+
+        /**
+         * 普通语句日志采样率（0~1，慢查询不受采样限制）
+         */
+        private double statementLogSampleRate = 0.001;
+
+        /**
+         * 请求汇总日志采样率（0~1，存在慢查询或重复查询的请求不受采样限制）
+         */
+        private double requestLogSampleRate = 0.01;
+
+        /**
+         * 异步日志队列容量（队列满时丢弃并计数）
+         */
+        private int logQueueSize = 8192;
+
+        /**
+         * 日志中 SQL 文本的最大长度
+         */
+        private int maxSqlLength = 1000;
+    }
 }
@@ -0,0 +1,150 @@
+package com.llmmanager.agent.observability.sql;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmmanager.agent.observability.ObservabilityProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步采样 SQL 日志（替代 MyBatis StdOutImpl 的同步标准输出）
+ *
+ * 请求线程只做采样判断并把日志事件放入有界队列，由后台线程序列化为 JSON 写入 llm.sql 日志：
+ * - 队列满时直接丢弃并计数（llm.sql.log.dropped），不阻塞业务线程
+ * - 慢查询、存在重复查询的请求汇总一定入队，其余按采样率入队
+ *
+ * 日志级别通过 logging.level.llm.sql 控制：慢查询按 WARN 输出，其余事件按 INFO 输出，
+ * 入队前按事件类型判断对应级别是否开启（llm.sql=WARN 时只保留慢查询）。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "llm.observability.sql.enabled", havingValue = "true", matchIfMissing = false)
+public class AsyncSqlLogger {
+
+    private static final Logger SQL_LOG = LoggerFactory.getLogger("llm.sql");
+
+    private static final int DRAIN_BATCH = 256;
+
+    private static final String SLOW_SQL = "slow_sql";
+
+    @Resource
+    private ObservabilityProperties observabilityProperties;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private BlockingQueue<LogEvent> queue;
+
+    private Counter droppedCounter;
+
+    private Thread worker;
+
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(Math.max(16, observabilityProperties.getSql().getLogQueueSize()));
+        droppedCounter = meterRegistry.counter("llm.sql.log.dropped");
+        worker = new Thread(this::drainLoop, "sql-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 按采样率决定是否记录
+     */
+    public boolean sampled(double rate) {
+        return rate > 0 && (rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    /**
+     * 事件类型对应的日志级别是否开启（slow_sql 为 WARN，其余为 INFO），未开启时调用方可跳过构造事件
+     */
+    public boolean isEnabled(String type) {
+        return SLOW_SQL.equals(type) ? SQL_LOG.isWarnEnabled() : SQL_LOG.isInfoEnabled();
+    }
+
+    /**
+     * 放入日志队列（队列满时丢弃）
+     *
+     * @param type  事件类型：slow_sql / sql / request_sql
+     * @param event 事件内容
+     */
+    public void log(String type, Map<String, Object> event) {
+        if (!isEnabled(type)) {
+            return;
+        }
+        if (!queue.offer(new LogEvent(type, event))) {
+            droppedCounter.increment();
+        }
+    }
+
+    private void drainLoop() {
+        List<LogEvent> batch = new ArrayList<>(DRAIN_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                LogEvent first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, DRAIN_BATCH - 1);
+                for (LogEvent event : batch) {
+                    write(event);
+                }
+            } catch (InterruptedException e) {
+                if (!running) {
+                    queue.drainTo(batch);
+                    batch.forEach(this::write);
+                    return;
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(LogEvent event) {
+        try {
+            if (SLOW_SQL.equals(event.type())) {
+                SQL_LOG.warn("[SqlLog] {} {}", event.type(), objectMapper.writeValueAsString(event.payload()));
+            } else {
+                SQL_LOG.info("[SqlLog] {} {}", event.type(), objectMapper.writeValueAsString(event.payload()));
+            }
+        } catch (Exception e) {
+            log.debug("[AsyncSqlLogger] 日志序列化失败: {}", e.getMessage());
+        }
+    }
+
+    private record LogEvent(String type, Map<String, Object> payload) {
+    }
+}
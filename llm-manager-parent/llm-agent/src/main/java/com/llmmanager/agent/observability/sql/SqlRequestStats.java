@@ -0,0 +1,211 @@
+package com.llmmanager.agent.observability.sql;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 单个请求内的 SQL 统计
+ *
+ * 由 SqlStatsFilter 在请求开始时创建并放入 ThreadLocal，SqlStatsInterceptor 每执行一条语句记录一次，
+ * 请求结束时汇总：语句总数、数据库总耗时、最慢的几条语句，以及同一查询被重复执行的情况。
+ *
+ * 重复查询按「语句 id + SQL 文本」归组，只记录参数值的哈希（不保存参数值本身）：
+ * - 参数值各不相同：N_PLUS_ONE（典型的循环里按 id 逐条查询）
+ * - 参数值完全相同：DUPLICATE（同一数据被反复读取）
+ */
+public class SqlRequestStats {
+
+    /**
+     * 每组语句最多记录的不同参数值哈希数（足以区分 N+1 与重复读取）
+     */
+    private static final int MAX_VALUE_HASHES = 64;
+
+    private static final ThreadLocal<SqlRequestStats> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 请求标识（方法 + URI，仅用于日志）
+     */
+    private final String request;
+
+    private final int topStatements;
+
+    private final int maxTrackedStatements;
+
+    private int statementCount;
+
+    private long totalNanos;
+
+    private int untrackedCount;
+
+    private final Map<String, StatementGroup> groups = new LinkedHashMap<>();
+
+    private final List<StatementSample> slowest = new ArrayList<>();
+
+    public SqlRequestStats(String request, int topStatements, int maxTrackedStatements) {
+        this.request = request;
+        this.topStatements = topStatements;
+        this.maxTrackedStatements = maxTrackedStatements;
+    }
+
+    // ==================== 线程上下文 ====================
+
+    public static SqlRequestStats current() {
+        return CURRENT.get();
+    }
+
+    public static void begin(SqlRequestStats stats) {
+        CURRENT.set(stats);
+    }
+
+    public static SqlRequestStats end() {
+        SqlRequestStats stats = CURRENT.get();
+        CURRENT.remove();
+        return stats;
+    }
+
+    // ==================== 记录 ====================
+
+    /**
+     * 记录一条已执行的语句
+     *
+     * @param statementId 语句 id（Mapper 类名.方法名）
+     * @param command     SELECT / INSERT / UPDATE / DELETE
+     * @param sql         规整后的 SQL（只有占位符，没有参数值）
+     * @param valueHash   参数值的哈希（不参与重复检测时传 null）
+     * @param sampleSupplier 进入最慢语句列表时才生成样本（避免每条语句都解析参数形态）
+     */
+    public void record(String statementId, String command, String sql, Integer valueHash, long elapsedNanos,
+                       Supplier<StatementSample> sampleSupplier) {
+        statementCount++;
+        totalNanos += elapsedNanos;
+
+        String key = statementId + "#" + sql;
+        StatementGroup group = groups.get(key);
+        if (group == null) {
+            if (groups.size() >= maxTrackedStatements) {
+                untrackedCount++;
+            } else {
+                group = new StatementGroup(statementId, command, sql);
+                groups.put(key, group);
+            }
+        }
+        if (group != null) {
+            group.count++;
+            group.totalNanos += elapsedNanos;
+            if (valueHash != null && group.valueHashes.size() < MAX_VALUE_HASHES) {
+                group.valueHashes.add(valueHash);
+            }
+        }
+
+        if (slowest.size() < topStatements || elapsedNanos > slowest.get(slowest.size() - 1).getElapsedNanos()) {
+            slowest.add(sampleSupplier.get());
+            slowest.sort(Comparator.comparingLong(StatementSample::getElapsedNanos).reversed());
+            if (slowest.size() > topStatements) {
+                slowest.remove(slowest.size() - 1);
+            }
+        }
+    }
+
+    // ==================== 汇总 ====================
+
+    /**
+     * 执行次数达到阈值的查询组
+     */
+    public List<RepeatedStatement> findRepeated(int threshold) {
+        List<RepeatedStatement> repeated = new ArrayList<>();
+        for (StatementGroup group : groups.values()) {
+            if (!"SELECT".equals(group.command) || group.count < threshold) {
+                continue;
+            }
+            RepeatedStatement item = new RepeatedStatement();
+            item.setStatementId(group.statementId);
+            item.setSql(group.sql);
+            item.setCount(group.count);
+            item.setDistinctParams(group.valueHashes.size());
+            item.setTotalMs(group.totalNanos / 1_000_000.0);
+            item.setType(group.valueHashes.size() > 1 ? "N_PLUS_ONE" : "DUPLICATE");
+            repeated.add(item);
+        }
+        return repeated;
+    }
+
+    public String getRequest() {
+        return request;
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public int getUntrackedCount() {
+        return untrackedCount;
+    }
+
+    public int getDistinctStatements() {
+        return groups.size();
+    }
+
+    public List<StatementSample> getSlowest() {
+        return slowest;
+    }
+
+    /**
+     * 同一语句 id + SQL 文本的执行汇总
+     */
+    private static class StatementGroup {
+        private final String statementId;
+        private final String command;
+        private final String sql;
+        private int count;
+        private long totalNanos;
+        private final Set<Integer> valueHashes = new HashSet<>();
+
+        StatementGroup(String statementId, String command, String sql) {
+            this.statementId = statementId;
+            this.command = command;
+            this.sql = sql;
+        }
+    }
+
+    /**
+     * 单条语句样本（参数只记录名称和类型）
+     */
+    @Data
+    public static class StatementSample {
+        private String statementId;
+        private String command;
+        private String sql;
+        private List<String> paramShape;
+        private long elapsedNanos;
+        private Integer rows;
+
+        public double getElapsedMs() {
+            return elapsedNanos / 1_000_000.0;
+        }
+    }
+
+    /**
+     * 重复执行的查询
+     */
+    @Data
+    public static class RepeatedStatement {
+        private String type;
+        private String statementId;
+        private String sql;
+        private int count;
+        private int distinctParams;
+        private double totalMs;
+    }
+}
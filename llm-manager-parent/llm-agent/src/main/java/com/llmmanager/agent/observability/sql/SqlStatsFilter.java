@@ -0,0 +1,115 @@
+package com.llmmanager.agent.observability.sql;
+
+import com.llmmanager.agent.observability.ObservabilityProperties;
+import com.llmmanager.agent.observability.sql.SqlRequestStats.RepeatedStatement;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求级 SQL 统计过滤器
+ *
+ * 请求开始时创建 SqlRequestStats，请求线程上执行的语句由 SqlStatsInterceptor 累加，请求结束时汇总：
+ * - 指标（route 取 Controller 映射的路径模板，避免按实际 URI 产生大量标签）：
+ *   llm.sql.request.statements{route}、llm.sql.request.time{route}、llm.sql.repeated{route, statement, type}
+ * - 日志：存在慢查询或重复查询（N+1 / 重复读取）的请求一定输出汇总，其余按采样率输出
+ *
+ * 流式（SSE）请求在请求线程返回后由其它线程继续执行的语句不计入请求汇总，只记录语句级指标。
+ *
+ * 配置开关：llm.observability.sql.enabled=true
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(name = "llm.observability.sql.enabled", havingValue = "true", matchIfMissing = false)
+public class SqlStatsFilter extends OncePerRequestFilter {
+
+    @Resource
+    private ObservabilityProperties observabilityProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private AsyncSqlLogger sqlLogger;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ObservabilityProperties.Sql config = observabilityProperties.getSql();
+        SqlRequestStats stats = new SqlRequestStats(request.getMethod() + " " + request.getRequestURI(),
+                config.getTopStatements(), config.getMaxTrackedStatements());
+        SqlRequestStats.begin(stats);
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlRequestStats.end();
+            if (stats.getStatementCount() > 0) {
+                summarize(request, stats, System.nanoTime() - start, config);
+            }
+        }
+    }
+
+    private void summarize(HttpServletRequest request, SqlRequestStats stats, long requestNanos,
+                           ObservabilityProperties.Sql config) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = request.getMethod() + " " + (pattern != null ? pattern : "UNMAPPED");
+
+        DistributionSummary.builder("llm.sql.request.statements")
+                .tag("route", route)
+                .description("单个请求执行的 SQL 语句数")
+                .register(meterRegistry)
+                .record(stats.getStatementCount());
+        Timer.builder("llm.sql.request.time")
+                .tag("route", route)
+                .description("单个请求的数据库总耗时")
+                .register(meterRegistry)
+                .record(stats.getTotalNanos(), TimeUnit.NANOSECONDS);
+
+        List<RepeatedStatement> repeated = stats.findRepeated(config.getRepeatThreshold());
+        for (RepeatedStatement item : repeated) {
+            meterRegistry.counter("llm.sql.repeated",
+                    "route", route, "statement", item.getStatementId(), "type", item.getType()).increment();
+        }
+
+        if (!sqlLogger.isEnabled("request_sql")) {
+            return;
+        }
+        long slowNanos = TimeUnit.MILLISECONDS.toNanos(config.getSlowThresholdMs());
+        boolean hasSlow = !stats.getSlowest().isEmpty() && stats.getSlowest().get(0).getElapsedNanos() >= slowNanos;
+        if (repeated.isEmpty() && !hasSlow && !sqlLogger.sampled(config.getRequestLogSampleRate())) {
+            return;
+        }
+
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("route", route);
+        event.put("request", stats.getRequest());
+        event.put("statements", stats.getStatementCount());
+        event.put("distinctStatements", stats.getDistinctStatements());
+        event.put("dbTimeMs", stats.getTotalNanos() / 1_000_000.0);
+        event.put("requestTimeMs", requestNanos / 1_000_000.0);
+        if (stats.getUntrackedCount() > 0) {
+            event.put("untrackedStatements", stats.getUntrackedCount());
+        }
+        event.put("repeated", repeated);
+        event.put("slowest", stats.getSlowest());
+        sqlLogger.log("request_sql", event);
+    }
+}
@@ -0,0 +1,238 @@
+package com.llmmanager.agent.observability.sql;
+
+import com.baomidou.mybatisplus.core.toolkit.PluginUtils;
+import com.llmmanager.agent.observability.ObservabilityProperties;
+import com.llmmanager.agent.observability.sql.SqlRequestStats.StatementSample;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * SQL 统计拦截器（MyBatis 插件）
+ *
+ * 拦截 StatementHandler 的 query / update，记录每条语句的实际执行耗时：
+ * - 指标：llm.sql.statement{statement, command}（Timer），慢查询计数 llm.sql.slow{statement}
+ * - 日志：慢查询一定记录，其它语句按采样率记录（经 AsyncSqlLogger 异步输出）
+ * - 请求统计：存在 SqlRequestStats 上下文（Web 请求内）时累加到请求统计，请求结束由 SqlStatsFilter 汇总
+ *
+ * 日志只包含带占位符的 SQL 和参数形态（参数名:类型），不记录参数值；
+ * 重复查询检测只使用参数值的哈希。
+ *
+ * 配置开关：llm.observability.sql.enabled=true
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "llm.observability.sql.enabled", havingValue = "true", matchIfMissing = false)
+@Intercepts({
+        @Signature(type = StatementHandler.class, method = "query", args = {Statement.class, ResultHandler.class}),
+        @Signature(type = StatementHandler.class, method = "update", args = {Statement.class})
+})
+public class SqlStatsInterceptor implements Interceptor {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * 规整 SQL 缓存上限（IN 列表长度不同会产生不同的 SQL 文本，避免无限增长）
+     */
+    private static final int MAX_CACHED_SQL = 2000;
+
+    @Resource
+    private ObservabilityProperties observabilityProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private AsyncSqlLogger sqlLogger;
+
+    /**
+     * 原始 SQL → 规整后的 SQL（Mapper 方法的 SQL 文本有限，缓存避免每次正则替换）
+     */
+    private final Map<String, String> normalizedSqlCache = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = invocation.proceed();
+            return result;
+        } finally {
+            long elapsedNanos = System.nanoTime() - start;
+            try {
+                record((StatementHandler) PluginUtils.realTarget(invocation.getTarget()), result, elapsedNanos);
+            } catch (Exception e) {
+                log.debug("[SqlStatsInterceptor] 记录 SQL 统计失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void record(StatementHandler handler, Object result, long elapsedNanos) {
+        ObservabilityProperties.Sql config = observabilityProperties.getSql();
+        MappedStatement mappedStatement = PluginUtils.mpStatementHandler(handler).mappedStatement();
+        BoundSql boundSql = handler.getBoundSql();
+        String statementId = shortStatementId(mappedStatement.getId());
+        SqlCommandType commandType = mappedStatement.getSqlCommandType();
+        String command = commandType.name();
+
+        timers.computeIfAbsent(statementId + "|" + command, key -> Timer.builder("llm.sql.statement")
+                        .tag("statement", statementId)
+                        .tag("command", command)
+                        .description("SQL 执行耗时")
+                        .register(meterRegistry))
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        String sql = normalize(boundSql.getSql(), config.getMaxSqlLength());
+        Integer rows = rowCount(result);
+        boolean slow = elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(config.getSlowThresholdMs());
+
+        SqlRequestStats stats = SqlRequestStats.current();
+        if (stats != null) {
+            // 重复查询检测只看查询语句，写入语句不计算参数哈希
+            Integer valueHash = commandType == SqlCommandType.SELECT
+                    ? Arrays.hashCode(parameterValues(mappedStatement.getConfiguration(), boundSql))
+                    : null;
+            stats.record(statementId, command, sql, valueHash, elapsedNanos,
+                    () -> sample(statementId, command, sql, mappedStatement, boundSql, elapsedNanos, rows));
+        }
+
+        if (slow) {
+            meterRegistry.counter("llm.sql.slow", "statement", statementId).increment();
+            if (sqlLogger.isEnabled("slow_sql")) {
+                sqlLogger.log("slow_sql", toEvent(sample(statementId, command, sql, mappedStatement, boundSql,
+                        elapsedNanos, rows), stats));
+            }
+        } else if (sqlLogger.isEnabled("sql") && sqlLogger.sampled(config.getStatementLogSampleRate())) {
+            sqlLogger.log("sql", toEvent(sample(statementId, command, sql, mappedStatement, boundSql,
+                    elapsedNanos, rows), stats));
+        }
+    }
+
+    private StatementSample sample(String statementId, String command, String sql, MappedStatement mappedStatement,
+                                   BoundSql boundSql, long elapsedNanos, Integer rows) {
+        StatementSample sample = new StatementSample();
+        sample.setStatementId(statementId);
+        sample.setCommand(command);
+        sample.setSql(sql);
+        sample.setParamShape(parameterShape(mappedStatement.getConfiguration(), boundSql));
+        sample.setElapsedNanos(elapsedNanos);
+        sample.setRows(rows);
+        return sample;
+    }
+
+    private Map<String, Object> toEvent(StatementSample sample, SqlRequestStats stats) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("statement", sample.getStatementId());
+        event.put("command", sample.getCommand());
+        event.put("elapsedMs", sample.getElapsedMs());
+        event.put("rows", sample.getRows());
+        event.put("sql", sample.getSql());
+        event.put("params", sample.getParamShape());
+        if (stats != null) {
+            event.put("request", stats.getRequest());
+        }
+        return event;
+    }
+
+    /**
+     * 参数形态：参数名:值类型（不包含值）
+     */
+    private List<String> parameterShape(Configuration configuration, BoundSql boundSql) {
+        List<ParameterMapping> mappings = boundSql.getParameterMappings();
+        Object[] values = parameterValues(configuration, boundSql);
+        List<String> shape = new ArrayList<>(mappings.size());
+        for (int i = 0; i < mappings.size(); i++) {
+            Object value = values[i];
+            shape.add(mappings.get(i).getProperty() + ":" + (value == null ? "null" : value.getClass().getSimpleName()));
+        }
+        return shape;
+    }
+
+    /**
+     * 按 DefaultParameterHandler 的规则取出各占位符的参数值
+     */
+    private Object[] parameterValues(Configuration configuration, BoundSql boundSql) {
+        List<ParameterMapping> mappings = boundSql.getParameterMappings();
+        Object parameterObject = boundSql.getParameterObject();
+        Object[] values = new Object[mappings.size()];
+        MetaObject metaObject = null;
+        for (int i = 0; i < mappings.size(); i++) {
+            String property = mappings.get(i).getProperty();
+            if (boundSql.hasAdditionalParameter(property)) {
+                values[i] = boundSql.getAdditionalParameter(property);
+            } else if (parameterObject == null) {
+                values[i] = null;
+            } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+                values[i] = parameterObject;
+            } else {
+                if (metaObject == null) {
+                    metaObject = configuration.newMetaObject(parameterObject);
+                }
+                values[i] = metaObject.hasGetter(property) ? metaObject.getValue(property) : null;
+            }
+        }
+        return values;
+    }
+
+    private String normalize(String sql, int maxLength) {
+        String cached = normalizedSqlCache.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+        String normalized = WHITESPACE.matcher(sql).replaceAll(" ").trim();
+        if (normalized.length() > maxLength) {
+            normalized = normalized.substring(0, maxLength) + "...";
+        }
+        if (normalizedSqlCache.size() < MAX_CACHED_SQL) {
+            normalizedSqlCache.put(sql, normalized);
+        }
+        return normalized;
+    }
+
+    /**
+     * com.llmmanager.agent.storage.core.mapper.ChatHistoryMapper.selectList → ChatHistoryMapper.selectList
+     */
+    private static String shortStatementId(String id) {
+        int methodDot = id.lastIndexOf('.');
+        int classDot = methodDot > 0 ? id.lastIndexOf('.', methodDot - 1) : -1;
+        return classDot >= 0 ? id.substring(classDot + 1) : id;
+    }
+
+    private static Integer rowCount(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Integer count) {
+            return count;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,411 @@
+package com.llmmanager.agent.rag;
+
+import com.llmmanager.agent.rag.config.RagProperties;
+import com.llmmanager.agent.rag.lexical.LexicalIndexManager;
+import com.llmmanager.agent.storage.core.entity.KnowledgeDocument;
+import com.llmmanager.agent.storage.core.service.KnowledgeDocumentService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import jakarta.annotation.Resource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 文档入库流水线
+ *
+ * 解析/分割 → Embedding → 写入 三个阶段并行执行，阶段之间通过有界队列（flatMap 预取）衔接：
+ * - 解析/分割：按文档并发（parseParallelism）
+ * - Embedding：跨文档合并文本块，按 token 数组批（maxBatchTokens / maxBatchSize），并发请求（embedParallelism）
+ * - 写入：按知识库分组写入 VectorStore（writeParallelism），直接使用 Embedding 阶段算好的向量
+ *
+ * 每个批次失败后按指数退避重试，重试耗尽时批次涉及的文档标记为 FAILED 并清理已写入的向量。
+ * 文档的全部文本块写入后才标记为处理完成。
+ *
+ * 增量重建索引：解析阶段只交出新增/变化的文本块，已有相同内容向量的文本块携带复用向量，
+ * 不再请求 Embedding 服务；没有需要写入的文本块时文档直接标记为完成。
+ *
+ * 指标：
+ * - rag.ingest.documents (Counter, kb/status) - 处理完成/失败的文档数
+ * - rag.ingest.chunks (Counter, kb)           - 写入的文本块数（吞吐量）
+ * - rag.ingest.embeddings.reused (Counter, kb) - 复用已有向量、未请求 Embedding 的文本块数
+ * - rag.ingest.batch (Timer, stage)           - 各阶段单批次耗时
+ * - rag.ingest.retries (Counter, stage)       - 批次重试次数
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "llm.rag.enabled", havingValue = "true", matchIfMissing = false)
+public class DocumentIngestionPipeline {
+
+    @Resource
+    private RagProperties ragProperties;
+
+    @Resource
+    private VectorStoreManager vectorStoreManager;
+
+    @Resource
+    private EmbeddingModel embeddingModel;
+
+    @Resource
+    private KnowledgeDocumentService documentService;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private LexicalIndexManager lexicalIndexManager;
+
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+
+    /**
+     * 各知识库的入库进度（Key: kbCode）
+     */
+    private final Map<String, IngestProgress> progressMap = new ConcurrentHashMap<>();
+
+    /**
+     * 解析结果
+     *
+     * @param chunks           需要写入的文本块（增量重建时只包含新增/变化的部分）
+     * @param charCount        原文字符数
+     * @param totalChunks      文档的文本块总数（含未变化、无需写入的部分）
+     * @param reusedEmbeddings 可复用的已有向量（Key: 文本块 Document.id）
+     */
+    public record ParsedDocument(List<Document> chunks, int charCount, int totalChunks,
+                                 Map<String, float[]> reusedEmbeddings) {
+
+        public ParsedDocument(List<Document> chunks, int charCount) {
+            this(chunks, charCount, chunks.size(), Map.of());
+        }
+    }
+
+    /**
+     * 批量入库（阻塞直到全部文档处理完成或失败）
+     *
+     * @param documents 待处理文档
+     * @param parser    解析/分割函数，内容无效时抛出异常（异常消息记录为失败原因）
+     * @return 每个文档写入的文本块数（Key: docCode，失败为 0）
+     */
+    public Map<String, Integer> ingest(List<KnowledgeDocument> documents,
+                                       Function<KnowledgeDocument, ParsedDocument> parser) {
+        if (documents == null || documents.isEmpty()) {
+            return Map.of();
+        }
+        RagProperties.IngestionConfig config = ragProperties.getIngestion();
+        Map<String, Integer> result = new ConcurrentHashMap<>();
+        documents.forEach(doc -> progress(doc.getKbCode()).start());
+
+        Flux.fromIterable(documents)
+                .flatMap(doc -> Mono.fromCallable(() -> parse(doc, parser, result))
+                                .subscribeOn(Schedulers.boundedElastic()),
+                        config.getParseParallelism(), config.getQueueCapacity())
+                .concatMapIterable(DocState::chunks)
+                .transform(this::batchByTokens)
+                .flatMap(this::embed, config.getEmbedParallelism(), config.getQueueCapacity())
+                .flatMap(batch -> write(batch, result), config.getWriteParallelism(), config.getQueueCapacity())
+                .then()
+                .block();
+
+        // 入库批次结束后统一落盘关键词索引
+        lexicalIndexManager.flushAll();
+        return result;
+    }
+
+    /**
+     * 获取知识库入库进度
+     */
+    public Map<String, Object> getProgress(String kbCode) {
+        IngestProgress progress = progressMap.get(kbCode);
+        return progress != null ? progress.toMap(kbCode) : new IngestProgress().toMap(kbCode);
+    }
+
+    // ==================== 阶段实现 ====================
+
+    /**
+     * 解析/分割阶段（失败时标记文档并返回 null，不进入后续阶段）
+     */
+    private DocState parse(KnowledgeDocument doc, Function<KnowledgeDocument, ParsedDocument> parser,
+                           Map<String, Integer> result) {
+        try {
+            ParsedDocument parsed = parser.apply(doc);
+            DocState state = new DocState(doc, parsed.charCount(), parsed.totalChunks());
+            state.chunks = parsed.chunks().stream()
+                    .map(chunk -> {
+                        float[] reused = parsed.reusedEmbeddings().get(chunk.getId());
+                        return new Chunk(state, chunk, reused != null ? 0 : tokenCountEstimator.estimate(chunk.getText()), reused);
+                    })
+                    .toList();
+            if (state.chunks.isEmpty()) {
+                // 内容未变化，无需写入
+                complete(state, result);
+                return null;
+            }
+            return state;
+        } catch (Exception e) {
+            log.error("[DocumentIngestionPipeline] 解析文档失败: docCode={}", doc.getDocCode(), e);
+            DocState state = new DocState(doc, 0, 0);
+            fail(state, e.getMessage(), result);
+            return null;
+        }
+    }
+
+    /**
+     * 按 token 数组批（单批不超过 maxBatchTokens 且不超过 maxBatchSize 个文本块）
+     */
+    private Flux<List<Chunk>> batchByTokens(Flux<Chunk> chunks) {
+        RagProperties.IngestionConfig config = ragProperties.getIngestion();
+        return Flux.defer(() -> {
+            int[] batchTokens = {0};
+            int[] batchSize = {0};
+            return chunks.bufferUntil(chunk -> {
+                boolean cut = batchSize[0] > 0 && (batchTokens[0] + chunk.tokens() > config.getMaxBatchTokens()
+                        || batchSize[0] >= config.getMaxBatchSize());
+                if (cut) {
+                    batchTokens[0] = 0;
+                    batchSize[0] = 0;
+                }
+                batchTokens[0] += chunk.tokens();
+                batchSize[0]++;
+                return cut;
+            }, true);
+        });
+    }
+
+    /**
+     * Embedding 阶段（携带复用向量的文本块不再请求 Embedding 服务）
+     */
+    private Mono<EmbeddedBatch> embed(List<Chunk> batch) {
+        List<Chunk> alive = batch.stream().filter(chunk -> !chunk.state().failed.get()).toList();
+        if (alive.isEmpty()) {
+            return Mono.empty();
+        }
+        List<Chunk> pending = alive.stream().filter(chunk -> chunk.reused() == null).toList();
+        return Mono.fromCallable(() -> {
+                    List<float[]> embedded = List.of();
+                    if (!pending.isEmpty()) {
+                        long startTime = System.nanoTime();
+                        embedded = embeddingModel.embed(pending.stream().map(c -> c.document().getText()).toList());
+                        if (embedded == null || embedded.size() != pending.size()) {
+                            throw new IllegalStateException("Embedding 返回数量不一致: expected=" + pending.size()
+                                    + ", actual=" + (embedded != null ? embedded.size() : 0));
+                        }
+                        recordBatch("embed", startTime);
+                    }
+
+                    List<float[]> vectors = new ArrayList<>(alive.size());
+                    int next = 0;
+                    for (Chunk chunk : alive) {
+                        vectors.add(chunk.reused() != null ? chunk.reused() : embedded.get(next++));
+                    }
+                    return new EmbeddedBatch(alive, vectors);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .retryWhen(retrySpec("embed"))
+                .onErrorResume(e -> {
+                    log.error("[DocumentIngestionPipeline] Embedding 批次失败（重试已耗尽）: size={}", alive.size(), e);
+                    failAll(alive, "Embedding 失败: " + e.getMessage(), null);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * 写入阶段（按知识库分组写入）
+     */
+    private Mono<Void> write(EmbeddedBatch batch, Map<String, Integer> result) {
+        Map<String, List<Integer>> byKb = new LinkedHashMap<>();
+        for (int i = 0; i < batch.chunks().size(); i++) {
+            if (batch.chunks().get(i).state().failed.get()) {
+                // 文档已因其它批次失败，剩余文本块不再写入
+                continue;
+            }
+            byKb.computeIfAbsent(batch.chunks().get(i).state().doc.getKbCode(), k -> new ArrayList<>()).add(i);
+        }
+
+        return Flux.fromIterable(byKb.entrySet())
+                .concatMap(entry -> {
+                    List<Chunk> chunks = entry.getValue().stream().map(i -> batch.chunks().get(i)).toList();
+                    List<float[]> vectors = entry.getValue().stream().map(i -> batch.vectors().get(i)).toList();
+                    return Mono.fromRunnable(() -> {
+                                long startTime = System.nanoTime();
+                                vectorStoreManager.addEmbeddedDocuments(entry.getKey(),
+                                        chunks.stream().map(Chunk::document).toList(), vectors);
+                                recordBatch("write", startTime);
+                            })
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .retryWhen(retrySpec("write"))
+                            .doOnSuccess(v -> onWritten(entry.getKey(), chunks, result))
+                            .onErrorResume(e -> {
+                                log.error("[DocumentIngestionPipeline] 写入批次失败（重试已耗尽）: kbCode={}, size={}",
+                                        entry.getKey(), chunks.size(), e);
+                                failAll(chunks, "向量写入失败: " + e.getMessage(), result);
+                                return Mono.empty();
+                            });
+                })
+                .then();
+    }
+
+    private void onWritten(String kbCode, List<Chunk> chunks, Map<String, Integer> result) {
+        Counter.builder("rag.ingest.chunks").tag("kb", kbCode).register(meterRegistry).increment(chunks.size());
+        long reused = chunks.stream().filter(chunk -> chunk.reused() != null).count();
+        if (reused > 0) {
+            Counter.builder("rag.ingest.embeddings.reused").tag("kb", kbCode).register(meterRegistry).increment(reused);
+        }
+        progress(kbCode).writtenChunks.addAndGet(chunks.size());
+
+        for (Chunk chunk : chunks) {
+            DocState state = chunk.state();
+            if (state.written.incrementAndGet() == state.chunks.size() && !state.failed.get()) {
+                complete(state, result);
+            }
+        }
+    }
+
+    private void complete(DocState state, Map<String, Integer> result) {
+        KnowledgeDocument doc = state.doc;
+        documentService.updateProcessResult(doc.getDocCode(), state.totalChunks, state.charCount);
+        result.put(doc.getDocCode(), state.totalChunks);
+        progress(doc.getKbCode()).completedDocuments.incrementAndGet();
+        Counter.builder("rag.ingest.documents").tag("kb", doc.getKbCode()).tag("status", "success")
+                .register(meterRegistry).increment();
+        log.info("[DocumentIngestionPipeline] 处理文档成功: docCode={}, chunks={}, written={}, 耗时={}ms",
+                doc.getDocCode(), state.totalChunks, state.chunks.size(), (System.nanoTime() - state.startTime) / 1_000_000);
+    }
+
+    private void failAll(List<Chunk> chunks, String message, Map<String, Integer> result) {
+        new LinkedHashSet<>(chunks.stream().map(Chunk::state).toList())
+                .forEach(state -> fail(state, message, result));
+    }
+
+    private void fail(DocState state, String message, Map<String, Integer> result) {
+        if (!state.failed.compareAndSet(false, true)) {
+            return;
+        }
+        KnowledgeDocument doc = state.doc;
+        try {
+            // 清理已写入的部分向量，避免半份文档参与检索
+            vectorStoreManager.deleteVectorsByDocCode(doc.getKbCode(), doc.getDocCode());
+        } catch (Exception e) {
+            log.warn("[DocumentIngestionPipeline] 清理失败文档的向量失败: docCode={}, error={}", doc.getDocCode(), e.getMessage());
+        }
+        documentService.updateStatusWithError(doc.getDocCode(), "FAILED", message);
+        if (result != null) {
+            result.put(doc.getDocCode(), 0);
+        }
+        progress(doc.getKbCode()).failedDocuments.incrementAndGet();
+        Counter.builder("rag.ingest.documents").tag("kb", doc.getKbCode()).tag("status", "failed")
+                .register(meterRegistry).increment();
+    }
+
+    private Retry retrySpec(String stage) {
+        RagProperties.IngestionConfig config = ragProperties.getIngestion();
+        return Retry.backoff(config.getMaxRetries(), Duration.ofMillis(config.getRetryBackoffMs()))
+                .doBeforeRetry(signal -> {
+                    Counter.builder("rag.ingest.retries").tag("stage", stage).register(meterRegistry).increment();
+                    log.warn("[DocumentIngestionPipeline] {} 批次失败，第 {} 次重试: {}",
+                            stage, signal.totalRetries() + 1, signal.failure().getMessage());
+                })
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    private void recordBatch(String stage, long startTime) {
+        Timer.builder("rag.ingest.batch").tag("stage", stage).register(meterRegistry)
+                .record(Duration.ofNanos(System.nanoTime() - startTime));
+    }
+
+    private IngestProgress progress(String kbCode) {
+        return progressMap.computeIfAbsent(kbCode, k -> new IngestProgress());
+    }
+
+    // ==================== 内部状态 ====================
+
+    /**
+     * 单个文档的处理状态（其全部文本块写入后文档才算完成）
+     */
+    private static class DocState {
+
+        private final KnowledgeDocument doc;
+        private final int charCount;
+        private final int totalChunks;
+        private final long startTime = System.nanoTime();
+        private final AtomicInteger written = new AtomicInteger();
+        private final AtomicBoolean failed = new AtomicBoolean(false);
+        private List<Chunk> chunks = List.of();
+
+        DocState(KnowledgeDocument doc, int charCount, int totalChunks) {
+            this.doc = doc;
+            this.charCount = charCount;
+            this.totalChunks = totalChunks;
+        }
+
+        List<Chunk> chunks() {
+            return chunks;
+        }
+    }
+
+    /**
+     * @param reused 复用的已有向量（为 null 时需要 Embedding）
+     */
+    private record Chunk(DocState state, Document document, int tokens, float[] reused) {
+    }
+
+    private record EmbeddedBatch(List<Chunk> chunks, List<float[]> vectors) {
+    }
+
+    /**
+     * 知识库入库进度（新一轮开始时，若上一轮已全部结束则重新计数）
+     */
+    private static class IngestProgress {
+
+        private final AtomicLong totalDocuments = new AtomicLong();
+        private final AtomicLong completedDocuments = new AtomicLong();
+        private final AtomicLong failedDocuments = new AtomicLong();
+        private final AtomicLong writtenChunks = new AtomicLong();
+        private volatile long startTime = System.currentTimeMillis();
+
+        synchronized void start() {
+            if (totalDocuments.get() == completedDocuments.get() + failedDocuments.get()) {
+                totalDocuments.set(0);
+                completedDocuments.set(0);
+                failedDocuments.set(0);
+                writtenChunks.set(0);
+                startTime = System.currentTimeMillis();
+            }
+            totalDocuments.incrementAndGet();
+        }
+
+        Map<String, Object> toMap(String kbCode) {
+            long elapsedMs = Math.max(1, System.currentTimeMillis() - startTime);
+            Map<String, Object> map = new HashMap<>();
+            map.put("kbCode", kbCode);
+            map.put("totalDocuments", totalDocuments.get());
+            map.put("completedDocuments", completedDocuments.get());
+            map.put("failedDocuments", failedDocuments.get());
+            map.put("pendingDocuments", totalDocuments.get() - completedDocuments.get() - failedDocuments.get());
+            map.put("writtenChunks", writtenChunks.get());
+            map.put("elapsedMs", elapsedMs);
+            map.put("chunksPerSecond", writtenChunks.get() * 1000.0 / elapsedMs);
+            return map;
+        }
+    }
+}
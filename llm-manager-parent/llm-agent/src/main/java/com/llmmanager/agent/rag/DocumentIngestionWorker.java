@@ -0,0 +1,347 @@
+package com.llmmanager.agent.rag;
+
+import com.llmmanager.agent.rag.config.RagProperties;
+import com.llmmanager.agent.storage.core.entity.DocumentJob;
+import com.llmmanager.agent.storage.core.entity.KnowledgeBase;
+import com.llmmanager.agent.storage.core.entity.KnowledgeDocument;
+import com.llmmanager.agent.storage.core.service.DocumentJobService;
+import com.llmmanager.agent.storage.core.service.KnowledgeBaseService;
+import com.llmmanager.agent.storage.core.service.KnowledgeDocumentService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 后台文档入库 Worker
+ *
+ * 上传接口只把文档写入 a_document_jobs 任务表并立即返回任务 Code，由 Worker 在后台执行入库：
+ * - 认领：每个轮询周期按空闲槽位数认领任务（priority 降序、同优先级先进先出），条件更新保证多节点不重复认领
+ * - 租约：认领时写入 leaseOwner / leaseUntil，执行期间按 heartbeatIntervalMs 续约；
+ *   节点宕机后租约过期，任务由任一节点的轮询回收并重新入队
+ * - 重试：执行失败按指数退避重新入队，执行次数耗尽后进入死信（DEAD），可通过接口重新入队
+ * - 优先级：入队时取知识库 metadata.ingestionPriority，未配置时使用 defaultPriority
+ *
+ * 单个文档的解析 / Embedding / 写入仍由 DocumentIngestionPipeline 完成，concurrency 控制同时执行的文档数。
+ *
+ * 指标：
+ * - rag.ingest.jobs (Counter, status)   - 执行成功 / 重试 / 进入死信的任务数
+ * - rag.ingest.jobs.running (Gauge)     - 本节点正在执行的任务数
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "llm.rag.enabled", havingValue = "true", matchIfMissing = false)
+public class DocumentIngestionWorker {
+
+    /**
+     * 知识库 metadata 中的入库优先级配置
+     */
+    public static final String PRIORITY_METADATA_KEY = "ingestionPriority";
+
+    @Resource
+    private RagProperties ragProperties;
+
+    @Resource
+    private DocumentJobService jobService;
+
+    @Resource
+    private KnowledgeDocumentService documentService;
+
+    @Resource
+    private KnowledgeBaseService knowledgeBaseService;
+
+    @Resource
+    private DocumentProcessor documentProcessor;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 本节点正在执行的任务（Key: 任务 ID）
+     */
+    private final Map<Long, DocumentJob> running = new ConcurrentHashMap<>();
+
+    private String nodeId;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        RagProperties.IngestionWorkerConfig config = config();
+        if (!Boolean.TRUE.equals(config.getEnabled())) {
+            return;
+        }
+        nodeId = config.getNodeId() != null && !config.getNodeId().isBlank() ? config.getNodeId() : defaultNodeId();
+        int concurrency = Math.max(1, config.getConcurrency());
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "doc-ingest-worker-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "doc-ingest-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::poll, config.getPollIntervalMs(), config.getPollIntervalMs(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::heartbeat, config.getHeartbeatIntervalMs(), config.getHeartbeatIntervalMs(),
+                TimeUnit.MILLISECONDS);
+        Gauge.builder("rag.ingest.jobs.running", running, Map::size).register(meterRegistry);
+
+        log.info("[DocumentIngestionWorker] 启动: nodeId={}, concurrency={}, leaseMs={}, heartbeatMs={}",
+                nodeId, concurrency, config.getLeaseMs(), config.getHeartbeatIntervalMs());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        executor.shutdown();
+        try {
+            // 未完成的任务不再续约，租约过期后由其它节点接管
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("[DocumentIngestionWorker] 停止时仍有 {} 个任务在执行，租约过期后由其它节点接管", running.size());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 是否启用后台 Worker（未启用时上传接口保持同步处理）
+     */
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(config().getEnabled());
+    }
+
+    /**
+     * 文档加入入库队列（文档已有未结束的任务时返回该任务）
+     */
+    public DocumentJob submit(KnowledgeDocument doc) {
+        RagProperties.IngestionWorkerConfig config = config();
+        return jobService.enqueue(doc, resolvePriority(doc.getKbCode()), Math.max(1, config.getMaxAttempts()));
+    }
+
+    /**
+     * 死信任务重新入队（文档状态恢复为 PENDING）
+     */
+    public boolean retryDead(DocumentJob job) {
+        if (!jobService.requeueDead(job.getJobCode())) {
+            return false;
+        }
+        documentService.updateStatus(job.getDocCode(), "PENDING");
+        return true;
+    }
+
+    /**
+     * 任务进度：任务状态、文档状态、排队位置
+     */
+    public Map<String, Object> getJobProgress(DocumentJob job) {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("jobCode", job.getJobCode());
+        progress.put("docCode", job.getDocCode());
+        progress.put("kbCode", job.getKbCode());
+        progress.put("status", job.getStatus());
+        progress.put("priority", job.getPriority());
+        progress.put("attempts", job.getAttempts());
+        progress.put("maxAttempts", job.getMaxAttempts());
+        progress.put("nextRunTime", job.getNextRunTime());
+        progress.put("leaseOwner", job.getLeaseOwner());
+        progress.put("heartbeatTime", job.getHeartbeatTime());
+        progress.put("startTime", job.getStartTime());
+        progress.put("finishTime", job.getFinishTime());
+        progress.put("chunkCount", job.getChunkCount());
+        progress.put("lastError", job.getLastError());
+        if (DocumentJob.JobStatus.QUEUED.name().equals(job.getStatus())) {
+            progress.put("queuePosition", jobService.countAhead(job));
+        }
+
+        KnowledgeDocument doc = documentService.getByDocCode(job.getDocCode());
+        if (doc != null) {
+            progress.put("documentStatus", doc.getStatus());
+            progress.put("documentChunkCount", doc.getChunkCount());
+        }
+        return progress;
+    }
+
+    /**
+     * 队列统计（各状态任务数、本节点执行情况）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("nodeId", nodeId);
+        stats.put("concurrency", config().getConcurrency());
+        stats.put("running", running.size());
+        stats.put("jobs", jobService.countByStatus());
+        return stats;
+    }
+
+    // ==================== 调度 ====================
+
+    /**
+     * 回收过期租约并按空闲槽位认领任务
+     */
+    private void poll() {
+        try {
+            RagProperties.IngestionWorkerConfig config = config();
+            jobService.recoverExpiredLeases();
+
+            int free = Math.max(1, config.getConcurrency()) - running.size();
+            if (free <= 0) {
+                return;
+            }
+            for (DocumentJob job : jobService.claim(nodeId, free, config.getLeaseMs())) {
+                running.put(job.getId(), job);
+                executor.execute(() -> execute(job));
+            }
+        } catch (Exception e) {
+            log.warn("[DocumentIngestionWorker] 轮询任务失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 为本节点正在执行的任务续约
+     */
+    private void heartbeat() {
+        long leaseMs = config().getLeaseMs();
+        for (DocumentJob job : running.values()) {
+            try {
+                if (!jobService.renewLease(job, nodeId, leaseMs)) {
+                    // 续约失败说明租约已过期并被回收，本节点的执行结果不会再写回任务表
+                    log.warn("[DocumentIngestionWorker] 任务租约已丢失: jobCode={}, docCode={}", job.getJobCode(), job.getDocCode());
+                }
+            } catch (Exception e) {
+                log.warn("[DocumentIngestionWorker] 心跳续约失败: jobCode={}, error={}", job.getJobCode(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 执行单个任务
+     */
+    private void execute(DocumentJob job) {
+        long startTime = System.currentTimeMillis();
+        try {
+            KnowledgeDocument doc = documentService.getByDocCode(job.getDocCode());
+            if (doc == null) {
+                finishFailed(job, "文档不存在或已删除: " + job.getDocCode(), false);
+                return;
+            }
+
+            int chunkCount = documentProcessor.processDocument(doc);
+            KnowledgeDocument processed = documentService.getByDocCode(job.getDocCode());
+            if (processed != null && processed.isFailed()) {
+                finishFailed(job, processed.getErrorMessage(), true);
+                return;
+            }
+
+            if (jobService.markSucceeded(job, nodeId, chunkCount)) {
+                count("succeeded");
+                log.info("[DocumentIngestionWorker] 任务完成: jobCode={}, docCode={}, chunks={}, attempt={}, 耗时={}ms",
+                        job.getJobCode(), job.getDocCode(), chunkCount, job.getAttempts(), System.currentTimeMillis() - startTime);
+            } else {
+                log.warn("[DocumentIngestionWorker] 任务完成但租约已丢失，结果不写回: jobCode={}", job.getJobCode());
+            }
+        } catch (Exception e) {
+            log.error("[DocumentIngestionWorker] 任务执行异常: jobCode={}, docCode={}", job.getJobCode(), job.getDocCode(), e);
+            finishFailed(job, e.getMessage(), true);
+        } finally {
+            running.remove(job.getId());
+        }
+    }
+
+    /**
+     * 任务失败：可重试时按指数退避重新入队，否则进入死信
+     */
+    private void finishFailed(DocumentJob job, String error, boolean retryable) {
+        RagProperties.IngestionWorkerConfig config = config();
+        if (!retryable) {
+            // 不可重试的失败直接耗尽执行次数
+            job.setAttempts(job.getMaxAttempts());
+        }
+        int attempt = Math.max(1, job.getAttempts() != null ? job.getAttempts() : 1);
+        long backoffMs = Math.min(config.getMaxRetryBackoffMs(),
+                config.getRetryBackoffMs() * (1L << Math.min(20, attempt - 1)));
+
+        String status;
+        try {
+            status = jobService.markFailed(job, nodeId, error, backoffMs);
+        } catch (Exception e) {
+            log.warn("[DocumentIngestionWorker] 更新任务失败状态失败，租约过期后重新执行: jobCode={}, error={}",
+                    job.getJobCode(), e.getMessage());
+            return;
+        }
+        if (status == null) {
+            log.warn("[DocumentIngestionWorker] 任务失败但租约已丢失，结果不写回: jobCode={}", job.getJobCode());
+        } else if (DocumentJob.JobStatus.DEAD.name().equals(status)) {
+            count("dead");
+            log.error("[DocumentIngestionWorker] 任务进入死信: jobCode={}, docCode={}, attempts={}, error={}",
+                    job.getJobCode(), job.getDocCode(), job.getAttempts(), error);
+        } else {
+            count("retry");
+            // 等待重试期间文档显示为待处理
+            documentService.updateStatusWithError(job.getDocCode(), "PENDING",
+                    "第 " + attempt + " 次处理失败，" + backoffMs / 1000 + " 秒后重试: " + error);
+            log.warn("[DocumentIngestionWorker] 任务失败，{}ms 后重试: jobCode={}, attempt={}/{}, error={}",
+                    backoffMs, job.getJobCode(), attempt, job.getMaxAttempts(), error);
+        }
+    }
+
+    private int resolvePriority(String kbCode) {
+        Integer defaultPriority = config().getDefaultPriority();
+        KnowledgeBase kb = knowledgeBaseService.getByKbCode(kbCode);
+        Object value = kb != null && kb.getMetadata() != null ? kb.getMetadata().get(PRIORITY_METADATA_KEY) : null;
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.toString().trim());
+            } catch (NumberFormatException e) {
+                log.warn("[DocumentIngestionWorker] 知识库 {} 的 {} 不是整数: {}", kbCode, PRIORITY_METADATA_KEY, value);
+            }
+        }
+        return defaultPriority != null ? defaultPriority : 0;
+    }
+
+    private void count(String status) {
+        Counter.builder("rag.ingest.jobs").tag("status", status).register(meterRegistry).increment();
+    }
+
+    private RagProperties.IngestionWorkerConfig config() {
+        return ragProperties.getIngestion().getWorker();
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + ":" + ManagementFactory.getRuntimeMXBean().getPid();
+    }
+}
@@ -1,6 +1,7 @@
 package com.llmmanager.agent.rag;
 
 import com.llmmanager.agent.rag.config.RagProperties;
+import com.llmmanager.agent.rag.reader.DocumentReaders;
 import com.llmmanager.agent.storage.core.entity.KnowledgeDocument;
 import com.llmmanager.agent.storage.core.service.KnowledgeDocumentService;
 import lombok.extern.slf4j.Slf4j;
@@ -10,17 +11,31 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.Resource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * 文档处理服务
  *
  * 负责文档的解析、分割和向量化：
- * 1. 解析不同格式的文档（文本、Markdown、PDF 等）
+ * 1. 解析不同格式的文档（文本、Markdown、PDF、DOCX、HTML、URL），按页/章节流式读取
  * 2. 使用 TextSplitter 将文档分割成小块
  * 3. 将分割后的文档块添加到 VectorStore
+ *
+ * 知识库文档的入库由 DocumentIngestionPipeline 并行执行（解析 → 分割 → Embedding → 写入）。
  */
 @Slf4j
 @Service
@@ -36,6 +51,12 @@ public class DocumentProcessor {
     @Resource
     private KnowledgeDocumentService documentService;
 
+    @Resource
+    private DocumentIngestionPipeline ingestionPipeline;
+
+    @Resource
+    private DocumentReaders documentReaders;
+
     /**
      * 处理知识库文档
      *
@@ -43,44 +64,8 @@ public class DocumentProcessor {
      * @return 处理生成的文档块数量
      */
     public int processDocument(KnowledgeDocument knowledgeDocument) {
-        String docCode = knowledgeDocument.getDocCode();
-        String kbCode = knowledgeDocument.getKbCode();
-
-        try {
-            // 更新状态为处理中
-            documentService.updateStatus(docCode, "PROCESSING");
-
-            // 获取文档内容
-            String content = getDocumentContent(knowledgeDocument);
-            if (content == null || content.isBlank()) {
-                documentService.updateStatusWithError(docCode, "FAILED", "文档内容为空");
-                return 0;
-            }
-
-            // 分割文档
-            List<Document> chunks = splitDocument(content, knowledgeDocument);
-            if (chunks.isEmpty()) {
-                documentService.updateStatusWithError(docCode, "FAILED", "文档分割后无有效内容");
-                return 0;
-            }
-
-            // 重新处理时先清理旧向量，避免重复入库
-            vectorStoreManager.deleteVectorsByDocCode(kbCode, docCode);
-
-            // 添加到 VectorStore
-            vectorStoreManager.addDocuments(kbCode, chunks);
-
-            // 更新处理结果
-            documentService.updateProcessResult(docCode, chunks.size(), content.length());
-
-            log.info("[DocumentProcessor] 处理文档成功: docCode={}, chunks={}", docCode, chunks.size());
-            return chunks.size();
-
-        } catch (Exception e) {
-            log.error("[DocumentProcessor] 处理文档失败: docCode={}", docCode, e);
-            documentService.updateStatusWithError(docCode, "FAILED", e.getMessage());
-            return 0;
-        }
+        Map<String, Integer> result = ingestionPipeline.ingest(List.of(knowledgeDocument), this::parseDocument);
+        return result.getOrDefault(knowledgeDocument.getDocCode(), 0);
     }
 
     /**
@@ -115,93 +100,171 @@ public class DocumentProcessor {
     /**
      * 批量处理待处理的文档
      *
+     * 通过入库流水线并行解析、跨文档批量 Embedding 和写入
+     *
      * @param limit 处理数量限制
      * @return 成功处理的文档数量
      */
     public int processPendingDocuments(int limit) {
         List<KnowledgeDocument> pendingDocs = documentService.listPendingDocuments(limit);
-        int successCount = 0;
-
-        for (KnowledgeDocument doc : pendingDocs) {
-            int chunkCount = processDocument(doc);
-            if (chunkCount > 0) {
-                successCount++;
-            }
-        }
+        Map<String, Integer> result = ingestionPipeline.ingest(pendingDocs, this::parseDocument);
+        int successCount = (int) result.values().stream().filter(chunkCount -> chunkCount > 0).count();
 
         log.info("[DocumentProcessor] 批量处理完成: 成功={}/{}", successCount, pendingDocs.size());
         return successCount;
     }
 
     /**
-     * 获取文档内容
+     * 解析并分割文档（入库流水线的解析阶段），内容无效时抛出异常
      */
-    private String getDocumentContent(KnowledgeDocument doc) {
-        String docType = doc.getDocType();
-
-        switch (docType) {
-            case "TEXT":
-            case "MARKDOWN":
-            case "JSON":
-                // 直接返回存储的内容
-                return doc.getContent();
-
-            case "URL":
-                // TODO: 实现网页内容抓取
-                log.warn("[DocumentProcessor] URL 文档解析暂未实现: {}", doc.getSourceUrl());
-                return null;
-
-            case "PDF":
-            case "DOCX":
-            case "HTML":
-                // TODO: 使用 Tika 解析文件
-                log.warn("[DocumentProcessor] 文件解析暂未实现: {}", doc.getFilePath());
-                return null;
-
-            default:
-                return doc.getContent();
+    private DocumentIngestionPipeline.ParsedDocument parseDocument(KnowledgeDocument knowledgeDocument) {
+        // 更新状态为处理中
+        documentService.updateStatus(knowledgeDocument.getDocCode(), "PROCESSING");
+
+        // 逐段读取（页/章节），每段读到后立即分割，不持有整个文件的内容
+        Map<String, Object> documentMetadata = buildDocumentMetadata(knowledgeDocument);
+        TokenTextSplitter splitter = createSplitter();
+        List<Document> chunks = new ArrayList<>();
+        int[] charCount = {0};
+        try {
+            documentReaders.read(knowledgeDocument, section -> {
+                charCount[0] += section.getText().length();
+                Map<String, Object> metadata = new HashMap<>(documentMetadata);
+                metadata.putAll(section.getMetadata());
+                chunks.addAll(splitContent(splitter, section.getText(), metadata));
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取文档失败: " + e.getMessage(), e);
+        }
+
+        if (charCount[0] == 0) {
+            throw new IllegalStateException("文档内容为空");
         }
+        if (chunks.isEmpty()) {
+            throw new IllegalStateException("文档分割后无有效内容");
+        }
+
+        return diffChunks(knowledgeDocument, identifyChunks(knowledgeDocument, chunks), charCount[0]);
     }
 
     /**
-     * 分割文档内容
+     * 为文本块生成基于内容的稳定 ID
+     *
+     * ID = UUID(kbCode + docCode + 内容哈希 + 元数据哈希)，内容与元数据不变时重新处理得到相同的 ID。
+     * 同一文档内完全相同的文本块只保留一个。
      */
-    private List<Document> splitDocument(String content, KnowledgeDocument knowledgeDoc) {
-        // 构建文档元数据
+    private List<Document> identifyChunks(KnowledgeDocument knowledgeDocument, List<Document> chunks) {
+        Map<String, Document> identified = new LinkedHashMap<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            Document chunk = chunks.get(i);
+            Map<String, Object> metadata = new HashMap<>(chunk.getMetadata());
+            String contentHash = sha256(chunk.getText());
+            String metadataHash = sha256(String.valueOf(new TreeMap<>(metadata)));
+            String id = UUID.nameUUIDFromBytes((knowledgeDocument.getKbCode() + ":" + knowledgeDocument.getDocCode()
+                    + ":" + contentHash + ":" + metadataHash).getBytes(StandardCharsets.UTF_8)).toString();
+
+            metadata.put("contentHash", contentHash);
+            metadata.put("chunkIndex", i);
+            identified.putIfAbsent(id, Document.builder().id(id).text(chunk.getText()).metadata(metadata).build());
+        }
+        return new ArrayList<>(identified.values());
+    }
+
+    /**
+     * 与已入库的向量比对：删除已消失的文本块，只交出新增/变化的文本块，
+     * 知识库中已有相同内容的文本块复用其向量（不再请求 Embedding 服务）。
+     *
+     * 存储不支持按文档列举向量时，退化为清理旧向量后全量重建。
+     */
+    private DocumentIngestionPipeline.ParsedDocument diffChunks(KnowledgeDocument knowledgeDocument,
+                                                                List<Document> chunks, int charCount) {
+        String kbCode = knowledgeDocument.getKbCode();
+        String docCode = knowledgeDocument.getDocCode();
+
+        Set<String> existingIds = vectorStoreManager.listVectorIds(kbCode, docCode);
+        if (existingIds == null) {
+            // 重新处理时先清理旧向量，避免重复入库
+            vectorStoreManager.deleteVectorsByDocCode(kbCode, docCode);
+            return new DocumentIngestionPipeline.ParsedDocument(chunks, charCount);
+        }
+
+        Set<String> currentIds = chunks.stream().map(Document::getId).collect(Collectors.toSet());
+        List<String> vanishedIds = existingIds.stream().filter(id -> !currentIds.contains(id)).toList();
+        vectorStoreManager.deleteVectors(kbCode, vanishedIds);
+
+        List<Document> changed = chunks.stream().filter(chunk -> !existingIds.contains(chunk.getId())).toList();
+        Map<String, float[]> embeddingsByHash = vectorStoreManager.findEmbeddingsByContentHash(kbCode,
+                changed.stream().map(chunk -> String.valueOf(chunk.getMetadata().get("contentHash"))).collect(Collectors.toSet()));
+        Map<String, float[]> reusedEmbeddings = new HashMap<>();
+        for (Document chunk : changed) {
+            float[] embedding = embeddingsByHash.get(String.valueOf(chunk.getMetadata().get("contentHash")));
+            if (embedding != null) {
+                reusedEmbeddings.put(chunk.getId(), embedding);
+            }
+        }
+
+        log.info("[DocumentProcessor] 增量重建索引: docCode={}, total={}, unchanged={}, removed={}, written={}, reusedEmbeddings={}",
+                docCode, chunks.size(), chunks.size() - changed.size(), vanishedIds.size(), changed.size(), reusedEmbeddings.size());
+        return new DocumentIngestionPipeline.ParsedDocument(changed, charCount, chunks.size(), reusedEmbeddings);
+    }
+
+    private static String sha256(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /**
+     * 构建文档级元数据（各文本块共享，页码/章节等定位信息由读取器按段补充）
+     */
+    private Map<String, Object> buildDocumentMetadata(KnowledgeDocument knowledgeDoc) {
         Map<String, Object> metadata = new HashMap<>();
         metadata.put("docCode", knowledgeDoc.getDocCode());
         metadata.put("kbCode", knowledgeDoc.getKbCode());
         metadata.put("title", knowledgeDoc.getTitle());
         metadata.put("docType", knowledgeDoc.getDocType());
+        if (knowledgeDoc.getFileName() != null) {
+            metadata.put("fileName", knowledgeDoc.getFileName());
+        }
 
         if (knowledgeDoc.getMetadata() != null) {
             metadata.putAll(knowledgeDoc.getMetadata());
         }
-
-        return splitContent(content, metadata);
+        return metadata;
     }
 
     /**
      * 分割文本内容
      */
     private List<Document> splitContent(String content, Map<String, Object> metadata) {
+        return splitContent(createSplitter(), content, metadata);
+    }
+
+    private List<Document> splitContent(TokenTextSplitter splitter, String content, Map<String, Object> metadata) {
         // 创建文档
         Document document = new Document(content, metadata != null ? metadata : new HashMap<>());
 
-        // 创建分割器
+        // 分割并过滤空块
+        return splitter.split(document).stream()
+                .filter(doc -> doc.getText() != null && !doc.getText().isBlank())
+                .toList();
+    }
+
+    /**
+     * 创建分割器（同一文档的各段复用）
+     */
+    private TokenTextSplitter createSplitter() {
         RagProperties.SplitterConfig splitterConfig = ragProperties.getSplitter();
-        TokenTextSplitter splitter = new TokenTextSplitter(
+        return new TokenTextSplitter(
                 splitterConfig.getChunkSize(),      // 默认块大小
                 splitterConfig.getChunkOverlap(),   // 重叠大小
                 splitterConfig.getMinChunkSize(),   // 最小块大小
                 10000,                              // 最大块数
                 true                                // 保留分隔符
         );
-
-        // 分割并过滤空块
-        return splitter.split(document).stream()
-                .filter(doc -> doc.getText() != null && !doc.getText().isBlank())
-                .toList();
     }
 
     /**
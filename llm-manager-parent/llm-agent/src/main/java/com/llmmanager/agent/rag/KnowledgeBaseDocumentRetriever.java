@@ -0,0 +1,55 @@
+package com.llmmanager.agent.rag;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.rag.Query;
+import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 单知识库文档检索器
+ *
+ * 通过 VectorStoreManager 检索，启用混合检索时与多知识库检索一样走 BM25 + 向量的 RRF 融合，
+ * 而不是直接查询底层 VectorStore。
+ */
+@Slf4j
+public class KnowledgeBaseDocumentRetriever implements DocumentRetriever {
+
+    private final VectorStoreManager vectorStoreManager;
+    private final String kbCode;
+    private final int topK;
+    private final Double similarityThreshold;
+    private final Supplier<Filter.Expression> filterExpression;
+
+    /**
+     * 构造检索器
+     *
+     * @param vectorStoreManager VectorStore 管理器
+     * @param kbCode 知识库 Code
+     * @param topK 返回文档数量
+     * @param similarityThreshold 相似度阈值（null 使用默认值）
+     * @param filterExpression 过滤表达式（null 不过滤）
+     */
+    public KnowledgeBaseDocumentRetriever(VectorStoreManager vectorStoreManager,
+                                          String kbCode,
+                                          int topK,
+                                          Double similarityThreshold,
+                                          Supplier<Filter.Expression> filterExpression) {
+        this.vectorStoreManager = vectorStoreManager;
+        this.kbCode = kbCode;
+        this.topK = topK;
+        this.similarityThreshold = similarityThreshold;
+        this.filterExpression = filterExpression;
+    }
+
+    @Override
+    public List<Document> retrieve(Query query) {
+        Filter.Expression filter = filterExpression != null ? filterExpression.get() : null;
+        List<Document> results = vectorStoreManager.similaritySearch(kbCode, query.text(), topK, similarityThreshold, filter);
+        log.debug("[KnowledgeBaseDocumentRetriever] 搜索知识库 {}，topK: {}，返回 {} 个文档", kbCode, topK, results.size());
+        return results;
+    }
+}
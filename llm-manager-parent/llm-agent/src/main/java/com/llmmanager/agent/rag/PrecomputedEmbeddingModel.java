@@ -0,0 +1,90 @@
+package com.llmmanager.agent.rag;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 支持预计算向量的 EmbeddingModel
+ *
+ * VectorStore.add() 内部会调用 EmbeddingModel 生成向量，无法直接传入已算好的向量。
+ * 入库流水线在 Embedding 阶段算好向量后登记到这里，写入阶段 VectorStore 再次"计算"时直接命中，
+ * 不会重复请求 Embedding 服务。未登记的文本（如检索查询）照常委托给真实模型。
+ *
+ * 预计算向量只对发起写入的线程可见（各 VectorStore 的 add() 都在调用线程上计算向量），
+ * 并发写入互不影响：一次写入结束时不会移除另一写入登记的相同文本。
+ */
+class PrecomputedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+
+    /**
+     * 当前线程正在写入的预计算向量（Key: 文本内容）
+     */
+    private final ThreadLocal<Map<String, float[]>> precomputed = new ThreadLocal<>();
+
+    PrecomputedEmbeddingModel(EmbeddingModel delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * 在当前线程上执行写入，写入期间 documents 对应的文本直接返回预计算向量
+     *
+     * @param embeddings 与 documents 一一对应的向量
+     * @param write      写入动作（如 vectorStore.add(documents)）
+     */
+    void writeWith(List<Document> documents, List<float[]> embeddings, Runnable write) {
+        Map<String, float[]> vectors = new HashMap<>(documents.size() * 2);
+        for (int i = 0; i < documents.size(); i++) {
+            vectors.put(documents.get(i).getText(), embeddings.get(i));
+        }
+        Map<String, float[]> previous = precomputed.get();
+        precomputed.set(vectors);
+        try {
+            write.run();
+        } finally {
+            if (previous != null) {
+                precomputed.set(previous);
+            } else {
+                precomputed.remove();
+            }
+        }
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        Map<String, float[]> vectors = precomputed.get();
+        if (vectors == null) {
+            return delegate.call(request);
+        }
+        List<String> texts = request.getInstructions();
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            float[] vector = vectors.get(texts.get(i));
+            if (vector == null) {
+                return delegate.call(request);
+            }
+            embeddings.add(new Embedding(vector, i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        Map<String, float[]> vectors = precomputed.get();
+        float[] vector = vectors != null ? vectors.get(document.getText()) : null;
+        return vector != null ? vector : delegate.embed(document);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
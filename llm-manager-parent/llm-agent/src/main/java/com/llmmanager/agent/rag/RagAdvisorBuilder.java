@@ -1,11 +1,11 @@
 package com.llmmanager.agent.rag;
 
 import com.llmmanager.agent.rag.config.RagProperties;
+import com.llmmanager.agent.rag.rerank.DocumentReranker;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.advisor.api.Advisor;
 import org.springframework.ai.rag.advisor.RetrievalAugmentationAdvisor;
-import org.springframework.ai.rag.retrieval.search.VectorStoreDocumentRetriever;
-import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
 import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
@@ -23,6 +23,9 @@ import java.util.function.Supplier;
  * 2. 多个知识库检索
  * 3. 元数据过滤
  * 4. 自定义相似度阈值和 topK
+ * 5. 检索后重排序（llm.rag.rerank.enabled=true 时先取候选池，重排后只保留最终数量）
+ *
+ * 单知识库和多知识库都经 VectorStoreManager 检索，启用混合检索时均为 BM25 + 向量融合结果。
  */
 @Slf4j
 @Component
@@ -35,6 +38,9 @@ public class RagAdvisorBuilder {
     @Resource
     private RagProperties ragProperties;
 
+    @Resource
+    private DocumentReranker documentReranker;
+
     /**
      * 为指定知识库创建 RAG Advisor
      */
@@ -67,8 +73,7 @@ public class RagAdvisorBuilder {
     public Advisor buildAdvisor(String kbCode, Integer topK, Double similarityThreshold,
                                 Supplier<org.springframework.ai.vectorstore.filter.Filter.Expression> filterExpression) {
 
-        VectorStore vectorStore = vectorStoreManager.getOrCreateVectorStore(kbCode);
-        return buildAdvisorInternal(vectorStore, topK, similarityThreshold, filterExpression);
+        return buildAdvisorInternal(kbCode, topK, similarityThreshold, filterExpression);
     }
 
     /**
@@ -92,12 +97,10 @@ public class RagAdvisorBuilder {
         // 使用 MultiKbDocumentRetriever 搜索所有启用的知识库
         MultiKbDocumentRetriever retriever = MultiKbDocumentRetriever.builder(vectorStoreManager)
                 .searchAllEnabled(true)
-                .topK(actualTopK)
+                .topK(retrievalTopK(actualTopK))
                 .build();
 
-        return RetrievalAugmentationAdvisor.builder()
-                .documentRetriever(retriever)
-                .build();
+        return buildRetrievalAdvisor(retriever, actualTopK);
     }
 
     /**
@@ -115,12 +118,10 @@ public class RagAdvisorBuilder {
         // 使用 MultiKbDocumentRetriever 检索多个知识库
         MultiKbDocumentRetriever retriever = MultiKbDocumentRetriever.builder(vectorStoreManager)
                 .kbCodes(kbCodes)
-                .topK(actualTopK)
+                .topK(retrievalTopK(actualTopK))
                 .build();
 
-        return RetrievalAugmentationAdvisor.builder()
-                .documentRetriever(retriever)
-                .build();
+        return buildRetrievalAdvisor(retriever, actualTopK);
     }
 
     /**
@@ -130,8 +131,6 @@ public class RagAdvisorBuilder {
      * @param metadata 过滤条件（key-value 精确匹配）
      */
     public Advisor buildAdvisorWithMetadata(String kbCode, Map<String, Object> metadata) {
-        VectorStore vectorStore = vectorStoreManager.getOrCreateVectorStore(kbCode);
-
         Supplier<org.springframework.ai.vectorstore.filter.Filter.Expression> filter = null;
         if (metadata != null && !metadata.isEmpty()) {
             filter = () -> {
@@ -151,39 +150,50 @@ public class RagAdvisorBuilder {
             };
         }
 
-        return buildAdvisorInternal(vectorStore, null, null, filter);
+        return buildAdvisorInternal(kbCode, null, null, filter);
     }
 
     /**
      * 内部构建方法
      *
-     * @param vectorStore VectorStore 实例
+     * @param kbCode 知识库 Code
      * @param topK 返回文档数量（null 使用默认值）
      * @param similarityThreshold 相似度阈值（null 使用默认值）
      * @param filterExpression 过滤表达式（null 不过滤）
      */
-    private Advisor buildAdvisorInternal(VectorStore vectorStore, Integer topK, Double similarityThreshold,
+    private Advisor buildAdvisorInternal(String kbCode, Integer topK, Double similarityThreshold,
                                          Supplier<org.springframework.ai.vectorstore.filter.Filter.Expression> filterExpression) {
 
         int actualTopK = topK != null ? topK : ragProperties.getVectorStore().getTopK();
-        double actualThreshold = similarityThreshold != null ? similarityThreshold : ragProperties.getVectorStore().getSimilarityThreshold();
 
-        // 构建文档检索器
-        VectorStoreDocumentRetriever.Builder retrieverBuilder = VectorStoreDocumentRetriever.builder()
-                .vectorStore(vectorStore)
-                .topK(actualTopK)
-                .similarityThreshold(actualThreshold);
+        // 构建文档检索器（经 VectorStoreManager，启用混合检索时融合 BM25 结果）
+        KnowledgeBaseDocumentRetriever retriever = new KnowledgeBaseDocumentRetriever(
+                vectorStoreManager, kbCode, retrievalTopK(actualTopK), similarityThreshold, filterExpression);
 
-        if (filterExpression != null) {
-            retrieverBuilder.filterExpression(filterExpression);
-        }
+        // 构建 RAG Advisor
+        return buildRetrievalAdvisor(retriever, actualTopK);
+    }
 
-        VectorStoreDocumentRetriever retriever = retrieverBuilder.build();
+    /**
+     * 检索阶段的文档数量：启用重排序时取候选池，否则即为最终数量
+     */
+    private int retrievalTopK(int topK) {
+        return documentReranker.isEnabled() ? documentReranker.candidatePool(topK) : topK;
+    }
 
-        // 构建 RAG Advisor
-        return RetrievalAugmentationAdvisor.builder()
-                .documentRetriever(retriever)
-                .build();
+    /**
+     * 组装 RetrievalAugmentationAdvisor，启用重排序时在检索后接入重排序阶段
+     *
+     * @param retriever 文档检索器
+     * @param topK 最终放入 Prompt 的文档数量（未配置 finalK 时）
+     */
+    private Advisor buildRetrievalAdvisor(DocumentRetriever retriever, int topK) {
+        RetrievalAugmentationAdvisor.Builder builder = RetrievalAugmentationAdvisor.builder()
+                .documentRetriever(retriever);
+        if (documentReranker.isEnabled()) {
+            builder.documentPostProcessors(documentReranker.postProcessor(documentReranker.finalK(topK)));
+        }
+        return builder.build();
     }
 
     /**
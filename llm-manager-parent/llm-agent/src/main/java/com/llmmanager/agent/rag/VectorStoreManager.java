@@ -2,6 +2,16 @@ package com.llmmanager.agent.rag;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.llmmanager.agent.rag.config.RagProperties;
+import com.llmmanager.agent.rag.lexical.LexicalIndexManager;
+import com.llmmanager.agent.rag.lexical.ReciprocalRankFusion;
+import com.llmmanager.agent.rag.quantization.QuantizedSimpleVectorStore;
+import com.llmmanager.agent.rag.quantization.QuantizedVectorIndex;
+import com.llmmanager.agent.rag.quantization.QuantizedVectorStore;
+import com.llmmanager.agent.rag.vectorstore.MilvusClientGateway;
+import com.llmmanager.agent.rag.vectorstore.MilvusGateway;
+import com.llmmanager.agent.rag.vectorstore.MilvusKnowledgeStore;
+import com.llmmanager.agent.rag.vectorstore.TidbFilterExpressionConverter;
+import com.llmmanager.agent.rag.vectorstore.TidbMetadataColumns;
 import com.llmmanager.agent.rag.vectorstore.TidbVectorStore;
 import com.llmmanager.agent.storage.core.entity.KnowledgeBase;
 import com.llmmanager.agent.storage.core.service.KnowledgeBaseService;
@@ -20,9 +30,13 @@ import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.SimpleVectorStore;
 import org.springframework.ai.vectorstore.SimpleVectorStoreContent;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
 import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
-import org.springframework.ai.vectorstore.milvus.MilvusVectorStore;
+import org.springframework.ai.vectorstore.filter.converter.SimpleVectorStoreFilterExpressionConverter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -31,12 +45,23 @@ import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * VectorStore 管理器
@@ -69,6 +94,9 @@ public class VectorStoreManager {
     @Resource
     private KnowledgeBaseService knowledgeBaseService;
 
+    @Resource
+    private LexicalIndexManager lexicalIndexManager;
+
     /**
      * 知识库 VectorStore 缓存
      * Key: kbCode
@@ -85,11 +113,36 @@ public class VectorStoreManager {
      */
     private volatile MilvusServiceClient milvusClient;
 
-    private final Object milvusClientLock = new Object();
+    /**
+     * Milvus 初始化锁：持锁期间有网络调用（连接、建 Collection），使用 ReentrantLock 避免钉住虚拟线程
+     */
+    private final ReentrantLock milvusClientLock = new ReentrantLock();
+
+    /**
+     * Milvus 接口（基于 milvusClient，按需初始化）
+     */
+    private volatile MilvusGateway milvusGateway;
+
+    /**
+     * TiDB 向量表上的过滤生成列（type=tidb 时按需初始化，所有知识库共享）
+     */
+    private volatile TidbMetadataColumns tidbMetadataColumns;
+
+    /**
+     * 知识库量化索引（llm.rag.quantization.enabled=true 时按需打开）
+     * Key: kbCode
+     */
+    private final Map<String, QuantizedVectorIndex> quantizedIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * VectorStore 使用的 EmbeddingModel（支持入库流水线预先算好的向量）
+     */
+    private PrecomputedEmbeddingModel storeEmbeddingModel;
 
     @PostConstruct
     public void initialize() {
         log.info("[VectorStoreManager] 初始化 VectorStore 管理器");
+        storeEmbeddingModel = new PrecomputedEmbeddingModel(embeddingModel);
 
         // 创建全局 VectorStore
         globalVectorStore = createVectorStore("_global");
@@ -120,6 +173,15 @@ public class VectorStoreManager {
             persistVectorStore("_global", globalVectorStore);
         }
 
+        // 关闭量化索引（写入码本和字节码）
+        for (Map.Entry<String, QuantizedVectorIndex> entry : quantizedIndexes.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (Exception e) {
+                log.warn("[VectorStoreManager] 关闭量化索引失败: kbCode={}, error={}", entry.getKey(), e.getMessage());
+            }
+        }
+
         // 关闭 Milvus Client
         if (milvusClient != null) {
             try {
@@ -150,9 +212,26 @@ public class VectorStoreManager {
     public void addDocuments(String kbCode, List<Document> documents) {
         VectorStore vectorStore = getOrCreateVectorStore(kbCode);
         vectorStore.add(documents);
+        lexicalIndexManager.index(kbCode, documents);
+        lexicalIndexManager.flush(kbCode);
         log.info("[VectorStoreManager] 添加 {} 个文档到知识库: {}", documents.size(), kbCode);
     }
 
+    /**
+     * 向知识库添加已算好向量的文档（入库流水线写入阶段使用，不再请求 Embedding 服务）
+     *
+     * @param embeddings 与 documents 一一对应的向量
+     */
+    public void addEmbeddedDocuments(String kbCode, List<Document> documents, List<float[]> embeddings) {
+        if (embeddings.size() != documents.size()) {
+            throw new IllegalArgumentException("向量数量与文档数量不一致: " + embeddings.size() + " != " + documents.size());
+        }
+        VectorStore vectorStore = getOrCreateVectorStore(kbCode);
+        storeEmbeddingModel.writeWith(documents, embeddings, () -> vectorStore.add(documents));
+        lexicalIndexManager.index(kbCode, documents);
+        log.debug("[VectorStoreManager] 写入 {} 个已向量化文档到知识库: {}", documents.size(), kbCode);
+    }
+
     /**
      * 向全局知识库添加文档
      */
@@ -163,16 +242,64 @@ public class VectorStoreManager {
 
     /**
      * 从知识库检索相似文档
+     *
+     * 启用混合检索时，向量和 BM25 各取 topK * candidateMultiplier 个候选，按加权 RRF 融合后取 topK。
      */
     public List<Document> similaritySearch(String kbCode, String query, int topK) {
+        return similaritySearch(kbCode, query, topK, null, null);
+    }
+
+    /**
+     * 从知识库检索相似文档，自定义相似度阈值和元数据过滤
+     *
+     * 相似度阈值只作用于向量结果；过滤条件下推到向量检索，BM25 候选在融合前按同一条件（SpEL 对 #metadata 求值）过滤。
+     *
+     * @param similarityThreshold 相似度阈值（null 使用默认值）
+     * @param filterExpression 过滤条件（null 不过滤）
+     */
+    public List<Document> similaritySearch(String kbCode, String query, int topK, Double similarityThreshold,
+                                           Filter.Expression filterExpression) {
+        double threshold = similarityThreshold != null
+                ? similarityThreshold : ragProperties.getVectorStore().getSimilarityThreshold();
+        if (!lexicalIndexManager.isEnabled()) {
+            return vectorSearch(kbCode, query, topK, threshold, filterExpression);
+        }
+        RagProperties.HybridConfig hybrid = ragProperties.getHybrid();
+        int candidates = topK * Math.max(1, hybrid.getCandidateMultiplier());
+        List<Document> vectorResults = vectorSearch(kbCode, query, candidates, threshold, filterExpression);
+        List<Document> lexicalResults = lexicalIndexManager.search(kbCode, query, candidates);
+        if (filterExpression != null) {
+            lexicalResults = filterByMetadata(lexicalResults, filterExpression);
+        }
+        return ReciprocalRankFusion.fuse(vectorResults, lexicalResults, hybrid.getLexicalWeight(), hybrid.getRrfK(), topK);
+    }
+
+    private List<Document> vectorSearch(String kbCode, String query, int topK, double similarityThreshold,
+                                        Filter.Expression filterExpression) {
         VectorStore vectorStore = getOrCreateVectorStore(kbCode);
-        return vectorStore.similaritySearch(
-                SearchRequest.builder()
-                        .query(query)
-                        .topK(topK)
-                        .similarityThreshold(ragProperties.getVectorStore().getSimilarityThreshold())
-                        .build()
-        );
+        SearchRequest.Builder request = SearchRequest.builder()
+                .query(query)
+                .topK(topK)
+                .similarityThreshold(similarityThreshold);
+        if (filterExpression != null) {
+            request.filterExpression(filterExpression);
+        }
+        return vectorStore.similaritySearch(request.build());
+    }
+
+    /**
+     * 按过滤条件筛选 BM25 结果（与 SimpleVectorStore 相同，用 SpEL 对 #metadata 求值）
+     */
+    private static List<Document> filterByMetadata(List<Document> documents, Filter.Expression filterExpression) {
+        Expression expression = new SpelExpressionParser().parseExpression(
+                new SimpleVectorStoreFilterExpressionConverter().convertExpression(filterExpression));
+        return documents.stream()
+                .filter(document -> {
+                    StandardEvaluationContext context = new StandardEvaluationContext();
+                    context.setVariable("metadata", document.getMetadata());
+                    return Boolean.TRUE.equals(expression.getValue(context, Boolean.class));
+                })
+                .toList();
     }
 
     /**
@@ -186,8 +313,9 @@ public class VectorStoreManager {
      * 从全局知识库检索相似文档
      */
     public List<Document> similaritySearchGlobal(String query, int topK) {
-        // TiDB 全局 VectorStore 不按 kb_code 过滤，可直接跨库检索；其它实现回退为“搜索所有已加载知识库”
-        if (!isTidbVectorStore()) {
+        // TiDB 全局 VectorStore 不按 kb_code 过滤、Milvus 共享 Collection 的全局 VectorStore 检索所有 Partition，
+        // 可直接跨库检索；其它实现回退为“搜索所有已加载知识库”
+        if (!isTidbVectorStore() && !isMilvusSharedCollection()) {
             return similaritySearchAllEnabled(query, topK);
         }
         return globalVectorStore.similaritySearch(
@@ -217,6 +345,18 @@ public class VectorStoreManager {
      * 从多个知识库检索相似文档
      */
     public List<Document> similaritySearchMultiple(List<String> kbCodes, String query, int topK) {
+        // Milvus 共享 Collection：一次 search 请求覆盖所有知识库的 Partition（混合检索需按知识库融合 BM25，仍逐库检索）
+        if (kbCodes.size() > 1 && isMilvusSharedCollection() && !lexicalIndexManager.isEnabled()
+                && globalVectorStore instanceof MilvusKnowledgeStore sharedStore) {
+            kbCodes.forEach(this::getOrCreateVectorStore);
+            return sharedStore.similaritySearch(
+                    SearchRequest.builder()
+                            .query(query)
+                            .topK(topK)
+                            .similarityThreshold(ragProperties.getVectorStore().getSimilarityThreshold())
+                            .build(),
+                    kbCodes.stream().map(MilvusKnowledgeStore::partitionName).toList());
+        }
         // 合并多个知识库的检索结果
         return kbCodes.stream()
                 .flatMap(kbCode -> similaritySearch(kbCode, query, topK).stream())
@@ -257,6 +397,8 @@ public class VectorStoreManager {
             deletePersistedSimpleVectorStoreFile(kbCode);
         }
         vectorStoreCache.remove(kbCode);
+        lexicalIndexManager.drop(kbCode);
+        dropQuantizedIndex(kbCode);
         log.info("[VectorStoreManager] 删除知识库 VectorStore: {}", kbCode);
     }
 
@@ -264,9 +406,11 @@ public class VectorStoreManager {
      * 清空知识库的所有文档
      */
     public void clearVectorStore(String kbCode) {
+        lexicalIndexManager.drop(kbCode);
         if (isTidbVectorStore()) {
             deleteVectorsByKbCode(kbCode);
             vectorStoreCache.remove(kbCode);
+            dropQuantizedIndex(kbCode);
             log.info("[VectorStoreManager] 清空知识库（TiDB Vector Search）: {}", kbCode);
             return;
         }
@@ -292,6 +436,7 @@ public class VectorStoreManager {
         if (kbCode == null || docCode == null) {
             return;
         }
+        lexicalIndexManager.deleteByDocCode(kbCode, docCode);
         if (isTidbVectorStore()) {
             String tableName = getSafeTidbTableName();
             String sql = "UPDATE " + tableName
@@ -316,6 +461,164 @@ public class VectorStoreManager {
         }
     }
 
+    /**
+     * 查询文档当前的全部向量 ID（增量重建索引时与新分块比对）
+     *
+     * @return 向量 ID 集合；存储不支持按文档列举时返回 null（调用方应退化为全量重建）
+     */
+    public Set<String> listVectorIds(String kbCode, String docCode) {
+        if (kbCode == null || docCode == null) {
+            return null;
+        }
+        VectorStore vectorStore = getOrCreateVectorStore(kbCode);
+        if (vectorStore instanceof TidbVectorStore tidbStore) {
+            return tidbStore.listVectorIds(docCode);
+        }
+        if (vectorStore instanceof SimpleVectorStore simpleStore) {
+            List<SimpleVectorStoreContent> contents = snapshotSimpleVectorStore(simpleStore);
+            if (contents == null) {
+                return null;
+            }
+            Set<String> ids = new HashSet<>();
+            for (SimpleVectorStoreContent content : contents) {
+                Object metaDocCode = content.getMetadata() != null ? content.getMetadata().get("docCode") : null;
+                if (metaDocCode != null && docCode.equals(String.valueOf(metaDocCode))) {
+                    ids.add(content.getId());
+                }
+            }
+            return ids;
+        }
+        // Milvus：insert 不是 upsert，无法按相同 ID 覆盖，保持全量重建
+        return null;
+    }
+
+    /**
+     * 按内容哈希查询知识库中已有的向量（跨文档复用相同文本块的 Embedding）
+     *
+     * @return Key: contentHash，Value: 向量；不支持的存储返回空 Map
+     */
+    public Map<String, float[]> findEmbeddingsByContentHash(String kbCode, Collection<String> contentHashes) {
+        if (kbCode == null || contentHashes == null || contentHashes.isEmpty()) {
+            return Map.of();
+        }
+        VectorStore vectorStore = getOrCreateVectorStore(kbCode);
+        if (vectorStore instanceof TidbVectorStore tidbStore) {
+            return tidbStore.findEmbeddingsByContentHash(contentHashes);
+        }
+        if (vectorStore instanceof SimpleVectorStore simpleStore) {
+            List<SimpleVectorStoreContent> contents = snapshotSimpleVectorStore(simpleStore);
+            if (contents == null) {
+                return Map.of();
+            }
+            Map<String, float[]> result = new HashMap<>();
+            for (SimpleVectorStoreContent content : contents) {
+                Object hash = content.getMetadata() != null ? content.getMetadata().get("contentHash") : null;
+                if (hash == null || !contentHashes.contains(String.valueOf(hash)) || result.containsKey(String.valueOf(hash))) {
+                    continue;
+                }
+                // 量化存储的全精度向量在量化索引文件中
+                float[] embedding = simpleStore instanceof QuantizedSimpleVectorStore quantizedStore
+                        ? quantizedStore.getEmbedding(content.getId())
+                        : content.getEmbedding();
+                if (embedding != null && embedding.length > 0) {
+                    result.put(String.valueOf(hash), embedding);
+                }
+            }
+            return result;
+        }
+        return Map.of();
+    }
+
+    /**
+     * 按向量 ID 删除（增量重建索引时删除已消失的文本块）
+     */
+    public void deleteVectors(String kbCode, List<String> vectorIds) {
+        if (kbCode == null || vectorIds == null || vectorIds.isEmpty()) {
+            return;
+        }
+        VectorStore vectorStore = getOrCreateVectorStore(kbCode);
+        vectorStore.delete(vectorIds);
+        lexicalIndexManager.deleteByIds(kbCode, vectorIds);
+        if (vectorStore instanceof SimpleVectorStore) {
+            persistVectorStore(kbCode, vectorStore);
+        }
+        log.debug("[VectorStoreManager] 删除 {} 个向量: kbCode={}", vectorIds.size(), kbCode);
+    }
+
+    /**
+     * 获取知识库量化索引统计
+     *
+     * @return 未启用量化或存储不支持量化（Milvus）时返回 null
+     */
+    public Map<String, Object> getQuantizationStats(String kbCode) {
+        QuantizedVectorStore store = getQuantizedVectorStore(kbCode);
+        return store != null ? store.quantizationStats() : null;
+    }
+
+    /**
+     * 用知识库当前数据重新训练码本并重新编码
+     *
+     * @return 训练后的统计；未启用量化或存储不支持量化（Milvus）时返回 null
+     */
+    public Map<String, Object> retrainQuantizer(String kbCode) {
+        QuantizedVectorStore store = getQuantizedVectorStore(kbCode);
+        return store != null ? store.retrainQuantizer() : null;
+    }
+
+    public boolean isQuantizationEnabled() {
+        return Boolean.TRUE.equals(ragProperties.getQuantization().getEnabled());
+    }
+
+    private QuantizedVectorStore getQuantizedVectorStore(String kbCode) {
+        if (!isQuantizationEnabled() || isMilvusVectorStore()) {
+            return null;
+        }
+        VectorStore vectorStore = getOrCreateVectorStore(kbCode);
+        return vectorStore instanceof QuantizedVectorStore quantizedStore ? quantizedStore : null;
+    }
+
+    /**
+     * 打开（不存在则创建）知识库的量化索引
+     *
+     * @param storeFullVectors 是否在本地保存全精度向量（simple 保存；tidb 由数据库精确重排，不保存）
+     */
+    private QuantizedVectorIndex getOrOpenQuantizedIndex(String kbCode, boolean storeFullVectors) {
+        return quantizedIndexes.computeIfAbsent(kbCode, code -> {
+            Path directory = Path.of(ragProperties.getQuantization().getIndexPath(), code);
+            try {
+                return QuantizedVectorIndex.open(directory, storeFullVectors);
+            } catch (IOException e) {
+                throw new IllegalStateException("[VectorStoreManager] 打开量化索引失败: " + directory, e);
+            }
+        });
+    }
+
+    /**
+     * 关闭并删除知识库的量化索引目录
+     */
+    private void dropQuantizedIndex(String kbCode) {
+        QuantizedVectorIndex index = quantizedIndexes.remove(kbCode);
+        if (index != null) {
+            index.clear();
+            try {
+                index.close();
+            } catch (IOException e) {
+                log.warn("[VectorStoreManager] 关闭量化索引失败: kbCode={}, error={}", kbCode, e.getMessage());
+            }
+        }
+        Path directory = Path.of(ragProperties.getQuantization().getIndexPath(), kbCode);
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted((a, b) -> b.getNameCount() - a.getNameCount()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            log.warn("[VectorStoreManager] 删除量化索引目录失败: {}, error={}", directory, e.getMessage());
+        }
+    }
+
     /**
      * 获取知识库的 VectorStore（可能为 null）
      */
@@ -358,7 +661,66 @@ public class VectorStoreManager {
     private VectorStore createTidbVectorStore(String kbCode) {
         String tableName = getSafeTidbTableName();
         String kbFilter = "_global".equals(kbCode) ? null : kbCode;
-        return new TidbVectorStore(tableName, kbFilter, jdbcTemplate, embeddingModel, objectMapper);
+        try {
+            ensureFilterColumns(kbCode);
+        } catch (Exception e) {
+            log.warn("[VectorStoreManager] 创建过滤生成列失败，过滤条件将直接比较 metadata JSON: kbCode={}, error={}",
+                    kbCode, e.getMessage());
+        }
+        QuantizedVectorIndex quantizedIndex = isQuantizationEnabled() && kbFilter != null
+                ? getOrOpenQuantizedIndex(kbCode, false) : null;
+        return new TidbVectorStore(tableName, kbFilter, jdbcTemplate, storeEmbeddingModel, objectMapper,
+                getOrCreateTidbMetadataColumns(), quantizedIndex, ragProperties.getQuantization());
+    }
+
+    /**
+     * 确保知识库声明的常用过滤 key 在 TiDB 向量表上有生成列和 (kb_code, 生成列) 索引
+     *
+     * 声明来源：llm.rag.vector-store.tidb-filter-columns（所有知识库）+ 知识库 metadata.filterColumns，
+     * 格式均为 {"docType": "STRING", "publishYear": "NUMBER"}。非 TiDB 存储返回空 Map。
+     *
+     * @return 当前可下推的过滤列（Key: metadata key，Value: 列名 / 类型）
+     */
+    public Map<String, Object> ensureFilterColumns(String kbCode) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (!isTidbVectorStore()) {
+            return result;
+        }
+
+        Map<String, TidbFilterExpressionConverter.ColumnType> declared = new LinkedHashMap<>();
+        collectFilterColumns(ragProperties.getVectorStore().getTidbFilterColumns(), declared);
+        if (!"_global".equals(kbCode)) {
+            KnowledgeBase knowledgeBase = knowledgeBaseService.getByKbCode(kbCode);
+            Object kbColumns = knowledgeBase != null && knowledgeBase.getMetadata() != null
+                    ? knowledgeBase.getMetadata().get("filterColumns") : null;
+            if (kbColumns instanceof Map<?, ?> map) {
+                collectFilterColumns(map, declared);
+            }
+        }
+
+        getOrCreateTidbMetadataColumns().ensure(declared).forEach((key, column) ->
+                result.put(key, Map.of("column", column.column(), "type", column.type().name())));
+        return result;
+    }
+
+    private static void collectFilterColumns(Map<?, ?> source,
+                                             Map<String, TidbFilterExpressionConverter.ColumnType> target) {
+        if (source == null) {
+            return;
+        }
+        source.forEach((key, type) -> target.put(String.valueOf(key),
+                TidbFilterExpressionConverter.ColumnType.valueOf(String.valueOf(type).toUpperCase(Locale.ROOT))));
+    }
+
+    private TidbMetadataColumns getOrCreateTidbMetadataColumns() {
+        if (tidbMetadataColumns == null) {
+            synchronized (this) {
+                if (tidbMetadataColumns == null) {
+                    tidbMetadataColumns = new TidbMetadataColumns(getSafeTidbTableName(), jdbcTemplate);
+                }
+            }
+        }
+        return tidbMetadataColumns;
     }
 
     private boolean isTidbVectorStore() {
@@ -371,6 +733,18 @@ public class VectorStoreManager {
         return type != null && "milvus".equalsIgnoreCase(type);
     }
 
+    private boolean isMilvusSharedCollection() {
+        return isMilvusVectorStore() && "shared".equalsIgnoreCase(ragProperties.getVectorStore().getMilvusCollectionMode());
+    }
+
+    private String buildMilvusSharedCollectionName() {
+        RagProperties.VectorStoreConfig cfg = ragProperties.getVectorStore();
+        String collectionPrefix = StringUtils.hasText(cfg.getMilvusCollectionPrefix())
+                ? cfg.getMilvusCollectionPrefix()
+                : "llm_kb_";
+        return collectionPrefix + "shared";
+    }
+
     private String buildMilvusCollectionName(String kbCode) {
         RagProperties.VectorStoreConfig cfg = ragProperties.getVectorStore();
         String collectionPrefix = StringUtils.hasText(cfg.getMilvusCollectionPrefix())
@@ -383,6 +757,16 @@ public class VectorStoreManager {
         if (kbCode == null || kbCode.isBlank()) {
             return;
         }
+        if (isMilvusSharedCollection()) {
+            // 共享 Collection：删除知识库的 Partition
+            MilvusGateway gateway = getOrCreateMilvusGateway();
+            String collectionName = buildMilvusSharedCollectionName();
+            String partitionName = MilvusKnowledgeStore.partitionName(kbCode);
+            if (gateway.hasCollection(collectionName) && gateway.hasPartition(collectionName, partitionName)) {
+                gateway.dropPartition(collectionName, partitionName);
+            }
+            return;
+        }
         RagProperties.VectorStoreConfig cfg = ragProperties.getVectorStore();
         String collectionName = buildMilvusCollectionName(kbCode);
 
@@ -502,6 +886,30 @@ public class VectorStoreManager {
         }
     }
 
+    /**
+     * 读取 SimpleVectorStore 内部数据快照（通过反射访问 store 字段，失败返回 null）
+     */
+    private List<SimpleVectorStoreContent> snapshotSimpleVectorStore(SimpleVectorStore simpleStore) {
+        try {
+            Field storeField = SimpleVectorStore.class.getDeclaredField("store");
+            storeField.setAccessible(true);
+            Object storeObj = storeField.get(simpleStore);
+            if (!(storeObj instanceof Map<?, ?> storeMap)) {
+                return null;
+            }
+            List<SimpleVectorStoreContent> contents = new ArrayList<>();
+            for (Object v : new ArrayList<>(storeMap.values())) {
+                if (v instanceof SimpleVectorStoreContent content) {
+                    contents.add(content);
+                }
+            }
+            return contents;
+        } catch (Exception e) {
+            log.warn("[VectorStoreManager] 读取 SimpleVectorStore 数据失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * 创建 SimpleVectorStore
      */
@@ -510,7 +918,17 @@ public class VectorStoreManager {
     }
 
     private SimpleVectorStore createSimpleVectorStore(String kbCode, boolean loadFromDisk) {
-        SimpleVectorStore vectorStore = SimpleVectorStore.builder(embeddingModel).build();
+        SimpleVectorStore vectorStore;
+        if (isQuantizationEnabled()) {
+            QuantizedVectorIndex quantizedIndex = getOrOpenQuantizedIndex(kbCode, true);
+            if (!loadFromDisk) {
+                quantizedIndex.clear();
+            }
+            vectorStore = new QuantizedSimpleVectorStore(SimpleVectorStore.builder(storeEmbeddingModel), kbCode,
+                    quantizedIndex, ragProperties.getQuantization());
+        } else {
+            vectorStore = SimpleVectorStore.builder(storeEmbeddingModel).build();
+        }
 
         // 尝试从文件加载
         if (!loadFromDisk) {
@@ -523,6 +941,9 @@ public class VectorStoreManager {
                 try {
                     vectorStore.load(storeFile);
                     log.info("[VectorStoreManager] 从文件加载 VectorStore: {}", storeFile.getAbsolutePath());
+                    if (!isQuantizationEnabled()) {
+                        restoreQuantizedEmbeddings(kbCode, vectorStore);
+                    }
                 } catch (Exception e) {
                     log.warn("[VectorStoreManager] 加载 VectorStore 失败: {}", e.getMessage());
                 }
@@ -532,41 +953,149 @@ public class VectorStoreManager {
         return vectorStore;
     }
 
+    /**
+     * 关闭量化后，从量化索引文件恢复 JSON 中为空的全精度向量（量化存储时 JSON 不保存向量）
+     */
+    private void restoreQuantizedEmbeddings(String kbCode, SimpleVectorStore vectorStore) {
+        List<SimpleVectorStoreContent> contents = snapshotSimpleVectorStore(vectorStore);
+        if (contents == null) {
+            return;
+        }
+        List<SimpleVectorStoreContent> missing = contents.stream()
+                .filter(content -> content.getEmbedding() == null || content.getEmbedding().length == 0)
+                .toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Path directory = Path.of(ragProperties.getQuantization().getIndexPath(), kbCode);
+        if (!Files.exists(directory)) {
+            log.warn("[VectorStoreManager] {} 个文本块没有向量且量化索引不存在，需要重新入库: kbCode={}", missing.size(), kbCode);
+            return;
+        }
+        try (QuantizedVectorIndex index = QuantizedVectorIndex.open(directory, true)) {
+            List<Document> documents = new ArrayList<>();
+            List<float[]> embeddings = new ArrayList<>();
+            for (SimpleVectorStoreContent content : missing) {
+                float[] embedding = index.vector(content.getId());
+                if (embedding != null) {
+                    documents.add(Document.builder()
+                            .id(content.getId())
+                            .text(content.getText())
+                            .metadata(content.getMetadata())
+                            .build());
+                    embeddings.add(embedding);
+                }
+            }
+            if (documents.isEmpty()) {
+                log.warn("[VectorStoreManager] 量化索引中没有对应向量，需要重新入库: kbCode={}, missing={}", kbCode, missing.size());
+                return;
+            }
+            storeEmbeddingModel.writeWith(documents, embeddings, () -> vectorStore.add(documents));
+            log.info("[VectorStoreManager] 从量化索引恢复全精度向量: kbCode={}, restored={}, missing={}",
+                    kbCode, documents.size(), missing.size() - documents.size());
+        } catch (Exception e) {
+            log.warn("[VectorStoreManager] 从量化索引恢复向量失败: kbCode={}, error={}", kbCode, e.getMessage());
+        }
+    }
+
     /**
      * 创建 Milvus VectorStore
      *
-     * 基于 spring-ai-milvus-store，自动初始化 collection/schema/index（initializeSchema=true）。
+     * per-kb：每个知识库一个 Collection；shared：共用一个 Collection，知识库对应 Partition。
+     * Collection / Partition 不存在时自动创建（字段与 Spring AI MilvusVectorStore 相同，已有 Collection 可直接使用）。
      */
     private VectorStore createMilvusVectorStore(String kbCode) {
         RagProperties.VectorStoreConfig cfg = ragProperties.getVectorStore();
-        String collectionName = buildMilvusCollectionName(kbCode);
-
-        MilvusServiceClient client = getOrCreateMilvusClient();
-
+        MilvusGateway gateway = getOrCreateMilvusGateway();
         IndexType indexType = parseMilvusIndexType(cfg.getMilvusIndexType());
         MetricType metricType = parseMilvusMetricType(cfg.getMilvusMetricType());
 
-        MilvusVectorStore.Builder builder = MilvusVectorStore.builder(client, embeddingModel)
-                .databaseName(cfg.getMilvusDatabase())
-                .collectionName(collectionName)
-                .indexType(indexType)
-                .metricType(metricType)
-                .indexParameters(defaultMilvusIndexParameters(indexType))
-                .initializeSchema(true);
+        boolean shared = isMilvusSharedCollection();
+        String collectionName = shared ? buildMilvusSharedCollectionName() : buildMilvusCollectionName(kbCode);
+        String partitionName = shared ? MilvusKnowledgeStore.partitionName(kbCode) : null;
+        milvusClientLock.lock();
+        try {
+            if (!gateway.hasCollection(collectionName)) {
+                int embeddingDimension = resolveEmbeddingDimension(kbCode);
+                if (embeddingDimension <= 0) {
+                    throw new IllegalStateException("[VectorStoreManager] 无法确定向量维度，不能创建 Milvus Collection: " + collectionName);
+                }
+                gateway.createCollection(collectionName, embeddingDimension, indexType.name(), metricType.name(),
+                        defaultMilvusIndexParameters(indexType));
+                log.info("[VectorStoreManager] 创建 Milvus Collection: {}, indexType={}, metricType={}, dimension={}",
+                        collectionName, indexType, metricType, embeddingDimension);
+            }
+            if (partitionName != null && !gateway.hasPartition(collectionName, partitionName)) {
+                gateway.createPartition(collectionName, partitionName);
+                log.info("[VectorStoreManager] 创建 Milvus Partition: {}/{}", collectionName, partitionName);
+            }
+        } finally {
+            milvusClientLock.unlock();
+        }
+
+        return new MilvusKnowledgeStore(gateway, collectionName, partitionName, shared && "_global".equals(kbCode),
+                kbCode, storeEmbeddingModel, objectMapper, buildMilvusSettings(kbCode, indexType, metricType));
+    }
 
-        int embeddingDimension = resolveEmbeddingDimension(kbCode);
-        if (embeddingDimension > 0) {
-            builder.embeddingDimension(embeddingDimension);
+    /**
+     * Milvus 写入与检索参数（知识库 metadata.milvusSearchParams / milvusConsistencyLevel 优先于全局配置）
+     */
+    private MilvusKnowledgeStore.Settings buildMilvusSettings(String kbCode, IndexType indexType, MetricType metricType) {
+        RagProperties.VectorStoreConfig cfg = ragProperties.getVectorStore();
+        Map<String, Object> kbMetadata = null;
+        if (!"_global".equals(kbCode)) {
+            try {
+                KnowledgeBase kb = knowledgeBaseService.getByKbCode(kbCode);
+                kbMetadata = kb != null ? kb.getMetadata() : null;
+            } catch (Exception e) {
+                log.debug("[VectorStoreManager] 获取知识库 metadata 失败，使用全局 Milvus 参数: {}", e.getMessage());
+            }
         }
 
-        MilvusVectorStore store = builder.build();
+        String searchParams = StringUtils.hasText(cfg.getMilvusSearchParams())
+                ? cfg.getMilvusSearchParams()
+                : defaultMilvusSearchParams(indexType);
+        String consistencyLevel = cfg.getMilvusConsistencyLevel();
+        if (kbMetadata != null) {
+            Object kbSearchParams = kbMetadata.get("milvusSearchParams");
+            if (kbSearchParams instanceof Map<?, ?> map) {
+                try {
+                    searchParams = objectMapper.writeValueAsString(map);
+                } catch (Exception e) {
+                    log.warn("[VectorStoreManager] 知识库 milvusSearchParams 序列化失败: kbCode={}", kbCode);
+                }
+            } else if (kbSearchParams instanceof String text && StringUtils.hasText(text)) {
+                searchParams = text;
+            }
+            Object kbConsistencyLevel = kbMetadata.get("milvusConsistencyLevel");
+            if (kbConsistencyLevel != null) {
+                consistencyLevel = String.valueOf(kbConsistencyLevel);
+            }
+        }
+
+        return new MilvusKnowledgeStore.Settings(
+                metricType.name(),
+                cfg.getMilvusInsertBatchSize() != null ? cfg.getMilvusInsertBatchSize() : 1000,
+                Boolean.TRUE.equals(cfg.getMilvusFlushOnWrite()),
+                MilvusKnowledgeStore.normalizeConsistencyLevel(consistencyLevel),
+                searchParams);
+    }
+
+    private MilvusGateway getOrCreateMilvusGateway() {
+        MilvusGateway gateway = milvusGateway;
+        if (gateway != null) {
+            return gateway;
+        }
+        milvusClientLock.lock();
         try {
-            // 该对象不是 Spring Bean，不会自动触发 afterPropertiesSet
-            store.afterPropertiesSet();
-        } catch (Exception e) {
-            throw new IllegalStateException("[VectorStoreManager] 初始化 Milvus Collection 失败: " + collectionName, e);
+            if (milvusGateway == null) {
+                milvusGateway = new MilvusClientGateway(getOrCreateMilvusClient(), ragProperties.getVectorStore().getMilvusDatabase());
+            }
+            return milvusGateway;
+        } finally {
+            milvusClientLock.unlock();
         }
-        return store;
     }
 
     private MilvusServiceClient getOrCreateMilvusClient() {
@@ -574,7 +1103,8 @@ public class VectorStoreManager {
         if (client != null) {
             return client;
         }
-        synchronized (milvusClientLock) {
+        milvusClientLock.lock();
+        try {
             client = milvusClient;
             if (client != null) {
                 return client;
@@ -592,6 +1122,8 @@ public class VectorStoreManager {
 
             milvusClient = new MilvusServiceClient(builder.build());
             return milvusClient;
+        } finally {
+            milvusClientLock.unlock();
         }
     }
 
@@ -645,6 +1177,17 @@ public class VectorStoreManager {
         };
     }
 
+    private String defaultMilvusSearchParams(IndexType indexType) {
+        if (indexType == null) {
+            return "{\"nprobe\":16}";
+        }
+        return switch (indexType) {
+            case HNSW, HNSW_SQ, HNSW_PQ, HNSW_PRQ -> "{\"ef\":64}";
+            case IVF_FLAT, IVF_SQ8, IVF_PQ, GPU_IVF_FLAT, GPU_IVF_PQ, BIN_IVF_FLAT -> "{\"nprobe\":16}";
+            default -> "{}";
+        };
+    }
+
     private int resolveEmbeddingDimension(String kbCode) {
         if (kbCode != null && !kbCode.isBlank() && !"_global".equals(kbCode)) {
             try {
@@ -3,6 +3,9 @@ package com.llmmanager.agent.rag.config;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * RAG 配置属性
  *
@@ -43,6 +46,31 @@ public class RagProperties {
      */
     private SplitterConfig splitter = new SplitterConfig();
 
+    /**
+     * 文档入库流水线配置
+     */
+    private IngestionConfig ingestion = new IngestionConfig();
+
+    /**
+     * 文档读取配置（PDF / DOCX / HTML / URL）
+     */
+    private ReaderConfig reader = new ReaderConfig();
+
+    /**
+     * 混合检索配置（BM25 关键词 + 向量）
+     */
+    private HybridConfig hybrid = new HybridConfig();
+
+    /**
+     * 检索后重排序配置
+     */
+    private RerankConfig rerank = new RerankConfig();
+
+    /**
+     * 向量量化配置（int8 / PQ）
+     */
+    private QuantizationConfig quantization = new QuantizationConfig();
+
     /**
      * Embedding 模型配置
      */
@@ -121,6 +149,14 @@ public class RagProperties {
          */
         private String tidbTableName = "a_knowledge_vectors";
 
+        /**
+         * 所有知识库共用的常用过滤 metadata key（Key: metadata key，Value: STRING | NUMBER）
+         *
+         * 每个 key 在向量表上创建虚拟生成列和 (kb_code, 生成列) 索引，过滤条件可走索引下推；
+         * 单个知识库可在 metadata.filterColumns 中追加声明。
+         */
+        private Map<String, String> tidbFilterColumns = new HashMap<>();
+
         // ============ Milvus 配置 ============
 
         /**
@@ -167,6 +203,41 @@ public class RagProperties {
          * 支持：L2, IP (Inner Product), COSINE
          */
         private String milvusMetricType = "COSINE";
+
+        /**
+         * Milvus: Collection 组织方式
+         * per-kb：每个知识库一个 Collection（collectionPrefix + kbCode）
+         * shared：所有知识库共用一个 Collection（collectionPrefix + "shared"），每个知识库一个 Partition，
+         *         多知识库检索合并为一次带 partition_names 的 search 请求（单个 Collection 的 Partition 数有上限，默认 1024）
+         * 默认：per-kb
+         */
+        private String milvusCollectionMode = "per-kb";
+
+        /**
+         * Milvus: 每次 insert 请求写入的记录数（同时是每次 Embedding 请求的文本数）
+         * 默认：1000
+         */
+        private Integer milvusInsertBatchSize = 1000;
+
+        /**
+         * Milvus: 写入后是否同步 flush
+         * 开启后写入立即封存为 segment，代价是小 segment 增多；大批量入库建议关闭，由 Milvus 自动封存
+         * 默认：false
+         */
+        private Boolean milvusFlushOnWrite = false;
+
+        /**
+         * Milvus: 检索一致性级别
+         * 支持：STRONG, SESSION, BOUNDED, EVENTUALLY
+         * 默认：BOUNDED
+         */
+        private String milvusConsistencyLevel = "BOUNDED";
+
+        /**
+         * Milvus: 检索参数 JSON，如 {"ef":128}（HNSW）/ {"nprobe":32}（IVF_*）
+         * 为空时按索引类型取默认值；单个知识库可在 metadata.milvusSearchParams 覆盖
+         */
+        private String milvusSearchParams;
     }
 
     /**
@@ -193,4 +264,410 @@ public class RagProperties {
          */
         private Integer minChunkSize = 100;
     }
+
+    /**
+     * 文档入库流水线配置（解析 → 分割 → Embedding → 写入）
+     */
+    @Data
+    public static class IngestionConfig {
+        /**
+         * 解析/分割阶段并发数（同时处理的文档数）
+         * 默认：4
+         */
+        private Integer parseParallelism = 4;
+
+        /**
+         * Embedding 阶段并发数（同时在途的 Embedding 请求数）
+         * 默认：4
+         */
+        private Integer embedParallelism = 4;
+
+        /**
+         * 写入阶段并发数（同时在途的向量库写入批次数）
+         * 默认：2
+         */
+        private Integer writeParallelism = 2;
+
+        /**
+         * 阶段之间的队列容量（超过后上游阶段暂停，形成背压）
+         * 默认：64
+         */
+        private Integer queueCapacity = 64;
+
+        /**
+         * 单个 Embedding 批次的最大 token 数（需小于 Embedding 模型单次请求上限）
+         * 默认：8000（OpenAI text-embedding-3 系列上限 8191）
+         */
+        private Integer maxBatchTokens = 8000;
+
+        /**
+         * 单个 Embedding 批次的最大文本块数
+         * 默认：256
+         */
+        private Integer maxBatchSize = 256;
+
+        /**
+         * 每个批次的最大重试次数（Embedding 和写入分别计算）
+         * 默认：3
+         */
+        private Integer maxRetries = 3;
+
+        /**
+         * 重试初始退避（毫秒），按指数增长
+         * 默认：1000
+         */
+        private Long retryBackoffMs = 1000L;
+
+        /**
+         * 后台入库 Worker 配置
+         */
+        private IngestionWorkerConfig worker = new IngestionWorkerConfig();
+    }
+
+    /**
+     * 后台入库 Worker 配置
+     *
+     * 文档上传后写入 a_document_jobs 任务表，各节点的 Worker 按优先级认领执行。
+     * 认领时写入租约并定期心跳续约，节点宕机后租约过期，任务由其它节点重新认领；
+     * 失败按指数退避重试，执行次数耗尽后进入死信（DEAD）。
+     */
+    @Data
+    public static class IngestionWorkerConfig {
+        /**
+         * 是否启用后台 Worker（启用后上传接口只入队并立即返回任务 Code）
+         * 默认：false
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 本节点同时执行的任务数
+         * 默认：2
+         */
+        private Integer concurrency = 2;
+
+        /**
+         * 轮询任务表的间隔（毫秒）
+         * 默认：2000
+         */
+        private Long pollIntervalMs = 2000L;
+
+        /**
+         * 租约时长（毫秒），超过未续约的任务可被其它节点重新认领
+         * 默认：60000
+         */
+        private Long leaseMs = 60000L;
+
+        /**
+         * 心跳续约间隔（毫秒），需明显小于 leaseMs
+         * 默认：15000
+         */
+        private Long heartbeatIntervalMs = 15000L;
+
+        /**
+         * 单个任务的最大执行次数（含首次），耗尽后进入死信
+         * 默认：3
+         */
+        private Integer maxAttempts = 3;
+
+        /**
+         * 失败重试的初始退避（毫秒），按指数增长
+         * 默认：30000
+         */
+        private Long retryBackoffMs = 30000L;
+
+        /**
+         * 失败重试的最大退避（毫秒）
+         * 默认：600000
+         */
+        private Long maxRetryBackoffMs = 600000L;
+
+        /**
+         * 默认优先级（知识库 metadata.ingestionPriority 可覆盖，越大越先执行）
+         * 默认：0
+         */
+        private Integer defaultPriority = 0;
+
+        /**
+         * 节点标识（为空时使用 主机名:进程号）
+         */
+        private String nodeId;
+    }
+
+    /**
+     * 文档读取配置
+     *
+     * 文件按页/章节流式读取，每读到一段即交给分割器，不会把整个文件载入内存。
+     */
+    @Data
+    public static class ReaderConfig {
+        /**
+         * 上传文件的存储目录
+         * 默认：./data/uploads
+         */
+        private String uploadPath = "./data/uploads";
+
+        /**
+         * 单个章节的最大字符数（无标题的长文本按此长度切段，限制单段内存占用）
+         * 默认：20000
+         */
+        private Integer maxSectionChars = 20000;
+
+        /**
+         * URL 下载的最大字节数（超过后中止下载）
+         * 默认：104857600（100MB）
+         */
+        private Long maxDownloadBytes = 104857600L;
+
+        /**
+         * HTML 文件的最大字节数（HTML 需要整体解析为 DOM）
+         * 默认：20971520（20MB）
+         */
+        private Long maxHtmlBytes = 20971520L;
+
+        /**
+         * URL 连接超时（毫秒）
+         * 默认：10000
+         */
+        private Long connectTimeoutMs = 10000L;
+
+        /**
+         * URL 下载超时（毫秒）
+         * 默认：60000
+         */
+        private Long readTimeoutMs = 60000L;
+
+        /**
+         * URL 请求的 User-Agent
+         */
+        private String userAgent = "llm-manager-rag/1.0";
+
+        /**
+         * 是否允许从内网 / 本机地址导入 URL（每次重定向都会重新校验）
+         * 默认：false（SSRF 防护）
+         */
+        private Boolean allowPrivateNetwork = false;
+    }
+
+    /**
+     * 混合检索配置
+     *
+     * 每个知识库在本地磁盘维护一份 BM25 倒排索引（随向量写入/删除同步），
+     * 检索时与向量结果按加权倒数排名融合（RRF），弥补向量检索对编号、错误码、SKU 等精确词的遗漏。
+     */
+    @Data
+    public static class HybridConfig {
+        /**
+         * 是否启用混合检索（关闭时不维护倒排索引）
+         * 默认：false
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 倒排索引存储目录（每个知识库一个子目录）
+         * 默认：./data/lexical-index
+         */
+        private String indexPath = "./data/lexical-index";
+
+        /**
+         * 关键词结果在融合中的权重（0~1，向量结果权重为 1 - lexicalWeight）
+         * 默认：0.5
+         */
+        private Double lexicalWeight = 0.5;
+
+        /**
+         * RRF 常数 k：score = weight / (k + rank)，越大排名靠后的结果影响越大
+         * 默认：60
+         */
+        private Integer rrfK = 60;
+
+        /**
+         * 候选倍数：向量和关键词各取 topK * candidateMultiplier 个候选参与融合
+         * 默认：3
+         */
+        private Integer candidateMultiplier = 3;
+
+        /**
+         * BM25 参数 k1（词频饱和度）
+         * 默认：1.2
+         */
+        private Double bm25K1 = 1.2;
+
+        /**
+         * BM25 参数 b（文档长度归一化）
+         * 默认：0.75
+         */
+        private Double bm25B = 0.75;
+
+        /**
+         * 快照定时落盘间隔（毫秒），只写有变更的索引
+         * 默认：5000
+         */
+        private Long flushIntervalMs = 5000L;
+
+        /**
+         * 未落盘的写入/删除文本块数达到该值时立即写快照
+         * 默认：1000
+         */
+        private Integer flushThreshold = 1000;
+    }
+
+    /**
+     * 检索后重排序配置
+     *
+     * 检索阶段先取 candidatePool 个候选，由本地打分器（词重叠 / ONNX 交叉编码器）重新打分，
+     * 可选 MMR 去冗余，最终只把 finalK 个文本块放入 Prompt。超出延迟预算时退回检索顺序。
+     */
+    @Data
+    public static class RerankConfig {
+        /**
+         * 是否启用重排序
+         * 默认：false
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 打分器：lexical（词重叠，零依赖）| onnx（本地交叉编码器，需配置模型路径）
+         * 默认：lexical
+         */
+        private String scorer = "lexical";
+
+        /**
+         * 候选池大小：检索阶段取回的候选数量（不小于最终数量）
+         * 默认：20
+         */
+        private Integer candidatePool = 20;
+
+        /**
+         * 最终放入 Prompt 的文本块数量（null 使用请求的 topK）
+         */
+        private Integer finalK;
+
+        /**
+         * 丢弃归一化相关性低于该值的候选（0 不过滤）
+         * 默认：0.0
+         */
+        private Double minScore = 0.0;
+
+        /**
+         * 重排序阶段的延迟预算（毫秒），超时则退回检索顺序并截取 finalK
+         * 默认：200
+         */
+        private Long latencyBudgetMs = 200L;
+
+        /**
+         * 同时打分的请求数上限（专用线程池大小），已满时新请求直接退回检索顺序
+         * 默认：4
+         */
+        private Integer maxConcurrency = 4;
+
+        /**
+         * 原检索分数在最终相关性中的权重（0~1，打分器分数权重为 1 - retrievalWeight）
+         * 默认：0.3
+         */
+        private Double retrievalWeight = 0.3;
+
+        /**
+         * 是否启用 MMR（最大边际相关性）去冗余
+         * 默认：false
+         */
+        private Boolean mmrEnabled = false;
+
+        /**
+         * MMR 相关性与多样性的权衡（1 = 只看相关性，0 = 只看多样性）
+         * 默认：0.7
+         */
+        private Double mmrLambda = 0.7;
+
+        /**
+         * ONNX 交叉编码器模型文件（如 bge-reranker-base / ms-marco-MiniLM 导出的 model.onnx）
+         */
+        private String onnxModelPath;
+
+        /**
+         * ONNX 模型对应的 tokenizer.json
+         */
+        private String onnxTokenizerPath;
+
+        /**
+         * 查询 + 文本块的最大 token 数（超出截断）
+         * 默认：512
+         */
+        private Integer onnxMaxLength = 512;
+
+        /**
+         * 单次推理的候选数量
+         * 默认：16
+         */
+        private Integer onnxBatchSize = 16;
+
+        /**
+         * 推理线程数（CPU）
+         * 默认：2
+         */
+        private Integer onnxThreads = 2;
+    }
+
+    /**
+     * 向量量化配置
+     *
+     * 内存中只保留量化字节码做第一阶段召回，再用全精度向量对 topK * rescoreMultiplier 个候选精确重排：
+     * - simple：全精度向量写入 indexPath 下的磁盘文件，JVM 堆中不再保存 float[]
+     * - tidb：本节点维护字节码索引（按 update_time 增量同步），无过滤条件的检索只对候选计算 VEC_COSINE_DISTANCE
+     */
+    @Data
+    public static class QuantizationConfig {
+        /**
+         * 是否启用量化
+         * 默认：false
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 量化模式：int8（每维 1 字节，召回率高）| pq（乘积量化，每个子空间 1 字节，内存最小）
+         * 默认：int8
+         */
+        private String mode = "int8";
+
+        /**
+         * PQ 子空间数量（每向量字节数），需不大于向量维度
+         * 默认：96
+         */
+        private Integer pqSubspaces = 96;
+
+        /**
+         * PQ k-means 迭代次数
+         * 默认：10
+         */
+        private Integer pqIterations = 10;
+
+        /**
+         * 训练码本的样本数量上限
+         * 默认：10000
+         */
+        private Integer trainingSampleSize = 10000;
+
+        /**
+         * 知识库向量数达到该值后才训练码本（之前使用全精度检索）
+         * 默认：1000
+         */
+        private Integer minTrainingSize = 1000;
+
+        /**
+         * 精确重排的候选倍数（候选数 = topK * rescoreMultiplier）
+         * 默认：4
+         */
+        private Integer rescoreMultiplier = 4;
+
+        /**
+         * 量化索引目录（每个知识库一个子目录）
+         * 默认：./data/quantized
+         */
+        private String indexPath = "./data/quantized";
+
+        /**
+         * TiDB：从向量表增量同步字节码索引的最小间隔（毫秒）
+         * 默认：5000
+         */
+        private Long tidbSyncIntervalMs = 5000L;
+    }
 }
@@ -0,0 +1,489 @@
+package com.llmmanager.agent.rag.lexical;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 单个知识库的 BM25 倒排索引
+ *
+ * 磁盘文件（目录：{indexPath}/{kbCode}）：
+ * - store.bin：文本块内容和元数据（JSON），只追加，检索命中时按偏移量读取，不常驻内存
+ * - index.bin：文本块表 + 词典 + 压缩倒排表的快照，flush 时先写临时文件再原子替换
+ *
+ * 删除只打墓碑标记，删除数超过存活数一半时整体压缩（重排序号、重写 store.bin）。
+ * 倒排表的文档频率包含墓碑，检索使用单独维护的存活文档频率（删除时从 store.bin 读回文本重新分词扣减）。
+ * 读写通过读写锁隔离：检索并发执行，写入/删除/压缩独占。
+ */
+@Slf4j
+class Bm25Index implements Closeable {
+
+    private static final int MAGIC = 0x424D3235;
+    private static final int VERSION = 1;
+    private static final int COMPACT_MIN_DELETED = 1000;
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    /**
+     * 文本块表（下标即序号，已删除为 null）
+     */
+    private final List<ChunkEntry> chunks = new ArrayList<>();
+    private final Map<String, Integer> ordinalById = new HashMap<>();
+    private final Map<String, Set<Integer>> ordinalsByDocCode = new HashMap<>();
+    /**
+     * 存活文本块的文档频率（不含墓碑）
+     */
+    private final Map<String, Integer> liveDocFrequency = new HashMap<>();
+
+    private FileChannel store;
+    private long totalLength;
+    private int liveCount;
+    private boolean dirty;
+    /**
+     * 上次快照之后的写入/删除文本块数
+     */
+    private int pendingChanges;
+
+    private record ChunkEntry(String id, String docCode, int length, long offset, int recordLength) {
+    }
+
+    private Bm25Index(Path directory, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 打开（不存在时创建）索引
+     */
+    static Bm25Index open(Path directory, ObjectMapper objectMapper) throws IOException {
+        Files.createDirectories(directory);
+        Bm25Index index = new Bm25Index(directory, objectMapper);
+        index.store = FileChannel.open(directory.resolve("store.bin"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Path snapshot = directory.resolve("index.bin");
+        if (Files.exists(snapshot)) {
+            index.load(snapshot);
+        }
+        return index;
+    }
+
+    // ==================== 写入 / 删除 ====================
+
+    /**
+     * 添加文本块（相同 ID 已存在时替换）
+     */
+    void add(List<Document> documents) throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (Document document : documents) {
+                if (document.getText() == null) {
+                    continue;
+                }
+                Integer existing = ordinalById.get(document.getId());
+                if (existing != null) {
+                    markDeleted(existing);
+                }
+
+                List<String> tokens = LexicalTokenizer.tokenize(document.getText());
+                Map<String, Integer> termFrequencies = new HashMap<>();
+                tokens.forEach(token -> termFrequencies.merge(token, 1, Integer::sum));
+
+                byte[] record = objectMapper.writeValueAsBytes(Map.of(
+                        "text", document.getText(),
+                        "metadata", document.getMetadata()));
+                long offset = store.size();
+                store.write(ByteBuffer.wrap(record), offset);
+
+                int ordinal = chunks.size();
+                Object docCode = document.getMetadata().get("docCode");
+                ChunkEntry entry = new ChunkEntry(document.getId(), docCode != null ? String.valueOf(docCode) : null,
+                        tokens.size(), offset, record.length);
+                chunks.add(entry);
+                ordinalById.put(entry.id(), ordinal);
+                if (entry.docCode() != null) {
+                    ordinalsByDocCode.computeIfAbsent(entry.docCode(), k -> new HashSet<>()).add(ordinal);
+                }
+                termFrequencies.forEach((term, tf) -> {
+                    postings.computeIfAbsent(term, k -> new PostingList()).add(ordinal, tf);
+                    liveDocFrequency.merge(term, 1, Integer::sum);
+                });
+                totalLength += tokens.size();
+                liveCount++;
+                pendingChanges++;
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void deleteByDocCode(String docCode) throws IOException {
+        lock.writeLock().lock();
+        try {
+            Set<Integer> ordinals = ordinalsByDocCode.get(docCode);
+            if (ordinals != null) {
+                for (Integer ordinal : new ArrayList<>(ordinals)) {
+                    markDeleted(ordinal);
+                }
+                dirty = true;
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void deleteByIds(Collection<String> ids) throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (String id : ids) {
+                Integer ordinal = ordinalById.get(id);
+                if (ordinal != null) {
+                    markDeleted(ordinal);
+                    dirty = true;
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void markDeleted(int ordinal) throws IOException {
+        ChunkEntry entry = chunks.get(ordinal);
+        if (entry == null) {
+            return;
+        }
+        for (String term : new HashSet<>(LexicalTokenizer.tokenize(readText(entry)))) {
+            liveDocFrequency.computeIfPresent(term, (k, df) -> df > 1 ? df - 1 : null);
+        }
+        chunks.set(ordinal, null);
+        ordinalById.remove(entry.id());
+        if (entry.docCode() != null) {
+            Set<Integer> ordinals = ordinalsByDocCode.get(entry.docCode());
+            if (ordinals != null) {
+                ordinals.remove(ordinal);
+                if (ordinals.isEmpty()) {
+                    ordinalsByDocCode.remove(entry.docCode());
+                }
+            }
+        }
+        totalLength -= entry.length();
+        liveCount--;
+        pendingChanges++;
+    }
+
+    // ==================== 检索 ====================
+
+    /**
+     * BM25 检索
+     *
+     * @return 按得分降序的文本块（Document.score 为 BM25 得分）
+     */
+    List<Document> search(String query, int topK, double k1, double b) {
+        Set<String> terms = new LinkedHashSet<>(LexicalTokenizer.tokenize(query));
+        if (terms.isEmpty() || topK <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0) {
+                return List.of();
+            }
+            double averageLength = Math.max(1.0d, (double) totalLength / liveCount);
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                PostingList postingList = postings.get(term);
+                int df = liveDocFrequency.getOrDefault(term, 0);
+                if (postingList == null || df == 0) {
+                    continue;
+                }
+                double idf = Math.log(1.0d + (liveCount - df + 0.5d) / (df + 0.5d));
+                postingList.forEach((ordinal, tf) -> {
+                    ChunkEntry entry = chunks.get(ordinal);
+                    if (entry == null) {
+                        return;
+                    }
+                    double norm = tf + k1 * (1.0d - b + b * entry.length() / averageLength);
+                    scores.merge(ordinal, idf * tf * (k1 + 1.0d) / norm, Double::sum);
+                });
+            }
+
+            PriorityQueue<Map.Entry<Integer, Double>> top = new PriorityQueue<>(Map.Entry.comparingByValue());
+            for (Map.Entry<Integer, Double> score : scores.entrySet()) {
+                top.offer(score);
+                if (top.size() > topK) {
+                    top.poll();
+                }
+            }
+
+            List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(top);
+            ranked.sort(Map.Entry.<Integer, Double>comparingByValue(Comparator.reverseOrder()));
+            List<Document> results = new ArrayList<>(ranked.size());
+            for (Map.Entry<Integer, Double> hit : ranked) {
+                results.add(readDocument(chunks.get(hit.getKey()), hit.getValue()));
+            }
+            return results;
+        } catch (IOException e) {
+            throw new UncheckedIOException("[Bm25Index] 读取文本块失败: " + directory, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Document readDocument(ChunkEntry entry, double score) throws IOException {
+        Map<String, Object> record = readRecord(entry);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> metadata = record.get("metadata") instanceof Map<?, ?> map
+                ? new HashMap<>((Map<String, Object>) map) : new HashMap<>();
+        return Document.builder()
+                .id(entry.id())
+                .text(String.valueOf(record.get("text")))
+                .metadata(metadata)
+                .score(score)
+                .build();
+    }
+
+    private String readText(ChunkEntry entry) throws IOException {
+        return String.valueOf(readRecord(entry).get("text"));
+    }
+
+    private Map<String, Object> readRecord(ChunkEntry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(entry.recordLength());
+        long position = entry.offset();
+        while (buffer.hasRemaining()) {
+            int read = store.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("store.bin 数据不完整: offset=" + entry.offset());
+            }
+        }
+        return objectMapper.readValue(buffer.array(), MAP_TYPE);
+    }
+
+    // ==================== 持久化 ====================
+
+    /**
+     * 写入快照（无变更时跳过）
+     */
+    void flush() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!dirty) {
+                return;
+            }
+            store.force(false);
+            Path temp = directory.resolve("index.bin.tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(chunks.size());
+                for (ChunkEntry entry : chunks) {
+                    out.writeBoolean(entry != null);
+                    if (entry != null) {
+                        out.writeUTF(entry.id());
+                        out.writeUTF(entry.docCode() != null ? entry.docCode() : "");
+                        out.writeInt(entry.length());
+                        out.writeLong(entry.offset());
+                        out.writeInt(entry.recordLength());
+                    }
+                }
+                out.writeInt(postings.size());
+                for (Map.Entry<String, PostingList> posting : postings.entrySet()) {
+                    out.writeUTF(posting.getKey());
+                    posting.getValue().write(out);
+                }
+            }
+            Files.move(temp, directory.resolve("index.bin"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+            pendingChanges = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load(Path snapshot) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("不支持的索引文件格式: " + snapshot);
+            }
+            int chunkCount = in.readInt();
+            for (int ordinal = 0; ordinal < chunkCount; ordinal++) {
+                if (!in.readBoolean()) {
+                    chunks.add(null);
+                    continue;
+                }
+                String id = in.readUTF();
+                String docCode = in.readUTF();
+                ChunkEntry entry = new ChunkEntry(id, docCode.isEmpty() ? null : docCode,
+                        in.readInt(), in.readLong(), in.readInt());
+                chunks.add(entry);
+                ordinalById.put(id, ordinal);
+                if (entry.docCode() != null) {
+                    ordinalsByDocCode.computeIfAbsent(entry.docCode(), k -> new HashSet<>()).add(ordinal);
+                }
+                totalLength += entry.length();
+                liveCount++;
+            }
+            int termCount = in.readInt();
+            for (int i = 0; i < termCount; i++) {
+                postings.put(in.readUTF(), PostingList.read(in));
+            }
+        }
+        rebuildLiveDocFrequency();
+    }
+
+    /**
+     * 按倒排表重算存活文档频率（跳过墓碑）
+     */
+    private void rebuildLiveDocFrequency() {
+        liveDocFrequency.clear();
+        postings.forEach((term, postingList) -> {
+            int[] df = {0};
+            postingList.forEach((ordinal, tf) -> {
+                if (chunks.get(ordinal) != null) {
+                    df[0]++;
+                }
+            });
+            if (df[0] > 0) {
+                liveDocFrequency.put(term, df[0]);
+            }
+        });
+    }
+
+    /**
+     * 删除数超过存活数时压缩：重排序号、丢弃已删除的倒排记录、重写 store.bin
+     */
+    private void compactIfNeeded() throws IOException {
+        int deleted = chunks.size() - liveCount;
+        if (deleted < COMPACT_MIN_DELETED || deleted < liveCount) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        int[] remap = new int[chunks.size()];
+        List<ChunkEntry> compacted = new ArrayList<>(liveCount);
+        Path newStorePath = directory.resolve("store.bin.compact");
+        try (FileChannel newStore = FileChannel.open(newStorePath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long offset = 0;
+            for (int ordinal = 0; ordinal < chunks.size(); ordinal++) {
+                ChunkEntry entry = chunks.get(ordinal);
+                if (entry == null) {
+                    remap[ordinal] = -1;
+                    continue;
+                }
+                long transferred = 0;
+                while (transferred < entry.recordLength()) {
+                    transferred += store.transferTo(entry.offset() + transferred, entry.recordLength() - transferred, newStore);
+                }
+                remap[ordinal] = compacted.size();
+                compacted.add(new ChunkEntry(entry.id(), entry.docCode(), entry.length(), offset, entry.recordLength()));
+                offset += entry.recordLength();
+            }
+            newStore.force(false);
+        }
+
+        Map<String, PostingList> newPostings = new HashMap<>();
+        postings.forEach((term, postingList) -> postingList.forEach((ordinal, tf) -> {
+            if (remap[ordinal] >= 0) {
+                newPostings.computeIfAbsent(term, k -> new PostingList()).add(remap[ordinal], tf);
+            }
+        }));
+
+        store.close();
+        Files.move(newStorePath, directory.resolve("store.bin"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        store = FileChannel.open(directory.resolve("store.bin"), StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        chunks.clear();
+        chunks.addAll(compacted);
+        postings.clear();
+        postings.putAll(newPostings);
+        liveDocFrequency.clear();
+        newPostings.forEach((term, postingList) -> liveDocFrequency.put(term, postingList.docFrequency()));
+        ordinalById.clear();
+        ordinalsByDocCode.clear();
+        for (int ordinal = 0; ordinal < chunks.size(); ordinal++) {
+            ChunkEntry entry = chunks.get(ordinal);
+            ordinalById.put(entry.id(), ordinal);
+            if (entry.docCode() != null) {
+                ordinalsByDocCode.computeIfAbsent(entry.docCode(), k -> new HashSet<>()).add(ordinal);
+            }
+        }
+        dirty = true;
+        flush();
+        log.info("[Bm25Index] 压缩完成: dir={}, chunks={}, terms={}, 耗时={}ms",
+                directory, liveCount, postings.size(), System.currentTimeMillis() - startTime);
+    }
+
+    // ==================== 统计 / 关闭 ====================
+
+    /**
+     * 上次快照之后的写入/删除文本块数
+     */
+    int pendingChanges() {
+        lock.readLock().lock();
+        try {
+            return pendingChanges;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            long postingBytes = postings.values().stream().mapToLong(PostingList::byteSize).sum();
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("chunks", liveCount);
+            stats.put("deletedChunks", chunks.size() - liveCount);
+            stats.put("terms", postings.size());
+            stats.put("postingBytes", postingBytes);
+            stats.put("averageChunkTokens", liveCount > 0 ? (double) totalLength / liveCount : 0.0d);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            store.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
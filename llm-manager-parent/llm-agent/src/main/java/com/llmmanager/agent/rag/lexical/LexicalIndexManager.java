@@ -0,0 +1,225 @@
+package com.llmmanager.agent.rag.lexical;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmmanager.agent.rag.config.RagProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 知识库关键词索引管理
+ *
+ * 每个知识库一份 BM25 倒排索引（按需从磁盘加载），由 VectorStoreManager 在写入/删除向量时同步维护。
+ * llm.rag.hybrid.enabled=false 时所有操作为空操作。
+ *
+ * 写入/删除只更新内存并追加 store.bin，快照在 flush 时落盘：入库批次结束、定时（flushIntervalMs，仅有变更的索引）、
+ * 未落盘变更数达到 flushThreshold 时、应用关闭时。删除不再逐次重写 index.bin。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "llm.rag.enabled", havingValue = "true", matchIfMissing = false)
+public class LexicalIndexManager {
+
+    private static final Pattern SAFE_KB_CODE = Pattern.compile("^[0-9a-zA-Z_\\-]+$");
+
+    @Resource
+    private RagProperties ragProperties;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    private final Map<String, Bm25Index> indexes = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flushScheduler;
+
+    @PostConstruct
+    public void init() {
+        if (!isEnabled()) {
+            return;
+        }
+        long intervalMs = Math.max(100L, ragProperties.getHybrid().getFlushIntervalMs());
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "lexical-index-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushScheduler.scheduleWithFixedDelay(this::flushAll, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(ragProperties.getHybrid().getEnabled());
+    }
+
+    /**
+     * 索引文本块（相同 ID 替换）
+     */
+    public void index(String kbCode, List<Document> documents) {
+        if (!isEnabled() || documents == null || documents.isEmpty()) {
+            return;
+        }
+        try {
+            Bm25Index index = getIndex(kbCode);
+            index.add(documents);
+            flushIfThresholdReached(kbCode, index);
+        } catch (IOException e) {
+            throw new UncheckedIOException("[LexicalIndexManager] 写入关键词索引失败: " + kbCode, e);
+        }
+    }
+
+    /**
+     * 删除文档的全部文本块
+     */
+    public void deleteByDocCode(String kbCode, String docCode) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            Bm25Index index = getIndex(kbCode);
+            index.deleteByDocCode(docCode);
+            flushIfThresholdReached(kbCode, index);
+        } catch (IOException e) {
+            log.warn("[LexicalIndexManager] 删除关键词索引失败: kbCode={}, docCode={}, error={}", kbCode, docCode, e.getMessage());
+        }
+    }
+
+    /**
+     * 按文本块 ID 删除
+     */
+    public void deleteByIds(String kbCode, Collection<String> ids) {
+        if (!isEnabled() || ids == null || ids.isEmpty()) {
+            return;
+        }
+        try {
+            Bm25Index index = getIndex(kbCode);
+            index.deleteByIds(ids);
+            flushIfThresholdReached(kbCode, index);
+        } catch (IOException e) {
+            log.warn("[LexicalIndexManager] 删除关键词索引失败: kbCode={}, error={}", kbCode, e.getMessage());
+        }
+    }
+
+    /**
+     * 删除整个知识库的索引（含磁盘文件）
+     */
+    public void drop(String kbCode) {
+        Bm25Index index = indexes.remove(kbCode);
+        try {
+            if (index != null) {
+                index.close();
+            }
+            FileSystemUtils.deleteRecursively(indexDirectory(kbCode));
+        } catch (IOException e) {
+            log.warn("[LexicalIndexManager] 删除关键词索引目录失败: kbCode={}, error={}", kbCode, e.getMessage());
+        }
+    }
+
+    /**
+     * BM25 检索
+     */
+    public List<Document> search(String kbCode, String query, int topK) {
+        if (!isEnabled()) {
+            return List.of();
+        }
+        RagProperties.HybridConfig config = ragProperties.getHybrid();
+        return getIndex(kbCode).search(query, topK, config.getBm25K1(), config.getBm25B());
+    }
+
+    /**
+     * 落盘知识库索引
+     */
+    public void flush(String kbCode) {
+        Bm25Index index = indexes.get(kbCode);
+        if (index == null) {
+            return;
+        }
+        try {
+            index.flush();
+        } catch (IOException e) {
+            log.error("[LexicalIndexManager] 关键词索引落盘失败: kbCode={}", kbCode, e);
+        }
+    }
+
+    /**
+     * 落盘全部有变更的索引
+     */
+    public void flushAll() {
+        indexes.forEach((kbCode, index) -> {
+            try {
+                index.flush();
+            } catch (IOException e) {
+                log.error("[LexicalIndexManager] 关键词索引落盘失败: kbCode={}", kbCode, e);
+            }
+        });
+    }
+
+    /**
+     * 索引统计（文本块数、词数、倒排表字节数）
+     */
+    public Map<String, Object> getStats(String kbCode) {
+        Map<String, Object> stats = getIndex(kbCode).stats();
+        stats.put("kbCode", kbCode);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flushScheduler != null) {
+            flushScheduler.shutdownNow();
+        }
+        flushAll();
+        indexes.values().forEach(index -> {
+            try {
+                index.close();
+            } catch (IOException e) {
+                log.debug("[LexicalIndexManager] 关闭索引失败: {}", e.getMessage());
+            }
+        });
+        indexes.clear();
+    }
+
+    /**
+     * 未落盘变更数达到阈值时立即写快照，避免进程异常退出时丢失过多变更
+     */
+    private void flushIfThresholdReached(String kbCode, Bm25Index index) throws IOException {
+        if (index.pendingChanges() >= Math.max(1, ragProperties.getHybrid().getFlushThreshold())) {
+            log.debug("[LexicalIndexManager] 未落盘变更达到阈值，写入快照: kbCode={}", kbCode);
+            index.flush();
+        }
+    }
+
+    private Bm25Index getIndex(String kbCode) {
+        return indexes.computeIfAbsent(kbCode, code -> {
+            try {
+                Bm25Index index = Bm25Index.open(indexDirectory(code), objectMapper);
+                log.info("[LexicalIndexManager] 加载关键词索引: kbCode={}, stats={}", code, index.stats());
+                return index;
+            } catch (IOException e) {
+                throw new UncheckedIOException("[LexicalIndexManager] 打开关键词索引失败: " + code, e);
+            }
+        });
+    }
+
+    private Path indexDirectory(String kbCode) {
+        if (kbCode == null || !SAFE_KB_CODE.matcher(kbCode).matches()) {
+            throw new IllegalArgumentException("非法知识库 Code: " + kbCode);
+        }
+        return Path.of(ragProperties.getHybrid().getIndexPath(), kbCode);
+    }
+}
@@ -0,0 +1,105 @@
+package com.llmmanager.agent.rag.lexical;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 关键词分词器
+ *
+ * - 字母/数字连续串作为一个词（转小写），词内的 - _ . 视为连接符，
+ *   整体（如 err-1042、sku_a12.3）和拆分后的各部分都作为词，保证编号类查询能精确命中
+ * - 中日韩文字没有分隔符，按相邻两字（bigram）切分，单字串保留单字
+ */
+public final class LexicalTokenizer {
+
+    /**
+     * 超长词（如 base64、哈希值）截断，避免撑大词典
+     */
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    private LexicalTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        StringBuilder word = new StringBuilder();
+        StringBuilder cjk = new StringBuilder();
+        int length = text.length();
+        for (int i = 0; i < length; ) {
+            int codePoint = text.codePointAt(i);
+            int next = i + Character.charCount(codePoint);
+
+            if (isCjk(codePoint)) {
+                emitWord(word, tokens);
+                cjk.appendCodePoint(codePoint);
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                emitCjk(cjk, tokens);
+                word.appendCodePoint(codePoint);
+            } else if (isConnector(codePoint) && word.length() > 0 && next < length
+                    && Character.isLetterOrDigit(text.codePointAt(next)) && !isCjk(text.codePointAt(next))) {
+                // 连接符两侧都是字母/数字时保留在词内
+                word.appendCodePoint(codePoint);
+            } else {
+                emitWord(word, tokens);
+                emitCjk(cjk, tokens);
+            }
+            i = next;
+        }
+        emitWord(word, tokens);
+        emitCjk(cjk, tokens);
+        return tokens;
+    }
+
+    private static void emitWord(StringBuilder word, List<String> tokens) {
+        if (word.length() == 0) {
+            return;
+        }
+        String token = truncate(word.toString().toLowerCase(Locale.ROOT));
+        word.setLength(0);
+        tokens.add(token);
+
+        if (token.indexOf('-') >= 0 || token.indexOf('_') >= 0 || token.indexOf('.') >= 0) {
+            for (String part : token.split("[-_.]")) {
+                if (!part.isEmpty()) {
+                    tokens.add(part);
+                }
+            }
+        }
+    }
+
+    private static void emitCjk(StringBuilder cjk, List<String> tokens) {
+        if (cjk.length() == 0) {
+            return;
+        }
+        int[] codePoints = cjk.codePoints().toArray();
+        cjk.setLength(0);
+        if (codePoints.length == 1) {
+            tokens.add(new String(codePoints, 0, 1));
+            return;
+        }
+        for (int i = 0; i + 1 < codePoints.length; i++) {
+            tokens.add(new String(codePoints, i, 2));
+        }
+    }
+
+    private static String truncate(String token) {
+        return token.length() > MAX_TOKEN_LENGTH ? token.substring(0, MAX_TOKEN_LENGTH) : token;
+    }
+
+    private static boolean isConnector(int codePoint) {
+        return codePoint == '-' || codePoint == '_' || codePoint == '.';
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
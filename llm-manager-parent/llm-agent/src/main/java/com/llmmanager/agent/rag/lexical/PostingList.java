@@ -0,0 +1,114 @@
+package com.llmmanager.agent.rag.lexical;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 压缩倒排表
+ *
+ * 按文本块序号递增追加，每条记录为 varint(序号差值) + varint(词频)，
+ * 常见词的倒排表通常只占每条 2~3 字节。
+ */
+class PostingList {
+
+    private byte[] bytes;
+    private int size;
+    private int lastOrdinal = -1;
+    private int docFrequency;
+
+    PostingList() {
+        this.bytes = new byte[16];
+    }
+
+    private PostingList(byte[] bytes, int lastOrdinal, int docFrequency) {
+        this.bytes = bytes;
+        this.size = bytes.length;
+        this.lastOrdinal = lastOrdinal;
+        this.docFrequency = docFrequency;
+    }
+
+    /**
+     * 追加一条记录（序号必须大于已有记录）
+     */
+    void add(int ordinal, int termFrequency) {
+        if (ordinal <= lastOrdinal) {
+            throw new IllegalArgumentException("倒排表序号必须递增: " + ordinal + " <= " + lastOrdinal);
+        }
+        writeVarint(ordinal - lastOrdinal);
+        writeVarint(termFrequency);
+        lastOrdinal = ordinal;
+        docFrequency++;
+    }
+
+    int docFrequency() {
+        return docFrequency;
+    }
+
+    int byteSize() {
+        return size;
+    }
+
+    /**
+     * 遍历全部记录
+     */
+    void forEach(PostingConsumer consumer) {
+        int position = 0;
+        int ordinal = -1;
+        while (position < size) {
+            long delta = readVarint(position);
+            position = (int) (delta >>> 32);
+            long termFrequency = readVarint(position);
+            position = (int) (termFrequency >>> 32);
+            ordinal += (int) delta;
+            consumer.accept(ordinal, (int) termFrequency);
+        }
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(lastOrdinal);
+        out.writeInt(docFrequency);
+        out.writeInt(size);
+        out.write(bytes, 0, size);
+    }
+
+    static PostingList read(DataInputStream in) throws IOException {
+        int lastOrdinal = in.readInt();
+        int docFrequency = in.readInt();
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new PostingList(bytes, lastOrdinal, docFrequency);
+    }
+
+    private void writeVarint(int value) {
+        if (size + 5 > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + 5));
+        }
+        while ((value & ~0x7F) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    /**
+     * 读取 varint，返回值高 32 位为下一个读取位置，低 32 位为数值
+     */
+    private long readVarint(int position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return ((long) position << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    @FunctionalInterface
+    interface PostingConsumer {
+        void accept(int ordinal, int termFrequency);
+    }
+}
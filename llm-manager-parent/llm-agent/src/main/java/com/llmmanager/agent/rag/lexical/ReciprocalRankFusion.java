@@ -0,0 +1,68 @@
+package com.llmmanager.agent.rag.lexical;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 加权倒数排名融合（Reciprocal Rank Fusion）
+ *
+ * score(d) = (1 - lexicalWeight) / (k + rank_vector(d)) + lexicalWeight / (k + rank_lexical(d))，rank 从 1 开始。
+ * 只依赖排名，不需要把余弦相似度和 BM25 得分归一化到同一量纲。
+ *
+ * 融合后 Document.score 和 metadata.score 为 RRF 得分，原始得分保留在 metadata.vectorScore / lexicalScore。
+ */
+public final class ReciprocalRankFusion {
+
+    private ReciprocalRankFusion() {
+    }
+
+    public static List<Document> fuse(List<Document> vectorResults, List<Document> lexicalResults,
+                                      double lexicalWeight, int k, int topK) {
+        Map<String, Document> documents = new LinkedHashMap<>();
+        Map<String, Double> scores = new HashMap<>();
+        Map<String, Double> vectorScores = new HashMap<>();
+        Map<String, Double> lexicalScores = new HashMap<>();
+
+        accumulate(vectorResults, 1.0d - lexicalWeight, k, documents, scores, vectorScores);
+        accumulate(lexicalResults, lexicalWeight, k, documents, scores, lexicalScores);
+
+        List<String> ranked = new ArrayList<>(scores.keySet());
+        ranked.sort((a, b) -> Double.compare(scores.get(b), scores.get(a)));
+
+        List<Document> fused = new ArrayList<>(Math.min(topK, ranked.size()));
+        for (String id : ranked.subList(0, Math.min(topK, ranked.size()))) {
+            Document source = documents.get(id);
+            Map<String, Object> metadata = new HashMap<>(source.getMetadata());
+            double score = scores.get(id);
+            metadata.put("score", (float) score);
+            if (vectorScores.containsKey(id)) {
+                metadata.put("vectorScore", vectorScores.get(id).floatValue());
+            }
+            if (lexicalScores.containsKey(id)) {
+                metadata.put("lexicalScore", lexicalScores.get(id).floatValue());
+            }
+            fused.add(Document.builder().id(id).text(source.getText()).metadata(metadata).score(score).build());
+        }
+        return fused;
+    }
+
+    private static void accumulate(List<Document> results, double weight, int k, Map<String, Document> documents,
+                                   Map<String, Double> scores, Map<String, Double> rawScores) {
+        if (results == null || weight <= 0) {
+            return;
+        }
+        for (int i = 0; i < results.size(); i++) {
+            Document document = results.get(i);
+            documents.putIfAbsent(document.getId(), document);
+            scores.merge(document.getId(), weight / (k + i + 1), Double::sum);
+            if (document.getScore() != null) {
+                rawScores.putIfAbsent(document.getId(), document.getScore());
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.llmmanager.agent.rag.quantization;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * 乘积量化（Product Quantization）
+ *
+ * 向量按维度切成 m 个子空间，每个子空间用 k-means 训练 256 个中心，向量编码为 m 个中心编号（每个 1 字节）。
+ * 查询时先算出查询向量各子空间与 256 个中心的内积查找表（m × 256），候选打分只需 m 次查表相加（ADC）。
+ *
+ * 维度不能整除 m 时，前几个子空间各多分一维。
+ */
+final class ProductQuantizer implements VectorQuantizer {
+
+    static final String MODE = "pq";
+
+    private static final int CENTROIDS = 256;
+
+    /**
+     * 子空间边界：第 j 个子空间为 [bounds[j], bounds[j + 1])
+     */
+    private final int[] bounds;
+
+    /**
+     * 各子空间的中心（按中心编号展开：centroids[j][c * subDim + d]）
+     */
+    private final float[][] centroids;
+
+    private ProductQuantizer(int[] bounds, float[][] centroids) {
+        this.bounds = bounds;
+        this.centroids = centroids;
+    }
+
+    static ProductQuantizer train(List<float[]> samples, int subspaces, int iterations) {
+        int dimensions = samples.get(0).length;
+        int m = Math.max(1, Math.min(subspaces, dimensions));
+        int[] bounds = new int[m + 1];
+        for (int j = 0; j < m; j++) {
+            bounds[j + 1] = bounds[j] + dimensions / m + (j < dimensions % m ? 1 : 0);
+        }
+
+        float[][] centroids = new float[m][];
+        // 各子空间相互独立，并行训练
+        IntStream.range(0, m).parallel().forEach(j ->
+                centroids[j] = kMeans(samples, bounds[j], bounds[j + 1], iterations, new Random(42L + j)));
+        return new ProductQuantizer(bounds, centroids);
+    }
+
+    static ProductQuantizer read(DataInput in) throws IOException {
+        int m = in.readInt();
+        int[] bounds = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            bounds[j] = in.readInt();
+        }
+        float[][] centroids = new float[m][];
+        for (int j = 0; j < m; j++) {
+            centroids[j] = new float[in.readInt()];
+            for (int i = 0; i < centroids[j].length; i++) {
+                centroids[j][i] = in.readFloat();
+            }
+        }
+        return new ProductQuantizer(bounds, centroids);
+    }
+
+    /**
+     * 子空间 [from, to) 上的 k-means（L2），返回展开后的中心
+     */
+    private static float[] kMeans(List<float[]> samples, int from, int to, int iterations, Random random) {
+        int subDim = to - from;
+        int n = samples.size();
+        int k = Math.min(CENTROIDS, n);
+        float[] centers = new float[CENTROIDS * subDim];
+
+        // 随机选取互不相同的样本作为初始中心
+        int[] order = IntStream.range(0, n).toArray();
+        for (int c = 0; c < k; c++) {
+            int swap = c + random.nextInt(n - c);
+            int tmp = order[c];
+            order[c] = order[swap];
+            order[swap] = tmp;
+            System.arraycopy(samples.get(order[c]), from, centers, c * subDim, subDim);
+        }
+
+        int[] assignment = new int[n];
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            for (int s = 0; s < n; s++) {
+                assignment[s] = nearest(centers, k, subDim, samples.get(s), from);
+            }
+
+            float[] sums = new float[k * subDim];
+            int[] counts = new int[k];
+            for (int s = 0; s < n; s++) {
+                int c = assignment[s];
+                counts[c]++;
+                float[] sample = samples.get(s);
+                for (int d = 0; d < subDim; d++) {
+                    sums[c * subDim + d] += sample[from + d];
+                }
+            }
+            for (int c = 0; c < k; c++) {
+                if (counts[c] == 0) {
+                    // 空簇：重新选一个随机样本作为中心
+                    System.arraycopy(samples.get(random.nextInt(n)), from, centers, c * subDim, subDim);
+                    continue;
+                }
+                for (int d = 0; d < subDim; d++) {
+                    centers[c * subDim + d] = sums[c * subDim + d] / counts[c];
+                }
+            }
+        }
+
+        // 样本少于 256 个时，未使用的编号复制已有中心，避免编码时命中全零中心
+        for (int c = k; c < CENTROIDS; c++) {
+            System.arraycopy(centers, (c % k) * subDim, centers, c * subDim, subDim);
+        }
+        return centers;
+    }
+
+    private static int nearest(float[] centers, int k, int subDim, float[] vector, int from) {
+        int best = 0;
+        float bestDistance = Float.POSITIVE_INFINITY;
+        for (int c = 0; c < k; c++) {
+            float distance = 0;
+            int base = c * subDim;
+            for (int d = 0; d < subDim; d++) {
+                float diff = vector[from + d] - centers[base + d];
+                distance += diff * diff;
+            }
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public String mode() {
+        return MODE;
+    }
+
+    @Override
+    public int dimensions() {
+        return bounds[bounds.length - 1];
+    }
+
+    @Override
+    public int codeSize() {
+        return centroids.length;
+    }
+
+    @Override
+    public void encode(float[] vector, byte[] target, int offset) {
+        for (int j = 0; j < centroids.length; j++) {
+            int subDim = bounds[j + 1] - bounds[j];
+            target[offset + j] = (byte) nearest(centroids[j], CENTROIDS, subDim, vector, bounds[j]);
+        }
+    }
+
+    @Override
+    public CodeScorer scorer(float[] query) {
+        int m = centroids.length;
+        float[] table = new float[m * CENTROIDS];
+        for (int j = 0; j < m; j++) {
+            int from = bounds[j];
+            int subDim = bounds[j + 1] - from;
+            for (int c = 0; c < CENTROIDS; c++) {
+                float sum = 0;
+                int base = c * subDim;
+                for (int d = 0; d < subDim; d++) {
+                    sum += query[from + d] * centroids[j][base + d];
+                }
+                table[j * CENTROIDS + c] = sum;
+            }
+        }
+        return (codes, offset) -> {
+            float sum = 0;
+            for (int j = 0; j < m; j++) {
+                sum += table[j * CENTROIDS + (codes[offset + j] & 0xFF)];
+            }
+            return sum;
+        };
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeUTF(MODE);
+        out.writeInt(centroids.length);
+        for (int bound : bounds) {
+            out.writeInt(bound);
+        }
+        for (float[] subCentroids : centroids) {
+            out.writeInt(subCentroids.length);
+            for (float value : subCentroids) {
+                out.writeFloat(value);
+            }
+        }
+    }
+}
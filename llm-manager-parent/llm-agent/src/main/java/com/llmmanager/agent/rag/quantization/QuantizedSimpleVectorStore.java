@@ -0,0 +1,203 @@
+package com.llmmanager.agent.rag.quantization;
+
+import com.llmmanager.agent.rag.config.RagProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.SimpleVectorStoreContent;
+import org.springframework.ai.vectorstore.filter.converter.SimpleVectorStoreFilterExpressionConverter;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 量化存储的 SimpleVectorStore
+ *
+ * 文本和 metadata 仍由 SimpleVectorStore 保存（JSON 持久化文件中 embedding 为空数组），
+ * 向量写入 QuantizedVectorIndex：堆内只有量化字节码，全精度向量在磁盘文件中。
+ *
+ * 检索：
+ * - 码本已训练：字节码近似打分取 topK * rescoreMultiplier 个候选，读取候选的全精度向量精确重排
+ * - 码本未训练（向量数 < minTrainingSize）：全精度向量顺序扫描
+ *
+ * 向量数首次达到 minTrainingSize 时自动训练码本；数据分布明显变化后可通过管理接口重新训练。
+ */
+@Slf4j
+public class QuantizedSimpleVectorStore extends SimpleVectorStore implements QuantizedVectorStore {
+
+    private static final float[] NO_EMBEDDING = new float[0];
+
+    private final String kbCode;
+    private final QuantizedVectorIndex index;
+    private final RagProperties.QuantizationConfig config;
+    private final ExpressionParser expressionParser = new SpelExpressionParser();
+    private final SimpleVectorStoreFilterExpressionConverter filterExpressionConverter =
+            new SimpleVectorStoreFilterExpressionConverter();
+
+    public QuantizedSimpleVectorStore(SimpleVectorStoreBuilder builder, String kbCode, QuantizedVectorIndex index,
+                                      RagProperties.QuantizationConfig config) {
+        super(builder);
+        this.kbCode = kbCode;
+        this.index = Objects.requireNonNull(index, "index");
+        this.config = Objects.requireNonNull(config, "config");
+    }
+
+    @Override
+    public void doAdd(List<Document> documents) {
+        for (Document document : documents) {
+            float[] embedding = this.embeddingModel.embed(document);
+            index.put(document.getId(), embedding);
+            this.store.put(document.getId(), new SimpleVectorStoreContent(
+                    document.getId(), document.getText(), document.getMetadata(), NO_EMBEDDING));
+        }
+        trainIfNeeded();
+    }
+
+    @Override
+    public void doDelete(List<String> idList) {
+        super.doDelete(idList);
+        index.remove(idList);
+    }
+
+    @Override
+    public List<Document> doSimilaritySearch(SearchRequest request) {
+        float[] query = this.embeddingModel.embed(request.getQuery());
+        int topK = request.getTopK();
+        Predicate<String> filter = filterPredicate(request);
+
+        List<QuantizedVectorIndex.Candidate> candidates =
+                index.candidates(query, topK * Math.max(1, config.getRescoreMultiplier()), filter);
+        List<QuantizedVectorIndex.Candidate> ranked = candidates != null
+                ? index.rescore(query, candidates)
+                : index.exactSearch(query, topK, filter);
+
+        List<Document> documents = new ArrayList<>(Math.min(topK, ranked.size()));
+        for (QuantizedVectorIndex.Candidate candidate : ranked) {
+            if (documents.size() >= topK || candidate.score() < request.getSimilarityThreshold()) {
+                break;
+            }
+            SimpleVectorStoreContent content = this.store.get(candidate.id());
+            if (content != null) {
+                documents.add(content.toDocument((double) candidate.score()));
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * 加载 JSON 文件；文件中带全精度向量的记录（启用量化之前保存的）迁移到量化索引
+     */
+    @Override
+    public void load(File file) {
+        super.load(file);
+
+        int migrated = 0;
+        for (SimpleVectorStoreContent content : new ArrayList<>(this.store.values())) {
+            if (content.getEmbedding() != null && content.getEmbedding().length > 0) {
+                index.put(content.getId(), content.getEmbedding());
+                this.store.put(content.getId(), new SimpleVectorStoreContent(
+                        content.getId(), content.getText(), content.getMetadata(), NO_EMBEDDING));
+                migrated++;
+            }
+        }
+
+        Set<String> indexed = new HashSet<>(index.ids());
+        index.remove(indexed.stream().filter(id -> !this.store.containsKey(id)).toList());
+        long missing = this.store.keySet().stream().filter(id -> !indexed.contains(id)).count();
+        if (missing > 0) {
+            log.warn("[QuantizedSimpleVectorStore] {} 个文本块在量化索引中没有向量，需要重新入库: kbCode={}", missing, kbCode);
+        }
+        if (migrated > 0) {
+            log.info("[QuantizedSimpleVectorStore] 全精度向量迁移到量化索引: kbCode={}, count={}", kbCode, migrated);
+        }
+        trainIfNeeded();
+    }
+
+    @Override
+    public void save(File file) {
+        super.save(file);
+        try {
+            index.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("[QuantizedSimpleVectorStore] 持久化量化索引失败: " + kbCode, e);
+        }
+    }
+
+    /**
+     * 读取文本块的全精度向量（已归一化），不存在时返回 null
+     */
+    public float[] getEmbedding(String id) {
+        return index.vector(id);
+    }
+
+    @Override
+    public Map<String, Object> quantizationStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("kbCode", kbCode);
+        stats.put("store", "simple");
+        stats.putAll(index.stats());
+        return stats;
+    }
+
+    @Override
+    public synchronized Map<String, Object> retrainQuantizer() {
+        if (index.size() == 0) {
+            throw new IllegalStateException("知识库没有向量，无法训练码本: " + kbCode);
+        }
+        long startTime = System.currentTimeMillis();
+        index.train(config.getMode(), index.sample(config.getTrainingSampleSize()),
+                config.getPqSubspaces(), config.getPqIterations());
+        try {
+            index.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("[QuantizedSimpleVectorStore] 持久化量化索引失败: " + kbCode, e);
+        }
+        log.info("[QuantizedSimpleVectorStore] 训练码本完成: kbCode={}, mode={}, vectors={}, costMs={}",
+                kbCode, config.getMode(), index.size(), System.currentTimeMillis() - startTime);
+        return quantizationStats();
+    }
+
+    private void trainIfNeeded() {
+        if (!index.isTrained() && index.size() >= config.getMinTrainingSize()) {
+            synchronized (this) {
+                if (!index.isTrained()) {
+                    retrainQuantizer();
+                }
+            }
+        }
+    }
+
+    /**
+     * 过滤条件转为按 ID 判断的谓词（与 SimpleVectorStore 相同，用 SpEL 对 #metadata 求值）
+     */
+    private Predicate<String> filterPredicate(SearchRequest request) {
+        if (!request.hasFilterExpression()) {
+            return null;
+        }
+        Expression expression = expressionParser.parseExpression(
+                filterExpressionConverter.convertExpression(request.getFilterExpression()));
+        return id -> {
+            SimpleVectorStoreContent content = this.store.get(id);
+            if (content == null) {
+                return false;
+            }
+            StandardEvaluationContext context = new StandardEvaluationContext();
+            context.setVariable("metadata", content.getMetadata());
+            return Boolean.TRUE.equals(expression.getValue(context, Boolean.class));
+        };
+    }
+}
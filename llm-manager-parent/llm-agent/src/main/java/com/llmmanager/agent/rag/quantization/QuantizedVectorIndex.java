@@ -0,0 +1,576 @@
+package com.llmmanager.agent.rag.quantization;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * 单个知识库的量化向量索引
+ *
+ * 内存中只保留量化字节码（int8 / PQ），全精度向量按槽位顺序写在磁盘文件 vectors.f32 中（可选）：
+ * - 第一阶段：遍历字节码近似打分，取前 N 个候选
+ * - 第二阶段：只读取候选的全精度向量精确打分（或由调用方到数据库中精确重排）
+ *
+ * 文件：
+ * - index.bin：码本 + 槽位 ID + 字节码，flush 时写临时文件后原子替换
+ * - vectors.f32：全精度向量（已归一化），按槽位定长存放，删除后的槽位复用
+ *
+ * 码本未训练（向量数不足）时 candidates() 返回 null，调用方退回全精度检索。
+ * 所有向量先归一化，内积即余弦相似度。
+ */
+public final class QuantizedVectorIndex implements Closeable {
+
+    private static final String INDEX_FILE = "index.bin";
+    private static final String VECTORS_FILE = "vectors.f32";
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * 精确扫描时每次读取的槽位数
+     */
+    private static final int SCAN_BATCH_SLOTS = 1024;
+
+    /**
+     * 检索候选
+     *
+     * @param id    向量 ID
+     * @param score 相似度（近似或精确）
+     */
+    public record Candidate(String id, float score) {
+    }
+
+    private final Path directory;
+
+    /**
+     * 全精度向量文件，null 表示不保存全精度向量（由外部存储负责精确重排）
+     */
+    private final FileChannel vectorChannel;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int dimensions;
+    private VectorQuantizer quantizer;
+    private final Map<String, Integer> slots = new HashMap<>();
+    private String[] slotIds = new String[1024];
+    private byte[] codes = new byte[0];
+    private int slotCount;
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    /**
+     * 外部同步水位（如数据库 update_time），由调用方维护
+     */
+    private long watermark;
+
+    private boolean dirty;
+
+    private QuantizedVectorIndex(Path directory, FileChannel vectorChannel) {
+        this.directory = directory;
+        this.vectorChannel = vectorChannel;
+    }
+
+    /**
+     * 打开（不存在则创建）索引目录
+     *
+     * @param storeFullVectors 是否在本地保存全精度向量
+     */
+    public static QuantizedVectorIndex open(Path directory, boolean storeFullVectors) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel channel = storeFullVectors
+                ? FileChannel.open(directory.resolve(VECTORS_FILE),
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : null;
+        QuantizedVectorIndex index = new QuantizedVectorIndex(directory, channel);
+        Path indexFile = directory.resolve(INDEX_FILE);
+        if (Files.exists(indexFile)) {
+            index.load(indexFile);
+        }
+        return index;
+    }
+
+    /**
+     * 写入（或覆盖）向量
+     */
+    public void put(String id, float[] vector) {
+        float[] normalized = VectorQuantizer.normalize(vector);
+        lock.writeLock().lock();
+        try {
+            if (dimensions == 0) {
+                dimensions = normalized.length;
+            } else if (dimensions != normalized.length) {
+                throw new IllegalArgumentException("向量维度不一致: " + normalized.length + " != " + dimensions);
+            }
+            if (vectorChannel == null && quantizer == null) {
+                // 不保存全精度向量且码本未训练：没有可存的内容
+                return;
+            }
+
+            Integer slot = slots.get(id);
+            if (slot == null) {
+                slot = allocateSlot(id);
+            }
+            if (vectorChannel != null) {
+                writeVector(slot, normalized);
+            }
+            if (quantizer != null) {
+                quantizer.encode(normalized, codes, slot * quantizer.codeSize());
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除向量
+     */
+    public void remove(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            for (String id : ids) {
+                Integer slot = slots.remove(id);
+                if (slot != null) {
+                    slotIds[slot] = null;
+                    freeSlots.push(slot);
+                    dirty = true;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 清空索引（保留码本）
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            slots.clear();
+            Arrays.fill(slotIds, null);
+            slotCount = 0;
+            freeSlots.clear();
+            watermark = 0;
+            if (vectorChannel != null) {
+                vectorChannel.truncate(0);
+            }
+            dirty = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 第一阶段：按字节码近似打分取前 n 个候选
+     *
+     * @param filter 按 ID 过滤（null 不过滤）
+     * @return 按近似分数降序；码本未训练时返回 null
+     */
+    public List<Candidate> candidates(float[] query, int n, Predicate<String> filter) {
+        float[] normalized = VectorQuantizer.normalize(query);
+        lock.readLock().lock();
+        try {
+            if (quantizer == null) {
+                return null;
+            }
+            VectorQuantizer.CodeScorer scorer = quantizer.scorer(normalized);
+            int codeSize = quantizer.codeSize();
+            TopK topK = new TopK(n);
+            for (int slot = 0; slot < slotCount; slot++) {
+                String id = slotIds[slot];
+                if (id == null || filter != null && !filter.test(id)) {
+                    continue;
+                }
+                topK.offer(id, scorer.score(codes, slot * codeSize));
+            }
+            return topK.sorted();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 第二阶段：读取候选的全精度向量精确打分
+     *
+     * @return 按精确分数降序
+     */
+    public List<Candidate> rescore(float[] query, List<Candidate> candidates) {
+        requireFullVectors();
+        float[] normalized = VectorQuantizer.normalize(query);
+        lock.readLock().lock();
+        try {
+            List<Candidate> rescored = new ArrayList<>(candidates.size());
+            for (Candidate candidate : candidates) {
+                Integer slot = slots.get(candidate.id());
+                if (slot != null) {
+                    rescored.add(new Candidate(candidate.id(), VectorQuantizer.dot(normalized, readVector(slot))));
+                }
+            }
+            rescored.sort(Comparator.comparingDouble(Candidate::score).reversed());
+            return rescored;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 全精度扫描（码本未训练时使用）
+     */
+    public List<Candidate> exactSearch(float[] query, int n, Predicate<String> filter) {
+        requireFullVectors();
+        float[] normalized = VectorQuantizer.normalize(query);
+        lock.readLock().lock();
+        try {
+            TopK topK = new TopK(n);
+            if (dimensions == 0) {
+                return topK.sorted();
+            }
+            int vectorBytes = dimensions * Float.BYTES;
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BATCH_SLOTS * vectorBytes);
+            float[] vector = new float[dimensions];
+            for (int start = 0; start < slotCount; start += SCAN_BATCH_SLOTS) {
+                int count = Math.min(SCAN_BATCH_SLOTS, slotCount - start);
+                buffer.clear().limit(count * vectorBytes);
+                readFully(buffer, (long) start * vectorBytes);
+                buffer.flip();
+                for (int i = 0; i < count; i++) {
+                    buffer.asFloatBuffer().get(i * dimensions, vector);
+                    String id = slotIds[start + i];
+                    if (id != null && (filter == null || filter.test(id))) {
+                        topK.offer(id, VectorQuantizer.dot(normalized, vector));
+                    }
+                }
+            }
+            return topK.sorted();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 读取全精度向量（已归一化），不存在时返回 null
+     */
+    public float[] vector(String id) {
+        requireFullVectors();
+        lock.readLock().lock();
+        try {
+            Integer slot = slots.get(id);
+            return slot != null ? readVector(slot) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 均匀抽取至多 n 个全精度向量作为训练样本
+     */
+    public List<float[]> sample(int n) {
+        requireFullVectors();
+        lock.readLock().lock();
+        try {
+            List<Integer> live = new ArrayList<>(slots.values());
+            live.sort(Integer::compare);
+            List<float[]> samples = new ArrayList<>(Math.min(n, live.size()));
+            double step = Math.max(1.0d, (double) live.size() / n);
+            for (double i = 0; i < live.size() && samples.size() < n; i += step) {
+                samples.add(readVector(live.get((int) i)));
+            }
+            return samples;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 训练码本
+     *
+     * 保存全精度向量时立即用新码本重新编码所有向量；否则清空索引（调用方需重新写入全部向量）。
+     */
+    public void train(String mode, List<float[]> samples, int subspaces, int iterations) {
+        List<float[]> normalized = samples.stream().map(VectorQuantizer::normalize).toList();
+        VectorQuantizer trained = VectorQuantizer.train(mode, normalized, subspaces, iterations);
+        lock.writeLock().lock();
+        try {
+            quantizer = trained;
+            dimensions = trained.dimensions();
+            codes = new byte[slotIds.length * trained.codeSize()];
+            if (vectorChannel != null) {
+                for (int slot = 0; slot < slotCount; slot++) {
+                    if (slotIds[slot] != null) {
+                        trained.encode(readVector(slot), codes, slot * trained.codeSize());
+                    }
+                }
+            } else {
+                slots.clear();
+                Arrays.fill(slotIds, null);
+                slotCount = 0;
+                freeSlots.clear();
+                watermark = 0;
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isTrained() {
+        lock.readLock().lock();
+        try {
+            return quantizer != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 当前全部向量 ID
+     */
+    public List<String> ids() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(slots.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getWatermark() {
+        lock.readLock().lock();
+        try {
+            return watermark;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void setWatermark(long watermark) {
+        lock.writeLock().lock();
+        try {
+            this.watermark = watermark;
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 索引统计（向量数、量化模式、内存 / 磁盘占用）
+     */
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            int codeSize = quantizer != null ? quantizer.codeSize() : 0;
+            stats.put("vectors", slots.size());
+            stats.put("dimensions", dimensions);
+            stats.put("mode", quantizer != null ? quantizer.mode() : "untrained");
+            stats.put("codeBytesPerVector", codeSize);
+            stats.put("fullBytesPerVector", dimensions * Float.BYTES);
+            stats.put("codeMemoryBytes", (long) codeSize * slots.size());
+            stats.put("fullVectorDiskBytes", vectorChannel != null ? vectorChannel.size() : 0L);
+            return stats;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 持久化索引（无变更时跳过）
+     */
+    public void flush() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!dirty) {
+                return;
+            }
+            if (vectorChannel != null) {
+                vectorChannel.force(false);
+            }
+            Path temp = directory.resolve(INDEX_FILE + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(dimensions);
+                out.writeLong(watermark);
+                out.writeBoolean(quantizer != null);
+                if (quantizer != null) {
+                    quantizer.write(out);
+                }
+                int codeSize = quantizer != null ? quantizer.codeSize() : 0;
+                out.writeInt(slotCount);
+                for (int slot = 0; slot < slotCount; slot++) {
+                    String id = slotIds[slot];
+                    out.writeBoolean(id != null);
+                    if (id != null) {
+                        out.writeUTF(id);
+                        out.write(codes, slot * codeSize, codeSize);
+                    }
+                }
+            }
+            Files.move(temp, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (vectorChannel != null) {
+            vectorChannel.close();
+        }
+    }
+
+    private void load(Path indexFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("不支持的量化索引版本: " + version);
+            }
+            dimensions = in.readInt();
+            watermark = in.readLong();
+            if (in.readBoolean()) {
+                quantizer = VectorQuantizer.read(in);
+            }
+            int codeSize = quantizer != null ? quantizer.codeSize() : 0;
+            slotCount = in.readInt();
+            slotIds = new String[Math.max(1024, slotCount)];
+            codes = new byte[slotIds.length * codeSize];
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (in.readBoolean()) {
+                    String id = in.readUTF();
+                    slotIds[slot] = id;
+                    slots.put(id, slot);
+                    in.readFully(codes, slot * codeSize, codeSize);
+                } else {
+                    freeSlots.push(slot);
+                }
+            }
+        }
+    }
+
+    private int allocateSlot(String id) {
+        int slot;
+        if (!freeSlots.isEmpty()) {
+            slot = freeSlots.pop();
+        } else {
+            slot = slotCount++;
+            if (slot >= slotIds.length) {
+                int capacity = slotIds.length * 2;
+                slotIds = Arrays.copyOf(slotIds, capacity);
+                if (quantizer != null) {
+                    codes = Arrays.copyOf(codes, capacity * quantizer.codeSize());
+                }
+            }
+        }
+        slotIds[slot] = id;
+        slots.put(id, slot);
+        return slot;
+    }
+
+    private void writeVector(int slot, float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES);
+        buffer.asFloatBuffer().put(vector);
+        try {
+            long position = (long) slot * dimensions * Float.BYTES;
+            while (buffer.hasRemaining()) {
+                position += vectorChannel.write(buffer, position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入全精度向量失败", e);
+        }
+    }
+
+    private float[] readVector(int slot) {
+        ByteBuffer buffer = ByteBuffer.allocate(dimensions * Float.BYTES);
+        readFully(buffer, (long) slot * dimensions * Float.BYTES);
+        buffer.flip();
+        float[] vector = new float[dimensions];
+        buffer.asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) {
+        try {
+            while (buffer.hasRemaining()) {
+                int read = vectorChannel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("向量文件已截断: position=" + position);
+                }
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取全精度向量失败", e);
+        }
+    }
+
+    private void requireFullVectors() {
+        if (vectorChannel == null) {
+            throw new IllegalStateException("索引未保存全精度向量");
+        }
+    }
+
+    /**
+     * 固定容量的 Top-K（小顶堆）
+     */
+    private static final class TopK {
+
+        private final int capacity;
+        private final PriorityQueue<Candidate> heap;
+
+        TopK(int capacity) {
+            this.capacity = Math.max(1, capacity);
+            this.heap = new PriorityQueue<>(this.capacity, Comparator.comparingDouble(Candidate::score));
+        }
+
+        void offer(String id, float score) {
+            if (heap.size() < capacity) {
+                heap.add(new Candidate(id, score));
+            } else if (score > heap.peek().score()) {
+                heap.poll();
+                heap.add(new Candidate(id, score));
+            }
+        }
+
+        List<Candidate> sorted() {
+            List<Candidate> result = new ArrayList<>(heap);
+            result.sort(Comparator.comparingDouble(Candidate::score).reversed());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.llmmanager.agent.rag.quantization;
+
+import java.util.Map;
+
+/**
+ * 启用了向量量化的 VectorStore（用于管理接口查询统计、手动重新训练码本）
+ */
+public interface QuantizedVectorStore {
+
+    /**
+     * 量化索引统计（向量数、量化模式、每向量字节数、内存占用）
+     */
+    Map<String, Object> quantizationStats();
+
+    /**
+     * 用当前数据重新训练码本并重新编码
+     *
+     * @return 训练后的统计
+     */
+    Map<String, Object> retrainQuantizer();
+}
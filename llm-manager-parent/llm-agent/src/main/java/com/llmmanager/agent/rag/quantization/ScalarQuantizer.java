@@ -0,0 +1,108 @@
+package com.llmmanager.agent.rag.quantization;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * int8 标量量化
+ *
+ * 每一维按训练样本的 [min, max] 线性映射到 256 个等级：x ≈ min + (code + 128) × scale。
+ * 查询时内积展开为 Σ q·(min + 128·scale) + Σ (q·scale)·code，前一项与候选无关，只需预计算一次。
+ */
+final class ScalarQuantizer implements VectorQuantizer {
+
+    static final String MODE = "int8";
+
+    private final float[] min;
+    private final float[] scale;
+
+    private ScalarQuantizer(float[] min, float[] scale) {
+        this.min = min;
+        this.scale = scale;
+    }
+
+    static ScalarQuantizer train(List<float[]> samples) {
+        int dimensions = samples.get(0).length;
+        float[] min = new float[dimensions];
+        float[] max = new float[dimensions];
+        Arrays.fill(min, Float.POSITIVE_INFINITY);
+        Arrays.fill(max, Float.NEGATIVE_INFINITY);
+        for (float[] sample : samples) {
+            for (int i = 0; i < dimensions; i++) {
+                min[i] = Math.min(min[i], sample[i]);
+                max[i] = Math.max(max[i], sample[i]);
+            }
+        }
+        float[] scale = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            scale[i] = (max[i] - min[i]) / 255.0f;
+        }
+        return new ScalarQuantizer(min, scale);
+    }
+
+    static ScalarQuantizer read(DataInput in) throws IOException {
+        int dimensions = in.readInt();
+        float[] min = new float[dimensions];
+        float[] scale = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            min[i] = in.readFloat();
+            scale[i] = in.readFloat();
+        }
+        return new ScalarQuantizer(min, scale);
+    }
+
+    @Override
+    public String mode() {
+        return MODE;
+    }
+
+    @Override
+    public int dimensions() {
+        return min.length;
+    }
+
+    @Override
+    public int codeSize() {
+        return min.length;
+    }
+
+    @Override
+    public void encode(float[] vector, byte[] target, int offset) {
+        for (int i = 0; i < min.length; i++) {
+            int level = scale[i] > 0 ? Math.round((vector[i] - min[i]) / scale[i]) : 0;
+            level = Math.max(0, Math.min(255, level));
+            target[offset + i] = (byte) (level - 128);
+        }
+    }
+
+    @Override
+    public CodeScorer scorer(float[] query) {
+        float base = 0;
+        float[] weights = new float[min.length];
+        for (int i = 0; i < min.length; i++) {
+            base += query[i] * (min[i] + 128 * scale[i]);
+            weights[i] = query[i] * scale[i];
+        }
+        final float constant = base;
+        return (codes, offset) -> {
+            float sum = constant;
+            for (int i = 0; i < weights.length; i++) {
+                sum += weights[i] * codes[offset + i];
+            }
+            return sum;
+        };
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeUTF(MODE);
+        out.writeInt(min.length);
+        for (int i = 0; i < min.length; i++) {
+            out.writeFloat(min[i]);
+            out.writeFloat(scale[i]);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.llmmanager.agent.rag.quantization;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 向量量化器
+ *
+ * 将归一化后的向量压缩为定长字节码，检索时先用字节码近似打分（第一阶段召回），
+ * 再对候选用全精度向量精确重排。近似分数为与查询向量内积的估计值（归一化后即余弦相似度）。
+ *
+ * 实现：
+ * - int8（ScalarQuantizer）：每维 1 字节，1536 维约 1.5 KB/向量
+ * - pq（ProductQuantizer）：每个子空间 1 字节，96 个子空间仅 96 B/向量
+ */
+public interface VectorQuantizer {
+
+    /**
+     * 量化模式：int8 / pq
+     */
+    String mode();
+
+    /**
+     * 向量维度
+     */
+    int dimensions();
+
+    /**
+     * 每个向量的字节码长度
+     */
+    int codeSize();
+
+    /**
+     * 编码归一化后的向量，写入 target[offset, offset + codeSize)
+     */
+    void encode(float[] vector, byte[] target, int offset);
+
+    /**
+     * 为查询向量创建打分器（预计算查询相关的查找表）
+     */
+    CodeScorer scorer(float[] query);
+
+    /**
+     * 序列化码本
+     */
+    void write(DataOutput out) throws IOException;
+
+    /**
+     * 字节码打分器（线程不安全，每次查询创建一个）
+     */
+    @FunctionalInterface
+    interface CodeScorer {
+
+        /**
+         * 估计查询向量与 codes[offset, offset + codeSize) 对应向量的内积
+         */
+        float score(byte[] codes, int offset);
+    }
+
+    /**
+     * 按模式训练码本
+     *
+     * @param mode       int8 / pq
+     * @param samples    训练样本（已归一化）
+     * @param subspaces  PQ 子空间数量
+     * @param iterations PQ k-means 迭代次数
+     */
+    static VectorQuantizer train(String mode, List<float[]> samples, int subspaces, int iterations) {
+        if (samples == null || samples.isEmpty()) {
+            throw new IllegalArgumentException("训练样本为空");
+        }
+        return switch (mode) {
+            case ScalarQuantizer.MODE -> ScalarQuantizer.train(samples);
+            case ProductQuantizer.MODE -> ProductQuantizer.train(samples, subspaces, iterations);
+            default -> throw new IllegalArgumentException("不支持的量化模式: " + mode);
+        };
+    }
+
+    /**
+     * 反序列化码本
+     */
+    static VectorQuantizer read(DataInput in) throws IOException {
+        String mode = in.readUTF();
+        return switch (mode) {
+            case ScalarQuantizer.MODE -> ScalarQuantizer.read(in);
+            case ProductQuantizer.MODE -> ProductQuantizer.read(in);
+            default -> throw new IOException("未知的量化模式: " + mode);
+        };
+    }
+
+    /**
+     * 归一化（返回新数组，零向量原样返回）
+     */
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        float inverse = (float) (1.0d / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * inverse;
+        }
+        return normalized;
+    }
+
+    static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
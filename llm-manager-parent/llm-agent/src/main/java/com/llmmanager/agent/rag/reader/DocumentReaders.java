@@ -0,0 +1,76 @@
+package com.llmmanager.agent.rag.reader;
+
+import com.llmmanager.agent.storage.core.entity.KnowledgeDocument;
+import org.springframework.ai.document.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import jakarta.annotation.Resource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 文档读取入口
+ *
+ * 按文档来源选择读取器：
+ * - URL：下载到临时文件后按识别出的类型读取，读取完成后删除临时文件
+ * - 文件（filePath）：按 docType 选择读取器
+ * - 已存储的文本内容（content）：按行读取
+ *
+ * 每段额外带上 sourceUrl（URL 文档），其余定位信息由各读取器填充。
+ */
+@Component
+@ConditionalOnProperty(name = "llm.rag.enabled", havingValue = "true", matchIfMissing = false)
+public class DocumentReaders {
+
+    @Resource
+    private List<DocumentSectionReader> readers;
+
+    @Resource
+    private TextSectionReader textSectionReader;
+
+    @Resource
+    private UrlDocumentFetcher urlDocumentFetcher;
+
+    /**
+     * 逐段读取文档
+     */
+    public void read(KnowledgeDocument doc, Consumer<Document> consumer) throws IOException {
+        if ("URL".equals(doc.getDocType())) {
+            UrlDocumentFetcher.FetchedDocument fetched = urlDocumentFetcher.fetch(doc.getSourceUrl());
+            try {
+                readerFor(fetched.docType()).read(fetched.file(), fetched.docType(), section -> {
+                    section.getMetadata().put("sourceUrl", fetched.finalUrl());
+                    consumer.accept(section);
+                });
+            } finally {
+                Files.deleteIfExists(fetched.file());
+            }
+            return;
+        }
+
+        if (StringUtils.hasText(doc.getFilePath())) {
+            Path file = Path.of(doc.getFilePath());
+            if (!Files.isRegularFile(file)) {
+                throw new IOException("文件不存在: " + doc.getFilePath());
+            }
+            readerFor(doc.getDocType()).read(file, doc.getDocType(), consumer);
+            return;
+        }
+
+        if (doc.getContent() != null) {
+            textSectionReader.readContent(doc.getContent(), doc.getDocType(), consumer);
+        }
+    }
+
+    private DocumentSectionReader readerFor(String docType) {
+        return readers.stream()
+                .filter(reader -> reader.supportedTypes().contains(docType))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("不支持的文档类型: " + docType));
+    }
+}
@@ -0,0 +1,35 @@
+package com.llmmanager.agent.rag.reader;
+
+import org.springframework.ai.document.Document;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 文档分段读取器
+ *
+ * 按页（PDF）或章节（DOCX / HTML / Markdown）逐段读取文件，每读到一段回调一次，
+ * 调用方可以边读边分割，不需要把整个文件载入内存。
+ *
+ * 每段的 metadata 携带定位信息，用于引用出处：
+ * - page / totalPages：PDF 页码（从 1 开始）
+ * - section / sectionIndex：章节标题和序号
+ */
+public interface DocumentSectionReader {
+
+    /**
+     * 支持的文档类型（KnowledgeDocument.docType）
+     */
+    Set<String> supportedTypes();
+
+    /**
+     * 逐段读取文件
+     *
+     * @param file     文件路径
+     * @param docType  文档类型
+     * @param consumer 每段回调
+     */
+    void read(Path file, String docType, Consumer<Document> consumer) throws IOException;
+}
@@ -0,0 +1,111 @@
+package com.llmmanager.agent.rag.reader;
+
+import com.llmmanager.agent.rag.config.RagProperties;
+import org.springframework.ai.document.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.Resource;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * DOCX 读取器（按标题分章节）
+ *
+ * 直接以 StAX 流式解析 word/document.xml，不构建整个文档的 DOM。
+ * 段落样式为 Heading* / Title，或带有大纲级别（outlineLvl）的段落视为章节标题。
+ */
+@Component
+@ConditionalOnProperty(name = "llm.rag.enabled", havingValue = "true", matchIfMissing = false)
+public class DocxSectionReader implements DocumentSectionReader {
+
+    private static final String DOCUMENT_ENTRY = "word/document.xml";
+
+    @Resource
+    private RagProperties ragProperties;
+
+    @Override
+    public Set<String> supportedTypes() {
+        return Set.of("DOCX");
+    }
+
+    @Override
+    public void read(Path file, String docType, Consumer<Document> consumer) throws IOException {
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            ZipEntry entry = zip.getEntry(DOCUMENT_ENTRY);
+            if (entry == null) {
+                throw new IOException("不是有效的 DOCX 文件（缺少 " + DOCUMENT_ENTRY + "）");
+            }
+            try (InputStream in = zip.getInputStream(entry)) {
+                parse(in, new SectionBuffer(ragProperties.getReader().getMaxSectionChars(), consumer));
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("DOCX 解析失败: " + e.getMessage(), e);
+        }
+    }
+
+    private void parse(InputStream in, SectionBuffer buffer) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        XMLStreamReader reader = factory.createXMLStreamReader(in);
+
+        StringBuilder paragraph = new StringBuilder();
+        boolean heading = false;
+        boolean inText = false;
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "p" -> {
+                            paragraph.setLength(0);
+                            heading = false;
+                        }
+                        case "pStyle" -> heading = heading || isHeadingStyle(reader.getAttributeValue(null, "val"));
+                        // 大纲级别 9 表示正文
+                        case "outlineLvl" -> heading = heading || !"9".equals(reader.getAttributeValue(null, "val"));
+                        case "t" -> inText = true;
+                        case "tab" -> paragraph.append('\t');
+                        case "br", "cr" -> paragraph.append('\n');
+                        default -> {
+                        }
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS && inText) {
+                    paragraph.append(reader.getText());
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "t" -> inText = false;
+                        case "p" -> {
+                            String text = paragraph.toString();
+                            if (heading && !text.isBlank()) {
+                                buffer.heading(text);
+                            } else {
+                                buffer.append(text);
+                                buffer.endBlock();
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                }
+            }
+            buffer.flush();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static boolean isHeadingStyle(String style) {
+        return style != null && (style.regionMatches(true, 0, "Heading", 0, 7) || style.equalsIgnoreCase("Title"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.llmmanager.agent.rag.reader;
+
+import com.llmmanager.agent.rag.config.RagProperties;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeFilter;
+import org.springframework.ai.document.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.Resource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * HTML 读取器（按 h1-h6 分章节）
+ *
+ * HTML 需要整体解析为 DOM，文件大小受 maxHtmlBytes 限制；
+ * 脚本、样式、导航、页眉页脚等非正文内容在提取前移除。
+ */
+@Component
+@ConditionalOnProperty(name = "llm.rag.enabled", havingValue = "true", matchIfMissing = false)
+public class HtmlSectionReader implements DocumentSectionReader {
+
+    private static final Set<String> HEADINGS = Set.of("h1", "h2", "h3", "h4", "h5", "h6");
+
+    private static final String NON_CONTENT = "script, style, noscript, template, svg, nav, header, footer, aside, form";
+
+    @Resource
+    private RagProperties ragProperties;
+
+    @Override
+    public Set<String> supportedTypes() {
+        return Set.of("HTML");
+    }
+
+    @Override
+    public void read(Path file, String docType, Consumer<Document> consumer) throws IOException {
+        long maxBytes = ragProperties.getReader().getMaxHtmlBytes();
+        if (Files.size(file) > maxBytes) {
+            throw new IOException("HTML 文件超过大小限制: " + Files.size(file) + " > " + maxBytes);
+        }
+
+        // charset 为 null 时按 <meta charset> / BOM 自动识别
+        org.jsoup.nodes.Document html = Jsoup.parse(file.toFile(), null);
+        html.select(NON_CONTENT).remove();
+
+        SectionBuffer buffer = new SectionBuffer(ragProperties.getReader().getMaxSectionChars(), consumer);
+        html.body().filter(new NodeFilter() {
+            @Override
+            public FilterResult head(Node node, int depth) {
+                if (node instanceof Element element && HEADINGS.contains(element.normalName())) {
+                    String heading = element.text();
+                    if (!heading.isBlank()) {
+                        buffer.heading(heading);
+                    }
+                    return FilterResult.SKIP_ENTIRELY;
+                }
+                if (node instanceof TextNode textNode) {
+                    buffer.append(textNode.text());
+                }
+                return FilterResult.CONTINUE;
+            }
+
+            @Override
+            public FilterResult tail(Node node, int depth) {
+                if (node instanceof Element element && (element.isBlock() || "br".equals(element.normalName()))) {
+                    buffer.endBlock();
+                }
+                return FilterResult.CONTINUE;
+            }
+        });
+        buffer.flush();
+    }
+}
@@ -0,0 +1,88 @@
+package com.llmmanager.agent.rag.reader;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.ai.document.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * PDF 读取器（逐页）
+ *
+ * 内存控制：
+ * - 文件按需随机读取（RandomAccessReadBufferedFile），不整体载入
+ * - 解析过程中的流缓存写入临时文件
+ * - 关闭资源缓存，已处理页面的字体/图片可被回收
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "llm.rag.enabled", havingValue = "true", matchIfMissing = false)
+public class PdfSectionReader implements DocumentSectionReader {
+
+    @Override
+    public Set<String> supportedTypes() {
+        return Set.of("PDF");
+    }
+
+    @Override
+    public void read(Path file, String docType, Consumer<Document> consumer) throws IOException {
+        try (PDDocument document = Loader.loadPDF(new RandomAccessReadBufferedFile(file.toFile()), "",
+                null, null, IOUtils.createTempFileOnlyStreamCache())) {
+            document.setResourceCache(null);
+
+            int totalPages = document.getNumberOfPages();
+            PageStripper stripper = new PageStripper(totalPages, consumer);
+            stripper.setSortByPosition(true);
+            // 一次遍历全部页面，每页结束时交出本页文本（逐页调用 getText 会从头遍历页树，整体 O(n²)）
+            stripper.writeText(document, stripper.pageText);
+            log.debug("[PdfSectionReader] 读取完成: file={}, pages={}", file.getFileName(), totalPages);
+        }
+    }
+
+    /**
+     * 按页切分的文本提取器：startPage 清空缓冲，endPage 把本页文本交给 consumer
+     */
+    private static class PageStripper extends PDFTextStripper {
+
+        private final StringWriter pageText = new StringWriter();
+        private final int totalPages;
+        private final Consumer<Document> consumer;
+
+        PageStripper(int totalPages, Consumer<Document> consumer) {
+            this.totalPages = totalPages;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void startPage(PDPage page) throws IOException {
+            super.startPage(page);
+            pageText.getBuffer().setLength(0);
+        }
+
+        @Override
+        protected void endPage(PDPage page) throws IOException {
+            super.endPage(page);
+            String text = pageText.toString();
+            if (text.isBlank()) {
+                return;
+            }
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put("page", getCurrentPageNo());
+            metadata.put("totalPages", totalPages);
+            consumer.accept(new Document(text.strip(), metadata));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.llmmanager.agent.rag.reader;
+
+import org.springframework.ai.document.Document;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 章节缓冲区
+ *
+ * 累积当前章节的文本，遇到新标题或超过最大字符数时输出一段。
+ * 超长章节只在块（段落/行）结束时切分，不会截断句子。
+ */
+class SectionBuffer {
+
+    private final int maxChars;
+    private final Consumer<Document> consumer;
+    private final StringBuilder text = new StringBuilder();
+
+    private String title;
+    private int sectionIndex;
+    private boolean hasBody;
+
+    SectionBuffer(int maxChars, Consumer<Document> consumer) {
+        this.maxChars = maxChars;
+        this.consumer = consumer;
+    }
+
+    /**
+     * 开始新章节（标题作为新章节的首行）
+     */
+    void heading(String heading) {
+        flush();
+        title = heading.strip();
+        text.append(title).append('\n');
+    }
+
+    /**
+     * 追加文本（块内）
+     */
+    void append(String content) {
+        if (content == null || content.isEmpty()) {
+            return;
+        }
+        text.append(content);
+        hasBody = hasBody || !content.isBlank();
+    }
+
+    /**
+     * 块结束（段落/行），超过最大字符数时输出当前段
+     */
+    void endBlock() {
+        text.append('\n');
+        if (text.length() >= maxChars) {
+            flush();
+            if (title != null) {
+                text.append(title).append('\n');
+            }
+        }
+    }
+
+    /**
+     * 输出当前段（只有标题没有正文时不输出）
+     */
+    void flush() {
+        String content = text.toString().strip();
+        text.setLength(0);
+        if (!hasBody || content.isEmpty()) {
+            return;
+        }
+        hasBody = false;
+
+        Map<String, Object> metadata = new HashMap<>();
+        if (title != null) {
+            metadata.put("section", title);
+        }
+        metadata.put("sectionIndex", sectionIndex++);
+        consumer.accept(new Document(content, metadata));
+    }
+}
@@ -0,0 +1,80 @@
+package com.llmmanager.agent.rag.reader;
+
+import com.llmmanager.agent.rag.config.RagProperties;
+import org.springframework.ai.document.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.Resource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 纯文本 / Markdown / JSON 读取器
+ *
+ * 按行读取；Markdown 以 # 标题划分章节（代码块内的 # 不算标题），其它类型只按最大字符数切段。
+ */
+@Component
+@ConditionalOnProperty(name = "llm.rag.enabled", havingValue = "true", matchIfMissing = false)
+public class TextSectionReader implements DocumentSectionReader {
+
+    @Resource
+    private RagProperties ragProperties;
+
+    @Override
+    public Set<String> supportedTypes() {
+        return Set.of("TEXT", "MARKDOWN", "JSON");
+    }
+
+    @Override
+    public void read(Path file, String docType, Consumer<Document> consumer) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            read(reader, docType, consumer);
+        }
+    }
+
+    /**
+     * 读取已存储在数据库中的文本内容
+     */
+    public void readContent(String content, String docType, Consumer<Document> consumer) throws IOException {
+        read(new StringReader(content), docType, consumer);
+    }
+
+    private void read(Reader reader, String docType, Consumer<Document> consumer) throws IOException {
+        boolean markdown = "MARKDOWN".equals(docType);
+        SectionBuffer buffer = new SectionBuffer(ragProperties.getReader().getMaxSectionChars(), consumer);
+        BufferedReader lines = reader instanceof BufferedReader br ? br : new BufferedReader(reader);
+
+        boolean inCodeBlock = false;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (markdown) {
+                String trimmed = line.stripLeading();
+                if (trimmed.startsWith("```") || trimmed.startsWith("~~~")) {
+                    inCodeBlock = !inCodeBlock;
+                } else if (!inCodeBlock && isMarkdownHeading(trimmed)) {
+                    buffer.heading(trimmed.replaceFirst("^#+\\s*", ""));
+                    continue;
+                }
+            }
+            buffer.append(line);
+            buffer.endBlock();
+        }
+        buffer.flush();
+    }
+
+    private static boolean isMarkdownHeading(String line) {
+        int level = 0;
+        while (level < line.length() && line.charAt(level) == '#') {
+            level++;
+        }
+        return level >= 1 && level <= 6 && level < line.length() && line.charAt(level) == ' ';
+    }
+}
@@ -0,0 +1,172 @@
+package com.llmmanager.agent.rag.reader;
+
+import com.llmmanager.agent.rag.config.RagProperties;
+import com.llmmanager.agent.tools.PinnedHttpClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * URL 文档下载器
+ *
+ * 响应体流式写入临时文件（超过 maxDownloadBytes 时中止），再按 Content-Type / 扩展名
+ * 交给对应的读取器，避免把整个网页或远程文件载入内存。
+ *
+ * 不自动跟随重定向：每一跳（含首个地址）都校验协议和主机，未开启 allowPrivateNetwork 时
+ * 拒绝解析到内网 / 本机的地址，并直接连接校验过的地址（PinnedHttpClient），最多跟随 MAX_REDIRECTS 次。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "llm.rag.enabled", havingValue = "true", matchIfMissing = false)
+public class UrlDocumentFetcher {
+
+    /**
+     * 最多跟随的重定向次数
+     */
+    private static final int MAX_REDIRECTS = 5;
+
+    @Resource
+    private RagProperties ragProperties;
+
+    /**
+     * 下载结果（调用方负责删除临时文件）
+     *
+     * @param file     临时文件
+     * @param docType  识别出的文档类型
+     * @param finalUrl 跟随重定向后的最终地址
+     */
+    public record FetchedDocument(Path file, String docType, String finalUrl) {
+    }
+
+    /**
+     * 下载 URL 到临时文件
+     */
+    public FetchedDocument fetch(String url) throws IOException {
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("URL 格式错误: " + url);
+        }
+
+        RagProperties.ReaderConfig config = ragProperties.getReader();
+        PinnedHttpClient.Response response = null;
+        for (int redirects = 0; ; redirects++) {
+            response = send(uri, config);
+
+            int status = response.statusCode();
+            if (status != 301 && status != 302 && status != 303 && status != 307 && status != 308) {
+                break;
+            }
+            response.close();
+            String location = response.header("Location").orElse(null);
+            if (location == null) {
+                throw new IOException("重定向缺少 Location: HTTP " + status + ", url=" + uri);
+            }
+            if (redirects >= MAX_REDIRECTS) {
+                throw new IOException("重定向次数超过 " + MAX_REDIRECTS + " 次: " + url);
+            }
+            try {
+                uri = uri.resolve(location);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("重定向地址格式错误: " + location);
+            }
+            log.debug("[UrlDocumentFetcher] 跟随重定向: status={}, location={}", status, uri);
+        }
+
+        Path file = Files.createTempFile("llm-rag-url-", ".tmp");
+        try (InputStream in = response.body(); OutputStream out = Files.newOutputStream(file)) {
+            if (response.statusCode() / 100 != 2) {
+                throw new IOException("下载失败: HTTP " + response.statusCode() + ", url=" + url);
+            }
+            copyWithLimit(in, out, config.getMaxDownloadBytes(), url);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+
+        String contentType = response.header("Content-Type").orElse("");
+        String finalUrl = uri.toString();
+        String docType = detectDocType(contentType, uri.getPath());
+        log.info("[UrlDocumentFetcher] 下载完成: url={}, contentType={}, docType={}, bytes={}",
+                finalUrl, contentType, docType, Files.size(file));
+        return new FetchedDocument(file, docType, finalUrl);
+    }
+
+    /**
+     * 校验本次请求的目标地址并发送（首个地址和每次重定向后都要调用）
+     *
+     * 连接的是校验时解析出的地址，不会在连接时再次解析，防止 DNS 重绑定绕过内网校验。
+     */
+    private static PinnedHttpClient.Response send(URI uri, RagProperties.ReaderConfig config) throws IOException {
+        String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase(Locale.ROOT) : "";
+        if (!"http".equals(scheme) && !"https".equals(scheme)) {
+            throw new IOException("仅支持 http/https 地址: " + uri);
+        }
+        if (uri.getHost() == null || uri.getHost().isBlank()) {
+            throw new IOException("URL 缺少主机名: " + uri);
+        }
+        try {
+            return PinnedHttpClient.send(uri, Boolean.TRUE.equals(config.getAllowPrivateNetwork()), "GET",
+                    Map.of("User-Agent", config.getUserAgent()), null,
+                    config.getConnectTimeoutMs().intValue(), config.getReadTimeoutMs().intValue());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    private static void copyWithLimit(InputStream in, OutputStream out, long maxBytes, String url) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+            if (total > maxBytes) {
+                throw new IOException("下载内容超过大小限制 " + maxBytes + " 字节: " + url);
+            }
+            out.write(buffer, 0, read);
+        }
+    }
+
+    /**
+     * 按 Content-Type 识别文档类型，无法识别时按路径扩展名
+     */
+    static String detectDocType(String contentType, String path) {
+        String type = contentType != null ? contentType.toLowerCase(Locale.ROOT) : "";
+        if (type.contains("pdf")) {
+            return "PDF";
+        } else if (type.contains("wordprocessingml")) {
+            return "DOCX";
+        } else if (type.contains("html")) {
+            return "HTML";
+        } else if (type.contains("markdown")) {
+            return "MARKDOWN";
+        } else if (type.contains("json")) {
+            return "JSON";
+        }
+
+        String lowerPath = path != null ? path.toLowerCase(Locale.ROOT) : "";
+        if (lowerPath.endsWith(".pdf")) {
+            return "PDF";
+        } else if (lowerPath.endsWith(".docx")) {
+            return "DOCX";
+        } else if (lowerPath.endsWith(".md")) {
+            return "MARKDOWN";
+        } else if (lowerPath.endsWith(".json")) {
+            return "JSON";
+        } else if (lowerPath.endsWith(".txt")) {
+            return "TEXT";
+        }
+        return "HTML";
+    }
+}
@@ -0,0 +1,333 @@
+package com.llmmanager.agent.rag.rerank;
+
+import com.llmmanager.agent.rag.config.RagProperties;
+import com.llmmanager.agent.rag.lexical.LexicalTokenizer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.rag.postretrieval.document.DocumentPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 检索后重排序
+ *
+ * 作为 RetrievalAugmentationAdvisor 的 DocumentPostProcessor 接在检索之后：
+ * 1. 打分器为候选池中的每个文本块打分（在延迟预算内完成，超时或失败退回检索顺序）
+ *    打分在专用线程池执行，同时打分的请求数不超过 maxConcurrency：已满时直接退回检索顺序；
+ *    超时的打分任务被中断（ONNX 打分器在批次之间检查中断），但在真正结束前仍占用名额，
+ *    避免超时请求在后台继续堆积 CPU 推理
+ * 2. 相关性 = (1 - retrievalWeight) × 打分器分数 + retrievalWeight × 检索分数（均按候选集 min-max 归一化）
+ * 3. 按相关性（或 MMR）选出 finalK 个文本块放入 Prompt
+ *
+ * 重排后 Document.score 和 metadata.rerankScore 为相关性，原检索分数保留在 metadata.retrievalScore。
+ *
+ * 指标：
+ * - rag.rerank.latency (Timer)              - 重排序耗时（tag: scorer）
+ * - rag.rerank.fallback (Counter)           - 退回检索顺序的次数（tag: reason = timeout / error / saturated）
+ * - rag.rerank.context.chars (Summary)      - 放入 Prompt 的字符数（tag: stage = candidates / selected）
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "llm.rag.enabled", havingValue = "true", matchIfMissing = false)
+public class DocumentReranker {
+
+    @Resource
+    private RagProperties ragProperties;
+
+    @Resource
+    private List<DocumentScorer> scorers;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private ExecutorService scoringExecutor;
+
+    /**
+     * 打分名额（获取后提交任务，任务结束时释放）
+     */
+    private Semaphore scoringPermits;
+
+    @PostConstruct
+    public void init() {
+        int maxConcurrency = Math.max(1, ragProperties.getRerank().getMaxConcurrency());
+        scoringPermits = new Semaphore(maxConcurrency);
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 线程数 = 名额数，拿到名额的任务总能立即执行，队列不会积压
+        scoringExecutor = Executors.newFixedThreadPool(maxConcurrency, r -> {
+            Thread thread = new Thread(r, "rag-rerank-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scoringExecutor != null) {
+            scoringExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 是否启用重排序
+     */
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(ragProperties.getRerank().getEnabled());
+    }
+
+    /**
+     * 最终放入 Prompt 的数量（未配置 finalK 时使用请求的 topK）
+     */
+    public int finalK(int topK) {
+        Integer finalK = ragProperties.getRerank().getFinalK();
+        return finalK != null && finalK > 0 ? finalK : topK;
+    }
+
+    /**
+     * 检索阶段的候选数量（不小于 finalK）
+     */
+    public int candidatePool(int topK) {
+        return Math.max(finalK(topK), ragProperties.getRerank().getCandidatePool());
+    }
+
+    /**
+     * 创建 RetrievalAugmentationAdvisor 使用的后处理器
+     */
+    public DocumentPostProcessor postProcessor(int finalK) {
+        return (query, documents) -> rerank(query.text(), documents, finalK);
+    }
+
+    /**
+     * 重排序并截取 finalK 个文本块
+     */
+    public List<Document> rerank(String query, List<Document> candidates, int finalK) {
+        if (candidates == null || candidates.isEmpty()) {
+            return candidates;
+        }
+        RagProperties.RerankConfig config = ragProperties.getRerank();
+        DocumentScorer scorer = resolveScorer(config.getScorer());
+        recordContextChars("candidates", candidates);
+
+        if (!scoringPermits.tryAcquire()) {
+            return fallback("saturated", "打分并发已满", scorer, candidates, finalK, null);
+        }
+
+        long startTime = System.nanoTime();
+        FutureTask<double[]> task = new FutureTask<>(() -> scorer.score(query, candidates));
+        double[] scores;
+        try {
+            try {
+                // 名额在任务真正结束（包括被取消后）才释放
+                scoringExecutor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        scoringPermits.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                scoringPermits.release();
+                return fallback("error", "失败", scorer, candidates, finalK, e.getMessage());
+            }
+            scores = task.get(config.getLatencyBudgetMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            task.cancel(true);
+            return fallback("timeout", "超出延迟预算", scorer, candidates, finalK, null);
+        } catch (ExecutionException e) {
+            return fallback("error", "失败", scorer, candidates, finalK, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.cancel(true);
+            return fallback("error", "被中断", scorer, candidates, finalK, null);
+        } finally {
+            Timer.builder("rag.rerank.latency")
+                    .tag("scorer", scorer.name())
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+
+        List<Document> selected = select(candidates, scores, finalK, config);
+        recordContextChars("selected", selected);
+        log.debug("[DocumentReranker] 重排序完成: scorer={}, candidates={}, selected={}, costMs={}", scorer.name(),
+                candidates.size(), selected.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        return selected;
+    }
+
+    /**
+     * 退回检索顺序：直接截取前 finalK 个候选
+     */
+    private List<Document> fallback(String reason, String description, DocumentScorer scorer,
+                                    List<Document> candidates, int finalK, String error) {
+        log.warn("[DocumentReranker] 重排序{}，退回检索顺序: scorer={}, candidates={}, error={}",
+                description, scorer.name(), candidates.size(), error);
+        Counter.builder("rag.rerank.fallback")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        List<Document> fallback = candidates.subList(0, Math.min(finalK, candidates.size()));
+        recordContextChars("selected", fallback);
+        return fallback;
+    }
+
+    /**
+     * 按打分选出最终文本块（与打分器无关的纯计算部分，离线评测直接调用）
+     */
+    public static List<Document> select(List<Document> candidates, double[] scores, int finalK,
+                                        RagProperties.RerankConfig config) {
+        int size = candidates.size();
+        double[] scorerScores = normalize(scores);
+        double[] retrievalScores = new double[size];
+        for (int i = 0; i < size; i++) {
+            Double score = candidates.get(i).getScore();
+            // 无检索分数时按排名递减
+            retrievalScores[i] = score != null ? score : 1.0d - (double) i / size;
+        }
+        retrievalScores = normalize(retrievalScores);
+
+        double retrievalWeight = config.getRetrievalWeight();
+        double[] relevance = new double[size];
+        List<Integer> pool = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            relevance[i] = (1.0d - retrievalWeight) * scorerScores[i] + retrievalWeight * retrievalScores[i];
+            if (relevance[i] >= config.getMinScore()) {
+                pool.add(i);
+            }
+        }
+        if (pool.isEmpty()) {
+            // 阈值过滤掉全部候选时至少保留最相关的一个
+            int best = 0;
+            for (int i = 1; i < size; i++) {
+                if (relevance[i] > relevance[best]) {
+                    best = i;
+                }
+            }
+            pool.add(best);
+        }
+
+        List<Integer> order = Boolean.TRUE.equals(config.getMmrEnabled())
+                ? maximalMarginalRelevance(candidates, pool, relevance, finalK, config.getMmrLambda())
+                : pool.stream().sorted((a, b) -> Double.compare(relevance[b], relevance[a]))
+                        .limit(finalK).toList();
+
+        List<Document> selected = new ArrayList<>(order.size());
+        for (int index : order) {
+            Document source = candidates.get(index);
+            Map<String, Object> metadata = new HashMap<>(source.getMetadata());
+            metadata.put("rerankScore", (float) relevance[index]);
+            if (source.getScore() != null) {
+                metadata.put("retrievalScore", source.getScore().floatValue());
+            }
+            selected.add(Document.builder().id(source.getId()).text(source.getText())
+                    .metadata(metadata).score(relevance[index]).build());
+        }
+        return selected;
+    }
+
+    /**
+     * MMR：每次选 λ × 相关性 - (1 - λ) × 与已选文本块的最大相似度 最大的候选
+     *
+     * 文本块相似度使用词集合的 Jaccard 系数（不需要向量）
+     */
+    private static List<Integer> maximalMarginalRelevance(List<Document> candidates, List<Integer> pool,
+                                                          double[] relevance, int finalK, double lambda) {
+        Map<Integer, Set<String>> terms = new HashMap<>();
+        for (int index : pool) {
+            terms.put(index, new HashSet<>(LexicalTokenizer.tokenize(candidates.get(index).getText())));
+        }
+
+        List<Integer> remaining = new ArrayList<>(pool);
+        List<Integer> selected = new ArrayList<>();
+        while (selected.size() < finalK && !remaining.isEmpty()) {
+            int bestIndex = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int index : remaining) {
+                double maxSimilarity = 0;
+                for (int chosen : selected) {
+                    maxSimilarity = Math.max(maxSimilarity, jaccard(terms.get(index), terms.get(chosen)));
+                }
+                double value = lambda * relevance[index] - (1.0d - lambda) * maxSimilarity;
+                if (value > bestValue) {
+                    bestValue = value;
+                    bestIndex = index;
+                }
+            }
+            selected.add(bestIndex);
+            remaining.remove(Integer.valueOf(bestIndex));
+        }
+        return selected;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 0;
+        }
+        int intersection = 0;
+        for (String term : a) {
+            if (b.contains(term)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / (a.size() + b.size() - intersection);
+    }
+
+    /**
+     * min-max 归一化到 [0, 1]，全部相等时视为同等相关（1.0）
+     */
+    private static double[] normalize(double[] values) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        double[] normalized = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            normalized[i] = max > min ? (values[i] - min) / (max - min) : 1.0d;
+        }
+        return normalized;
+    }
+
+    private DocumentScorer resolveScorer(String name) {
+        DocumentScorer fallback = null;
+        for (DocumentScorer scorer : scorers) {
+            if (scorer.name().equalsIgnoreCase(name)) {
+                return scorer;
+            }
+            if (LexicalOverlapScorer.NAME.equals(scorer.name())) {
+                fallback = scorer;
+            }
+        }
+        log.warn("[DocumentReranker] 未找到打分器 {}，使用 {}", name, LexicalOverlapScorer.NAME);
+        return fallback;
+    }
+
+    private void recordContextChars(String stage, List<Document> documents) {
+        DistributionSummary.builder("rag.rerank.context.chars")
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .record(documents.stream().mapToInt(document -> document.getText() != null ? document.getText().length() : 0).sum());
+    }
+}
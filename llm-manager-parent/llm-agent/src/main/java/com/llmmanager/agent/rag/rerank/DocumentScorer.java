@@ -0,0 +1,28 @@
+package com.llmmanager.agent.rag.rerank;
+
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+/**
+ * 重排序打分器
+ *
+ * 为（查询，候选文本块）逐一打分，分数越大越相关，量纲不限（由 DocumentReranker 归一化）。
+ * 实现为 Spring Bean 即可通过 llm.rag.rerank.scorer 按 name() 选用。
+ */
+public interface DocumentScorer {
+
+    /**
+     * 打分器名称（对应 llm.rag.rerank.scorer）
+     */
+    String name();
+
+    /**
+     * 为候选打分
+     *
+     * @param query     用户查询
+     * @param documents 候选文本块
+     * @return 与 documents 一一对应的分数
+     */
+    double[] score(String query, List<Document> documents);
+}
@@ -0,0 +1,85 @@
+package com.llmmanager.agent.rag.rerank;
+
+import com.llmmanager.agent.rag.lexical.LexicalTokenizer;
+import org.springframework.ai.document.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 词重叠打分器（零依赖，CPU 开销可忽略）
+ *
+ * 分数 = 查询词覆盖率（按候选集内的 IDF 加权）+ 0.2 × 命中密度：
+ * - 覆盖率：候选文本块包含了多少查询词，少见的词（编号、专有名词）权重更高
+ * - 命中密度：命中词占文本块词数的比例，覆盖率相同时偏向更聚焦的短文本块
+ */
+@Component
+@ConditionalOnProperty(name = "llm.rag.enabled", havingValue = "true", matchIfMissing = false)
+public class LexicalOverlapScorer implements DocumentScorer {
+
+    public static final String NAME = "lexical";
+
+    private static final double DENSITY_WEIGHT = 0.2d;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public double[] score(String query, List<Document> documents) {
+        double[] scores = new double[documents.size()];
+        Set<String> queryTerms = new LinkedHashSet<>(LexicalTokenizer.tokenize(query));
+        if (queryTerms.isEmpty() || documents.isEmpty()) {
+            return scores;
+        }
+
+        // 各候选的词频
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        List<Map<String, Integer>> termFrequencies = documents.stream().map(document -> {
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String token : LexicalTokenizer.tokenize(document.getText())) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+            for (String term : queryTerms) {
+                if (frequencies.containsKey(term)) {
+                    documentFrequency.merge(term, 1, Integer::sum);
+                }
+            }
+            return frequencies;
+        }).toList();
+
+        int total = documents.size();
+        Map<String, Double> idf = new HashMap<>();
+        double idfSum = 0;
+        for (String term : queryTerms) {
+            int df = documentFrequency.getOrDefault(term, 0);
+            double weight = Math.log(1 + (total - df + 0.5d) / (df + 0.5d));
+            idf.put(term, weight);
+            idfSum += weight;
+        }
+
+        for (int i = 0; i < total; i++) {
+            Map<String, Integer> frequencies = termFrequencies.get(i);
+            int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+            double covered = 0;
+            int matched = 0;
+            for (String term : queryTerms) {
+                Integer tf = frequencies.get(term);
+                if (tf != null) {
+                    covered += idf.get(term);
+                    matched += tf;
+                }
+            }
+            double coverage = idfSum > 0 ? covered / idfSum : 0;
+            double density = length > 0 ? (double) matched / length : 0;
+            scores[i] = coverage + DENSITY_WEIGHT * density;
+        }
+        return scores;
+    }
+}
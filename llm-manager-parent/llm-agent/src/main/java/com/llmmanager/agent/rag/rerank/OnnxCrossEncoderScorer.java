@@ -0,0 +1,150 @@
+package com.llmmanager.agent.rag.rerank;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import com.llmmanager.agent.rag.config.RagProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 本地 ONNX 交叉编码器打分器（CPU 推理）
+ *
+ * 将（查询，文本块）成对输入交叉编码器（如 bge-reranker-base、ms-marco-MiniLM-L-6-v2 导出的 ONNX 模型），
+ * 取输出 logit 作为相关性分数。仅在 llm.rag.rerank.scorer=onnx 时加载。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "llm.rag.rerank.scorer", havingValue = OnnxCrossEncoderScorer.NAME)
+public class OnnxCrossEncoderScorer implements DocumentScorer {
+
+    public static final String NAME = "onnx";
+
+    @Resource
+    private RagProperties ragProperties;
+
+    private OrtEnvironment environment;
+
+    private OrtSession session;
+
+    private HuggingFaceTokenizer tokenizer;
+
+    private boolean needsTokenTypeIds;
+
+    @PostConstruct
+    public void init() throws OrtException, IOException {
+        RagProperties.RerankConfig config = ragProperties.getRerank();
+        if (config.getOnnxModelPath() == null || config.getOnnxTokenizerPath() == null) {
+            throw new IllegalStateException("llm.rag.rerank.scorer=onnx 时必须配置 onnx-model-path 和 onnx-tokenizer-path");
+        }
+
+        Map<String, String> tokenizerOptions = new HashMap<>();
+        tokenizerOptions.put("maxLength", String.valueOf(config.getOnnxMaxLength()));
+        tokenizerOptions.put("truncation", "true");
+        tokenizerOptions.put("padding", "false");
+        tokenizer = HuggingFaceTokenizer.newInstance(Path.of(config.getOnnxTokenizerPath()), tokenizerOptions);
+
+        environment = OrtEnvironment.getEnvironment();
+        try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+            options.setIntraOpNumThreads(config.getOnnxThreads());
+            options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            session = environment.createSession(config.getOnnxModelPath(), options);
+        }
+        needsTokenTypeIds = session.getInputNames().contains("token_type_ids");
+        log.info("[OnnxCrossEncoderScorer] 交叉编码器加载完成: model={}, inputs={}",
+                config.getOnnxModelPath(), session.getInputNames());
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public double[] score(String query, List<Document> documents) {
+        double[] scores = new double[documents.size()];
+        int batchSize = Math.max(1, ragProperties.getRerank().getOnnxBatchSize());
+        for (int start = 0; start < documents.size(); start += batchSize) {
+            if (Thread.currentThread().isInterrupted()) {
+                // 超出延迟预算被取消，剩余批次不再推理
+                break;
+            }
+            List<Document> batch = documents.subList(start, Math.min(documents.size(), start + batchSize));
+            try {
+                float[] logits = infer(query, batch);
+                for (int i = 0; i < logits.length; i++) {
+                    scores[start + i] = logits[i];
+                }
+            } catch (OrtException e) {
+                throw new IllegalStateException("交叉编码器推理失败: " + e.getMessage(), e);
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * 一批（查询，文本块）推理，按批内最长序列补齐
+     */
+    private float[] infer(String query, List<Document> batch) throws OrtException {
+        Encoding[] encodings = new Encoding[batch.size()];
+        int maxLength = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            encodings[i] = tokenizer.encode(query, batch.get(i).getText());
+            maxLength = Math.max(maxLength, encodings[i].getIds().length);
+        }
+
+        long[][] inputIds = new long[batch.size()][maxLength];
+        long[][] attentionMask = new long[batch.size()][maxLength];
+        long[][] tokenTypeIds = new long[batch.size()][maxLength];
+        for (int i = 0; i < encodings.length; i++) {
+            long[] ids = encodings[i].getIds();
+            System.arraycopy(ids, 0, inputIds[i], 0, ids.length);
+            System.arraycopy(encodings[i].getAttentionMask(), 0, attentionMask[i], 0, ids.length);
+            System.arraycopy(encodings[i].getTypeIds(), 0, tokenTypeIds[i], 0, ids.length);
+        }
+
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put("input_ids", OnnxTensor.createTensor(environment, inputIds));
+            inputs.put("attention_mask", OnnxTensor.createTensor(environment, attentionMask));
+            if (needsTokenTypeIds) {
+                inputs.put("token_type_ids", OnnxTensor.createTensor(environment, tokenTypeIds));
+            }
+            try (OrtSession.Result result = session.run(inputs)) {
+                float[][] output = (float[][]) result.get(0).getValue();
+                float[] logits = new float[output.length];
+                for (int i = 0; i < output.length; i++) {
+                    // 单输出取 logit；二分类输出取“相关”一列
+                    logits[i] = output[i][output[i].length - 1];
+                }
+                return logits;
+            }
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() throws OrtException {
+        if (session != null) {
+            session.close();
+        }
+        if (tokenizer != null) {
+            tokenizer.close();
+        }
+    }
+}
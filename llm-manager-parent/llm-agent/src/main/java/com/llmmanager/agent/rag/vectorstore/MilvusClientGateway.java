@@ -0,0 +1,264 @@
+package com.llmmanager.agent.rag.vectorstore;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import io.milvus.client.MilvusServiceClient;
+import io.milvus.common.clientenum.ConsistencyLevelEnum;
+import io.milvus.grpc.DataType;
+import io.milvus.grpc.SearchResults;
+import io.milvus.param.IndexType;
+import io.milvus.param.MetricType;
+import io.milvus.param.R;
+import io.milvus.param.collection.CreateCollectionParam;
+import io.milvus.param.collection.DropCollectionParam;
+import io.milvus.param.collection.FieldType;
+import io.milvus.param.collection.FlushParam;
+import io.milvus.param.collection.HasCollectionParam;
+import io.milvus.param.collection.LoadCollectionParam;
+import io.milvus.param.collection.ReleaseCollectionParam;
+import io.milvus.param.dml.DeleteParam;
+import io.milvus.param.dml.InsertParam;
+import io.milvus.param.dml.SearchParam;
+import io.milvus.param.index.CreateIndexParam;
+import io.milvus.param.partition.CreatePartitionParam;
+import io.milvus.param.partition.DropPartitionParam;
+import io.milvus.param.partition.HasPartitionParam;
+import io.milvus.param.partition.LoadPartitionsParam;
+import io.milvus.param.partition.ReleasePartitionsParam;
+import io.milvus.response.QueryResultsWrapper;
+import io.milvus.response.SearchResultsWrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * 基于 milvus-sdk-java（MilvusServiceClient）的 MilvusGateway 实现
+ */
+public class MilvusClientGateway implements MilvusGateway {
+
+    /**
+     * doc_id 最大长度（Spring AI 创建的 Collection 为 36，新建 Collection 放宽到 64）
+     */
+    private static final int ID_MAX_LENGTH = 64;
+
+    private static final int CONTENT_MAX_LENGTH = 65535;
+
+    private static final Gson GSON = new Gson();
+
+    private final MilvusServiceClient client;
+    private final String databaseName;
+
+    public MilvusClientGateway(MilvusServiceClient client, String databaseName) {
+        this.client = Objects.requireNonNull(client, "client");
+        this.databaseName = databaseName;
+    }
+
+    @Override
+    public boolean hasCollection(String collection) {
+        R<Boolean> response = client.hasCollection(HasCollectionParam.newBuilder()
+                .withDatabaseName(databaseName)
+                .withCollectionName(collection)
+                .build());
+        return Boolean.TRUE.equals(check(response, "hasCollection " + collection));
+    }
+
+    @Override
+    public void createCollection(String collection, int dimensions, String indexType, String metricType,
+                                 String indexParams) {
+        check(client.createCollection(CreateCollectionParam.newBuilder()
+                .withDatabaseName(databaseName)
+                .withCollectionName(collection)
+                .withDescription("llm-manager knowledge base")
+                .withConsistencyLevel(ConsistencyLevelEnum.BOUNDED)
+                .withShardsNum(2)
+                .addFieldType(FieldType.newBuilder()
+                        .withName(ID_FIELD)
+                        .withDataType(DataType.VarChar)
+                        .withMaxLength(ID_MAX_LENGTH)
+                        .withPrimaryKey(true)
+                        .withAutoID(false)
+                        .build())
+                .addFieldType(FieldType.newBuilder()
+                        .withName(CONTENT_FIELD)
+                        .withDataType(DataType.VarChar)
+                        .withMaxLength(CONTENT_MAX_LENGTH)
+                        .build())
+                .addFieldType(FieldType.newBuilder()
+                        .withName(METADATA_FIELD)
+                        .withDataType(DataType.JSON)
+                        .build())
+                .addFieldType(FieldType.newBuilder()
+                        .withName(EMBEDDING_FIELD)
+                        .withDataType(DataType.FloatVector)
+                        .withDimension(dimensions)
+                        .build())
+                .build()), "createCollection " + collection);
+
+        check(client.createIndex(CreateIndexParam.newBuilder()
+                .withDatabaseName(databaseName)
+                .withCollectionName(collection)
+                .withFieldName(EMBEDDING_FIELD)
+                .withIndexType(IndexType.valueOf(indexType))
+                .withMetricType(MetricType.valueOf(metricType))
+                .withExtraParam(indexParams)
+                .withSyncMode(Boolean.FALSE)
+                .build()), "createIndex " + collection);
+
+        check(client.loadCollection(LoadCollectionParam.newBuilder()
+                .withDatabaseName(databaseName)
+                .withCollectionName(collection)
+                .build()), "loadCollection " + collection);
+    }
+
+    @Override
+    public void dropCollection(String collection) {
+        check(client.releaseCollection(ReleaseCollectionParam.newBuilder()
+                .withDatabaseName(databaseName)
+                .withCollectionName(collection)
+                .build()), "releaseCollection " + collection);
+        check(client.dropCollection(DropCollectionParam.newBuilder()
+                .withDatabaseName(databaseName)
+                .withCollectionName(collection)
+                .build()), "dropCollection " + collection);
+    }
+
+    @Override
+    public boolean hasPartition(String collection, String partition) {
+        R<Boolean> response = client.hasPartition(HasPartitionParam.newBuilder()
+                .withDatabaseName(databaseName)
+                .withCollectionName(collection)
+                .withPartitionName(partition)
+                .build());
+        return Boolean.TRUE.equals(check(response, "hasPartition " + collection + "/" + partition));
+    }
+
+    @Override
+    public void createPartition(String collection, String partition) {
+        check(client.createPartition(CreatePartitionParam.newBuilder()
+                .withDatabaseName(databaseName)
+                .withCollectionName(collection)
+                .withPartitionName(partition)
+                .build()), "createPartition " + collection + "/" + partition);
+        check(client.loadPartitions(LoadPartitionsParam.newBuilder()
+                .withDatabaseName(databaseName)
+                .withCollectionName(collection)
+                .addPartitionName(partition)
+                .build()), "loadPartitions " + collection + "/" + partition);
+    }
+
+    @Override
+    public void dropPartition(String collection, String partition) {
+        check(client.releasePartitions(ReleasePartitionsParam.newBuilder()
+                .withDatabaseName(databaseName)
+                .withCollectionName(collection)
+                .addPartitionName(partition)
+                .build()), "releasePartitions " + collection + "/" + partition);
+        check(client.dropPartition(DropPartitionParam.newBuilder()
+                .withDatabaseName(databaseName)
+                .withCollectionName(collection)
+                .withPartitionName(partition)
+                .build()), "dropPartition " + collection + "/" + partition);
+    }
+
+    @Override
+    public void insert(String collection, String partition, List<Row> rows) {
+        List<String> ids = new ArrayList<>(rows.size());
+        List<String> contents = new ArrayList<>(rows.size());
+        List<JsonObject> metadata = new ArrayList<>(rows.size());
+        List<List<Float>> embeddings = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            ids.add(row.id());
+            contents.add(row.content());
+            metadata.add(GSON.toJsonTree(row.metadata()).getAsJsonObject());
+            embeddings.add(toList(row.embedding()));
+        }
+
+        InsertParam.Builder builder = InsertParam.newBuilder()
+                .withDatabaseName(databaseName)
+                .withCollectionName(collection)
+                .withFields(List.of(
+                        new InsertParam.Field(ID_FIELD, ids),
+                        new InsertParam.Field(CONTENT_FIELD, contents),
+                        new InsertParam.Field(METADATA_FIELD, metadata),
+                        new InsertParam.Field(EMBEDDING_FIELD, embeddings)));
+        if (partition != null) {
+            builder.withPartitionName(partition);
+        }
+        check(client.insert(builder.build()), "insert " + collection);
+    }
+
+    @Override
+    public void delete(String collection, String partition, String expr) {
+        DeleteParam.Builder builder = DeleteParam.newBuilder()
+                .withDatabaseName(databaseName)
+                .withCollectionName(collection)
+                .withExpr(expr);
+        if (partition != null) {
+            builder.withPartitionName(partition);
+        }
+        check(client.delete(builder.build()), "delete " + collection);
+    }
+
+    @Override
+    public void flush(String collection) {
+        check(client.flush(FlushParam.newBuilder()
+                .withDatabaseName(databaseName)
+                .addCollectionName(collection)
+                .withSyncFlush(true)
+                .build()), "flush " + collection);
+    }
+
+    @Override
+    public List<Hit> search(SearchSpec spec) {
+        SearchParam.Builder builder = SearchParam.newBuilder()
+                .withDatabaseName(databaseName)
+                .withCollectionName(spec.collection())
+                .withVectorFieldName(EMBEDDING_FIELD)
+                .withVectors(List.of(toList(spec.vector())))
+                .withTopK(spec.topK())
+                .withMetricType(MetricType.valueOf(spec.metricType()))
+                .withConsistencyLevel(ConsistencyLevelEnum.valueOf(spec.consistencyLevel().toUpperCase(Locale.ROOT)))
+                .withOutFields(List.of(ID_FIELD, CONTENT_FIELD, METADATA_FIELD))
+                .withParams(spec.params());
+        if (spec.partitions() != null && !spec.partitions().isEmpty()) {
+            builder.withPartitionNames(spec.partitions());
+        }
+        if (spec.expr() != null && !spec.expr().isBlank()) {
+            builder.withExpr(spec.expr());
+        }
+
+        SearchResults results = check(client.search(builder.build()), "search " + spec.collection());
+        SearchResultsWrapper wrapper = new SearchResultsWrapper(results.getResults());
+        List<Hit> hits = new ArrayList<>();
+        for (QueryResultsWrapper.RowRecord record : wrapper.getRowRecords(0)) {
+            Object metadata = record.get(METADATA_FIELD);
+            hits.add(new Hit(
+                    String.valueOf(record.get(ID_FIELD)),
+                    (String) record.get(CONTENT_FIELD),
+                    metadata != null ? metadata.toString() : null,
+                    ((Number) record.get("distance")).floatValue()));
+        }
+        return hits;
+    }
+
+    private static List<Float> toList(float[] vector) {
+        List<Float> list = new ArrayList<>(vector.length);
+        for (float value : vector) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private static <T> T check(R<T> response, String action) {
+        if (response.getException() != null) {
+            throw new IllegalStateException("[MilvusClientGateway] " + action + " 失败: "
+                    + response.getException().getMessage(), response.getException());
+        }
+        if (response.getStatus() != null && response.getStatus() != R.Status.Success.getCode()) {
+            throw new IllegalStateException("[MilvusClientGateway] " + action + " 失败: status=" + response.getStatus());
+        }
+        return response.getData();
+    }
+}
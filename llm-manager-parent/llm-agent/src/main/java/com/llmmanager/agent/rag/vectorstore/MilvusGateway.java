@@ -0,0 +1,92 @@
+package com.llmmanager.agent.rag.vectorstore;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MilvusKnowledgeStore 使用的 Milvus 接口子集
+ *
+ * 只包含知识库存储用到的 RPC（Collection / Partition 管理、写入、删除、flush、search），
+ * 生产实现为 MilvusClientGateway（milvus-sdk-java），测试使用内存实现。
+ *
+ * Collection 字段与 Spring AI MilvusVectorStore 保持一致：doc_id / content / metadata(JSON) / embedding，
+ * 之前由 Spring AI 创建的 Collection 可直接复用。
+ */
+public interface MilvusGateway {
+
+    String ID_FIELD = "doc_id";
+    String CONTENT_FIELD = "content";
+    String METADATA_FIELD = "metadata";
+    String EMBEDDING_FIELD = "embedding";
+
+    boolean hasCollection(String collection);
+
+    /**
+     * 创建 Collection、向量索引并加载
+     */
+    void createCollection(String collection, int dimensions, String indexType, String metricType, String indexParams);
+
+    void dropCollection(String collection);
+
+    boolean hasPartition(String collection, String partition);
+
+    /**
+     * 创建 Partition 并加载
+     */
+    void createPartition(String collection, String partition);
+
+    /**
+     * 释放并删除 Partition（包含其中的全部数据）
+     */
+    void dropPartition(String collection, String partition);
+
+    /**
+     * 写入一批记录
+     *
+     * @param partition null 表示默认 Partition
+     */
+    void insert(String collection, String partition, List<Row> rows);
+
+    /**
+     * 按布尔表达式删除
+     */
+    void delete(String collection, String partition, String expr);
+
+    /**
+     * 同步 flush（数据落盘、封存 segment）
+     */
+    void flush(String collection);
+
+    /**
+     * 向量检索
+     */
+    List<Hit> search(SearchSpec spec);
+
+    /**
+     * 写入的记录
+     */
+    record Row(String id, String content, Map<String, Object> metadata, float[] embedding) {
+    }
+
+    /**
+     * 检索请求
+     *
+     * @param partitions       检索的 Partition（空表示整个 Collection）
+     * @param expr             标量过滤表达式（null 不过滤）
+     * @param params           检索参数 JSON（如 {"ef":64} / {"nprobe":16}）
+     * @param metricType       COSINE / IP / L2
+     * @param consistencyLevel STRONG / SESSION / BOUNDED / EVENTUALLY
+     */
+    record SearchSpec(String collection, List<String> partitions, float[] vector, int topK, String expr,
+                      String params, String metricType, String consistencyLevel) {
+    }
+
+    /**
+     * 检索结果
+     *
+     * @param metadataJson metadata 字段 JSON
+     * @param distance     Milvus 返回的距离 / 相似度（COSINE、IP 越大越相似，L2 越小越相似）
+     */
+    record Hit(String id, String content, String metadataJson, float distance) {
+    }
+}
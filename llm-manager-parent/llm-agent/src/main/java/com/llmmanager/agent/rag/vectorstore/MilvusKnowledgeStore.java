@@ -0,0 +1,278 @@
+package com.llmmanager.agent.rag.vectorstore;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.milvus.MilvusFilterExpressionConverter;
+import org.springframework.util.CollectionUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * 知识库 Milvus VectorStore（替代 Spring AI MilvusVectorStore 的默认读写路径）
+ *
+ * - 写入：按 insertBatchSize 分批 Embedding 并写入（每批一次 insert RPC），flushOnWrite 控制写入后是否同步 flush
+ * - 检索：consistencyLevel 和检索参数（HNSW ef / IVF nprobe）可按知识库配置
+ * - 共享 Collection：多个知识库共用一个 Collection，每个知识库一个 Partition，
+ *   多知识库检索通过 similaritySearch(request, partitions) 合并为一次带 partition_names 的 search 请求
+ *
+ * Collection 字段与 Spring AI MilvusVectorStore 相同（doc_id / content / metadata / embedding），可直接读写已有 Collection。
+ */
+@Slf4j
+public class MilvusKnowledgeStore implements VectorStore {
+
+    private static final Pattern SAFE_PARTITION_SUFFIX = Pattern.compile("^[0-9a-zA-Z_]{1,200}$");
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    /**
+     * 按 ID 删除时每批的 ID 数量（控制表达式长度）
+     */
+    private static final int DELETE_BATCH_SIZE = 500;
+
+    /**
+     * 写入与检索参数
+     *
+     * @param metricType       COSINE / IP / L2
+     * @param insertBatchSize  每次 insert RPC 的记录数
+     * @param flushOnWrite     add() 完成后是否同步 flush
+     * @param consistencyLevel 检索一致性级别：STRONG / SESSION / BOUNDED / EVENTUALLY
+     * @param searchParams     检索参数 JSON（如 {"ef":64}），ef 小于 topK 时自动提升到 topK
+     */
+    public record Settings(String metricType, int insertBatchSize, boolean flushOnWrite, String consistencyLevel,
+                           String searchParams) {
+    }
+
+    private final String name;
+    private final MilvusGateway gateway;
+    private final String collection;
+    private final String partition; // null 表示独立 Collection（默认 Partition）
+    private final boolean searchAllPartitions;
+    private final String kbCode;
+    private final EmbeddingModel embeddingModel;
+    private final ObjectMapper objectMapper;
+    private final Settings settings;
+    private final MilvusFilterExpressionConverter filterExpressionConverter = new MilvusFilterExpressionConverter();
+
+    /**
+     * @param partition           写入 / 删除 / 默认检索的 Partition，null 表示独立 Collection
+     * @param searchAllPartitions 默认检索整个 Collection（共享 Collection 的 _global 实例）
+     */
+    public MilvusKnowledgeStore(
+            MilvusGateway gateway,
+            String collection,
+            String partition,
+            boolean searchAllPartitions,
+            String kbCode,
+            EmbeddingModel embeddingModel,
+            ObjectMapper objectMapper,
+            Settings settings
+    ) {
+        this.gateway = Objects.requireNonNull(gateway, "gateway");
+        this.collection = Objects.requireNonNull(collection, "collection");
+        this.partition = partition;
+        this.searchAllPartitions = searchAllPartitions;
+        this.kbCode = kbCode;
+        this.embeddingModel = Objects.requireNonNull(embeddingModel, "embeddingModel");
+        this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper");
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.name = "milvus:" + collection + (partition != null ? (":" + partition) : "");
+    }
+
+    /**
+     * 知识库对应的 Partition 名（kb_ + kbCode，含特殊字符时使用哈希）
+     */
+    public static String partitionName(String kbCode) {
+        if (SAFE_PARTITION_SUFFIX.matcher(kbCode).matches()) {
+            return "kb_" + kbCode;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(kbCode.getBytes(StandardCharsets.UTF_8));
+            return "kb_" + HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        if (CollectionUtils.isEmpty(documents)) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        int batchSize = Math.max(1, settings.insertBatchSize());
+        for (int start = 0; start < documents.size(); start += batchSize) {
+            List<Document> batch = documents.subList(start, Math.min(documents.size(), start + batchSize));
+            List<float[]> embeddings = embeddingModel.embed(batch.stream().map(Document::getText).toList());
+            if (embeddings == null || embeddings.size() != batch.size()) {
+                throw new IllegalStateException("[MilvusKnowledgeStore] Embedding 结果数量与文档数量不一致");
+            }
+
+            List<MilvusGateway.Row> rows = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                Document document = batch.get(i);
+                Map<String, Object> metadata = new HashMap<>(document.getMetadata());
+                if (kbCode != null && !"_global".equals(kbCode)) {
+                    metadata.putIfAbsent("kbCode", kbCode);
+                }
+                rows.add(new MilvusGateway.Row(document.getId(), document.getText(), metadata, embeddings.get(i)));
+            }
+            gateway.insert(collection, partition, rows);
+        }
+        if (settings.flushOnWrite()) {
+            gateway.flush(collection);
+        }
+        log.debug("[MilvusKnowledgeStore] 写入向量: store={}, rows={}, batchSize={}, flush={}, costMs={}",
+                name, documents.size(), batchSize, settings.flushOnWrite(), System.currentTimeMillis() - startTime);
+    }
+
+    @Override
+    public void delete(List<String> ids) {
+        if (CollectionUtils.isEmpty(ids)) {
+            return;
+        }
+        for (int start = 0; start < ids.size(); start += DELETE_BATCH_SIZE) {
+            List<String> batch = ids.subList(start, Math.min(ids.size(), start + DELETE_BATCH_SIZE));
+            StringBuilder expr = new StringBuilder(MilvusGateway.ID_FIELD).append(" in [");
+            for (int i = 0; i < batch.size(); i++) {
+                if (i > 0) {
+                    expr.append(',');
+                }
+                expr.append('"').append(batch.get(i).replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            }
+            gateway.delete(collection, partition, expr.append(']').toString());
+        }
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        if (filterExpression == null) {
+            return;
+        }
+        gateway.delete(collection, partition, filterExpressionConverter.convertExpression(filterExpression));
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        List<String> partitions = searchAllPartitions || partition == null ? List.of() : List.of(partition);
+        return similaritySearch(request, partitions);
+    }
+
+    /**
+     * 在指定 Partition 中检索（共享 Collection 的多知识库检索，一次 search 请求）
+     *
+     * @param partitions 空表示整个 Collection
+     */
+    public List<Document> similaritySearch(SearchRequest request, List<String> partitions) {
+        if (request == null || request.getQuery() == null || request.getQuery().isBlank()) {
+            return List.of();
+        }
+
+        int topK = request.getTopK() > 0 ? request.getTopK() : SearchRequest.DEFAULT_TOP_K;
+        String expr = request.hasFilterExpression()
+                ? filterExpressionConverter.convertExpression(request.getFilterExpression())
+                : null;
+        float[] queryEmbedding = embeddingModel.embed(request.getQuery());
+
+        List<MilvusGateway.Hit> hits = gateway.search(new MilvusGateway.SearchSpec(collection, partitions,
+                queryEmbedding, topK, expr, searchParams(topK), settings.metricType(), settings.consistencyLevel()));
+
+        List<Document> documents = new ArrayList<>(hits.size());
+        for (MilvusGateway.Hit hit : hits) {
+            double score = "L2".equals(settings.metricType()) ? 1.0d - hit.distance() : hit.distance();
+            if (score < request.getSimilarityThreshold()) {
+                continue;
+            }
+            Map<String, Object> metadata = parseJsonMap(hit.metadataJson());
+            // 兼容现有 MultiKbDocumentRetriever：按 metadata.score(Float) 排序
+            metadata.put("score", (float) score);
+            metadata.put("distance", hit.distance());
+            documents.add(Document.builder()
+                    .id(hit.id())
+                    .text(hit.content())
+                    .metadata(metadata)
+                    .score(score)
+                    .build());
+        }
+        return documents;
+    }
+
+    /**
+     * 检索参数：HNSW 的 ef 不能小于 topK
+     */
+    private String searchParams(int topK) {
+        String params = settings.searchParams();
+        if (params == null || params.isBlank()) {
+            return "{}";
+        }
+        try {
+            Map<String, Object> map = objectMapper.readValue(params, MAP_TYPE);
+            Object ef = map.get("ef");
+            if (ef instanceof Number number && number.intValue() < topK) {
+                Map<String, Object> adjusted = new LinkedHashMap<>(map);
+                adjusted.put("ef", topK);
+                return objectMapper.writeValueAsString(adjusted);
+            }
+            return params;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("[MilvusKnowledgeStore] 非法的检索参数: " + params, e);
+        }
+    }
+
+    private Map<String, Object> parseJsonMap(String json) {
+        if (json == null || json.isBlank()) {
+            return new HashMap<>();
+        }
+        try {
+            return objectMapper.readValue(json, MAP_TYPE);
+        } catch (Exception e) {
+            log.warn("[MilvusKnowledgeStore] metadata 解析失败，将忽略 metadata: {}", e.getMessage());
+            return new HashMap<>();
+        }
+    }
+
+    @Override
+    public <T> Optional<T> getNativeClient() {
+        @SuppressWarnings("unchecked")
+        T nativeClient = (T) gateway;
+        return Optional.of(nativeClient);
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public String getPartition() {
+        return partition;
+    }
+
+    /**
+     * 一致性级别名规范化（大写）
+     */
+    public static String normalizeConsistencyLevel(String level) {
+        return level == null || level.isBlank() ? "BOUNDED" : level.trim().toUpperCase(Locale.ROOT);
+    }
+}
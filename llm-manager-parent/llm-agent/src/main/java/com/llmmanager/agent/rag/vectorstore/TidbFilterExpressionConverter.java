@@ -0,0 +1,254 @@
+package com.llmmanager.agent.rag.vectorstore;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 将 Spring AI Filter.Expression 编译为 TiDB(MySQL) WHERE 子句
+ *
+ * 支持 AND / OR / NOT / EQ / NE / GT / GTE / LT / LTE / IN / NIN / ISNULL / ISNOTNULL：
+ * - 已声明索引列的 metadata key（见 TidbMetadataColumns）直接比较生成列，可走 (kb_code, 生成列) 二级索引，
+ *   在计算向量距离之前先缩小候选行
+ * - 其他 key 比较 JSON_EXTRACT(metadata, ...)：字符串 / 日期按 JSON_UNQUOTE 后的字符串比较，数字按 JSON 数值比较
+ *
+ * 与 SimpleVectorStore 的语义保持一致：NE / NIN 对缺少该 key 的记录视为满足条件。
+ * 日期值格式化为 ISO-8601（UTC）字符串比较，要求 metadata 中的日期同样以 ISO-8601 字符串存储。
+ */
+public final class TidbFilterExpressionConverter {
+
+    private static final Pattern SAFE_METADATA_KEY = Pattern.compile("^[0-9a-zA-Z_]+(\\.[0-9a-zA-Z_]+)*$");
+
+    /**
+     * 生成列为 VARCHAR(255)，超出长度的字符串值不能用生成列比较
+     */
+    static final int MAX_INDEXED_STRING_LENGTH = 255;
+
+    /**
+     * 生成列类型
+     */
+    public enum ColumnType {
+        STRING,
+        NUMBER
+    }
+
+    /**
+     * metadata key 对应的生成列
+     *
+     * @param column 列名
+     * @param type   列类型
+     */
+    public record FilterColumn(String column, ColumnType type) {
+    }
+
+    /**
+     * Key: metadata key
+     */
+    private final Map<String, FilterColumn> columns;
+
+    public TidbFilterExpressionConverter(Map<String, FilterColumn> columns) {
+        this.columns = columns != null ? columns : Map.of();
+    }
+
+    /**
+     * 编译过滤表达式
+     *
+     * @param operand 过滤表达式
+     * @param params  按占位符顺序追加的参数
+     * @return WHERE 子句（不含 WHERE），无条件时返回 null
+     */
+    public String convert(Filter.Operand operand, List<Object> params) {
+        if (operand == null) {
+            return null;
+        }
+        if (operand instanceof Filter.Group group) {
+            return convert(group.content(), params);
+        }
+        if (!(operand instanceof Filter.Expression expression)) {
+            throw new UnsupportedOperationException("不支持的过滤操作数类型: " + operand.getClass());
+        }
+
+        return switch (expression.type()) {
+            case AND, OR -> {
+                String left = convert(expression.left(), params);
+                String right = convert(expression.right(), params);
+                if (left == null || left.isBlank()) {
+                    yield right;
+                }
+                if (right == null || right.isBlank()) {
+                    yield left;
+                }
+                yield "(" + left + " " + expression.type().name() + " " + right + ")";
+            }
+            case NOT -> {
+                String inner = convert(expression.left(), params);
+                if (inner == null || inner.isBlank()) {
+                    yield null;
+                }
+                yield "NOT (" + inner + ")";
+            }
+            case EQ, NE, GT, GTE, LT, LTE -> comparison(expression, params);
+            case IN, NIN -> membership(expression, params);
+            // ISNULL / ISNOTNULL 按名称匹配，兼容未定义这两个类型的 Spring AI 版本
+            default -> switch (expression.type().name()) {
+                case "ISNULL" -> jsonPathSql(requireKey(expression.left())) + " IS NULL";
+                case "ISNOTNULL" -> jsonPathSql(requireKey(expression.left())) + " IS NOT NULL";
+                default -> throw new UnsupportedOperationException("不支持的过滤表达式类型: " + expression.type());
+            };
+        };
+    }
+
+    private String comparison(Filter.Expression expression, List<Object> params) {
+        Filter.ExpressionType type = expression.type();
+        String key;
+        Object value;
+        if (expression.left() instanceof Filter.Key k && expression.right() instanceof Filter.Value v) {
+            key = k.key();
+            value = v.value();
+        } else if (expression.left() instanceof Filter.Value v && expression.right() instanceof Filter.Key k) {
+            // 值在左侧：翻转比较方向
+            key = k.key();
+            value = v.value();
+            type = switch (type) {
+                case GT -> Filter.ExpressionType.LT;
+                case GTE -> Filter.ExpressionType.LTE;
+                case LT -> Filter.ExpressionType.GT;
+                case LTE -> Filter.ExpressionType.GTE;
+                default -> type;
+            };
+        } else {
+            throw new UnsupportedOperationException("不支持的比较操作数: " + expression);
+        }
+
+        String operator = switch (type) {
+            case EQ -> "=";
+            case NE -> "!=";
+            case GT -> ">";
+            case GTE -> ">=";
+            case LT -> "<";
+            default -> "<=";
+        };
+
+        if (value == null) {
+            // 与 null 比较：EQ 视为 IS NULL，NE 视为 IS NOT NULL
+            String path = jsonPathSql(normalizeKey(key));
+            return type == Filter.ExpressionType.NE ? path + " IS NOT NULL" : path + " IS NULL";
+        }
+
+        Object normalized = normalizeValue(value);
+        String operandSql = operandSql(normalizeKey(key), normalized);
+        params.add(parameter(normalized));
+        String placeholder = normalized instanceof Boolean ? "CAST(? AS JSON)" : "?";
+        String condition = operandSql + " " + operator + " " + placeholder;
+        if (type == Filter.ExpressionType.NE) {
+            return "(" + operandSql + " IS NULL OR " + condition + ")";
+        }
+        return condition;
+    }
+
+    private String membership(Filter.Expression expression, List<Object> params) {
+        if (!(expression.left() instanceof Filter.Key k) || !(expression.right() instanceof Filter.Value v)) {
+            throw new UnsupportedOperationException("不支持的 IN/NIN 操作数: " + expression);
+        }
+        boolean negate = expression.type() == Filter.ExpressionType.NIN;
+
+        Collection<?> values = v.value() instanceof Collection<?> collection ? collection : List.of(v.value());
+        if (values.isEmpty()) {
+            return negate ? "1=1" : "1=0";
+        }
+
+        // 按第一个值的类型决定比较方式（要求列表内类型一致）
+        Object first = normalizeValue(values.iterator().next());
+        String operandSql = operandSql(normalizeKey(k.key()), first);
+        String placeholder = first instanceof Boolean ? "CAST(? AS JSON)" : "?";
+
+        StringBuilder sql = new StringBuilder();
+        for (Object item : values) {
+            Object normalized = normalizeValue(item);
+            if (sql.length() > 0) {
+                sql.append(',');
+            }
+            sql.append(placeholder);
+            params.add(parameter(normalized));
+        }
+
+        String condition = operandSql + (negate ? " NOT IN (" : " IN (") + sql + ")";
+        return negate ? "(" + operandSql + " IS NULL OR " + condition + ")" : condition;
+    }
+
+    /**
+     * 比较左侧：优先使用类型匹配的生成列，否则使用 JSON 路径表达式
+     */
+    private String operandSql(String key, Object value) {
+        FilterColumn column = columns.get(key);
+        if (value instanceof Number) {
+            if (column != null && column.type() == ColumnType.NUMBER) {
+                return column.column();
+            }
+            return jsonPathSql(key);
+        }
+        if (value instanceof Boolean) {
+            return jsonPathSql(key);
+        }
+        if (column != null && column.type() == ColumnType.STRING
+                && String.valueOf(value).length() < MAX_INDEXED_STRING_LENGTH) {
+            return column.column();
+        }
+        return "JSON_UNQUOTE(" + jsonPathSql(key) + ")";
+    }
+
+    private static Object parameter(Object value) {
+        if (value instanceof Number || value instanceof String) {
+            return value;
+        }
+        return String.valueOf(value);
+    }
+
+    private static Object normalizeValue(Object value) {
+        if (value instanceof Date date) {
+            return DateTimeFormatter.ISO_INSTANT.format(date.toInstant());
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof String) {
+            return value;
+        }
+        return String.valueOf(value);
+    }
+
+    private static String requireKey(Filter.Operand operand) {
+        if (operand instanceof Filter.Key key) {
+            return normalizeKey(key.key());
+        }
+        throw new UnsupportedOperationException("ISNULL/ISNOTNULL 操作数必须是 metadata key: " + operand);
+    }
+
+    /**
+     * 去掉过滤表达式文本中 key 两侧的引号并校验（仅允许字母/数字/下划线，"." 表示嵌套字段）
+     */
+    static String normalizeKey(String key) {
+        if (key == null || key.isBlank()) {
+            throw new IllegalArgumentException("metadata key 为空");
+        }
+        String normalized = key.trim();
+        if (normalized.length() > 1 && (normalized.startsWith("'") && normalized.endsWith("'")
+                || normalized.startsWith("\"") && normalized.endsWith("\""))) {
+            normalized = normalized.substring(1, normalized.length() - 1);
+        }
+        if (!SAFE_METADATA_KEY.matcher(normalized).matches()) {
+            throw new IllegalArgumentException("metadata key 含非法字符（仅允许字母/数字/下划线）: " + key);
+        }
+        return normalized;
+    }
+
+    static String jsonPathSql(String key) {
+        StringBuilder path = new StringBuilder("$");
+        for (String part : key.split("\\.")) {
+            path.append(".\"").append(part).append('"');
+        }
+        return "JSON_EXTRACT(metadata, '" + path + "')";
+    }
+}
@@ -0,0 +1,193 @@
+package com.llmmanager.agent.rag.vectorstore;
+
+import com.llmmanager.agent.rag.vectorstore.TidbFilterExpressionConverter.ColumnType;
+import com.llmmanager.agent.rag.vectorstore.TidbFilterExpressionConverter.FilterColumn;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * 向量表上常用过滤 metadata key 的生成列与二级索引
+ *
+ * 每个声明的 key 对应一个虚拟生成列（不占存储）和 (kb_code, 生成列) 联合索引：
+ * <pre>
+ * m_doctype VARCHAR(255) AS (LEFT(JSON_UNQUOTE(JSON_EXTRACT(metadata, '$."docType"')), 255)) VIRTUAL COMMENT 'metadata:docType'
+ * INDEX idx_m_doctype (kb_code, m_doctype)
+ * </pre>
+ * 生成列在整张表上生效，列注释记录原始 key（JSON key 区分大小写，列名不区分）；
+ * 不同 key 映射到同一列名时（userId / userid、a.b / a__b），后创建的列追加 key 的哈希后缀。
+ * 过滤条件命中生成列时，TiDB 先走二级索引缩小候选行，再只对这些行计算向量距离并排序。
+ *
+ * NUMBER 类型的 key 在所有记录中都必须是数字（或缺失），否则写入时类型转换失败。
+ */
+@Slf4j
+public class TidbMetadataColumns {
+
+    static final String COLUMN_PREFIX = "m_";
+
+    private static final String COMMENT_PREFIX = "metadata:";
+
+    /**
+     * MySQL / TiDB 标识符长度上限
+     */
+    private static final int MAX_IDENTIFIER_LENGTH = 64;
+
+    private final String tableName;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 当前表上已有的生成列（Key: metadata key）
+     */
+    private volatile Map<String, FilterColumn> columns = Map.of();
+
+    /**
+     * reload / ensure 串行执行；持锁期间查询 information_schema 或 ALTER TABLE，使用 ReentrantLock 避免钉住虚拟线程
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public TidbMetadataColumns(String tableName, JdbcTemplate jdbcTemplate) {
+        this.tableName = Objects.requireNonNull(tableName, "tableName");
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate, "jdbcTemplate");
+    }
+
+    /**
+     * 当前可用于过滤下推的生成列
+     */
+    public Map<String, FilterColumn> current() {
+        return columns;
+    }
+
+    /**
+     * 从 information_schema 重新加载已有的生成列
+     */
+    public Map<String, FilterColumn> reload() {
+        lock.lock();
+        try {
+            return doReload();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<String, FilterColumn> doReload() {
+        Map<String, FilterColumn> loaded = new HashMap<>();
+        jdbcTemplate.query("SELECT COLUMN_NAME, DATA_TYPE, COLUMN_COMMENT FROM information_schema.COLUMNS"
+                        + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME LIKE 'm\\_%'",
+                rs -> {
+                    String comment = rs.getString("COLUMN_COMMENT");
+                    if (comment == null || !comment.startsWith(COMMENT_PREFIX)) {
+                        return;
+                    }
+                    String key = comment.substring(COMMENT_PREFIX.length());
+                    String dataType = rs.getString("DATA_TYPE").toLowerCase(Locale.ROOT);
+                    ColumnType type = "varchar".equals(dataType) ? ColumnType.STRING : ColumnType.NUMBER;
+                    loaded.put(key, new FilterColumn(rs.getString("COLUMN_NAME"), type));
+                }, tableName);
+        columns = Map.copyOf(loaded);
+        return columns;
+    }
+
+    /**
+     * 确保声明的 key 都有生成列和索引（缺失时在线 ALTER TABLE 创建），返回最新的生成列
+     *
+     * @param declared Key: metadata key，Value: 列类型
+     */
+    public Map<String, FilterColumn> ensure(Map<String, ColumnType> declared) {
+        lock.lock();
+        try {
+            return doEnsure(declared);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<String, FilterColumn> doEnsure(Map<String, ColumnType> declared) {
+        Map<String, FilterColumn> existing = doReload();
+        if (declared == null || declared.isEmpty()) {
+            return existing;
+        }
+
+        // 已占用的列名（列名不区分大小写），用于发现不同 key 映射到同一列名的冲突
+        Set<String> takenNames = new HashSet<>();
+        existing.values().forEach(column -> takenNames.add(column.column().toLowerCase(Locale.ROOT)));
+        Set<String> handledKeys = new HashSet<>();
+
+        boolean changed = false;
+        for (Map.Entry<String, ColumnType> entry : declared.entrySet()) {
+            String key = TidbFilterExpressionConverter.normalizeKey(entry.getKey());
+            if (!handledKeys.add(key)) {
+                continue;
+            }
+            FilterColumn column = existing.get(key);
+            if (column != null) {
+                if (column.type() != entry.getValue()) {
+                    log.warn("[TidbMetadataColumns] 生成列类型与声明不一致，保留现有列: key={}, column={}, existing={}, declared={}",
+                            key, column.column(), column.type(), entry.getValue());
+                }
+                continue;
+            }
+            String columnName = columnName(key);
+            if (!takenNames.add(columnName)) {
+                // userId / userid、a.b / a__b 等 key 映射到同一列名：加 key 的哈希后缀区分（原始 key 以列注释为准）
+                String suffixed = columnName(key, true);
+                log.warn("[TidbMetadataColumns] 生成列名冲突，改用带哈希后缀的列名: key={}, column={}, renamed={}",
+                        key, columnName, suffixed);
+                columnName = suffixed;
+                if (!takenNames.add(columnName)) {
+                    throw new IllegalStateException("metadata key 生成列名冲突: " + key + " -> " + columnName);
+                }
+            }
+            addColumn(key, columnName, entry.getValue());
+            changed = true;
+        }
+        return changed ? doReload() : existing;
+    }
+
+    private void addColumn(String key, String columnName, ColumnType type) {
+        String jsonPath = TidbFilterExpressionConverter.jsonPathSql(key);
+        String definition = type == ColumnType.STRING
+                ? "VARCHAR(" + TidbFilterExpressionConverter.MAX_INDEXED_STRING_LENGTH + ") AS (LEFT(JSON_UNQUOTE("
+                        + jsonPath + "), " + TidbFilterExpressionConverter.MAX_INDEXED_STRING_LENGTH + "))"
+                : "DOUBLE AS (CAST(" + jsonPath + " AS DOUBLE))";
+
+        long startTime = System.currentTimeMillis();
+        jdbcTemplate.execute("ALTER TABLE " + tableName + " ADD COLUMN " + columnName + " " + definition
+                + " VIRTUAL COMMENT '" + COMMENT_PREFIX + key + "'");
+        jdbcTemplate.execute("ALTER TABLE " + tableName + " ADD INDEX idx_" + columnName
+                + " (kb_code, " + columnName + ")");
+        log.info("[TidbMetadataColumns] 创建过滤生成列和索引: table={}, key={}, column={}, type={}, costMs={}",
+                tableName, key, columnName, type, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 生成列名：m_ + 小写 key（嵌套字段的 "." 替换为 "__"），索引名再加 idx_ 前缀，需在 64 字符以内
+     */
+    static String columnName(String key) {
+        return columnName(key, false);
+    }
+
+    /**
+     * 生成列名；withHash 为 true 时追加原始 key（区分大小写）的 CRC32 后缀，用于区分映射到同一列名的不同 key
+     */
+    static String columnName(String key, boolean withHash) {
+        String columnName = COLUMN_PREFIX + key.toLowerCase(Locale.ROOT).replace(".", "__");
+        if (withHash) {
+            CRC32 crc = new CRC32();
+            crc.update(key.getBytes(StandardCharsets.UTF_8));
+            columnName += String.format("_%08x", crc.getValue());
+        }
+        if (("idx_" + columnName).length() > MAX_IDENTIFIER_LENGTH) {
+            throw new IllegalArgumentException("metadata key 过长，无法创建生成列: " + key);
+        }
+        return columnName;
+    }
+}
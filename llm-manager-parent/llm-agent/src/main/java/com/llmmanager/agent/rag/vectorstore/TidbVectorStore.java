@@ -2,6 +2,9 @@ package com.llmmanager.agent.rag.vectorstore;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmmanager.agent.rag.config.RagProperties;
+import com.llmmanager.agent.rag.quantization.QuantizedVectorIndex;
+import com.llmmanager.agent.rag.quantization.QuantizedVectorStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.embedding.EmbeddingModel;
@@ -11,13 +14,25 @@ import org.springframework.ai.vectorstore.filter.Filter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.util.CollectionUtils;
 
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 
 /**
@@ -26,14 +41,36 @@ import java.util.regex.Pattern;
  * 基于 TiDB 原生向量类型与距离函数：
  * - VECTOR(D) 列存储 Embedding 向量
  * - VEC_COSINE_DISTANCE(embedding, '[...]') 进行相似度检索
+ * - 元数据过滤编译为 SQL（TidbFilterExpressionConverter），常用过滤 key 可声明生成列和索引（TidbMetadataColumns）
+ * - 可选向量量化（llm.rag.quantization）：本节点维护知识库的量化字节码索引，无过滤条件的检索先在本地取
+ *   topK * rescoreMultiplier 个候选，再只对候选计算 VEC_COSINE_DISTANCE 精确重排（适用于未使用 TiFlash 向量索引、
+ *   距离计算为全表扫描的部署）。索引按 update_time 增量同步，其他节点写入的向量在同步间隔内可见
  *
  * 表结构参考：db/schema_vector.sql
  */
 @Slf4j
-public class TidbVectorStore implements VectorStore {
+public class TidbVectorStore implements VectorStore, QuantizedVectorStore {
 
     private static final Pattern SAFE_IDENTIFIER = Pattern.compile("^[0-9a-zA-Z_]+$");
-    private static final Pattern SAFE_METADATA_KEY = Pattern.compile("^[0-9a-zA-Z_]+$");
+
+    /**
+     * 增量同步每页行数
+     */
+    private static final int SYNC_BATCH_SIZE = 1000;
+
+    /**
+     * 增量同步回看时间（DATETIME 秒级精度 + 事务提交延迟，重复处理是幂等的）
+     */
+    private static final long SYNC_OVERLAP_MS = 10_000L;
+
+    /**
+     * 量化索引训练 / 同步线程（所有知识库共用，避免同时对数据库发起多个全量扫描）
+     */
+    private static final ExecutorService QUANTIZATION_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "tidb-quantized-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
 
@@ -43,6 +80,18 @@ public class TidbVectorStore implements VectorStore {
     private final JdbcTemplate jdbcTemplate;
     private final EmbeddingModel embeddingModel;
     private final ObjectMapper objectMapper;
+    private final TidbMetadataColumns metadataColumns; // null 表示过滤条件全部比较 metadata JSON
+    private final QuantizedVectorIndex quantizedIndex; // null 表示未启用量化
+    private final RagProperties.QuantizationConfig quantization;
+
+    private final ReentrantLock quantizationLock = new ReentrantLock();
+    private final AtomicBoolean quantizationSyncing = new AtomicBoolean();
+    private volatile long lastSyncAt;
+
+    /**
+     * 量化索引已完成全量同步，可用于检索
+     */
+    private volatile boolean quantizedReady;
 
     public TidbVectorStore(
             String tableName,
@@ -51,6 +100,39 @@ public class TidbVectorStore implements VectorStore {
             EmbeddingModel embeddingModel,
             ObjectMapper objectMapper
     ) {
+        this(tableName, kbCodeFilter, jdbcTemplate, embeddingModel, objectMapper, null);
+    }
+
+    public TidbVectorStore(
+            String tableName,
+            String kbCodeFilter,
+            JdbcTemplate jdbcTemplate,
+            EmbeddingModel embeddingModel,
+            ObjectMapper objectMapper,
+            TidbMetadataColumns metadataColumns
+    ) {
+        this(tableName, kbCodeFilter, jdbcTemplate, embeddingModel, objectMapper, metadataColumns, null, null);
+    }
+
+    /**
+     * @param quantizedIndex 知识库的量化索引（不保存全精度向量），仅对指定 kbCodeFilter 的实例生效
+     * @param quantization   量化配置
+     */
+    public TidbVectorStore(
+            String tableName,
+            String kbCodeFilter,
+            JdbcTemplate jdbcTemplate,
+            EmbeddingModel embeddingModel,
+            ObjectMapper objectMapper,
+            TidbMetadataColumns metadataColumns,
+            QuantizedVectorIndex quantizedIndex,
+            RagProperties.QuantizationConfig quantization
+    ) {
+        this.metadataColumns = metadataColumns;
+        this.quantizedIndex = kbCodeFilter != null ? quantizedIndex : null;
+        this.quantization = quantization;
+        this.quantizedReady = this.quantizedIndex != null && this.quantizedIndex.isTrained()
+                && this.quantizedIndex.getWatermark() > 0;
         this.tableName = requireSafeIdentifier(tableName, "tableName");
         this.kbCodeFilter = kbCodeFilter;
         this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate, "jdbcTemplate");
@@ -79,10 +161,13 @@ public class TidbVectorStore implements VectorStore {
             throw new IllegalStateException("[TidbVectorStore] Embedding 结果数量与文档数量不一致");
         }
 
-        // 批量插入
+        // 批量写入：vector_id 由内容哈希生成，重复入库（含已软删除的记录）时覆盖原记录
         String sql = "INSERT INTO " + tableName
-                + " (vector_id, kb_code, doc_code, chunk_index, content, embedding, metadata, is_delete)"
-                + " VALUES (?, ?, ?, ?, ?, ?, ?, 0)";
+                + " (vector_id, kb_code, doc_code, chunk_index, content_hash, content, embedding, metadata, is_delete)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)"
+                + " ON DUPLICATE KEY UPDATE kb_code=VALUES(kb_code), doc_code=VALUES(doc_code),"
+                + " chunk_index=VALUES(chunk_index), content_hash=VALUES(content_hash), content=VALUES(content),"
+                + " embedding=VALUES(embedding), metadata=VALUES(metadata), is_delete=0, update_time=CURRENT_TIMESTAMP";
 
         List<Object[]> batchArgs = new ArrayList<>(documents.size());
         for (int i = 0; i < documents.size(); i++) {
@@ -92,7 +177,9 @@ public class TidbVectorStore implements VectorStore {
             String vectorId = document.getId();
             String kbCode = resolveKbCode(document);
             String docCode = resolveMetadataString(document, "docCode");
-            Integer chunkIndex = i;
+            String chunkIndexText = resolveMetadataString(document, "chunkIndex");
+            Integer chunkIndex = chunkIndexText != null ? Integer.valueOf(chunkIndexText) : i;
+            String contentHash = resolveMetadataString(document, "contentHash");
             String content = document.getText();
             String embeddingText = toVectorText(embedding);
             String metadataJson = toJson(document.getMetadata());
@@ -102,6 +189,7 @@ public class TidbVectorStore implements VectorStore {
                     kbCode,
                     docCode,
                     chunkIndex,
+                    contentHash,
                     content,
                     embeddingText,
                     metadataJson
@@ -109,9 +197,56 @@ public class TidbVectorStore implements VectorStore {
         }
 
         jdbcTemplate.batchUpdate(sql, batchArgs);
+        if (quantizedIndex != null && quantizedIndex.isTrained()) {
+            for (int i = 0; i < documents.size(); i++) {
+                quantizedIndex.put(documents.get(i).getId(), embeddings.get(i));
+            }
+        }
         log.debug("[TidbVectorStore] 插入向量: table={}, kbCodeFilter={}, rows={}", tableName, kbCodeFilter, documents.size());
     }
 
+    /**
+     * 查询文档当前的全部向量 ID（增量重建索引时与新分块比对）
+     */
+    public Set<String> listVectorIds(String docCode) {
+        String sql = "SELECT vector_id FROM " + tableName
+                + " WHERE is_delete=0 AND doc_code=?"
+                + (kbCodeFilter != null ? " AND kb_code=?" : "");
+        Object[] params = kbCodeFilter != null ? new Object[] {docCode, kbCodeFilter} : new Object[] {docCode};
+        return new HashSet<>(jdbcTemplate.queryForList(sql, String.class, params));
+    }
+
+    /**
+     * 按内容哈希查询已有向量（同一内容的文本块复用向量，不再请求 Embedding 服务）
+     *
+     * @return Key: contentHash，Value: 向量
+     */
+    public Map<String, float[]> findEmbeddingsByContentHash(Collection<String> contentHashes) {
+        Map<String, float[]> result = new HashMap<>();
+        if (CollectionUtils.isEmpty(contentHashes)) {
+            return result;
+        }
+
+        List<String> hashes = new ArrayList<>(contentHashes);
+        final int batchSize = 200;
+        for (int start = 0; start < hashes.size(); start += batchSize) {
+            List<String> batch = hashes.subList(start, Math.min(hashes.size(), start + batchSize));
+            String placeholders = String.join(",", Collections.nCopies(batch.size(), "?"));
+            String sql = "SELECT content_hash, embedding FROM " + tableName
+                    + " WHERE is_delete=0 AND content_hash IN (" + placeholders + ")"
+                    + (kbCodeFilter != null ? " AND kb_code=?" : "");
+
+            List<Object> params = new ArrayList<>(batch);
+            if (kbCodeFilter != null) {
+                params.add(kbCodeFilter);
+            }
+            jdbcTemplate.query(sql, rs -> {
+                result.putIfAbsent(rs.getString("content_hash"), parseVectorText(rs.getString("embedding")));
+            }, params.toArray());
+        }
+        return result;
+    }
+
     @Override
     public void delete(List<String> ids) {
         if (CollectionUtils.isEmpty(ids)) {
@@ -134,6 +269,9 @@ public class TidbVectorStore implements VectorStore {
                 params.add(kbCodeFilter);
             }
             jdbcTemplate.update(sql, params.toArray());
+            if (quantizedIndex != null) {
+                quantizedIndex.remove(batch);
+            }
         }
     }
 
@@ -160,6 +298,8 @@ public class TidbVectorStore implements VectorStore {
         }
 
         jdbcTemplate.update(sql, params.toArray());
+        // 删除的向量 ID 未知，下次检索时提前增量同步
+        lastSyncAt = 0;
     }
 
     @Override
@@ -173,6 +313,12 @@ public class TidbVectorStore implements VectorStore {
         double threshold = request.getSimilarityThreshold();
 
         float[] queryEmbedding = embeddingModel.embed(query);
+        if (quantizedIndex != null && !request.hasFilterExpression()) {
+            List<Document> quantized = quantizedSearch(queryEmbedding, topK, threshold);
+            if (quantized != null) {
+                return quantized;
+            }
+        }
         String queryVectorText = toVectorText(queryEmbedding);
 
         String distanceExpr = "VEC_COSINE_DISTANCE(embedding, ?)";
@@ -192,7 +338,7 @@ public class TidbVectorStore implements VectorStore {
             params.add(kbCodeFilter);
         }
 
-        // 元数据过滤
+        // 元数据过滤：与 kb_code 一起放在 WHERE 中，命中生成列索引时先缩小候选行再计算距离排序
         if (request.hasFilterExpression()) {
             List<Object> filterParams = new ArrayList<>();
             String where = buildFilterSql(request.getFilterExpression(), filterParams);
@@ -215,44 +361,253 @@ public class TidbVectorStore implements VectorStore {
         params.add(queryVectorText);
         params.add(topK);
 
-        return jdbcTemplate.query(sql.toString(), params.toArray(), (rs, rowNum) -> {
-            String vectorId = rs.getString("vector_id");
-            String content = rs.getString("content");
-            String metadataJson = rs.getString("metadata");
-            double distance = rs.getDouble("distance");
-            double score = 1.0d - distance;
+        return jdbcTemplate.query(sql.toString(), params.toArray(), (rs, rowNum) -> mapDocument(rs));
+    }
 
-            Map<String, Object> metadata = parseJsonMap(metadataJson);
-            if (metadata == null) {
-                metadata = new HashMap<>();
-            }
+    private Document mapDocument(ResultSet rs) throws SQLException {
+        String vectorId = rs.getString("vector_id");
+        String content = rs.getString("content");
+        String metadataJson = rs.getString("metadata");
+        double distance = rs.getDouble("distance");
+        double score = 1.0d - distance;
+
+        Map<String, Object> metadata = parseJsonMap(metadataJson);
+        if (metadata == null) {
+            metadata = new HashMap<>();
+        }
+
+        String kbCode = rs.getString("kb_code");
+        String docCode = rs.getString("doc_code");
+        Number chunkIndexNum = (Number) rs.getObject("chunk_index");
+        Integer chunkIndex = chunkIndexNum != null ? chunkIndexNum.intValue() : null;
 
-            String kbCode = rs.getString("kb_code");
-            String docCode = rs.getString("doc_code");
-            Number chunkIndexNum = (Number) rs.getObject("chunk_index");
-            Integer chunkIndex = chunkIndexNum != null ? chunkIndexNum.intValue() : null;
+        if (kbCode != null) {
+            metadata.putIfAbsent("kbCode", kbCode);
+        }
+        if (docCode != null) {
+            metadata.putIfAbsent("docCode", docCode);
+        }
+        if (chunkIndex != null) {
+            metadata.putIfAbsent("chunkIndex", chunkIndex);
+        }
 
-            if (kbCode != null) {
-                metadata.putIfAbsent("kbCode", kbCode);
+        // 兼容现有 MultiKbDocumentRetriever：按 metadata.score(Float) 排序
+        metadata.put("score", (float) score);
+        metadata.put("distance", (float) distance);
+
+        return Document.builder()
+                .id(vectorId)
+                .text(content)
+                .metadata(metadata)
+                .score(score)
+                .build();
+    }
+
+    /**
+     * 量化检索：本地字节码取候选，只对候选在 TiDB 中计算距离精确重排
+     *
+     * @return 量化索引未就绪时返回 null（调用方走全量 SQL 检索）
+     */
+    private List<Document> quantizedSearch(float[] queryEmbedding, int topK, double threshold) {
+        refreshQuantizedIndexAsync();
+        if (!quantizedReady) {
+            return null;
+        }
+        List<QuantizedVectorIndex.Candidate> candidates = quantizedIndex.candidates(
+                queryEmbedding, topK * Math.max(1, quantization.getRescoreMultiplier()), null);
+        if (candidates == null) {
+            return null;
+        }
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        String queryVectorText = toVectorText(queryEmbedding);
+        String distanceExpr = "VEC_COSINE_DISTANCE(embedding, ?)";
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT vector_id, kb_code, doc_code, chunk_index, content, metadata, ")
+                .append(distanceExpr)
+                .append(" AS distance ")
+                .append("FROM ").append(tableName)
+                .append(" WHERE is_delete=0 AND kb_code=? AND vector_id IN (")
+                .append(String.join(",", Collections.nCopies(candidates.size(), "?")))
+                .append(")");
+        params.add(queryVectorText);
+        params.add(kbCodeFilter);
+        candidates.forEach(candidate -> params.add(candidate.id()));
+
+        if (threshold != SearchRequest.SIMILARITY_THRESHOLD_ACCEPT_ALL) {
+            sql.append(" AND ").append(distanceExpr).append(" <= ?");
+            params.add(queryVectorText);
+            params.add(1.0d - threshold);
+        }
+
+        sql.append(" ORDER BY distance ASC LIMIT ?");
+        params.add(topK);
+
+        return jdbcTemplate.query(sql.toString(), params.toArray(), (rs, rowNum) -> mapDocument(rs));
+    }
+
+    /**
+     * 超过同步间隔时在后台训练码本（首次）并增量同步量化索引，检索线程不等待
+     */
+    private void refreshQuantizedIndexAsync() {
+        if (System.currentTimeMillis() - lastSyncAt < quantization.getTidbSyncIntervalMs()
+                || !quantizationSyncing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            QUANTIZATION_EXECUTOR.execute(() -> {
+                try {
+                    quantizationLock.lock();
+                    try {
+                        refreshQuantizedIndex();
+                    } finally {
+                        quantizationLock.unlock();
+                    }
+                } catch (Exception e) {
+                    log.warn("[TidbVectorStore] 同步量化索引失败: kbCode={}, error={}", kbCodeFilter, e.getMessage());
+                } finally {
+                    lastSyncAt = System.currentTimeMillis();
+                    quantizationSyncing.set(false);
+                }
+            });
+        } catch (Exception e) {
+            quantizationSyncing.set(false);
+            throw e;
+        }
+    }
+
+    private void refreshQuantizedIndex() throws IOException {
+        if (!quantizedIndex.isTrained() && !trainQuantizedIndex(false)) {
+            return;
+        }
+        syncQuantizedIndex();
+    }
+
+    /**
+     * 从知识库均匀抽样训练码本（会清空本地索引，需随后全量同步）
+     *
+     * @param force 向量数不足 minTrainingSize 时也训练
+     * @return 是否完成训练
+     */
+    private boolean trainQuantizedIndex(boolean force) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + tableName
+                + " WHERE is_delete=0 AND kb_code=?", Long.class, kbCodeFilter);
+        if (count == null || count == 0 || !force && count < quantization.getMinTrainingSize()) {
+            return false;
+        }
+
+        long startTime = System.currentTimeMillis();
+        int sampleSize = quantization.getTrainingSampleSize();
+        long stride = Math.max(1L, count / sampleSize);
+        String sql = "SELECT embedding FROM " + tableName
+                + " WHERE is_delete=0 AND kb_code=? AND MOD(id, ?)=0 LIMIT ?";
+        List<float[]> samples = jdbcTemplate.query(sql,
+                (rs, rowNum) -> parseVectorText(rs.getString("embedding")), kbCodeFilter, stride, sampleSize);
+        if (samples.size() < Math.min(count, sampleSize) / 2) {
+            // 主键分布不均（如批量删除后）时退回顺序取样
+            samples = jdbcTemplate.query("SELECT embedding FROM " + tableName + " WHERE is_delete=0 AND kb_code=? LIMIT ?",
+                    (rs, rowNum) -> parseVectorText(rs.getString("embedding")), kbCodeFilter, sampleSize);
+        }
+
+        quantizedReady = false;
+        quantizedIndex.train(quantization.getMode(), samples, quantization.getPqSubspaces(), quantization.getPqIterations());
+        log.info("[TidbVectorStore] 训练量化码本完成: kbCode={}, mode={}, vectors={}, samples={}, costMs={}",
+                kbCodeFilter, quantization.getMode(), count, samples.size(), System.currentTimeMillis() - startTime);
+        return true;
+    }
+
+    /**
+     * 按 (update_time, id) 分页增量同步：is_delete=1 的记录从索引中删除，其余重新编码
+     */
+    private void syncQuantizedIndex() throws IOException {
+        long startTime = System.currentTimeMillis();
+        Timestamp lastTime = new Timestamp(Math.max(0L, quantizedIndex.getWatermark() - SYNC_OVERLAP_MS));
+        long lastId = 0L;
+        int synced = 0;
+        String sql = "SELECT id, vector_id, embedding, is_delete, update_time FROM " + tableName
+                + " WHERE kb_code=? AND (update_time > ? OR (update_time = ? AND id > ?))"
+                + " ORDER BY update_time, id LIMIT ?";
+        while (true) {
+            List<SyncRow> rows = jdbcTemplate.query(sql, (rs, rowNum) -> new SyncRow(
+                    rs.getLong("id"),
+                    rs.getString("vector_id"),
+                    rs.getInt("is_delete") == 0 ? rs.getString("embedding") : null,
+                    rs.getTimestamp("update_time")), kbCodeFilter, lastTime, lastTime, lastId, SYNC_BATCH_SIZE);
+            List<String> deleted = new ArrayList<>();
+            for (SyncRow row : rows) {
+                if (row.embedding() == null) {
+                    deleted.add(row.vectorId());
+                } else {
+                    quantizedIndex.put(row.vectorId(), parseVectorText(row.embedding()));
+                }
+            }
+            quantizedIndex.remove(deleted);
+            synced += rows.size();
+            if (!rows.isEmpty()) {
+                SyncRow last = rows.get(rows.size() - 1);
+                lastTime = last.updateTime();
+                lastId = last.id();
+                quantizedIndex.setWatermark(Math.max(quantizedIndex.getWatermark(), lastTime.getTime()));
             }
-            if (docCode != null) {
-                metadata.putIfAbsent("docCode", docCode);
+            if (rows.size() < SYNC_BATCH_SIZE) {
+                break;
             }
-            if (chunkIndex != null) {
-                metadata.putIfAbsent("chunkIndex", chunkIndex);
+        }
+        quantizedIndex.flush();
+        quantizedReady = true;
+        if (synced > 0) {
+            log.debug("[TidbVectorStore] 同步量化索引: kbCode={}, rows={}, size={}, costMs={}",
+                    kbCodeFilter, synced, quantizedIndex.size(), System.currentTimeMillis() - startTime);
+        }
+    }
+
+    @Override
+    public Map<String, Object> quantizationStats() {
+        requireQuantization();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("kbCode", kbCodeFilter);
+        stats.put("store", "tidb");
+        stats.put("ready", quantizedReady);
+        stats.put("watermark", quantizedIndex.getWatermark());
+        stats.putAll(quantizedIndex.stats());
+        return stats;
+    }
+
+    @Override
+    public Map<String, Object> retrainQuantizer() {
+        requireQuantization();
+        quantizationLock.lock();
+        try {
+            if (!trainQuantizedIndex(true)) {
+                throw new IllegalStateException("知识库没有向量，无法训练码本: " + kbCodeFilter);
             }
+            try {
+                syncQuantizedIndex();
+            } catch (IOException e) {
+                throw new IllegalStateException("[TidbVectorStore] 持久化量化索引失败: " + kbCodeFilter, e);
+            }
+            lastSyncAt = System.currentTimeMillis();
+        } finally {
+            quantizationLock.unlock();
+        }
+        return quantizationStats();
+    }
 
-            // 兼容现有 MultiKbDocumentRetriever：按 metadata.score(Float) 排序
-            metadata.put("score", (float) score);
-            metadata.put("distance", (float) distance);
-
-            return Document.builder()
-                    .id(vectorId)
-                    .text(content)
-                    .metadata(metadata)
-                    .score(score)
-                    .build();
-        });
+    private void requireQuantization() {
+        if (quantizedIndex == null) {
+            throw new IllegalStateException("未启用向量量化（llm.rag.quantization.enabled=false）: " + name);
+        }
+    }
+
+    /**
+     * 增量同步读取的行
+     *
+     * @param embedding 向量文本，已删除的记录为 null
+     */
+    private record SyncRow(long id, String vectorId, String embedding, Timestamp updateTime) {
     }
 
     @Override
@@ -329,73 +684,32 @@ public class TidbVectorStore implements VectorStore {
         return sb.toString();
     }
 
-    /**
-     * 将 Spring AI Filter.Expression 转换为 TiDB(MySQL) 可执行的 WHERE 子句（仅作用于 metadata JSON）。
-     *
-     * 目前实现：AND/OR/EQ/NOT，满足项目现有用法（RagAdvisorBuilder.buildAdvisorWithMetadata）；
-     * 其他表达式类型可按需扩展。
-     */
-    private String buildFilterSql(Filter.Expression expression, List<Object> params) {
-        return buildFilterOperandSql(expression, params);
-    }
-
-    private static String buildJsonEqSql(String key) {
-        if (key == null || key.isBlank()) {
-            throw new IllegalArgumentException("metadata key 为空");
+    private static float[] parseVectorText(String text) {
+        String body = text.trim();
+        if (body.startsWith("[")) {
+            body = body.substring(1, body.length() - 1);
         }
-        if (!SAFE_METADATA_KEY.matcher(key).matches()) {
-            throw new IllegalArgumentException("metadata key 含非法字符（仅允许字母/数字/下划线）: " + key);
+        if (body.isBlank()) {
+            throw new IllegalArgumentException("向量为空");
         }
-        String jsonPath = "$.\"" + key + "\"";
-        return "JSON_UNQUOTE(JSON_EXTRACT(metadata, '" + jsonPath + "')) = ?";
-    }
 
-    private String buildFilterOperandSql(Filter.Operand operand, List<Object> params) {
-        if (operand == null) {
-            return null;
-        }
-        if (operand instanceof Filter.Group group) {
-            return buildFilterOperandSql(group.content(), params);
-        }
-        if (operand instanceof Filter.Expression expression) {
-            return switch (expression.type()) {
-                case AND, OR -> {
-                    String left = buildFilterOperandSql(expression.left(), params);
-                    String right = buildFilterOperandSql(expression.right(), params);
-                    if (left == null || left.isBlank()) {
-                        yield right;
-                    }
-                    if (right == null || right.isBlank()) {
-                        yield left;
-                    }
-                    yield "(" + left + " " + expression.type().name() + " " + right + ")";
-                }
-                case NOT -> {
-                    String inner = buildFilterOperandSql(expression.left(), params);
-                    if (inner == null || inner.isBlank()) {
-                        yield null;
-                    }
-                    yield "NOT (" + inner + ")";
-                }
-                case EQ -> {
-                    Filter.Key key;
-                    Filter.Value value;
-                    if (expression.left() instanceof Filter.Key k && expression.right() instanceof Filter.Value v) {
-                        key = k;
-                        value = v;
-                    } else if (expression.left() instanceof Filter.Value v && expression.right() instanceof Filter.Key k) {
-                        key = k;
-                        value = v;
-                    } else {
-                        throw new UnsupportedOperationException("不支持的 EQ 操作数: " + expression);
-                    }
-                    params.add(value.value() != null ? String.valueOf(value.value()) : null);
-                    yield buildJsonEqSql(key.key());
-                }
-                default -> throw new UnsupportedOperationException("暂不支持的过滤表达式类型: " + expression.type());
-            };
+        String[] parts = body.split(",");
+        float[] vector = new float[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            vector[i] = Float.parseFloat(parts[i].trim());
         }
+        return vector;
+    }
 
-        throw new UnsupportedOperationException("不支持的过滤操作数类型: " + operand.getClass());
+    /**
+     * 将 Spring AI Filter.Expression 转换为 TiDB(MySQL) 可执行的 WHERE 子句。
+     *
+     * 已声明生成列的 metadata key 直接比较生成列（可走二级索引），其余 key 比较 metadata JSON，
+     * 见 TidbFilterExpressionConverter。
+     */
+    private String buildFilterSql(Filter.Expression expression, List<Object> params) {
+        Map<String, TidbFilterExpressionConverter.FilterColumn> columns =
+                metadataColumns != null ? metadataColumns.current() : Map.of();
+        return new TidbFilterExpressionConverter(columns).convert(expression, params);
     }
 }
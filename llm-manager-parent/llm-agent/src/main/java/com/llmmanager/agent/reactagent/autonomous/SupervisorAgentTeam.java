@@ -2,6 +2,8 @@ package com.llmmanager.agent.reactagent.autonomous;
 
 import com.llmmanager.agent.reactagent.core.AgentToolAdapter;
 import com.llmmanager.agent.reactagent.core.AgentWrapper;
+import com.llmmanager.agent.stream.EventToolCallback;
+import com.llmmanager.agent.stream.ExecutionEventSink;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatModel;
@@ -118,6 +120,7 @@ public class SupervisorAgentTeam {
         private final Map<String, AgentWrapper> workers = new HashMap<>();
         private final Map<String, String> workerDescriptions = new HashMap<>();
         private final List<ToolCallback> additionalTools = new ArrayList<>();
+        private ExecutionEventSink eventSink;
 
         public SupervisorAgentTeamBuilder supervisorChatModel(ChatModel chatModel) {
             this.supervisorChatModel = chatModel;
@@ -158,6 +161,17 @@ public class SupervisorAgentTeam {
             return this;
         }
 
+        /**
+         * 启用流式事件（可选）
+         *
+         * Supervisor 的输出和工具调用推送到 eventSink，调用 Worker 时推送 handoff 事件。
+         * Worker 自身的事件需要在构建 Worker 时设置同一个 eventSink。
+         */
+        public SupervisorAgentTeamBuilder eventSink(ExecutionEventSink eventSink) {
+            this.eventSink = eventSink;
+            return this;
+        }
+
         public SupervisorAgentTeam build() {
             validateParams();
 
@@ -171,6 +185,9 @@ public class SupervisorAgentTeam {
                 // 使用 AgentTool.create() 将 Agent 转换为 Tool
                 // description 已经在 AgentWrapper 中设置，AgentTool.create() 会自动使用
                 ToolCallback agentTool = AgentToolAdapter.asTool(workerAgent);
+                if (eventSink != null) {
+                    agentTool = EventToolCallback.wrapHandoff(agentTool, supervisorName, eventSink);
+                }
 
                 allTools.add(agentTool);
                 log.info("[SupervisorAgentTeam] 注册 Worker: {} -> {}", workerName, description);
@@ -185,6 +202,7 @@ public class SupervisorAgentTeam {
                     .chatModel(supervisorChatModel)
                     .instruction(instruction)
                     .tools(allTools)
+                    .eventSink(eventSink)
                     .build();
 
             log.info("[SupervisorAgentTeam] 构建完成, Supervisor: {}, Workers: {}", 
@@ -1,6 +1,7 @@
 package com.llmmanager.agent.reactagent.configurable.config;
 
 import com.llmmanager.agent.reactagent.configurable.WorkflowPattern;
+import com.llmmanager.agent.stream.ExecutionEventSink;
 import lombok.Builder;
 import lombok.Data;
 import org.springframework.ai.chat.model.ChatModel;
@@ -150,5 +151,11 @@ public class AgentWorkflowConfig {
      */
     @Builder.Default
     private boolean verboseLogging = false;
+
+    /**
+     * 流式事件通道（为 null 时不推送事件）
+     * 顺序模式下在 Agent 之间推送 handoff 事件
+     */
+    private ExecutionEventSink eventSink;
 }
 
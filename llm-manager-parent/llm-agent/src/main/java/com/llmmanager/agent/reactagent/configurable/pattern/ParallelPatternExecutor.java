@@ -1,5 +1,6 @@
 package com.llmmanager.agent.reactagent.configurable.pattern;
 
+import com.llmmanager.agent.concurrent.VirtualThreads;
 import com.llmmanager.agent.reactagent.configurable.WorkflowPattern;
 import com.llmmanager.agent.reactagent.configurable.config.AgentConfig;
 import com.llmmanager.agent.reactagent.configurable.config.AgentWorkflowConfig;
@@ -34,8 +35,12 @@ public class ParallelPatternExecutor implements PatternExecutor {
 
     private final ExecutorService executorService;
 
+    /**
+     * 使用进程内共享的任务执行器（虚拟线程模式下每个 Agent 一个虚拟线程）；
+     * 工作流按请求创建，不再每个工作流各建一个线程池
+     */
     public ParallelPatternExecutor() {
-        this.executorService = Executors.newCachedThreadPool();
+        this.executorService = VirtualThreads.sharedTaskExecutor();
     }
 
     public ParallelPatternExecutor(ExecutorService executorService) {
@@ -6,10 +6,14 @@ import com.llmmanager.agent.reactagent.configurable.config.AgentWorkflowConfig;
 import com.llmmanager.agent.reactagent.core.AgentWrapper;
 import com.llmmanager.agent.review.snapshot.SequentialStateSnapshot;
 import com.llmmanager.agent.storage.core.entity.PendingReview;
+import com.llmmanager.agent.stream.ExecutionEvent;
+import com.llmmanager.agent.stream.ExecutionEventSink;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 顺序执行模式执行器
@@ -42,6 +46,7 @@ public class SequentialPatternExecutor implements PatternExecutor {
 
         String currentInput = input;
         String lastOutput = null;
+        String previousAgentName = null;
         int stepNumber = 0;
 
         for (AgentConfig agentConfig : agents) {
@@ -54,6 +59,9 @@ public class SequentialPatternExecutor implements PatternExecutor {
             AgentWrapper agent = agentConfig.getAgent();
             String agentName = agentConfig.getName();
 
+            emitHandoff(config, previousAgentName, agentName, stepNumber, currentInput);
+            previousAgentName = agentName;
+
             log.info("[SequentialPattern] 步骤 {}: 执行 Agent '{}'", stepNumber, agentName);
             if (config.isVerboseLogging()) {
                 log.info("[SequentialPattern] 输入: {}", currentInput);
@@ -259,6 +267,21 @@ public class SequentialPatternExecutor implements PatternExecutor {
                 .build();
     }
 
+    /**
+     * 推送 Agent 之间的 handoff 事件（未启用流式时跳过）
+     */
+    private void emitHandoff(AgentWorkflowConfig config, String from, String to, int stepNumber, String input) {
+        ExecutionEventSink eventSink = config.getEventSink();
+        if (eventSink == null) {
+            return;
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("to", to);
+        data.put("step", stepNumber);
+        data.put("inputLength", input != null ? input.length() : 0);
+        eventSink.emit(ExecutionEvent.handoff(from, data));
+    }
+
     /**
      * 构建审核结果消息
      */
@@ -7,6 +7,9 @@ import com.alibaba.cloud.ai.graph.skills.registry.SkillRegistry;
 import com.alibaba.cloud.ai.graph.skills.registry.filesystem.FileSystemSkillRegistry;
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.RunnableConfig;
+import com.llmmanager.agent.stream.EventStreamingChatModel;
+import com.llmmanager.agent.stream.EventToolCallback;
+import com.llmmanager.agent.stream.ExecutionEventSink;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatModel;
@@ -45,8 +48,13 @@ import java.util.Optional;
  * // 同步调用
  * String result = agent.call("今天北京天气怎么样？");
  * 
- * // 流式调用
- * agent.stream("帮我分析这个问题...").subscribe(System.out::println);
+ * // 流式事件（token / reasoning / tool_start / tool_end 推送到 eventSink）
+ * AgentWrapper streamingAgent = AgentWrapper.builder()
+ *     .name("research-agent")
+ *     .chatModel(chatModel)
+ *     .eventSink(eventSink)
+ *     .build();
+ * streamingAgent.call("帮我分析这个问题...");
  * }</pre>
  * 
  * @author LLM Manager
@@ -172,6 +180,8 @@ public class AgentWrapper {
         private String skillsClasspathPath;
         /** 按技能名称分组的工具映射，用于技能绑定工具（可选） */
         private Map<String, List<ToolCallback>> skillGroupedTools;
+        /** 流式事件通道；为 null 表示同步模式，不推送事件 */
+        private ExecutionEventSink eventSink;
 
         public AgentWrapperBuilder name(String name) {
             this.name = name;
@@ -232,13 +242,31 @@ public class AgentWrapper {
             return this;
         }
 
+        /**
+         * 启用流式事件（可选）
+         *
+         * 设置后 Agent 的 LLM 增量输出和工具调用会实时推送到 eventSink，source 为 Agent 名称。
+         */
+        public AgentWrapperBuilder eventSink(ExecutionEventSink eventSink) {
+            this.eventSink = eventSink;
+            return this;
+        }
+
         public AgentWrapper build() {
             validateParams();
 
+            // 流式模式：包装 ChatModel 和工具以推送事件
+            ChatModel effectiveChatModel = chatModel;
+            List<ToolCallback> effectiveTools = tools;
+            if (eventSink != null) {
+                effectiveChatModel = new EventStreamingChatModel(chatModel, name, eventSink);
+                effectiveTools = EventToolCallback.wrapAll(tools, name, eventSink);
+            }
+
             // 使用 Builder 类型（新版本 API）
             Builder agentBuilder = ReactAgent.builder()
                     .name(name)
-                    .model(chatModel);
+                    .model(effectiveChatModel);
 
             // 设置描述（用于 Agent-as-Tool）
             if (description != null && !description.isEmpty()) {
@@ -256,8 +284,8 @@ public class AgentWrapper {
             }
 
             // 设置工具回调
-            if (tools != null && !tools.isEmpty()) {
-                agentBuilder.tools(tools.toArray(new ToolCallback[0]));
+            if (effectiveTools != null && !effectiveTools.isEmpty()) {
+                agentBuilder.tools(effectiveTools.toArray(new ToolCallback[0]));
             }
 
             // 设置方法工具
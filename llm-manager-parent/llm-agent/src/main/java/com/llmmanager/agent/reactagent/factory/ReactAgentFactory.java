@@ -12,6 +12,7 @@ import com.llmmanager.agent.reactagent.core.AgentWrapper;
 import com.llmmanager.agent.reactagent.registry.ToolRegistry;
 import com.llmmanager.agent.storage.core.entity.ReactAgent;
 import com.llmmanager.agent.storage.core.mapper.ReactAgentMapper;
+import com.llmmanager.agent.stream.ExecutionEventSink;
 import javax.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatModel;
@@ -80,6 +81,15 @@ public class ReactAgentFactory {
      * 从数据库配置构建 SINGLE Agent
      */
     public AgentWrapper buildSingleAgentFromConfig(ReactAgent config, ChatModel chatModel) {
+        return buildSingleAgentFromConfig(config, chatModel, null);
+    }
+
+    /**
+     * 从数据库配置构建 SINGLE Agent（流式模式）
+     *
+     * @param eventSink 流式事件通道（为 null 时等同于同步模式）
+     */
+    public AgentWrapper buildSingleAgentFromConfig(ReactAgent config, ChatModel chatModel, ExecutionEventSink eventSink) {
         try {
             ReactAgentConfigDTO dto = parseConfig(config.getAgentConfig());
 
@@ -96,7 +106,8 @@ public class ReactAgentFactory {
                     .description(config.getDescription())
                     .chatModel(chatModel)
                     .instruction(dto.getInstruction())
-                    .tools(tools);
+                    .tools(tools)
+                    .eventSink(eventSink);
 
             // 集成 Skills（如果配置了 skillsPath）
             if (dto.getSkillsPath() != null && !dto.getSkillsPath().isBlank()) {
@@ -113,6 +124,16 @@ public class ReactAgentFactory {
      * 从数据库配置构建 SEQUENTIAL 工作流
      */
     public ConfigurableAgentWorkflow buildSequentialWorkflowFromConfig(ReactAgent config, ChatModel chatModel) {
+        return buildSequentialWorkflowFromConfig(config, chatModel, null);
+    }
+
+    /**
+     * 从数据库配置构建 SEQUENTIAL 工作流（流式模式）
+     *
+     * @param eventSink 流式事件通道（为 null 时等同于同步模式）
+     */
+    public ConfigurableAgentWorkflow buildSequentialWorkflowFromConfig(ReactAgent config, ChatModel chatModel,
+                                                                       ExecutionEventSink eventSink) {
         try {
             ReactAgentConfigDTO dto = parseConfig(config.getAgentConfig());
 
@@ -137,6 +158,7 @@ public class ReactAgentFactory {
                         .chatModel(chatModel)
                         .instruction(agentDef.getInstruction())
                         .tools(tools)
+                        .eventSink(eventSink)
                         .build();
 
                 agentConfigs.add(AgentConfig.of(agentDef.getName(), agent));
@@ -146,6 +168,7 @@ public class ReactAgentFactory {
                     .workflowName(config.getName())
                     .pattern(WorkflowPattern.SEQUENTIAL)
                     .agents(agentConfigs)
+                    .eventSink(eventSink)
                     .build();
 
             return ConfigurableAgentWorkflow.builder()
@@ -160,13 +183,24 @@ public class ReactAgentFactory {
      * 从数据库配置构建 SUPERVISOR 团队
      */
     public SupervisorAgentTeam buildSupervisorTeamFromConfig(ReactAgent config, ChatModel chatModel) {
+        return buildSupervisorTeamFromConfig(config, chatModel, null);
+    }
+
+    /**
+     * 从数据库配置构建 SUPERVISOR 团队（流式模式）
+     *
+     * @param eventSink 流式事件通道（为 null 时等同于同步模式）
+     */
+    public SupervisorAgentTeam buildSupervisorTeamFromConfig(ReactAgent config, ChatModel chatModel,
+                                                             ExecutionEventSink eventSink) {
         try {
             ReactAgentConfigDTO dto = parseConfig(config.getAgentConfig());
 
             SupervisorAgentTeam.SupervisorAgentTeamBuilder teamBuilder = SupervisorAgentTeam.builder()
                     .supervisorName(config.getName())
                     .supervisorChatModel(chatModel)
-                    .supervisorInstruction(dto.getSupervisorInstruction());
+                    .supervisorInstruction(dto.getSupervisorInstruction())
+                    .eventSink(eventSink);
 
             // 添加 Workers
             for (ReactAgentConfigDTO.WorkerDefinition workerDef : dto.getWorkers()) {
@@ -174,7 +208,7 @@ public class ReactAgentFactory {
 
                 if (workerDef.isReference()) {
                     // 引用已有 Agent
-                    workerAgent = buildSingleAgent(workerDef.getRef(), chatModel);
+                    workerAgent = buildSingleAgentFromConfig(getAgentBySlug(workerDef.getRef()), chatModel, eventSink);
                 } else {
                     // 内联定义
                     Boolean enableMcpTools = workerDef.getEnableMcpTools() != null
@@ -195,6 +229,7 @@ public class ReactAgentFactory {
                             .chatModel(chatModel)
                             .instruction(workerDef.getInstruction())
                             .tools(tools)
+                            .eventSink(eventSink)
                             .build();
                 }
 
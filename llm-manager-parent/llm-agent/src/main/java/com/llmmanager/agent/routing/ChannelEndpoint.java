@@ -0,0 +1,43 @@
+package com.llmmanager.agent.routing;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * 渠道池成员（一个模型可由多个渠道按权重共同提供服务）
+ *
+ * 不可变：FailoverChatModel 以本类作为 Map 的 key，字段变化会导致 hashCode 变化而取不到成员。
+ * 渠道配置或权重变更时应重新构建渠道池。
+ */
+@Value
+@Builder
+@AllArgsConstructor
+public class ChannelEndpoint {
+
+    /**
+     * 渠道ID（统计和缓存的标识）
+     */
+    Long channelId;
+
+    /**
+     * 渠道名称（仅用于日志和统计展示）
+     */
+    String name;
+
+    /**
+     * API密钥
+     */
+    String apiKey;
+
+    /**
+     * 基础URL
+     */
+    String baseUrl;
+
+    /**
+     * 权重（越大分到的流量越多），默认 100
+     */
+    @Builder.Default
+    Integer weight = 100;
+}
@@ -0,0 +1,290 @@
+package com.llmmanager.agent.routing;
+
+import com.llmmanager.agent.config.ChannelRoutingProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import javax.annotation.Resource;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 渠道路由器
+ *
+ * 维护每个渠道的运行状态（在途请求数、EWMA 延迟、连续失败次数、摘除截止时间），
+ * 为渠道池给出本次请求的尝试顺序：
+ * - 健康渠道按策略得分升序（LEAST_OUTSTANDING / EWMA，均按权重折算）
+ * - 摘除冷却期内的渠道不参与选择
+ * - 冷却期已过的渠道进入半开状态，排在最前，只放行一个试探请求（acquire 成功的那个）：
+ *   试探成功恢复为健康，失败重新摘除；试探进行中其它请求跳过该渠道
+ *
+ * 连续 N 次可重试失败（429 / 5xx / 超时 / 连接失败，按 HTTP 状态码判断）后摘除一段时间；
+ * 400 等请求本身的错误只计入错误数，不影响健康状态。
+ */
+@Slf4j
+@Component
+public class ChannelRouter {
+
+    /**
+     * Spring AI 把 4xx 响应包装为 NonTransientAiException，消息形如 "HTTP 429 - ..."
+     */
+    private static final Pattern HTTP_STATUS_MESSAGE = Pattern.compile("^HTTP (\\d{3})\\b");
+
+    @Resource
+    private ChannelRoutingProperties properties;
+
+    private final Map<Long, ChannelStats> statsMap = new ConcurrentHashMap<>();
+
+    /**
+     * 计算渠道池本次请求的尝试顺序（不含冷却期内和正在试探的渠道，可能为空）
+     */
+    public List<ChannelEndpoint> order(List<ChannelEndpoint> pool) {
+        long now = System.currentTimeMillis();
+        List<ChannelEndpoint> candidates = new ArrayList<>();
+        for (ChannelEndpoint endpoint : pool) {
+            if (stats(endpoint).isAvailable(now, properties.getEjectDurationMs())) {
+                candidates.add(endpoint);
+            }
+        }
+        // 先打乱，使得分相同的渠道随机分摊流量
+        Collections.shuffle(candidates);
+
+        boolean ewma = "EWMA".equalsIgnoreCase(properties.getStrategy());
+        candidates.sort(Comparator
+                // 半开渠道排在最前，保证能拿到试探请求
+                .comparing((ChannelEndpoint endpoint) -> !stats(endpoint).isEjected())
+                .thenComparingDouble(endpoint -> score(endpoint, ewma)));
+        return candidates;
+    }
+
+    /**
+     * 请求开始（在途数 +1）
+     *
+     * 摘除中的渠道只有冷却期已过且没有其它试探请求时才放行（本次即为半开试探）
+     *
+     * @return false 表示渠道当前不可用，调用方应跳过该渠道（此时无需调用 release）
+     */
+    public boolean acquire(ChannelEndpoint endpoint) {
+        ChannelStats stats = stats(endpoint);
+        if (stats.isEjected() && !stats.tryStartTrial(System.currentTimeMillis(), properties.getEjectDurationMs())) {
+            return false;
+        }
+        stats.outstanding.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 请求结束（在途数 -1），无论成功、失败还是取消都需调用
+     */
+    public void release(ChannelEndpoint endpoint) {
+        stats(endpoint).outstanding.decrementAndGet();
+    }
+
+    /**
+     * 记录成功（同步调用取总耗时，流式调用取首个响应块耗时）
+     */
+    public void recordSuccess(ChannelEndpoint endpoint, long latencyMs) {
+        ChannelStats stats = stats(endpoint);
+        stats.requests.incrementAndGet();
+        stats.consecutiveFailures.set(0);
+        stats.updateLatency(latencyMs, properties.getEwmaAlpha());
+        if (stats.isEjected()) {
+            stats.ejectedUntil = 0;
+            stats.trialStartedAt.set(0);
+            log.info("[ChannelRouter] 半开试探成功，渠道已恢复, channelId: {}, name: {}",
+                    endpoint.getChannelId(), endpoint.getName());
+        }
+    }
+
+    /**
+     * 记录失败，可重试失败累计达到阈值时摘除渠道
+     */
+    public void recordFailure(ChannelEndpoint endpoint, Throwable error) {
+        ChannelStats stats = stats(endpoint);
+        stats.requests.incrementAndGet();
+        stats.errors.incrementAndGet();
+        stats.lastError = error.getMessage();
+        if (!isFailover(error)) {
+            // 请求本身的错误说明渠道可达，释放试探名额，下一个请求继续试探
+            stats.trialStartedAt.set(0);
+            return;
+        }
+        int failures = stats.consecutiveFailures.incrementAndGet();
+        if (stats.isEjected()) {
+            stats.ejectedUntil = System.currentTimeMillis() + properties.getEjectDurationMs();
+            stats.trialStartedAt.set(0);
+            log.warn("[ChannelRouter] 半开试探失败，重新摘除 {}ms, channelId: {}, name: {}, error: {}",
+                    properties.getEjectDurationMs(), endpoint.getChannelId(), endpoint.getName(), error.getMessage());
+        } else if (failures >= properties.getEjectThreshold()) {
+            stats.ejectedUntil = System.currentTimeMillis() + properties.getEjectDurationMs();
+            log.warn("[ChannelRouter] 渠道连续失败 {} 次，摘除 {}ms, channelId: {}, name: {}, error: {}",
+                    failures, properties.getEjectDurationMs(), endpoint.getChannelId(), endpoint.getName(),
+                    error.getMessage());
+        }
+    }
+
+    /**
+     * 是否为可切换渠道重试的失败（429 / 5xx / 超时 / 连接失败）
+     */
+    public boolean isFailover(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause() == e ? null : e.getCause()) {
+            if (e instanceof WebClientResponseException ex) {
+                return isRetryableStatus(ex.getStatusCode().value());
+            }
+            if (e instanceof RestClientResponseException ex) {
+                return isRetryableStatus(ex.getStatusCode().value());
+            }
+            if (e instanceof TransientAiException) {
+                return true;
+            }
+            if (e instanceof NonTransientAiException) {
+                Integer status = statusOf(e.getMessage());
+                return status != null && isRetryableStatus(status);
+            }
+            if (e instanceof TimeoutException || e instanceof SocketTimeoutException
+                    || e instanceof ConnectException || e instanceof WebClientRequestException
+                    || e instanceof ResourceAccessException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取所有渠道的统计快照
+     */
+    public List<Map<String, Object>> getStats() {
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> result = new ArrayList<>();
+        statsMap.forEach((channelId, stats) -> {
+            Map<String, Object> item = new HashMap<>();
+            item.put("channelId", channelId);
+            item.put("name", stats.name);
+            item.put("outstanding", stats.outstanding.get());
+            item.put("requests", stats.requests.get());
+            item.put("errors", stats.errors.get());
+            item.put("errorRate", stats.requests.get() == 0 ? 0d : (double) stats.errors.get() / stats.requests.get());
+            item.put("ewmaLatencyMs", Math.round(stats.ewmaLatencyMs));
+            item.put("consecutiveFailures", stats.consecutiveFailures.get());
+            item.put("ejected", stats.isEjected());
+            item.put("ejectedUntil", stats.ejectedUntil);
+            item.put("halfOpen", stats.isEjected() && stats.ejectedUntil <= now);
+            item.put("lastError", stats.lastError);
+            result.add(item);
+        });
+        result.sort(Comparator.comparing(item -> (Long) item.get("channelId")));
+        return result;
+    }
+
+    /**
+     * 手动恢复渠道（清除摘除状态和连续失败计数）
+     */
+    public void reset(Long channelId) {
+        ChannelStats stats = statsMap.get(channelId);
+        if (stats != null) {
+            stats.consecutiveFailures.set(0);
+            stats.ejectedUntil = 0;
+            stats.trialStartedAt.set(0);
+            log.info("[ChannelRouter] 已恢复渠道, channelId: {}", channelId);
+        }
+    }
+
+    private double score(ChannelEndpoint endpoint, boolean ewma) {
+        ChannelStats stats = stats(endpoint);
+        int weight = endpoint.getWeight() != null && endpoint.getWeight() > 0 ? endpoint.getWeight() : 1;
+        double load = (stats.outstanding.get() + 1d) / weight;
+        // 尚无延迟样本的渠道得分为 0，优先获得一次探测流量
+        return ewma ? stats.ewmaLatencyMs * load : load;
+    }
+
+    private ChannelStats stats(ChannelEndpoint endpoint) {
+        ChannelStats stats = statsMap.computeIfAbsent(endpoint.getChannelId(), id -> new ChannelStats());
+        stats.name = endpoint.getName();
+        return stats;
+    }
+
+    private static boolean isRetryableStatus(int status) {
+        return status == 429 || status >= 500;
+    }
+
+    private static Integer statusOf(String message) {
+        if (message == null) {
+            return null;
+        }
+        Matcher matcher = HTTP_STATUS_MESSAGE.matcher(message);
+        return matcher.find() ? Integer.valueOf(matcher.group(1)) : null;
+    }
+
+    /**
+     * 单个渠道的运行状态
+     */
+    private static class ChannelStats {
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        /**
+         * 半开试探开始时间（0 表示没有试探在进行）；试探请求被取消时不会回调，超过一个冷却时长视为已结束
+         */
+        private final AtomicLong trialStartedAt = new AtomicLong();
+        private volatile double ewmaLatencyMs;
+        private volatile long ejectedUntil;
+        private volatile String name;
+        private volatile String lastError;
+
+        synchronized void updateLatency(long latencyMs, double alpha) {
+            ewmaLatencyMs = ewmaLatencyMs == 0 ? latencyMs : ewmaLatencyMs + alpha * (latencyMs - ewmaLatencyMs);
+        }
+
+        /**
+         * 是否处于摘除状态（冷却中或半开，直到试探成功或手动恢复）
+         */
+        boolean isEjected() {
+            return ejectedUntil > 0;
+        }
+
+        /**
+         * 健康，或冷却期已过且没有试探在进行
+         */
+        boolean isAvailable(long now, long trialTimeoutMs) {
+            if (!isEjected()) {
+                return true;
+            }
+            long trial = trialStartedAt.get();
+            return ejectedUntil <= now && (trial == 0 || now - trial >= trialTimeoutMs);
+        }
+
+        /**
+         * 抢占半开试探名额
+         */
+        boolean tryStartTrial(long now, long trialTimeoutMs) {
+            if (ejectedUntil > now) {
+                return false;
+            }
+            long trial = trialStartedAt.get();
+            if (trial != 0 && now - trial < trialTimeoutMs) {
+                return false;
+            }
+            return trialStartedAt.compareAndSet(trial, now);
+        }
+    }
+}
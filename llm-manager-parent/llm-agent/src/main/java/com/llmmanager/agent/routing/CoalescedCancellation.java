@@ -0,0 +1,32 @@
+package com.llmmanager.agent.routing;
+
+/**
+ * 流式订阅取消结果（通过 Reactor Context 从取消跟踪方传给 RequestCoalescer）
+ *
+ * 合并的流式请求由多个订阅者共享一个上游流，只有最后一个订阅者取消时上游才真正被取消。
+ * 其余订阅者取消时 RequestCoalescer 调用 markDetached()，取消跟踪方据此判断
+ * 本次断开没有中止上游，不记录取消指标、不标记轮次中断。
+ */
+public final class CoalescedCancellation {
+
+    /**
+     * Reactor Context 中的 key
+     */
+    public static final String CONTEXT_KEY = CoalescedCancellation.class.getName();
+
+    private volatile boolean detached;
+
+    /**
+     * 标记为：订阅者已离开，但上游仍在为其它订阅者输出
+     */
+    public void markDetached() {
+        detached = true;
+    }
+
+    /**
+     * 本次取消是否真正取消了上游流
+     */
+    public boolean isUpstreamCancelled() {
+        return !detached;
+    }
+}
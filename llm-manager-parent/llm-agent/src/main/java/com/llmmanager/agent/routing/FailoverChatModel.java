@@ -0,0 +1,128 @@
+package com.llmmanager.agent.routing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.retry.support.RetryTemplate;
+import reactor.core.publisher.Flux;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 渠道池 ChatModel（故障转移）
+ *
+ * 把同一逻辑模型的多个渠道 ChatModel 组合为一个 ChatModel：
+ * - 每次请求由 ChannelRouter 给出尝试顺序
+ * - 同步调用：可重试失败（429 / 5xx / 超时）时依次尝试下一个渠道
+ * - 流式调用：只在首个响应块发出之前切换渠道，已输出内容后的失败直接向上抛出
+ * - 渠道全部处于摘除冷却期（或半开试探已被其它请求占用）时直接失败，不再兜底调用
+ *
+ * 位于 Advisor 链之下，切换渠道不会重复写入会话记忆。
+ */
+@Slf4j
+public class FailoverChatModel implements ChatModel {
+
+    /**
+     * 渠道池成员使用的重试模板（不重试，失败立即交给本类切换渠道）
+     */
+    public static final RetryTemplate NO_RETRY_TEMPLATE = RetryTemplate.builder().maxAttempts(1).build();
+
+    private final Map<ChannelEndpoint, ChatModel> members;
+    private final ChannelRouter router;
+
+    /**
+     * @param members 渠道池成员及其 ChatModel（成员 ChatModel 应关闭自身重试，由本类负责切换）
+     * @param router  渠道路由器
+     */
+    public FailoverChatModel(Map<ChannelEndpoint, ChatModel> members, ChannelRouter router) {
+        this.members = new LinkedHashMap<>(members);
+        this.router = router;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        List<ChannelEndpoint> candidates = router.order(List.copyOf(members.keySet()));
+        RuntimeException lastError = null;
+
+        for (int i = 0; i < candidates.size(); i++) {
+            ChannelEndpoint endpoint = candidates.get(i);
+            long startTime = System.currentTimeMillis();
+            if (!router.acquire(endpoint)) {
+                continue;
+            }
+            try {
+                ChatResponse response = members.get(endpoint).call(prompt);
+                router.recordSuccess(endpoint, System.currentTimeMillis() - startTime);
+                return response;
+            } catch (RuntimeException e) {
+                router.recordFailure(endpoint, e);
+                if (!router.isFailover(e)) {
+                    throw e;
+                }
+                lastError = e;
+                logFailover(endpoint, candidates, i, e);
+            } finally {
+                router.release(endpoint);
+            }
+        }
+        throw lastError != null ? lastError : noAvailableChannel();
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> streamFrom(router.order(List.copyOf(members.keySet())), 0, prompt, null));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return members.values().iterator().next().getDefaultOptions();
+    }
+
+    private Flux<ChatResponse> streamFrom(List<ChannelEndpoint> candidates, int index, Prompt prompt,
+                                          Throwable lastError) {
+        if (index >= candidates.size()) {
+            return Flux.error(lastError != null ? lastError : noAvailableChannel());
+        }
+        ChannelEndpoint endpoint = candidates.get(index);
+        return Flux.defer(() -> {
+            long startTime = System.currentTimeMillis();
+            AtomicBoolean emitted = new AtomicBoolean(false);
+            if (!router.acquire(endpoint)) {
+                return streamFrom(candidates, index + 1, prompt, lastError);
+            }
+
+            return members.get(endpoint).stream(prompt)
+                    .doOnNext(response -> {
+                        if (emitted.compareAndSet(false, true)) {
+                            router.recordSuccess(endpoint, System.currentTimeMillis() - startTime);
+                        }
+                    })
+                    .doFinally(signal -> router.release(endpoint))
+                    .onErrorResume(e -> {
+                        router.recordFailure(endpoint, e);
+                        if (emitted.get() || !router.isFailover(e) || index + 1 >= candidates.size()) {
+                            return Flux.error(e);
+                        }
+                        logFailover(endpoint, candidates, index, e);
+                        return streamFrom(candidates, index + 1, prompt, e);
+                    });
+        });
+    }
+
+    private TransientAiException noAvailableChannel() {
+        return new TransientAiException("渠道池暂无可用渠道（均在摘除冷却中）");
+    }
+
+    private void logFailover(ChannelEndpoint failed, List<ChannelEndpoint> candidates, int index, Throwable e) {
+        if (index + 1 < candidates.size()) {
+            log.warn("[FailoverChatModel] 渠道调用失败，切换到下一个渠道, failed: {}, next: {}, error: {}",
+                    failed.getName(), candidates.get(index + 1).getName(), e.getMessage());
+        }
+    }
+}
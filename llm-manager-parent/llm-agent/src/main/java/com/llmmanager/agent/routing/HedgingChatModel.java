@@ -0,0 +1,55 @@
+package com.llmmanager.agent.routing;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.util.CollectionUtils;
+import reactor.core.publisher.Flux;
+
+/**
+ * 对冲请求 ChatModel 装饰器
+ *
+ * 只作用于同步 call()：由 RequestHedger 在慢请求时发起第二个相同请求，先返回者生效。
+ * 委托给 FailoverChatModel 时，第二个请求会因在途数增加而优先落到其他渠道。
+ *
+ * 以下情况直接调用，不对冲：
+ * - 流式 stream()（首 token 已经返回，没有对冲的意义）
+ * - 携带工具的请求（工具在 ChatModel 内部执行，对冲会导致工具被重复调用）
+ */
+public class HedgingChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final String model;
+    private final RequestHedger hedger;
+
+    public HedgingChatModel(ChatModel delegate, String model, RequestHedger hedger) {
+        this.delegate = delegate;
+        this.model = model;
+        this.hedger = hedger;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        if (hasTools(prompt)) {
+            return delegate.call(prompt);
+        }
+        return hedger.call(model, () -> delegate.call(prompt));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return delegate.stream(prompt);
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+
+    private static boolean hasTools(Prompt prompt) {
+        return prompt.getOptions() instanceof ToolCallingChatOptions options
+                && (!CollectionUtils.isEmpty(options.getToolCallbacks()) || !CollectionUtils.isEmpty(options.getToolNames()));
+    }
+}
@@ -0,0 +1,301 @@
+package com.llmmanager.agent.routing;
+
+import com.llmmanager.agent.config.CoalescingProperties;
+import com.llmmanager.agent.dto.ChatRequest;
+import com.llmmanager.agent.message.MediaMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.content.Media;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 请求合并器（singleflight）
+ *
+ * 完全相同的请求同时在途时只发起一次上游调用：
+ * - 同步：第一个请求（leader）执行调用，其余请求（follower）等待并共享结果或异常；
+ *   等待超过 followerTimeoutMs 的 follower 自行调用，不会被卡住的 leader 无限阻塞
+ * - 流式：上游流经 replay 多播，后加入的订阅者先收到已输出的全部片段再接收后续片段；
+ *   所有订阅者都取消后上游请求才取消；非最后一个订阅者取消时标记 Context 中的 CoalescedCancellation，
+ *   避免取消跟踪把它当作上游已中止
+ * - 调用结束后立即移除，不缓存结果（与缓存不同，只合并“同一时刻”的请求）
+ *
+ * 合并键是规范化请求（渠道、模型、采样参数、提示词 / 完整消息列表、多模态、RAG、思考模式）的 SHA-256。
+ * 以下请求不合并（见 keyOf）：带 conversationCode / 启用记忆（有状态会话）、启用本地或 MCP 工具（工具可能有副作用）。
+ *
+ * 指标：
+ * - llm.coalescing.requests{mode=call|stream, role=leader|follower|timeout, model}：合并率 = follower / (leader + follower)，
+ *   timeout 为等待超时后自行调用的 follower（同时计入 follower）
+ * - llm.coalescing.inflight{mode}：当前在途的合并键数
+ */
+@Slf4j
+@Component
+public class RequestCoalescer {
+
+    @Resource
+    private CoalescingProperties properties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, CompletableFuture<String>> inflightCalls = new ConcurrentHashMap<>();
+
+    private final Map<String, SharedStream> inflightStreams = new ConcurrentHashMap<>();
+
+    /**
+     * 在途的共享流及当前订阅者数
+     */
+    private record SharedStream(Flux<ChatResponse> flux, AtomicInteger subscribers) {
+    }
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("llm.coalescing.inflight", inflightCalls, Map::size).tag("mode", "call").register(meterRegistry);
+        Gauge.builder("llm.coalescing.inflight", inflightStreams, Map::size).tag("mode", "stream").register(meterRegistry);
+    }
+
+    /**
+     * 执行（可能合并的）同步调用
+     *
+     * @param key    合并键，为 null 时直接执行
+     * @param model  模型标识（指标标签）
+     * @param action 实际调用
+     */
+    public String call(String key, String model, Supplier<String> action) {
+        if (key == null || !Boolean.TRUE.equals(properties.getEnabled())) {
+            return action.get();
+        }
+
+        CompletableFuture<String> own = new CompletableFuture<>();
+        CompletableFuture<String> existing = inflightCalls.putIfAbsent(key, own);
+        if (existing != null) {
+            record("call", "follower", model);
+            log.debug("[RequestCoalescer] 合并到在途的同步请求, model: {}", model);
+            try {
+                return existing.get(properties.getFollowerTimeoutMs(), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof RuntimeException runtime ? runtime : new RuntimeException(cause);
+            } catch (TimeoutException e) {
+                // leader 卡住时不无限等待：自行调用（不替换在途的 leader）
+                record("call", "timeout", model);
+                log.warn("[RequestCoalescer] 等待在途请求超过 {}ms，改为自行调用, model: {}",
+                        properties.getFollowerTimeoutMs(), model);
+                return action.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待合并请求结果时被中断", e);
+            }
+        }
+
+        record("call", "leader", model);
+        try {
+            String result = action.get();
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflightCalls.remove(key, own);
+        }
+    }
+
+    /**
+     * 执行（可能合并的）流式调用
+     *
+     * @param key    合并键，为 null 时直接执行
+     * @param model  模型标识（指标标签）
+     * @param action 创建上游流（只在 leader 订阅时调用）
+     */
+    public Flux<ChatResponse> stream(String key, String model, Supplier<Flux<ChatResponse>> action) {
+        if (key == null || !Boolean.TRUE.equals(properties.getStreamEnabled())) {
+            return action.get();
+        }
+
+        return Flux.deferContextual(context -> {
+            AtomicBoolean leader = new AtomicBoolean(false);
+            SharedStream shared = inflightStreams.computeIfAbsent(key, k -> {
+                leader.set(true);
+                AtomicReference<SharedStream> self = new AtomicReference<>();
+                Flux<ChatResponse> flux = Flux.defer(action)
+                        // 完成、出错或所有订阅者取消后移除，之后的相同请求重新发起调用
+                        .doFinally(signal -> inflightStreams.remove(k, self.get()))
+                        .replay()
+                        .refCount();
+                self.set(new SharedStream(flux, new AtomicInteger()));
+                return self.get();
+            });
+            shared.subscribers().incrementAndGet();
+            record("stream", leader.get() ? "leader" : "follower", model);
+            if (!leader.get()) {
+                log.debug("[RequestCoalescer] 合并到在途的流式请求, model: {}", model);
+            }
+            return shared.flux()
+                    .doOnCancel(() -> {
+                        // 仍有其它订阅者时 refCount 不会取消上游
+                        if (shared.subscribers().decrementAndGet() > 0) {
+                            context.<CoalescedCancellation>getOrEmpty(CoalescedCancellation.CONTEXT_KEY)
+                                    .ifPresent(CoalescedCancellation::markDetached);
+                        }
+                    })
+                    .doOnTerminate(() -> shared.subscribers().decrementAndGet());
+        });
+    }
+
+    /**
+     * 计算合并键
+     *
+     * @return 不可合并（有状态 / 带工具）时返回 null
+     */
+    public static String keyOf(ChatRequest request, String conversationCode) {
+        if (conversationCode != null
+                || StringUtils.hasText(request.getConversationCode())
+                || Boolean.TRUE.equals(request.getEnableMemory())
+                || Boolean.TRUE.equals(request.getEnableTools())
+                || Boolean.TRUE.equals(request.getEnableMcpTools())) {
+            return null;
+        }
+
+        KeyDigest digest = new KeyDigest();
+        digest.add("channel", request.getChannelId());
+        digest.add("baseUrl", request.getBaseUrl());
+        digest.add("apiKey", request.getApiKey());
+        if (request.getChannelPool() != null) {
+            for (ChannelEndpoint endpoint : request.getChannelPool()) {
+                digest.add("pool", endpoint.getChannelId());
+            }
+        }
+        digest.add("model", request.getModelIdentifier());
+        digest.add("temperature", request.getTemperature());
+        digest.add("topP", request.getTopP());
+        digest.add("maxTokens", request.getMaxTokens());
+        digest.add("frequencyPenalty", request.getFrequencyPenalty());
+        digest.add("presencePenalty", request.getPresencePenalty());
+        digest.add("system", request.getSystemPrompt());
+        digest.add("user", request.getUserMessage());
+        if (request.hasMedia()) {
+            for (MediaMessage.MediaContent media : request.getMediaContents()) {
+                digest.add("mediaType", media.getMediaType());
+                digest.add("mediaUrl", media.getMediaUrl());
+                digest.add("mimeType", media.getMimeType());
+                digest.addBytes(media.getMediaData());
+            }
+        }
+        if (request.hasMessages()) {
+            for (Message message : request.getMessages()) {
+                addMessage(digest, message);
+            }
+        }
+        digest.add("rag", request.getEnableRag());
+        if (Boolean.TRUE.equals(request.getEnableRag())) {
+            List<String> kbCodes = request.getRagKbCodes();
+            digest.add("ragKbCodes", kbCodes);
+            digest.add("ragTopK", request.getRagTopK());
+            digest.add("ragThreshold", request.getRagSimilarityThreshold());
+            digest.add("ragFilter", request.getRagFilterMetadata() != null
+                    ? new TreeMap<>(request.getRagFilterMetadata()) : null);
+        }
+        digest.add("thinkingMode", request.getThinkingMode());
+        digest.add("reasoningFormat", request.getReasoningFormat());
+        return digest.hex();
+    }
+
+    private static void addMessage(KeyDigest digest, Message message) {
+        digest.add("role", message.getMessageType());
+        digest.add("text", message.getText());
+        if (message instanceof UserMessage user) {
+            for (Media media : user.getMedia()) {
+                digest.add("mimeType", media.getMimeType());
+                Object data = media.getData();
+                if (data instanceof byte[] bytes) {
+                    digest.addBytes(bytes);
+                } else {
+                    digest.add("mediaData", data);
+                }
+            }
+        } else if (message instanceof AssistantMessage assistant && assistant.hasToolCalls()) {
+            for (AssistantMessage.ToolCall call : assistant.getToolCalls()) {
+                digest.add("toolCall", call.id() + "/" + call.name());
+                digest.add("arguments", call.arguments());
+            }
+        } else if (message instanceof ToolResponseMessage tool) {
+            for (ToolResponseMessage.ToolResponse response : tool.getResponses()) {
+                digest.add("toolResponse", response.id() + "/" + response.name());
+                digest.add("responseData", response.responseData());
+            }
+        }
+    }
+
+    private void record(String mode, String role, String model) {
+        Counter.builder("llm.coalescing.requests")
+                .tag("mode", mode)
+                .tag("role", role)
+                .tag("model", model != null ? model : "unknown")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 规范化请求摘要：字段名 + 长度前缀的值，避免不同字段拼接出相同字节
+     */
+    private static class KeyDigest {
+
+        private final MessageDigest digest;
+
+        KeyDigest() {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 不可用", e);
+            }
+        }
+
+        void add(String name, Object value) {
+            addBytes(name.getBytes(StandardCharsets.UTF_8));
+            addBytes(value != null ? String.valueOf(value).getBytes(StandardCharsets.UTF_8) : null);
+        }
+
+        void addBytes(byte[] bytes) {
+            if (bytes == null) {
+                digest.update((byte) 0);
+                return;
+            }
+            digest.update((byte) 1);
+            int length = bytes.length;
+            digest.update(new byte[]{(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+            digest.update(bytes);
+        }
+
+        String hex() {
+            return HexFormat.of().formatHex(digest.digest());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.llmmanager.agent.routing;
+
+import com.llmmanager.agent.config.HedgingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 对冲请求执行器
+ *
+ * 非流式调用在阈值时间（该模型最近耗时的 p90）内未返回时，再发起一次相同请求：
+ * - 先返回的结果生效，另一个请求被取消（阻塞中的 HTTP 调用通过线程中断尽力中止）
+ * - 主请求失败直接返回错误；对冲请求失败则继续等待主请求
+ * - 全局预算：每个主请求存入 budgetRatio 份额，每次对冲消耗 1 份，额外请求比例不超过 budgetRatio
+ *
+ * 指标：
+ * - llm.hedge.requests (Counter)  - 参与对冲的主请求数（已开启且阈值样本充足）
+ * - llm.hedge.fired (Counter)     - 实际发出的对冲请求数（对冲率 = fired / requests）
+ * - llm.hedge.won (Counter)       - 对冲请求先返回的次数
+ * - llm.hedge.latency (Timer)     - 调用方实际感知的耗时（含 p50/p90/p99，可与开启前对比）
+ */
+@Slf4j
+@Component
+public class RequestHedger {
+
+    @Resource
+    private HedgingProperties properties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+
+    private double budget;
+
+    /**
+     * 执行（可能对冲的）同步调用
+     *
+     * @param model  模型标识（阈值和指标按模型区分）
+     * @param action 实际调用，可能被执行两次，必须无副作用
+     */
+    public ChatResponse call(String model, Supplier<ChatResponse> action) {
+        String modelTag = model != null ? model : "unknown";
+        long threshold = threshold(modelTag);
+
+        long startTime = System.nanoTime();
+        try {
+            if (!Boolean.TRUE.equals(properties.getEnabled()) || threshold < 0) {
+                return primary(modelTag, action).block();
+            }
+
+            // 只有真正可能对冲的请求才存入预算并计数，关闭或样本不足时不影响对冲率
+            deposit();
+            Counter.builder("llm.hedge.requests").tag("model", modelTag).register(meterRegistry).increment();
+
+            AtomicBoolean hedgeWon = new AtomicBoolean(false);
+            Mono<ChatResponse> primary = primary(modelTag, action).subscribeOn(Schedulers.boundedElastic());
+            Mono<ChatResponse> hedge = Mono.delay(Duration.ofMillis(threshold))
+                    .flatMap(tick -> {
+                        if (!tryAcquire()) {
+                            return Mono.never();
+                        }
+                        log.debug("[RequestHedger] {}ms 内未返回，发起对冲请求, model: {}", threshold, modelTag);
+                        Counter.builder("llm.hedge.fired").tag("model", modelTag).register(meterRegistry).increment();
+                        return Mono.fromSupplier(action)
+                                .subscribeOn(Schedulers.boundedElastic())
+                                .doOnNext(response -> hedgeWon.set(true))
+                                .onErrorResume(e -> {
+                                    log.warn("[RequestHedger] 对冲请求失败，继续等待主请求, model: {}, error: {}",
+                                            modelTag, e.getMessage());
+                                    return Mono.never();
+                                });
+                    });
+
+            ChatResponse response = Mono.firstWithSignal(primary, hedge).block();
+            if (hedgeWon.get()) {
+                Counter.builder("llm.hedge.won").tag("model", modelTag).register(meterRegistry).increment();
+            }
+            return response;
+        } finally {
+            Timer.builder("llm.hedge.latency")
+                    .tag("model", modelTag)
+                    .publishPercentiles(0.5, 0.9, 0.99)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 主请求，耗时样本只取自主请求
+     *
+     * 成功时记录实际耗时；被对冲请求抢先而取消时记录取消时已耗费的时间（真实耗时的下界），
+     * 避免慢请求的样本因被取消而缺失、阈值逐渐偏低。对冲请求本身不记录样本。
+     */
+    private Mono<ChatResponse> primary(String model, Supplier<ChatResponse> action) {
+        return Mono.defer(() -> {
+            long startTime = System.nanoTime();
+            AtomicBoolean sampled = new AtomicBoolean(false);
+            Runnable sample = () -> {
+                if (sampled.compareAndSet(false, true)) {
+                    window(model).add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+                }
+            };
+            return Mono.fromSupplier(action)
+                    .doOnNext(response -> sample.run())
+                    .doOnCancel(sample);
+        });
+    }
+
+    /**
+     * 当前对冲阈值（毫秒），样本不足时返回 -1（不对冲）
+     */
+    private long threshold(String model) {
+        LatencyWindow window = window(model);
+        if (window.size() < properties.getMinSamples()) {
+            return -1;
+        }
+        return Math.max(properties.getMinDelayMs(), window.percentile(properties.getPercentile()));
+    }
+
+    private LatencyWindow window(String model) {
+        return windows.computeIfAbsent(model, k -> new LatencyWindow(properties.getWindowSize()));
+    }
+
+    private synchronized void deposit() {
+        budget = Math.min(properties.getMaxBudget(), budget + properties.getBudgetRatio());
+    }
+
+    private synchronized boolean tryAcquire() {
+        if (budget < 1) {
+            return false;
+        }
+        budget -= 1;
+        return true;
+    }
+
+    /**
+     * 最近 N 次耗时的环形窗口
+     */
+    private static class LatencyWindow {
+
+        private final long[] samples;
+        private int count;
+        private int next;
+
+        LatencyWindow(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        synchronized void add(long latencyMs) {
+            samples[next] = latencyMs;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        synchronized int size() {
+            return count;
+        }
+
+        synchronized long percentile(double p) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(p * count) - 1;
+            return sorted[Math.max(0, Math.min(index, count - 1))];
+        }
+    }
+}
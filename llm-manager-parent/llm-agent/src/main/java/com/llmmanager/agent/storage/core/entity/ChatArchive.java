@@ -0,0 +1,96 @@
+package com.llmmanager.agent.storage.core.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.llmmanager.common.entity.BaseEntity;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 聊天历史冷归档索引实体
+ *
+ * 超过保留期的会话整体写入按月份分区的归档文件（NDJSON.gz，一行一个会话），
+ * 本表记录会话归档到了哪个文件，用于按需恢复。
+ *
+ * 状态流转：PURGING（文件已落盘，正在分批删除在线数据）→ ARCHIVED → RESTORED（已恢复到在线表）
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName(value = "a_chat_archives", autoResultMap = true)
+public class ChatArchive extends BaseEntity {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 会话标识
+     */
+    private String conversationCode;
+
+    /**
+     * 时间分区（会话最后消息时间所在月份，yyyy-MM）
+     */
+    private String archiveMonth;
+
+    /**
+     * 归档文件路径（相对归档根目录）
+     */
+    private String filePath;
+
+    /**
+     * 归档的消息数
+     */
+    private Integer messageCount;
+
+    /**
+     * 归档的轮次数
+     */
+    private Integer turnCount;
+
+    /**
+     * 归档内容的原始大小（字节，未压缩）
+     */
+    private Long rawBytes;
+
+    /**
+     * 在线消息清理上界（归档时会话消息的最大 id，之后写入的新消息不会被删除）
+     */
+    private Long maxMessageId;
+
+    /**
+     * 在线轮次清理上界（归档时会话轮次的最大 id）
+     */
+    private Long maxTurnId;
+
+    /**
+     * 会话最后消息时间
+     */
+    private LocalDateTime lastMessageTime;
+
+    /**
+     * 状态
+     */
+    private String status;
+
+    /**
+     * 归档时间
+     */
+    private LocalDateTime archiveTime;
+
+    /**
+     * 最近一次恢复时间
+     */
+    private LocalDateTime restoreTime;
+
+    /**
+     * 归档状态枚举
+     */
+    public enum ArchiveStatus {
+        PURGING,
+        ARCHIVED,
+        RESTORED
+    }
+}
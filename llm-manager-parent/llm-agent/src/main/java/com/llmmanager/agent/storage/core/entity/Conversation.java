@@ -100,6 +100,8 @@ public class Conversation extends BaseEntity {
         conversation.setTotalTokens(0);
         conversation.setIsArchived(0);
         conversation.setIsPinned(0);
+        // 会话列表按最后消息时间游标分页，新会话以创建时间作为初始值（列不为 NULL）
+        conversation.setLastMessageTime(LocalDateTime.now());
         return conversation;
     }
 
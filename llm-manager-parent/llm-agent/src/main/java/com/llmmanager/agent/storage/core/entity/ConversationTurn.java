@@ -93,7 +93,7 @@ public class ConversationTurn extends BaseEntity {
     // ==================== 状态 ====================
 
     /**
-     * 状态：PENDING/PROCESSING/SUCCESS/FAILED/TIMEOUT
+     * 状态：PENDING/PROCESSING/SUCCESS/FAILED/TIMEOUT/INTERRUPTED
      */
     private String status;
 
@@ -141,6 +141,8 @@ public class ConversationTurn extends BaseEntity {
     public static final String STATUS_SUCCESS = "SUCCESS";
     public static final String STATUS_FAILED = "FAILED";
     public static final String STATUS_TIMEOUT = "TIMEOUT";
+    /** 流式输出被客户端断开中止（部分回答不作为完整轮次保存） */
+    public static final String STATUS_INTERRUPTED = "INTERRUPTED";
 
     // ==================== 静态工厂方法 ====================
 
@@ -0,0 +1,157 @@
+package com.llmmanager.agent.storage.core.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.llmmanager.common.entity.BaseEntity;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * 文档入库任务实体
+ *
+ * 文档上传后写入一条任务，由后台 DocumentIngestionWorker 认领执行。
+ * 认领时写入租约（leaseOwner / leaseUntil），执行期间定期心跳续约；
+ * 节点宕机后租约过期，任务可被其它节点重新认领。
+ *
+ * 状态流转：QUEUED → RUNNING → SUCCEEDED
+ *                          ↘ QUEUED（失败重试，按指数退避设置 nextRunTime）
+ *                          ↘ DEAD（执行次数耗尽，进入死信，可人工重新入队）
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName(value = "a_document_jobs", autoResultMap = true)
+public class DocumentJob extends BaseEntity {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 任务唯一标识（32位UUID）
+     */
+    private String jobCode;
+
+    /**
+     * 关联的文档 Code
+     */
+    private String docCode;
+
+    /**
+     * 关联的知识库 Code
+     */
+    private String kbCode;
+
+    /**
+     * 优先级（越大越先执行）
+     */
+    private Integer priority;
+
+    /**
+     * 任务状态
+     * - QUEUED: 等待执行
+     * - RUNNING: 执行中（持有租约）
+     * - SUCCEEDED: 执行成功
+     * - DEAD: 执行次数耗尽（死信）
+     */
+    private String status;
+
+    /**
+     * 已执行次数
+     */
+    private Integer attempts;
+
+    /**
+     * 最大执行次数
+     */
+    private Integer maxAttempts;
+
+    /**
+     * 最早可执行时间
+     */
+    private LocalDateTime nextRunTime;
+
+    /**
+     * 持有租约的节点
+     */
+    private String leaseOwner;
+
+    /**
+     * 租约到期时间
+     */
+    private LocalDateTime leaseUntil;
+
+    /**
+     * 最近一次心跳时间
+     */
+    private LocalDateTime heartbeatTime;
+
+    /**
+     * 最近一次开始执行时间
+     */
+    private LocalDateTime startTime;
+
+    /**
+     * 完成/进入死信时间
+     */
+    private LocalDateTime finishTime;
+
+    /**
+     * 生成的文本块数量
+     */
+    private Integer chunkCount;
+
+    /**
+     * 最近一次失败原因
+     */
+    private String lastError;
+
+    /**
+     * 任务状态枚举
+     */
+    public enum JobStatus {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        DEAD
+    }
+
+    /**
+     * 生成任务唯一标识（32位无连字符的UUID）
+     */
+    public static String generateJobCode() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    /**
+     * 为文档创建入库任务
+     */
+    public static DocumentJob create(KnowledgeDocument doc, int priority, int maxAttempts) {
+        DocumentJob job = new DocumentJob();
+        job.setJobCode(generateJobCode());
+        job.setDocCode(doc.getDocCode());
+        job.setKbCode(doc.getKbCode());
+        job.setPriority(priority);
+        job.setStatus(JobStatus.QUEUED.name());
+        job.setAttempts(0);
+        job.setMaxAttempts(maxAttempts);
+        job.setChunkCount(0);
+        return job;
+    }
+
+    /**
+     * 是否仍在队列中或执行中
+     */
+    public boolean isActive() {
+        return JobStatus.QUEUED.name().equals(status) || JobStatus.RUNNING.name().equals(status);
+    }
+
+    /**
+     * 是否进入死信
+     */
+    public boolean isDead() {
+        return JobStatus.DEAD.name().equals(status);
+    }
+}
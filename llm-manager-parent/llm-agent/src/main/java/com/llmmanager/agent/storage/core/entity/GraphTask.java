@@ -8,9 +8,19 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 /**
  * Graph 工作流任务执行记录
+ *
+ * 同时作为异步任务的队列记录（taskType 不为空）：提交接口写入 PENDING 任务后立即返回 taskCode，
+ * 由后台 GraphTaskWorker 认领执行，租约与重试机制与 DocumentJob 相同。
+ *
+ * 状态流转：PENDING → RUNNING → SUCCESS
+ *                          ↘ FAILED（执行次数耗尽）/ PENDING（失败重试，按指数退避设置 nextRunTime）
+ *          PENDING / RUNNING → CANCELLED（调用方取消）
+ *
+ * 任务结束且设置了 callbackUrl 时，callbackStatus 置为 PENDING，由 Worker 投递结果并按退避重试。
  */
 @Data
 @EqualsAndHashCode(callSuper = true)
@@ -90,4 +100,173 @@ public class GraphTask extends BaseEntity {
      * 错误信息
      */
     private String errorMessage;
+
+    /**
+     * 执行时的工作流配置快照（JSON）
+     */
+    private String graphConfigSnapshot;
+
+    /**
+     * 异步任务类型（为空表示同步执行记录，不进入队列）
+     * RESEARCH / WORKFLOW / REACT_AGENT
+     */
+    private String taskType;
+
+    /**
+     * 工作流 / ReactAgent 的 slug
+     */
+    private String targetSlug;
+
+    /**
+     * 执行参数（JSON：工作流初始状态等）
+     */
+    private String inputParams;
+
+    /**
+     * 完整执行结果（JSON）
+     */
+    private String resultData;
+
+    /**
+     * 提交任务的 API Key ID（公平调度分组，管理后台提交为空）
+     */
+    private Long apiKeyId;
+
+    /**
+     * 优先级（越大越先执行）
+     */
+    private Integer priority;
+
+    /**
+     * 已执行次数
+     */
+    private Integer attempts;
+
+    /**
+     * 最大执行次数
+     */
+    private Integer maxAttempts;
+
+    /**
+     * 最早可执行时间
+     */
+    private LocalDateTime nextRunTime;
+
+    /**
+     * 持有租约的节点
+     */
+    private String leaseOwner;
+
+    /**
+     * 租约到期时间
+     */
+    private LocalDateTime leaseUntil;
+
+    /**
+     * 最近一次心跳时间
+     */
+    private LocalDateTime heartbeatTime;
+
+    /**
+     * 结果回调地址
+     */
+    private String callbackUrl;
+
+    /**
+     * 回调状态
+     * PENDING / DELIVERED / FAILED
+     */
+    private String callbackStatus;
+
+    /**
+     * 已回调次数
+     */
+    private Integer callbackAttempts;
+
+    /**
+     * 下次回调时间
+     */
+    private LocalDateTime nextCallbackTime;
+
+    /**
+     * 最近一次回调失败原因
+     */
+    private String callbackError;
+
+    /**
+     * 任务状态枚举
+     */
+    public enum TaskStatus {
+        PENDING,
+        RUNNING,
+        SUCCESS,
+        FAILED,
+        CANCELLED
+    }
+
+    /**
+     * 异步任务类型枚举
+     */
+    public enum TaskType {
+        /**
+         * DeepResearch 深度研究（modelId + question）
+         */
+        RESEARCH,
+        /**
+         * 动态工作流（graphConfigSnapshot + inputParams）
+         */
+        WORKFLOW,
+        /**
+         * ReactAgent（targetSlug + question）
+         */
+        REACT_AGENT
+    }
+
+    /**
+     * 回调状态枚举
+     */
+    public enum CallbackStatus {
+        PENDING,
+        DELIVERED,
+        FAILED
+    }
+
+    /**
+     * 生成任务唯一标识（32位无连字符的UUID）
+     */
+    public static String generateTaskCode() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    /**
+     * 创建异步任务
+     */
+    public static GraphTask createAsync(TaskType type, int priority, int maxAttempts) {
+        GraphTask task = new GraphTask();
+        task.setTaskCode(generateTaskCode());
+        task.setTaskType(type.name());
+        task.setStatus(TaskStatus.PENDING.name());
+        task.setPriority(priority);
+        task.setAttempts(0);
+        task.setMaxAttempts(maxAttempts);
+        task.setIterationCount(0);
+        task.setCallbackAttempts(0);
+        return task;
+    }
+
+    /**
+     * 是否已结束（成功 / 失败 / 取消）
+     */
+    public boolean isFinished() {
+        return TaskStatus.SUCCESS.name().equals(status)
+                || TaskStatus.FAILED.name().equals(status)
+                || TaskStatus.CANCELLED.name().equals(status);
+    }
+
+    /**
+     * 是否为异步任务
+     */
+    public boolean isAsync() {
+        return taskType != null;
+    }
 }
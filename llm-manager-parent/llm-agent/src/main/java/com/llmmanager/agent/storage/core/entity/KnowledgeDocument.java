@@ -129,6 +129,12 @@ public class KnowledgeDocument extends BaseEntity {
      */
     private Integer sortOrder;
 
+    /**
+     * 入库任务 Code（启用后台 Worker 时由上传接口返回，不入库）
+     */
+    @TableField(exist = false)
+    private String jobCode;
+
     /**
      * 生成文档唯一标识（32位无连字符的UUID）
      */
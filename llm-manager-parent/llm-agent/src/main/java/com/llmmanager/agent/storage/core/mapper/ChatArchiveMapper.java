@@ -0,0 +1,66 @@
+package com.llmmanager.agent.storage.core.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.llmmanager.agent.storage.core.entity.ChatArchive;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 聊天历史冷归档索引 Mapper
+ */
+@Mapper
+public interface ChatArchiveMapper extends BaseMapper<ChatArchive> {
+
+    /**
+     * 根据会话标识查询
+     */
+    @Select("SELECT * FROM a_chat_archives WHERE conversation_code = #{conversationCode} AND is_delete = 0")
+    ChatArchive selectByConversationCode(@Param("conversationCode") String conversationCode);
+
+    /**
+     * 查询在线数据尚未清理完的归档（上次执行中断后继续清理）
+     */
+    @Select("SELECT * FROM a_chat_archives WHERE status = 'PURGING' AND is_delete = 0 ORDER BY id ASC LIMIT #{limit}")
+    List<ChatArchive> selectPurging(@Param("limit") int limit);
+
+    /**
+     * 在线数据清理完成
+     */
+    @Update("UPDATE a_chat_archives SET status = 'ARCHIVED', update_time = NOW() WHERE id = #{id} AND status = 'PURGING'")
+    int markArchived(@Param("id") Long id);
+
+    /**
+     * 已恢复到在线表
+     */
+    @Update("UPDATE a_chat_archives SET status = 'RESTORED', restore_time = NOW(), update_time = NOW() " +
+            "WHERE id = #{id} AND status = 'ARCHIVED'")
+    int markRestored(@Param("id") Long id);
+
+    /**
+     * 删除会话的归档索引（过期会话直接丢弃时）
+     */
+    @Delete("DELETE FROM a_chat_archives WHERE conversation_code = #{conversationCode}")
+    int purgeByConversationCode(@Param("conversationCode") String conversationCode);
+
+    /**
+     * 按状态统计归档会话数量、消息数量和原始大小
+     */
+    @Select("SELECT status, COUNT(*) AS conversations, IFNULL(SUM(message_count), 0) AS messages, " +
+            "IFNULL(SUM(raw_bytes), 0) AS rawBytes FROM a_chat_archives WHERE is_delete = 0 GROUP BY status")
+    List<Map<String, Object>> countByStatus();
+
+    /**
+     * 聊天历史相关表的空间占用（information_schema 统计值，为近似值）
+     * dataFree 为已释放、可被后续写入复用的空间
+     */
+    @Select("SELECT table_name AS tableName, table_rows AS tableRows, data_length AS dataLength, " +
+            "index_length AS indexLength, data_free AS dataFree FROM information_schema.TABLES " +
+            "WHERE table_schema = DATABASE() AND table_name IN ('a_conversations', 'a_chat_history', 'a_conversation_turns')")
+    List<Map<String, Object>> selectHistoryTableStats();
+}
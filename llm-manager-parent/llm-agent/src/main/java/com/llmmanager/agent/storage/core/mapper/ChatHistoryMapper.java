@@ -2,6 +2,7 @@ package com.llmmanager.agent.storage.core.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.llmmanager.agent.storage.core.entity.ChatHistory;
+import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -20,9 +21,10 @@ public interface ChatHistoryMapper extends BaseMapper<ChatHistory> {
     /**
      * 根据会话标识和限制条数查询最近的消息
      * 注意：需要手动添加 is_delete = 0 条件
+     * 按 message_index 排序（同一秒内的消息顺序确定），倒序扫描 idx_conv_live 索引，无 filesort
      */
     @Select("SELECT * FROM a_chat_history WHERE conversation_code = #{conversationCode} AND is_delete = 0 " +
-            "ORDER BY create_time DESC LIMIT #{limit}")
+            "ORDER BY message_index DESC LIMIT #{limit}")
     List<ChatHistory> selectRecentMessages(@Param("conversationCode") String conversationCode,
                                            @Param("limit") int limit);
 
@@ -46,7 +48,7 @@ public interface ChatHistoryMapper extends BaseMapper<ChatHistory> {
     int deleteExpiredMessages(@Param("expireTime") LocalDateTime expireTime);
 
     /**
-     * 获取指定会话的最大消息序号
+     * 获取指定会话的最大消息序号（idx_conv_live 索引覆盖，直接取索引末尾）
      * @param conversationCode 会话标识
      * @return 最大消息序号，如果没有记录则返回null
      */
@@ -66,6 +68,27 @@ public interface ChatHistoryMapper extends BaseMapper<ChatHistory> {
      */
     @Select("SELECT * FROM a_chat_history " +
             "WHERE conversation_code = #{conversationCode} AND message_type = 'USER' AND is_delete = 0 " +
-            "ORDER BY create_time DESC LIMIT 1")
+            "ORDER BY message_index DESC LIMIT 1")
     ChatHistory selectLatestUserMessage(@Param("conversationCode") String conversationCode);
+
+    /**
+     * 物理删除会话中已归档的消息（分批，id 上界之后写入的新消息不受影响）
+     */
+    @Delete("DELETE FROM a_chat_history WHERE conversation_code = #{conversationCode} AND id <= #{maxId} LIMIT #{limit}")
+    int purgeByConversationCode(@Param("conversationCode") String conversationCode, @Param("maxId") long maxId,
+                                @Param("limit") int limit);
+
+    /**
+     * 物理删除已软删除的消息（分批，走 idx_is_delete，释放 uk_conv_msg_idx 中占用的序号）
+     */
+    @Delete("DELETE FROM a_chat_history WHERE is_delete = 1 ORDER BY id LIMIT #{limit}")
+    int purgeSoftDeleted(@Param("limit") int limit);
+
+    /**
+     * 会话内所有消息（含软删除）的序号整体后移，用于恢复归档时给更早的归档消息腾出序号
+     * 按序号倒序更新，避免与 uk_conv_msg_idx 冲突
+     */
+    @Update("UPDATE a_chat_history SET message_index = message_index + #{offset} " +
+            "WHERE conversation_code = #{conversationCode} ORDER BY message_index DESC")
+    int shiftMessageIndex(@Param("conversationCode") String conversationCode, @Param("offset") int offset);
 }
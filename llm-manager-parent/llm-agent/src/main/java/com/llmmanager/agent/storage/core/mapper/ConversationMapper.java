@@ -2,11 +2,13 @@ package com.llmmanager.agent.storage.core.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.llmmanager.agent.storage.core.entity.Conversation;
+import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -83,4 +85,36 @@ public interface ConversationMapper extends BaseMapper<Conversation> {
     @Update("UPDATE a_conversations SET title = #{title}, update_time = NOW() " +
             "WHERE conversation_code = #{conversationCode} AND is_delete = 0")
     int updateTitle(@Param("conversationCode") String conversationCode, @Param("title") String title);
+
+    /**
+     * 查询超过保留期、需要归档的会话（按 id 游标分页，只返回归档需要的字段）
+     *
+     * 排除置顶会话，以及：
+     * - 归档清理中（PURGING）的会话
+     * - 已归档且之后没有新消息的会话
+     * - 保留期内恢复过的会话
+     */
+    @Select("SELECT c.id, c.conversation_code, c.title, c.agent_slug, c.create_time, " +
+            "IFNULL(c.last_message_time, c.create_time) AS last_message_time " +
+            "FROM a_conversations c WHERE c.id > #{afterId} AND c.is_delete = 0 AND c.is_pinned = 0 " +
+            "AND IFNULL(c.last_message_time, c.create_time) < #{before} " +
+            "AND NOT EXISTS (SELECT 1 FROM a_chat_archives a WHERE a.conversation_code = c.conversation_code " +
+            "AND a.is_delete = 0 AND (a.status = 'PURGING' " +
+            "OR (a.status = 'ARCHIVED' AND a.last_message_time >= IFNULL(c.last_message_time, c.create_time)) " +
+            "OR (a.status = 'RESTORED' AND a.restore_time >= #{before}))) " +
+            "ORDER BY c.id ASC LIMIT #{limit}")
+    List<Conversation> selectExpiredForArchive(@Param("before") LocalDateTime before, @Param("afterId") long afterId,
+                                               @Param("limit") int limit);
+
+    /**
+     * 物理删除会话（未开启归档时直接丢弃过期会话）
+     */
+    @Delete("DELETE FROM a_conversations WHERE id = #{id}")
+    int purgeById(@Param("id") Long id);
+
+    /**
+     * 物理删除已软删除的会话（分批）
+     */
+    @Delete("DELETE FROM a_conversations WHERE is_delete = 1 ORDER BY id LIMIT #{limit}")
+    int purgeSoftDeleted(@Param("limit") int limit);
 }
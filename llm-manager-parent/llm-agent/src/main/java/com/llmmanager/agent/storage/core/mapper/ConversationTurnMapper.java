@@ -2,6 +2,7 @@ package com.llmmanager.agent.storage.core.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.llmmanager.agent.storage.core.entity.ConversationTurn;
+import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -98,6 +99,16 @@ public interface ConversationTurnMapper extends BaseMapper<ConversationTurn> {
     @Update("UPDATE a_conversation_turns SET assistant_message_code = #{assistantMessageCode}, update_time = NOW() WHERE turn_code = #{turnCode}")
     int updateAssistantMessageCode(@Param("turnCode") String turnCode, @Param("assistantMessageCode") String assistantMessageCode);
 
+    /**
+     * 标记轮次为已中断（仅处理未完成的轮次，避免覆盖已成功保存的结果）
+     */
+    @Update("UPDATE a_conversation_turns SET status = 'INTERRUPTED', completion_tokens = #{completionTokens}, " +
+            "error_message = #{reason}, end_time = NOW(), update_time = NOW() " +
+            "WHERE turn_code = #{turnCode} AND status IN ('PENDING', 'PROCESSING')")
+    int updateInterrupted(@Param("turnCode") String turnCode,
+                          @Param("completionTokens") int completionTokens,
+                          @Param("reason") String reason);
+
     /**
      * 软删除指定会话的所有轮次
      */
@@ -110,4 +121,24 @@ public interface ConversationTurnMapper extends BaseMapper<ConversationTurn> {
     @Select("SELECT * FROM a_conversation_turns WHERE conversation_code = #{conversationCode} " +
             "AND status IN ('PENDING', 'PROCESSING') AND is_delete = 0 ORDER BY turn_index DESC LIMIT 1")
     ConversationTurn selectLatestPendingTurn(@Param("conversationCode") String conversationCode);
+
+    /**
+     * 物理删除会话中已归档的轮次（分批，id 上界之后写入的新轮次不受影响）
+     */
+    @Delete("DELETE FROM a_conversation_turns WHERE conversation_code = #{conversationCode} AND id <= #{maxId} LIMIT #{limit}")
+    int purgeByConversationCode(@Param("conversationCode") String conversationCode, @Param("maxId") long maxId,
+                                @Param("limit") int limit);
+
+    /**
+     * 物理删除已软删除的轮次（分批）
+     */
+    @Delete("DELETE FROM a_conversation_turns WHERE is_delete = 1 ORDER BY id LIMIT #{limit}")
+    int purgeSoftDeleted(@Param("limit") int limit);
+
+    /**
+     * 会话内所有轮次（含软删除）的序号整体后移，按序号倒序更新避免与 uk_conv_turn_idx 冲突
+     */
+    @Update("UPDATE a_conversation_turns SET turn_index = turn_index + #{offset} " +
+            "WHERE conversation_code = #{conversationCode} ORDER BY turn_index DESC")
+    int shiftTurnIndex(@Param("conversationCode") String conversationCode, @Param("offset") int offset);
 }
@@ -0,0 +1,132 @@
+package com.llmmanager.agent.storage.core.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.llmmanager.agent.storage.core.entity.DocumentJob;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文档入库任务 Mapper
+ *
+ * 租约相关的时间统一使用数据库时间（NOW(3)），避免各节点时钟偏差导致重复认领。
+ * 认领是两步：先按优先级查出候选 ID，再逐条以 status='QUEUED' 为条件 UPDATE，
+ * 影响行数为 1 才算认领成功（多节点并发认领同一任务时只有一个成功）。
+ * 注意 MySQL 的 SET 子句按顺序求值，引用 lease_owner 的表达式需写在清空 lease_owner 之前。
+ */
+@Mapper
+public interface DocumentJobMapper extends BaseMapper<DocumentJob> {
+
+    /**
+     * 根据任务 Code 查询
+     */
+    @Select("SELECT * FROM a_document_jobs WHERE job_code = #{jobCode} AND is_delete = 0")
+    DocumentJob selectByJobCode(@Param("jobCode") String jobCode);
+
+    /**
+     * 查询文档未结束（QUEUED / RUNNING）的任务
+     */
+    @Select("SELECT * FROM a_document_jobs WHERE doc_code = #{docCode} AND status IN ('QUEUED', 'RUNNING') " +
+            "AND is_delete = 0 ORDER BY id DESC LIMIT 1")
+    DocumentJob selectActiveByDocCode(@Param("docCode") String docCode);
+
+    /**
+     * 查询文档最近一次任务
+     */
+    @Select("SELECT * FROM a_document_jobs WHERE doc_code = #{docCode} AND is_delete = 0 ORDER BY id DESC LIMIT 1")
+    DocumentJob selectLatestByDocCode(@Param("docCode") String docCode);
+
+    /**
+     * 查询知识库最近的任务
+     */
+    @Select("SELECT * FROM a_document_jobs WHERE kb_code = #{kbCode} AND is_delete = 0 ORDER BY id DESC LIMIT #{limit}")
+    List<DocumentJob> selectByKbCode(@Param("kbCode") String kbCode, @Param("limit") int limit);
+
+    /**
+     * 查询可认领的任务 ID（优先级高的先执行，同优先级先进先出）
+     */
+    @Select("SELECT id FROM a_document_jobs WHERE status = 'QUEUED' AND next_run_time <= NOW(3) AND is_delete = 0 " +
+            "ORDER BY priority DESC, id ASC LIMIT #{limit}")
+    List<Long> selectClaimableIds(@Param("limit") int limit);
+
+    /**
+     * 认领任务（条件更新，影响行数为 1 表示认领成功）
+     */
+    @Update("UPDATE a_document_jobs SET status = 'RUNNING', lease_owner = #{owner}, " +
+            "lease_until = NOW(3) + INTERVAL #{leaseMs} * 1000 MICROSECOND, heartbeat_time = NOW(3), " +
+            "start_time = NOW(3), attempts = attempts + 1 " +
+            "WHERE id = #{id} AND status = 'QUEUED' AND next_run_time <= NOW(3) AND is_delete = 0")
+    int tryClaim(@Param("id") Long id, @Param("owner") String owner, @Param("leaseMs") long leaseMs);
+
+    /**
+     * 心跳续约（租约已被其它节点接管时影响行数为 0）
+     */
+    @Update("UPDATE a_document_jobs SET lease_until = NOW(3) + INTERVAL #{leaseMs} * 1000 MICROSECOND, " +
+            "heartbeat_time = NOW(3) WHERE id = #{id} AND status = 'RUNNING' AND lease_owner = #{owner}")
+    int renewLease(@Param("id") Long id, @Param("owner") String owner, @Param("leaseMs") long leaseMs);
+
+    /**
+     * 标记执行成功
+     */
+    @Update("UPDATE a_document_jobs SET status = 'SUCCEEDED', chunk_count = #{chunkCount}, finish_time = NOW(3), " +
+            "lease_owner = NULL, lease_until = NULL, last_error = NULL " +
+            "WHERE id = #{id} AND status = 'RUNNING' AND lease_owner = #{owner}")
+    int markSucceeded(@Param("id") Long id, @Param("owner") String owner, @Param("chunkCount") int chunkCount);
+
+    /**
+     * 执行失败，退避后重新入队
+     */
+    @Update("UPDATE a_document_jobs SET status = 'QUEUED', next_run_time = NOW(3) + INTERVAL #{backoffMs} * 1000 MICROSECOND, " +
+            "lease_owner = NULL, lease_until = NULL, last_error = #{error} " +
+            "WHERE id = #{id} AND status = 'RUNNING' AND lease_owner = #{owner}")
+    int markRetry(@Param("id") Long id, @Param("owner") String owner, @Param("error") String error,
+                  @Param("backoffMs") long backoffMs);
+
+    /**
+     * 执行次数耗尽，进入死信
+     */
+    @Update("UPDATE a_document_jobs SET status = 'DEAD', finish_time = NOW(3), " +
+            "lease_owner = NULL, lease_until = NULL, last_error = #{error} " +
+            "WHERE id = #{id} AND status = 'RUNNING' AND lease_owner = #{owner}")
+    int markDead(@Param("id") Long id, @Param("owner") String owner, @Param("error") String error);
+
+    /**
+     * 租约过期且仍有执行次数的任务重新入队（持有节点宕机或失联）
+     */
+    @Update("UPDATE a_document_jobs SET last_error = CONCAT('租约过期（节点 ', IFNULL(lease_owner, '-'), '），重新入队'), " +
+            "status = 'QUEUED', next_run_time = NOW(3), lease_owner = NULL, lease_until = NULL " +
+            "WHERE status = 'RUNNING' AND lease_until < NOW(3) AND attempts < max_attempts AND is_delete = 0")
+    int requeueExpiredLeases();
+
+    /**
+     * 租约过期且执行次数耗尽的任务进入死信
+     */
+    @Update("UPDATE a_document_jobs SET last_error = CONCAT('租约过期（节点 ', IFNULL(lease_owner, '-'), '）且执行次数已耗尽'), " +
+            "status = 'DEAD', finish_time = NOW(3), lease_owner = NULL, lease_until = NULL " +
+            "WHERE status = 'RUNNING' AND lease_until < NOW(3) AND attempts >= max_attempts AND is_delete = 0")
+    int deadLetterExpiredLeases();
+
+    /**
+     * 死信任务重新入队（重置执行次数）
+     */
+    @Update("UPDATE a_document_jobs SET status = 'QUEUED', attempts = 0, next_run_time = NOW(3), finish_time = NULL " +
+            "WHERE job_code = #{jobCode} AND status = 'DEAD' AND is_delete = 0")
+    int requeueDead(@Param("jobCode") String jobCode);
+
+    /**
+     * 排在该任务之前的可执行任务数量
+     */
+    @Select("SELECT COUNT(*) FROM a_document_jobs WHERE status = 'QUEUED' AND is_delete = 0 " +
+            "AND (priority > #{priority} OR (priority = #{priority} AND id < #{id}))")
+    int countAhead(@Param("id") Long id, @Param("priority") int priority);
+
+    /**
+     * 按状态统计任务数量
+     */
+    @Select("SELECT status, COUNT(*) AS cnt FROM a_document_jobs WHERE is_delete = 0 GROUP BY status")
+    List<Map<String, Object>> countByStatus();
+}
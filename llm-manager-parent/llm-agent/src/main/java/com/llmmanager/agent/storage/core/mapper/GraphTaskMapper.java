@@ -3,7 +3,204 @@ package com.llmmanager.agent.storage.core.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.llmmanager.agent.storage.core.entity.GraphTask;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Graph 工作流任务 Mapper
+ *
+ * 异步任务（task_type 不为空）的认领 / 租约 / 重试与 DocumentJobMapper 相同：
+ * 租约时间统一使用数据库时间（NOW(3)），认领以 status='PENDING' 为条件 UPDATE，影响行数为 1 才算认领成功。
+ * 注意 MySQL 的 SET 子句按顺序求值，引用 lease_owner 的表达式需写在清空 lease_owner 之前。
+ */
 @Mapper
 public interface GraphTaskMapper extends BaseMapper<GraphTask> {
+
+    /**
+     * 任务结束时的回调状态：设置了回调地址时置为 PENDING 并立即可投递
+     */
+    String CALLBACK_ON_FINISH = "callback_status = CASE WHEN callback_url IS NULL OR callback_url = '' THEN NULL ELSE 'PENDING' END, " +
+            "next_callback_time = NOW(3)";
+
+    /**
+     * 根据任务 Code 查询
+     */
+    @Select("SELECT * FROM a_graph_tasks WHERE task_code = #{taskCode} AND is_delete = 0")
+    GraphTask selectByTaskCode(@Param("taskCode") String taskCode);
+
+    /**
+     * 查询可认领的候选任务（每个 API Key 最多取 perKey 个，按优先级、先进先出排序）
+     *
+     * 按 API Key 分组取头部，避免单个 Key 大量排队时候选集被它独占，公平选择见 GraphTaskService.fairOrder
+     */
+    @Select("SELECT id, api_key_id, priority FROM (" +
+            "SELECT id, api_key_id, priority, " +
+            "ROW_NUMBER() OVER (PARTITION BY api_key_id ORDER BY priority DESC, id ASC) AS rn " +
+            "FROM a_graph_tasks WHERE status = 'PENDING' AND task_type IS NOT NULL " +
+            "AND next_run_time <= NOW(3) AND is_delete = 0" +
+            ") t WHERE rn <= #{perKey} ORDER BY priority DESC, id ASC LIMIT #{limit}")
+    List<GraphTask> selectClaimCandidates(@Param("perKey") int perKey, @Param("limit") int limit);
+
+    /**
+     * 各 API Key 正在执行的任务数（集群范围）
+     */
+    @Select("SELECT api_key_id, COUNT(*) AS cnt FROM a_graph_tasks " +
+            "WHERE status = 'RUNNING' AND task_type IS NOT NULL AND is_delete = 0 GROUP BY api_key_id")
+    List<Map<String, Object>> countRunningByApiKey();
+
+    /**
+     * 认领任务（条件更新，影响行数为 1 表示认领成功）
+     */
+    @Update("UPDATE a_graph_tasks SET status = 'RUNNING', lease_owner = #{owner}, " +
+            "lease_until = NOW(3) + INTERVAL #{leaseMs} * 1000 MICROSECOND, heartbeat_time = NOW(3), " +
+            "start_time = NOW(), attempts = attempts + 1 " +
+            "WHERE id = #{id} AND status = 'PENDING' AND next_run_time <= NOW(3) AND is_delete = 0")
+    int tryClaim(@Param("id") Long id, @Param("owner") String owner, @Param("leaseMs") long leaseMs);
+
+    /**
+     * 认领任务，同时要求该 API Key 正在执行的任务数小于 maxRunning（条件更新，影响行数为 1 表示认领成功）
+     *
+     * 执行数在同一条 UPDATE 内统计，候选查询之后其它节点认领的任务也会计入。
+     * MySQL 不允许在 UPDATE 的子查询中直接引用被更新的表（错误 1093），统计放在派生表中（含聚合，先物化）。
+     */
+    @Update("UPDATE a_graph_tasks SET status = 'RUNNING', lease_owner = #{owner}, " +
+            "lease_until = NOW(3) + INTERVAL #{leaseMs} * 1000 MICROSECOND, heartbeat_time = NOW(3), " +
+            "start_time = NOW(), attempts = attempts + 1 " +
+            "WHERE id = #{id} AND status = 'PENDING' AND next_run_time <= NOW(3) AND is_delete = 0 " +
+            "AND (SELECT r.cnt FROM (SELECT COUNT(*) AS cnt FROM a_graph_tasks " +
+            "WHERE api_key_id <=> #{apiKeyId} AND status = 'RUNNING' AND task_type IS NOT NULL AND is_delete = 0) r) " +
+            "< #{maxRunning}")
+    int tryClaimWithinKeyLimit(@Param("id") Long id, @Param("owner") String owner, @Param("leaseMs") long leaseMs,
+                               @Param("apiKeyId") Long apiKeyId, @Param("maxRunning") int maxRunning);
+
+    /**
+     * 放弃刚认领的任务（本节点无法执行）：退回 PENDING 并撤销本次认领计入的执行次数
+     */
+    @Update("UPDATE a_graph_tasks SET status = 'PENDING', next_run_time = NOW(3), start_time = NULL, " +
+            "attempts = GREATEST(attempts - 1, 0), lease_owner = NULL, lease_until = NULL " +
+            "WHERE id = #{id} AND status = 'RUNNING' AND lease_owner = #{owner}")
+    int releaseClaim(@Param("id") Long id, @Param("owner") String owner);
+
+    /**
+     * 心跳续约（租约已被其它节点接管或任务已取消时影响行数为 0）
+     */
+    @Update("UPDATE a_graph_tasks SET lease_until = NOW(3) + INTERVAL #{leaseMs} * 1000 MICROSECOND, " +
+            "heartbeat_time = NOW(3) WHERE id = #{id} AND status = 'RUNNING' AND lease_owner = #{owner}")
+    int renewLease(@Param("id") Long id, @Param("owner") String owner, @Param("leaseMs") long leaseMs);
+
+    /**
+     * 标记执行成功（写入结果）
+     */
+    @Update("UPDATE a_graph_tasks SET status = 'SUCCESS', answer = #{task.answer}, analysis = #{task.analysis}, " +
+            "quality_score = #{task.qualityScore}, iteration_count = #{task.iterationCount}, " +
+            "result_data = #{task.resultData}, total_duration_ms = #{task.totalDurationMs}, end_time = NOW(), " +
+            "lease_owner = NULL, lease_until = NULL, error_message = NULL, " + CALLBACK_ON_FINISH + " " +
+            "WHERE id = #{task.id} AND status = 'RUNNING' AND lease_owner = #{owner}")
+    int markSucceeded(@Param("task") GraphTask task, @Param("owner") String owner);
+
+    /**
+     * 执行失败，退避后重新入队
+     */
+    @Update("UPDATE a_graph_tasks SET status = 'PENDING', next_run_time = NOW(3) + INTERVAL #{backoffMs} * 1000 MICROSECOND, " +
+            "lease_owner = NULL, lease_until = NULL, error_message = #{error} " +
+            "WHERE id = #{id} AND status = 'RUNNING' AND lease_owner = #{owner}")
+    int markRetry(@Param("id") Long id, @Param("owner") String owner, @Param("error") String error,
+                  @Param("backoffMs") long backoffMs);
+
+    /**
+     * 执行失败且执行次数耗尽
+     */
+    @Update("UPDATE a_graph_tasks SET status = 'FAILED', end_time = NOW(), total_duration_ms = #{durationMs}, " +
+            "lease_owner = NULL, lease_until = NULL, error_message = #{error}, " + CALLBACK_ON_FINISH + " " +
+            "WHERE id = #{id} AND status = 'RUNNING' AND lease_owner = #{owner}")
+    int markFailed(@Param("id") Long id, @Param("owner") String owner, @Param("error") String error,
+                   @Param("durationMs") long durationMs);
+
+    /**
+     * 取消未结束的任务（执行中的任务由持有节点在心跳时发现并中止）
+     */
+    @Update("UPDATE a_graph_tasks SET status = 'CANCELLED', end_time = NOW(), " +
+            "lease_owner = NULL, lease_until = NULL, " + CALLBACK_ON_FINISH + " " +
+            "WHERE task_code = #{taskCode} AND status IN ('PENDING', 'RUNNING') AND task_type IS NOT NULL AND is_delete = 0")
+    int cancel(@Param("taskCode") String taskCode);
+
+    /**
+     * 租约过期且仍有执行次数的任务重新入队（持有节点宕机或失联）
+     */
+    @Update("UPDATE a_graph_tasks SET error_message = CONCAT('租约过期（节点 ', IFNULL(lease_owner, '-'), '），重新入队'), " +
+            "status = 'PENDING', next_run_time = NOW(3), lease_owner = NULL, lease_until = NULL " +
+            "WHERE status = 'RUNNING' AND task_type IS NOT NULL AND lease_until < NOW(3) " +
+            "AND attempts < max_attempts AND is_delete = 0")
+    int requeueExpiredLeases();
+
+    /**
+     * 租约过期且执行次数耗尽的任务标记失败
+     */
+    @Update("UPDATE a_graph_tasks SET error_message = CONCAT('租约过期（节点 ', IFNULL(lease_owner, '-'), '）且执行次数已耗尽'), " +
+            "status = 'FAILED', end_time = NOW(), lease_owner = NULL, lease_until = NULL, " + CALLBACK_ON_FINISH + " " +
+            "WHERE status = 'RUNNING' AND task_type IS NOT NULL AND lease_until < NOW(3) " +
+            "AND attempts >= max_attempts AND is_delete = 0")
+    int failExpiredLeases();
+
+    /**
+     * 排在该任务之前的可执行任务数量（不考虑公平调度，近似值）
+     */
+    @Select("SELECT COUNT(*) FROM a_graph_tasks WHERE status = 'PENDING' AND task_type IS NOT NULL AND is_delete = 0 " +
+            "AND (priority > #{priority} OR (priority = #{priority} AND id < #{id}))")
+    int countAhead(@Param("id") Long id, @Param("priority") int priority);
+
+    /**
+     * API Key 未结束（PENDING / RUNNING）的任务数量（管理后台提交的任务 apiKeyId 为 NULL）
+     */
+    @Select("SELECT COUNT(*) FROM a_graph_tasks WHERE api_key_id <=> #{apiKeyId} AND status IN ('PENDING', 'RUNNING') " +
+            "AND task_type IS NOT NULL AND is_delete = 0")
+    int countActiveByApiKey(@Param("apiKeyId") Long apiKeyId);
+
+    /**
+     * 按状态统计异步任务数量
+     */
+    @Select("SELECT status, COUNT(*) AS cnt FROM a_graph_tasks WHERE task_type IS NOT NULL AND is_delete = 0 GROUP BY status")
+    List<Map<String, Object>> countByStatus();
+
+    // ==================== 结果回调 ====================
+
+    /**
+     * 查询到期待投递的回调任务 ID
+     */
+    @Select("SELECT id FROM a_graph_tasks WHERE callback_status = 'PENDING' AND next_callback_time <= NOW(3) " +
+            "AND is_delete = 0 ORDER BY next_callback_time ASC LIMIT #{limit}")
+    List<Long> selectDueCallbackIds(@Param("limit") int limit);
+
+    /**
+     * 认领一次回调投递：把下次回调时间推后 leaseMs，投递期间其它节点不会重复投递
+     */
+    @Update("UPDATE a_graph_tasks SET next_callback_time = NOW(3) + INTERVAL #{leaseMs} * 1000 MICROSECOND " +
+            "WHERE id = #{id} AND callback_status = 'PENDING' AND next_callback_time <= NOW(3)")
+    int tryClaimCallback(@Param("id") Long id, @Param("leaseMs") long leaseMs);
+
+    /**
+     * 回调投递成功
+     */
+    @Update("UPDATE a_graph_tasks SET callback_status = 'DELIVERED', callback_attempts = callback_attempts + 1, " +
+            "next_callback_time = NULL, callback_error = NULL WHERE id = #{id} AND callback_status = 'PENDING'")
+    int markCallbackDelivered(@Param("id") Long id);
+
+    /**
+     * 回调投递失败，退避后重试
+     */
+    @Update("UPDATE a_graph_tasks SET callback_attempts = callback_attempts + 1, callback_error = #{error}, " +
+            "next_callback_time = NOW(3) + INTERVAL #{backoffMs} * 1000 MICROSECOND " +
+            "WHERE id = #{id} AND callback_status = 'PENDING'")
+    int markCallbackRetry(@Param("id") Long id, @Param("error") String error, @Param("backoffMs") long backoffMs);
+
+    /**
+     * 回调投递次数耗尽
+     */
+    @Update("UPDATE a_graph_tasks SET callback_status = 'FAILED', callback_attempts = callback_attempts + 1, " +
+            "callback_error = #{error}, next_callback_time = NULL WHERE id = #{id} AND callback_status = 'PENDING'")
+    int markCallbackFailed(@Param("id") Long id, @Param("error") String error);
 }
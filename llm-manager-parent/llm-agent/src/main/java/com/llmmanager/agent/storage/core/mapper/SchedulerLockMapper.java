@@ -0,0 +1,35 @@
+package com.llmmanager.agent.storage.core.mapper;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+/**
+ * 定时任务租约锁 Mapper
+ *
+ * 租约时间统一使用数据库时间（NOW(3)），避免各节点时钟偏差。
+ * 获取锁是条件更新：锁已过期或由本节点持有时才更新成功（影响行数为 1）。
+ */
+@Mapper
+public interface SchedulerLockMapper {
+
+    /**
+     * 初始化锁记录（已存在时忽略）
+     */
+    @Insert("INSERT IGNORE INTO a_scheduler_locks (lock_name, lock_owner, lock_until) VALUES (#{lockName}, NULL, NOW(3))")
+    int ensureLock(@Param("lockName") String lockName);
+
+    /**
+     * 获取 / 续约锁
+     */
+    @Update("UPDATE a_scheduler_locks SET lock_owner = #{owner}, lock_until = NOW(3) + INTERVAL #{leaseMs} * 1000 MICROSECOND " +
+            "WHERE lock_name = #{lockName} AND (lock_until < NOW(3) OR lock_owner = #{owner})")
+    int tryAcquire(@Param("lockName") String lockName, @Param("owner") String owner, @Param("leaseMs") long leaseMs);
+
+    /**
+     * 释放锁（只释放本节点持有的锁）
+     */
+    @Update("UPDATE a_scheduler_locks SET lock_until = NOW(3) WHERE lock_name = #{lockName} AND lock_owner = #{owner}")
+    int release(@Param("lockName") String lockName, @Param("owner") String owner);
+}
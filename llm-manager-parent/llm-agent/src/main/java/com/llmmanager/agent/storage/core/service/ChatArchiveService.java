@@ -0,0 +1,99 @@
+package com.llmmanager.agent.storage.core.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.llmmanager.agent.storage.core.entity.ChatArchive;
+import com.llmmanager.agent.storage.core.entity.ChatHistory;
+import com.llmmanager.agent.storage.core.entity.Conversation;
+import com.llmmanager.agent.storage.core.entity.ConversationTurn;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 聊天历史归档与清理 Service 接口
+ *
+ * 职责：冷归档索引的读写，以及在线聊天历史的分批物理删除 / 恢复写回
+ * 调用方：storage/memory 层的 ChatHistoryRetentionService
+ *
+ * 所有物理删除都是单条小批量 DELETE ... LIMIT（自动提交），不在一个大事务里删除，避免长时间持锁。
+ */
+public interface ChatArchiveService extends IService<ChatArchive> {
+
+    /**
+     * 根据会话标识查询归档索引
+     */
+    ChatArchive getByConversationCode(String conversationCode);
+
+    /**
+     * 查询超过保留期、需要归档的会话（按 id 游标分页）
+     */
+    List<Conversation> listExpiredConversations(LocalDateTime before, long afterId, int limit);
+
+    /**
+     * 查询会话的在线消息（不含软删除，按序号升序）
+     */
+    List<ChatHistory> listMessages(String conversationCode);
+
+    /**
+     * 查询会话的在线轮次（不含软删除，按序号升序）
+     */
+    List<ConversationTurn> listTurns(String conversationCode);
+
+    /**
+     * 写入 / 覆盖会话的归档索引，状态置为 PURGING（归档文件已落盘，开始清理在线数据）
+     */
+    ChatArchive beginArchive(ChatArchive archive);
+
+    /**
+     * 查询在线数据尚未清理完的归档
+     */
+    List<ChatArchive> listPurging(int limit);
+
+    /**
+     * 在线数据清理完成
+     */
+    void markArchived(Long id);
+
+    /**
+     * 分批物理删除会话中 id 不超过上界的消息，返回本批删除行数
+     */
+    int purgeMessages(String conversationCode, long maxId, int limit);
+
+    /**
+     * 分批物理删除会话中 id 不超过上界的轮次，返回本批删除行数
+     */
+    int purgeTurns(String conversationCode, long maxId, int limit);
+
+    /**
+     * 物理删除会话记录及其归档索引（未开启归档时丢弃过期会话）
+     */
+    void purgeConversation(Conversation conversation);
+
+    /**
+     * 分批物理删除已软删除的消息 / 轮次 / 会话，返回本批删除行数
+     */
+    int purgeSoftDeletedMessages(int limit);
+
+    int purgeSoftDeletedTurns(int limit);
+
+    int purgeSoftDeletedConversations(int limit);
+
+    /**
+     * 将归档的消息和轮次写回在线表（单个事务）
+     *
+     * 会话在归档后又产生了新消息时，新消息的序号从 0 重新开始，
+     * 恢复前先把在线消息 / 轮次的序号整体后移，归档内容按原序号写回到它们之前。
+     */
+    void restore(ChatArchive archive, List<ChatHistory> messages, List<ConversationTurn> turns);
+
+    /**
+     * 按状态统计归档会话数量、消息数量和原始大小
+     */
+    Map<String, Object> countByStatus();
+
+    /**
+     * 聊天历史相关表的空间占用（Key: 表名）
+     */
+    Map<String, Map<String, Object>> getTableStats();
+}
@@ -1,6 +1,7 @@
 package com.llmmanager.agent.storage.core.service;
 
 import com.llmmanager.agent.storage.core.entity.ChatHistory;
+import com.llmmanager.common.result.CursorPage;
 
 import java.util.List;
 
@@ -32,7 +33,7 @@ public interface ChatHistoryService {
     void saveBatch(List<ChatHistory> histories);
 
     /**
-     * 查询会话的所有历史消息（按时间升序）
+     * 查询会话的所有历史消息（按消息序号升序）
      *
      * @param conversationCode 会话标识
      * @return 聊天历史列表
@@ -52,10 +53,20 @@ public interface ChatHistoryService {
      *
      * @param conversationCode 会话标识
      * @param limit 限制条数
-     * @return 聊天历史列表（按时间升序）
+     * @return 聊天历史列表（按消息序号升序）
      */
     List<ChatHistory> findRecentMessages(String conversationCode, int limit);
 
+    /**
+     * 查询会话的历史消息（游标分页，从最新消息向前翻页）
+     *
+     * @param conversationCode 会话标识
+     * @param cursor 上一页返回的 nextCursor（为空表示第一页）
+     * @param size 每页大小
+     * @return 聊天历史分页结果（每页内按消息序号倒序）
+     */
+    CursorPage<ChatHistory> listByCursor(String conversationCode, String cursor, int size);
+
     /**
      * 根据消息标识查询
      *
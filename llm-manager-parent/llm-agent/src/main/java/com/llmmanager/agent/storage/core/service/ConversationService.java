@@ -1,6 +1,7 @@
 package com.llmmanager.agent.storage.core.service;
 
 import com.llmmanager.agent.storage.core.entity.Conversation;
+import com.llmmanager.common.result.CursorPage;
 
 import java.util.List;
 import java.util.Optional;
@@ -84,15 +85,28 @@ public interface ConversationService {
     List<String> findAllConversationCodes();
 
     /**
-     * 查询会话列表（分页）
+     * 查询会话列表（OFFSET 分页）
      *
      * @param page 页码（从1开始）
      * @param size 每页大小
      * @param archived 是否归档（null表示全部）
      * @return 会话列表
+     * @deprecated LIMIT offset, size 需要先扫描并丢弃前面所有行，页码越大越慢；
+     *             已无调用方，列表接口统一使用 {@link #listByCursor(Boolean, String, int)}，后续版本移除
      */
+    @Deprecated
     List<Conversation> findAll(int page, int size, Boolean archived);
 
+    /**
+     * 查询会话列表（游标分页，置顶优先、按最后消息时间倒序）
+     *
+     * @param archived 是否归档（null表示全部）
+     * @param cursor 上一页返回的 nextCursor（为空表示第一页）
+     * @param size 每页大小
+     * @return 会话分页结果
+     */
+    CursorPage<Conversation> listByCursor(Boolean archived, String cursor, int size);
+
     /**
      * 更新会话标题
      *
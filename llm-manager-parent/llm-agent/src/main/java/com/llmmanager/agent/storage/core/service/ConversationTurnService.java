@@ -130,6 +130,18 @@ public interface ConversationTurnService {
      */
     void markFailed(String turnCode, String errorMessage);
 
+    /**
+     * 标记会话最近的未完成轮次为已中断（客户端断开导致流式输出中止）
+     *
+     * 已完成（SUCCESS）的轮次不受影响。
+     *
+     * @param conversationCode 会话标识
+     * @param completionTokens 中断前已生成的 token 数（估算）
+     * @param reason 中断原因
+     * @return 是否有轮次被标记
+     */
+    boolean markInterrupted(String conversationCode, int completionTokens, String reason);
+
     /**
      * 更新用户消息标识
      *
@@ -0,0 +1,78 @@
+package com.llmmanager.agent.storage.core.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.llmmanager.agent.storage.core.entity.DocumentJob;
+import com.llmmanager.agent.storage.core.entity.KnowledgeDocument;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文档入库任务 Service 接口
+ */
+public interface DocumentJobService extends IService<DocumentJob> {
+
+    /**
+     * 文档加入入库队列（文档已有未结束的任务时直接返回该任务）
+     */
+    DocumentJob enqueue(KnowledgeDocument doc, int priority, int maxAttempts);
+
+    /**
+     * 根据任务 Code 查询
+     */
+    DocumentJob getByJobCode(String jobCode);
+
+    /**
+     * 查询文档最近一次任务
+     */
+    DocumentJob getLatestByDocCode(String docCode);
+
+    /**
+     * 查询知识库最近的任务
+     */
+    List<DocumentJob> listByKbCode(String kbCode, int limit);
+
+    /**
+     * 认领最多 limit 个可执行任务（返回认领成功、状态已为 RUNNING 的任务）
+     */
+    List<DocumentJob> claim(String owner, int limit, long leaseMs);
+
+    /**
+     * 心跳续约，返回 false 表示租约已丢失
+     */
+    boolean renewLease(DocumentJob job, String owner, long leaseMs);
+
+    /**
+     * 标记执行成功，返回 false 表示租约已丢失（结果由接管的节点负责）
+     */
+    boolean markSucceeded(DocumentJob job, String owner, int chunkCount);
+
+    /**
+     * 标记执行失败：仍有执行次数时退避 backoffMs 后重新入队，否则进入死信
+     *
+     * @return 失败后的任务状态（QUEUED / DEAD），租约已丢失时返回 null
+     */
+    String markFailed(DocumentJob job, String owner, String error, long backoffMs);
+
+    /**
+     * 回收租约过期的任务（重新入队或进入死信）
+     *
+     * @return 回收的任务数
+     */
+    int recoverExpiredLeases();
+
+    /**
+     * 死信任务重新入队
+     */
+    boolean requeueDead(String jobCode);
+
+    /**
+     * 排在该任务之前的可执行任务数量
+     */
+    int countAhead(DocumentJob job);
+
+    /**
+     * 按状态统计任务数量
+     */
+    Map<String, Long> countByStatus();
+}
@@ -3,6 +3,7 @@ package com.llmmanager.agent.storage.core.service;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.llmmanager.agent.storage.core.entity.GraphStep;
 import com.llmmanager.agent.storage.core.mapper.GraphStepMapper;
+import com.llmmanager.agent.storage.datasource.ReadOnlyRoute;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
@@ -17,6 +18,7 @@ public class GraphStepService {
     @Resource
     private GraphStepMapper stepMapper;
 
+    @ReadOnlyRoute
     public List<GraphStep> findByTaskCode(String taskCode) {
         return stepMapper.selectList(
                 new LambdaQueryWrapper<GraphStep>()
@@ -3,20 +3,37 @@ package com.llmmanager.agent.storage.core.service;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.llmmanager.agent.storage.core.entity.GraphTask;
 import com.llmmanager.agent.storage.core.mapper.GraphTaskMapper;
+import com.llmmanager.agent.storage.datasource.ReadOnlyRoute;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Graph 工作流任务服务
+ *
+ * 除执行记录的查询 / 保存外，提供异步任务队列操作（入队、公平认领、租约、重试、取消、结果回调状态）。
  */
+@Slf4j
 @Service
 public class GraphTaskService {
 
+    /**
+     * error_message / callback_error 最大保存长度
+     */
+    private static final int MAX_ERROR_LENGTH = 2000;
+
     @Resource
     private GraphTaskMapper taskMapper;
 
+    @ReadOnlyRoute
     public GraphTask findByTaskCode(String taskCode) {
         return taskMapper.selectOne(
                 new LambdaQueryWrapper<GraphTask>()
@@ -24,6 +41,7 @@ public class GraphTaskService {
         );
     }
 
+    @ReadOnlyRoute
     public List<GraphTask> findByModelId(Long modelId) {
         return taskMapper.selectList(
                 new LambdaQueryWrapper<GraphTask>()
@@ -32,6 +50,7 @@ public class GraphTaskService {
         );
     }
 
+    @ReadOnlyRoute
     public List<GraphTask> findByGraphWorkflowId(Long graphWorkflowId) {
         return taskMapper.selectList(
                 new LambdaQueryWrapper<GraphTask>()
@@ -48,4 +67,259 @@ public class GraphTaskService {
     public void update(GraphTask task) {
         taskMapper.updateById(task);
     }
+
+    // ==================== 异步任务队列 ====================
+
+    /**
+     * 根据任务 Code 查询（走主库，提交后立即轮询也能读到最新状态）
+     */
+    public GraphTask getByTaskCode(String taskCode) {
+        return taskMapper.selectByTaskCode(taskCode);
+    }
+
+    public GraphTask getById(Long id) {
+        return taskMapper.selectById(id);
+    }
+
+    /**
+     * 异步任务入队
+     */
+    public GraphTask enqueue(GraphTask task) {
+        taskMapper.insert(task);
+        log.info("[GraphTask] 任务加入队列: taskCode={}, type={}, apiKeyId={}, priority={}",
+                task.getTaskCode(), task.getTaskType(), task.getApiKeyId(), task.getPriority());
+        return taskMapper.selectById(task.getId());
+    }
+
+    /**
+     * 公平认领任务
+     *
+     * 候选集按 API Key 分组取头部（每组最多 limit 个），再由 fairOrder 按
+     * 优先级 → 该 Key 正在执行的任务数（集群范围，少者优先）→ 提交顺序 逐个挑选，
+     * 单个 Key 正在执行的任务数达到 maxRunningPerKey 后本轮不再为它认领。
+     *
+     * 上限在认领的条件 UPDATE 中按集群当前执行数再校验一次（见 GraphTaskMapper.tryClaimWithinKeyLimit），
+     * 其它节点在候选查询之后认领的任务同样计入。多个节点为同一个 Key 的认领语句恰好同时执行时，
+     * 各自统计的执行数可能都未包含对方，仍可能短暂超出上限，因此 maxRunningPerKey 是尽力保证的公平限制，不是严格配额。
+     *
+     * @param maxRunningPerKey 单个 API Key 同时执行的任务上限（<= 0 表示不限制）
+     */
+    public List<GraphTask> claim(String owner, int limit, long leaseMs, int maxRunningPerKey) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        // 多取一些候选，部分被其它节点抢先认领时仍能凑满
+        List<GraphTask> candidates = taskMapper.selectClaimCandidates(limit, limit * 4);
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Integer> running = countRunningByApiKey();
+        List<GraphTask> claimed = new ArrayList<>(limit);
+        for (GraphTask candidate : fairOrder(candidates, running, maxRunningPerKey, limit * 2)) {
+            if (claimed.size() >= limit) {
+                break;
+            }
+            try {
+                int updated = maxRunningPerKey > 0
+                        ? taskMapper.tryClaimWithinKeyLimit(candidate.getId(), owner, leaseMs, candidate.getApiKeyId(), maxRunningPerKey)
+                        : taskMapper.tryClaim(candidate.getId(), owner, leaseMs);
+                if (updated == 1) {
+                    claimed.add(taskMapper.selectById(candidate.getId()));
+                }
+            } catch (RuntimeException e) {
+                // 并发认领同一 Key 时可能发生锁冲突，跳过该候选，已认领的任务仍返回给调用方执行
+                log.warn("[GraphTask] 认领任务失败，跳过: id={}, error={}", candidate.getId(), e.getMessage());
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * 公平排序：每一步在各 API Key 的队首任务中选出
+     * 优先级最高 → 正在执行数最少 → id 最小 的任务，选中后该 Key 的执行数加一
+     *
+     * @param candidates       候选任务（同一 Key 内已按优先级降序、id 升序排列）
+     * @param running          各 API Key 正在执行的任务数（管理后台任务的 Key 为 null），不会被修改
+     * @param maxRunningPerKey 单个 Key 的执行上限（<= 0 表示不限制）
+     * @param limit            最多选出的任务数
+     */
+    public static List<GraphTask> fairOrder(List<GraphTask> candidates, Map<Long, Integer> running,
+                                            int maxRunningPerKey, int limit) {
+        Map<Long, Deque<GraphTask>> queues = new LinkedHashMap<>();
+        for (GraphTask task : candidates) {
+            queues.computeIfAbsent(task.getApiKeyId(), k -> new ArrayDeque<>()).add(task);
+        }
+        Map<Long, Integer> load = new HashMap<>(running);
+
+        List<GraphTask> ordered = new ArrayList<>(Math.min(limit, candidates.size()));
+        while (ordered.size() < limit) {
+            Long bestKey = null;
+            GraphTask best = null;
+            for (Map.Entry<Long, Deque<GraphTask>> entry : queues.entrySet()) {
+                GraphTask head = entry.getValue().peekFirst();
+                int keyLoad = load.getOrDefault(entry.getKey(), 0);
+                if (head == null || (maxRunningPerKey > 0 && keyLoad >= maxRunningPerKey)) {
+                    continue;
+                }
+                if (best == null || isBefore(head, keyLoad, best, load.getOrDefault(bestKey, 0))) {
+                    best = head;
+                    bestKey = entry.getKey();
+                }
+            }
+            if (best == null) {
+                break;
+            }
+            queues.get(bestKey).pollFirst();
+            load.merge(bestKey, 1, Integer::sum);
+            ordered.add(best);
+        }
+        return ordered;
+    }
+
+    private static boolean isBefore(GraphTask task, int load, GraphTask other, int otherLoad) {
+        int priority = task.getPriority() != null ? task.getPriority() : 0;
+        int otherPriority = other.getPriority() != null ? other.getPriority() : 0;
+        if (priority != otherPriority) {
+            return priority > otherPriority;
+        }
+        if (load != otherLoad) {
+            return load < otherLoad;
+        }
+        return task.getId() < other.getId();
+    }
+
+    /**
+     * 放弃刚认领但未开始执行的任务，立即可被其它节点认领
+     */
+    public boolean releaseClaim(GraphTask task, String owner) {
+        return taskMapper.releaseClaim(task.getId(), owner) == 1;
+    }
+
+    public boolean renewLease(GraphTask task, String owner, long leaseMs) {
+        return taskMapper.renewLease(task.getId(), owner, leaseMs) == 1;
+    }
+
+    /**
+     * 标记执行成功（task 中携带 answer / analysis / resultData 等结果字段）
+     */
+    public boolean markSucceeded(GraphTask task, String owner) {
+        return taskMapper.markSucceeded(task, owner) == 1;
+    }
+
+    /**
+     * 标记执行失败：仍有执行次数时按 backoffMs 退避后重新入队，否则标记 FAILED
+     *
+     * @return 更新后的状态（PENDING / FAILED），租约已丢失时返回 null
+     */
+    public String markFailed(GraphTask task, String owner, String error, long backoffMs, long durationMs) {
+        String message = truncate(error);
+        int attempts = task.getAttempts() != null ? task.getAttempts() : 0;
+        int maxAttempts = task.getMaxAttempts() != null ? task.getMaxAttempts() : 1;
+        if (attempts >= maxAttempts) {
+            return taskMapper.markFailed(task.getId(), owner, message, durationMs) == 1
+                    ? GraphTask.TaskStatus.FAILED.name() : null;
+        }
+        return taskMapper.markRetry(task.getId(), owner, message, backoffMs) == 1
+                ? GraphTask.TaskStatus.PENDING.name() : null;
+    }
+
+    /**
+     * 取消未结束的任务
+     */
+    public boolean cancel(String taskCode) {
+        return taskMapper.cancel(taskCode) == 1;
+    }
+
+    public int recoverExpiredLeases() {
+        int requeued = taskMapper.requeueExpiredLeases();
+        int failed = taskMapper.failExpiredLeases();
+        if (requeued + failed > 0) {
+            log.warn("[GraphTask] 回收租约过期的任务: 重新入队={}, 标记失败={}", requeued, failed);
+        }
+        return requeued + failed;
+    }
+
+    public int countAhead(GraphTask task) {
+        return taskMapper.countAhead(task.getId(), task.getPriority() != null ? task.getPriority() : 0);
+    }
+
+    public int countActiveByApiKey(Long apiKeyId) {
+        return taskMapper.countActiveByApiKey(apiKeyId);
+    }
+
+    /**
+     * 各 API Key 正在执行的任务数（管理后台任务的 Key 为 null）
+     */
+    public Map<Long, Integer> countRunningByApiKey() {
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Map<String, Object> row : taskMapper.countRunningByApiKey()) {
+            Object apiKeyId = row.get("api_key_id");
+            Object count = row.get("cnt");
+            if (count instanceof Number number) {
+                counts.put(apiKeyId instanceof Number id ? id.longValue() : null, number.intValue());
+            }
+        }
+        return counts;
+    }
+
+    @ReadOnlyRoute
+    public Map<String, Long> countByStatus() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (GraphTask.TaskStatus status : GraphTask.TaskStatus.values()) {
+            counts.put(status.name(), 0L);
+        }
+        for (Map<String, Object> row : taskMapper.countByStatus()) {
+            Object status = row.get("status");
+            Object count = row.get("cnt");
+            if (status != null && count instanceof Number number) {
+                counts.put(status.toString(), number.longValue());
+            }
+        }
+        return counts;
+    }
+
+    // ==================== 结果回调 ====================
+
+    /**
+     * 认领到期的回调（认领期间 next_callback_time 推后 leaseMs，其它节点不会重复投递）
+     */
+    public List<GraphTask> claimDueCallbacks(int limit, long leaseMs) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        List<GraphTask> claimed = new ArrayList<>();
+        for (Long id : taskMapper.selectDueCallbackIds(limit)) {
+            if (taskMapper.tryClaimCallback(id, leaseMs) == 1) {
+                claimed.add(taskMapper.selectById(id));
+            }
+        }
+        return claimed;
+    }
+
+    public boolean markCallbackDelivered(GraphTask task) {
+        return taskMapper.markCallbackDelivered(task.getId()) == 1;
+    }
+
+    /**
+     * 回调投递失败：仍有投递次数时按 backoffMs 退避重试，否则标记 FAILED
+     *
+     * @return 更新后的回调状态（PENDING / FAILED）
+     */
+    public String markCallbackFailed(GraphTask task, String error, int maxAttempts, long backoffMs) {
+        String message = truncate(error);
+        int attempts = (task.getCallbackAttempts() != null ? task.getCallbackAttempts() : 0) + 1;
+        if (attempts >= maxAttempts) {
+            taskMapper.markCallbackFailed(task.getId(), message);
+            return GraphTask.CallbackStatus.FAILED.name();
+        }
+        taskMapper.markCallbackRetry(task.getId(), message, backoffMs);
+        return GraphTask.CallbackStatus.PENDING.name();
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
 }
@@ -46,6 +46,12 @@ public interface KnowledgeDocumentService extends IService<KnowledgeDocument> {
      */
     KnowledgeDocument addUrlDocument(String kbCode, String title, String sourceUrl, Map<String, Object> metadata);
 
+    /**
+     * 添加文件文档（PDF / DOCX / HTML 等，文件已保存到 filePath）
+     */
+    KnowledgeDocument addFileDocument(String kbCode, String fileName, String filePath, String mimeType,
+                                      Long fileSize, String contentHash, Map<String, Object> metadata);
+
     /**
      * 更新文档状态
      */
@@ -0,0 +1,22 @@
+package com.llmmanager.agent.storage.core.service;
+
+/**
+ * 定时任务租约锁 Service 接口
+ *
+ * 项目没有启用 Spring 调度，各后台任务使用自己的 ScheduledExecutorService；
+ * 多节点部署时通过该锁保证同一任务同一时刻只在一个节点执行。
+ */
+public interface SchedulerLockService {
+
+    /**
+     * 获取（或续约）锁，租约到期前其它节点无法获取
+     *
+     * @return 是否获取成功
+     */
+    boolean tryLock(String lockName, String owner, long leaseMs);
+
+    /**
+     * 释放本节点持有的锁
+     */
+    void unlock(String lockName, String owner);
+}
@@ -0,0 +1,194 @@
+package com.llmmanager.agent.storage.core.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.llmmanager.agent.storage.core.entity.ChatArchive;
+import com.llmmanager.agent.storage.core.entity.ChatHistory;
+import com.llmmanager.agent.storage.core.entity.Conversation;
+import com.llmmanager.agent.storage.core.entity.ConversationTurn;
+import com.llmmanager.agent.storage.core.mapper.ChatArchiveMapper;
+import com.llmmanager.agent.storage.core.mapper.ChatHistoryMapper;
+import com.llmmanager.agent.storage.core.mapper.ConversationMapper;
+import com.llmmanager.agent.storage.core.mapper.ConversationTurnMapper;
+import com.llmmanager.agent.storage.core.service.ChatArchiveService;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 聊天历史归档与清理 Service 实现
+ */
+@Slf4j
+@Service
+public class ChatArchiveServiceImpl extends ServiceImpl<ChatArchiveMapper, ChatArchive> implements ChatArchiveService {
+
+    @Resource
+    private ConversationMapper conversationMapper;
+
+    @Resource
+    private ChatHistoryMapper chatHistoryMapper;
+
+    @Resource
+    private ConversationTurnMapper conversationTurnMapper;
+
+    @Override
+    public ChatArchive getByConversationCode(String conversationCode) {
+        return baseMapper.selectByConversationCode(conversationCode);
+    }
+
+    @Override
+    public List<Conversation> listExpiredConversations(LocalDateTime before, long afterId, int limit) {
+        return conversationMapper.selectExpiredForArchive(before, afterId, limit);
+    }
+
+    @Override
+    public List<ChatHistory> listMessages(String conversationCode) {
+        // 使用 LambdaQueryWrapper 确保 autoResultMap 生效（metadata JSON 字段）
+        LambdaQueryWrapper<ChatHistory> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(ChatHistory::getConversationCode, conversationCode)
+                    .orderByAsc(ChatHistory::getMessageIndex);
+        return chatHistoryMapper.selectList(queryWrapper);
+    }
+
+    @Override
+    public List<ConversationTurn> listTurns(String conversationCode) {
+        LambdaQueryWrapper<ConversationTurn> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(ConversationTurn::getConversationCode, conversationCode)
+                    .orderByAsc(ConversationTurn::getTurnIndex);
+        return conversationTurnMapper.selectList(queryWrapper);
+    }
+
+    @Override
+    public ChatArchive beginArchive(ChatArchive archive) {
+        archive.setStatus(ChatArchive.ArchiveStatus.PURGING.name());
+        archive.setArchiveTime(LocalDateTime.now());
+        ChatArchive existing = baseMapper.selectByConversationCode(archive.getConversationCode());
+        if (existing == null) {
+            baseMapper.insert(archive);
+        } else {
+            // 再次归档（归档后有新消息 / 恢复后再次过期）：索引指向新的归档文件
+            archive.setId(existing.getId());
+            archive.setRestoreTime(existing.getRestoreTime());
+            baseMapper.updateById(archive);
+        }
+        return archive;
+    }
+
+    @Override
+    public List<ChatArchive> listPurging(int limit) {
+        return baseMapper.selectPurging(limit);
+    }
+
+    @Override
+    public void markArchived(Long id) {
+        baseMapper.markArchived(id);
+    }
+
+    @Override
+    public int purgeMessages(String conversationCode, long maxId, int limit) {
+        return chatHistoryMapper.purgeByConversationCode(conversationCode, maxId, limit);
+    }
+
+    @Override
+    public int purgeTurns(String conversationCode, long maxId, int limit) {
+        return conversationTurnMapper.purgeByConversationCode(conversationCode, maxId, limit);
+    }
+
+    @Override
+    public void purgeConversation(Conversation conversation) {
+        conversationMapper.purgeById(conversation.getId());
+        baseMapper.purgeByConversationCode(conversation.getConversationCode());
+    }
+
+    @Override
+    public int purgeSoftDeletedMessages(int limit) {
+        return chatHistoryMapper.purgeSoftDeleted(limit);
+    }
+
+    @Override
+    public int purgeSoftDeletedTurns(int limit) {
+        return conversationTurnMapper.purgeSoftDeleted(limit);
+    }
+
+    @Override
+    public int purgeSoftDeletedConversations(int limit) {
+        return conversationMapper.purgeSoftDeleted(limit);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void restore(ChatArchive archive, List<ChatHistory> messages, List<ConversationTurn> turns) {
+        String conversationCode = archive.getConversationCode();
+
+        int messageOffset = messages.stream().mapToInt(m -> m.getMessageIndex() != null ? m.getMessageIndex() : 0)
+                .max().orElse(-1) + 1;
+        if (messageOffset > 0) {
+            chatHistoryMapper.shiftMessageIndex(conversationCode, messageOffset);
+        }
+        int turnOffset = turns.stream().mapToInt(t -> t.getTurnIndex() != null ? t.getTurnIndex() : 0)
+                .max().orElse(-1) + 1;
+        if (turnOffset > 0) {
+            conversationTurnMapper.shiftTurnIndex(conversationCode, turnOffset);
+        }
+
+        for (ChatHistory message : messages) {
+            message.setId(null);
+            message.setIsDelete(0);
+            chatHistoryMapper.insert(message);
+        }
+        for (ConversationTurn turn : turns) {
+            turn.setId(null);
+            turn.setIsDelete(0);
+            conversationTurnMapper.insert(turn);
+        }
+
+        if (baseMapper.markRestored(archive.getId()) != 1) {
+            throw new IllegalStateException("归档状态已变化，恢复取消: " + conversationCode);
+        }
+        log.info("[ChatArchive] 会话已恢复: conversationCode={}, messages={}, turns={}, messageOffset={}",
+                conversationCode, messages.size(), turns.size(), messageOffset);
+    }
+
+    @Override
+    public Map<String, Object> countByStatus() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (ChatArchive.ArchiveStatus status : ChatArchive.ArchiveStatus.values()) {
+            result.put(status.name(), Map.of("conversations", 0L, "messages", 0L, "rawBytes", 0L));
+        }
+        for (Map<String, Object> row : baseMapper.countByStatus()) {
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("conversations", toLong(row.get("conversations")));
+            counts.put("messages", toLong(row.get("messages")));
+            counts.put("rawBytes", toLong(row.get("rawBytes")));
+            result.put(String.valueOf(row.get("status")), counts);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> getTableStats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (Map<String, Object> row : baseMapper.selectHistoryTableStats()) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            long dataLength = toLong(row.get("dataLength"));
+            long indexLength = toLong(row.get("indexLength"));
+            stats.put("rows", toLong(row.get("tableRows")));
+            stats.put("dataBytes", dataLength);
+            stats.put("indexBytes", indexLength);
+            stats.put("freeBytes", toLong(row.get("dataFree")));
+            stats.put("totalBytes", dataLength + indexLength);
+            result.put(String.valueOf(row.get("tableName")), stats);
+        }
+        return result;
+    }
+
+    private long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+}
@@ -5,11 +5,14 @@ import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.llmmanager.agent.storage.core.entity.ChatHistory;
 import com.llmmanager.agent.storage.core.mapper.ChatHistoryMapper;
 import com.llmmanager.agent.storage.core.service.ChatHistoryService;
+import com.llmmanager.agent.storage.datasource.ReadOnlyRoute;
+import com.llmmanager.common.result.CursorPage;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -19,6 +22,11 @@ import java.util.List;
 @Service
 public class ChatHistoryServiceImpl implements ChatHistoryService {
 
+    /**
+     * 游标分页每页最大条数
+     */
+    private static final int MAX_PAGE_SIZE = 200;
+
     @Resource
     private ChatHistoryMapper chatHistoryMapper;
 
@@ -54,11 +62,45 @@ public class ChatHistoryServiceImpl implements ChatHistoryService {
 
         LambdaQueryWrapper<ChatHistory> queryWrapper = new LambdaQueryWrapper<>();
         queryWrapper.eq(ChatHistory::getConversationCode, conversationCode)
-                    .orderByAsc(ChatHistory::getCreateTime);
+                    .orderByAsc(ChatHistory::getMessageIndex);
 
         return chatHistoryMapper.selectList(queryWrapper);
     }
 
+    @Override
+    @ReadOnlyRoute(conversationArg = 0)
+    public CursorPage<ChatHistory> listByCursor(String conversationCode, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        if (conversationCode == null) {
+            return CursorPage.empty(pageSize);
+        }
+        String[] keys = CursorPage.decodeCursor(cursor, 1);
+
+        // (conversation_code, is_delete, message_index) 索引上的范围扫描，多取一条判断是否还有下一页
+        LambdaQueryWrapper<ChatHistory> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(ChatHistory::getConversationCode, conversationCode);
+        if (keys != null) {
+            queryWrapper.lt(ChatHistory::getMessageIndex, parseCursorKey(keys[0], cursor));
+        }
+        queryWrapper.orderByDesc(ChatHistory::getMessageIndex)
+                    .last("LIMIT " + (pageSize + 1));
+
+        List<ChatHistory> histories = chatHistoryMapper.selectList(queryWrapper);
+        if (histories.size() <= pageSize) {
+            return CursorPage.of(histories, null, pageSize);
+        }
+        List<ChatHistory> records = new ArrayList<>(histories.subList(0, pageSize));
+        return CursorPage.of(records, CursorPage.encodeCursor(records.get(pageSize - 1).getMessageIndex()), pageSize);
+    }
+
+    private int parseCursorKey(String key, String cursor) {
+        try {
+            return Integer.parseInt(key);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor);
+        }
+    }
+
     @Override
     public List<ChatHistory> findByTurnCode(String turnCode) {
         if (turnCode == null) {
@@ -5,12 +5,17 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.llmmanager.agent.storage.core.entity.Conversation;
 import com.llmmanager.agent.storage.core.mapper.ConversationMapper;
 import com.llmmanager.agent.storage.core.service.ConversationService;
+import com.llmmanager.agent.storage.datasource.ReadOnlyRoute;
+import com.llmmanager.common.result.CursorPage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +26,19 @@ import java.util.Optional;
 @Service
 public class ConversationServiceImpl implements ConversationService {
 
+    /**
+     * 游标分页每页最大条数
+     */
+    private static final int MAX_PAGE_SIZE = 200;
+
+    /**
+     * 会话列表顺序：置顶优先，最后消息时间倒序，id 倒序
+     */
+    private static final Comparator<Conversation> LIST_ORDER = Comparator
+            .comparing(Conversation::getIsPinned, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Conversation::getLastMessageTime, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Conversation::getId, Comparator.reverseOrder());
+
     @Resource
     private ConversationMapper conversationMapper;
 
@@ -106,6 +124,8 @@ public class ConversationServiceImpl implements ConversationService {
     }
 
     @Override
+    @Deprecated
+    @ReadOnlyRoute
     public List<Conversation> findAll(int page, int size, Boolean archived) {
         LambdaQueryWrapper<Conversation> queryWrapper = new LambdaQueryWrapper<>();
 
@@ -122,6 +142,65 @@ public class ConversationServiceImpl implements ConversationService {
         return pageResult.getRecords();
     }
 
+    @Override
+    @ReadOnlyRoute
+    public CursorPage<Conversation> listByCursor(Boolean archived, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        String[] keys = CursorPage.decodeCursor(cursor, 3);
+
+        List<Conversation> conversations;
+        if (archived != null) {
+            conversations = selectConversationPage(archived ? 1 : 0, keys, cursor, pageSize + 1);
+        } else {
+            // 两个归档状态各取一页再归并：每条查询都按 idx_list 索引顺序读取，避免跨 is_archived 的 filesort
+            conversations = new ArrayList<>(selectConversationPage(0, keys, cursor, pageSize + 1));
+            conversations.addAll(selectConversationPage(1, keys, cursor, pageSize + 1));
+            conversations.sort(LIST_ORDER);
+        }
+
+        if (conversations.size() <= pageSize) {
+            return CursorPage.of(conversations, null, pageSize);
+        }
+        List<Conversation> records = new ArrayList<>(conversations.subList(0, pageSize));
+        Conversation last = records.get(pageSize - 1);
+        return CursorPage.of(records,
+                CursorPage.encodeCursor(last.getIsPinned(), last.getLastMessageTime(), last.getId()), pageSize);
+    }
+
+    /**
+     * 按 (is_pinned, last_message_time, id) 倒序从游标位置之后读取一页
+     *
+     * 游标条件展开为 OR 形式，MySQL 可将其转为 idx_list 上的范围扫描：
+     * is_pinned < p OR (is_pinned = p AND last_message_time < t) OR (is_pinned = p AND last_message_time = t AND id < i)
+     */
+    private List<Conversation> selectConversationPage(int archived, String[] keys, String cursor, int limit) {
+        LambdaQueryWrapper<Conversation> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(Conversation::getIsArchived, archived);
+        if (keys != null) {
+            int pinned;
+            LocalDateTime lastMessageTime;
+            long id;
+            try {
+                pinned = Integer.parseInt(keys[0]);
+                lastMessageTime = LocalDateTime.parse(keys[1]);
+                id = Long.parseLong(keys[2]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("无效的分页游标: " + cursor);
+            }
+            queryWrapper.and(w -> w.lt(Conversation::getIsPinned, pinned)
+                    .or(p -> p.eq(Conversation::getIsPinned, pinned)
+                            .lt(Conversation::getLastMessageTime, lastMessageTime))
+                    .or(p -> p.eq(Conversation::getIsPinned, pinned)
+                            .eq(Conversation::getLastMessageTime, lastMessageTime)
+                            .lt(Conversation::getId, id)));
+        }
+        queryWrapper.orderByDesc(Conversation::getIsPinned)
+                    .orderByDesc(Conversation::getLastMessageTime)
+                    .orderByDesc(Conversation::getId)
+                    .last("LIMIT " + limit);
+        return conversationMapper.selectList(queryWrapper);
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void updateTitle(String conversationCode, String title) {
@@ -167,6 +167,23 @@ public class ConversationTurnServiceImpl implements ConversationTurnService {
         }
     }
 
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean markInterrupted(String conversationCode, int completionTokens, String reason) {
+        if (conversationCode == null) {
+            return false;
+        }
+        ConversationTurn turn = conversationTurnMapper.selectLatestPendingTurn(conversationCode);
+        if (turn == null) {
+            return false;
+        }
+        int updated = conversationTurnMapper.updateInterrupted(turn.getTurnCode(), completionTokens, reason);
+        if (updated > 0) {
+            log.debug("[ConversationTurnService] 轮次标记为中断: {}, 已生成 tokens: {}", turn.getTurnCode(), completionTokens);
+        }
+        return updated > 0;
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void updateUserMessageCode(String turnCode, String userMessageCode) {
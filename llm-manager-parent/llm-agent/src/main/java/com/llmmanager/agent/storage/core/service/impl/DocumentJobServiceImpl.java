@@ -0,0 +1,144 @@
+package com.llmmanager.agent.storage.core.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.llmmanager.agent.storage.core.entity.DocumentJob;
+import com.llmmanager.agent.storage.core.entity.KnowledgeDocument;
+import com.llmmanager.agent.storage.core.mapper.DocumentJobMapper;
+import com.llmmanager.agent.storage.core.service.DocumentJobService;
+import com.llmmanager.agent.storage.datasource.ReadOnlyRoute;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文档入库任务 Service 实现
+ * 仅在 llm.rag.enabled=true 时启用。
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "llm.rag.enabled", havingValue = "true", matchIfMissing = false)
+public class DocumentJobServiceImpl extends ServiceImpl<DocumentJobMapper, DocumentJob> implements DocumentJobService {
+
+    /**
+     * last_error 最大保存长度
+     */
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    @Override
+    public DocumentJob enqueue(KnowledgeDocument doc, int priority, int maxAttempts) {
+        DocumentJob active = baseMapper.selectActiveByDocCode(doc.getDocCode());
+        if (active != null) {
+            return active;
+        }
+        DocumentJob job = DocumentJob.create(doc, priority, maxAttempts);
+        save(job);
+        log.info("[DocumentJob] 文档加入入库队列: docCode={}, jobCode={}, priority={}",
+                doc.getDocCode(), job.getJobCode(), priority);
+        return getById(job.getId());
+    }
+
+    @Override
+    public DocumentJob getByJobCode(String jobCode) {
+        return baseMapper.selectByJobCode(jobCode);
+    }
+
+    @Override
+    public DocumentJob getLatestByDocCode(String docCode) {
+        return baseMapper.selectLatestByDocCode(docCode);
+    }
+
+    @Override
+    @ReadOnlyRoute
+    public List<DocumentJob> listByKbCode(String kbCode, int limit) {
+        return baseMapper.selectByKbCode(kbCode, limit);
+    }
+
+    @Override
+    public List<DocumentJob> claim(String owner, int limit, long leaseMs) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        // 多取一些候选，部分被其它节点抢先认领时仍能凑满
+        List<Long> candidates = baseMapper.selectClaimableIds(limit * 2);
+        List<DocumentJob> claimed = new ArrayList<>(limit);
+        for (Long id : candidates) {
+            if (claimed.size() >= limit) {
+                break;
+            }
+            if (baseMapper.tryClaim(id, owner, leaseMs) == 1) {
+                claimed.add(getById(id));
+            }
+        }
+        return claimed;
+    }
+
+    @Override
+    public boolean renewLease(DocumentJob job, String owner, long leaseMs) {
+        return baseMapper.renewLease(job.getId(), owner, leaseMs) == 1;
+    }
+
+    @Override
+    public boolean markSucceeded(DocumentJob job, String owner, int chunkCount) {
+        return baseMapper.markSucceeded(job.getId(), owner, chunkCount) == 1;
+    }
+
+    @Override
+    public String markFailed(DocumentJob job, String owner, String error, long backoffMs) {
+        String message = truncate(error);
+        int attempts = job.getAttempts() != null ? job.getAttempts() : 0;
+        int maxAttempts = job.getMaxAttempts() != null ? job.getMaxAttempts() : 1;
+        if (attempts >= maxAttempts) {
+            return baseMapper.markDead(job.getId(), owner, message) == 1 ? DocumentJob.JobStatus.DEAD.name() : null;
+        }
+        return baseMapper.markRetry(job.getId(), owner, message, backoffMs) == 1 ? DocumentJob.JobStatus.QUEUED.name() : null;
+    }
+
+    @Override
+    public int recoverExpiredLeases() {
+        int requeued = baseMapper.requeueExpiredLeases();
+        int dead = baseMapper.deadLetterExpiredLeases();
+        if (requeued + dead > 0) {
+            log.warn("[DocumentJob] 回收租约过期的任务: 重新入队={}, 进入死信={}", requeued, dead);
+        }
+        return requeued + dead;
+    }
+
+    @Override
+    public boolean requeueDead(String jobCode) {
+        return baseMapper.requeueDead(jobCode) == 1;
+    }
+
+    @Override
+    public int countAhead(DocumentJob job) {
+        return baseMapper.countAhead(job.getId(), job.getPriority() != null ? job.getPriority() : 0);
+    }
+
+    @Override
+    @ReadOnlyRoute
+    public Map<String, Long> countByStatus() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (DocumentJob.JobStatus status : DocumentJob.JobStatus.values()) {
+            counts.put(status.name(), 0L);
+        }
+        for (Map<String, Object> row : baseMapper.countByStatus()) {
+            Object status = row.get("status");
+            Object count = row.get("cnt");
+            if (status != null && count instanceof Number number) {
+                counts.put(status.toString(), number.longValue());
+            }
+        }
+        return counts;
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+}
@@ -60,6 +60,9 @@ public class KnowledgeBaseServiceImpl extends ServiceImpl<KnowledgeBaseMapper, K
         return kb;
     }
 
+    /**
+     * 统计查询不走从库：结果会回写到知识库表，读到复制延迟内的旧计数会被持久化
+     */
     @Override
     public void updateStatistics(String kbCode) {
         int documentCount = documentMapper.countByKbCode(kbCode);
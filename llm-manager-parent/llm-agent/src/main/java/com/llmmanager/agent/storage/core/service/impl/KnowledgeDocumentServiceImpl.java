@@ -5,6 +5,7 @@ import com.llmmanager.agent.storage.core.entity.KnowledgeDocument;
 import com.llmmanager.agent.storage.core.mapper.KnowledgeDocumentMapper;
 import com.llmmanager.agent.storage.core.service.KnowledgeBaseService;
 import com.llmmanager.agent.storage.core.service.KnowledgeDocumentService;
+import com.llmmanager.agent.storage.datasource.ReadOnlyRoute;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
@@ -35,6 +36,7 @@ public class KnowledgeDocumentServiceImpl extends ServiceImpl<KnowledgeDocumentM
     }
 
     @Override
+    @ReadOnlyRoute
     public List<KnowledgeDocument> listByKbCode(String kbCode) {
         return baseMapper.selectByKbCode(kbCode);
     }
@@ -85,6 +87,19 @@ public class KnowledgeDocumentServiceImpl extends ServiceImpl<KnowledgeDocumentM
         return doc;
     }
 
+    @Override
+    public KnowledgeDocument addFileDocument(String kbCode, String fileName, String filePath, String mimeType,
+                                             Long fileSize, String contentHash, Map<String, Object> metadata) {
+        KnowledgeDocument doc = KnowledgeDocument.createFile(kbCode, fileName, filePath, mimeType, fileSize);
+        doc.setContentHash(contentHash);
+        doc.setMetadata(metadata);
+
+        save(doc);
+        knowledgeBaseService.incrementDocumentCount(kbCode, 1);
+        log.info("[KnowledgeDocument] 添加文件文档: {} -> {} ({})", kbCode, fileName, doc.getDocType());
+        return doc;
+    }
+
     @Override
     public void updateStatus(String docCode, String status) {
         baseMapper.updateStatus(docCode, status);
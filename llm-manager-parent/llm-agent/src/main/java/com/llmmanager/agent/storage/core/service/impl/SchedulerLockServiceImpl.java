@@ -0,0 +1,34 @@
+package com.llmmanager.agent.storage.core.service.impl;
+
+import com.llmmanager.agent.storage.core.mapper.SchedulerLockMapper;
+import com.llmmanager.agent.storage.core.service.SchedulerLockService;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * 定时任务租约锁 Service 实现
+ */
+@Slf4j
+@Service
+public class SchedulerLockServiceImpl implements SchedulerLockService {
+
+    @Resource
+    private SchedulerLockMapper schedulerLockMapper;
+
+    @Override
+    public boolean tryLock(String lockName, String owner, long leaseMs) {
+        schedulerLockMapper.ensureLock(lockName);
+        return schedulerLockMapper.tryAcquire(lockName, owner, leaseMs) == 1;
+    }
+
+    @Override
+    public void unlock(String lockName, String owner) {
+        try {
+            schedulerLockMapper.release(lockName, owner);
+        } catch (Exception e) {
+            // 释放失败不影响业务，租约到期后自动失效
+            log.warn("[SchedulerLock] 释放锁失败: lockName={}, owner={}, error={}", lockName, owner, e.getMessage());
+        }
+    }
+}
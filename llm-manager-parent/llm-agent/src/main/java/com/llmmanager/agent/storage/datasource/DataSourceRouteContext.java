@@ -0,0 +1,86 @@
+package com.llmmanager.agent.storage.datasource;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Supplier;
+
+/**
+ * 数据源路由上下文
+ *
+ * 使用 ThreadLocal 栈记录当前线程的路由目标，支持嵌套调用：内层方法退出后恢复外层的路由。
+ * 栈为空时走主库。
+ *
+ * 使用方式：
+ * <pre>
+ * DataSourceRouteContext.push(Route.REPLICA);
+ * try {
+ *     // 执行只读查询...
+ * } finally {
+ *     // 必须在 finally 中弹出，防止线程复用时路由泄漏
+ *     DataSourceRouteContext.pop();
+ * }
+ * </pre>
+ */
+public final class DataSourceRouteContext {
+
+    /**
+     * 路由目标
+     */
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    private static final ThreadLocal<Deque<Route>> ROUTE_HOLDER = new ThreadLocal<>();
+
+    private DataSourceRouteContext() {
+    }
+
+    /**
+     * 当前路由目标（未设置时为 PRIMARY）
+     */
+    public static Route current() {
+        Deque<Route> stack = ROUTE_HOLDER.get();
+        return stack == null || stack.isEmpty() ? Route.PRIMARY : stack.peek();
+    }
+
+    /**
+     * 外层调用是否已显式指定走主库
+     */
+    public static boolean isPrimaryPinned() {
+        Deque<Route> stack = ROUTE_HOLDER.get();
+        return stack != null && stack.peek() == Route.PRIMARY;
+    }
+
+    public static void push(Route route) {
+        Deque<Route> stack = ROUTE_HOLDER.get();
+        if (stack == null) {
+            stack = new ArrayDeque<>();
+            ROUTE_HOLDER.set(stack);
+        }
+        stack.push(route);
+    }
+
+    public static void pop() {
+        Deque<Route> stack = ROUTE_HOLDER.get();
+        if (stack == null) {
+            return;
+        }
+        stack.poll();
+        if (stack.isEmpty()) {
+            ROUTE_HOLDER.remove();
+        }
+    }
+
+    /**
+     * 在主库上执行（内部的 @ReadOnlyRoute 方法也不会切到从库）
+     */
+    public static <T> T callOnPrimary(Supplier<T> action) {
+        push(Route.PRIMARY);
+        try {
+            return action.get();
+        } finally {
+            pop();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.llmmanager.agent.storage.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 只读路由注解
+ *
+ * 标注在 Service 实现类的只读查询方法上，读写分离开启时该方法内的查询走从库连接池。
+ * 以下情况仍走主库：
+ * - 调用时已处于事务中（事务内的读必须和写使用同一个连接）
+ * - 外层调用已经确定走主库
+ * - conversationArg 指定的会话在读己之写窗口内刚写入过
+ *
+ * 只用于允许读到复制延迟内旧数据的管理查询，聊天链路上下文加载等强一致读取不要标注。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReadOnlyRoute {
+
+    /**
+     * 会话标识参数的位置（从 0 开始），用于读己之写判断；-1 表示查询不针对单个会话
+     */
+    int conversationArg() default -1;
+}
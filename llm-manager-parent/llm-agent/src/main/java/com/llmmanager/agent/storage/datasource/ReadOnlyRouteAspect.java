@@ -0,0 +1,61 @@
+package com.llmmanager.agent.storage.datasource;
+
+import com.llmmanager.agent.storage.datasource.DataSourceRouteContext.Route;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 只读路由切面
+ *
+ * 拦截 @ReadOnlyRoute 方法，决定本次调用走主库还是从库并写入 DataSourceRouteContext，
+ * 实际的连接分配由 ReadWriteRoutingDataSource 完成。
+ *
+ * 优先级最高，保证在事务切面之外执行：方法自身声明的事务拿连接时路由已经确定。
+ *
+ * 配置开关：llm.datasource.read-write.enabled=true
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "llm.datasource.read-write.enabled", havingValue = "true", matchIfMissing = false)
+public class ReadOnlyRouteAspect {
+
+    @Resource
+    private RecentWriteTracker recentWriteTracker;
+
+    @Around("@annotation(readOnlyRoute)")
+    public Object route(ProceedingJoinPoint joinPoint, ReadOnlyRoute readOnlyRoute) throws Throwable {
+        Route route = decide(joinPoint, readOnlyRoute);
+        DataSourceRouteContext.push(route);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            DataSourceRouteContext.pop();
+        }
+    }
+
+    private Route decide(ProceedingJoinPoint joinPoint, ReadOnlyRoute readOnlyRoute) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                || DataSourceRouteContext.isPrimaryPinned()) {
+            return Route.PRIMARY;
+        }
+        int index = readOnlyRoute.conversationArg();
+        Object[] args = joinPoint.getArgs();
+        if (index >= 0 && index < args.length && args[index] instanceof String conversationCode
+                && recentWriteTracker.isRecentlyWritten(conversationCode)) {
+            log.debug("[ReadOnlyRouteAspect] 会话刚写入，走主库: method={}, conversationCode={}",
+                    joinPoint.getSignature().toShortString(), conversationCode);
+            return Route.PRIMARY;
+        }
+        return Route.REPLICA;
+    }
+}
@@ -0,0 +1,143 @@
+package com.llmmanager.agent.storage.datasource;
+
+import com.llmmanager.agent.storage.datasource.DataSourceRouteContext.Route;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 读写分离路由数据源
+ *
+ * 按 DataSourceRouteContext 选择连接池：
+ * - PRIMARY（默认）：主库
+ * - REPLICA：从库轮询；从库获取连接失败时本次回落主库，并在冷却时间内不再路由到该从库
+ *
+ * 路由在获取连接时决定，所以事务内的全部语句使用同一个连接池。
+ *
+ * 指标：
+ * - llm.datasource.route{pool}：各连接池分配的连接数
+ * - llm.datasource.replica.fallback{pool}：从库不可用回落主库的次数
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+
+    private final Map<String, DataSource> replicas;
+
+    private final List<String> replicaNames;
+
+    private final long replicaCooldownMs;
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicInteger roundRobin = new AtomicInteger();
+
+    /**
+     * 从库名 → 暂停路由截止时间（毫秒）
+     */
+    private final Map<String, Long> cooldownUntil = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> routeCounters = new ConcurrentHashMap<>();
+
+    /**
+     * @param replicas      从库连接池（名称 → 数据源），可以为空
+     * @param meterRegistry 可以为 null（不记录指标）
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                      long replicaCooldownMs, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.replicaNames = new ArrayList<>(replicas.keySet());
+        this.replicaCooldownMs = replicaCooldownMs;
+        this.meterRegistry = meterRegistry;
+
+        Map<Object, Object> targets = new HashMap<>(this.replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (DataSourceRouteContext.current() != Route.REPLICA || replicaNames.isEmpty()) {
+            return PRIMARY;
+        }
+        long now = System.currentTimeMillis();
+        int start = Math.floorMod(roundRobin.getAndIncrement(), replicaNames.size());
+        for (int i = 0; i < replicaNames.size(); i++) {
+            String name = replicaNames.get((start + i) % replicaNames.size());
+            Long until = cooldownUntil.get(name);
+            if (until == null || until <= now) {
+                return name;
+            }
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        String key = (String) determineCurrentLookupKey();
+        if (PRIMARY.equals(key)) {
+            return openConnection(PRIMARY, primary, username, password);
+        }
+        try {
+            Connection connection = openConnection(key, replicas.get(key), username, password);
+            cooldownUntil.remove(key);
+            return connection;
+        } catch (SQLException e) {
+            cooldownUntil.put(key, System.currentTimeMillis() + replicaCooldownMs);
+            log.warn("[ReadWriteRoutingDataSource] 从库 {} 获取连接失败，{}ms 内不再路由，本次回落主库: {}",
+                    key, replicaCooldownMs, e.getMessage());
+            if (meterRegistry != null) {
+                meterRegistry.counter("llm.datasource.replica.fallback", "pool", key).increment();
+            }
+            return openConnection(PRIMARY, primary, username, password);
+        }
+    }
+
+    /**
+     * 各从库当前是否处于冷却（暂停路由）
+     */
+    public Map<String, Boolean> getReplicaStatus() {
+        long now = System.currentTimeMillis();
+        Map<String, Boolean> status = new LinkedHashMap<>();
+        for (String name : replicaNames) {
+            Long until = cooldownUntil.get(name);
+            status.put(name, until == null || until <= now);
+        }
+        return status;
+    }
+
+    private Connection openConnection(String name, DataSource dataSource, String username, String password)
+            throws SQLException {
+        Connection connection = username == null
+                ? dataSource.getConnection()
+                : dataSource.getConnection(username, password);
+        if (meterRegistry != null) {
+            routeCounters.computeIfAbsent(name,
+                    pool -> meterRegistry.counter("llm.datasource.route", "pool", pool)).increment();
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,71 @@
+package com.llmmanager.agent.storage.datasource;
+
+import com.llmmanager.agent.config.ReadWriteRoutingProperties;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 最近写入会话跟踪器（读己之写）
+ *
+ * 会话写入消息 / 轮次后记录写入时间，窗口期内针对该会话的只读查询仍走主库，
+ * 避免刚写完一轮对话就从从库读到复制延迟前的旧数据。
+ *
+ * 记录只在本节点内存中，多实例部署时需要按会话做粘性路由，读己之写才能跨请求生效。
+ */
+@Slf4j
+@Component
+public class RecentWriteTracker {
+
+    @Resource
+    private ReadWriteRoutingProperties properties;
+
+    /**
+     * conversationCode → 最近写入时间（毫秒）
+     */
+    private final ConcurrentHashMap<String, Long> lastWriteTimes = new ConcurrentHashMap<>();
+
+    /**
+     * 记录会话写入
+     */
+    public void markWritten(String conversationCode) {
+        if (conversationCode == null || !Boolean.TRUE.equals(properties.getEnabled())) {
+            return;
+        }
+        lastWriteTimes.put(conversationCode, System.currentTimeMillis());
+        if (lastWriteTimes.size() > properties.getMaxTrackedConversations()) {
+            evictExpired();
+        }
+    }
+
+    /**
+     * 会话是否在读己之写窗口内
+     */
+    public boolean isRecentlyWritten(String conversationCode) {
+        if (conversationCode == null) {
+            return false;
+        }
+        Long writeTime = lastWriteTimes.get(conversationCode);
+        if (writeTime == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - writeTime <= properties.getReadYourWritesWindowMs()) {
+            return true;
+        }
+        lastWriteTimes.remove(conversationCode, writeTime);
+        return false;
+    }
+
+    public int size() {
+        return lastWriteTimes.size();
+    }
+
+    private void evictExpired() {
+        long cutoff = System.currentTimeMillis() - properties.getReadYourWritesWindowMs();
+        int before = lastWriteTimes.size();
+        lastWriteTimes.values().removeIf(writeTime -> writeTime < cutoff);
+        log.debug("[RecentWriteTracker] 清理过期写入记录: {} -> {}", before, lastWriteTimes.size());
+    }
+}
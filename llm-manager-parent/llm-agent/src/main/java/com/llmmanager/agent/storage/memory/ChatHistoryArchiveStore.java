@@ -0,0 +1,192 @@
+package com.llmmanager.agent.storage.memory;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmmanager.agent.storage.core.entity.ChatHistory;
+import com.llmmanager.agent.storage.core.entity.ConversationTurn;
+import lombok.Data;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 聊天历史归档文件读写
+ *
+ * 文件格式：NDJSON + GZIP，一行一个会话（会话基本信息 + 全部消息 + 全部轮次），
+ * 按会话最后消息时间所在月份分目录：{@code <root>/yyyy-MM/chat-yyyyMMddHHmmss-<seq>.ndjson.gz}。
+ * 每行以 {"conversationCode":"..."} 开头，按会话查找时只需比较行前缀，匹配的行才做 JSON 解析；
+ * 整个文件也可以直接用 zcat / jq / DuckDB read_json 等工具离线扫描。
+ *
+ * 写入先落到 .tmp 文件并 fsync，再原子重命名，崩溃时不会留下半个归档文件。
+ */
+public class ChatHistoryArchiveStore {
+
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final DateTimeFormatter FILE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final String FILE_SUFFIX = ".ndjson.gz";
+
+    private final Path root;
+    private final ObjectMapper objectMapper;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public ChatHistoryArchiveStore(Path root, ObjectMapper objectMapper) {
+        this.root = root.toAbsolutePath().normalize();
+        this.objectMapper = objectMapper.copy()
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    /**
+     * 时间分区（月份）
+     */
+    public static String monthOf(LocalDateTime time) {
+        return (time != null ? time : LocalDateTime.now()).format(MONTH_FORMATTER);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * 将一组会话写入指定月份的新归档文件
+     *
+     * @return 写入结果（相对路径、压缩后大小、每个会话的原始大小）
+     */
+    public WriteResult write(String month, List<ArchiveRecord> records) throws IOException {
+        Path dir = root.resolve(month);
+        Files.createDirectories(dir);
+        String fileName = "chat-" + LocalDateTime.now().format(FILE_TIME_FORMATTER) + "-"
+                + sequence.incrementAndGet() + FILE_SUFFIX;
+        Path target = dir.resolve(fileName);
+        Path temp = dir.resolve(fileName + ".tmp");
+
+        List<Long> rawBytes = new ArrayList<>(records.size());
+        try (FileOutputStream fileOut = new FileOutputStream(temp.toFile())) {
+            GZIPOutputStream gzip = new GZIPOutputStream(new BufferedOutputStream(fileOut, 64 * 1024), 64 * 1024);
+            for (ArchiveRecord record : records) {
+                byte[] line = objectMapper.writeValueAsBytes(record);
+                gzip.write(line);
+                gzip.write('\n');
+                rawBytes.add((long) line.length + 1);
+            }
+            gzip.finish();
+            gzip.flush();
+            // 先 fsync 再重命名，确保删除在线数据前归档内容已持久化
+            fileOut.getChannel().force(true);
+            gzip.close();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+
+        WriteResult result = new WriteResult();
+        result.setFilePath(root.relativize(target).toString().replace('\\', '/'));
+        result.setCompressedBytes(Files.size(target));
+        result.setRawBytes(rawBytes);
+        return result;
+    }
+
+    /**
+     * 从归档文件中读取指定会话（文件中不存在时返回 null）
+     */
+    public ArchiveRecord read(String filePath, String conversationCode) throws IOException {
+        Path file = resolve(filePath);
+        String prefix = "{\"conversationCode\":" + objectMapper.writeValueAsString(conversationCode);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file), 64 * 1024), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(prefix)) {
+                    return objectMapper.readValue(line, ArchiveRecord.class);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 归档目录占用的磁盘空间（字节）
+     */
+    public long totalBytes() throws IOException {
+        if (!Files.isDirectory(root)) {
+            return 0L;
+        }
+        try (var paths = Files.walk(root)) {
+            return paths.filter(p -> p.getFileName().toString().endsWith(FILE_SUFFIX))
+                    .mapToLong(p -> p.toFile().length())
+                    .sum();
+        }
+    }
+
+    private Path resolve(String filePath) throws IOException {
+        Path file = root.resolve(filePath).normalize();
+        if (!file.startsWith(root)) {
+            throw new IOException("归档文件路径非法: " + filePath);
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new IOException("归档文件不存在: " + file);
+        }
+        return file;
+    }
+
+    /**
+     * 归档文件中的一行（一个会话）
+     */
+    @Data
+    @JsonPropertyOrder({"conversationCode", "title", "agentSlug", "lastMessageTime", "archiveTime", "messages", "turns"})
+    public static class ArchiveRecord {
+
+        private String conversationCode;
+
+        private String title;
+
+        private String agentSlug;
+
+        private LocalDateTime lastMessageTime;
+
+        private LocalDateTime archiveTime;
+
+        private List<ChatHistory> messages = new ArrayList<>();
+
+        private List<ConversationTurn> turns = new ArrayList<>();
+    }
+
+    /**
+     * 写入结果
+     */
+    @Data
+    public static class WriteResult {
+
+        /**
+         * 相对归档根目录的路径
+         */
+        private String filePath;
+
+        /**
+         * 压缩后的文件大小
+         */
+        private long compressedBytes;
+
+        /**
+         * 每个会话（与写入顺序一致）的原始大小
+         */
+        private List<Long> rawBytes;
+    }
+}
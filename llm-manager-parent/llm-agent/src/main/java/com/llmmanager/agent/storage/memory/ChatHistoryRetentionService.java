@@ -0,0 +1,627 @@
+package com.llmmanager.agent.storage.memory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmmanager.agent.config.ChatMemoryProperties;
+import com.llmmanager.agent.storage.core.entity.ChatArchive;
+import com.llmmanager.agent.storage.core.entity.ChatHistory;
+import com.llmmanager.agent.storage.core.entity.Conversation;
+import com.llmmanager.agent.storage.core.entity.ConversationTurn;
+import com.llmmanager.agent.storage.core.service.ChatArchiveService;
+import com.llmmanager.agent.storage.core.service.SchedulerLockService;
+import com.llmmanager.agent.storage.datasource.RecentWriteTracker;
+import com.llmmanager.agent.storage.memory.ChatHistoryArchiveStore.ArchiveRecord;
+import com.llmmanager.agent.storage.memory.ChatHistoryArchiveStore.WriteResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 聊天历史保留 / 冷归档
+ *
+ * a_chat_history / a_conversation_turns 的唯一键（message_code、conversation_code + message_index）不含时间列，
+ * 无法直接做 MySQL RANGE 分区；这里按会话最后消息时间做逻辑上的月份分区：
+ * - 归档：最后消息时间超过 retentionDays 的会话（置顶除外）整体写入 {@code <archivePath>/yyyy-MM/} 下的 NDJSON.gz 文件，
+ *   文件 fsync 后写入 a_chat_archives 索引（PURGING），再分批物理删除在线消息和轮次，完成后置为 ARCHIVED。
+ *   会话行本身保留，会话列表不受影响；中途中断的 PURGING 记录下次执行时继续清理。
+ * - 丢弃：archiveEnabled=false 时过期会话直接物理删除（消息、轮次、会话行）。
+ * - 清理软删除：is_delete=1 的消息、轮次、会话分批物理删除，释放行、索引和唯一键占用的序号。
+ * - 恢复：按索引找到归档文件中的会话行，写回在线表（见 ChatArchiveService#restore）。
+ *
+ * 所有删除都是 DELETE ... LIMIT deleteBatchSize 的小批量自动提交语句，每删除 deleteBatchSize 行暂停 batchPauseMs，
+ * 单次执行不超过 maxRunMinutes，剩余部分下次继续。多节点部署时通过 a_scheduler_locks 租约锁互斥。
+ *
+ * 指标：
+ * - llm.memory.retention.rows (Counter, action) - 写入归档（archived）/ 从在线表删除（deleted）/ 清理软删除（purged）的行数
+ */
+@Slf4j
+@Component
+public class ChatHistoryRetentionService {
+
+    private static final String LOCK_NAME = "chat-history-retention";
+
+    /**
+     * 每次查询的 PURGING 记录数
+     */
+    private static final int PURGING_BATCH_SIZE = 100;
+
+    @Resource
+    private ChatMemoryProperties memoryProperties;
+
+    @Resource
+    private ChatArchiveService chatArchiveService;
+
+    @Resource
+    private SchedulerLockService schedulerLockService;
+
+    @Resource
+    private RecentWriteTracker recentWriteTracker;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 本节点内互斥（定时执行与手动触发）
+     */
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    private ChatHistoryArchiveStore archiveStore;
+    private String nodeId;
+    private ScheduledExecutorService scheduler;
+    private volatile Map<String, Object> lastReport;
+
+    @PostConstruct
+    public void start() {
+        ChatMemoryProperties.Retention config = config();
+        archiveStore = new ChatHistoryArchiveStore(Path.of(config.getArchivePath()), objectMapper);
+        nodeId = config.getNodeId() != null && !config.getNodeId().isBlank() ? config.getNodeId() : defaultNodeId();
+        if (!Boolean.TRUE.equals(memoryProperties.getEnableCleanup())) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "chat-history-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::scheduledRun, config.getInitialDelayMinutes(),
+                Math.max(1L, config.getIntervalMinutes()), TimeUnit.MINUTES);
+        log.info("[ChatHistoryRetention] 启动: nodeId={}, retentionDays={}, archiveEnabled={}, archivePath={}, intervalMinutes={}",
+                nodeId, memoryProperties.getRetentionDays(), config.getArchiveEnabled(), archiveStore.getRoot(),
+                config.getIntervalMinutes());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 立即执行一次（本节点已在执行时抛出 IllegalStateException）
+     */
+    public Map<String, Object> runNow() {
+        return run("MANUAL");
+    }
+
+    /**
+     * 从归档文件恢复会话的消息和轮次
+     */
+    public Map<String, Object> restore(String conversationCode) {
+        ChatArchive archive = chatArchiveService.getByConversationCode(conversationCode);
+        if (archive == null) {
+            throw new IllegalArgumentException("会话没有归档记录: " + conversationCode);
+        }
+        if (!ChatArchive.ArchiveStatus.ARCHIVED.name().equals(archive.getStatus())) {
+            throw new IllegalStateException("归档状态为 " + archive.getStatus() + "，无法恢复: " + conversationCode);
+        }
+
+        ArchiveRecord record;
+        try {
+            record = archiveStore.read(archive.getFilePath(), conversationCode);
+        } catch (IOException e) {
+            throw new IllegalStateException("读取归档文件失败: " + e.getMessage(), e);
+        }
+        if (record == null) {
+            throw new IllegalStateException("归档文件中没有该会话: " + archive.getFilePath());
+        }
+
+        chatArchiveService.restore(archive, record.getMessages(), record.getTurns());
+        recentWriteTracker.markWritten(conversationCode);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("conversationCode", conversationCode);
+        result.put("archiveMonth", archive.getArchiveMonth());
+        result.put("filePath", archive.getFilePath());
+        result.put("restoredMessages", record.getMessages().size());
+        result.put("restoredTurns", record.getTurns().size());
+        return result;
+    }
+
+    /**
+     * 保留任务状态：配置、最近一次执行报告、归档统计、表空间占用
+     */
+    public Map<String, Object> getStats() {
+        ChatMemoryProperties.Retention config = config();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", Boolean.TRUE.equals(memoryProperties.getEnableCleanup()));
+        stats.put("retentionDays", memoryProperties.getRetentionDays());
+        stats.put("archiveEnabled", config.getArchiveEnabled());
+        stats.put("archivePath", archiveStore.getRoot().toString());
+        stats.put("nodeId", nodeId);
+        stats.put("running", runLock.isLocked());
+        stats.put("archives", chatArchiveService.countByStatus());
+        try {
+            stats.put("archiveDiskBytes", archiveStore.totalBytes());
+        } catch (IOException e) {
+            stats.put("archiveDiskBytes", null);
+        }
+        stats.put("tables", chatArchiveService.getTableStats());
+        stats.put("lastRun", lastReport);
+        return stats;
+    }
+
+    private void scheduledRun() {
+        try {
+            run("SCHEDULED");
+        } catch (Exception e) {
+            log.error("[ChatHistoryRetention] 执行失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private Map<String, Object> run(String trigger) {
+        if (!runLock.tryLock()) {
+            throw new IllegalStateException("保留任务正在执行中");
+        }
+        try {
+            ChatMemoryProperties.Retention config = config();
+            long leaseMs = TimeUnit.MINUTES.toMillis(Math.max(1L, config.getMaxRunMinutes()) + 1);
+            if (!schedulerLockService.tryLock(LOCK_NAME, nodeId, leaseMs)) {
+                log.info("[ChatHistoryRetention] 其它节点正在执行，跳过: trigger={}", trigger);
+                Map<String, Object> skipped = new LinkedHashMap<>();
+                skipped.put("trigger", trigger);
+                skipped.put("skipped", true);
+                skipped.put("reason", "其它节点正在执行");
+                return skipped;
+            }
+            try {
+                Map<String, Object> report = doRun(trigger, config);
+                lastReport = report;
+                return report;
+            } finally {
+                schedulerLockService.unlock(LOCK_NAME, nodeId);
+            }
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    private Map<String, Object> doRun(String trigger, ChatMemoryProperties.Retention config) {
+        RunContext ctx = new RunContext(config);
+        LocalDateTime before = LocalDateTime.now().minusDays(Math.max(1, memoryProperties.getRetentionDays()));
+        Map<String, Map<String, Object>> tablesBefore = chatArchiveService.getTableStats();
+        log.info("[ChatHistoryRetention] 开始执行: trigger={}, before={}", trigger, before);
+
+        try {
+            resumePurging(ctx);
+            if (Boolean.TRUE.equals(config.getArchiveEnabled())) {
+                archiveExpired(ctx, before);
+            } else {
+                dropExpired(ctx, before);
+            }
+            if (Boolean.TRUE.equals(config.getPurgeSoftDeleted())) {
+                purgeSoftDeleted(ctx);
+            }
+        } catch (Exception e) {
+            ctx.error = e.getMessage();
+            log.error("[ChatHistoryRetention] 执行中断: {}", e.getMessage(), e);
+        }
+
+        meterRegistry.counter("llm.memory.retention.rows", "action", "archived")
+                .increment(ctx.archivedMessages + ctx.archivedTurns);
+        meterRegistry.counter("llm.memory.retention.rows", "action", "deleted")
+                .increment(ctx.deletedMessages + ctx.deletedTurns + ctx.droppedConversations);
+        meterRegistry.counter("llm.memory.retention.rows", "action", "purged")
+                .increment(ctx.purgedMessages + ctx.purgedTurns + ctx.purgedConversations);
+
+        Map<String, Map<String, Object>> tablesAfter = chatArchiveService.getTableStats();
+        Map<String, Object> report = ctx.toReport(trigger, before);
+        report.put("estimatedReclaimedBytes", estimateReclaimedBytes(ctx, tablesBefore));
+        report.put("tablesBefore", tablesBefore);
+        report.put("tablesAfter", tablesAfter);
+
+        log.info("[ChatHistoryRetention] 执行完成: archivedConversations={}, archivedMessages={}, droppedConversations={}, " +
+                        "purgedMessages={}, purgedTurns={}, archiveFiles={}, compressedBytes={}, durationMs={}, completed={}",
+                ctx.archivedConversations, ctx.archivedMessages, ctx.droppedConversations, ctx.deletedMessages,
+                ctx.deletedTurns, ctx.archiveFiles, ctx.compressedBytes, report.get("durationMs"), report.get("completed"));
+        return report;
+    }
+
+    /**
+     * 继续清理上次中断的 PURGING 归档
+     */
+    private void resumePurging(RunContext ctx) {
+        while (!ctx.deadlineReached()) {
+            List<ChatArchive> purging = chatArchiveService.listPurging(PURGING_BATCH_SIZE);
+            if (purging.isEmpty()) {
+                return;
+            }
+            for (ChatArchive archive : purging) {
+                if (!purgeArchived(ctx, archive)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 归档过期会话：按 id 游标分批读取，同一批按月份写文件，再逐个清理在线数据
+     */
+    private void archiveExpired(RunContext ctx, LocalDateTime before) throws IOException {
+        long afterId = 0L;
+        while (!ctx.deadlineReached()) {
+            List<Conversation> batch = chatArchiveService.listExpiredConversations(before, afterId,
+                    ctx.config.getConversationBatchSize());
+            if (batch.isEmpty()) {
+                return;
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+
+            Map<String, List<PendingArchive>> byMonth = new LinkedHashMap<>();
+            for (Conversation conversation : batch) {
+                PendingArchive pending = prepare(conversation);
+                if (pending != null) {
+                    byMonth.computeIfAbsent(ChatHistoryArchiveStore.monthOf(conversation.getLastMessageTime()),
+                            k -> new ArrayList<>()).add(pending);
+                }
+            }
+
+            for (Map.Entry<String, List<PendingArchive>> entry : byMonth.entrySet()) {
+                List<PendingArchive> pendings = entry.getValue();
+                List<ArchiveRecord> records = new ArrayList<>(pendings.size());
+                for (PendingArchive pending : pendings) {
+                    records.add(pending.record);
+                }
+                // 写文件失败（磁盘满、权限等）直接中断本次执行，在线数据不受影响
+                WriteResult written = archiveStore.write(entry.getKey(), records);
+                ctx.archiveFiles++;
+                ctx.compressedBytes += written.getCompressedBytes();
+
+                List<ChatArchive> archives = new ArrayList<>(pendings.size());
+                for (int i = 0; i < pendings.size(); i++) {
+                    PendingArchive pending = pendings.get(i);
+                    ChatArchive archive = new ChatArchive();
+                    archive.setConversationCode(pending.record.getConversationCode());
+                    archive.setArchiveMonth(entry.getKey());
+                    archive.setFilePath(written.getFilePath());
+                    archive.setMessageCount(pending.record.getMessages().size());
+                    archive.setTurnCount(pending.record.getTurns().size());
+                    archive.setRawBytes(written.getRawBytes().get(i));
+                    archive.setMaxMessageId(pending.maxMessageId);
+                    archive.setMaxTurnId(pending.maxTurnId);
+                    archive.setLastMessageTime(pending.record.getLastMessageTime());
+                    archives.add(chatArchiveService.beginArchive(archive));
+
+                    ctx.archivedConversations++;
+                    ctx.archivedMessages += pending.liveMessages;
+                    ctx.archivedTurns += pending.liveTurns;
+                    ctx.rawBytes += archive.getRawBytes();
+                }
+                for (ChatArchive archive : archives) {
+                    if (!purgeArchived(ctx, archive)) {
+                        // 超时：剩余的 PURGING 记录下次执行时继续清理
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 组装会话的归档内容；会话已归档过且之后有新消息时，与原归档内容合并（新消息的序号接在原归档之后）
+     *
+     * @return 原归档文件读取失败时返回 null（跳过该会话，避免覆盖后丢失原归档内容）
+     */
+    private PendingArchive prepare(Conversation conversation) {
+        String conversationCode = conversation.getConversationCode();
+        List<ChatHistory> messages = chatArchiveService.listMessages(conversationCode);
+        List<ConversationTurn> turns = chatArchiveService.listTurns(conversationCode);
+
+        ArchiveRecord record = new ArchiveRecord();
+        record.setConversationCode(conversationCode);
+        record.setTitle(conversation.getTitle());
+        record.setAgentSlug(conversation.getAgentSlug());
+        record.setLastMessageTime(conversation.getLastMessageTime());
+        record.setArchiveTime(LocalDateTime.now());
+
+        int messageOffset = 0;
+        int turnOffset = 0;
+        ChatArchive existing = chatArchiveService.getByConversationCode(conversationCode);
+        if (existing != null && ChatArchive.ArchiveStatus.ARCHIVED.name().equals(existing.getStatus())) {
+            ArchiveRecord previous;
+            try {
+                previous = archiveStore.read(existing.getFilePath(), conversationCode);
+            } catch (IOException e) {
+                log.warn("[ChatHistoryRetention] 读取原归档失败，跳过会话: conversationCode={}, error={}",
+                        conversationCode, e.getMessage());
+                return null;
+            }
+            if (previous != null) {
+                record.getMessages().addAll(previous.getMessages());
+                record.getTurns().addAll(previous.getTurns());
+                messageOffset = nextIndex(previous.getMessages().stream().map(ChatHistory::getMessageIndex).toList());
+                turnOffset = nextIndex(previous.getTurns().stream().map(ConversationTurn::getTurnIndex).toList());
+            }
+        }
+
+        PendingArchive pending = new PendingArchive();
+        for (ChatHistory message : messages) {
+            pending.maxMessageId = Math.max(pending.maxMessageId, message.getId());
+            if (messageOffset > 0 && message.getMessageIndex() != null) {
+                message.setMessageIndex(message.getMessageIndex() + messageOffset);
+            }
+            record.getMessages().add(message);
+        }
+        for (ConversationTurn turn : turns) {
+            pending.maxTurnId = Math.max(pending.maxTurnId, turn.getId());
+            if (turnOffset > 0 && turn.getTurnIndex() != null) {
+                turn.setTurnIndex(turn.getTurnIndex() + turnOffset);
+            }
+            record.getTurns().add(turn);
+        }
+        pending.record = record;
+        pending.liveMessages = messages.size();
+        pending.liveTurns = turns.size();
+        return pending;
+    }
+
+    /**
+     * 分批删除已写入归档的在线数据，完成后置为 ARCHIVED
+     *
+     * @return 是否完成（false 表示已到单次执行时间上限）
+     */
+    private boolean purgeArchived(RunContext ctx, ChatArchive archive) {
+        String conversationCode = archive.getConversationCode();
+        long maxMessageId = archive.getMaxMessageId() != null ? archive.getMaxMessageId() : 0L;
+        long maxTurnId = archive.getMaxTurnId() != null ? archive.getMaxTurnId() : 0L;
+        int batchSize = ctx.config.getDeleteBatchSize();
+
+        int deleted;
+        do {
+            if (ctx.deadlineReached()) {
+                return false;
+            }
+            deleted = chatArchiveService.purgeMessages(conversationCode, maxMessageId, batchSize);
+            ctx.deletedMessages += deleted;
+            ctx.throttle(deleted);
+        } while (deleted >= batchSize);
+        do {
+            if (ctx.deadlineReached()) {
+                return false;
+            }
+            deleted = chatArchiveService.purgeTurns(conversationCode, maxTurnId, batchSize);
+            ctx.deletedTurns += deleted;
+            ctx.throttle(deleted);
+        } while (deleted >= batchSize);
+
+        chatArchiveService.markArchived(archive.getId());
+        return true;
+    }
+
+    /**
+     * 未开启归档：过期会话直接物理删除
+     */
+    private void dropExpired(RunContext ctx, LocalDateTime before) {
+        int batchSize = ctx.config.getDeleteBatchSize();
+        long afterId = 0L;
+        while (!ctx.deadlineReached()) {
+            List<Conversation> batch = chatArchiveService.listExpiredConversations(before, afterId,
+                    ctx.config.getConversationBatchSize());
+            if (batch.isEmpty()) {
+                return;
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+
+            for (Conversation conversation : batch) {
+                String conversationCode = conversation.getConversationCode();
+                int deleted;
+                do {
+                    if (ctx.deadlineReached()) {
+                        return;
+                    }
+                    deleted = chatArchiveService.purgeMessages(conversationCode, Long.MAX_VALUE, batchSize);
+                    ctx.deletedMessages += deleted;
+                    ctx.throttle(deleted);
+                } while (deleted >= batchSize);
+                do {
+                    if (ctx.deadlineReached()) {
+                        return;
+                    }
+                    deleted = chatArchiveService.purgeTurns(conversationCode, Long.MAX_VALUE, batchSize);
+                    ctx.deletedTurns += deleted;
+                    ctx.throttle(deleted);
+                } while (deleted >= batchSize);
+
+                chatArchiveService.purgeConversation(conversation);
+                ctx.droppedConversations++;
+            }
+        }
+    }
+
+    /**
+     * 分批物理删除已软删除的消息、轮次和会话
+     */
+    private void purgeSoftDeleted(RunContext ctx) {
+        int batchSize = ctx.config.getDeleteBatchSize();
+        int deleted;
+        do {
+            if (ctx.deadlineReached()) {
+                return;
+            }
+            deleted = chatArchiveService.purgeSoftDeletedMessages(batchSize);
+            ctx.purgedMessages += deleted;
+            ctx.throttle(deleted);
+        } while (deleted >= batchSize);
+        do {
+            if (ctx.deadlineReached()) {
+                return;
+            }
+            deleted = chatArchiveService.purgeSoftDeletedTurns(batchSize);
+            ctx.purgedTurns += deleted;
+            ctx.throttle(deleted);
+        } while (deleted >= batchSize);
+        do {
+            if (ctx.deadlineReached()) {
+                return;
+            }
+            deleted = chatArchiveService.purgeSoftDeletedConversations(batchSize);
+            ctx.purgedConversations += deleted;
+            ctx.throttle(deleted);
+        } while (deleted >= batchSize);
+    }
+
+    /**
+     * 按执行前各表的平均行大小估算释放的空间（InnoDB 删除后空间计入 data_free 供后续写入复用，不会立即归还给文件系统）
+     */
+    private long estimateReclaimedBytes(RunContext ctx, Map<String, Map<String, Object>> tablesBefore) {
+        return avgRowBytes(tablesBefore, "a_chat_history") * (ctx.deletedMessages + ctx.purgedMessages)
+                + avgRowBytes(tablesBefore, "a_conversation_turns") * (ctx.deletedTurns + ctx.purgedTurns)
+                + avgRowBytes(tablesBefore, "a_conversations") * (ctx.droppedConversations + ctx.purgedConversations);
+    }
+
+    private long avgRowBytes(Map<String, Map<String, Object>> tables, String table) {
+        Map<String, Object> stats = tables.get(table);
+        if (stats == null) {
+            return 0L;
+        }
+        long rows = ((Number) stats.get("rows")).longValue();
+        return rows > 0 ? ((Number) stats.get("totalBytes")).longValue() / rows : 0L;
+    }
+
+    private int nextIndex(List<Integer> indexes) {
+        return indexes.stream().filter(i -> i != null).mapToInt(Integer::intValue).max().orElse(-1) + 1;
+    }
+
+    private ChatMemoryProperties.Retention config() {
+        return memoryProperties.getRetention();
+    }
+
+    private String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + ":" + ManagementFactory.getRuntimeMXBean().getPid();
+    }
+
+    /**
+     * 待归档的会话
+     */
+    private static class PendingArchive {
+        private ArchiveRecord record;
+        private long maxMessageId;
+        private long maxTurnId;
+        private int liveMessages;
+        private int liveTurns;
+    }
+
+    /**
+     * 单次执行的计数、限速和时间上限
+     */
+    private static class RunContext {
+        private final ChatMemoryProperties.Retention config;
+        private final long startMillis = System.currentTimeMillis();
+        private final long deadlineMillis;
+        private long pendingRows;
+        private boolean timedOut;
+        private String error;
+
+        private long archivedConversations;
+        private long archivedMessages;
+        private long archivedTurns;
+        private long archiveFiles;
+        private long rawBytes;
+        private long compressedBytes;
+        private long droppedConversations;
+        private long deletedMessages;
+        private long deletedTurns;
+        private long purgedMessages;
+        private long purgedTurns;
+        private long purgedConversations;
+
+        RunContext(ChatMemoryProperties.Retention config) {
+            this.config = config;
+            this.deadlineMillis = startMillis + TimeUnit.MINUTES.toMillis(Math.max(1L, config.getMaxRunMinutes()));
+        }
+
+        boolean deadlineReached() {
+            if (!timedOut && System.currentTimeMillis() >= deadlineMillis) {
+                timedOut = true;
+            }
+            return timedOut;
+        }
+
+        /**
+         * 每删除 deleteBatchSize 行暂停 batchPauseMs
+         */
+        void throttle(int deletedRows) {
+            pendingRows += deletedRows;
+            if (pendingRows < config.getDeleteBatchSize() || config.getBatchPauseMs() <= 0) {
+                return;
+            }
+            pendingRows = 0;
+            try {
+                Thread.sleep(config.getBatchPauseMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                timedOut = true;
+            }
+        }
+
+        Map<String, Object> toReport(String trigger, LocalDateTime before) {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("trigger", trigger);
+            report.put("before", before.toString());
+            report.put("completed", !timedOut && error == null);
+            report.put("error", error);
+            report.put("durationMs", System.currentTimeMillis() - startMillis);
+            report.put("archivedConversations", archivedConversations);
+            report.put("archivedMessages", archivedMessages);
+            report.put("archivedTurns", archivedTurns);
+            report.put("archiveFiles", archiveFiles);
+            report.put("archiveRawBytes", rawBytes);
+            report.put("archiveCompressedBytes", compressedBytes);
+            report.put("droppedConversations", droppedConversations);
+            report.put("deletedMessages", deletedMessages);
+            report.put("deletedTurns", deletedTurns);
+            report.put("purgedSoftDeletedMessages", purgedMessages);
+            report.put("purgedSoftDeletedTurns", purgedTurns);
+            report.put("purgedSoftDeletedConversations", purgedConversations);
+            report.put("rowsMoved", archivedMessages + archivedTurns);
+            report.put("rowsDeleted", deletedMessages + deletedTurns + droppedConversations
+                    + purgedMessages + purgedTurns + purgedConversations);
+            return report;
+        }
+    }
+}
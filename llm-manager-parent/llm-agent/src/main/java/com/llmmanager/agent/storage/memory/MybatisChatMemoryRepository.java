@@ -5,6 +5,7 @@ import com.llmmanager.agent.storage.core.entity.ConversationTurn;
 import com.llmmanager.agent.storage.core.service.ChatHistoryService;
 import com.llmmanager.agent.storage.core.service.ConversationService;
 import com.llmmanager.agent.storage.core.service.ConversationTurnService;
+import com.llmmanager.agent.storage.datasource.RecentWriteTracker;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.memory.ChatMemoryRepository;
 import org.springframework.ai.chat.messages.AssistantMessage;
@@ -30,6 +31,7 @@ import java.util.List;
  * - 保存消息时自动创建会话（如果不存在）
  * - 自动更新会话的消息计数和最后消息时间
  * - 自动创建和管理对话轮次（Turn）
+ * - 写入前后记录会话的最近写入时间，读写分离时该会话的只读查询在窗口期内仍走主库
  *
  * 命名规范：
  * - conversationCode：会话业务唯一标识（对应 Spring AI 的 conversationId 参数）
@@ -49,6 +51,9 @@ public class MybatisChatMemoryRepository implements ChatMemoryRepository {
     @Resource
     private ConversationTurnService conversationTurnService;
 
+    @Resource
+    private RecentWriteTracker recentWriteTracker;
+
     /**
      * 保存消息到指定会话
      * 注意：Spring AI 的 conversationId 参数在本系统中对应 conversationCode
@@ -63,6 +68,8 @@ public class MybatisChatMemoryRepository implements ChatMemoryRepository {
             return;
         }
 
+        recentWriteTracker.markWritten(conversationCode);
+
         // 确保会话存在（如果不存在则创建）
         conversationService.getOrCreate(conversationCode);
 
@@ -100,6 +107,10 @@ public class MybatisChatMemoryRepository implements ChatMemoryRepository {
                 currentTurn = conversationTurnService.findLatestPendingTurn(conversationCode).orElse(null);
                 if (currentTurn != null) {
                     log.debug("[MybatisChatMemoryRepository] 找到未完成轮次: {}", currentTurn.getTurnCode());
+                } else if (isLatestTurnInterrupted(conversationCode)) {
+                    // 流式输出已被客户端中断，迟到的（不完整）回答不作为完整轮次保存
+                    log.info("[MybatisChatMemoryRepository] 最近轮次已中断，丢弃助手消息, 会话: {}", conversationCode);
+                    continue;
                 }
             }
 
@@ -132,6 +143,10 @@ public class MybatisChatMemoryRepository implements ChatMemoryRepository {
             currentIndex++;
         }
 
+        if (histories.isEmpty()) {
+            return;
+        }
+
         // 批量保存消息
         chatHistoryService.saveBatch(histories);
 
@@ -148,10 +163,13 @@ public class MybatisChatMemoryRepository implements ChatMemoryRepository {
         }
 
         // 更新会话的消息计数
-        conversationService.incrementMessageCount(conversationCode, newMessages.size());
+        conversationService.incrementMessageCount(conversationCode, histories.size());
+
+        // 读己之写窗口从写入完成时开始计算
+        recentWriteTracker.markWritten(conversationCode);
 
         log.debug("[MybatisChatMemoryRepository] 保存 {} 条消息到会话: {}, 轮次: {}",
-                newMessages.size(), conversationCode, currentTurn != null ? currentTurn.getTurnCode() : "无");
+                histories.size(), conversationCode, currentTurn != null ? currentTurn.getTurnCode() : "无");
     }
 
     /**
@@ -223,6 +241,8 @@ public class MybatisChatMemoryRepository implements ChatMemoryRepository {
             return;
         }
 
+        recentWriteTracker.markWritten(conversationCode);
+
         // 删除消息历史
         chatHistoryService.deleteByConversationCode(conversationCode);
 
@@ -235,6 +255,15 @@ public class MybatisChatMemoryRepository implements ChatMemoryRepository {
         log.debug("[MybatisChatMemoryRepository] 删除会话、轮次及消息: {}", conversationCode);
     }
 
+    /**
+     * 判断会话最近一个轮次是否已被中断
+     */
+    private boolean isLatestTurnInterrupted(String conversationCode) {
+        List<ConversationTurn> latest = conversationTurnService.findRecentTurns(conversationCode, 1);
+        return !latest.isEmpty()
+                && ConversationTurn.STATUS_INTERRUPTED.equals(latest.get(latest.size() - 1).getStatus());
+    }
+
     /**
      * 映射消息类型：Spring AI Message → 字符串
      */
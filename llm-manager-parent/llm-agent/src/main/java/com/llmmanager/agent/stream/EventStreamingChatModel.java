@@ -0,0 +1,176 @@
+package com.llmmanager.agent.stream;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatGenerationMetadata;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 事件推送 ChatModel 装饰器
+ *
+ * ReactAgent 内部以同步方式调用 ChatModel.call()，无法直接拿到增量输出。
+ * 本装饰器把 call() 改为向上游发起流式请求：
+ * - 每个增量块推送 token / reasoning 事件（source = Agent 名称）
+ * - 所有增量块聚合为完整 ChatResponse（文本、思考内容、工具调用、Usage）返回给 ReactAgent
+ *
+ * 因此 ReactAgent 的推理循环、工具调用逻辑完全不变，只是多了实时事件。
+ * 客户端断开后 eventSink.emit() 抛出 CancellationException，上游 HTTP 流随之取消，Agent 中止。
+ *
+ * eventSink.emit() 在缓冲区满时会阻塞，因此不能在上游 Netty IO 线程上调用：
+ * call() 在 Agent 调用线程上以 toStream(PREFETCH) 拉取增量块，stream() 先 publishOn 切换到 boundedElastic 再推送。
+ */
+public class EventStreamingChatModel implements ChatModel {
+
+    private static final String REASONING_KEY = "reasoningContent";
+
+    /**
+     * 上游最多领先推送线程的增量块数
+     */
+    private static final int PREFETCH = 16;
+
+    private final ChatModel delegate;
+    private final String source;
+    private final ExecutionEventSink eventSink;
+
+    public EventStreamingChatModel(ChatModel delegate, String source, ExecutionEventSink eventSink) {
+        this.delegate = delegate;
+        this.source = source;
+        this.eventSink = eventSink;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        eventSink.checkCancelled();
+
+        ResponseAggregator aggregator = new ResponseAggregator();
+        try (Stream<ChatResponse> chunks = delegate.stream(prompt).toStream(PREFETCH)) {
+            chunks.forEach(chunk -> {
+                emitDeltas(chunk);
+                aggregator.add(chunk);
+            });
+        }
+
+        return aggregator.toResponse();
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            eventSink.checkCancelled();
+            return delegate.stream(prompt)
+                    .publishOn(Schedulers.boundedElastic(), PREFETCH)
+                    .doOnNext(this::emitDeltas);
+        });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+
+    /**
+     * 推送增量块中的文本和思考内容
+     */
+    private void emitDeltas(ChatResponse chunk) {
+        if (chunk == null || chunk.getResult() == null || chunk.getResult().getOutput() == null) {
+            return;
+        }
+        AssistantMessage output = chunk.getResult().getOutput();
+
+        String reasoning = extractReasoning(output.getMetadata());
+        if (reasoning != null && !reasoning.isEmpty()) {
+            eventSink.emit(ExecutionEvent.reasoning(source, reasoning));
+        }
+        String text = output.getText();
+        if (text != null && !text.isEmpty()) {
+            eventSink.emit(ExecutionEvent.token(source, text));
+        }
+    }
+
+    private static String extractReasoning(Map<String, Object> metadata) {
+        if (metadata == null || metadata.isEmpty()) {
+            return null;
+        }
+        Object reasoning = metadata.get(REASONING_KEY);
+        if (reasoning == null) {
+            reasoning = metadata.get("reasoning_content");
+        }
+        return reasoning != null ? reasoning.toString() : null;
+    }
+
+    /**
+     * 增量块聚合器
+     *
+     * OpenAiChatModel 的流式输出已把同一工具调用的分片合并为一个块，这里只需收集。
+     */
+    private static class ResponseAggregator {
+
+        private final StringBuilder text = new StringBuilder();
+        private final StringBuilder reasoning = new StringBuilder();
+        private final List<AssistantMessage.ToolCall> toolCalls = new ArrayList<>();
+        private final Map<String, Object> properties = new HashMap<>();
+        private ChatGenerationMetadata generationMetadata = ChatGenerationMetadata.NULL;
+        private ChatResponseMetadata responseMetadata;
+
+        void add(ChatResponse chunk) {
+            if (chunk == null) {
+                return;
+            }
+            if (chunk.getMetadata() != null && (responseMetadata == null || hasUsage(chunk.getMetadata()))) {
+                responseMetadata = chunk.getMetadata();
+            }
+
+            Generation generation = chunk.getResult();
+            if (generation == null || generation.getOutput() == null) {
+                return;
+            }
+            AssistantMessage output = generation.getOutput();
+            if (output.getText() != null) {
+                text.append(output.getText());
+            }
+            String reasoningDelta = extractReasoning(output.getMetadata());
+            if (reasoningDelta != null) {
+                reasoning.append(reasoningDelta);
+            }
+            if (output.hasToolCalls()) {
+                toolCalls.addAll(output.getToolCalls());
+            }
+            if (output.getMetadata() != null) {
+                properties.putAll(output.getMetadata());
+            }
+            ChatGenerationMetadata metadata = generation.getMetadata();
+            if (metadata != null && metadata.getFinishReason() != null) {
+                generationMetadata = metadata;
+            }
+        }
+
+        ChatResponse toResponse() {
+            if (!reasoning.isEmpty()) {
+                properties.put(REASONING_KEY, reasoning.toString());
+            }
+            AssistantMessage message = new AssistantMessage(text.toString(), properties, toolCalls);
+            Generation generation = new Generation(message, generationMetadata);
+            return responseMetadata != null
+                    ? new ChatResponse(List.of(generation), responseMetadata)
+                    : new ChatResponse(List.of(generation));
+        }
+
+        private static boolean hasUsage(ChatResponseMetadata metadata) {
+            Usage usage = metadata.getUsage();
+            return usage != null && usage.getTotalTokens() != null && usage.getTotalTokens() > 0;
+        }
+    }
+}
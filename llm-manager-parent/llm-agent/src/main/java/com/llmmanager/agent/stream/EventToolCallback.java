@@ -0,0 +1,147 @@
+package com.llmmanager.agent.stream;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 事件推送 ToolCallback 装饰器
+ *
+ * 包装 Agent 的工具，在调用前后推送事件：
+ * - 普通工具：tool_start / tool_end
+ * - Agent-as-Tool（Supervisor 调用 Worker）：handoff（移交给 Worker）/ handoff（交还 Supervisor）
+ *
+ * 工具参数和结果只推送截断后的预览，避免大段内容占满事件缓冲区。
+ */
+public class EventToolCallback implements ToolCallback {
+
+    private static final int PREVIEW_LENGTH = 500;
+
+    private final ToolCallback delegate;
+    private final String source;
+    private final ExecutionEventSink eventSink;
+    private final boolean handoff;
+
+    private EventToolCallback(ToolCallback delegate, String source, ExecutionEventSink eventSink, boolean handoff) {
+        this.delegate = delegate;
+        this.source = source;
+        this.eventSink = eventSink;
+        this.handoff = handoff;
+    }
+
+    /**
+     * 包装普通工具
+     *
+     * @param delegate  原始工具
+     * @param source    调用方 Agent 名称
+     * @param eventSink 事件通道
+     */
+    public static ToolCallback wrap(ToolCallback delegate, String source, ExecutionEventSink eventSink) {
+        return new EventToolCallback(delegate, source, eventSink, false);
+    }
+
+    /**
+     * 包装 Agent-as-Tool（调用即控制权移交）
+     *
+     * @param delegate  Worker Agent 转换的工具
+     * @param source    调用方（Supervisor）名称
+     * @param eventSink 事件通道
+     */
+    public static ToolCallback wrapHandoff(ToolCallback delegate, String source, ExecutionEventSink eventSink) {
+        return new EventToolCallback(delegate, source, eventSink, true);
+    }
+
+    /**
+     * 批量包装普通工具（eventSink 为 null 时原样返回，已包装的工具不重复包装）
+     */
+    public static List<ToolCallback> wrapAll(List<ToolCallback> tools, String source, ExecutionEventSink eventSink) {
+        if (eventSink == null || tools == null || tools.isEmpty()) {
+            return tools;
+        }
+        return tools.stream()
+                .map(tool -> tool instanceof EventToolCallback ? tool : wrap(tool, source, eventSink))
+                .toList();
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return invoke(toolInput, () -> delegate.call(toolInput));
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        return invoke(toolInput, () -> delegate.call(toolInput, toolContext));
+    }
+
+    private String invoke(String toolInput, Supplier<String> action) {
+        String toolName = delegate.getToolDefinition().name();
+        eventSink.emit(handoff ? handoffEvent(source, toolName, toolInput) : toolStartEvent(toolName, toolInput));
+
+        long startTime = System.currentTimeMillis();
+        String result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            eventSink.checkCancelled();
+            Map<String, Object> data = new HashMap<>();
+            data.put("tool", toolName);
+            data.put("success", false);
+            data.put("error", e.getMessage());
+            data.put("durationMs", System.currentTimeMillis() - startTime);
+            eventSink.emit(handoff ? ExecutionEvent.handoff(toolName, withTarget(data, source))
+                    : ExecutionEvent.toolEnd(source, data));
+            throw e;
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("tool", toolName);
+        data.put("success", true);
+        data.put("result", preview(result));
+        data.put("durationMs", System.currentTimeMillis() - startTime);
+        eventSink.emit(handoff ? ExecutionEvent.handoff(toolName, withTarget(data, source))
+                : ExecutionEvent.toolEnd(source, data));
+        return result;
+    }
+
+    private ExecutionEvent toolStartEvent(String toolName, String toolInput) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("tool", toolName);
+        data.put("arguments", preview(toolInput));
+        return ExecutionEvent.toolStart(source, data);
+    }
+
+    private static ExecutionEvent handoffEvent(String from, String to, String input) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("to", to);
+        data.put("input", preview(input));
+        return ExecutionEvent.handoff(from, data);
+    }
+
+    private static Map<String, Object> withTarget(Map<String, Object> data, String to) {
+        data.put("to", to);
+        return data;
+    }
+
+    private static String preview(String text) {
+        if (text == null || text.length() <= PREVIEW_LENGTH) {
+            return text;
+        }
+        return text.substring(0, PREVIEW_LENGTH) + "...";
+    }
+}
@@ -0,0 +1,147 @@
+package com.llmmanager.agent.stream;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonValue;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * 流式执行事件
+ *
+ * 工作流 / Agent 流式执行过程中产生的统一事件结构：
+ * - start / complete / error：整体执行的生命周期
+ * - node_start / node_end：节点开始、结束
+ * - token：LLM 节点生成的增量文本
+ * - reasoning：思考过程增量文本（DeepSeek R1 等模型）
+ * - tool_start / tool_end：Agent 工具调用开始、结束
+ * - handoff：多 Agent 协作时控制权移交（Supervisor ↔ Worker、顺序 Agent 之间）
+ * - status：异步任务状态变化（排队位置、执行中、结束）
+ *
+ * 设计原则：
+ * - Agent 层只产生事件，不关心 HTTP 格式
+ * - Controller 层负责转换为 SSE
+ */
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExecutionEvent {
+
+    /**
+     * 事件类型
+     */
+    private EventType type;
+
+    /**
+     * 事件来源（节点 ID / Agent 名称）
+     */
+    private String source;
+
+    /**
+     * 增量文本（仅 token / reasoning 事件）
+     */
+    private String delta;
+
+    /**
+     * 扩展数据（节点耗时、最终状态等）
+     */
+    private Map<String, Object> data;
+
+    /**
+     * 事件时间戳（毫秒）
+     */
+    private long timestamp;
+
+    public static ExecutionEvent of(EventType type, String source, Map<String, Object> data) {
+        return ExecutionEvent.builder()
+                .type(type)
+                .source(source)
+                .data(data)
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    public static ExecutionEvent start(Map<String, Object> data) {
+        return of(EventType.START, null, data);
+    }
+
+    public static ExecutionEvent nodeStart(String nodeId) {
+        return of(EventType.NODE_START, nodeId, null);
+    }
+
+    public static ExecutionEvent nodeEnd(String nodeId, Map<String, Object> data) {
+        return of(EventType.NODE_END, nodeId, data);
+    }
+
+    public static ExecutionEvent token(String source, String delta) {
+        return ExecutionEvent.builder()
+                .type(EventType.TOKEN)
+                .source(source)
+                .delta(delta)
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    public static ExecutionEvent reasoning(String source, String delta) {
+        return ExecutionEvent.builder()
+                .type(EventType.REASONING)
+                .source(source)
+                .delta(delta)
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    public static ExecutionEvent toolStart(String source, Map<String, Object> data) {
+        return of(EventType.TOOL_START, source, data);
+    }
+
+    public static ExecutionEvent toolEnd(String source, Map<String, Object> data) {
+        return of(EventType.TOOL_END, source, data);
+    }
+
+    public static ExecutionEvent handoff(String source, Map<String, Object> data) {
+        return of(EventType.HANDOFF, source, data);
+    }
+
+    public static ExecutionEvent complete(Map<String, Object> data) {
+        return of(EventType.COMPLETE, null, data);
+    }
+
+    public static ExecutionEvent error(String message) {
+        return of(EventType.ERROR, null, Map.of("error", message != null ? message : "unknown error"));
+    }
+
+    public static ExecutionEvent status(Map<String, Object> data) {
+        return of(EventType.STATUS, null, data);
+    }
+
+    /**
+     * 事件类型
+     */
+    @Getter
+    public enum EventType {
+        START("start"),
+        NODE_START("node_start"),
+        NODE_END("node_end"),
+        TOKEN("token"),
+        REASONING("reasoning"),
+        TOOL_START("tool_start"),
+        TOOL_END("tool_end"),
+        HANDOFF("handoff"),
+        COMPLETE("complete"),
+        ERROR("error"),
+        STATUS("status");
+
+        /**
+         * SSE event 名称（同时作为 JSON 序列化值）
+         */
+        @JsonValue
+        private final String code;
+
+        EventType(String code) {
+            this.code = code;
+        }
+    }
+}
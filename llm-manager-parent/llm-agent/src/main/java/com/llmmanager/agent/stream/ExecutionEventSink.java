@@ -0,0 +1,145 @@
+package com.llmmanager.agent.stream;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有界事件通道（执行线程 → SSE 订阅者）
+ *
+ * 工作流节点、Agent 运行在阻塞线程中，通过本类把事件推给响应式订阅者：
+ * - 缓冲区有界（bufferSize），不会因慢消费者无限堆积内存
+ * - 缓冲区满时 emit() 阻塞生产线程，LLM token 流随之停止拉取上游，形成端到端背压
+ * - 等待超过 emitTimeout 视为消费端异常，抛出异常中止执行
+ * - 订阅者取消（客户端断开）后，emit() 抛出 CancellationException，执行方据此尽快退出
+ * - 并行节点的多个生产线程通过 emitLock 串行写入（不自旋），等待时间同样受 emitTimeout 限制
+ *
+ * emit() 会阻塞调用线程，只能在执行线程中调用，不能在 Reactor / Netty IO 线程（如上游流的 doOnNext）中调用。
+ *
+ * 一个实例只服务一次执行，只允许一个订阅者。
+ */
+@Slf4j
+public class ExecutionEventSink {
+
+    private static final long PARK_NANOS = Duration.ofMillis(1).toNanos();
+
+    private final Sinks.Many<ExecutionEvent> sink;
+    private final long emitTimeoutNanos;
+    private final ReentrantLock emitLock = new ReentrantLock();
+    private volatile boolean cancelled;
+
+    public ExecutionEventSink(int bufferSize, Duration emitTimeout) {
+        this.sink = Sinks.many().unicast().onBackpressureBuffer(Queues.<ExecutionEvent>get(bufferSize).get());
+        this.emitTimeoutNanos = emitTimeout.toNanos();
+    }
+
+    /**
+     * 订阅端 Flux（仅允许订阅一次）
+     */
+    public Flux<ExecutionEvent> asFlux() {
+        return sink.asFlux().doOnCancel(() -> {
+            cancelled = true;
+            log.info("[ExecutionEventSink] 订阅者已取消，执行将被中止");
+        });
+    }
+
+    /**
+     * 推送事件（缓冲区满时阻塞等待）
+     *
+     * @throws CancellationException 订阅者已取消
+     * @throws IllegalStateException 等待超时（消费端过慢）
+     */
+    public void emit(ExecutionEvent event) {
+        checkCancelled();
+        long deadline = System.nanoTime() + emitTimeoutNanos;
+        lock(deadline);
+        try {
+            while (true) {
+                Sinks.EmitResult result = sink.tryEmitNext(event);
+                if (result.isSuccess()) {
+                    return;
+                }
+                switch (result) {
+                    // FAIL_NON_SERIALIZED：与 complete() / error() 并发，短暂等待后重试
+                    case FAIL_OVERFLOW, FAIL_NON_SERIALIZED -> {
+                        if (System.nanoTime() - deadline > 0) {
+                            throw new IllegalStateException("事件消费过慢，等待超时");
+                        }
+                        LockSupport.parkNanos(PARK_NANOS);
+                        checkCancelled();
+                    }
+                    case FAIL_CANCELLED, FAIL_TERMINATED -> {
+                        cancelled = true;
+                        throw new CancellationException("事件流已关闭");
+                    }
+                    default -> throw new IllegalStateException("事件推送失败: " + result);
+                }
+            }
+        } finally {
+            emitLock.unlock();
+        }
+    }
+
+    /**
+     * 获取写入锁（其它生产线程正在等待缓冲区时排队，最多等到 deadline）
+     */
+    private void lock(long deadline) {
+        try {
+            if (!emitLock.tryLock(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                throw new IllegalStateException("事件消费过慢，等待超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("推送事件时线程被中断");
+        }
+    }
+
+    /**
+     * 推送事件（订阅者已取消或超时时静默丢弃，用于收尾事件）
+     */
+    public void tryEmit(ExecutionEvent event) {
+        try {
+            emit(event);
+        } catch (RuntimeException e) {
+            log.debug("[ExecutionEventSink] 丢弃事件 {}: {}", event.getType(), e.getMessage());
+        }
+    }
+
+    public void complete() {
+        emitLock.lock();
+        try {
+            sink.tryEmitComplete();
+        } finally {
+            emitLock.unlock();
+        }
+    }
+
+    public void error(Throwable error) {
+        emitLock.lock();
+        try {
+            sink.tryEmitError(error);
+        } finally {
+            emitLock.unlock();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 订阅者已取消时抛出 CancellationException
+     */
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("客户端已断开");
+        }
+    }
+}
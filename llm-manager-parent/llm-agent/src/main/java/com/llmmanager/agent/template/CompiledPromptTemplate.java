@@ -0,0 +1,242 @@
+package com.llmmanager.agent.template;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 预编译的 {key} 占位符模板
+ *
+ * 模板只解析一次，拆成 字面量片段 + 变量槽位，按内容缓存（相同内容的模板共享同一个编译结果）；
+ * 渲染时先取出全部变量值、按总长度一次分配缓冲区，再单遍拼接，不再有正则匹配和中间字符串。
+ *
+ * 占位符语法与 HumanReviewNodeExecutor 原有的 {@code \{(\w+)}} 一致。
+ * 只由 {key} 占位符组成的模板与 Spring AI PromptTemplate（StringTemplate）渲染结果相同，
+ * 通过 {@link #isPlain()} 判断；包含 StringTemplate 其它语法（属性访问、条件、转义等）的模板需走 PromptTemplate。
+ */
+public final class CompiledPromptTemplate {
+
+    /**
+     * 缓存的模板数量上限（超过后清空重建，模板通常来自有限的配置）
+     */
+    private static final int MAX_CACHED_TEMPLATES = 2048;
+
+    /**
+     * 超过该长度的模板不缓存（一次性的大文本）
+     */
+    private static final int MAX_CACHED_TEMPLATE_LENGTH = 64 * 1024;
+
+    /**
+     * StringTemplate 保留字 / 内置函数（作为占位符名时语义与普通变量不同）
+     */
+    private static final Set<String> ST_RESERVED = Set.of(
+            "true", "false", "import", "default", "key", "group", "implements", "first", "last", "rest",
+            "trunc", "strip", "trim", "length", "strlen", "reverse", "if", "else", "elseif", "endif",
+            "delimiters", "super", "i", "i0", "it");
+
+    private static final Map<String, CompiledPromptTemplate> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 缺失变量的处理方式
+     */
+    public enum MissingVariable {
+        /**
+         * 抛出 IllegalStateException（与 PromptTemplate 一致）
+         */
+        FAIL,
+        /**
+         * 保留原占位符 {key}
+         */
+        KEEP_PLACEHOLDER,
+        /**
+         * 替换为空字符串
+         */
+        EMPTY
+    }
+
+    private final String[] literals;
+    private final String[] variables;
+    private final int literalLength;
+    private final boolean plain;
+
+    private CompiledPromptTemplate(String[] literals, String[] variables, boolean plain) {
+        this.literals = literals;
+        this.variables = variables;
+        this.plain = plain;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * 获取模板的编译结果（按内容缓存）
+     */
+    public static CompiledPromptTemplate of(String template) {
+        Objects.requireNonNull(template, "template");
+        if (template.length() > MAX_CACHED_TEMPLATE_LENGTH) {
+            return compile(template);
+        }
+        CompiledPromptTemplate compiled = CACHE.get(template);
+        if (compiled == null) {
+            if (CACHE.size() >= MAX_CACHED_TEMPLATES) {
+                CACHE.clear();
+            }
+            compiled = CACHE.computeIfAbsent(template, CompiledPromptTemplate::compile);
+        }
+        return compiled;
+    }
+
+    /**
+     * 由字面量和变量名直接构造（literals.size() == variables.size() + 1），用于按配置生成的模板
+     */
+    public static CompiledPromptTemplate of(List<String> literals, List<String> variables) {
+        if (literals.size() != variables.size() + 1) {
+            throw new IllegalArgumentException("字面量数量必须等于变量数量 + 1");
+        }
+        return new CompiledPromptTemplate(literals.toArray(new String[0]), variables.toArray(new String[0]), false);
+    }
+
+    /**
+     * 解析模板（不使用缓存）
+     */
+    public static CompiledPromptTemplate compile(String template) {
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        boolean plain = template.indexOf('\\') < 0;
+
+        int literalStart = 0;
+        int length = template.length();
+        for (int i = 0; i < length; i++) {
+            char c = template.charAt(i);
+            if (c == '}') {
+                plain = false;
+                continue;
+            }
+            if (c != '{') {
+                continue;
+            }
+            int end = i + 1;
+            while (end < length && isWordChar(template.charAt(end))) {
+                end++;
+            }
+            if (end == i + 1 || end >= length || template.charAt(end) != '}') {
+                // 不是 {key} 形式，按字面量处理
+                plain = false;
+                continue;
+            }
+            String name = template.substring(i + 1, end);
+            if (Character.isDigit(name.charAt(0)) || ST_RESERVED.contains(name)) {
+                plain = false;
+            }
+            literals.add(template.substring(literalStart, i));
+            variables.add(name);
+            literalStart = end + 1;
+            i = end;
+        }
+        literals.add(template.substring(literalStart));
+        return new CompiledPromptTemplate(literals.toArray(new String[0]), variables.toArray(new String[0]), plain);
+    }
+
+    /**
+     * 当前缓存的模板数量
+     */
+    public static int cacheSize() {
+        return CACHE.size();
+    }
+
+    /**
+     * 模板只包含 {key} 占位符（渲染结果与 PromptTemplate 相同）
+     */
+    public boolean isPlain() {
+        return plain;
+    }
+
+    /**
+     * 模板中的变量名（按出现顺序，可能重复）
+     */
+    public List<String> getVariables() {
+        return List.of(variables);
+    }
+
+    /**
+     * 使用 Map 渲染，缺失变量时抛出异常，值为 null 时渲染为空字符串
+     */
+    public String render(Map<String, ?> values) {
+        Map<String, ?> source = values != null ? values : Map.of();
+        return render(key -> source.containsKey(key) ? Objects.requireNonNullElse(source.get(key), "") : null,
+                MissingVariable.FAIL);
+    }
+
+    /**
+     * 渲染模板
+     *
+     * @param resolver 变量取值，返回 null 表示变量缺失
+     * @param missing  缺失变量的处理方式
+     */
+    public String render(Function<String, ?> resolver, MissingVariable missing) {
+        if (variables.length == 0) {
+            return literals[0];
+        }
+
+        String[] resolved = new String[variables.length];
+        int length = literalLength;
+        List<String> missingNames = null;
+        for (int i = 0; i < variables.length; i++) {
+            Object value = resolver.apply(variables[i]);
+            String text;
+            if (value != null) {
+                text = value.toString();
+            } else if (missing == MissingVariable.KEEP_PLACEHOLDER) {
+                text = "{" + variables[i] + "}";
+            } else if (missing == MissingVariable.EMPTY) {
+                text = "";
+            } else {
+                if (missingNames == null) {
+                    missingNames = new ArrayList<>();
+                }
+                missingNames.add(variables[i]);
+                continue;
+            }
+            resolved[i] = text;
+            length += text.length();
+        }
+        if (missingNames != null) {
+            throw new IllegalStateException("Not all variables were replaced in the template. Missing variable names are: "
+                    + missingNames);
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < variables.length; i++) {
+            sb.append(literals[i]).append(resolved[i]);
+        }
+        return sb.append(literals[variables.length]).toString();
+    }
+
+    /**
+     * 变量值是否都能按 toString() 渲染（与 StringTemplate 渲染结果相同）
+     *
+     * 集合、数组、Map 在 StringTemplate 中有特殊的渲染规则，需要走 PromptTemplate。
+     */
+    public static boolean hasOnlyScalarValues(Map<String, ?> values) {
+        if (values == null) {
+            return true;
+        }
+        for (Object value : values.values()) {
+            if (value instanceof Iterable || value instanceof Map
+                    || (value != null && value.getClass().isArray())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
@@ -11,8 +11,6 @@ import javax.annotation.Resource;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.net.IDN;
-import java.net.Inet4Address;
-import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -180,7 +178,7 @@ public class HttpTools {
         try {
             InetAddress[] addresses = InetAddress.getAllByName(host);
             for (InetAddress address : addresses) {
-                if (address != null && isPrivateAddress(address)) {
+                if (address != null && NetworkAddressGuard.isPrivateAddress(address)) {
                     return "禁止访问私网/本机地址: " + host + " -> " + address.getHostAddress();
                 }
             }
@@ -190,33 +188,6 @@ public class HttpTools {
         }
     }
 
-    private static boolean isPrivateAddress(InetAddress address) {
-        if (address.isAnyLocalAddress()
-                || address.isLoopbackAddress()
-                || address.isLinkLocalAddress()
-                || address.isSiteLocalAddress()) {
-            return true;
-        }
-
-        byte[] bytes = address.getAddress();
-        if (address instanceof Inet4Address && bytes != null && bytes.length == 4) {
-            int first = bytes[0] & 0xFF;
-            int second = bytes[1] & 0xFF;
-            if (first == 100 && second >= 64 && second <= 127) {
-                return true; // 100.64.0.0/10
-            }
-        }
-
-        if (address instanceof Inet6Address && bytes != null && bytes.length == 16) {
-            int first = bytes[0] & 0xFF;
-            if ((first & 0xFE) == 0xFC) {
-                return true; // fc00::/7
-            }
-        }
-
-        return false;
-    }
-
     private static boolean isTextLikeContentType(String contentType) {
         if (!StringUtils.hasText(contentType)) {
             return true;
@@ -0,0 +1,84 @@
+package com.llmmanager.agent.tools;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * 内网地址校验（SSRF 防护）
+ *
+ * 访问用户提供的 URL（HTTP 工具、URL 文档导入、异步任务回调）前解析主机名，
+ * 任一解析结果为本机、私网、链路本地、运营商级 NAT 或组播地址时拒绝访问。
+ * 跟随重定向的调用方需要对每一跳重新校验；连接应使用校验过的地址（PinnedHttpClient），避免 DNS 重绑定。
+ */
+public final class NetworkAddressGuard {
+
+    private NetworkAddressGuard() {
+    }
+
+    /**
+     * 校验主机名的所有解析结果均为公网地址
+     *
+     * 只做校验，实际连接时 HTTP 客户端会重新解析；需要防 DNS 重绑定时改用 resolve 的结果直接连接（见 PinnedHttpClient）。
+     *
+     * @throws IllegalArgumentException 无法解析或包含内网地址
+     */
+    public static void checkPublicHost(String host) {
+        resolve(host, false);
+    }
+
+    /**
+     * 解析主机名，allowPrivateNetwork 为 false 时要求所有解析结果均为公网地址
+     *
+     * @return 解析结果（至少一个）
+     * @throws IllegalArgumentException 无法解析或包含内网地址
+     */
+    public static InetAddress[] resolve(String host, boolean allowPrivateNetwork) {
+        InetAddress[] addresses;
+        try {
+            addresses = InetAddress.getAllByName(host);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("域名无法解析: " + host);
+        }
+        if (!allowPrivateNetwork) {
+            for (InetAddress address : addresses) {
+                if (isPrivateAddress(address)) {
+                    throw new IllegalArgumentException("禁止访问私网/本机地址: " + host + " -> " + address.getHostAddress());
+                }
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * 是否为本机、私网、链路本地、运营商级 NAT（100.64.0.0/10）、ULA（fc00::/7）或组播地址
+     */
+    public static boolean isPrivateAddress(InetAddress address) {
+        if (address.isAnyLocalAddress()
+                || address.isLoopbackAddress()
+                || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress()
+                || address.isMulticastAddress()) {
+            return true;
+        }
+
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet4Address && bytes != null && bytes.length == 4) {
+            int first = bytes[0] & 0xFF;
+            int second = bytes[1] & 0xFF;
+            if (first == 100 && second >= 64 && second <= 127) {
+                return true; // 100.64.0.0/10
+            }
+        }
+
+        if (address instanceof Inet6Address && bytes != null && bytes.length == 16) {
+            int first = bytes[0] & 0xFF;
+            if ((first & 0xFE) == 0xFC) {
+                return true; // fc00::/7
+            }
+        }
+
+        return false;
+    }
+}
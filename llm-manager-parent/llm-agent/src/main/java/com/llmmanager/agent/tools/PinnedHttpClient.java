@@ -0,0 +1,354 @@
+package com.llmmanager.agent.tools;
+
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * 固定目标地址的 HTTP/1.1 客户端（防 DNS 重绑定）
+ *
+ * java.net.http.HttpClient 在连接时会重新解析主机名，校验时解析到公网地址、连接时却解析到内网地址的
+ * DNS 重绑定无法防住。本类直接连接调用方已校验过的 InetAddress，由自己写入 Host 头；
+ * HTTPS 时 SNI 和证书主机名校验仍使用 URL 中的主机名，因此不影响虚拟主机和证书校验。
+ *
+ * 只实现访问用户提供 URL 所需的最小子集：每次请求一个连接（Connection: close），
+ * 不跟随重定向，不请求压缩；响应体支持 Content-Length、chunked 和读到连接关闭三种形式。
+ */
+public final class PinnedHttpClient {
+
+    /**
+     * 响应头总大小上限
+     */
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+
+    private PinnedHttpClient() {
+    }
+
+    /**
+     * 响应（调用方负责关闭，关闭时断开连接）
+     *
+     * @param statusCode HTTP 状态码
+     * @param headers    响应头（名称不区分大小写，同名取最后一个）
+     * @param body       响应体
+     */
+    public record Response(int statusCode, Map<String, String> headers, InputStream body) implements Closeable {
+
+        public Optional<String> header(String name) {
+            return Optional.ofNullable(headers.get(name));
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+
+    /**
+     * 解析主机名并校验后发送请求
+     *
+     * @param allowPrivateNetwork 为 false 时所有解析结果都必须是公网地址（见 NetworkAddressGuard）
+     * @throws IllegalArgumentException 无法解析或包含内网地址
+     */
+    public static Response send(URI uri, boolean allowPrivateNetwork, String method, Map<String, String> headers,
+                                byte[] body, int connectTimeoutMs, int readTimeoutMs) throws IOException {
+        InetAddress address = NetworkAddressGuard.resolve(uri.getHost(), allowPrivateNetwork)[0];
+        return send(uri, address, method, headers, body, connectTimeoutMs, readTimeoutMs);
+    }
+
+    /**
+     * 连接指定地址发送请求
+     *
+     * @param uri     请求地址（Host 头、SNI 和证书校验使用其中的主机名）
+     * @param address 实际连接的地址（调用方已校验）
+     * @param body    请求体，null 表示没有请求体
+     */
+    public static Response send(URI uri, InetAddress address, String method, Map<String, String> headers,
+                                byte[] body, int connectTimeoutMs, int readTimeoutMs) throws IOException {
+        String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase(Locale.ROOT) : "";
+        boolean https = "https".equals(scheme);
+        if (!https && !"http".equals(scheme)) {
+            throw new IOException("仅支持 http/https 地址: " + uri);
+        }
+        int port = uri.getPort() > 0 ? uri.getPort() : (https ? 443 : 80);
+
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(address, port), connectTimeoutMs);
+            socket.setSoTimeout(readTimeoutMs);
+            if (https) {
+                socket = startTls(socket, uri.getHost(), port);
+            }
+
+            OutputStream out = socket.getOutputStream();
+            out.write(requestHead(uri, port, https, method, headers, body).getBytes(StandardCharsets.ISO_8859_1));
+            if (body != null) {
+                out.write(body);
+            }
+            out.flush();
+
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            int statusCode;
+            Map<String, String> responseHeaders;
+            do {
+                // 跳过 1xx 中间响应
+                statusCode = parseStatus(readLine(in, new int[]{0}), uri);
+                responseHeaders = readHeaders(in);
+            } while (statusCode >= 100 && statusCode < 200);
+
+            InputStream responseBody = responseBody(in, method, statusCode, responseHeaders);
+            Socket connection = socket;
+            return new Response(statusCode, Collections.unmodifiableMap(responseHeaders), new FilterInputStream(responseBody) {
+                @Override
+                public void close() throws IOException {
+                    connection.close();
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 在已连接的套接字上建立 TLS，SNI 和证书主机名校验使用原始主机名
+     */
+    private static Socket startTls(Socket socket, String host, int port) throws IOException {
+        String peerHost = stripBrackets(host);
+        SSLSocket sslSocket = (SSLSocket) ((SSLSocketFactory) SSLSocketFactory.getDefault())
+                .createSocket(socket, peerHost, port, true);
+        SSLParameters parameters = sslSocket.getSSLParameters();
+        parameters.setEndpointIdentificationAlgorithm("HTTPS");
+        if (!isIpLiteral(peerHost)) {
+            parameters.setServerNames(List.of(new SNIHostName(peerHost)));
+        }
+        sslSocket.setSSLParameters(parameters);
+        sslSocket.startHandshake();
+        return sslSocket;
+    }
+
+    private static String requestHead(URI uri, int port, boolean https, String method,
+                                      Map<String, String> headers, byte[] body) {
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        if (uri.getRawQuery() != null) {
+            path += "?" + uri.getRawQuery();
+        }
+        boolean defaultPort = port == (https ? 443 : 80);
+
+        StringBuilder head = new StringBuilder();
+        head.append(method).append(' ').append(path).append(" HTTP/1.1\r\n");
+        head.append("Host: ").append(uri.getHost()).append(defaultPort ? "" : ":" + port).append("\r\n");
+        if (headers != null) {
+            headers.forEach((name, value) -> {
+                if (name.indexOf('\r') >= 0 || name.indexOf('\n') >= 0 || value.indexOf('\r') >= 0 || value.indexOf('\n') >= 0) {
+                    throw new IllegalArgumentException("请求头包含换行符: " + name);
+                }
+                head.append(name).append(": ").append(value).append("\r\n");
+            });
+        }
+        if (body != null) {
+            head.append("Content-Length: ").append(body.length).append("\r\n");
+        }
+        head.append("Connection: close\r\n\r\n");
+        return head.toString();
+    }
+
+    private static int parseStatus(String statusLine, URI uri) throws IOException {
+        if (statusLine == null) {
+            throw new IOException("连接在响应前关闭: " + uri);
+        }
+        String[] parts = statusLine.split(" ", 3);
+        if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+            throw new IOException("无效的 HTTP 响应: " + statusLine);
+        }
+        try {
+            return Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            throw new IOException("无效的 HTTP 状态码: " + statusLine);
+        }
+    }
+
+    private static Map<String, String> readHeaders(InputStream in) throws IOException {
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        int[] consumed = {0};
+        String line;
+        while ((line = readLine(in, consumed)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+            }
+        }
+        return headers;
+    }
+
+    private static InputStream responseBody(InputStream in, String method, int statusCode,
+                                            Map<String, String> headers) throws IOException {
+        if ("HEAD".equalsIgnoreCase(method) || statusCode == 204 || statusCode == 304) {
+            return InputStream.nullInputStream();
+        }
+        String transferEncoding = headers.get("Transfer-Encoding");
+        if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked")) {
+            return new ChunkedInputStream(in);
+        }
+        String contentLength = headers.get("Content-Length");
+        if (contentLength != null) {
+            try {
+                return new BoundedInputStream(in, Long.parseLong(contentLength));
+            } catch (NumberFormatException e) {
+                throw new IOException("无效的 Content-Length: " + contentLength);
+            }
+        }
+        // 既没有 chunked 也没有 Content-Length：读到连接关闭
+        return in;
+    }
+
+    /**
+     * 读取一行（ISO-8859-1，去掉 CRLF），流结束时返回 null
+     *
+     * @param consumed 本次响应头已读字节数，超过 MAX_HEADER_BYTES 时拒绝
+     */
+    private static String readLine(InputStream in, int[] consumed) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (++consumed[0] > MAX_HEADER_BYTES) {
+                throw new IOException("响应头超过 " + MAX_HEADER_BYTES + " 字节");
+            }
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        return line.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    private static String stripBrackets(String host) {
+        return host.startsWith("[") && host.endsWith("]") ? host.substring(1, host.length() - 1) : host;
+    }
+
+    private static boolean isIpLiteral(String host) {
+        return host.indexOf(':') >= 0 || host.chars().allMatch(c -> c == '.' || (c >= '0' && c <= '9'));
+    }
+
+    /**
+     * 按 Content-Length 截断的响应体
+     */
+    private static class BoundedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b == -1) {
+                throw new IOException("响应体不完整，还差 " + remaining + " 字节");
+            }
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read == -1) {
+                throw new IOException("响应体不完整，还差 " + remaining + " 字节");
+            }
+            remaining -= read;
+            return read;
+        }
+    }
+
+    /**
+     * chunked 编码的响应体
+     */
+    private static class ChunkedInputStream extends FilterInputStream {
+
+        private long chunkRemaining;
+        private boolean finished;
+
+        ChunkedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (finished) {
+                return -1;
+            }
+            if (chunkRemaining == 0 && !nextChunk()) {
+                return -1;
+            }
+            int read = in.read(buffer, offset, (int) Math.min(length, chunkRemaining));
+            if (read == -1) {
+                throw new IOException("chunked 响应体不完整");
+            }
+            chunkRemaining -= read;
+            if (chunkRemaining == 0) {
+                // 块数据后的 CRLF
+                readLine(in, new int[]{0});
+            }
+            return read;
+        }
+
+        private boolean nextChunk() throws IOException {
+            String sizeLine = readLine(in, new int[]{0});
+            if (sizeLine == null) {
+                throw new IOException("chunked 响应体不完整");
+            }
+            int extension = sizeLine.indexOf(';');
+            String size = (extension >= 0 ? sizeLine.substring(0, extension) : sizeLine).trim();
+            try {
+                chunkRemaining = Long.parseLong(size, 16);
+            } catch (NumberFormatException e) {
+                throw new IOException("无效的 chunk 长度: " + sizeLine);
+            }
+            if (chunkRemaining == 0) {
+                // 跳过 trailer
+                readHeaders(in);
+                finished = true;
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.llmmanager.agent.agent;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmmanager.agent.advisor.AdvisorManager;
+import com.llmmanager.agent.advisor.MetricsAdvisor;
+import com.llmmanager.agent.cache.CacheProperties;
+import com.llmmanager.agent.cache.CacheRegionManager;
+import com.llmmanager.agent.config.CoalescingProperties;
+import com.llmmanager.agent.config.FastPathProperties;
+import com.llmmanager.agent.dto.ChatRequest;
+import com.llmmanager.agent.routing.RequestCoalescer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 单轮对话快速路径基准（手动运行，不访问真实模型）
+ *
+ * 运行参数（-D）：
+ * - iterations：每轮请求数，默认 50000
+ * - rounds：测量轮数（取中位数），默认 5
+ *
+ * 上游替换为立即返回的 ChatModel，AdvisorManager 注册 MetricsAdvisor（与生产开启指标时相同），
+ * 测得的即服务端单次请求开销（µs/op）：
+ * - full：llm.fast-path.enabled=false，每次请求构建 ChatClient 和 Advisor 链（原路径）
+ * - lean：llm.fast-path.enabled=true，复用缓存的只带全局 Advisor 的 ChatClient
+ * - direct：直接调用 ChatModel（不经过任何 Advisor，仅作下限参考，不是可选路径）
+ * 输出各路径相对 full 的开销变化。回答不一致、或快速路径请求没有计入 MetricsAdvisor 的 llm.chat.total 时直接失败。
+ * 最后打印 llm.chat.path 和 llm.chat.total 指标，确认请求走了预期的路径。
+ */
+public class LeanChatPathBenchmark {
+
+    private static volatile int sink;
+
+    public static void main(String[] args) {
+        int iterations = Integer.getInteger("iterations", 50_000);
+        int rounds = Integer.getInteger("rounds", 5);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CacheRegionManager cacheRegionManager = new CacheRegionManager(new CacheProperties(), null, null,
+                new ObjectMapper(), registry);
+        FastPathProperties fastPath = new FastPathProperties();
+
+        // 请求合并关闭，只比较 ChatClient 构建开销
+        CoalescingProperties coalescing = new CoalescingProperties();
+        coalescing.setEnabled(false);
+        RequestCoalescer coalescer = new RequestCoalescer();
+        ReflectionTestUtils.setField(coalescer, "properties", coalescing);
+        ReflectionTestUtils.setField(coalescer, "meterRegistry", registry);
+        coalescer.init();
+
+        MetricsAdvisor metricsAdvisor = new MetricsAdvisor();
+        ReflectionTestUtils.setField(metricsAdvisor, "meterRegistry", registry);
+        AdvisorManager advisorManager = new AdvisorManager();
+        advisorManager.registerAdvisor(metricsAdvisor);
+
+        LlmChatAgent agent = new LlmChatAgent();
+        ReflectionTestUtils.setField(agent, "advisorManager", advisorManager);
+        ReflectionTestUtils.setField(agent, "requestCoalescer", coalescer);
+        ReflectionTestUtils.setField(agent, "cacheRegionManager", cacheRegionManager);
+        ReflectionTestUtils.setField(agent, "fastPathProperties", fastPath);
+        ReflectionTestUtils.setField(agent, "meterRegistry", registry);
+        agent.init();
+
+        ChatRequest request = ChatRequest.builder()
+                .channelId(1L).baseUrl("http://localhost").apiKey("sk-test")
+                .modelIdentifier("gpt-test").temperature(0.7)
+                .systemPrompt("你是一个简洁的助手").userMessage("用一句话介绍 LLM Manager")
+                .build();
+        // 预置上游模型（与 LlmChatAgent.buildCacheKey 相同的键）
+        InstantChatModel chatModel = new InstantChatModel();
+        cacheRegionManager.localRegion("chat-model.agent").put("1_sk-test_http://localhost", chatModel);
+
+        // 下限参考：直接调用 ChatModel，不经过 ChatClient 和任何 Advisor
+        Prompt prompt = new Prompt(List.of(new SystemMessage(request.getSystemPrompt()),
+                new UserMessage(request.getUserMessage())));
+        Supplier<String> direct = () -> chatModel.call(prompt).getResult().getOutput().getText();
+        Supplier<String> viaAgent = () -> agent.chat(request);
+
+        fastPath.setEnabled(false);
+        String full = agent.chat(request);
+        fastPath.setEnabled(true);
+        double totalBefore = chatTotal(registry);
+        String lean = agent.chat(request);
+        if (!full.equals(lean) || !full.equals(direct.get())) {
+            throw new IllegalStateException("快速路径回答不一致: " + lean);
+        }
+        if (chatTotal(registry) != totalBefore + 1) {
+            throw new IllegalStateException("快速路径请求未经过 MetricsAdvisor");
+        }
+
+        System.out.printf("iterations=%d, rounds=%d%n", iterations, rounds);
+        double fullNanos = 0;
+        for (String mode : List.of("full", "lean", "direct")) {
+            fastPath.setEnabled("lean".equals(mode));
+            Supplier<String> call = "direct".equals(mode) ? direct : viaAgent;
+            measure(call, iterations); // 预热
+            long[] samples = new long[rounds];
+            for (int r = 0; r < rounds; r++) {
+                samples[r] = measure(call, iterations);
+            }
+            Arrays.sort(samples);
+            double nanosPerOp = (double) samples[rounds / 2] / iterations;
+            if ("full".equals(mode)) {
+                fullNanos = nanosPerOp;
+                System.out.printf("%-6s %8.2f µs/op%n", mode, nanosPerOp / 1000.0);
+            } else {
+                System.out.printf("%-6s %8.2f µs/op  (%+.1f%% vs full)%n", mode, nanosPerOp / 1000.0,
+                        (nanosPerOp - fullNanos) * 100.0 / fullNanos);
+            }
+        }
+
+        registry.getMeters().stream()
+                .filter(meter -> meter.getId().getName().equals("llm.chat.path")
+                        || meter.getId().getName().equals("llm.chat.total"))
+                .forEach(meter -> System.out.println(meter.getId().getName() + meter.getId().getTags()
+                        + " = " + meter.measure().iterator().next().getValue()));
+    }
+
+    private static double chatTotal(SimpleMeterRegistry registry) {
+        return registry.find("llm.chat.total").counters().stream().mapToDouble(counter -> counter.count()).sum();
+    }
+
+    private static long measure(Supplier<String> call, int iterations) {
+        long start = System.nanoTime();
+        int acc = 0;
+        for (int i = 0; i < iterations; i++) {
+            acc += call.get().length();
+        }
+        sink = acc;
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * 立即返回固定回答的上游模型
+     */
+    static class InstantChatModel implements ChatModel {
+
+        private final ChatResponse response = new ChatResponse(List.of(new Generation(new AssistantMessage("ok"))));
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            return response;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.llmmanager.agent.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 两级缓存与跨节点失效测试（内存模拟 Redis）
+ *
+ * 两个 CacheRegionManager（node-a / node-b）共享同一个内存版共享层和广播总线，模拟两节点部署：
+ * 1. node-a 回源加载后，node-b 从共享层命中，不再回源
+ * 2. node-b 失效后，node-a 收到广播清理本地缓存，重新加载到新值
+ * 3. 加载期间发生失效（模拟“读到旧值后数据被修改”），旧值不会回填本地和共享层
+ * 4. 按前缀失效（渠道变更）作用到两个节点的本地区域
+ * 5. 本地区域在 compute 之外加载：loader 内可访问同一区域，加载期间失效不回填，并发未命中只加载一次
+ *
+ * 预期：每一步输出 OK，最后打印 llm.cache.* 指标
+ */
+public class TwoTierCacheHarness {
+
+    public static void main(String[] args) {
+        InMemoryRemoteStore remote = new InMemoryRemoteStore();
+        InMemoryBus bus = new InMemoryBus();
+        ObjectMapper objectMapper = new ObjectMapper();
+        MeterRegistry registryA = new SimpleMeterRegistry();
+        MeterRegistry registryB = new SimpleMeterRegistry();
+        CacheRegionManager nodeA = new CacheRegionManager(properties("node-a"), remote, bus, objectMapper, registryA);
+        CacheRegionManager nodeB = new CacheRegionManager(properties("node-b"), remote, bus, objectMapper, registryB);
+
+        // 模拟数据库
+        Map<String, String> database = new ConcurrentHashMap<>(Map.of("k1", "v1"));
+        AtomicInteger loads = new AtomicInteger();
+
+        CacheRegion<String> regionA = nodeA.sharedRegion("api-key", String.class);
+        CacheRegion<String> regionB = nodeB.sharedRegion("api-key", String.class);
+
+        System.out.println("=== 两级缓存测试 ===");
+
+        // 1. 回源 + 共享层命中
+        String first = regionA.get("k1", k -> { loads.incrementAndGet(); return database.get(k); });
+        String second = regionB.get("k1", k -> { loads.incrementAndGet(); return database.get(k); });
+        check("1. node-a 回源、node-b 共享层命中", "v1".equals(first) && "v1".equals(second) && loads.get() == 1);
+
+        // 2. 跨节点失效
+        database.put("k1", "v2");
+        regionB.invalidate("k1");
+        String afterInvalidate = regionA.get("k1", k -> { loads.incrementAndGet(); return database.get(k); });
+        check("2. node-b 失效后 node-a 读到新值", "v2".equals(afterInvalidate) && loads.get() == 2);
+
+        // 3. 加载期间失效：旧值不回填
+        String stale = regionA.get("k2", k -> {
+            String value = "old";
+            // 读到旧值后，另一个节点修改数据并失效
+            database.put("k2", "new");
+            regionB.invalidate("k2");
+            return value;
+        });
+        String fresh = regionA.get("k2", k -> database.get(k));
+        String freshOnB = regionB.get("k2");
+        check("3. 加载期间失效的旧值被拒绝回填", "old".equals(stale) && "new".equals(fresh) && "new".equals(freshOnB));
+
+        // 4. 本地区域按前缀失效
+        CacheRegion<Object> modelsA = nodeA.localRegion("chat-model.agent");
+        CacheRegion<Object> modelsB = nodeB.localRegion("chat-model.agent");
+        modelsA.put("7_key_url", new Object());
+        modelsA.put("8_key_url", new Object());
+        modelsB.put("7_key_url", new Object());
+        modelsA.invalidatePrefix("7_");
+        check("4. 渠道前缀失效作用到两个节点",
+                modelsA.get("7_key_url") == null && modelsA.get("8_key_url") != null && modelsB.get("7_key_url") == null);
+
+        // 5. 本地区域：加载在 compute 之外（loader 内可访问同一区域的其它键），加载期间失效不回填，并发未命中只加载一次
+        CacheRegion<String> poolsA = nodeA.localRegion("chat-model.agent.failover");
+        String nested = poolsA.get("pool", k -> "pool[" + poolsA.get("member", m -> "member") + "]");
+        String staleLocal = poolsA.get("k3", k -> {
+            poolsA.invalidate("k3");
+            return "old";
+        });
+        AtomicInteger localLoads = new AtomicInteger();
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> poolsA.get("k4", k -> {
+                localLoads.incrementAndGet();
+                sleep(100);
+                return "v4";
+            }));
+            threads.add(thread);
+            thread.start();
+        }
+        threads.forEach(TwoTierCacheHarness::join);
+        check("5. 本地区域嵌套加载、失效不回填、并发只加载一次",
+                "pool[member]".equals(nested) && "old".equals(staleLocal) && poolsA.get("k3") == null
+                        && localLoads.get() == 1 && "v4".equals(poolsA.get("k4")));
+
+        System.out.println("6. 指标（node-a）:");
+        registryA.getMeters().stream()
+                .filter(meter -> meter.getId().getName().startsWith("llm.cache"))
+                .forEach(meter -> System.out.println("   " + meter.getId().getName() + meter.getId().getTags()
+                        + " = " + meter.measure().iterator().next().getValue()));
+    }
+
+    private static CacheProperties properties(String nodeId) {
+        CacheProperties properties = new CacheProperties();
+        properties.setRedisEnabled(true);
+        properties.setNodeId(nodeId);
+        return properties;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println(name + ": " + (ok ? "OK" : "FAILED"));
+    }
+
+    /**
+     * 内存版共享层（与 RedisRemoteCacheStore 相同的版本 / 纪元语义）
+     */
+    static class InMemoryRemoteStore implements RemoteCacheStore {
+
+        private final Map<String, Long> versions = new ConcurrentHashMap<>();
+        private final Map<String, Long> epochs = new ConcurrentHashMap<>();
+        private final Map<String, RemoteRead> data = new ConcurrentHashMap<>();
+
+        @Override
+        public synchronized RemoteRead get(String region, String key) {
+            long version = versions.getOrDefault(region + ":" + key, 0L);
+            long epoch = epochs.getOrDefault(region, 0L);
+            RemoteRead stored = data.get(region + ":" + key);
+            boolean valid = stored != null && stored.version() == version && stored.epoch() == epoch;
+            return new RemoteRead(valid ? stored.payload() : null, version, epoch);
+        }
+
+        @Override
+        public synchronized boolean putIfVersion(String region, String key, String payload, RemoteRead readVersion,
+                                                 long ttlMillis) {
+            if (versions.getOrDefault(region + ":" + key, 0L) != readVersion.version()
+                    || epochs.getOrDefault(region, 0L) != readVersion.epoch()) {
+                return false;
+            }
+            data.put(region + ":" + key, new RemoteRead(payload, readVersion.version(), readVersion.epoch()));
+            return true;
+        }
+
+        @Override
+        public synchronized void invalidate(String region, String key) {
+            versions.merge(region + ":" + key, 1L, Long::sum);
+            data.remove(region + ":" + key);
+        }
+
+        @Override
+        public synchronized void invalidateAll(String region) {
+            epochs.merge(region, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * 内存版广播（同步投递给所有订阅者，包括发出节点自己）
+     */
+    static class InMemoryBus implements CacheInvalidationBus {
+
+        private final List<Consumer<CacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void publish(CacheInvalidation invalidation) {
+            listeners.forEach(listener -> listener.accept(invalidation));
+        }
+
+        @Override
+        public void subscribe(Consumer<CacheInvalidation> listener) {
+            listeners.add(listener);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.llmmanager.agent.concurrent;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmmanager.agent.advisor.AdvisorManager;
+import com.llmmanager.agent.agent.LlmChatAgent;
+import com.llmmanager.agent.cache.CacheProperties;
+import com.llmmanager.agent.cache.CacheRegionManager;
+import com.llmmanager.agent.config.CoalescingProperties;
+import com.llmmanager.agent.config.FastPathProperties;
+import com.llmmanager.agent.dto.ChatRequest;
+import com.llmmanager.agent.routing.RequestCoalescer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 虚拟线程负载测试（手动运行，不访问真实模型，需要 JDK 21+ 才能测 virtual 模式）
+ *
+ * 模拟大量长时间运行的智能体请求：每个请求经 LlmChatAgent 串行调用模型 steps 次，
+ * 上游模型每次阻塞 latencyMs（等价于等待 HTTP 响应），请求全部同时提交。
+ *
+ * 运行参数（-D）：
+ * - mode：virtual（每请求一个虚拟线程）/ platform（固定大小的平台线程池，相当于 Tomcat 默认 200 线程），默认 virtual
+ * - concurrency：并发请求数，默认 5000
+ * - steps：每个请求的模型调用次数，默认 3
+ * - latencyMs：每次模型调用的阻塞时间，默认 2000
+ * - platformThreads：platform 模式的线程数，默认 200
+ * - pinned：为 true 时模型调用在 synchronized 块内阻塞（每次调用各自的锁，无竞争，只模拟钉住），默认 false
+ *
+ * 建议参数：-Xmx256m；pinned=true 时加 -Djdk.tracePinnedThreads=short 查看钉住位置。
+ *
+ * 预期（concurrency=5000, steps=3, latencyMs=2000）：
+ * - virtual：总耗时约 6 秒（steps × latencyMs），峰值平台线程数只有几十，256MB 堆内完成
+ * - platform：总耗时约 25 × 6 = 150 秒（并发被线程池限制为 200）
+ * - virtual + pinned：虚拟线程被钉在载体线程上，同时在途的调用数退化为 CPU 核数，用于验证钉住诊断
+ */
+public class VirtualThreadLoadHarness {
+
+    public static void main(String[] args) throws Exception {
+        String mode = System.getProperty("mode", "virtual");
+        int concurrency = Integer.getInteger("concurrency", 5000);
+        int steps = Integer.getInteger("steps", 3);
+        long latencyMs = Long.getLong("latencyMs", 2000L);
+        int platformThreads = Integer.getInteger("platformThreads", 200);
+        boolean pinned = Boolean.getBoolean("pinned");
+
+        if ("virtual".equals(mode)) {
+            if (!VirtualThreads.isSupported()) {
+                System.out.println("当前 JDK " + Runtime.version().feature() + " 不支持虚拟线程，请使用 JDK 21+ 运行或 -Dmode=platform");
+                return;
+            }
+            VirtualThreads.enable();
+        }
+
+        LlmChatAgent agent = createAgent(new BlockingChatModel(latencyMs, pinned));
+        ExecutorService executor = "virtual".equals(mode)
+                ? VirtualThreads.newTaskExecutor("load-")
+                : Executors.newFixedThreadPool(platformThreads);
+
+        System.out.printf("mode=%s, concurrency=%d, steps=%d, latencyMs=%d, pinned=%s, maxHeap=%dMB%n",
+                mode, concurrency, steps, latencyMs, pinned, Runtime.getRuntime().maxMemory() / 1024 / 1024);
+
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            int requestIndex = i;
+            futures.add(executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int step = 0; step < steps; step++) {
+                        agent.chat(request("request-" + requestIndex + " step-" + step));
+                    }
+                    completed.incrementAndGet();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedMs = (System.nanoTime() - startTime) / 1_000_000;
+        executor.shutdown();
+
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("completed=%d, failed=%d, elapsed=%dms, ideal=%dms%n",
+                completed.get(), failed.get(), elapsedMs, steps * latencyMs);
+        System.out.printf("throughput=%.1f req/s, peakPlatformThreads=%d, heapUsed=%dMB%n",
+                completed.get() * 1000.0 / Math.max(1, elapsedMs),
+                ManagementFactory.getThreadMXBean().getPeakThreadCount(),
+                (runtime.totalMemory() - runtime.freeMemory()) / 1024 / 1024);
+    }
+
+    private static ChatRequest request(String userMessage) {
+        return ChatRequest.builder()
+                .channelId(1L).baseUrl("http://localhost").apiKey("sk-test")
+                .modelIdentifier("gpt-test").temperature(0.7)
+                .userMessage(userMessage)
+                .build();
+    }
+
+    private static LlmChatAgent createAgent(ChatModel upstream) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CacheRegionManager cacheRegionManager = new CacheRegionManager(new CacheProperties(), null, null,
+                new ObjectMapper(), registry);
+        cacheRegionManager.localRegion("chat-model.agent").put("1_sk-test_http://localhost", upstream);
+
+        RequestCoalescer coalescer = new RequestCoalescer();
+        ReflectionTestUtils.setField(coalescer, "properties", new CoalescingProperties());
+        ReflectionTestUtils.setField(coalescer, "meterRegistry", registry);
+        coalescer.init();
+
+        LlmChatAgent agent = new LlmChatAgent();
+        ReflectionTestUtils.setField(agent, "advisorManager", new AdvisorManager());
+        ReflectionTestUtils.setField(agent, "requestCoalescer", coalescer);
+        ReflectionTestUtils.setField(agent, "cacheRegionManager", cacheRegionManager);
+        ReflectionTestUtils.setField(agent, "fastPathProperties", new FastPathProperties());
+        ReflectionTestUtils.setField(agent, "meterRegistry", registry);
+        agent.init();
+        return agent;
+    }
+
+    /**
+     * 阻塞等待的上游模型
+     */
+    static class BlockingChatModel implements ChatModel {
+
+        private final long latencyMs;
+        private final boolean pinned;
+
+        BlockingChatModel(long latencyMs, boolean pinned) {
+            this.latencyMs = latencyMs;
+            this.pinned = pinned;
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            if (pinned) {
+                synchronized (prompt) {
+                    sleep(latencyMs);
+                }
+            } else {
+                sleep(latencyMs);
+            }
+            return new ChatResponse(List.of(new Generation(new AssistantMessage("ok"))));
+        }
+
+        private static void sleep(long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
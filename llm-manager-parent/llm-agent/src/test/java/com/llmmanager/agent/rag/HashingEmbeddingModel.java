@@ -0,0 +1,63 @@
+package com.llmmanager.agent.rag;
+
+import com.llmmanager.agent.rag.lexical.LexicalTokenizer;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 哈希词袋向量（离线基准使用的 Embedding 替身，忽略含数字的词）
+ *
+ * 离线环境没有真实 Embedding 服务；忽略含数字的词用于模拟向量模型对编号、错误码不敏感的特点。
+ */
+public class HashingEmbeddingModel implements EmbeddingModel {
+
+    private static final int DIMENSIONS = 512;
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<Embedding> embeddings = new ArrayList<>();
+        List<String> texts = request.getInstructions();
+        for (int i = 0; i < texts.size(); i++) {
+            embeddings.add(new Embedding(embed(texts.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[DIMENSIONS];
+        for (String token : LexicalTokenizer.tokenize(text)) {
+            if (token.chars().anyMatch(Character::isDigit)) {
+                continue;
+            }
+            vector[Math.floorMod(token.hashCode(), DIMENSIONS)] += 1.0f;
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        if (norm > 0) {
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = (float) (vector[i] / norm);
+            }
+        }
+        return vector;
+    }
+
+    @Override
+    public int dimensions() {
+        return DIMENSIONS;
+    }
+}
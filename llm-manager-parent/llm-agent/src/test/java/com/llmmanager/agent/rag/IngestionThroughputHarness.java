@@ -0,0 +1,210 @@
+package com.llmmanager.agent.rag;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmmanager.agent.rag.config.RagProperties;
+import com.llmmanager.agent.rag.lexical.LexicalIndexManager;
+import com.llmmanager.agent.storage.core.entity.KnowledgeDocument;
+import com.llmmanager.agent.storage.core.service.KnowledgeBaseService;
+import com.llmmanager.agent.storage.core.service.KnowledgeDocumentService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 入库流水线吞吐量基准（本地 Embedding 替身，手动运行）
+ *
+ * 运行参数（-D）：
+ * - documents：文档数，默认 400
+ * - chunksPerDoc：每个文档的文本块数，默认 10
+ * - latencyMs：替身单次请求延迟，默认 40
+ * - capacity：替身同时处理的请求数上限（超过后排队，模拟 Embedding 服务饱和），默认 8
+ *
+ * 按 embedParallelism = 1 / 2 / 4 / 8 / 16 依次入库同一批文档（SimpleVectorStore），输出耗时和文本块吞吐量，
+ * 预期吞吐量随并发增长、在并发达到 capacity 后持平。
+ *
+ * 每个文档都包含一段相同的页眉文本块，多个写入批次并发写入相同文本；同时校验写入阶段没有再次请求替身
+ * （替身收到的文本数 = 文本块数），即预计算向量在并发写入之间互不干扰。
+ */
+public class IngestionThroughputHarness {
+
+    private static final int[] PARALLELISM = {1, 2, 4, 8, 16};
+
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        int documents = Integer.getInteger("documents", 400);
+        int chunksPerDoc = Integer.getInteger("chunksPerDoc", 10);
+        long latencyMs = Long.getLong("latencyMs", 40L);
+        int capacity = Integer.getInteger("capacity", 8);
+
+        System.out.printf("=== 入库吞吐量（%d 文档 × %d 文本块，替身延迟 %dms，容量 %d） ===%n",
+                documents, chunksPerDoc, latencyMs, capacity);
+        System.out.printf("%-12s %-10s %-12s %-10s%n", "parallelism", "耗时(ms)", "chunks/s", "请求数");
+        for (int parallelism : PARALLELISM) {
+            StubEmbeddingModel embeddingModel = new StubEmbeddingModel(latencyMs, capacity);
+            DocumentIngestionPipeline pipeline = pipeline(embeddingModel, parallelism);
+            String kbCode = "kb_p" + parallelism;
+
+            List<KnowledgeDocument> batch = new ArrayList<>();
+            for (int i = 0; i < documents; i++) {
+                KnowledgeDocument doc = new KnowledgeDocument();
+                doc.setDocCode("doc-" + parallelism + "-" + i);
+                doc.setKbCode(kbCode);
+                batch.add(doc);
+            }
+
+            long startTime = System.currentTimeMillis();
+            Map<String, Integer> result = pipeline.ingest(batch, doc -> parse(doc, chunksPerDoc));
+            long elapsedMs = Math.max(1, System.currentTimeMillis() - startTime);
+
+            long written = result.values().stream().mapToLong(Integer::longValue).sum();
+            System.out.printf("%-12d %-10d %-12.0f %-10d%n", parallelism, elapsedMs,
+                    written * 1000.0 / elapsedMs, embeddingModel.requests.get());
+            check("p=" + parallelism + " 全部写入", String.valueOf((long) documents * chunksPerDoc), String.valueOf(written));
+            check("p=" + parallelism + " 写入阶段未重复 Embedding", String.valueOf((long) documents * chunksPerDoc),
+                    String.valueOf(embeddingModel.texts.get()));
+        }
+
+        System.out.println(failures == 0 ? "ALL PASSED" : failures + " FAILED");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static DocumentIngestionPipeline.ParsedDocument parse(KnowledgeDocument doc, int chunksPerDoc) {
+        List<Document> chunks = new ArrayList<>();
+        // 相同的页眉文本块：不同文档的写入批次会并发写入相同文本
+        chunks.add(Document.builder()
+                .id(doc.getDocCode() + "-0")
+                .text("公司内部资料，请勿外传。本文档由知识库自动导入。")
+                .metadata(Map.of("docCode", doc.getDocCode()))
+                .build());
+        for (int i = 1; i < chunksPerDoc; i++) {
+            chunks.add(Document.builder()
+                    .id(doc.getDocCode() + "-" + i)
+                    .text(doc.getDocCode() + " 第 " + i + " 段：订单履约、售后退款与库存同步的处理说明。".repeat(8))
+                    .metadata(Map.of("docCode", doc.getDocCode()))
+                    .build());
+        }
+        int charCount = chunks.stream().mapToInt(chunk -> chunk.getText().length()).sum();
+        return new DocumentIngestionPipeline.ParsedDocument(chunks, charCount);
+    }
+
+    private static DocumentIngestionPipeline pipeline(EmbeddingModel embeddingModel, int embedParallelism) {
+        RagProperties ragProperties = new RagProperties();
+        ragProperties.getIngestion().setEmbedParallelism(embedParallelism);
+        ragProperties.getIngestion().setWriteParallelism(embedParallelism);
+        ragProperties.getIngestion().setMaxBatchSize(32);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        LexicalIndexManager lexicalIndexManager = new LexicalIndexManager();
+        ReflectionTestUtils.setField(lexicalIndexManager, "ragProperties", ragProperties);
+        ReflectionTestUtils.setField(lexicalIndexManager, "objectMapper", new ObjectMapper());
+
+        VectorStoreManager vectorStoreManager = new VectorStoreManager();
+        ReflectionTestUtils.setField(vectorStoreManager, "ragProperties", ragProperties);
+        ReflectionTestUtils.setField(vectorStoreManager, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(vectorStoreManager, "embeddingModel", embeddingModel);
+        ReflectionTestUtils.setField(vectorStoreManager, "knowledgeBaseService", stub(KnowledgeBaseService.class));
+        ReflectionTestUtils.setField(vectorStoreManager, "lexicalIndexManager", lexicalIndexManager);
+        vectorStoreManager.initialize();
+
+        DocumentIngestionPipeline pipeline = new DocumentIngestionPipeline();
+        ReflectionTestUtils.setField(pipeline, "ragProperties", ragProperties);
+        ReflectionTestUtils.setField(pipeline, "vectorStoreManager", vectorStoreManager);
+        ReflectionTestUtils.setField(pipeline, "embeddingModel", embeddingModel);
+        ReflectionTestUtils.setField(pipeline, "documentService", stub(KnowledgeDocumentService.class));
+        ReflectionTestUtils.setField(pipeline, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(pipeline, "lexicalIndexManager", lexicalIndexManager);
+        return pipeline;
+    }
+
+    /**
+     * 所有方法返回空集合 / 默认值的服务替身
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, methodArgs) -> {
+                    Class<?> returnType = method.getReturnType();
+                    if (returnType == List.class) {
+                        return List.of();
+                    }
+                    if (returnType == boolean.class) {
+                        return false;
+                    }
+                    if (returnType == int.class) {
+                        return 0;
+                    }
+                    if (returnType == long.class) {
+                        return 0L;
+                    }
+                    return null;
+                });
+    }
+
+    private static void check(String name, String expected, String actual) {
+        boolean passed = expected.equals(actual);
+        if (!passed) {
+            failures++;
+        }
+        System.out.printf("  [%s] %s: expected=%s, actual=%s%n", passed ? "PASS" : "FAIL", name, expected, actual);
+    }
+
+    /**
+     * Embedding 服务替身：每次请求固定延迟，最多 capacity 个请求同时处理
+     */
+    private static class StubEmbeddingModel implements EmbeddingModel {
+
+        private final long latencyMs;
+        private final Semaphore capacity;
+        private final HashingEmbeddingModel vectors = new HashingEmbeddingModel();
+        private final AtomicInteger requests = new AtomicInteger();
+        private final AtomicLong texts = new AtomicLong();
+
+        StubEmbeddingModel(long latencyMs, int capacity) {
+            this.latencyMs = latencyMs;
+            this.capacity = new Semaphore(capacity);
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            requests.incrementAndGet();
+            texts.addAndGet(request.getInstructions().size());
+            capacity.acquireUninterruptibly();
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                capacity.release();
+            }
+            List<Embedding> embeddings = new ArrayList<>();
+            List<String> instructions = request.getInstructions();
+            for (int i = 0; i < instructions.size(); i++) {
+                embeddings.add(new Embedding(vectors.embed(instructions.get(i)), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return call(new EmbeddingRequest(List.of(document.getText()), null)).getResult().getOutput();
+        }
+
+        @Override
+        public int dimensions() {
+            return vectors.dimensions();
+        }
+    }
+}
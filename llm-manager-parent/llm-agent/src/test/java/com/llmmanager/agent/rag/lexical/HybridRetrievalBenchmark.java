@@ -0,0 +1,188 @@
+package com.llmmanager.agent.rag.lexical;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmmanager.agent.rag.HashingEmbeddingModel;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 混合检索相关性 / 延迟基准（离线，使用 src/test/resources/rag/benchmark 下的数据集）
+ *
+ * 数据集：32 个文本块（错误码、SKU、订单号和普通说明文本），18 个带标注的查询。
+ * 对比三种检索方式在 topK = 3 / 5 时的 Recall@K、MRR 和单次检索延迟（p50 / p95）：
+ * - vector：SimpleVectorStore
+ * - lexical：Bm25Index
+ * - hybrid：两路各取 topK * 3 个候选，按 RRF（lexicalWeight = 0.5, k = 60）融合
+ *
+ * 离线环境没有真实 Embedding 服务，向量一路使用哈希词袋向量作替身，并忽略含数字的词，
+ * 模拟向量模型对编号、错误码不敏感的特点；接入真实模型时替换 HashingEmbeddingModel 即可。
+ *
+ * 最后校验删除后的打分：删除一半文本块（只打墓碑、不压缩）后，检索得分与只含剩余文本块的新索引一致，
+ * 即文档频率不再计入墓碑；重新打开快照后同样一致。
+ */
+public class HybridRetrievalBenchmark {
+
+    private static final int ITERATIONS = 50;
+
+    public static void main(String[] args) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<Map<String, Object>> corpus = readJsonLines(objectMapper, "corpus.jsonl");
+        List<Map<String, Object>> queries = readJsonLines(objectMapper, "queries.jsonl");
+
+        List<Document> documents = corpus.stream()
+                .map(row -> Document.builder()
+                        .id(String.valueOf(row.get("id")))
+                        .text(String.valueOf(row.get("text")))
+                        .metadata(Map.of("docCode", "bench"))
+                        .build())
+                .toList();
+
+        SimpleVectorStore vectorStore = SimpleVectorStore.builder(new HashingEmbeddingModel()).build();
+        vectorStore.add(documents);
+
+        Path indexDir = Files.createTempDirectory("bm25-benchmark");
+        try (Bm25Index index = Bm25Index.open(indexDir, objectMapper)) {
+            index.add(documents);
+            index.flush();
+            System.out.println("索引统计: " + index.stats());
+
+            for (int topK : new int[] {3, 5}) {
+                System.out.println("=== topK = " + topK + " ===");
+                System.out.printf("%-8s %-10s %-8s %-10s %-10s%n", "mode", "recall@K", "MRR", "p50(ms)", "p95(ms)");
+                for (String mode : List.of("vector", "lexical", "hybrid")) {
+                    double recall = 0;
+                    double mrr = 0;
+                    List<Long> latencies = new ArrayList<>();
+                    for (Map<String, Object> row : queries) {
+                        String query = String.valueOf(row.get("query"));
+                        @SuppressWarnings("unchecked")
+                        List<String> relevant = (List<String>) row.get("relevant");
+
+                        List<Document> results = List.of();
+                        for (int i = 0; i < ITERATIONS; i++) {
+                            long startTime = System.nanoTime();
+                            results = search(mode, query, topK, vectorStore, index);
+                            latencies.add(System.nanoTime() - startTime);
+                        }
+
+                        List<String> ids = results.stream().map(Document::getId).toList();
+                        recall += relevant.stream().filter(ids::contains).count() / (double) relevant.size();
+                        for (int rank = 0; rank < ids.size(); rank++) {
+                            if (relevant.contains(ids.get(rank))) {
+                                mrr += 1.0d / (rank + 1);
+                                break;
+                            }
+                        }
+                    }
+                    long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+                    System.out.printf("%-8s %-10.3f %-8.3f %-10.3f %-10.3f%n", mode,
+                            recall / queries.size(), mrr / queries.size(),
+                            sorted[sorted.length / 2] / 1_000_000.0d,
+                            sorted[(int) (sorted.length * 0.95)] / 1_000_000.0d);
+                }
+            }
+        } finally {
+            FileSystemUtils.deleteRecursively(indexDir);
+        }
+
+        checkTombstoneScoring(objectMapper, documents, queries);
+    }
+
+    private static void checkTombstoneScoring(ObjectMapper objectMapper, List<Document> documents,
+                                              List<Map<String, Object>> queries) throws Exception {
+        System.out.println("=== 删除后打分一致性 ===");
+        List<String> deletedIds = new ArrayList<>();
+        List<Document> remaining = new ArrayList<>();
+        for (int i = 0; i < documents.size(); i++) {
+            if (i % 2 == 0) {
+                deletedIds.add(documents.get(i).getId());
+            } else {
+                remaining.add(documents.get(i));
+            }
+        }
+
+        Path deletedDir = Files.createTempDirectory("bm25-deleted");
+        Path freshDir = Files.createTempDirectory("bm25-fresh");
+        int mismatches = 0;
+        try (Bm25Index deleted = Bm25Index.open(deletedDir, objectMapper);
+             Bm25Index fresh = Bm25Index.open(freshDir, objectMapper)) {
+            deleted.add(documents);
+            deleted.deleteByIds(deletedIds);
+            fresh.add(remaining);
+            mismatches += compareScores(deleted, fresh, queries);
+            deleted.flush();
+            try (Bm25Index reopened = Bm25Index.open(deletedDir, objectMapper)) {
+                mismatches += compareScores(reopened, fresh, queries);
+            }
+        } finally {
+            FileSystemUtils.deleteRecursively(deletedDir);
+            FileSystemUtils.deleteRecursively(freshDir);
+        }
+        System.out.println(mismatches == 0 ? "ALL PASSED" : mismatches + " FAILED");
+        System.exit(mismatches == 0 ? 0 : 1);
+    }
+
+    /**
+     * 比较两个索引对所有查询的各名次得分，返回不一致的查询数
+     */
+    private static int compareScores(Bm25Index actual, Bm25Index expected, List<Map<String, Object>> queries) {
+        int mismatches = 0;
+        for (Map<String, Object> row : queries) {
+            String query = String.valueOf(row.get("query"));
+            List<Document> actualResults = actual.search(query, 5, 1.2d, 0.75d);
+            List<Document> expectedResults = expected.search(query, 5, 1.2d, 0.75d);
+            boolean passed = actualResults.size() == expectedResults.size();
+            for (int i = 0; passed && i < actualResults.size(); i++) {
+                // 同分文本块的先后顺序取决于序号，只比较各名次的得分
+                passed = Math.abs(actualResults.get(i).getScore() - expectedResults.get(i).getScore()) < 1e-9;
+            }
+            if (!passed) {
+                mismatches++;
+                System.out.printf("  [FAIL] %s: expected=%s, actual=%s%n", query,
+                        expectedResults.stream().map(Document::getId).toList(),
+                        actualResults.stream().map(Document::getId).toList());
+            }
+        }
+        System.out.printf("  [%s] %d 个查询得分一致%n", mismatches == 0 ? "PASS" : "FAIL", queries.size() - mismatches);
+        return mismatches;
+    }
+
+    private static List<Document> search(String mode, String query, int topK,
+                                         SimpleVectorStore vectorStore, Bm25Index index) {
+        int candidates = topK * 3;
+        return switch (mode) {
+            case "vector" -> vectorSearch(vectorStore, query, topK);
+            case "lexical" -> index.search(query, topK, 1.2d, 0.75d);
+            default -> ReciprocalRankFusion.fuse(vectorSearch(vectorStore, query, candidates),
+                    index.search(query, candidates, 1.2d, 0.75d), 0.5d, 60, topK);
+        };
+    }
+
+    private static List<Document> vectorSearch(SimpleVectorStore vectorStore, String query, int topK) {
+        return vectorStore.similaritySearch(SearchRequest.builder()
+                .query(query)
+                .topK(topK)
+                .similarityThreshold(0.0d)
+                .build());
+    }
+
+    private static List<Map<String, Object>> readJsonLines(ObjectMapper objectMapper, String name) throws Exception {
+        Path file = Path.of(HybridRetrievalBenchmark.class.getResource("/rag/benchmark/" + name).toURI());
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            if (!line.isBlank()) {
+                rows.add(objectMapper.readValue(line, new TypeReference<Map<String, Object>>() {}));
+            }
+        }
+        return rows;
+    }
+}
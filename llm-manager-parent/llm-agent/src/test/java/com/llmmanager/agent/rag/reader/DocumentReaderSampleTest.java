@@ -0,0 +1,126 @@
+package com.llmmanager.agent.rag.reader;
+
+import com.llmmanager.agent.rag.config.RagProperties;
+import com.llmmanager.agent.storage.core.entity.KnowledgeDocument;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.ai.document.Document;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 文档读取器测试（离线，使用 src/test/resources/rag/samples 下的示例文件）
+ *
+ * - sample.pdf：3 页，预期输出 3 段，metadata 带 page / totalPages
+ * - sample.docx：Title + 2 个 Heading1，预期按章节输出 3 段
+ * - sample.html：script/style/nav/footer 被移除，按 h1/h2 输出章节
+ * - sample.md：代码块内的 # 不作为标题
+ * - URL：本地 HTTP Stub（端口 18903）返回 HTML / PDF，按 Content-Type 选择读取器
+ */
+public class DocumentReaderSampleTest {
+
+    public static void main(String[] args) throws Exception {
+        RagProperties ragProperties = new RagProperties();
+
+        TextSectionReader textReader = new TextSectionReader();
+        ReflectionTestUtils.setField(textReader, "ragProperties", ragProperties);
+        DocxSectionReader docxReader = new DocxSectionReader();
+        ReflectionTestUtils.setField(docxReader, "ragProperties", ragProperties);
+        HtmlSectionReader htmlReader = new HtmlSectionReader();
+        ReflectionTestUtils.setField(htmlReader, "ragProperties", ragProperties);
+        PdfSectionReader pdfReader = new PdfSectionReader();
+
+        UrlDocumentFetcher fetcher = new UrlDocumentFetcher();
+        ReflectionTestUtils.setField(fetcher, "ragProperties", ragProperties);
+
+        DocumentReaders readers = new DocumentReaders();
+        ReflectionTestUtils.setField(readers, "readers", List.of(textReader, pdfReader, docxReader, htmlReader));
+        ReflectionTestUtils.setField(readers, "textSectionReader", textReader);
+        ReflectionTestUtils.setField(readers, "urlDocumentFetcher", fetcher);
+
+        System.out.println("=== PDF ===");
+        readers.read(fileDocument("sample.pdf"), DocumentReaderSampleTest::print);
+        System.out.println("=== DOCX ===");
+        readers.read(fileDocument("sample.docx"), DocumentReaderSampleTest::print);
+        System.out.println("=== HTML ===");
+        readers.read(fileDocument("sample.html"), DocumentReaderSampleTest::print);
+        System.out.println("=== MARKDOWN ===");
+        KnowledgeDocument markdown = KnowledgeDocument.createMarkdown("kb_test", "sample.md",
+                Files.readString(sample("sample.md")));
+        readers.read(markdown, DocumentReaderSampleTest::print);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(18903), 0);
+        serve(server, "/page", "text/html; charset=UTF-8", sample("sample.html"));
+        serve(server, "/files/report", "application/pdf", sample("sample.pdf"));
+        byte[] html = Files.readAllBytes(sample("sample.html"));
+        server.createContext("/chunked", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(html, 0, html.length / 2);
+                out.flush();
+                out.write(html, html.length / 2, html.length - html.length / 2);
+            }
+        });
+        server.createContext("/go/report", exchange -> {
+            exchange.getResponseHeaders().set("Location", "/files/report");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            System.out.println("=== URL (默认禁止内网地址) ===");
+            try {
+                fetcher.fetch("http://localhost:18903/page");
+                System.out.println("未拒绝内网地址");
+            } catch (IOException e) {
+                System.out.println("已拒绝: " + e.getMessage());
+            }
+            ragProperties.getReader().setAllowPrivateNetwork(true);
+
+            System.out.println("=== URL (HTML) ===");
+            readers.read(KnowledgeDocument.createUrl("kb_test", "page", "http://localhost:18903/page"),
+                    DocumentReaderSampleTest::print);
+            System.out.println("=== URL (PDF) ===");
+            readers.read(KnowledgeDocument.createUrl("kb_test", "report", "http://localhost:18903/files/report"),
+                    DocumentReaderSampleTest::print);
+            System.out.println("=== URL (chunked 响应) ===");
+            readers.read(KnowledgeDocument.createUrl("kb_test", "chunked", "http://localhost:18903/chunked"),
+                    DocumentReaderSampleTest::print);
+            System.out.println("=== URL (302 重定向到 PDF) ===");
+            readers.read(KnowledgeDocument.createUrl("kb_test", "report", "http://localhost:18903/go/report"),
+                    DocumentReaderSampleTest::print);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static KnowledgeDocument fileDocument(String name) throws Exception {
+        Path file = sample(name);
+        return KnowledgeDocument.createFile("kb_test", name, file.toString(), null, Files.size(file));
+    }
+
+    private static Path sample(String name) throws Exception {
+        return Path.of(DocumentReaderSampleTest.class.getResource("/rag/samples/" + name).toURI());
+    }
+
+    private static void serve(HttpServer server, String path, String contentType, Path file) {
+        server.createContext(path, exchange -> {
+            byte[] bytes = Files.readAllBytes(file);
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+    }
+
+    private static void print(Document section) {
+        System.out.println("  " + section.getMetadata() + " -> " + section.getText().replace('\n', ' '));
+    }
+}
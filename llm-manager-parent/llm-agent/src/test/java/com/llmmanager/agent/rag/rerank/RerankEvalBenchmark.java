@@ -0,0 +1,115 @@
+package com.llmmanager.agent.rag.rerank;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmmanager.agent.rag.HashingEmbeddingModel;
+import com.llmmanager.agent.rag.config.RagProperties;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 检索后重排序离线评测（使用 src/test/resources/rag/rerank-eval 下的数据集）
+ *
+ * 数据集：32 个运维文档文本块（含 FAQ 等近似重复内容），20 个查询，每个查询标注相关文本块和答案要点。
+ * 对比放入 Prompt 的上下文：
+ * - vector@5：当前默认行为，向量检索 topK = 5 直接放入 Prompt
+ * - rerank@3：候选池 20，词重叠打分器重排后保留 3 个
+ * - rerank+mmr@3：同上，并用 MMR（λ = 0.7）去冗余
+ *
+ * 指标：Recall（相关文本块进入上下文的比例）、答案要点覆盖率（上下文包含答案要点的比例，衡量回答质量能否保持）、
+ * 平均上下文字符数、重排序耗时 p50 / p95。
+ */
+public class RerankEvalBenchmark {
+
+    private static final int CANDIDATE_POOL = 20;
+
+    private static final int ITERATIONS = 50;
+
+    public static void main(String[] args) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<Map<String, Object>> corpus = readJsonLines(objectMapper, "corpus.jsonl");
+        List<Map<String, Object>> queries = readJsonLines(objectMapper, "queries.jsonl");
+
+        SimpleVectorStore vectorStore = SimpleVectorStore.builder(new HashingEmbeddingModel()).build();
+        vectorStore.add(corpus.stream()
+                .map(row -> Document.builder()
+                        .id(String.valueOf(row.get("id")))
+                        .text(String.valueOf(row.get("text")))
+                        .metadata(Map.of("docCode", "eval"))
+                        .build())
+                .toList());
+
+        LexicalOverlapScorer scorer = new LexicalOverlapScorer();
+        RagProperties.RerankConfig plain = new RagProperties.RerankConfig();
+        RagProperties.RerankConfig mmr = new RagProperties.RerankConfig();
+        mmr.setMmrEnabled(true);
+
+        System.out.printf("%-14s %-8s %-10s %-12s %-10s %-10s%n",
+                "mode", "recall", "answer", "avgChars", "p50(ms)", "p95(ms)");
+        for (String mode : List.of("vector@5", "rerank@3", "rerank+mmr@3")) {
+            double recall = 0;
+            double answerCoverage = 0;
+            long contextChars = 0;
+            List<Long> latencies = new ArrayList<>();
+            for (Map<String, Object> row : queries) {
+                String query = String.valueOf(row.get("query"));
+                @SuppressWarnings("unchecked")
+                List<String> relevant = (List<String>) row.get("relevant");
+                @SuppressWarnings("unchecked")
+                List<String> answer = (List<String>) row.get("answer");
+
+                List<Document> context;
+                if ("vector@5".equals(mode)) {
+                    context = vectorSearch(vectorStore, query, 5);
+                } else {
+                    List<Document> candidates = vectorSearch(vectorStore, query, CANDIDATE_POOL);
+                    RagProperties.RerankConfig config = mode.contains("mmr") ? mmr : plain;
+                    context = List.of();
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        long startTime = System.nanoTime();
+                        context = DocumentReranker.select(candidates, scorer.score(query, candidates), 3, config);
+                        latencies.add(System.nanoTime() - startTime);
+                    }
+                }
+
+                List<String> ids = context.stream().map(Document::getId).toList();
+                String text = String.join("\n", context.stream().map(Document::getText).toList());
+                recall += relevant.stream().filter(ids::contains).count() / (double) relevant.size();
+                answerCoverage += answer.stream().filter(text::contains).count() / (double) answer.size();
+                contextChars += text.length();
+            }
+
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            System.out.printf("%-14s %-8.3f %-10.3f %-12.1f %-10s %-10s%n", mode,
+                    recall / queries.size(), answerCoverage / queries.size(), (double) contextChars / queries.size(),
+                    sorted.length > 0 ? String.format("%.3f", sorted[sorted.length / 2] / 1_000_000.0d) : "-",
+                    sorted.length > 0 ? String.format("%.3f", sorted[(int) (sorted.length * 0.95)] / 1_000_000.0d) : "-");
+        }
+    }
+
+    private static List<Document> vectorSearch(SimpleVectorStore vectorStore, String query, int topK) {
+        return vectorStore.similaritySearch(SearchRequest.builder()
+                .query(query)
+                .topK(topK)
+                .similarityThreshold(0.0d)
+                .build());
+    }
+
+    private static List<Map<String, Object>> readJsonLines(ObjectMapper objectMapper, String name) throws Exception {
+        Path file = Path.of(RerankEvalBenchmark.class.getResource("/rag/rerank-eval/" + name).toURI());
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            if (!line.isBlank()) {
+                rows.add(objectMapper.readValue(line, new TypeReference<Map<String, Object>>() {}));
+            }
+        }
+        return rows;
+    }
+}
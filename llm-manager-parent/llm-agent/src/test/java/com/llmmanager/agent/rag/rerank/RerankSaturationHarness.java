@@ -0,0 +1,160 @@
+package com.llmmanager.agent.rag.rerank;
+
+import com.llmmanager.agent.rag.config.RagProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.ai.document.Document;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 重排序并发上限验证（慢打分器替身，手动运行）
+ *
+ * 替身每批打分耗时 30ms、共 10 批（约 300ms），在批次之间检查中断，与 ONNX 打分器相同；延迟预算 50ms，maxConcurrency = 2。
+ * 依次验证：
+ * - 20 个并发请求：同时打分的任务数不超过 2，其余请求因已满直接退回检索顺序（reason = saturated）
+ * - 超时的打分任务被中断，不会跑完全部批次；名额在任务结束后释放，之后的请求可以再次打分
+ */
+public class RerankSaturationHarness {
+
+    private static final int REQUESTS = 20;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) throws Exception {
+        SlowScorer scorer = new SlowScorer();
+        RagProperties ragProperties = new RagProperties();
+        ragProperties.getRerank().setEnabled(true);
+        ragProperties.getRerank().setScorer(SlowScorer.NAME);
+        ragProperties.getRerank().setLatencyBudgetMs(50L);
+        ragProperties.getRerank().setMaxConcurrency(2);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        DocumentReranker reranker = new DocumentReranker();
+        ReflectionTestUtils.setField(reranker, "ragProperties", ragProperties);
+        ReflectionTestUtils.setField(reranker, "scorers", List.of(scorer));
+        ReflectionTestUtils.setField(reranker, "meterRegistry", meterRegistry);
+        reranker.init();
+
+        List<Document> candidates = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            candidates.add(Document.builder().id("c" + i).text("候选文本块 " + i).score(1.0d - i * 0.05d).build());
+        }
+
+        try {
+            System.out.println("=== " + REQUESTS + " 个并发请求 ===");
+            ExecutorService callers = Executors.newFixedThreadPool(REQUESTS);
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(REQUESTS);
+            AtomicInteger returned = new AtomicInteger();
+            for (int i = 0; i < REQUESTS; i++) {
+                callers.execute(() -> {
+                    try {
+                        start.await();
+                        if (reranker.rerank("查询", candidates, 3).size() == 3) {
+                            returned.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            start.countDown();
+            done.await(5, TimeUnit.SECONDS);
+            callers.shutdown();
+
+            check("全部请求返回 finalK 个文本块", String.valueOf(REQUESTS), String.valueOf(returned.get()));
+            check("同时打分不超过 maxConcurrency", "true", String.valueOf(scorer.peak.get() <= 2));
+            check("已满时直接退回", String.valueOf(REQUESTS - scorer.started.get()),
+                    String.valueOf((long) fallbackCount(meterRegistry, "saturated")));
+            check("超时退回", String.valueOf(scorer.started.get()),
+                    String.valueOf((long) fallbackCount(meterRegistry, "timeout")));
+
+            System.out.println("=== 超时任务被中断，名额释放 ===");
+            Thread.sleep(100);
+            check("超时任务未跑完全部批次", "0", String.valueOf(scorer.completed.get()));
+            check("名额全部释放", "0", String.valueOf(scorer.running.get()));
+            ragProperties.getRerank().setLatencyBudgetMs(1000L);
+            List<Document> selected = reranker.rerank("查询", candidates, 3);
+            check("名额释放后再次打分", "true", String.valueOf(selected.get(0).getMetadata().containsKey("rerankScore")));
+        } finally {
+            reranker.shutdown();
+        }
+
+        System.out.println(failures == 0 ? "ALL PASSED" : failures + " FAILED");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static double fallbackCount(MeterRegistry meterRegistry, String reason) {
+        return meterRegistry.find("rag.rerank.fallback").tag("reason", reason).counters().stream()
+                .mapToDouble(counter -> counter.count())
+                .sum();
+    }
+
+    private static void check(String name, String expected, String actual) {
+        boolean passed = expected.equals(actual);
+        if (!passed) {
+            failures++;
+        }
+        System.out.printf("  [%s] %s: expected=%s, actual=%s%n", passed ? "PASS" : "FAIL", name, expected, actual);
+    }
+
+    /**
+     * 慢打分器替身：10 批、每批 30ms，批次之间检查中断
+     */
+    private static class SlowScorer implements DocumentScorer {
+
+        static final String NAME = "slow";
+
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger peak = new AtomicInteger();
+        private final AtomicInteger started = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+
+        @Override
+        public String name() {
+            return NAME;
+        }
+
+        @Override
+        public double[] score(String query, List<Document> documents) {
+            started.incrementAndGet();
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                for (int batch = 0; batch < 10; batch++) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return new double[documents.size()];
+                    }
+                    busyWait(30);
+                }
+                completed.incrementAndGet();
+                double[] scores = new double[documents.size()];
+                for (int i = 0; i < scores.length; i++) {
+                    scores[i] = scores.length - i;
+                }
+                return scores;
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+
+        /**
+         * 模拟不响应中断的 CPU 推理（只在批次之间检查中断）
+         */
+        private static void busyWait(long millis) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+            while (System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
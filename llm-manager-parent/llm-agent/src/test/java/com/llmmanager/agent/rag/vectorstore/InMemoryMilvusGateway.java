@@ -0,0 +1,192 @@
+package com.llmmanager.agent.rag.vectorstore;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 内存版 MilvusGateway（测试替身）
+ *
+ * 按 Collection / Partition 保存记录，search 暴力计算 COSINE / IP / L2，并记录每种 RPC 的调用次数和最近一次检索请求。
+ * 表达式只支持本仓库会生成的两种形式：doc_id in ["a","b"] 与 metadata["key"] == "value"（可用 && 连接）。
+ */
+public class InMemoryMilvusGateway implements MilvusGateway {
+
+    private static final Pattern ID_IN = Pattern.compile("^doc_id in \\[(.*)]$");
+
+    private static final Pattern METADATA_EQ = Pattern.compile("^metadata\\[\"(\\w+)\"] == (\"([^\"]*)\"|[-0-9.]+)$");
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Key: collection，Value: (Key: partition，Value: (Key: doc_id))
+     */
+    private final Map<String, Map<String, Map<String, Row>>> collections = new HashMap<>();
+
+    private final Map<String, Integer> calls = new LinkedHashMap<>();
+
+    private SearchSpec lastSearch;
+
+    public int calls(String rpc) {
+        return calls.getOrDefault(rpc, 0);
+    }
+
+    public SearchSpec lastSearch() {
+        return lastSearch;
+    }
+
+    public int size(String collection, String partition) {
+        return partitions(collection).getOrDefault(partition, Map.of()).size();
+    }
+
+    @Override
+    public synchronized boolean hasCollection(String collection) {
+        count("hasCollection");
+        return collections.containsKey(collection);
+    }
+
+    @Override
+    public synchronized void createCollection(String collection, int dimensions, String indexType, String metricType,
+                                              String indexParams) {
+        count("createCollection");
+        Map<String, Map<String, Row>> partitions = new HashMap<>();
+        partitions.put(null, new LinkedHashMap<>());
+        collections.put(collection, partitions);
+    }
+
+    @Override
+    public synchronized void dropCollection(String collection) {
+        count("dropCollection");
+        collections.remove(collection);
+    }
+
+    @Override
+    public synchronized boolean hasPartition(String collection, String partition) {
+        count("hasPartition");
+        return partitions(collection).containsKey(partition);
+    }
+
+    @Override
+    public synchronized void createPartition(String collection, String partition) {
+        count("createPartition");
+        partitions(collection).put(partition, new LinkedHashMap<>());
+    }
+
+    @Override
+    public synchronized void dropPartition(String collection, String partition) {
+        count("dropPartition");
+        partitions(collection).remove(partition);
+    }
+
+    @Override
+    public synchronized void insert(String collection, String partition, List<Row> rows) {
+        count("insert");
+        Map<String, Row> target = partitions(collection).get(partition);
+        if (target == null) {
+            throw new IllegalStateException("partition not found: " + partition);
+        }
+        rows.forEach(row -> target.put(row.id(), row));
+    }
+
+    @Override
+    public synchronized void delete(String collection, String partition, String expr) {
+        count("delete");
+        for (Map.Entry<String, Map<String, Row>> entry : partitions(collection).entrySet()) {
+            if (partition == null || partition.equals(entry.getKey())) {
+                entry.getValue().values().removeIf(row -> matches(row, expr));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void flush(String collection) {
+        count("flush");
+    }
+
+    @Override
+    public synchronized List<Hit> search(SearchSpec spec) {
+        count("search");
+        lastSearch = spec;
+        boolean similarity = !"L2".equals(spec.metricType());
+        List<Hit> hits = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Row>> entry : partitions(spec.collection()).entrySet()) {
+            if (!spec.partitions().isEmpty() && !spec.partitions().contains(entry.getKey())) {
+                continue;
+            }
+            for (Row row : entry.getValue().values()) {
+                if (spec.expr() != null && !matches(row, spec.expr())) {
+                    continue;
+                }
+                hits.add(new Hit(row.id(), row.content(), toJson(row.metadata()),
+                        distance(spec.metricType(), spec.vector(), row.embedding())));
+            }
+        }
+        Comparator<Hit> order = Comparator.comparingDouble(Hit::distance);
+        hits.sort(similarity ? order.reversed() : order);
+        return hits.subList(0, Math.min(spec.topK(), hits.size()));
+    }
+
+    private Map<String, Map<String, Row>> partitions(String collection) {
+        Map<String, Map<String, Row>> partitions = collections.get(collection);
+        if (partitions == null) {
+            throw new IllegalStateException("collection not found: " + collection);
+        }
+        return partitions;
+    }
+
+    private void count(String rpc) {
+        calls.merge(rpc, 1, Integer::sum);
+    }
+
+    private static boolean matches(Row row, String expr) {
+        Matcher idIn = ID_IN.matcher(expr.trim());
+        if (idIn.matches()) {
+            return idIn.group(1).contains("\"" + row.id() + "\"");
+        }
+        for (String part : expr.split("&&")) {
+            Matcher eq = METADATA_EQ.matcher(part.trim());
+            if (!eq.matches()) {
+                throw new UnsupportedOperationException("unsupported expr: " + expr);
+            }
+            Object value = row.metadata().get(eq.group(1));
+            String expected = eq.group(3) != null ? eq.group(3) : eq.group(2);
+            if (value == null || !expected.equals(String.valueOf(value))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static float distance(String metricType, float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        double l2 = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+            l2 += (a[i] - b[i]) * (a[i] - b[i]);
+        }
+        return switch (metricType) {
+            case "IP" -> (float) dot;
+            case "L2" -> (float) l2;
+            default -> normA == 0 || normB == 0 ? 0f : (float) (dot / Math.sqrt(normA * normB));
+        };
+    }
+
+    private static String toJson(Map<String, Object> metadata) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(metadata);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
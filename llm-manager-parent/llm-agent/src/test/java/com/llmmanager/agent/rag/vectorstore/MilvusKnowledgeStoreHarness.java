@@ -0,0 +1,125 @@
+package com.llmmanager.agent.rag.vectorstore;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmmanager.agent.rag.HashingEmbeddingModel;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * MilvusKnowledgeStore 手动验证（使用 InMemoryMilvusGateway，不需要 Milvus 服务）
+ *
+ * 验证点：
+ * - 写入按 insertBatchSize 分批，flushOnWrite 控制 flush 调用
+ * - 共享 Collection 下多知识库检索只发起一次 search，结果与逐库检索合并后一致，且只命中指定 Partition
+ * - 检索请求携带一致性级别和检索参数，HNSW ef 小于 topK 时提升到 topK
+ * - 按 ID 删除、按 metadata 过滤删除只作用于本知识库的 Partition
+ */
+public class MilvusKnowledgeStoreHarness {
+
+    private static final String COLLECTION = "llm_kb_shared";
+
+    private static final List<String> WORDS = List.of(
+            "deploy", "rollback", "gateway", "timeout", "retry", "cache", "quota", "billing", "invoice", "token",
+            "prompt", "agent", "workflow", "schedule", "backup", "restore", "replica", "shard", "index", "vector",
+            "latency", "throughput", "alert", "metric", "trace", "login", "password", "permission", "tenant", "region");
+
+    public static void main(String[] args) {
+        InMemoryMilvusGateway gateway = new InMemoryMilvusGateway();
+        HashingEmbeddingModel embeddingModel = new HashingEmbeddingModel();
+        ObjectMapper objectMapper = new ObjectMapper();
+        gateway.createCollection(COLLECTION, embeddingModel.dimensions(), "HNSW", "COSINE", "{}");
+
+        MilvusKnowledgeStore.Settings settings = new MilvusKnowledgeStore.Settings(
+                "COSINE", 500, false, "BOUNDED", "{\"ef\":8}");
+        List<MilvusKnowledgeStore> stores = new ArrayList<>();
+        for (String kbCode : List.of("kb_ops", "kb_billing", "kb_hr")) {
+            String partition = MilvusKnowledgeStore.partitionName(kbCode);
+            gateway.createPartition(COLLECTION, partition);
+            stores.add(new MilvusKnowledgeStore(gateway, COLLECTION, partition, false, kbCode, embeddingModel,
+                    objectMapper, settings));
+        }
+        MilvusKnowledgeStore sharedStore = new MilvusKnowledgeStore(gateway, COLLECTION,
+                MilvusKnowledgeStore.partitionName("_global"), true, "_global", embeddingModel, objectMapper, settings);
+
+        // 写入：每个知识库 2100 条，批大小 500 => 每库 5 次 insert
+        Random random = new Random(42);
+        for (MilvusKnowledgeStore store : stores) {
+            store.add(documents(store.getPartition(), 2100, random));
+        }
+        check(gateway.calls("insert") == 15, "insert 调用次数 = 15，实际 " + gateway.calls("insert"));
+        check(gateway.calls("flush") == 0, "flushOnWrite=false 时不 flush");
+
+        MilvusKnowledgeStore flushing = new MilvusKnowledgeStore(gateway, COLLECTION, stores.get(0).getPartition(),
+                false, "kb_ops", embeddingModel, objectMapper,
+                new MilvusKnowledgeStore.Settings("COSINE", 500, true, "STRONG", null));
+        flushing.add(documents("kb_ops_extra", 10, random));
+        check(gateway.calls("flush") == 1, "flushOnWrite=true 时写入后 flush 一次");
+
+        // 多知识库检索：一次 search，结果等于逐库检索合并后的 topK
+        List<String> targets = List.of(stores.get(0).getPartition(), stores.get(1).getPartition());
+        for (int q = 0; q < 20; q++) {
+            String query = WORDS.get(random.nextInt(WORDS.size())) + " " + WORDS.get(random.nextInt(WORDS.size()));
+            SearchRequest request = SearchRequest.builder()
+                    .query(query)
+                    .topK(10)
+                    .similarityThreshold(SearchRequest.SIMILARITY_THRESHOLD_ACCEPT_ALL)
+                    .build();
+
+            int searchesBefore = gateway.calls("search");
+            List<Document> merged = sharedStore.similaritySearch(request, targets);
+            check(gateway.calls("search") == searchesBefore + 1, "多知识库检索只发起一次 search");
+            check(merged.stream().allMatch(d -> List.of("kb_ops", "kb_billing").contains(d.getMetadata().get("kbCode"))),
+                    "结果只来自指定 Partition");
+
+            List<Double> expected = new ArrayList<>();
+            stores.get(0).similaritySearch(request).forEach(d -> expected.add(d.getScore()));
+            stores.get(1).similaritySearch(request).forEach(d -> expected.add(d.getScore()));
+            expected.sort(Comparator.reverseOrder());
+            List<Double> actual = merged.stream().map(Document::getScore).toList();
+            check(actual.equals(expected.subList(0, actual.size())), "合并检索分数与逐库检索一致: " + query);
+        }
+
+        MilvusGateway.SearchSpec last = gateway.lastSearch();
+        check("BOUNDED".equals(last.consistencyLevel()), "检索携带一致性级别");
+        check(last.params().contains("\"ef\":10"), "ef 提升到 topK，实际 " + last.params());
+
+        // 删除只作用于本知识库的 Partition
+        MilvusKnowledgeStore ops = stores.get(0);
+        int before = gateway.size(COLLECTION, ops.getPartition());
+        ops.delete(List.of(ops.getPartition() + "-0", ops.getPartition() + "-1"));
+        check(gateway.size(COLLECTION, ops.getPartition()) == before - 2, "按 ID 删除 2 条");
+        ops.delete(new FilterExpressionBuilder().eq("docCode", "doc-3").build());
+        check(gateway.size(COLLECTION, ops.getPartition()) == before - 2 - 100, "按 docCode 过滤删除 100 条");
+        check(gateway.size(COLLECTION, stores.get(1).getPartition()) == 2100, "其他知识库不受影响");
+
+        System.out.printf("通过：insert=%d, search=%d, delete=%d, flush=%d%n", gateway.calls("insert"),
+                gateway.calls("search"), gateway.calls("delete"), gateway.calls("flush"));
+    }
+
+    private static List<Document> documents(String prefix, int count, Random random) {
+        List<Document> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String text = WORDS.get(random.nextInt(WORDS.size())) + " " + WORDS.get(random.nextInt(WORDS.size()))
+                    + " " + WORDS.get(random.nextInt(WORDS.size()));
+            documents.add(Document.builder()
+                    .id(prefix + "-" + i)
+                    .text(text)
+                    .metadata(Map.of("docCode", "doc-" + (i / 100), "chunkIndex", i % 100))
+                    .build());
+        }
+        return documents;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("失败：" + message);
+        }
+    }
+}
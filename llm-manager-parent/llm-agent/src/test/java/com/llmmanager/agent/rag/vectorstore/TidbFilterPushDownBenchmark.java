@@ -0,0 +1,198 @@
+package com.llmmanager.agent.rag.vectorstore;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionTextParser;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * TiDB 过滤检索延迟基准（需要可访问的 TiDB，手动运行）
+ *
+ * 运行参数（-D）：
+ * - tidb.url / tidb.user / tidb.password：连接信息
+ * - rows：数据行数，默认 1000000
+ * - dimensions：向量维度，默认 128
+ * - skipLoad=true：表中已有数据时跳过写入
+ *
+ * 写入 rows 行随机向量到 bench_knowledge_vectors（50 个知识库，metadata 含 docType / tenantId / publishYear），
+ * 对同一组过滤条件分别测量：
+ * - json：过滤条件比较 metadata JSON（未声明生成列）
+ * - column：为 docType / tenantId / publishYear 创建生成列和 (kb_code, 列) 索引后再测
+ * 输出 p50 / p95 延迟和执行计划（EXPLAIN），确认过滤在距离排序之前走索引。
+ */
+public class TidbFilterPushDownBenchmark {
+
+    private static final String TABLE_NAME = "bench_knowledge_vectors";
+
+    private static final int ITERATIONS = 20;
+
+    private static final List<String> FILTERS = List.of(
+            "tenantId == 't042'",
+            "docType in ['PDF', 'DOCX'] && publishYear >= 2020",
+            "publishYear < 2003",
+            "docType != 'HTML' && tenantId in ['t001', 't002', 't003']");
+
+    public static void main(String[] args) {
+        int rows = Integer.getInteger("rows", 1_000_000);
+        int dimensions = Integer.getInteger("dimensions", 128);
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("tidb.url"), System.getProperty("tidb.user"), System.getProperty("tidb.password"));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        ObjectMapper objectMapper = new ObjectMapper();
+        RandomEmbeddingModel embeddingModel = new RandomEmbeddingModel(dimensions);
+
+        if (!Boolean.getBoolean("skipLoad")) {
+            load(jdbcTemplate, embeddingModel, objectMapper, rows, dimensions);
+        }
+
+        TidbMetadataColumns metadataColumns = new TidbMetadataColumns(TABLE_NAME, jdbcTemplate);
+        metadataColumns.reload();
+        run("json", jdbcTemplate, embeddingModel, objectMapper, null);
+
+        metadataColumns.ensure(Map.of(
+                "docType", TidbFilterExpressionConverter.ColumnType.STRING,
+                "tenantId", TidbFilterExpressionConverter.ColumnType.STRING,
+                "publishYear", TidbFilterExpressionConverter.ColumnType.NUMBER));
+        run("column", jdbcTemplate, embeddingModel, objectMapper, metadataColumns);
+    }
+
+    private static void load(JdbcTemplate jdbcTemplate, RandomEmbeddingModel embeddingModel,
+                             ObjectMapper objectMapper, int rows, int dimensions) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + TABLE_NAME);
+        jdbcTemplate.execute("CREATE TABLE " + TABLE_NAME + " ("
+                + " id BIGINT AUTO_INCREMENT PRIMARY KEY,"
+                + " vector_id VARCHAR(64) NOT NULL UNIQUE,"
+                + " kb_code VARCHAR(32) NOT NULL,"
+                + " doc_code VARCHAR(32) DEFAULT NULL,"
+                + " chunk_index INT DEFAULT NULL,"
+                + " content_hash CHAR(64) DEFAULT NULL,"
+                + " content MEDIUMTEXT NOT NULL,"
+                + " embedding VECTOR(" + dimensions + ") NOT NULL,"
+                + " metadata JSON,"
+                + " create_time DATETIME DEFAULT CURRENT_TIMESTAMP,"
+                + " update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,"
+                + " is_delete TINYINT(3) UNSIGNED DEFAULT 0,"
+                + " INDEX idx_kb_code (kb_code),"
+                + " VECTOR INDEX idx_embedding ((VEC_COSINE_DISTANCE(embedding))))");
+
+        String[] docTypes = {"PDF", "DOCX", "HTML", "MARKDOWN", "TEXT"};
+        Random random = new Random(42);
+        long startTime = System.currentTimeMillis();
+        final int batchSize = 1000;
+        for (int start = 0; start < rows; start += batchSize) {
+            List<Document> batch = new ArrayList<>(batchSize);
+            for (int i = start; i < Math.min(rows, start + batchSize); i++) {
+                batch.add(Document.builder()
+                        .id("v" + i)
+                        .text("chunk " + i)
+                        .metadata(Map.of(
+                                "kbCode", String.format("kb%02d", i % 50),
+                                "docCode", "d" + (i / 20),
+                                "chunkIndex", i % 20,
+                                "docType", docTypes[random.nextInt(docTypes.length)],
+                                "tenantId", String.format("t%03d", random.nextInt(200)),
+                                "publishYear", 2000 + random.nextInt(25)))
+                        .build());
+            }
+            new TidbVectorStore(TABLE_NAME, null, jdbcTemplate, embeddingModel, objectMapper).add(batch);
+            if ((start / batchSize) % 100 == 0) {
+                System.out.printf("写入 %d / %d 行，耗时 %d ms%n", start + batch.size(), rows, System.currentTimeMillis() - startTime);
+            }
+        }
+        jdbcTemplate.execute("ANALYZE TABLE " + TABLE_NAME);
+    }
+
+    private static void run(String mode, JdbcTemplate jdbcTemplate, RandomEmbeddingModel embeddingModel,
+                            ObjectMapper objectMapper, TidbMetadataColumns metadataColumns) {
+        TidbVectorStore store = new TidbVectorStore(TABLE_NAME, "kb07", jdbcTemplate, embeddingModel,
+                objectMapper, metadataColumns);
+        FilterExpressionTextParser parser = new FilterExpressionTextParser();
+
+        System.out.println("=== " + mode + " ===");
+        System.out.printf("%-60s %-8s %-10s %-10s%n", "filter", "hits", "p50(ms)", "p95(ms)");
+        for (String filter : FILTERS) {
+            Filter.Expression expression = parser.parse(filter);
+            long[] latencies = new long[ITERATIONS];
+            int hits = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                long startTime = System.nanoTime();
+                hits = store.similaritySearch(SearchRequest.builder()
+                        .query("q" + i)
+                        .topK(10)
+                        .similarityThreshold(SearchRequest.SIMILARITY_THRESHOLD_ACCEPT_ALL)
+                        .filterExpression(expression)
+                        .build()).size();
+                latencies[i] = System.nanoTime() - startTime;
+            }
+            Arrays.sort(latencies);
+            System.out.printf("%-60s %-8d %-10.1f %-10.1f%n", filter, hits,
+                    latencies[ITERATIONS / 2] / 1_000_000.0d, latencies[(int) (ITERATIONS * 0.95)] / 1_000_000.0d);
+
+            List<Object> params = new ArrayList<>();
+            String where = new TidbFilterExpressionConverter(
+                    metadataColumns != null ? metadataColumns.current() : Map.of()).convert(expression, params);
+            params.add(0, "kb07");
+            jdbcTemplate.query("EXPLAIN SELECT vector_id FROM " + TABLE_NAME
+                            + " WHERE is_delete=0 AND kb_code=? AND (" + where + ")",
+                    rs -> {
+                        System.out.println("    " + rs.getString(1) + "  " + rs.getString(4) + "  " + rs.getString(5));
+                    }, params.toArray());
+        }
+    }
+
+    /**
+     * 随机向量（按文本哈希取种子，相同文本得到相同向量）
+     */
+    private static class RandomEmbeddingModel implements EmbeddingModel {
+
+        private final int dimensions;
+
+        RandomEmbeddingModel(int dimensions) {
+            this.dimensions = dimensions;
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            List<String> texts = request.getInstructions();
+            for (int i = 0; i < texts.size(); i++) {
+                embeddings.add(new Embedding(embed(texts.get(i)), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+
+        @Override
+        public float[] embed(String text) {
+            Random random = new Random(text.hashCode());
+            float[] vector = new float[dimensions];
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+            return vector;
+        }
+
+        @Override
+        public int dimensions() {
+            return dimensions;
+        }
+    }
+}
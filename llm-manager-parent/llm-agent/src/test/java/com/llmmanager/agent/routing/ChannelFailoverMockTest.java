@@ -0,0 +1,133 @@
+package com.llmmanager.agent.routing;
+
+import com.llmmanager.agent.config.ChannelRoutingProperties;
+import com.llmmanager.agent.model.ThinkingAwareOpenAiApi;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 渠道池故障转移测试（本地 Mock OpenAI 服务）
+ *
+ * 启动两个本地 Mock 服务：
+ * - 渠道 1：始终返回 503（模拟上游故障）
+ * - 渠道 2：正常返回（同步 JSON / 流式 SSE）
+ *
+ * 预期：
+ * - 同步和流式请求都切换到渠道 2 成功返回
+ * - 渠道 1 连续失败 3 次后被摘除，统计中 ejected = true，冷却期内不再被调用
+ * - 冷却期过后渠道 1 获得一次半开试探，试探失败重新摘除，请求仍由渠道 2 完成
+ * - 4xx 按状态码分类：429 切换渠道，400（即使消息里含 "429"）不切换
+ */
+public class ChannelFailoverMockTest {
+
+    public static void main(String[] args) throws Exception {
+        HttpServer broken = startServer(18901, false);
+        HttpServer healthy = startServer(18902, true);
+
+        try {
+            ChannelRoutingProperties properties = new ChannelRoutingProperties();
+            properties.setEjectDurationMs(500L);
+            ChannelRouter router = new ChannelRouter();
+            ReflectionTestUtils.setField(router, "properties", properties);
+
+            Map<ChannelEndpoint, ChatModel> members = new LinkedHashMap<>();
+            members.put(endpoint(1L, "broken", 18901, 1000), chatModel(18901));
+            members.put(endpoint(2L, "healthy", 18902, 1), chatModel(18902));
+            FailoverChatModel chatModel = new FailoverChatModel(members, router);
+
+            System.out.println("=== 渠道池故障转移测试 ===");
+            for (int i = 1; i <= 3; i++) {
+                String text = chatModel.call(new Prompt("你好")).getResult().getOutput().getText();
+                System.out.println(i + ". 同步调用结果: " + text);
+            }
+
+            StringBuilder streamed = new StringBuilder();
+            chatModel.stream(new Prompt("你好"))
+                    .doOnNext(response -> streamed.append(response.getResult().getOutput().getText()))
+                    .blockLast();
+            System.out.println("4. 流式调用结果: " + streamed);
+
+            System.out.println("5. 渠道统计（冷却中）:");
+            router.getStats().forEach(stats -> System.out.println("   " + stats));
+
+            Thread.sleep(600);
+            String text = chatModel.call(new Prompt("你好")).getResult().getOutput().getText();
+            System.out.println("6. 冷却期后调用结果: " + text);
+            System.out.println("7. 渠道统计（半开试探失败，重新摘除）:");
+            router.getStats().forEach(stats -> System.out.println("   " + stats));
+
+            System.out.println("8. 状态码分类: HTTP 429 -> "
+                    + router.isFailover(new NonTransientAiException("HTTP 429 - rate limited"))
+                    + ", HTTP 400 (消息含 429) -> "
+                    + router.isFailover(new NonTransientAiException("HTTP 400 - max_tokens must be <= 4290")));
+        } finally {
+            broken.stop(0);
+            healthy.stop(0);
+        }
+    }
+
+    private static ChannelEndpoint endpoint(Long channelId, String name, int port, int weight) {
+        return ChannelEndpoint.builder()
+                .channelId(channelId)
+                .name(name)
+                .apiKey("sk-mock")
+                .baseUrl("http://localhost:" + port)
+                .weight(weight)
+                .build();
+    }
+
+    private static ChatModel chatModel(int port) {
+        return OpenAiChatModel.builder()
+                .openAiApi(new ThinkingAwareOpenAiApi("http://localhost:" + port, "sk-mock"))
+                .defaultOptions(OpenAiChatOptions.builder().model("mock-model").build())
+                .retryTemplate(FailoverChatModel.NO_RETRY_TEMPLATE)
+                .build();
+    }
+
+    private static HttpServer startServer(int port, boolean healthy) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            if (!healthy) {
+                respond(exchange, 503, "application/json", "{\"error\":{\"message\":\"mock outage\"}}");
+            } else if (body.contains("\"stream\":true")) {
+                respond(exchange, 200, "text/event-stream",
+                        "data: {\"id\":\"1\",\"object\":\"chat.completion.chunk\",\"created\":0,\"model\":\"mock-model\","
+                                + "\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"来自健康渠道\"}}]}\n\n"
+                                + "data: {\"id\":\"1\",\"object\":\"chat.completion.chunk\",\"created\":0,\"model\":\"mock-model\","
+                                + "\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}]}\n\n"
+                                + "data: [DONE]\n\n");
+            } else {
+                respond(exchange, 200, "application/json",
+                        "{\"id\":\"1\",\"object\":\"chat.completion\",\"created\":0,\"model\":\"mock-model\","
+                                + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"来自健康渠道\"},"
+                                + "\"finish_reason\":\"stop\"}],"
+                                + "\"usage\":{\"prompt_tokens\":1,\"completion_tokens\":1,\"total_tokens\":2}}");
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.llmmanager.agent.routing;
+
+import com.llmmanager.agent.config.CoalescingProperties;
+import com.llmmanager.agent.dto.ChatRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 请求合并测试（不访问真实模型）
+ *
+ * 1. 20 个相同的同步请求并发：上游只调用 1 次，所有请求拿到相同结果
+ * 2. 流式请求：第二个订阅者在上游输出 2 个片段后加入，仍从头收到完整的 5 个片段，上游只调用 1 次
+ * 3. 带 conversationCode 的请求不合并（keyOf 返回 null）
+ * 4. leader 卡住时，follower 等待 followerTimeoutMs 后自行调用，不被无限阻塞
+ *
+ * 预期：每一步输出 OK，最后打印 llm.coalescing.requests 指标
+ */
+public class RequestCoalescingHarness {
+
+    public static void main(String[] args) throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RequestCoalescer coalescer = new RequestCoalescer();
+        CoalescingProperties properties = new CoalescingProperties();
+        ReflectionTestUtils.setField(coalescer, "properties", properties);
+        ReflectionTestUtils.setField(coalescer, "meterRegistry", registry);
+        coalescer.init();
+
+        ChatRequest request = ChatRequest.builder()
+                .channelId(1L).baseUrl("http://localhost").apiKey("sk-test")
+                .modelIdentifier("gpt-test").temperature(0.7).userMessage("讲个笑话")
+                .build();
+        String key = RequestCoalescer.keyOf(request, null);
+
+        System.out.println("=== 请求合并测试 ===");
+
+        // 1. 同步合并
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(20);
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                await(start);
+                return coalescer.call(key, "gpt-test", () -> {
+                    calls.incrementAndGet();
+                    sleep(300);
+                    return "answer";
+                });
+            }, executor));
+        }
+        start.countDown();
+        List<String> results = futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        executor.shutdown();
+        check("1. 20 个并发同步请求，上游调用 " + calls.get() + " 次",
+                calls.get() == 1 && results.stream().allMatch("answer"::equals));
+
+        // 2. 流式合并 + 从头重放
+        AtomicInteger streams = new AtomicInteger();
+        Flux<ChatResponse> upstream = Flux.range(1, 5)
+                .delayElements(Duration.ofMillis(100))
+                .map(i -> new ChatResponse(List.of(new Generation(new AssistantMessage("t" + i)))));
+        CompletableFuture<List<String>> first = CompletableFuture.supplyAsync(() ->
+                texts(coalescer.stream(key, "gpt-test", () -> { streams.incrementAndGet(); return upstream; })));
+        sleep(250);
+        List<String> second = texts(coalescer.stream(key, "gpt-test", () -> { streams.incrementAndGet(); return upstream; }));
+        check("2. 中途加入的流式订阅者收到 " + second, streams.get() == 1
+                && second.equals(List.of("t1", "t2", "t3", "t4", "t5")) && first.join().equals(second));
+
+        // 3. 有状态会话不合并
+        check("3. 带 conversationCode 不合并", RequestCoalescer.keyOf(request, "conv-1") == null);
+
+        // 4. leader 卡住：follower 等待超时后自行调用
+        properties.setFollowerTimeoutMs(200L);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> stuck = CompletableFuture.supplyAsync(() ->
+                coalescer.call(key, "gpt-test", () -> { await(release); return "late"; }));
+        sleep(50);
+        long waitStart = System.currentTimeMillis();
+        String own = coalescer.call(key, "gpt-test", () -> "own");
+        long waited = System.currentTimeMillis() - waitStart;
+        release.countDown();
+        check("4. leader 卡住时 follower " + waited + "ms 后自行调用",
+                "own".equals(own) && waited >= 200 && waited < 1000 && "late".equals(stuck.join()));
+
+        System.out.println("5. 指标:");
+        registry.getMeters().stream()
+                .filter(meter -> meter.getId().getName().startsWith("llm.coalescing"))
+                .forEach(meter -> System.out.println("   " + meter.getId().getName() + meter.getId().getTags()
+                        + " = " + meter.measure().iterator().next().getValue()));
+    }
+
+    private static List<String> texts(Flux<ChatResponse> flux) {
+        return flux.map(response -> response.getResult().getOutput().getText()).collectList().block();
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println(name + ": " + (ok ? "OK" : "FAILED"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
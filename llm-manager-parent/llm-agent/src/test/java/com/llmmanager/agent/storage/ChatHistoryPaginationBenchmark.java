@@ -0,0 +1,214 @@
+package com.llmmanager.agent.storage;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 会话 / 聊天历史分页延迟基准（需要可访问的 MySQL，手动运行）
+ *
+ * 运行参数（-D）：
+ * - mysql.url / mysql.user / mysql.password：连接信息（建议 url 带 rewriteBatchedStatements=true 加快写入）
+ * - rows：聊天历史总行数，默认 10000000
+ * - conversations：会话数，默认 200000
+ * - bigConversationRows：单个大会话的消息数（其余消息平均分给其它会话），默认 1000000
+ * - skipLoad=true：表中已有数据时跳过写入
+ *
+ * 表结构与 db/schema.sql 中 a_conversations / a_chat_history 的索引一致（idx_list、idx_conv_live），
+ * 对不同翻页深度分别测量 OFFSET 分页与游标分页（与 ConversationServiceImpl / ChatHistoryServiceImpl 生成的 SQL 相同）
+ * 的 p50 / p95 延迟，并输出最深一页游标查询的执行计划。游标分页的耗时应与翻页深度无关。
+ */
+public class ChatHistoryPaginationBenchmark {
+
+    private static final String CONVERSATION_TABLE = "bench_conversations";
+    private static final String HISTORY_TABLE = "bench_chat_history";
+    private static final String BIG_CONVERSATION = "conv-big";
+
+    private static final int PAGE_SIZE = 20;
+    private static final int ITERATIONS = 20;
+
+    private static final String CONVERSATION_COLUMNS = "id, conversation_code, title, is_pinned, last_message_time";
+    private static final String CONVERSATION_ORDER = " ORDER BY is_pinned DESC, last_message_time DESC, id DESC";
+    private static final String CONVERSATION_KEYSET = " AND (is_pinned < ? OR (is_pinned = ? AND last_message_time < ?)"
+            + " OR (is_pinned = ? AND last_message_time = ? AND id < ?))";
+
+    public static void main(String[] args) {
+        int rows = Integer.getInteger("rows", 10_000_000);
+        int conversations = Integer.getInteger("conversations", 200_000);
+        int bigConversationRows = Integer.getInteger("bigConversationRows", 1_000_000);
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("mysql.url"), System.getProperty("mysql.user"), System.getProperty("mysql.password"));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        if (!Boolean.getBoolean("skipLoad")) {
+            load(jdbcTemplate, rows, conversations, bigConversationRows);
+        }
+
+        System.out.printf("=== 会话列表（is_archived=0，每页 %d 条）===%n", PAGE_SIZE);
+        printHeader();
+        int maxConversationPage = Math.max(1, conversations * 8 / 10 / PAGE_SIZE - 1);
+        Object[] deepestCursor = null;
+        for (int page : depths(maxConversationPage)) {
+            String offsetSql = "SELECT " + CONVERSATION_COLUMNS + " FROM " + CONVERSATION_TABLE
+                    + " WHERE is_delete = 0 AND is_archived = 0" + CONVERSATION_ORDER
+                    + " LIMIT " + PAGE_SIZE + " OFFSET " + (long) page * PAGE_SIZE;
+            // 游标取上一页最后一条记录的排序键（准备阶段，不计时）
+            Map<String, Object> last = jdbcTemplate.queryForMap("SELECT is_pinned, last_message_time, id FROM "
+                    + CONVERSATION_TABLE + " WHERE is_delete = 0 AND is_archived = 0" + CONVERSATION_ORDER
+                    + " LIMIT 1 OFFSET " + ((long) page * PAGE_SIZE - 1));
+            Object pinned = last.get("is_pinned");
+            Object time = last.get("last_message_time");
+            Object id = last.get("id");
+            deepestCursor = new Object[]{pinned, pinned, time, pinned, time, id};
+            String keysetSql = "SELECT " + CONVERSATION_COLUMNS + " FROM " + CONVERSATION_TABLE
+                    + " WHERE is_delete = 0 AND is_archived = 0" + CONVERSATION_KEYSET + CONVERSATION_ORDER
+                    + " LIMIT " + (PAGE_SIZE + 1);
+            report(jdbcTemplate, page, offsetSql, new Object[0], keysetSql, deepestCursor);
+        }
+        explain(jdbcTemplate, "SELECT " + CONVERSATION_COLUMNS + " FROM " + CONVERSATION_TABLE
+                + " WHERE is_delete = 0 AND is_archived = 0" + CONVERSATION_KEYSET + CONVERSATION_ORDER
+                + " LIMIT " + (PAGE_SIZE + 1), deepestCursor);
+
+        System.out.printf("%n=== 大会话消息列表（%d 条消息，每页 %d 条）===%n", bigConversationRows, PAGE_SIZE);
+        printHeader();
+        int maxHistoryPage = Math.max(1, bigConversationRows / PAGE_SIZE - 1);
+        Object[] historyCursor = null;
+        for (int page : depths(maxHistoryPage)) {
+            String offsetSql = "SELECT * FROM " + HISTORY_TABLE + " WHERE conversation_code = ? AND is_delete = 0"
+                    + " ORDER BY message_index DESC LIMIT " + PAGE_SIZE + " OFFSET " + (long) page * PAGE_SIZE;
+            // message_index 从 0 连续递增，倒序第 page 页之前最后一条的序号可直接算出
+            int cursorIndex = bigConversationRows - page * PAGE_SIZE;
+            historyCursor = new Object[]{BIG_CONVERSATION, cursorIndex};
+            String keysetSql = "SELECT * FROM " + HISTORY_TABLE + " WHERE conversation_code = ? AND is_delete = 0"
+                    + " AND message_index < ? ORDER BY message_index DESC LIMIT " + (PAGE_SIZE + 1);
+            report(jdbcTemplate, page, offsetSql, new Object[]{BIG_CONVERSATION}, keysetSql, historyCursor);
+        }
+        explain(jdbcTemplate, "SELECT * FROM " + HISTORY_TABLE + " WHERE conversation_code = ? AND is_delete = 0"
+                + " AND message_index < ? ORDER BY message_index DESC LIMIT " + (PAGE_SIZE + 1), historyCursor);
+
+        System.out.println();
+        explain(jdbcTemplate, "SELECT MAX(message_index) FROM " + HISTORY_TABLE
+                + " WHERE conversation_code = ? AND is_delete = 0", new Object[]{BIG_CONVERSATION});
+    }
+
+    private static void load(JdbcTemplate jdbcTemplate, int rows, int conversations, int bigConversationRows) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + CONVERSATION_TABLE);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + HISTORY_TABLE);
+        jdbcTemplate.execute("CREATE TABLE " + CONVERSATION_TABLE + " ("
+                + " id BIGINT AUTO_INCREMENT PRIMARY KEY,"
+                + " conversation_code VARCHAR(100) NOT NULL UNIQUE,"
+                + " title VARCHAR(500),"
+                + " last_message_time DATETIME DEFAULT CURRENT_TIMESTAMP,"
+                + " is_archived TINYINT DEFAULT 0,"
+                + " is_pinned TINYINT DEFAULT 0,"
+                + " is_delete TINYINT(3) UNSIGNED DEFAULT 0,"
+                + " INDEX idx_list (is_delete, is_archived, is_pinned, last_message_time))");
+        jdbcTemplate.execute("CREATE TABLE " + HISTORY_TABLE + " ("
+                + " id BIGINT AUTO_INCREMENT PRIMARY KEY,"
+                + " message_code VARCHAR(32) NOT NULL UNIQUE,"
+                + " conversation_code VARCHAR(100) NOT NULL,"
+                + " message_index INT NOT NULL DEFAULT 0,"
+                + " message_type VARCHAR(20) NOT NULL,"
+                + " content TEXT NOT NULL,"
+                + " create_time DATETIME DEFAULT CURRENT_TIMESTAMP,"
+                + " is_delete TINYINT(3) UNSIGNED DEFAULT 0,"
+                + " INDEX idx_is_delete (is_delete),"
+                + " UNIQUE INDEX uk_conv_msg_idx (conversation_code, message_index),"
+                + " INDEX idx_conv_live (conversation_code, is_delete, message_index))");
+
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        final int batchSize = 5000;
+        long startTime = System.currentTimeMillis();
+
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < conversations; i++) {
+            String code = i == 0 ? BIG_CONVERSATION : "conv-" + i;
+            batch.add(new Object[]{code, "会话 " + i,
+                    Timestamp.valueOf(now.minusSeconds(random.nextInt(365 * 24 * 3600))),
+                    random.nextInt(10) == 0 ? 1 : 0, random.nextInt(100) == 0 ? 1 : 0, random.nextInt(50) == 0 ? 1 : 0});
+            if (batch.size() == batchSize || i == conversations - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO " + CONVERSATION_TABLE
+                        + " (conversation_code, title, last_message_time, is_archived, is_pinned, is_delete)"
+                        + " VALUES (?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+
+        int perConversation = Math.max(1, (rows - bigConversationRows) / Math.max(1, conversations - 1));
+        String content = "这是一条用于分页基准测试的聊天消息内容。".repeat(4);
+        String sql = "INSERT INTO " + HISTORY_TABLE
+                + " (message_code, conversation_code, message_index, message_type, content, is_delete) VALUES (?, ?, ?, ?, ?, ?)";
+        long written = 0;
+        for (int c = 0; c < conversations && written < rows; c++) {
+            String code = c == 0 ? BIG_CONVERSATION : "conv-" + c;
+            int messages = c == 0 ? bigConversationRows : perConversation;
+            for (int m = 0; m < messages && written < rows; m++, written++) {
+                batch.add(new Object[]{String.format("m%031d", written), code, m, m % 2 == 0 ? "USER" : "ASSISTANT",
+                        content, c != 0 && random.nextInt(50) == 0 ? 1 : 0});
+                if (batch.size() == batchSize) {
+                    jdbcTemplate.batchUpdate(sql, batch);
+                    batch.clear();
+                    if (written % 500_000 < batchSize) {
+                        System.out.printf("写入 %d / %d 行，耗时 %d ms%n", written + 1, rows, System.currentTimeMillis() - startTime);
+                    }
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, batch);
+        }
+        jdbcTemplate.execute("ANALYZE TABLE " + CONVERSATION_TABLE);
+        jdbcTemplate.execute("ANALYZE TABLE " + HISTORY_TABLE);
+    }
+
+    private static int[] depths(int maxPage) {
+        return Arrays.stream(new int[]{1, 10, 100, 1_000, 10_000, maxPage})
+                .filter(page -> page <= maxPage)
+                .distinct()
+                .toArray();
+    }
+
+    private static void printHeader() {
+        System.out.printf("%-10s %-14s %-14s %-14s %-14s%n", "page", "offset p50", "offset p95", "keyset p50", "keyset p95");
+    }
+
+    private static void report(JdbcTemplate jdbcTemplate, int page, String offsetSql, Object[] offsetParams,
+                               String keysetSql, Object[] keysetParams) {
+        long[] offset = measure(jdbcTemplate, offsetSql, offsetParams);
+        long[] keyset = measure(jdbcTemplate, keysetSql, keysetParams);
+        System.out.printf("%-10d %-14.2f %-14.2f %-14.2f %-14.2f%n", page,
+                offset[0] / 1_000_000.0d, offset[1] / 1_000_000.0d, keyset[0] / 1_000_000.0d, keyset[1] / 1_000_000.0d);
+    }
+
+    /**
+     * @return {p50, p95}（纳秒）
+     */
+    private static long[] measure(JdbcTemplate jdbcTemplate, String sql, Object[] params) {
+        jdbcTemplate.queryForList(sql, params); // 预热
+        long[] latencies = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long startTime = System.nanoTime();
+            jdbcTemplate.queryForList(sql, params);
+            latencies[i] = System.nanoTime() - startTime;
+        }
+        Arrays.sort(latencies);
+        return new long[]{latencies[ITERATIONS / 2], latencies[(int) (ITERATIONS * 0.95)]};
+    }
+
+    private static void explain(JdbcTemplate jdbcTemplate, String sql, Object[] params) {
+        System.out.println("EXPLAIN " + sql);
+        jdbcTemplate.query("EXPLAIN " + sql, rs -> {
+            System.out.printf("    type=%s key=%s rows=%s extra=%s%n",
+                    rs.getString("type"), rs.getString("key"), rs.getString("rows"), rs.getString("Extra"));
+        }, params);
+    }
+}
@@ -0,0 +1,113 @@
+package com.llmmanager.agent.template;
+
+import org.springframework.ai.chat.prompt.PromptTemplate;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Prompt 模板渲染基准（手动运行）
+ *
+ * 运行参数（-D）：
+ * - iterations：每轮渲染次数，默认 200000
+ * - rounds：测量轮数（取中位数），默认 5
+ *
+ * 对同一模板和变量分别测量单次渲染耗时（ns/op）：
+ * - prompt-template：每次 new PromptTemplate(template).render(variables)（chatWithTemplate 原路径）
+ * - regex：Pattern.matcher + appendReplacement（HumanReviewNodeExecutor 原路径）
+ * - compiled：CompiledPromptTemplate.of(template).render(variables)（含缓存查找）
+ * - compiled-hoisted：编译结果在循环外获取（工作流节点在 createAction 时编译的情况）
+ * 渲染结果与 PromptTemplate 不一致时直接失败。
+ */
+public class PromptTemplateBenchmark {
+
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\{(\\w+)}");
+
+    private static final String TEMPLATE = """
+            你是一名资深的{role}，请基于以下资料回答用户的问题。
+
+            ## 资料
+            {context}
+
+            ## 要求
+            - 使用{language}回答，语气{tone}
+            - 回答不超过 {maxWords} 字，引用资料时注明来源 {source}
+
+            ## 问题
+            {question}
+            """;
+
+    private static volatile int sink;
+
+    public static void main(String[] args) {
+        int iterations = Integer.getInteger("iterations", 200_000);
+        int rounds = Integer.getInteger("rounds", 5);
+
+        Map<String, Object> variables = new LinkedHashMap<>();
+        variables.put("role", "技术支持工程师");
+        variables.put("context", "LLM Manager 支持 OpenAI 兼容接口、多渠道负载均衡和故障转移。".repeat(20));
+        variables.put("language", "中文");
+        variables.put("tone", "简洁专业");
+        variables.put("maxWords", 300);
+        variables.put("source", "[1]");
+        variables.put("question", "如何为一个模型配置多个渠道并开启故障转移？");
+
+        String expected = new PromptTemplate(TEMPLATE).render(variables);
+        check("regex", expected, renderRegex(variables));
+        check("compiled", expected, CompiledPromptTemplate.of(TEMPLATE).render(variables));
+
+        CompiledPromptTemplate hoisted = CompiledPromptTemplate.of(TEMPLATE);
+        Map<String, Supplier<String>> cases = new LinkedHashMap<>();
+        cases.put("prompt-template", () -> new PromptTemplate(TEMPLATE).render(variables));
+        cases.put("regex", () -> renderRegex(variables));
+        cases.put("compiled", () -> CompiledPromptTemplate.of(TEMPLATE).render(variables));
+        cases.put("compiled-hoisted", () -> hoisted.render(variables));
+
+        System.out.printf("template=%d chars, variables=%d, iterations=%d, rounds=%d%n",
+                TEMPLATE.length(), variables.size(), iterations, rounds);
+        for (Map.Entry<String, Supplier<String>> entry : cases.entrySet()) {
+            // PromptTemplate 每次解析 ST 模板，迭代次数缩小 10 倍
+            int n = "prompt-template".equals(entry.getKey()) ? Math.max(1, iterations / 10) : iterations;
+            measure(entry.getValue(), n); // 预热
+            long[] samples = new long[rounds];
+            for (int r = 0; r < rounds; r++) {
+                samples[r] = measure(entry.getValue(), n);
+            }
+            Arrays.sort(samples);
+            System.out.printf("%-18s %10.1f ns/op%n", entry.getKey(), samples[rounds / 2] / (double) n);
+        }
+    }
+
+    private static long measure(Supplier<String> renderer, int iterations) {
+        long start = System.nanoTime();
+        int acc = 0;
+        for (int i = 0; i < iterations; i++) {
+            acc += renderer.get().length();
+        }
+        sink = acc;
+        return System.nanoTime() - start;
+    }
+
+    private static String renderRegex(Map<String, Object> variables) {
+        Matcher matcher = PLACEHOLDER_PATTERN.matcher(TEMPLATE);
+        StringBuilder result = new StringBuilder();
+        while (matcher.find()) {
+            String key = matcher.group(1);
+            Object value = variables.get(key);
+            String replacement = value != null ? value.toString() : "{" + key + "}";
+            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    private static void check(String name, String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException(name + " 渲染结果与 PromptTemplate 不一致:\n" + actual);
+        }
+    }
+}
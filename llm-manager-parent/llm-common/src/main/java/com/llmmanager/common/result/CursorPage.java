@@ -0,0 +1,98 @@
+package com.llmmanager.common.result;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 游标分页结果（keyset 分页）
+ *
+ * 与 PageResult 的 OFFSET 分页不同，下一页从上一页最后一条记录的排序键之后继续读取，
+ * 每页都是一次索引范围扫描，翻到多深耗时都不变；代价是只能顺序翻页、不返回总数。
+ *
+ * 游标对调用方不透明：排序键各字段用 '|' 拼接后做 URL 安全的 Base64 编码。
+ *
+ * @param <T> 数据类型
+ */
+@Data
+public class CursorPage<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * 数据列表
+     */
+    private List<T> records;
+
+    /**
+     * 下一页游标（没有更多数据时为 null）
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有更多数据
+     */
+    private Boolean hasMore;
+
+    /**
+     * 每页大小
+     */
+    private Integer size;
+
+    public static <T> CursorPage<T> of(List<T> records, String nextCursor, int size) {
+        CursorPage<T> page = new CursorPage<>();
+        page.setRecords(records);
+        page.setNextCursor(nextCursor);
+        page.setHasMore(nextCursor != null);
+        page.setSize(size);
+        return page;
+    }
+
+    public static <T> CursorPage<T> empty(int size) {
+        return of(Collections.emptyList(), null, size);
+    }
+
+    /**
+     * 编码游标
+     */
+    public static String encodeCursor(Object... keys) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                sb.append(SEPARATOR);
+            }
+            sb.append(keys[i] != null ? keys[i] : "");
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码游标
+     *
+     * @param expectedKeys 排序键字段数
+     * @return 为空时返回 null（第一页）
+     * @throws IllegalArgumentException 游标格式不正确
+     */
+    public static String[] decodeCursor(String cursor, int expectedKeys) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor);
+        }
+        String[] keys = decoded.split("\\|", -1);
+        if (keys.length != expectedKeys) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor);
+        }
+        return keys;
+    }
+}
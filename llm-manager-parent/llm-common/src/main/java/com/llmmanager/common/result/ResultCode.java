@@ -99,7 +99,10 @@ public enum ResultCode implements ErrorCode {
     WORKFLOW_CONFIG_ERROR(7003, "工作流配置错误"),
     WORKFLOW_EXECUTION_FAILED(7004, "工作流执行失败"),
     WORKFLOW_NODE_ERROR(7005, "工作流节点错误"),
-    GRAPH_BUILD_FAILED(7006, "Graph 构建失败");
+    GRAPH_BUILD_FAILED(7006, "Graph 构建失败"),
+    GRAPH_TASK_NOT_FOUND(7007, "任务不存在"),
+    ASYNC_TASK_DISABLED(7008, "异步任务未启用"),
+    ASYNC_TASK_REJECTED(7009, "异步任务提交被拒绝");
 
     private final Integer code;
     private final String msg;
@@ -15,6 +15,11 @@ import java.io.IOException;
 @Component
 public class ApiKeyAuthFilter extends OncePerRequestFilter {
 
+    /**
+     * 校验通过的 ApiKey 存入请求属性，Controller 通过 @RequestAttribute 获取（异步任务按 Key 归属和公平调度）
+     */
+    public static final String API_KEY_ATTRIBUTE = "llm.apiKey";
+
     @Resource
     private ApiKeyService apiKeyService;
 
@@ -52,6 +57,7 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
 
         if (apiKey != null && Integer.valueOf(1).equals(apiKey.getActive())) {
             // Valid key, proceed
+            request.setAttribute(API_KEY_ATTRIBUTE, apiKey);
             filterChain.doFilter(request, response);
         } else {
             response.setStatus(HttpServletResponse.SC_FORBIDDEN);
@@ -5,11 +5,17 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.llmmanager.agent.storage.core.service.GraphWorkflowService;
 import com.llmmanager.agent.graph.workflow.DeepResearchWorkflow.ResearchProgress;
 import com.llmmanager.agent.graph.workflow.DeepResearchWorkflow.ResearchResult;
+import com.llmmanager.agent.storage.core.entity.GraphTask;
 import com.llmmanager.agent.storage.core.entity.GraphWorkflow;
 import com.llmmanager.common.exception.BusinessException;
 import com.llmmanager.common.result.Result;
 import com.llmmanager.common.result.ResultCode;
+import com.llmmanager.openapi.config.ApiKeyAuthFilter;
+import com.llmmanager.service.core.entity.ApiKey;
+import com.llmmanager.service.dto.StreamResponseFormatter;
+import com.llmmanager.service.orchestration.DynamicWorkflowExecutionService;
 import com.llmmanager.service.orchestration.GraphExecutionService;
+import com.llmmanager.service.task.GraphTaskWorker;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerSentEvent;
@@ -18,13 +24,16 @@ import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 
 import javax.annotation.Resource;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * 外部 Graph 工作流 API Controller
  *
- * 提供 DeepResearch 等 Graph 工作流对外访问能力。
+ * 提供 DeepResearch 等 Graph 工作流对外访问能力，以及动态工作流的流式执行。
+ * 长耗时的研究 / 工作流可通过 /async 接口提交为异步任务，结果通过 /api/external/tasks 查询。
  * 路径位于 /api/external/** 下，自动受 ApiKeyAuthFilter 保护。
  */
 @Slf4j
@@ -38,6 +47,15 @@ public class ExternalGraphWorkflowController {
     @Resource
     private GraphWorkflowService graphWorkflowService;
 
+    @Resource
+    private DynamicWorkflowExecutionService dynamicWorkflowExecutionService;
+
+    @Resource
+    private StreamResponseFormatter responseFormatter;
+
+    @Resource
+    private GraphTaskWorker graphTaskWorker;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
@@ -109,10 +127,7 @@ public class ExternalGraphWorkflowController {
             @RequestParam String question) {
 
         if (!StringUtils.hasText(question)) {
-            return Flux.just(ServerSentEvent.<String>builder()
-                    .event("error")
-                    .data("{\"error\":\"question is required\"}")
-                    .build());
+            return errorEvent("question is required");
         }
 
         log.info("[ExternalGraph] 流式深度研究请求, modelId: {}, question: {}", modelId, question);
@@ -129,11 +144,7 @@ public class ExternalGraphWorkflowController {
                                 .build()))
                 .onErrorResume(error -> {
                     log.error("[ExternalGraph] 流式研究失败", error);
-                    return Flux.just(
-                            ServerSentEvent.<String>builder()
-                                    .event("error")
-                                    .data(error.getMessage())
-                                    .build());
+                    return errorEvent(error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName());
                 });
     }
 
@@ -146,18 +157,18 @@ public class ExternalGraphWorkflowController {
             @RequestParam String question) {
 
         if (!StringUtils.hasText(question)) {
-            return Flux.just(ServerSentEvent.<String>builder()
-                    .event("error")
-                    .data("{\"error\":\"question is required\"}")
-                    .build());
+            return errorEvent("question is required");
         }
 
         log.info("[ExternalGraph] 流式深度研究请求, workflowSlug: {}, question: {}", slug, question);
 
         GraphWorkflow workflow = graphWorkflowService.getWorkflowBySlug(slug);
+        if (workflow == null) {
+            return errorEvent("Workflow not found: " + slug);
+        }
         Long modelId = workflow.getLlmModelId();
         if (modelId == null) {
-            throw new IllegalArgumentException("工作流未配置默认模型: " + slug);
+            return errorEvent("Workflow has no default model: " + slug);
         }
 
         return graphExecutionService.deepResearchStream(modelId, question)
@@ -172,11 +183,7 @@ public class ExternalGraphWorkflowController {
                                 .build()))
                 .onErrorResume(error -> {
                     log.error("[ExternalGraph] 流式研究失败", error);
-                    return Flux.just(
-                            ServerSentEvent.<String>builder()
-                                    .event("error")
-                                    .data(error.getMessage())
-                                    .build());
+                    return errorEvent(error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName());
                 });
     }
 
@@ -240,6 +247,142 @@ public class ExternalGraphWorkflowController {
         }
     }
 
+    /**
+     * 根据工作流 slug 流式执行通用动态工作流（SSE）
+     *
+     * 请求体：{"question":"...", "conversationCode":"...", "customState":{...}}
+     *
+     * 事件：start → node_start / token / node_end → complete | error，最后以 [DONE] 结束
+     */
+    @PostMapping(value = "/workflow/{slug}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> executeWorkflowStream(
+            @PathVariable String slug,
+            @RequestBody Map<String, Object> payload) {
+
+        log.info("[ExternalGraph] 流式执行动态工作流, workflowSlug: {}", slug);
+
+        GraphWorkflow workflow = graphWorkflowService.getWorkflowBySlug(slug);
+        if (workflow == null) {
+            return errorEvent("Workflow not found: " + slug);
+        }
+        if (!StringUtils.hasText(workflow.getGraphConfig()) || workflow.getLlmModelId() == null) {
+            return errorEvent("Workflow is not executable: " + slug);
+        }
+
+        return responseFormatter.formatEvents(dynamicWorkflowExecutionService.executeWorkflowStream(
+                workflow.getGraphConfig(), workflow.getLlmModelId(), buildInitialState(payload)));
+    }
+
+    // ==================== 异步任务 ====================
+
+    /**
+     * 异步执行深度研究：立即返回任务，结果通过 /api/external/tasks/{taskCode} 查询
+     *
+     * 请求体：{"question":"...", "priority":0, "callbackUrl":"https://..."}
+     */
+    @PostMapping("/research/{modelId}/async")
+    public Result<Map<String, Object>> researchAsync(
+            @PathVariable Long modelId,
+            @RequestBody Map<String, Object> payload,
+            @RequestAttribute(ApiKeyAuthFilter.API_KEY_ATTRIBUTE) ApiKey apiKey) {
+
+        String question = requireQuestion(payload);
+        log.info("[ExternalGraph] 提交异步深度研究, modelId: {}, apiKeyId: {}", modelId, apiKey.getId());
+        return submitAsync(() -> graphTaskWorker.submitResearch(
+                modelId, question, ExternalTaskController.submitOptions(payload, apiKey)));
+    }
+
+    /**
+     * 根据工作流 slug 异步执行深度研究
+     *
+     * 请求体：{"question":"...", "priority":0, "callbackUrl":"https://..."}
+     */
+    @PostMapping("/research/by-slug/{slug}/async")
+    public Result<Map<String, Object>> researchBySlugAsync(
+            @PathVariable String slug,
+            @RequestBody Map<String, Object> payload,
+            @RequestAttribute(ApiKeyAuthFilter.API_KEY_ATTRIBUTE) ApiKey apiKey) {
+
+        String question = requireQuestion(payload);
+        GraphWorkflow workflow = graphWorkflowService.getWorkflowBySlug(slug);
+        if (workflow == null) {
+            throw new BusinessException(ResultCode.WORKFLOW_NOT_FOUND, "Workflow not found: " + slug);
+        }
+        if (workflow.getLlmModelId() == null) {
+            throw new BusinessException(ResultCode.WORKFLOW_CONFIG_ERROR, "Workflow has no default model: " + slug);
+        }
+
+        log.info("[ExternalGraph] 提交异步深度研究, workflowSlug: {}, apiKeyId: {}", slug, apiKey.getId());
+        return submitAsync(() -> graphTaskWorker.submitResearch(
+                workflow.getLlmModelId(), question, ExternalTaskController.submitOptions(payload, apiKey)));
+    }
+
+    /**
+     * 根据工作流 slug 异步执行动态工作流（提交时保存工作流配置快照）
+     *
+     * 请求体：{"question":"...", "conversationCode":"...", "customState":{...}, "priority":0, "callbackUrl":"https://..."}
+     */
+    @PostMapping("/workflow/{slug}/async")
+    public Result<Map<String, Object>> executeWorkflowAsync(
+            @PathVariable String slug,
+            @RequestBody Map<String, Object> payload,
+            @RequestAttribute(ApiKeyAuthFilter.API_KEY_ATTRIBUTE) ApiKey apiKey) {
+
+        GraphWorkflow workflow = graphWorkflowService.getWorkflowBySlug(slug);
+        if (workflow == null) {
+            throw new BusinessException(ResultCode.WORKFLOW_NOT_FOUND, "Workflow not found: " + slug);
+        }
+        if (!StringUtils.hasText(workflow.getGraphConfig()) || workflow.getLlmModelId() == null) {
+            throw new BusinessException(ResultCode.WORKFLOW_CONFIG_ERROR, "Workflow is not executable: " + slug);
+        }
+
+        log.info("[ExternalGraph] 提交异步动态工作流, workflowSlug: {}, apiKeyId: {}", slug, apiKey.getId());
+        return submitAsync(() -> graphTaskWorker.submitWorkflow(
+                workflow, buildInitialState(payload), ExternalTaskController.submitOptions(payload, apiKey)));
+    }
+
+    private static String requireQuestion(Map<String, Object> payload) {
+        Object question = payload.get("question");
+        if (question == null || !StringUtils.hasText(question.toString())) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "question is required");
+        }
+        return question.toString();
+    }
+
+    private Result<Map<String, Object>> submitAsync(Supplier<GraphTask> submit) {
+        return ExternalTaskController.submitAsync(graphTaskWorker, submit);
+    }
+
+    /**
+     * 从请求体构建工作流初始状态
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> buildInitialState(Map<String, Object> payload) {
+        Map<String, Object> state = new HashMap<>();
+        Object question = payload.get("question");
+        if (question != null && StringUtils.hasText(question.toString())) {
+            state.put("question", question.toString());
+        }
+        Object conversationCode = payload.get("conversationCode");
+        if (conversationCode != null && StringUtils.hasText(conversationCode.toString())) {
+            state.put("conversation_code", conversationCode.toString());
+        }
+        if (payload.get("customState") instanceof Map<?, ?> customState) {
+            ((Map<String, Object>) customState).forEach(state::putIfAbsent);
+        }
+        return state;
+    }
+
+    /**
+     * 构建错误事件（经 ObjectMapper 序列化，slug / 异常信息中的引号、反斜杠不会破坏 JSON）
+     */
+    private Flux<ServerSentEvent<String>> errorEvent(String message) {
+        return Flux.just(ServerSentEvent.<String>builder()
+                .event("error")
+                .data(toJson(Map.of("error", message)))
+                .build());
+    }
+
     private String toJson(Object obj) {
         try {
             return objectMapper.writeValueAsString(obj);
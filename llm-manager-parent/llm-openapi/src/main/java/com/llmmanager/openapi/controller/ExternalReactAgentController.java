@@ -6,18 +6,19 @@ import com.llmmanager.agent.storage.core.entity.ReactAgent;
 import com.llmmanager.common.exception.BusinessException;
 import com.llmmanager.common.result.Result;
 import com.llmmanager.common.result.ResultCode;
+import com.llmmanager.openapi.config.ApiKeyAuthFilter;
+import com.llmmanager.service.core.entity.ApiKey;
+import com.llmmanager.service.dto.StreamResponseFormatter;
 import com.llmmanager.service.orchestration.DynamicReactAgentExecutionService;
+import com.llmmanager.service.task.GraphTaskWorker;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import javax.annotation.Resource;
-import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,6 +32,7 @@ import java.util.stream.Collectors;
  * 接口设计：
  * - 同步接口：POST /api/external/react-agent/{slug}
  * - 流式接口：POST /api/external/react-agent/{slug}/stream
+ * - 异步接口：POST /api/external/react-agent/{slug}/async（结果通过 /api/external/tasks/{taskCode} 查询）
  * - 列表接口：GET /api/external/react-agent/list
  *
  * 使用示例（curl）：
@@ -61,6 +63,12 @@ public class ExternalReactAgentController {
     @Resource
     private ObjectMapper objectMapper;
 
+    @Resource
+    private StreamResponseFormatter responseFormatter;
+
+    @Resource
+    private GraphTaskWorker graphTaskWorker;
+
     // ==================== 同步接口 ====================
 
     /**
@@ -105,14 +113,20 @@ public class ExternalReactAgentController {
     /**
      * 流式执行 ReactAgent（SSE）
      *
-     * 由于 ReactAgent 是多轮推理模式，流式输出为"进度流"：
-     * - event: start    - 开始执行
-     * - event: progress - 执行进度（thinking/action/result）
-     * - event: complete - 执行完成，包含最终结果
-     * - event: error    - 执行错误
+     * 实时推送 Agent 执行过程：
+     * - event: start      - 开始执行
+     * - event: token      - 回答增量文本（source 为 Agent 名称）
+     * - event: reasoning  - 思考过程增量文本
+     * - event: tool_start - 工具调用开始（tool、arguments）
+     * - event: tool_end   - 工具调用结束（tool、result、durationMs）
+     * - event: handoff    - Supervisor 与 Worker / 顺序 Agent 之间的控制权移交
+     * - event: complete   - 执行完成，data 与同步接口结果一致
+     * - event: error      - 执行错误
+     *
+     * 客户端断开后正在执行的 Agent 会被中止。
      *
      * @param slug    Agent 唯一标识
-     * @param payload 请求体
+     * @param payload 请求体（message 必填，conversationCode 可选）
      * @return SSE 事件流
      */
     @PostMapping(value = "/{slug}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
@@ -121,6 +135,7 @@ public class ExternalReactAgentController {
             @RequestBody Map<String, Object> payload) {
 
         String message = getStringParam(payload, "message");
+        String conversationCode = getStringParam(payload, "conversationCode");
 
         // 参数校验
         if (!StringUtils.hasText(message)) {
@@ -136,62 +151,39 @@ public class ExternalReactAgentController {
 
         log.info("[ExternalReactAgent] 流式执行，slug: {}, message: {}", slug, truncateMessage(message));
 
-        // 构建进度流
-        return buildProgressStream(slug, agent, message);
+        return responseFormatter.formatEvents(dynamicReactAgentService.executeStream(slug, message, conversationCode));
     }
 
+    // ==================== 异步接口 ====================
+
     /**
-     * 构建进度流
+     * 异步执行 ReactAgent：立即返回任务，由后台 Worker 执行
      *
-     * ReactAgent 执行过程中输出进度事件
+     * 结果获取：GET /api/external/tasks/{taskCode} 轮询、GET /api/external/tasks/{taskCode}/events 订阅进度，
+     * 或在请求体中指定 callbackUrl，任务结束后回调
+     *
+     * @param payload 请求体（message 必填，conversationCode / priority / callbackUrl 可选）
+     * @return 任务信息（taskCode、status、queuePosition）
      */
-    private Flux<ServerSentEvent<String>> buildProgressStream(String slug, ReactAgent agent, String message) {
-        // 开始事件
-        Flux<ServerSentEvent<String>> startEvent = Flux.just(
-                buildSseEvent("start", Map.of(
-                        "slug", slug,
-                        "agentName", agent.getName(),
-                        "agentType", agent.getAgentType(),
-                        "status", "processing"
-                ))
-        );
+    @PostMapping("/{slug}/async")
+    public Result<Map<String, Object>> executeAsync(
+            @PathVariable String slug,
+            @RequestBody Map<String, Object> payload,
+            @RequestAttribute(ApiKeyAuthFilter.API_KEY_ATTRIBUTE) ApiKey apiKey) {
+
+        String message = getStringParam(payload, "message");
+        String conversationCode = getStringParam(payload, "conversationCode");
+        if (!StringUtils.hasText(message)) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "Message content is required");
+        }
+        if (dynamicReactAgentService.getAgentBySlug(slug) == null) {
+            throw new BusinessException(ResultCode.REACT_AGENT_NOT_FOUND, "ReactAgent not found: " + slug);
+        }
 
-        // 思考中进度事件
-        Flux<ServerSentEvent<String>> thinkingEvent = Flux.just(
-                buildSseEvent("progress", Map.of(
-                        "step", "thinking",
-                        "message", "Agent 正在分析问题..."
-                ))
-        ).delayElements(Duration.ofMillis(100));
-
-        // 异步执行并返回结果
-        Flux<ServerSentEvent<String>> resultEvents = Mono.fromCallable(() -> {
-                    // 在独立线程中执行 Agent
-                    return dynamicReactAgentService.execute(slug, message);
-                })
-                .subscribeOn(Schedulers.boundedElastic())
-                .flatMapMany(result -> {
-                    // 执行完成事件
-                    Map<String, Object> completeData = new HashMap<>(result);
-                    completeData.put("status", "completed");
-
-                    return Flux.just(
-                            buildSseEvent("complete", completeData),
-                            ServerSentEvent.<String>builder().data("[DONE]").build()
-                    );
-                })
-                .onErrorResume(error -> {
-                    log.error("[ExternalReactAgent] 流式执行失败，slug: {}", slug, error);
-                    return Flux.just(
-                            buildSseEvent("error", Map.of(
-                                    "error", error.getMessage(),
-                                    "status", "failed"
-                            )),
-                            ServerSentEvent.<String>builder().data("[DONE]").build()
-                    );
-                });
-
-        return Flux.concat(startEvent, thinkingEvent, resultEvents);
+        log.info("[ExternalReactAgent] 提交异步任务，slug: {}, apiKeyId: {}, message: {}",
+                slug, apiKey.getId(), truncateMessage(message));
+        return ExternalTaskController.submitAsync(graphTaskWorker, () -> graphTaskWorker.submitReactAgent(
+                slug, message, conversationCode, ExternalTaskController.submitOptions(payload, apiKey)));
     }
 
     // ==================== 查询接口 ====================
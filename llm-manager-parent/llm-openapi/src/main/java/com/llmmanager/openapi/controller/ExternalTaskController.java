@@ -0,0 +1,145 @@
+package com.llmmanager.openapi.controller;
+
+import com.llmmanager.agent.storage.core.entity.GraphTask;
+import com.llmmanager.common.exception.BusinessException;
+import com.llmmanager.common.result.Result;
+import com.llmmanager.common.result.ResultCode;
+import com.llmmanager.openapi.config.ApiKeyAuthFilter;
+import com.llmmanager.service.core.entity.ApiKey;
+import com.llmmanager.service.dto.StreamResponseFormatter;
+import com.llmmanager.service.task.GraphTaskWorker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+import javax.annotation.Resource;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * 外部异步任务 API Controller
+ *
+ * 异步接口（/api/external/graph/.../async、/api/external/react-agent/{slug}/async）提交的任务在此查询：
+ * - 查询：GET  /api/external/tasks/{taskCode}         - 状态、排队位置、结果
+ * - 进度：GET  /api/external/tasks/{taskCode}/events  - SSE（status → 执行事件 → status，最后以 [DONE] 结束）
+ * - 取消：POST /api/external/tasks/{taskCode}/cancel
+ *
+ * 只能访问当前 API Key 提交的任务，其它任务一律返回任务不存在。
+ *
+ * 使用示例（curl）：
+ * <pre>
+ * # 提交
+ * curl -X POST https://your-domain/api/external/react-agent/universal-assistant/async \
+ *   -H "Authorization: Bearer sk-xxxx" \
+ *   -H "Content-Type: application/json" \
+ *   -d '{"message": "整理本周的行业动态", "priority": 5, "callbackUrl": "https://your-app/hooks/llm"}'
+ *
+ * # 订阅进度
+ * curl -N https://your-domain/api/external/tasks/{taskCode}/events -H "Authorization: Bearer sk-xxxx"
+ * </pre>
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/external/tasks")
+public class ExternalTaskController {
+
+    @Resource
+    private GraphTaskWorker graphTaskWorker;
+
+    @Resource
+    private StreamResponseFormatter responseFormatter;
+
+    /**
+     * 查询任务
+     */
+    @GetMapping("/{taskCode}")
+    public Result<Map<String, Object>> getTask(
+            @PathVariable String taskCode,
+            @RequestAttribute(ApiKeyAuthFilter.API_KEY_ATTRIBUTE) ApiKey apiKey) {
+
+        return Result.success(graphTaskWorker.getTaskView(requireOwnedTask(taskCode, apiKey)));
+    }
+
+    /**
+     * 订阅任务进度（SSE）
+     *
+     * - event: status     - 排队 / 执行 / 结束状态（data 与查询接口一致）
+     * - event: start / node_start / token / tool_end / complete ... - 执行事件（与流式接口一致）
+     *
+     * 执行事件仅在任务由当前节点执行时推送，其它情况下只推送 status；断开后任务继续执行。
+     */
+    @GetMapping(value = "/{taskCode}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> watchTask(
+            @PathVariable String taskCode,
+            @RequestAttribute(ApiKeyAuthFilter.API_KEY_ATTRIBUTE) ApiKey apiKey) {
+
+        requireOwnedTask(taskCode, apiKey);
+        return responseFormatter.formatEvents(graphTaskWorker.watch(taskCode));
+    }
+
+    /**
+     * 取消任务（排队中的任务直接取消，执行中的任务被中止）
+     */
+    @PostMapping("/{taskCode}/cancel")
+    public Result<Map<String, Object>> cancelTask(
+            @PathVariable String taskCode,
+            @RequestAttribute(ApiKeyAuthFilter.API_KEY_ATTRIBUTE) ApiKey apiKey) {
+
+        GraphTask task = requireOwnedTask(taskCode, apiKey);
+        if (!graphTaskWorker.cancel(task)) {
+            throw new BusinessException(ResultCode.OPERATION_FAILED, "Task already finished: " + task.getStatus());
+        }
+        log.info("[ExternalTask] 任务已取消, taskCode: {}, apiKeyId: {}", taskCode, apiKey.getId());
+        return Result.success(graphTaskWorker.getTaskView(graphTaskWorker.getTask(taskCode)));
+    }
+
+    private GraphTask requireOwnedTask(String taskCode, ApiKey apiKey) {
+        GraphTask task = graphTaskWorker.getTask(taskCode);
+        if (task == null || !task.isAsync() || !Objects.equals(task.getApiKeyId(), apiKey.getId())) {
+            throw new BusinessException(ResultCode.GRAPH_TASK_NOT_FOUND, "Task not found: " + taskCode);
+        }
+        return task;
+    }
+
+    // ==================== 提交辅助（供各异步接口使用） ====================
+
+    /**
+     * 从请求体读取优先级和回调地址，任务归属当前 API Key
+     */
+    static GraphTaskWorker.SubmitOptions submitOptions(Map<String, Object> payload, ApiKey apiKey) {
+        Integer priority = null;
+        Object value = payload.get("priority");
+        if (value instanceof Number number) {
+            priority = number.intValue();
+        } else if (value != null && StringUtils.hasText(value.toString())) {
+            try {
+                priority = Integer.valueOf(value.toString().trim());
+            } catch (NumberFormatException e) {
+                throw new BusinessException(ResultCode.PARAM_ERROR, "priority must be an integer");
+            }
+        }
+        Object callbackUrl = payload.get("callbackUrl");
+        return new GraphTaskWorker.SubmitOptions(apiKey.getId(), priority,
+                callbackUrl != null ? callbackUrl.toString() : null);
+    }
+
+    /**
+     * 提交异步任务并返回任务视图，提交失败转换为业务异常
+     */
+    static Result<Map<String, Object>> submitAsync(GraphTaskWorker worker, Supplier<GraphTask> submit) {
+        if (!worker.isEnabled()) {
+            throw new BusinessException(ResultCode.ASYNC_TASK_DISABLED);
+        }
+        try {
+            return Result.success(worker.getTaskView(submit.get()));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new BusinessException(ResultCode.ASYNC_TASK_REJECTED, e.getMessage());
+        }
+    }
+}
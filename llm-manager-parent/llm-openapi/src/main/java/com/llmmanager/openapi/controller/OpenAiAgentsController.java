@@ -3,11 +3,13 @@ package com.llmmanager.openapi.controller;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.llmmanager.agent.storage.core.entity.ReactAgent;
+import com.llmmanager.agent.stream.ExecutionEvent;
 import com.llmmanager.common.exception.BusinessException;
 import com.llmmanager.common.result.ResultCode;
 import com.llmmanager.openapi.dto.openai.ChatCompletionRequest;
 import com.llmmanager.openapi.dto.openai.ChatCompletionResponse;
 import com.llmmanager.openapi.dto.openai.ModelsResponse;
+import com.llmmanager.service.dto.StreamResponseFormatter;
 import com.llmmanager.service.orchestration.DynamicReactAgentExecutionService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
@@ -15,8 +17,6 @@ import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import javax.annotation.Resource;
 import java.time.Duration;
@@ -78,6 +78,9 @@ public class OpenAiAgentsController {
     @Resource
     private ObjectMapper objectMapper;
 
+    @Resource
+    private StreamResponseFormatter responseFormatter;
+
     // ==================== Agent 列表 ====================
 
     /**
@@ -220,12 +223,13 @@ public class OpenAiAgentsController {
                 toSseEvent(ChatCompletionResponse.streamChunk(modelId, "", true))
         );
 
-        // 执行并返回结果
-        Flux<ServerSentEvent<String>> resultStream = Mono.fromCallable(() -> {
-                    Map<String, Object> response = dynamicReactAgentExecutionService.execute(slug, userMessage);
-                    return extractResult(response);
-                })
-                .subscribeOn(Schedulers.boundedElastic())
+        // 执行并返回结果（基于事件流执行，客户端断开时 Agent 随之中止）
+        Flux<ServerSentEvent<String>> resultStream = dynamicReactAgentExecutionService
+                .executeStream(slug, userMessage, null)
+                .filter(event -> event.getType() == ExecutionEvent.EventType.COMPLETE
+                        || event.getType() == ExecutionEvent.EventType.ERROR)
+                .next()
+                .map(event -> extractResult(event.getData()))
                 .flatMapMany(result -> {
                     // 将结果分块输出
                     return splitToChunks(result)
@@ -239,14 +243,14 @@ public class OpenAiAgentsController {
                 ServerSentEvent.<String>builder().data("[DONE]").build()
         );
 
-        return Flux.concat(firstChunk, resultStream, lastChunk)
+        return responseFormatter.withHeartbeat(Flux.concat(firstChunk, resultStream, lastChunk)
                 .onErrorResume(error -> {
                     log.error("[OpenAI Agents API] 流式执行失败，slug: {}", slug, error);
                     return Flux.just(
-                            toSseEvent("{\"error\":\"" + error.getMessage() + "\"}"),
+                            errorEvent(error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName()),
                             ServerSentEvent.<String>builder().data("[DONE]").build()
                     );
-                });
+                }));
     }
 
     /**
@@ -315,12 +319,19 @@ public class OpenAiAgentsController {
         }
     }
 
+    /**
+     * 构建错误事件（经 ObjectMapper 序列化，消息中的引号、换行等会被正确转义）
+     */
+    private ServerSentEvent<String> errorEvent(String message) {
+        return toSseEvent(Map.of("error", message));
+    }
+
     /**
      * 构建错误流
      */
     private Flux<ServerSentEvent<String>> errorStream(String message) {
         return Flux.just(
-                ServerSentEvent.<String>builder().data("{\"error\":\"" + message + "\"}").build(),
+                errorEvent(message),
                 ServerSentEvent.<String>builder().data("[DONE]").build()
         );
     }
@@ -6,14 +6,17 @@ import com.llmmanager.common.exception.BusinessException;
 import com.llmmanager.common.result.ResultCode;
 import com.llmmanager.openapi.dto.openai.ChatCompletionRequest;
 import com.llmmanager.openapi.dto.openai.ChatCompletionResponse;
+import com.llmmanager.openapi.dto.openai.ChatMessageConverter;
 import com.llmmanager.openapi.dto.openai.ModelsResponse;
 import com.llmmanager.service.core.entity.Agent;
 import com.llmmanager.service.core.entity.LlmModel;
 import com.llmmanager.service.core.service.AgentService;
 import com.llmmanager.service.core.service.LlmModelService;
 import com.llmmanager.service.dto.ChatStreamChunk;
+import com.llmmanager.service.dto.StreamResponseFormatter;
 import com.llmmanager.service.orchestration.LlmExecutionService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.Message;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.ServerSentEvent;
@@ -24,6 +27,7 @@ import reactor.core.publisher.Flux;
 import javax.annotation.Resource;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * OpenAI 兼容 Chat API Controller
@@ -54,6 +58,11 @@ import java.util.List;
  * )
  * </pre>
  *
+ * 多轮对话：
+ * - messages 整体透传给模型（system / user / assistant / tool，含多模态片段和 tool_calls）
+ * - 服务端不读写会话历史，无状态客户端自带历史即可获得完整上下文
+ * - temperature / top_p / max_tokens 覆盖模型默认配置
+ *
  * 注意：如需调用 ReactAgent，请使用 /v1/agents/{slug}/completions
  *
  * @author LLM Manager
@@ -69,6 +78,9 @@ public class OpenAiCompatibleController {
     @Resource
     private AgentService agentService;
 
+    @Resource
+    private StreamResponseFormatter responseFormatter;
+
     @Resource
     private LlmExecutionService llmExecutionService;
 
@@ -160,10 +172,9 @@ public class OpenAiCompatibleController {
      */
     private ChatCompletionResponse executeChatCompletion(ChatCompletionRequest request) {
         String model = request.getModel();
-        String userMessage = request.getUserMessage();
-        String systemMessage = request.getSystemMessage();
+        List<Message> messages = ChatMessageConverter.toMessages(request.getMessages());
 
-        log.info("[OpenAI API] 同步请求，model: {}", model);
+        log.info("[OpenAI API] 同步请求，model: {}, messages: {}", model, messages.size());
 
         try {
             LlmModel llmModel = findModel(model);
@@ -171,8 +182,9 @@ public class OpenAiCompatibleController {
                 throw new BusinessException(ResultCode.MODEL_NOT_FOUND, "Model not found: " + model);
             }
 
-            // 直接调用模型
-            String result = llmExecutionService.chat(llmModel.getId(), userMessage, null, systemMessage);
+            // 直接调用模型（完整消息列表透传，不经过服务端会话历史）
+            String result = llmExecutionService.chatWithMessages(llmModel.getId(), messages,
+                    request.getTemperature(), request.getTopP(), request.getMaxTokens());
             return ChatCompletionResponse.success(model, result);
 
         } catch (BusinessException e) {
@@ -188,10 +200,9 @@ public class OpenAiCompatibleController {
      */
     private Flux<ServerSentEvent<String>> chatCompletionsStream(ChatCompletionRequest request) {
         String model = request.getModel();
-        String userMessage = request.getUserMessage();
-        String systemMessage = request.getSystemMessage();
+        List<Message> messages = ChatMessageConverter.toMessages(request.getMessages());
 
-        log.info("[OpenAI API] 流式请求，model: {}", model);
+        log.info("[OpenAI API] 流式请求，model: {}, messages: {}", model, messages.size());
 
         LlmModel llmModel = findModel(model);
         if (llmModel == null) {
@@ -205,7 +216,8 @@ public class OpenAiCompatibleController {
 
         // 流式执行
         Flux<ServerSentEvent<String>> resultStream = llmExecutionService
-                .streamChat(llmModel.getId(), userMessage, null, systemMessage)
+                .streamWithMessages(llmModel.getId(), messages,
+                        request.getTemperature(), request.getTopP(), request.getMaxTokens())
                 .filter(chunk -> chunk != null && chunk.hasContent())
                 .map(chunk -> {
                     String content = chunk.getContent() != null ? chunk.getContent() : "";
@@ -218,14 +230,15 @@ public class OpenAiCompatibleController {
                 ServerSentEvent.<String>builder().data("[DONE]").build()
         );
 
-        return Flux.concat(firstChunk, resultStream, lastChunk)
+        // 心跳注释行用于及时发现客户端断开，断开后取消信号传到上游 LLM 请求
+        return responseFormatter.withHeartbeat(Flux.concat(firstChunk, resultStream, lastChunk)
                 .onErrorResume(error -> {
                     log.error("[OpenAI API] 流式执行失败，model: {}", model, error);
                     return Flux.just(
-                            toSseEvent("{\"error\":\"" + error.getMessage() + "\"}"),
+                            errorEvent(error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName()),
                             ServerSentEvent.<String>builder().data("[DONE]").build()
                     );
-                });
+                }));
     }
 
     /**
@@ -261,8 +274,11 @@ public class OpenAiCompatibleController {
         if (request.getMessages() == null || request.getMessages().isEmpty()) {
             throw new BusinessException(ResultCode.PARAM_ERROR, "Messages is required");
         }
-        if (!StringUtils.hasText(request.getUserMessage())) {
-            throw new BusinessException(ResultCode.PARAM_ERROR, "User message is required");
+        // 多轮对话最后一条可以是 tool 消息（工具结果回传），只要求存在 role
+        boolean missingRole = request.getMessages().stream()
+                .anyMatch(message -> message == null || !StringUtils.hasText(message.getRole()));
+        if (missingRole) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "Message role is required");
         }
     }
 
@@ -279,12 +295,19 @@ public class OpenAiCompatibleController {
         }
     }
 
+    /**
+     * 构建错误事件（经 ObjectMapper 序列化，消息中的引号、换行等会被正确转义）
+     */
+    private ServerSentEvent<String> errorEvent(String message) {
+        return toSseEvent(Map.of("error", message));
+    }
+
     /**
      * 构建错误流
      */
     private Flux<ServerSentEvent<String>> errorStream(String message) {
         return Flux.just(
-                ServerSentEvent.<String>builder().data("{\"error\":\"" + message + "\"}").build(),
+                errorEvent(message),
                 ServerSentEvent.<String>builder().data("[DONE]").build()
         );
     }
@@ -1,6 +1,8 @@
 package com.llmmanager.openapi.dto.openai;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.Data;
 
 import java.util.List;
@@ -74,19 +76,63 @@ public class ChatCompletionRequest {
     @Data
     public static class ChatMessage {
         /**
-         * 角色：system, user, assistant
+         * 角色：system, user, assistant, tool（developer 按 system 处理）
          */
         private String role;
 
         /**
-         * 消息内容
+         * 消息内容：字符串，或多模态片段数组（[{"type":"text","text":...}, {"type":"image_url","image_url":{"url":...}}]）
+         *
+         * 保留为 JSON 树，转换为模型消息时直接读取，不再二次序列化
          */
-        private String content;
+        private JsonNode content;
 
         /**
          * 消息名称（可选）
          */
         private String name;
+
+        /**
+         * assistant 消息发起的工具调用
+         */
+        @JsonProperty("tool_calls")
+        private List<ToolCall> toolCalls;
+
+        /**
+         * tool 消息对应的工具调用 ID
+         */
+        @JsonProperty("tool_call_id")
+        private String toolCallId;
+
+        /**
+         * 消息中的文本（多模态消息拼接所有 text 片段）
+         */
+        @JsonIgnore
+        public String getText() {
+            return ChatMessageConverter.textOf(content);
+        }
+    }
+
+    /**
+     * 工具调用
+     */
+    @Data
+    public static class ToolCall {
+        private String id;
+
+        private String type = "function";
+
+        private Function function;
+
+        @Data
+        public static class Function {
+            private String name;
+
+            /**
+             * 参数（OpenAI 格式为 JSON 字符串）
+             */
+            private JsonNode arguments;
+        }
     }
 
     /**
@@ -100,7 +146,7 @@ public class ChatCompletionRequest {
         for (int i = messages.size() - 1; i >= 0; i--) {
             ChatMessage msg = messages.get(i);
             if ("user".equalsIgnoreCase(msg.getRole())) {
-                return msg.getContent();
+                return msg.getText();
             }
         }
         return null;
@@ -115,7 +161,7 @@ public class ChatCompletionRequest {
         }
         for (ChatMessage msg : messages) {
             if ("system".equalsIgnoreCase(msg.getRole())) {
-                return msg.getContent();
+                return msg.getText();
             }
         }
         return null;
@@ -0,0 +1,171 @@
+package com.llmmanager.openapi.dto.openai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.content.Media;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * OpenAI 格式消息 → Spring AI Message 转换
+ *
+ * 客户端自带的完整历史（system / user / assistant / tool，含多模态片段和工具调用）原样透传给模型：
+ * - 单次遍历，content 直接从请求反序列化得到的 JSON 树读取，不再二次序列化
+ * - data URL 图片保持原字符串交给 OpenAI 客户端，不做 Base64 解码再编码
+ */
+@Slf4j
+public final class ChatMessageConverter {
+
+    private ChatMessageConverter() {
+    }
+
+    /**
+     * 批量转换（无法识别的空消息会被跳过）
+     */
+    public static List<Message> toMessages(List<ChatCompletionRequest.ChatMessage> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return List.of();
+        }
+        List<Message> result = new ArrayList<>(messages.size());
+        for (ChatCompletionRequest.ChatMessage message : messages) {
+            Message converted = toMessage(message);
+            if (converted != null) {
+                result.add(converted);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 提取文本：字符串直接返回，片段数组拼接所有 text 片段
+     */
+    public static String textOf(JsonNode content) {
+        if (content == null || content.isNull()) {
+            return null;
+        }
+        if (content.isTextual()) {
+            return content.asText();
+        }
+        if (!content.isArray()) {
+            return content.toString();
+        }
+        StringBuilder text = new StringBuilder();
+        for (JsonNode part : content) {
+            if ("text".equals(part.path("type").asText()) && part.hasNonNull("text")) {
+                if (!text.isEmpty()) {
+                    text.append('\n');
+                }
+                text.append(part.get("text").asText());
+            }
+        }
+        return text.toString();
+    }
+
+    private static Message toMessage(ChatCompletionRequest.ChatMessage message) {
+        if (message == null) {
+            return null;
+        }
+        String role = message.getRole() != null ? message.getRole().toLowerCase(Locale.ROOT) : "user";
+        return switch (role) {
+            case "system", "developer" -> new SystemMessage(nullToEmpty(textOf(message.getContent())));
+            case "assistant" -> toAssistantMessage(message);
+            case "tool", "function" -> new ToolResponseMessage(List.of(new ToolResponseMessage.ToolResponse(
+                    nullToEmpty(message.getToolCallId()), nullToEmpty(message.getName()),
+                    nullToEmpty(textOf(message.getContent())))));
+            default -> toUserMessage(message);
+        };
+    }
+
+    private static Message toAssistantMessage(ChatCompletionRequest.ChatMessage message) {
+        List<AssistantMessage.ToolCall> toolCalls = new ArrayList<>();
+        if (message.getToolCalls() != null) {
+            for (ChatCompletionRequest.ToolCall call : message.getToolCalls()) {
+                ChatCompletionRequest.ToolCall.Function function = call.getFunction();
+                if (function == null) {
+                    continue;
+                }
+                JsonNode arguments = function.getArguments();
+                // OpenAI 格式的 arguments 本身就是 JSON 字符串，直接透传
+                String argumentsJson = arguments == null || arguments.isNull() ? "{}"
+                        : arguments.isTextual() ? arguments.asText() : arguments.toString();
+                toolCalls.add(new AssistantMessage.ToolCall(nullToEmpty(call.getId()),
+                        call.getType() != null ? call.getType() : "function", function.getName(), argumentsJson));
+            }
+        }
+        return new AssistantMessage(nullToEmpty(textOf(message.getContent())), Map.of(), toolCalls);
+    }
+
+    private static Message toUserMessage(ChatCompletionRequest.ChatMessage message) {
+        JsonNode content = message.getContent();
+        if (content == null || !content.isArray()) {
+            return new UserMessage(nullToEmpty(textOf(content)));
+        }
+
+        List<Media> mediaList = new ArrayList<>();
+        for (JsonNode part : content) {
+            if ("image_url".equals(part.path("type").asText())) {
+                JsonNode imageUrl = part.path("image_url");
+                String url = imageUrl.isTextual() ? imageUrl.asText() : imageUrl.path("url").asText(null);
+                Media media = toMedia(url);
+                if (media != null) {
+                    mediaList.add(media);
+                }
+            }
+        }
+        String text = nullToEmpty(textOf(content));
+        if (mediaList.isEmpty()) {
+            return new UserMessage(text);
+        }
+        return UserMessage.builder()
+                .text(text)
+                .media(mediaList)
+                .build();
+    }
+
+    private static Media toMedia(String url) {
+        if (url == null || url.isEmpty()) {
+            return null;
+        }
+        try {
+            if (url.startsWith("data:")) {
+                // data:image/png;base64,...
+                int end = url.indexOf(';');
+                MimeType mimeType = end > 5 ? MimeType.valueOf(url.substring(5, end)) : MimeTypeUtils.IMAGE_PNG;
+                return Media.builder().mimeType(mimeType).data((Object) url).build();
+            }
+            return new Media(guessImageMimeType(url), URI.create(url));
+        } catch (Exception e) {
+            log.warn("[ChatMessageConverter] 忽略无效的图片地址: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static MimeType guessImageMimeType(String url) {
+        String lower = url.toLowerCase(Locale.ROOT);
+        if (lower.contains(".jpg") || lower.contains(".jpeg")) {
+            return MimeTypeUtils.IMAGE_JPEG;
+        }
+        if (lower.contains(".gif")) {
+            return MimeTypeUtils.IMAGE_GIF;
+        }
+        if (lower.contains(".webp")) {
+            return MimeType.valueOf("image/webp");
+        }
+        return MimeTypeUtils.IMAGE_PNG;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
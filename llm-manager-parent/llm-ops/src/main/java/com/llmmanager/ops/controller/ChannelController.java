@@ -1,14 +1,17 @@
 package com.llmmanager.ops.controller;
 
+import com.llmmanager.agent.routing.ChannelRouter;
 import com.llmmanager.common.exception.BusinessException;
 import com.llmmanager.common.result.Result;
 import com.llmmanager.common.result.ResultCode;
 import com.llmmanager.service.core.entity.Channel;
 import com.llmmanager.service.core.service.ChannelService;
+import com.llmmanager.service.orchestration.LlmExecutionService;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.Resource;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/channels")
@@ -17,11 +20,34 @@ public class ChannelController {
     @Resource
     private ChannelService channelService;
 
+    @Resource
+    private ChannelRouter channelRouter;
+
+    @Resource
+    private LlmExecutionService llmExecutionService;
+
     @GetMapping
     public Result<List<Channel>> getAll() {
         return Result.success(channelService.findAll());
     }
 
+    /**
+     * 渠道运行统计（在途请求数、EWMA 延迟、错误率、摘除状态），仅包含参与过渠道池路由的渠道
+     */
+    @GetMapping("/stats")
+    public Result<List<Map<String, Object>>> getStats() {
+        return Result.success(channelRouter.getStats());
+    }
+
+    /**
+     * 手动恢复被摘除的渠道
+     */
+    @PostMapping("/{id}/reset")
+    public Result<Void> reset(@PathVariable Long id) {
+        channelRouter.reset(id);
+        return Result.success();
+    }
+
     @PostMapping
     public Result<Channel> create(@RequestBody Channel channel) {
         return Result.success(channelService.create(channel));
@@ -47,6 +73,8 @@ public class ChannelController {
         // 设置ID后直接更新
         updated.setId(id);
         channelService.update(updated);
+        // 渠道的 apiKey / baseUrl 可能已变更，清理所有节点上用旧配置构建的 ChatModel
+        llmExecutionService.clearCacheForChannel(id);
 
         return Result.success(channelService.findById(id));
     }
@@ -54,6 +82,7 @@ public class ChannelController {
     @DeleteMapping("/{id}")
     public Result<Void> delete(@PathVariable Long id) {
         channelService.delete(id);
+        llmExecutionService.clearCacheForChannel(id);
         return Result.success();
     }
 }
@@ -0,0 +1,102 @@
+package com.llmmanager.ops.controller;
+
+import com.llmmanager.agent.storage.core.entity.ChatHistory;
+import com.llmmanager.agent.storage.core.entity.Conversation;
+import com.llmmanager.agent.storage.core.service.ChatHistoryService;
+import com.llmmanager.agent.storage.core.service.ConversationService;
+import com.llmmanager.agent.storage.memory.ChatHistoryRetentionService;
+import com.llmmanager.common.exception.BusinessException;
+import com.llmmanager.common.result.CursorPage;
+import com.llmmanager.common.result.Result;
+import com.llmmanager.common.result.ResultCode;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * 聊天历史 Controller
+ *
+ * 提供会话 / 消息列表（游标分页），保留任务的手动触发、状态查询，以及已归档会话的按需恢复。
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/chat-history")
+public class ChatHistoryController {
+
+    @Resource
+    private ConversationService conversationService;
+
+    @Resource
+    private ChatHistoryService chatHistoryService;
+
+    @Resource
+    private ChatHistoryRetentionService retentionService;
+
+    /**
+     * 会话列表（游标分页，置顶优先、按最后消息时间倒序）
+     *
+     * @param archived 是否归档（不传表示全部）
+     * @param cursor   上一页返回的 nextCursor（不传表示第一页）
+     */
+    @GetMapping("/conversations")
+    public Result<CursorPage<Conversation>> listConversations(@RequestParam(required = false) Boolean archived,
+                                                              @RequestParam(required = false) String cursor,
+                                                              @RequestParam(defaultValue = "20") int size) {
+        try {
+            return Result.success(conversationService.listByCursor(archived, cursor, size));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * 会话消息列表（游标分页，从最新消息向前翻页）
+     */
+    @GetMapping("/conversations/{conversationCode}/messages")
+    public Result<CursorPage<ChatHistory>> listMessages(@PathVariable String conversationCode,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(defaultValue = "50") int size) {
+        try {
+            return Result.success(chatHistoryService.listByCursor(conversationCode, cursor, size));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * 立即执行一次归档 / 清理，返回本次执行报告（归档 / 删除行数、归档文件大小、表空间变化）
+     */
+    @PostMapping("/retention/run")
+    public Result<Map<String, Object>> runRetention() {
+        try {
+            return Result.success(retentionService.runNow());
+        } catch (IllegalStateException e) {
+            throw new BusinessException(ResultCode.OPERATION_FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * 保留任务状态：配置、最近一次执行报告、归档统计、表空间占用
+     */
+    @GetMapping("/retention/stats")
+    public Result<Map<String, Object>> getRetentionStats() {
+        return Result.success(retentionService.getStats());
+    }
+
+    /**
+     * 从归档文件恢复会话的消息和轮次
+     */
+    @PostMapping("/conversations/{conversationCode}/restore")
+    public Result<Map<String, Object>> restoreConversation(@PathVariable String conversationCode) {
+        try {
+            return Result.success(retentionService.restore(conversationCode), "会话已恢复");
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ResultCode.DATA_NOT_FOUND, e.getMessage());
+        } catch (IllegalStateException e) {
+            log.warn("[ChatHistoryController] 恢复会话失败: conversationCode={}, error={}", conversationCode, e.getMessage());
+            throw new BusinessException(ResultCode.OPERATION_FAILED, e.getMessage());
+        }
+    }
+}
@@ -4,13 +4,16 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.llmmanager.agent.graph.workflow.DeepResearchWorkflow.ResearchProgress;
 import com.llmmanager.agent.graph.workflow.DeepResearchWorkflow.ResearchResult;
+import com.llmmanager.agent.storage.core.entity.GraphTask;
 import com.llmmanager.agent.storage.core.entity.GraphWorkflow;
 import com.llmmanager.agent.storage.core.service.GraphWorkflowService;
 import com.llmmanager.common.exception.BusinessException;
 import com.llmmanager.common.result.Result;
 import com.llmmanager.common.result.ResultCode;
+import com.llmmanager.service.dto.StreamResponseFormatter;
 import com.llmmanager.service.orchestration.DynamicWorkflowExecutionService;
 import com.llmmanager.service.orchestration.GraphExecutionService;
+import com.llmmanager.service.task.GraphTaskWorker;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerSentEvent;
@@ -22,6 +25,7 @@ import javax.annotation.Resource;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import com.llmmanager.ops.dto.WorkflowExecuteRequest;
 
@@ -30,7 +34,8 @@ import com.llmmanager.ops.dto.WorkflowExecuteRequest;
  *
  * 提供：
  * - DeepResearch 深度研究（硬编码工作流，by modelId / by slug）
- * - 通用动态工作流执行（从数据库读取配置，by slug）
+ * - 通用动态工作流执行（从数据库读取配置，by slug，支持同步与 SSE 流式）
+ * - 异步任务（提交后立即返回 taskCode，由后台 Worker 执行，支持查询 / SSE 进度 / 取消）
  */
 @Slf4j
 @RestController
@@ -46,6 +51,12 @@ public class GraphWorkflowController {
     @Resource
     private DynamicWorkflowExecutionService dynamicWorkflowExecutionService;
 
+    @Resource
+    private StreamResponseFormatter responseFormatter;
+
+    @Resource
+    private GraphTaskWorker graphTaskWorker;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     // ==================== DeepResearch 硬编码工作流 (by modelId) ====================
@@ -279,6 +290,48 @@ public class GraphWorkflowController {
         }
     }
 
+    /**
+     * 根据 slug 流式执行通用动态工作流（SSE）
+     *
+     * 事件：start → node_start / token / node_end → complete | error，最后以 [DONE] 结束
+     * 注：流式响应不使用 Result 包装
+     */
+    @PostMapping(value = "/workflow/execute/{slug}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> executeWorkflowStreamBySlug(
+            @PathVariable String slug,
+            @RequestBody WorkflowExecuteRequest request) {
+        log.info("[Graph] 流式执行动态工作流, slug: {}, question: {}", slug, request.getQuestion());
+
+        GraphWorkflow workflow = graphWorkflowService.getWorkflowBySlug(slug);
+        if (workflow == null) {
+            return Flux.just(ServerSentEvent.<String>builder()
+                    .event("error")
+                    .data("工作流不存在: " + slug)
+                    .build());
+        }
+
+        String graphConfig = workflow.getGraphConfig();
+        if (!StringUtils.hasText(graphConfig)) {
+            return Flux.just(ServerSentEvent.<String>builder()
+                    .event("error")
+                    .data("工作流配置为空: " + slug)
+                    .build());
+        }
+
+        Long modelId = workflow.getLlmModelId();
+        if (modelId == null) {
+            return Flux.just(ServerSentEvent.<String>builder()
+                    .event("error")
+                    .data("工作流未配置默认模型: " + slug)
+                    .build());
+        }
+
+        Map<String, Object> initialState = buildInitialState(request);
+
+        return responseFormatter.formatEvents(
+                dynamicWorkflowExecutionService.executeWorkflowStream(graphConfig, modelId, initialState));
+    }
+
     /**
      * 查询所有工作流配置
      */
@@ -310,8 +363,110 @@ public class GraphWorkflowController {
         return Result.success(workflow);
     }
 
+    // ==================== 异步任务 ====================
+
+    /**
+     * 异步执行深度研究（管理后台提交的任务不属于任何 API Key）
+     */
+    @PostMapping("/research/{modelId}/async")
+    public Result<Map<String, Object>> researchAsync(
+            @PathVariable Long modelId,
+            @RequestBody String question,
+            @RequestParam(required = false) Integer priority,
+            @RequestParam(required = false) String callbackUrl) {
+        log.info("[Graph] 提交异步深度研究, modelId: {}, question: {}", modelId, question);
+        return submitAsync(() -> graphTaskWorker.submitResearch(modelId, question,
+                new GraphTaskWorker.SubmitOptions(null, priority, callbackUrl)));
+    }
+
+    /**
+     * 根据 slug 异步执行通用动态工作流（提交时保存工作流配置快照）
+     */
+    @PostMapping("/workflow/execute/{slug}/async")
+    public Result<Map<String, Object>> executeWorkflowAsync(
+            @PathVariable String slug,
+            @RequestBody WorkflowExecuteRequest request) {
+        log.info("[Graph] 提交异步动态工作流, slug: {}, question: {}", slug, request.getQuestion());
+
+        GraphWorkflow workflow = graphWorkflowService.getWorkflowBySlug(slug);
+        if (workflow == null) {
+            throw new BusinessException(ResultCode.WORKFLOW_NOT_FOUND, "工作流不存在: " + slug);
+        }
+        if (!StringUtils.hasText(workflow.getGraphConfig())) {
+            throw new BusinessException(ResultCode.WORKFLOW_CONFIG_ERROR, "工作流配置为空: " + slug);
+        }
+        if (workflow.getLlmModelId() == null) {
+            throw new BusinessException(ResultCode.WORKFLOW_CONFIG_ERROR, "工作流未配置默认模型: " + slug);
+        }
+
+        return submitAsync(() -> graphTaskWorker.submitWorkflow(workflow, buildInitialState(request),
+                new GraphTaskWorker.SubmitOptions(null, request.getPriority(), request.getCallbackUrl())));
+    }
+
+    /**
+     * 查询异步任务
+     */
+    @GetMapping("/tasks/{taskCode}")
+    public Result<Map<String, Object>> getTask(@PathVariable String taskCode) {
+        return Result.success(graphTaskWorker.getTaskView(requireAsyncTask(taskCode)));
+    }
+
+    /**
+     * 订阅异步任务进度（SSE）
+     *
+     * 事件：status → 执行事件（仅任务在当前节点执行时）→ status，最后以 [DONE] 结束
+     * 注：流式响应不使用 Result 包装
+     */
+    @GetMapping(value = "/tasks/{taskCode}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> watchTask(@PathVariable String taskCode) {
+        requireAsyncTask(taskCode);
+        return responseFormatter.formatEvents(graphTaskWorker.watch(taskCode));
+    }
+
+    /**
+     * 取消异步任务
+     */
+    @PostMapping("/tasks/{taskCode}/cancel")
+    public Result<Map<String, Object>> cancelTask(@PathVariable String taskCode) {
+        GraphTask task = requireAsyncTask(taskCode);
+        if (!graphTaskWorker.cancel(task)) {
+            throw new BusinessException(ResultCode.OPERATION_FAILED, "任务已结束: " + task.getStatus());
+        }
+        log.info("[Graph] 异步任务已取消, taskCode: {}", taskCode);
+        return Result.success(graphTaskWorker.getTaskView(graphTaskWorker.getTask(taskCode)));
+    }
+
+    /**
+     * 异步任务队列统计
+     */
+    @GetMapping("/tasks/stats")
+    public Result<Map<String, Object>> getTaskStats() {
+        return Result.success(graphTaskWorker.getStats());
+    }
+
     // ==================== 私有方法 ====================
 
+    private Result<Map<String, Object>> submitAsync(Supplier<GraphTask> submit) {
+        if (!graphTaskWorker.isEnabled()) {
+            throw new BusinessException(ResultCode.ASYNC_TASK_DISABLED);
+        }
+        try {
+            return Result.success(graphTaskWorker.getTaskView(submit.get()));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new BusinessException(ResultCode.ASYNC_TASK_REJECTED, e.getMessage());
+        }
+    }
+
+    private GraphTask requireAsyncTask(String taskCode) {
+        GraphTask task = graphTaskWorker.getTask(taskCode);
+        if (task == null || !task.isAsync()) {
+            throw new BusinessException(ResultCode.GRAPH_TASK_NOT_FOUND, "任务不存在: " + taskCode);
+        }
+        return task;
+    }
+
     private Map<String, Object> buildInitialState(WorkflowExecuteRequest request) {
         Map<String, Object> state = new HashMap<>();
 
@@ -1,9 +1,15 @@
 package com.llmmanager.ops.controller;
 
+import com.llmmanager.agent.rag.DocumentIngestionPipeline;
+import com.llmmanager.agent.rag.DocumentIngestionWorker;
 import com.llmmanager.agent.rag.DocumentProcessor;
 import com.llmmanager.agent.rag.VectorStoreManager;
+import com.llmmanager.agent.rag.config.RagProperties;
+import com.llmmanager.agent.rag.lexical.LexicalIndexManager;
+import com.llmmanager.agent.storage.core.entity.DocumentJob;
 import com.llmmanager.agent.storage.core.entity.KnowledgeBase;
 import com.llmmanager.agent.storage.core.entity.KnowledgeDocument;
+import com.llmmanager.agent.storage.core.service.DocumentJobService;
 import com.llmmanager.agent.storage.core.service.KnowledgeBaseService;
 import com.llmmanager.agent.storage.core.service.KnowledgeDocumentService;
 import com.llmmanager.common.exception.BusinessException;
@@ -14,10 +20,21 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * 知识库管理 Controller
@@ -43,6 +60,21 @@ public class KnowledgeBaseController {
     @Resource
     private DocumentProcessor documentProcessor;
 
+    @Resource
+    private DocumentIngestionPipeline ingestionPipeline;
+
+    @Resource
+    private DocumentIngestionWorker ingestionWorker;
+
+    @Resource
+    private DocumentJobService documentJobService;
+
+    @Resource
+    private RagProperties ragProperties;
+
+    @Resource
+    private LexicalIndexManager lexicalIndexManager;
+
     // ==================== 知识库 CRUD ====================
 
     /**
@@ -113,6 +145,10 @@ public class KnowledgeBaseController {
         updated.setId(id);
         updated.setKbCode(existing.getKbCode());
         knowledgeBaseService.updateById(updated);
+        if (updated.getMetadata() != null && updated.getMetadata().containsKey("filterColumns")) {
+            // 声明了新的常用过滤 key 时同步创建生成列和索引
+            vectorStoreManager.ensureFilterColumns(existing.getKbCode());
+        }
         return Result.success(knowledgeBaseService.getById(id));
     }
 
@@ -154,9 +190,7 @@ public class KnowledgeBaseController {
         KnowledgeDocument doc = documentService.addTextDocument(
                 kbCode, request.title, request.content, request.metadata);
 
-        if (Boolean.TRUE.equals(request.processNow)) {
-            documentProcessor.processDocument(doc);
-        }
+        dispatch(doc, request.processNow);
 
         return Result.success(doc);
     }
@@ -174,9 +208,7 @@ public class KnowledgeBaseController {
         KnowledgeDocument doc = documentService.addMarkdownDocument(
                 kbCode, request.title, request.content, request.metadata);
 
-        if (Boolean.TRUE.equals(request.processNow)) {
-            documentProcessor.processDocument(doc);
-        }
+        dispatch(doc, request.processNow);
 
         return Result.success(doc);
     }
@@ -191,19 +223,73 @@ public class KnowledgeBaseController {
             throw new BusinessException(ResultCode.KNOWLEDGE_BASE_NOT_FOUND, "知识库不存在: " + kbCode);
         }
 
-        return Result.success(documentService.addUrlDocument(kbCode, request.title, request.sourceUrl, request.metadata));
+        KnowledgeDocument doc = documentService.addUrlDocument(kbCode, request.title, request.sourceUrl, request.metadata);
+
+        dispatch(doc, request.processNow);
+
+        return Result.success(doc);
+    }
+
+    /**
+     * 上传文件文档（PDF / DOCX / HTML / TXT / MD / JSON）
+     *
+     * 文件流式写入 llm.rag.reader.upload-path，同时计算内容哈希。
+     */
+    @PostMapping("/{kbCode}/documents/file")
+    public Result<KnowledgeDocument> uploadFileDocument(@PathVariable String kbCode,
+                                                        @RequestParam("file") MultipartFile file,
+                                                        @RequestParam(defaultValue = "false") Boolean processNow) {
+        if (knowledgeBaseService.getByKbCode(kbCode) == null) {
+            throw new BusinessException(ResultCode.KNOWLEDGE_BASE_NOT_FOUND, "知识库不存在: " + kbCode);
+        }
+        if (file.isEmpty()) {
+            throw new BusinessException(ResultCode.PARAM_ERROR, "上传文件为空");
+        }
+
+        String fileName = Path.of(String.valueOf(file.getOriginalFilename())).getFileName().toString();
+        Path target = Path.of(ragProperties.getReader().getUploadPath(), kbCode, UUID.randomUUID() + "_" + fileName);
+        String contentHash;
+        try {
+            Files.createDirectories(target.getParent());
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, target);
+            }
+            contentHash = HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.error("[KnowledgeBase] 保存上传文件失败: {}", e.getMessage(), e);
+            throw new BusinessException(ResultCode.DOCUMENT_PROCESS_FAILED, "保存文件失败: " + e.getMessage());
+        }
+
+        KnowledgeDocument doc = documentService.addFileDocument(kbCode, fileName, target.toAbsolutePath().toString(),
+                file.getContentType(), file.getSize(), contentHash, null);
+
+        dispatch(doc, processNow);
+
+        return Result.success(doc);
     }
 
     /**
      * 处理文档（执行分割和向量化）
+     *
+     * 启用后台 Worker 时只入队并返回任务 Code（sync=true 时仍在请求内同步处理）
      */
     @PostMapping("/documents/{docCode}/process")
-    public Result<Map<String, Object>> processDocument(@PathVariable String docCode) {
+    public Result<Map<String, Object>> processDocument(@PathVariable String docCode,
+                                                       @RequestParam(defaultValue = "false") Boolean sync) {
         KnowledgeDocument doc = documentService.getByDocCode(docCode);
         if (doc == null) {
             throw new BusinessException(ResultCode.DOCUMENT_NOT_FOUND, "文档不存在: " + docCode);
         }
 
+        if (ingestionWorker.isEnabled() && !Boolean.TRUE.equals(sync)) {
+            DocumentJob job = ingestionWorker.submit(doc);
+            Map<String, Object> result = new HashMap<>();
+            result.put("jobCode", job.getJobCode());
+            result.put("status", job.getStatus());
+            return Result.success(result, "已加入处理队列");
+        }
+
         try {
             int chunkCount = documentProcessor.processDocument(doc);
             Map<String, Object> result = new HashMap<>();
@@ -217,16 +303,124 @@ public class KnowledgeBaseController {
 
     /**
      * 批量处理待处理的文档
+     *
+     * 启用后台 Worker 时只入队并返回任务 Code
      */
     @PostMapping("/documents/process-pending")
     public Result<Map<String, Object>> processPendingDocuments(
             @RequestParam(defaultValue = "10") int limit) {
+        if (ingestionWorker.isEnabled()) {
+            List<String> jobCodes = new ArrayList<>();
+            for (KnowledgeDocument doc : documentService.listPendingDocuments(limit)) {
+                jobCodes.add(ingestionWorker.submit(doc).getJobCode());
+            }
+            Map<String, Object> result = new HashMap<>();
+            result.put("queuedCount", jobCodes.size());
+            result.put("jobCodes", jobCodes);
+            return Result.success(result, "已加入处理队列 " + jobCodes.size() + " 个");
+        }
+
         int successCount = documentProcessor.processPendingDocuments(limit);
         Map<String, Object> result = new HashMap<>();
         result.put("processedCount", successCount);
         return Result.success(result, "处理完成，成功 " + successCount + " 个");
     }
 
+    /**
+     * 查询入库任务进度（任务状态、执行次数、排队位置、文档状态）
+     */
+    @GetMapping("/documents/jobs/{jobCode}")
+    public Result<Map<String, Object>> getDocumentJob(@PathVariable String jobCode) {
+        DocumentJob job = documentJobService.getByJobCode(jobCode);
+        if (job == null) {
+            throw new BusinessException(ResultCode.DATA_NOT_FOUND, "入库任务不存在: " + jobCode);
+        }
+        return Result.success(ingestionWorker.getJobProgress(job));
+    }
+
+    /**
+     * 死信任务重新入队
+     */
+    @PostMapping("/documents/jobs/{jobCode}/retry")
+    public Result<Map<String, Object>> retryDocumentJob(@PathVariable String jobCode) {
+        DocumentJob job = documentJobService.getByJobCode(jobCode);
+        if (job == null) {
+            throw new BusinessException(ResultCode.DATA_NOT_FOUND, "入库任务不存在: " + jobCode);
+        }
+        if (!job.isDead() || !ingestionWorker.retryDead(job)) {
+            throw new BusinessException(ResultCode.BAD_REQUEST, "只有死信任务可以重新入队，当前状态: " + job.getStatus());
+        }
+        return Result.success(ingestionWorker.getJobProgress(documentJobService.getByJobCode(jobCode)), "已重新入队");
+    }
+
+    /**
+     * 入库任务队列统计（各状态任务数、本节点执行情况）
+     */
+    @GetMapping("/documents/jobs/stats")
+    public Result<Map<String, Object>> getDocumentJobStats() {
+        return Result.success(ingestionWorker.getStats());
+    }
+
+    /**
+     * 查询知识库最近的入库任务
+     */
+    @GetMapping("/{kbCode}/jobs")
+    public Result<List<DocumentJob>> getDocumentJobs(@PathVariable String kbCode,
+                                                     @RequestParam(defaultValue = "50") int limit) {
+        return Result.success(documentJobService.listByKbCode(kbCode, Math.max(1, Math.min(limit, 500))));
+    }
+
+    /**
+     * 获取知识库入库进度（文档数、已写入文本块数、吞吐量）
+     */
+    @GetMapping("/{kbCode}/ingest-progress")
+    public Result<Map<String, Object>> getIngestProgress(@PathVariable String kbCode) {
+        return Result.success(ingestionPipeline.getProgress(kbCode));
+    }
+
+    /**
+     * 获取知识库关键词索引统计（文本块数、词数、倒排表字节数）
+     */
+    @GetMapping("/{kbCode}/lexical-index")
+    public Result<Map<String, Object>> getLexicalIndexStats(@PathVariable String kbCode) {
+        if (!lexicalIndexManager.isEnabled()) {
+            throw new BusinessException(ResultCode.BAD_REQUEST, "混合检索未启用（llm.rag.hybrid.enabled=false）");
+        }
+        return Result.success(lexicalIndexManager.getStats(kbCode));
+    }
+
+    /**
+     * 获取知识库可下推到索引的过滤列（TiDB 向量存储，按 metadata.filterColumns 声明创建）
+     */
+    @GetMapping("/{kbCode}/filter-columns")
+    public Result<Map<String, Object>> getFilterColumns(@PathVariable String kbCode) {
+        return Result.success(vectorStoreManager.ensureFilterColumns(kbCode));
+    }
+
+    /**
+     * 获取知识库向量量化索引统计（量化模式、向量数、每向量字节数、内存占用）
+     */
+    @GetMapping("/{kbCode}/quantization")
+    public Result<Map<String, Object>> getQuantizationStats(@PathVariable String kbCode) {
+        Map<String, Object> stats = vectorStoreManager.getQuantizationStats(kbCode);
+        if (stats == null) {
+            throw new BusinessException(ResultCode.BAD_REQUEST, "向量量化未启用或当前向量存储不支持（llm.rag.quantization.enabled=false）");
+        }
+        return Result.success(stats);
+    }
+
+    /**
+     * 用知识库当前数据重新训练量化码本（数据分布明显变化后使用）
+     */
+    @PostMapping("/{kbCode}/quantization/retrain")
+    public Result<Map<String, Object>> retrainQuantizer(@PathVariable String kbCode) {
+        Map<String, Object> stats = vectorStoreManager.retrainQuantizer(kbCode);
+        if (stats == null) {
+            throw new BusinessException(ResultCode.BAD_REQUEST, "向量量化未启用或当前向量存储不支持（llm.rag.quantization.enabled=false）");
+        }
+        return Result.success(stats, "码本训练完成");
+    }
+
     /**
      * 删除文档
      */
@@ -241,6 +435,17 @@ public class KnowledgeBaseController {
         return Result.success();
     }
 
+    /**
+     * 新文档入库：启用后台 Worker 时入队并回填任务 Code，否则 processNow=true 时同步处理
+     */
+    private void dispatch(KnowledgeDocument doc, Boolean processNow) {
+        if (ingestionWorker.isEnabled()) {
+            doc.setJobCode(ingestionWorker.submit(doc).getJobCode());
+        } else if (Boolean.TRUE.equals(processNow)) {
+            documentProcessor.processDocument(doc);
+        }
+    }
+
     // ==================== 检索功能 ====================
 
     /**
@@ -325,7 +530,8 @@ public class KnowledgeBaseController {
     public record AddUrlDocumentRequest(
             String title,
             String sourceUrl,
-            Map<String, Object> metadata
+            Map<String, Object> metadata,
+            Boolean processNow
     ) {}
 
     public record SearchRequest(
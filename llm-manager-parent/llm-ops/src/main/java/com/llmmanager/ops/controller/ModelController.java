@@ -4,7 +4,10 @@ import com.llmmanager.common.exception.BusinessException;
 import com.llmmanager.common.result.Result;
 import com.llmmanager.common.result.ResultCode;
 import com.llmmanager.service.core.entity.LlmModel;
+import com.llmmanager.service.core.entity.LlmModelChannel;
+import com.llmmanager.service.core.service.LlmModelChannelService;
 import com.llmmanager.service.core.service.LlmModelService;
+import com.llmmanager.service.orchestration.ChatModelProvider;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
@@ -18,6 +21,12 @@ public class ModelController {
     @Resource
     private LlmModelService llmModelService;
 
+    @Resource
+    private LlmModelChannelService llmModelChannelService;
+
+    @Resource
+    private ChatModelProvider chatModelProvider;
+
     @GetMapping
     public Result<List<LlmModel>> getAll() {
         return Result.success(llmModelService.findAll());
@@ -58,6 +67,7 @@ public class ModelController {
         // 设置ID后直接更新
         updated.setId(id);
         llmModelService.update(updated);
+        chatModelProvider.evictRequestTemplate(id);
 
         return Result.success(llmModelService.findById(id));
     }
@@ -65,6 +75,49 @@ public class ModelController {
     @DeleteMapping("/{id}")
     public Result<Void> delete(@PathVariable Long id) {
         llmModelService.delete(id);
+        chatModelProvider.evictRequestTemplate(id);
+        return Result.success();
+    }
+
+    // ==================== 渠道池 ====================
+
+    @GetMapping("/{id}/channels")
+    public Result<List<LlmModelChannel>> getChannels(@PathVariable Long id) {
+        return Result.success(llmModelChannelService.findByModelId(id));
+    }
+
+    @PostMapping("/{id}/channels")
+    public Result<LlmModelChannel> addChannel(@PathVariable Long id, @RequestBody LlmModelChannel modelChannel) {
+        if (llmModelService.findById(id) == null) {
+            throw new BusinessException(ResultCode.MODEL_NOT_FOUND, "模型不存在: " + id);
+        }
+        if (modelChannel.getChannelId() == null) {
+            throw BusinessException.paramError("channelId 不能为空");
+        }
+        modelChannel.setModelId(id);
+        LlmModelChannel created = llmModelChannelService.create(modelChannel);
+        chatModelProvider.evictRequestTemplate(id);
+        return Result.success(created);
+    }
+
+    @PutMapping("/{id}/channels/{memberId}")
+    public Result<LlmModelChannel> updateChannel(@PathVariable Long id, @PathVariable Long memberId,
+                                                 @RequestBody LlmModelChannel updated) {
+        LlmModelChannel existing = llmModelChannelService.getById(memberId);
+        if (existing == null || !id.equals(existing.getModelId())) {
+            throw BusinessException.paramError("渠道池成员不存在: " + memberId);
+        }
+        updated.setId(memberId);
+        updated.setModelId(id);
+        llmModelChannelService.update(updated);
+        chatModelProvider.evictRequestTemplate(id);
+        return Result.success(llmModelChannelService.getById(memberId));
+    }
+
+    @DeleteMapping("/{id}/channels/{memberId}")
+    public Result<Void> removeChannel(@PathVariable Long id, @PathVariable Long memberId) {
+        llmModelChannelService.delete(memberId);
+        chatModelProvider.evictRequestTemplate(id);
         return Result.success();
     }
 }
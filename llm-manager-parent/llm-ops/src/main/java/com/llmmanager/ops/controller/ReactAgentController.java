@@ -4,10 +4,14 @@ import com.llmmanager.agent.storage.core.entity.ReactAgent;
 import com.llmmanager.common.exception.BusinessException;
 import com.llmmanager.common.result.Result;
 import com.llmmanager.common.result.ResultCode;
+import com.llmmanager.service.dto.StreamResponseFormatter;
 import com.llmmanager.service.orchestration.DynamicReactAgentExecutionService;
 import com.llmmanager.service.orchestration.ReactAgentExecutionService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import javax.annotation.Resource;
 import java.util.List;
@@ -35,6 +39,9 @@ public class ReactAgentController {
     @Resource
     private DynamicReactAgentExecutionService dynamicReactAgentExecutionService;
 
+    @Resource
+    private StreamResponseFormatter responseFormatter;
+
     // ==================== 1. 单个 ReactAgent 示例（硬编码） ====================
 
     /**
@@ -128,6 +135,21 @@ public class ReactAgentController {
         }
     }
 
+    /**
+     * 根据 slug 从数据库加载 Agent 并流式执行（SSE）
+     *
+     * 事件：start → token / reasoning / tool_start / tool_end / handoff → complete | error，最后以 [DONE] 结束
+     * 客户端断开后 Agent 执行随之中止
+     */
+    @PostMapping(value = "/db/{slug}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> executeFromDatabaseStream(
+            @PathVariable String slug,
+            @RequestBody String message) {
+
+        log.info("[ReactAgent] 从数据库加载 Agent 流式执行，slug: {}, message: {}", slug, message);
+        return responseFormatter.formatEvents(dynamicReactAgentExecutionService.executeStream(slug, message, null));
+    }
+
     /**
      * 获取所有可用的 Agent 配置列表
      */
@@ -32,4 +32,14 @@ public class WorkflowExecuteRequest {
      * 注意：question 会自动添加到初始状态中，无需重复设置
      */
     private Map<String, Object> customState;
+
+    /**
+     * 异步执行的优先级（可选，仅 /async 接口使用，数值越大越先执行）
+     */
+    private Integer priority;
+
+    /**
+     * 异步执行的结果回调地址（可选，仅 /async 接口使用）
+     */
+    private String callbackUrl;
 }
@@ -0,0 +1,16 @@
+package com.llmmanager.service.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * 异步执行配置
+ *
+ * 启用 @Async（如人工审核批准后的恢复执行），执行器为 Spring Boot 自动配置的 applicationTaskExecutor：
+ * - 默认：ThreadPoolTaskExecutor，线程数见 spring.task.execution.pool.*
+ * - spring.threads.virtual.enabled=true 且运行在 JDK 21+：每个任务一个虚拟线程，恢复执行中等待模型响应不占用平台线程
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+}
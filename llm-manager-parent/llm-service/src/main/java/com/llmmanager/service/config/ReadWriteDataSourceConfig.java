@@ -0,0 +1,139 @@
+package com.llmmanager.service.config;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.alibaba.druid.spring.boot3.autoconfigure.DruidDataSourceBuilder;
+import com.llmmanager.agent.config.ReadWriteRoutingProperties;
+import com.llmmanager.agent.storage.datasource.ReadWriteRoutingDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 读写分离数据源配置
+ *
+ * 开启后由本配置创建数据源（Druid 自动配置因已存在 DataSource 而不再创建）：
+ * - 主库连接池：沿用 spring.datasource / spring.datasource.druid 配置
+ * - 从库连接池：llm.datasource.read-write.replicas，各自独立的连接数配置
+ * - 路由数据源：@Primary，MyBatis-Plus 的所有 Mapper 通过它获取连接
+ *
+ * 每个连接池注册 llm.datasource.pool.* 指标（active / idle / waiting / max），
+ * Druid 监控页 /druid 中也能分别看到每个连接池的 SQL 统计。
+ *
+ * 配置开关：llm.datasource.read-write.enabled=true
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "llm.datasource.read-write.enabled", havingValue = "true", matchIfMissing = false)
+public class ReadWriteDataSourceConfig implements DisposableBean {
+
+    private final List<DruidDataSource> replicaPools = new ArrayList<>();
+
+    /**
+     * 主库连接池
+     */
+    @Bean(initMethod = "init", destroyMethod = "close")
+    @ConfigurationProperties("spring.datasource.druid")
+    public DruidDataSource primaryDataSource() {
+        DruidDataSource dataSource = DruidDataSourceBuilder.create().build();
+        dataSource.setName(ReadWriteRoutingDataSource.PRIMARY);
+        return dataSource;
+    }
+
+    /**
+     * 路由数据源
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(DruidDataSource primaryDataSource,
+                                 ReadWriteRoutingProperties properties,
+                                 MeterRegistry meterRegistry) throws SQLException {
+        registerPoolMetrics(primaryDataSource, meterRegistry);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<ReadWriteRoutingProperties.Replica> replicaConfigs = properties.getReplicas();
+        for (int i = 0; i < replicaConfigs.size(); i++) {
+            ReadWriteRoutingProperties.Replica config = replicaConfigs.get(i);
+            if (config.getUrl() == null || config.getUrl().isBlank()) {
+                log.warn("[ReadWriteDataSourceConfig] 第 {} 个从库未配置 url，已忽略", i + 1);
+                continue;
+            }
+            String name = config.getName() != null && !config.getName().isBlank()
+                    ? config.getName() : "replica-" + (i + 1);
+            DruidDataSource pool = createReplicaPool(name, config, primaryDataSource);
+            replicaPools.add(pool);
+            replicas.put(name, pool);
+            registerPoolMetrics(pool, meterRegistry);
+        }
+
+        if (replicas.isEmpty()) {
+            log.warn("[ReadWriteDataSourceConfig] 已开启读写分离但未配置从库，所有查询走主库");
+        } else {
+            log.info("[ReadWriteDataSourceConfig] 读写分离已启用: replicas={}, readYourWritesWindow={}ms",
+                    replicas.keySet(), properties.getReadYourWritesWindowMs());
+        }
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicas,
+                properties.getReplicaCooldownMs(), meterRegistry);
+    }
+
+    @Override
+    public void destroy() {
+        replicaPools.forEach(DruidDataSource::close);
+    }
+
+    /**
+     * 创建从库连接池：连接数单独配置，连接检测 / 空闲回收沿用主库配置
+     */
+    private DruidDataSource createReplicaPool(String name, ReadWriteRoutingProperties.Replica config,
+                                              DruidDataSource primary) throws SQLException {
+        DruidDataSource pool = new DruidDataSource();
+        pool.setName(name);
+        pool.setUrl(config.getUrl());
+        pool.setUsername(config.getUsername() != null ? config.getUsername() : primary.getUsername());
+        pool.setPassword(config.getPassword() != null ? config.getPassword() : primary.getPassword());
+        pool.setDriverClassName(primary.getDriverClassName());
+
+        pool.setInitialSize(config.getInitialSize());
+        pool.setMinIdle(config.getMinIdle());
+        pool.setMaxActive(config.getMaxActive());
+        pool.setMaxWait(config.getMaxWait());
+        // 从库连不上时立即失败并回落主库，而不是让只读请求等满 maxWait
+        pool.setFailFast(true);
+
+        pool.setValidationQuery(primary.getValidationQuery());
+        pool.setTestWhileIdle(primary.isTestWhileIdle());
+        pool.setTestOnBorrow(primary.isTestOnBorrow());
+        pool.setTestOnReturn(primary.isTestOnReturn());
+        pool.setTimeBetweenEvictionRunsMillis(primary.getTimeBetweenEvictionRunsMillis());
+        pool.setMinEvictableIdleTimeMillis(primary.getMinEvictableIdleTimeMillis());
+        pool.setPoolPreparedStatements(primary.isPoolPreparedStatements());
+        pool.setMaxPoolPreparedStatementPerConnectionSize(primary.getMaxPoolPreparedStatementPerConnectionSize());
+        pool.setConnectProperties(primary.getConnectProperties());
+        pool.setFilters(config.getFilters());
+        return pool;
+    }
+
+    static void registerPoolMetrics(DruidDataSource pool, MeterRegistry meterRegistry) {
+        String name = pool.getName();
+        Gauge.builder("llm.datasource.pool.active", pool, DruidDataSource::getActiveCount)
+                .tag("pool", name).description("使用中的连接数").register(meterRegistry);
+        Gauge.builder("llm.datasource.pool.idle", pool, DruidDataSource::getPoolingCount)
+                .tag("pool", name).description("空闲连接数").register(meterRegistry);
+        Gauge.builder("llm.datasource.pool.waiting", pool, DruidDataSource::getWaitThreadCount)
+                .tag("pool", name).description("等待获取连接的线程数").register(meterRegistry);
+        Gauge.builder("llm.datasource.pool.max", pool, DruidDataSource::getMaxActive)
+                .tag("pool", name).description("最大连接数").register(meterRegistry);
+    }
+}
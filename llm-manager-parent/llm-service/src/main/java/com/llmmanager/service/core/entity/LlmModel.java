@@ -49,4 +49,9 @@ public class LlmModel extends BaseEntity {
      * 最大token数
      */
     private Integer maxTokens;
+
+    /**
+     * 是否启用对冲请求（非流式对话慢于该模型 p90 耗时时发起第二个请求，先返回者生效）
+     */
+    private Boolean hedgeEnabled = false;
 }
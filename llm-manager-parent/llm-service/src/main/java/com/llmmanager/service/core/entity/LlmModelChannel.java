@@ -0,0 +1,46 @@
+package com.llmmanager.service.core.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.llmmanager.common.entity.BaseEntity;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 模型渠道池成员实体
+ *
+ * 模型的主渠道（LlmModel.channelId）之外，额外提供同一模型的渠道及其权重。
+ * 存在启用的成员时，该模型按渠道池做负载均衡和故障转移。
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("p_llm_model_channel")
+public class LlmModelChannel extends BaseEntity {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 模型ID
+     */
+    @TableField("model_id")
+    private Long modelId;
+
+    /**
+     * 渠道ID
+     */
+    @TableField("channel_id")
+    private Long channelId;
+
+    /**
+     * 权重（越大分到的流量越多）
+     */
+    private Integer weight = 100;
+
+    /**
+     * 是否启用
+     */
+    private Boolean enabled = true;
+}
@@ -0,0 +1,9 @@
+package com.llmmanager.service.core.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.llmmanager.service.core.entity.LlmModelChannel;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface LlmModelChannelMapper extends BaseMapper<LlmModelChannel> {
+}
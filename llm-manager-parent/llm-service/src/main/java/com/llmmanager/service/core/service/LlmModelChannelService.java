@@ -0,0 +1,41 @@
+package com.llmmanager.service.core.service;
+
+import com.llmmanager.service.core.entity.LlmModelChannel;
+
+import java.util.List;
+
+/**
+ * 模型渠道池 Service 接口
+ */
+public interface LlmModelChannelService {
+
+    /**
+     * 查询模型的渠道池成员（含禁用）
+     */
+    List<LlmModelChannel> findByModelId(Long modelId);
+
+    /**
+     * 查询模型启用的渠道池成员
+     */
+    List<LlmModelChannel> findEnabledByModelId(Long modelId);
+
+    /**
+     * 添加渠道池成员
+     */
+    LlmModelChannel create(LlmModelChannel modelChannel);
+
+    /**
+     * 更新渠道池成员（权重 / 启用状态）
+     */
+    LlmModelChannel update(LlmModelChannel modelChannel);
+
+    /**
+     * 删除渠道池成员
+     */
+    void delete(Long id);
+
+    /**
+     * 根据 ID 获取渠道池成员
+     */
+    LlmModelChannel getById(Long id);
+}
@@ -2,20 +2,35 @@ package com.llmmanager.service.core.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.llmmanager.agent.cache.CacheRegion;
+import com.llmmanager.agent.cache.CacheRegionManager;
 import com.llmmanager.service.core.service.ApiKeyService;
 import com.llmmanager.service.core.entity.ApiKey;
 import com.llmmanager.service.core.mapper.ApiKeyMapper;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
 
 /**
  * API Key Service 实现
+ *
+ * findByToken 是 OpenAPI 每个请求的鉴权查询，结果放在共享缓存区域 api-key 中（键为 token 的 SHA-256，
+ * 不以明文 token 作为 Redis 键）；更新 / 删除 / 吊销后失效对应缓存并广播到所有节点。
  */
 @Service
 public class ApiKeyServiceImpl extends ServiceImpl<ApiKeyMapper, ApiKey> implements ApiKeyService {
 
+    private static final String API_KEY_REGION = "api-key";
+
+    @Resource
+    private CacheRegionManager cacheRegionManager;
+
     @Override
     public List<ApiKey> findAll() {
         return list();
@@ -31,9 +46,12 @@ public class ApiKeyServiceImpl extends ServiceImpl<ApiKeyMapper, ApiKey> impleme
         if (!StringUtils.hasText(token)) {
             return null;
         }
-        LambdaQueryWrapper<ApiKey> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(ApiKey::getToken, token);
-        return getOne(queryWrapper);
+        // 不存在的 token 不缓存（loader 返回 null），避免随机 token 撑满缓存
+        return apiKeyCache().get(sha256(token), k -> {
+            LambdaQueryWrapper<ApiKey> queryWrapper = new LambdaQueryWrapper<>();
+            queryWrapper.eq(ApiKey::getToken, token);
+            return getOne(queryWrapper);
+        });
     }
 
     @Override
@@ -45,13 +63,22 @@ public class ApiKeyServiceImpl extends ServiceImpl<ApiKeyMapper, ApiKey> impleme
 
     @Override
     public ApiKey update(ApiKey apiKey) {
+        ApiKey existing = apiKey.getId() != null ? getById(apiKey.getId()) : null;
         updateById(apiKey);
+        if (existing != null) {
+            evict(existing.getToken());
+        }
+        evict(apiKey.getToken());
         return apiKey;
     }
 
     @Override
     public void delete(Long id) {
+        ApiKey existing = getById(id);
         removeById(id);
+        if (existing != null) {
+            evict(existing.getToken());
+        }
     }
 
     @Override
@@ -60,7 +87,27 @@ public class ApiKeyServiceImpl extends ServiceImpl<ApiKeyMapper, ApiKey> impleme
         if (key != null) {
             key.setActive(0); // 0：禁用
             updateById(key);
+            evict(key.getToken());
         }
         return key;
     }
+
+    private void evict(String token) {
+        if (StringUtils.hasText(token)) {
+            apiKeyCache().invalidate(sha256(token));
+        }
+    }
+
+    private CacheRegion<ApiKey> apiKeyCache() {
+        return cacheRegionManager.sharedRegion(API_KEY_REGION, ApiKey.class);
+    }
+
+    private static String sha256(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
 }
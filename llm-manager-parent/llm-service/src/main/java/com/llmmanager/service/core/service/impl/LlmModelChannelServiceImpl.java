@@ -0,0 +1,55 @@
+package com.llmmanager.service.core.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.llmmanager.service.core.entity.LlmModelChannel;
+import com.llmmanager.service.core.mapper.LlmModelChannelMapper;
+import com.llmmanager.service.core.service.LlmModelChannelService;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * 模型渠道池 Service 实现
+ */
+@Service
+public class LlmModelChannelServiceImpl extends ServiceImpl<LlmModelChannelMapper, LlmModelChannel>
+        implements LlmModelChannelService {
+
+    @Override
+    public List<LlmModelChannel> findByModelId(Long modelId) {
+        return list(new LambdaQueryWrapper<LlmModelChannel>()
+                .eq(LlmModelChannel::getModelId, modelId)
+                .orderByAsc(LlmModelChannel::getId));
+    }
+
+    @Override
+    public List<LlmModelChannel> findEnabledByModelId(Long modelId) {
+        return list(new LambdaQueryWrapper<LlmModelChannel>()
+                .eq(LlmModelChannel::getModelId, modelId)
+                .eq(LlmModelChannel::getEnabled, true)
+                .orderByAsc(LlmModelChannel::getId));
+    }
+
+    @Override
+    public LlmModelChannel create(LlmModelChannel modelChannel) {
+        save(modelChannel);
+        return modelChannel;
+    }
+
+    @Override
+    public LlmModelChannel update(LlmModelChannel modelChannel) {
+        updateById(modelChannel);
+        return modelChannel;
+    }
+
+    @Override
+    public void delete(Long id) {
+        removeById(id);
+    }
+
+    @Override
+    public LlmModelChannel getById(Long id) {
+        return super.getById(id);
+    }
+}
@@ -1,22 +1,36 @@
 package com.llmmanager.service.dto;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmmanager.agent.config.StreamProperties;
+import com.llmmanager.agent.stream.ExecutionEvent;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 
+import javax.annotation.Resource;
+import java.time.Duration;
+
 /**
  * 流式响应格式化器
  *
- * 职责：将 ChatStreamChunk 转换为 SSE 格式
+ * 职责：将 ChatStreamChunk / ExecutionEvent 转换为 SSE 格式
  *
  * 设计原则：
  * - Service 层返回 ChatStreamChunk（业务数据）
  * - 本类只做协议转换（ChatStreamChunk → SSE JSON）
  * - 格式符合 OpenAI 兼容标准
  */
+@Slf4j
 @Component
 public class StreamResponseFormatter {
 
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Resource
+    private StreamProperties streamProperties;
+
     /**
      * 格式化 ChatStreamChunk 流为 SSE
      *
@@ -24,9 +38,59 @@ public class StreamResponseFormatter {
      * @return SSE 事件流
      */
     public Flux<ServerSentEvent<String>> format(Flux<ChatStreamChunk> chunkFlux) {
-        return chunkFlux
+        return withHeartbeat(chunkFlux
                 .filter(chunk -> chunk != null && (chunk.hasContent() || chunk.isDone()))
-                .map(this::toSseEvent);
+                .map(this::toSseEvent));
+    }
+
+    /**
+     * 格式化执行事件流为 SSE（工作流 / Agent 流式执行）
+     *
+     * 格式：event 为事件类型（start/node_start/token/node_end/complete/error），data 为事件 JSON，
+     * 以 data: [DONE] 结束
+     *
+     * @param eventFlux ExecutionEvent 流
+     * @return SSE 事件流
+     */
+    public Flux<ServerSentEvent<String>> formatEvents(Flux<ExecutionEvent> eventFlux) {
+        return withHeartbeat(eventFlux
+                .map(event -> ServerSentEvent.<String>builder()
+                        .event(event.getType().getCode())
+                        .data(toJson(event))
+                        .build())
+                .concatWith(Flux.just(ServerSentEvent.<String>builder().data("[DONE]").build())));
+    }
+
+    /**
+     * 为 SSE 流附加心跳注释行（": heartbeat"）
+     *
+     * 上游长时间无输出时（思考阶段、工具调用），只有写出数据才能发现客户端已断开。
+     * 心跳让断开的连接及时写失败，Spring MVC 随即取消订阅，取消信号传到上游 LLM 请求。
+     * SSE 客户端（包括 OpenAI SDK）会忽略注释行。主流结束时心跳随之停止。
+     *
+     * @param sseFlux SSE 事件流
+     * @return 带心跳的 SSE 事件流（heartbeat-interval-ms <= 0 时原样返回）
+     */
+    public Flux<ServerSentEvent<String>> withHeartbeat(Flux<ServerSentEvent<String>> sseFlux) {
+        Long intervalMs = streamProperties.getHeartbeatIntervalMs();
+        if (intervalMs == null || intervalMs <= 0) {
+            return sseFlux;
+        }
+        Duration interval = Duration.ofMillis(intervalMs);
+        return sseFlux.publish(shared -> Flux.merge(
+                shared,
+                Flux.interval(interval, interval)
+                        .map(tick -> ServerSentEvent.<String>builder().comment("heartbeat").build())
+                        .takeUntilOther(shared.then())));
+    }
+
+    private String toJson(ExecutionEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            log.error("[StreamResponseFormatter] 事件序列化失败", e);
+            return "{}";
+        }
     }
 
     /**
@@ -1,12 +1,20 @@
 package com.llmmanager.service.orchestration;
 
+import com.llmmanager.agent.cache.CacheRegion;
+import com.llmmanager.agent.cache.CacheRegionManager;
 import com.llmmanager.agent.dto.ChatRequest;
+import com.llmmanager.agent.routing.ChannelEndpoint;
+import com.llmmanager.agent.routing.ChannelRouter;
+import com.llmmanager.agent.routing.FailoverChatModel;
 import com.llmmanager.service.core.entity.Channel;
 import com.llmmanager.service.core.entity.LlmModel;
+import com.llmmanager.service.core.entity.LlmModelChannel;
 import com.llmmanager.service.core.service.ChannelService;
+import com.llmmanager.service.core.service.LlmModelChannelService;
 import com.llmmanager.service.core.service.LlmModelService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.openai.OpenAiChatModel;
 import org.springframework.ai.openai.OpenAiChatOptions;
 import org.springframework.ai.openai.api.OpenAiApi;
@@ -15,8 +23,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * ChatModel 统一提供者
@@ -35,39 +45,58 @@ public class ChatModelProvider {
     @Resource
     private ChannelService channelService;
 
+    @Resource
+    private LlmModelChannelService llmModelChannelService;
+
+    @Resource
+    private ChannelRouter channelRouter;
+
     @Value("${spring.ai.openai.api-key:}")
     private String defaultApiKey;
 
     @Value("${spring.ai.openai.base-url:https://api.openai.com}")
     private String defaultBaseUrl;
 
-    // ChatModel 缓存
-    private final Map<String, OpenAiChatModel> chatModelCache = new ConcurrentHashMap<>();
+    @Resource
+    private CacheRegionManager cacheRegionManager;
 
     /**
-     * 根据模型 ID 获取 OpenAiChatModel
+     * ChatModel 缓存区域（本地缓存，渠道变更时经失效广播清理所有节点）
      */
-    public OpenAiChatModel getChatModelByModelId(Long modelId) {
-        LlmModel model = getModel(modelId);
-        Channel channel = getChannel(model);
+    private static final String CHAT_MODEL_REGION = "chat-model.provider";
 
-        String apiKey = getApiKey(channel);
-        String baseUrl = getBaseUrl(channel);
-        String cacheKey = buildCacheKey(channel.getId(), apiKey, baseUrl, model.getModelIdentifier());
+    /**
+     * 请求模板缓存区域：模型 ID → 预先解析好的渠道、渠道池和模型参数，单次对话不再逐个查询模型 / 渠道表
+     */
+    private static final String REQUEST_TEMPLATE_REGION = "chat-request.template";
 
-        return chatModelCache.computeIfAbsent(cacheKey, k -> {
-            OpenAiApi openAiApi = OpenAiApi.builder()
-                    .apiKey(apiKey)
-                    .baseUrl(baseUrl)
-                    .build();
+    /**
+     * 模型 ChatModel 缓存区域：模型 ID → 组装好的 ChatModel（渠道池模型为 FailoverChatModel），避免每次调用重建渠道池
+     */
+    private static final String MODEL_CHAT_MODEL_REGION = "chat-model.by-model";
 
-            return OpenAiChatModel.builder()
-                    .openAiApi(openAiApi)
-                    .defaultOptions(OpenAiChatOptions.builder()
-                            .model(model.getModelIdentifier())
-                            .temperature(model.getTemperature() != null ? model.getTemperature() : 0.7)
-                            .build())
-                    .build();
+    /**
+     * 根据模型 ID 获取 ChatModel（带缓存）
+     *
+     * 模型配置了渠道池时返回 FailoverChatModel（按渠道负载均衡、失败自动切换），否则返回单渠道 OpenAiChatModel。
+     * 渠道健康状态保存在 ChannelRouter 中，缓存的 FailoverChatModel 只持有成员列表；
+     * 模型、渠道或渠道池变更时由 evictRequestTemplate / clearCacheForChannel 一并清除。
+     */
+    public ChatModel getChatModelByModelId(Long modelId) {
+        if (modelId == null) {
+            throw new IllegalArgumentException("模型 ID 不能为空");
+        }
+        return modelChatModelCache().get(String.valueOf(modelId), k -> {
+            LlmModel model = getModel(modelId);
+            List<ChannelEndpoint> pool = buildChannelPool(model);
+            if (pool.size() > 1) {
+                Map<ChannelEndpoint, ChatModel> members = new LinkedHashMap<>();
+                for (ChannelEndpoint endpoint : pool) {
+                    members.put(endpoint, getOrCreateChatModel(model, endpoint, true));
+                }
+                return new FailoverChatModel(members, channelRouter);
+            }
+            return getOrCreateChatModel(model, pool.get(0), false);
         });
     }
 
@@ -75,7 +104,7 @@ public class ChatModelProvider {
      * 根据模型 ID 获取 ChatClient
      */
     public ChatClient getChatClientByModelId(Long modelId) {
-        OpenAiChatModel chatModel = getChatModelByModelId(modelId);
+        ChatModel chatModel = getChatModelByModelId(modelId);
         return ChatClient.builder(chatModel).build();
     }
 
@@ -95,6 +124,74 @@ public class ChatModelProvider {
                 .build();
     }
 
+    /**
+     * 获取模型的请求模板（带缓存）
+     *
+     * 模板包含渠道配置、渠道池、对冲开关、模型标识和默认温度；调用方通过 toBuilder() 补充消息等请求级参数，
+     * 不要修改返回的模板本身。模型、渠道或渠道池变更时需调用 evictRequestTemplate / clearCacheForChannel。
+     */
+    public ChatRequest getRequestTemplate(Long modelId) {
+        if (modelId == null) {
+            throw new IllegalArgumentException("模型 ID 不能为空");
+        }
+        return requestTemplateCache().get(String.valueOf(modelId), k -> {
+            LlmModel model = getModel(modelId);
+            if (model.getChannelId() == null) {
+                throw new IllegalArgumentException(String.format("模型 [ID=%d, Name=%s] 未关联任何渠道",
+                        model.getId(), model.getName()));
+            }
+            Channel channel = getChannel(model);
+            return ChatRequest.builder()
+                    .channelId(channel.getId())
+                    .apiKey(getApiKey(channel))
+                    .baseUrl(getBaseUrl(channel))
+                    .channelPool(buildChannelPool(model))
+                    .hedgeEnabled(Boolean.TRUE.equals(model.getHedgeEnabled()))
+                    .modelIdentifier(model.getModelIdentifier())
+                    .temperature(model.getTemperature())
+                    .build();
+        });
+    }
+
+    /**
+     * 清除指定模型的请求模板和 ChatModel（模型配置或渠道池变更后调用）
+     */
+    public void evictRequestTemplate(Long modelId) {
+        if (modelId != null) {
+            requestTemplateCache().invalidate(String.valueOf(modelId));
+            modelChatModelCache().invalidate(String.valueOf(modelId));
+        }
+    }
+
+    /**
+     * 构建模型的渠道池
+     *
+     * 主渠道（LlmModel.channelId）固定在池中，默认权重 100；p_llm_model_channel 中启用的成员追加在后，
+     * 与主渠道相同的成员只用于覆盖主渠道权重。无额外成员时返回只含主渠道的列表。
+     */
+    public List<ChannelEndpoint> buildChannelPool(LlmModel model) {
+        Channel primary = getChannel(model);
+        List<LlmModelChannel> extras = llmModelChannelService.findEnabledByModelId(model.getId());
+
+        Map<Long, ChannelEndpoint> pool = new LinkedHashMap<>();
+        pool.put(primary.getId(), toEndpoint(primary, 100));
+        for (LlmModelChannel extra : extras) {
+            int weight = extra.getWeight() != null ? extra.getWeight() : 100;
+            if (pool.containsKey(extra.getChannelId())) {
+                pool.get(extra.getChannelId()).setWeight(weight);
+                continue;
+            }
+            Channel channel = channelService.getById(extra.getChannelId());
+            if (channel == null) {
+                log.warn("[ChatModelProvider] 渠道池成员关联的渠道不存在，已跳过, modelId: {}, channelId: {}",
+                        model.getId(), extra.getChannelId());
+                continue;
+            }
+            pool.put(channel.getId(), toEndpoint(channel, weight));
+        }
+        return new ArrayList<>(pool.values());
+    }
+
     /**
      * 获取模型配置
      */
@@ -135,7 +232,10 @@ public class ChatModelProvider {
      * 清除指定渠道的缓存
      */
     public void clearCacheForChannel(Long channelId) {
-        chatModelCache.entrySet().removeIf(entry -> entry.getKey().startsWith(channelId + "_"));
+        chatModelCache().invalidatePrefix(channelId + "_");
+        // 一个渠道可能被多个模型的模板引用（主渠道或渠道池成员），整体清除
+        requestTemplateCache().invalidateAll();
+        modelChatModelCache().invalidateAll();
         log.info("[ChatModelProvider] 已清除渠道 {} 的缓存", channelId);
     }
 
@@ -143,10 +243,58 @@ public class ChatModelProvider {
      * 清除所有缓存
      */
     public void clearAllCache() {
-        chatModelCache.clear();
+        chatModelCache().invalidateAll();
+        requestTemplateCache().invalidateAll();
+        modelChatModelCache().invalidateAll();
         log.info("[ChatModelProvider] 已清除所有缓存");
     }
 
+    private OpenAiChatModel getOrCreateChatModel(LlmModel model, ChannelEndpoint endpoint, boolean pooled) {
+        String cacheKey = buildCacheKey(endpoint.getChannelId(), endpoint.getApiKey(), endpoint.getBaseUrl(),
+                model.getModelIdentifier()) + (pooled ? "_pool" : "");
+
+        return chatModelCache().get(cacheKey, k -> {
+            OpenAiApi openAiApi = OpenAiApi.builder()
+                    .apiKey(endpoint.getApiKey())
+                    .baseUrl(endpoint.getBaseUrl())
+                    .build();
+
+            OpenAiChatModel.Builder builder = OpenAiChatModel.builder()
+                    .openAiApi(openAiApi)
+                    .defaultOptions(OpenAiChatOptions.builder()
+                            .model(model.getModelIdentifier())
+                            .temperature(model.getTemperature() != null ? model.getTemperature() : 0.7)
+                            .build());
+            if (pooled) {
+                // 渠道池成员不做自身重试，失败立即切换渠道
+                builder.retryTemplate(FailoverChatModel.NO_RETRY_TEMPLATE);
+            }
+            return builder.build();
+        });
+    }
+
+    private CacheRegion<OpenAiChatModel> chatModelCache() {
+        return cacheRegionManager.localRegion(CHAT_MODEL_REGION);
+    }
+
+    private CacheRegion<ChatRequest> requestTemplateCache() {
+        return cacheRegionManager.localRegion(REQUEST_TEMPLATE_REGION);
+    }
+
+    private CacheRegion<ChatModel> modelChatModelCache() {
+        return cacheRegionManager.localRegion(MODEL_CHAT_MODEL_REGION);
+    }
+
+    private ChannelEndpoint toEndpoint(Channel channel, int weight) {
+        return ChannelEndpoint.builder()
+                .channelId(channel.getId())
+                .name(channel.getName())
+                .apiKey(getApiKey(channel))
+                .baseUrl(getBaseUrl(channel))
+                .weight(weight)
+                .build();
+    }
+
     private String buildCacheKey(Long channelId, String apiKey, String baseUrl, String modelIdentifier) {
         return String.format("%d_%s_%s_%s", channelId, apiKey, baseUrl, modelIdentifier);
     }
@@ -1,5 +1,6 @@
 package com.llmmanager.service.orchestration;
 
+import com.llmmanager.agent.config.StreamProperties;
 import com.llmmanager.agent.reactagent.autonomous.SupervisorAgentTeam;
 import com.llmmanager.agent.reactagent.configurable.ConfigurableAgentWorkflow;
 import com.llmmanager.agent.reactagent.configurable.pattern.SequentialPatternExecutor;
@@ -14,11 +15,18 @@ import com.llmmanager.agent.review.snapshot.SupervisorStateSnapshot;
 import com.llmmanager.agent.storage.core.entity.PendingReview;
 import com.llmmanager.agent.storage.core.entity.ReactAgent;
 import com.llmmanager.agent.storage.core.service.ReactAgentService;
+import com.llmmanager.agent.stream.ExecutionEvent;
+import com.llmmanager.agent.stream.ExecutionEventSink;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import javax.annotation.Resource;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -52,6 +60,9 @@ public class DynamicReactAgentExecutionService {
     @Resource
     private ReactAgentService reactAgentService;
 
+    @Resource
+    private StreamProperties streamProperties;
+
     /**
      * 根据 slug 从数据库加载 Agent 并执行
      *
@@ -94,31 +105,14 @@ public class DynamicReactAgentExecutionService {
                     ? conversationCode
                     : UUID.randomUUID().toString().replace("-", "");
 
-            HumanReviewContext reviewContext = HumanReviewContext.builder()
-                    .conversationCode(effectiveConversationCode)
-                    .agentConfigCode(agentConfig.getSlug())
-                    .agentName(agentConfig.getName())
-                    .agentType(agentConfig.getAgentType())
-                    .originalTask(message)
-                    .build();
-            HumanReviewContextHolder.setContext(reviewContext);
+            HumanReviewContextHolder.setContext(buildReviewContext(agentConfig, effectiveConversationCode, message));
 
             try {
                 // 3. 创建 ChatModel（使用 Agent 配置中的 modelId）
-                Long modelId = agentConfig.getModelId();
-                if (modelId == null) {
-                    throw new IllegalArgumentException("Agent 未配置模型: " + slug);
-                }
-                OpenAiChatModel chatModel = chatModelProvider.getChatModelByModelId(modelId);
+                ChatModel chatModel = getChatModel(agentConfig);
 
                 // 4. 根据类型执行（复用 ReactAgentExecutionService 的公共执行方法）
-                ReactAgent.AgentType agentType = ReactAgent.AgentType.valueOf(agentConfig.getAgentType());
-
-                Map<String, Object> response = switch (agentType) {
-                    case SINGLE -> executeSingleAgent(agentConfig, chatModel, message);
-                    case SEQUENTIAL -> executeSequentialWorkflow(agentConfig, chatModel, message);
-                    case SUPERVISOR -> executeSupervisorTeam(agentConfig, chatModel, message);
-                };
+                Map<String, Object> response = executeByType(agentConfig, chatModel, message, null);
 
                 // 添加额外信息
                 response.put("slug", slug);
@@ -153,12 +147,147 @@ public class DynamicReactAgentExecutionService {
         }
     }
 
+    /**
+     * 根据 slug 从数据库加载 Agent 并流式执行
+     *
+     * 事件顺序：start → (token | reasoning | tool_start | tool_end | handoff)* → complete | error
+     * - token / reasoning 的 source 为产生输出的 Agent 名称（Supervisor 或 Worker）
+     * - complete 事件的 data 与同步接口返回结构一致（含 pendingReview 场景）
+     *
+     * Agent 在独立线程中执行，事件经有界缓冲区推送；客户端断开（取消订阅）后，
+     * 正在进行的 LLM 流和后续推理步骤会尽快中止。
+     *
+     * @param slug             Agent 唯一标识
+     * @param message          用户消息
+     * @param conversationCode 会话标识（可选）
+     * @return 执行事件流
+     */
+    public Flux<ExecutionEvent> executeStream(String slug, String message, String conversationCode) {
+        return Flux.defer(() -> {
+            ExecutionEventSink eventSink = new ExecutionEventSink(
+                    streamProperties.getBufferSize(),
+                    Duration.ofMillis(streamProperties.getEmitTimeoutMs()));
+
+            Disposable execution = Mono.fromRunnable(() ->
+                            runStream(slug, message, conversationCode, eventSink))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .subscribe();
+
+            return eventSink.asFlux().doOnCancel(execution::dispose);
+        });
+    }
+
+    /**
+     * 在执行线程中运行 Agent，并把生命周期事件写入 eventSink
+     */
+    private void runStream(String slug, String message, String conversationCode, ExecutionEventSink eventSink) {
+        log.info("[DynamicReactAgent] 开始流式执行，slug: {}", slug);
+
+        String effectiveConversationCode = conversationCode != null
+                ? conversationCode
+                : UUID.randomUUID().toString().replace("-", "");
+
+        try {
+            ReactAgent agentConfig = reactAgentService.getBySlug(slug);
+            if (agentConfig == null) {
+                throw new IllegalArgumentException("Agent 不存在: " + slug);
+            }
+            HumanReviewContextHolder.setContext(buildReviewContext(agentConfig, effectiveConversationCode, message));
+
+            ChatModel chatModel = getChatModel(agentConfig);
+
+            Map<String, Object> startData = new HashMap<>();
+            startData.put("slug", slug);
+            startData.put("agentName", agentConfig.getName());
+            startData.put("agentType", agentConfig.getAgentType());
+            startData.put("conversationCode", effectiveConversationCode);
+            eventSink.emit(ExecutionEvent.start(startData));
+
+            Map<String, Object> response;
+            try {
+                response = executeByType(agentConfig, chatModel, message, eventSink);
+            } catch (HumanReviewRequiredException e) {
+                log.info("[DynamicReactAgent] 流式执行暂停，等待人工审核，reviewCode: {}", e.getReviewCode());
+                response = new HashMap<>();
+                response.put("success", false);
+                response.put("pendingReview", true);
+                response.put("reviewCode", e.getReviewCode());
+                response.put("reviewPrompt", e.getReviewPrompt());
+                response.put("reviewType", e.getReviewType());
+            }
+            response.put("slug", slug);
+            response.put("agentConfigName", agentConfig.getName());
+            response.put("conversationCode", effectiveConversationCode);
+
+            if (eventSink.isCancelled()) {
+                log.info("[DynamicReactAgent] 客户端已断开，Agent 已中止，slug: {}", slug);
+                return;
+            }
+            if (Boolean.TRUE.equals(response.get("success")) || Boolean.TRUE.equals(response.get("pendingReview"))) {
+                eventSink.emit(ExecutionEvent.complete(response));
+            } else {
+                eventSink.emit(ExecutionEvent.error(String.valueOf(response.get("error"))));
+            }
+
+        } catch (Exception e) {
+            if (eventSink.isCancelled()) {
+                log.info("[DynamicReactAgent] 客户端已断开，Agent 已中止，slug: {}", slug);
+            } else {
+                log.error("[DynamicReactAgent] 流式执行失败，slug: {}", slug, e);
+                eventSink.tryEmit(ExecutionEvent.error("Agent 执行失败: " + e.getMessage()));
+            }
+        } finally {
+            HumanReviewContextHolder.clear();
+            eventSink.complete();
+        }
+    }
+
+    /**
+     * 构建人工审核上下文（供 HumanReviewTool 使用）
+     */
+    private HumanReviewContext buildReviewContext(ReactAgent agentConfig, String conversationCode, String message) {
+        return HumanReviewContext.builder()
+                .conversationCode(conversationCode)
+                .agentConfigCode(agentConfig.getSlug())
+                .agentName(agentConfig.getName())
+                .agentType(agentConfig.getAgentType())
+                .originalTask(message)
+                .build();
+    }
+
+    /**
+     * 使用 Agent 配置中的 modelId 获取 ChatModel
+     */
+    private ChatModel getChatModel(ReactAgent agentConfig) {
+        Long modelId = agentConfig.getModelId();
+        if (modelId == null) {
+            throw new IllegalArgumentException("Agent 未配置模型: " + agentConfig.getSlug());
+        }
+        return chatModelProvider.getChatModelByModelId(modelId);
+    }
+
+    /**
+     * 根据 agent_type 构建并执行
+     *
+     * @param eventSink 流式事件通道（同步模式为 null）
+     */
+    private Map<String, Object> executeByType(ReactAgent agentConfig, ChatModel chatModel,
+                                              String message, ExecutionEventSink eventSink) {
+        ReactAgent.AgentType agentType = ReactAgent.AgentType.valueOf(agentConfig.getAgentType());
+        return switch (agentType) {
+            case SINGLE -> executeSingleAgent(agentConfig, chatModel, message, eventSink);
+            case SEQUENTIAL -> executeSequentialWorkflow(agentConfig, chatModel, message, eventSink);
+            case SUPERVISOR -> executeSupervisorTeam(agentConfig, chatModel, message, eventSink);
+        };
+    }
+
     /**
      * 执行单个 Agent
      * 复用 ReactAgentExecutionService 的公共执行方法
      */
-    private Map<String, Object> executeSingleAgent(ReactAgent agentConfig, OpenAiChatModel chatModel, String message) {
-        AgentWrapper agent = reactAgentFactory.buildSingleAgentFromConfig(agentConfig, chatModel);
+    private Map<String, Object> executeSingleAgent(ReactAgent agentConfig, ChatModel chatModel, String message,
+                                                   ExecutionEventSink eventSink) {
+        AgentWrapper agent = reactAgentFactory.buildSingleAgentFromConfig(agentConfig, chatModel, eventSink);
         return reactAgentExecutionService.executeAgent(agent, message);
     }
 
@@ -166,8 +295,9 @@ public class DynamicReactAgentExecutionService {
      * 执行顺序工作流
      * 复用 ReactAgentExecutionService 的公共执行方法
      */
-    private Map<String, Object> executeSequentialWorkflow(ReactAgent agentConfig, OpenAiChatModel chatModel, String message) {
-        ConfigurableAgentWorkflow workflow = reactAgentFactory.buildSequentialWorkflowFromConfig(agentConfig, chatModel);
+    private Map<String, Object> executeSequentialWorkflow(ReactAgent agentConfig, ChatModel chatModel, String message,
+                                                          ExecutionEventSink eventSink) {
+        ConfigurableAgentWorkflow workflow = reactAgentFactory.buildSequentialWorkflowFromConfig(agentConfig, chatModel, eventSink);
         return reactAgentExecutionService.executeWorkflow(workflow, message);
     }
 
@@ -175,8 +305,9 @@ public class DynamicReactAgentExecutionService {
      * 执行 Supervisor 团队
      * 复用 ReactAgentExecutionService 的公共执行方法
      */
-    private Map<String, Object> executeSupervisorTeam(ReactAgent agentConfig, OpenAiChatModel chatModel, String message) {
-        SupervisorAgentTeam team = reactAgentFactory.buildSupervisorTeamFromConfig(agentConfig, chatModel);
+    private Map<String, Object> executeSupervisorTeam(ReactAgent agentConfig, ChatModel chatModel, String message,
+                                                      ExecutionEventSink eventSink) {
+        SupervisorAgentTeam team = reactAgentFactory.buildSupervisorTeamFromConfig(agentConfig, chatModel, eventSink);
         return reactAgentExecutionService.executeTeam(team, message);
     }
 
@@ -355,7 +486,7 @@ public class DynamicReactAgentExecutionService {
             if (modelId == null) {
                 throw new IllegalArgumentException("未配置模型 ID");
             }
-            OpenAiChatModel chatModel = chatModelProvider.getChatModelByModelId(modelId);
+            ChatModel chatModel = chatModelProvider.getChatModelByModelId(modelId);
 
             // 4. 重建工作流
             ConfigurableAgentWorkflow workflow = reactAgentFactory.buildSequentialWorkflowFromConfig(agentConfig, chatModel);
@@ -482,7 +613,7 @@ public class DynamicReactAgentExecutionService {
         if (modelId == null) {
             throw new IllegalArgumentException("未配置模型 ID");
         }
-        OpenAiChatModel chatModel = chatModelProvider.getChatModelByModelId(modelId);
+        ChatModel chatModel = chatModelProvider.getChatModelByModelId(modelId);
 
         // 4. 重建 Supervisor 团队
         SupervisorAgentTeam team = reactAgentFactory.buildSupervisorTeamFromConfig(agentConfig, chatModel);
@@ -5,12 +5,20 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.llmmanager.agent.graph.GraphWorkflowExecutor;
 import com.llmmanager.agent.graph.dynamic.DynamicGraphBuilder;
+import com.llmmanager.agent.config.StreamProperties;
 import com.llmmanager.agent.graph.dynamic.dto.GraphWorkflowConfig;
+import com.llmmanager.agent.stream.ExecutionEvent;
+import com.llmmanager.agent.stream.ExecutionEventSink;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import javax.annotation.Resource;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,7 +26,7 @@ import java.util.Map;
  * 动态工作流执行服务
  *
  * 提供工作流执行能力，支持：
- * - 从 JSON 配置构建并执行工作流
+ * - 从 JSON 配置构建并执行工作流（同步 / 流式）
  * - 从模型 ID 获取 ChatClient（通过 ChatModelProvider）
  * - 复用 GraphWorkflowExecutor 的公共执行方法
  *
@@ -42,6 +50,9 @@ public class DynamicWorkflowExecutionService {
     @Resource
     private GraphWorkflowExecutor graphWorkflowExecutor;
 
+    @Resource
+    private StreamProperties streamProperties;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
@@ -87,6 +98,84 @@ public class DynamicWorkflowExecutionService {
         }
     }
 
+    /**
+     * 流式执行工作流
+     *
+     * 事件顺序：start → (node_start → token* → node_end)* → complete | error
+     * - LLM 节点的 token 实时推送，首个可见输出的延迟与单次流式对话一致
+     * - 事件缓冲区有界（llm.stream.buffer-size），慢消费者会阻塞执行线程而不是堆积内存
+     * - 订阅者取消（客户端断开）后，当前 LLM 调用被取消，后续节点不再执行
+     * - complete 事件携带与 executeWorkflow 相同结构的最终结果，可直接用于持久化
+     *
+     * @param workflowConfigJson 工作流配置 JSON
+     * @param modelId            模型 ID
+     * @param initialState       初始状态
+     * @return 执行事件流
+     */
+    public Flux<ExecutionEvent> executeWorkflowStream(
+            String workflowConfigJson,
+            Long modelId,
+            Map<String, Object> initialState) {
+
+        return Flux.defer(() -> {
+            ExecutionEventSink eventSink = new ExecutionEventSink(
+                    streamProperties.getBufferSize(),
+                    Duration.ofMillis(streamProperties.getEmitTimeoutMs()));
+
+            Disposable execution = Mono.fromRunnable(() ->
+                            runWorkflowStream(workflowConfigJson, modelId, initialState, eventSink))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .subscribe();
+
+            return eventSink.asFlux().doOnCancel(execution::dispose);
+        });
+    }
+
+    /**
+     * 在执行线程中运行工作流，并把生命周期事件写入 eventSink
+     */
+    private void runWorkflowStream(String workflowConfigJson, Long modelId,
+                                   Map<String, Object> initialState, ExecutionEventSink eventSink) {
+        try {
+            log.info("[DynamicWorkflow] 开始流式执行工作流，模型 ID: {}", modelId);
+
+            GraphWorkflowConfig config = objectMapper.readValue(workflowConfigJson, GraphWorkflowConfig.class);
+            ChatClient chatClient = chatModelProvider.getChatClientByModelId(modelId);
+            CompiledGraph compiledGraph = graphBuilder.build(config, chatClient, eventSink);
+
+            Map<String, Object> startData = new HashMap<>();
+            startData.put("workflowName", config.getName());
+            startData.put("nodeCount", config.getNodes().size());
+            eventSink.emit(ExecutionEvent.start(startData));
+
+            Map<String, Object> result = graphWorkflowExecutor.execute(compiledGraph, initialState);
+            result.put("workflowName", config.getName());
+
+            if (eventSink.isCancelled()) {
+                log.info("[DynamicWorkflow] 客户端已断开，工作流已中止: {}", config.getName());
+                return;
+            }
+            if (Boolean.TRUE.equals(result.get("success"))) {
+                eventSink.emit(ExecutionEvent.complete(result));
+            } else {
+                eventSink.emit(ExecutionEvent.error(String.valueOf(result.get("error"))));
+            }
+
+        } catch (JsonProcessingException e) {
+            log.error("[DynamicWorkflow] 工作流配置 JSON 解析失败", e);
+            eventSink.tryEmit(ExecutionEvent.error("工作流配置格式错误: " + e.getMessage()));
+        } catch (Exception e) {
+            if (eventSink.isCancelled()) {
+                log.info("[DynamicWorkflow] 客户端已断开，工作流已中止");
+            } else {
+                log.error("[DynamicWorkflow] 流式工作流执行失败", e);
+                eventSink.tryEmit(ExecutionEvent.error("工作流执行失败: " + e.getMessage()));
+            }
+        } finally {
+            eventSink.complete();
+        }
+    }
+
     /**
      * 获取所有已注册的节点类型
      */
@@ -8,9 +8,12 @@ import com.llmmanager.agent.review.snapshot.SupervisorStateSnapshot;
 import com.llmmanager.agent.storage.core.entity.PendingReview;
 import com.llmmanager.agent.storage.core.service.PendingReviewService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.Resource;
 import java.util.Map;
@@ -50,6 +53,13 @@ public class HumanReviewOrchestrationService {
     @Resource
     private DynamicReactAgentExecutionService dynamicReactAgentExecutionService;
 
+    /**
+     * 自身代理：类内直接调用 resumeExecutionAsync 不经过代理，@Async 不生效
+     */
+    @Lazy
+    @Resource
+    private HumanReviewOrchestrationService self;
+
     // ==================== 提交审核结果 ====================
 
     /**
@@ -70,7 +80,8 @@ public class HumanReviewOrchestrationService {
 
         // 如果配置了自动恢复，则异步恢复执行
         if (Boolean.TRUE.equals(review.getResumeAfterApproval())) {
-            resumeExecutionAsync(reviewCode);
+            // 审核状态提交后再异步恢复，避免恢复线程读到未提交的状态
+            runAfterCommit(() -> self.resumeExecutionAsync(reviewCode));
         } else {
             log.info("[HumanReviewOrchestration] 审核已批准，但未配置自动恢复: {}", reviewCode);
         }
@@ -93,13 +104,29 @@ public class HumanReviewOrchestrationService {
         log.info("[HumanReviewOrchestration] 审核已拒绝，执行已终止: {}", reviewCode);
     }
 
+    /**
+     * 当前事务提交后执行（无事务时立即执行）
+     */
+    private void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     // ==================== 异步恢复执行 ====================
 
     /**
      * 异步恢复执行（审核批准后调用）
      *
      * 设计理念：
-     * - 使用 @Async 注解异步执行，不阻塞审核提交请求
+     * - 使用 @Async 注解异步执行，不阻塞审核提交请求（执行器见 AsyncConfig，虚拟线程模式下每次恢复一个虚拟线程）
      * - 根据审核类型路由到不同的恢复方法
      * - 失败后自动重试（受 max_retry_count 限制）
      *
@@ -2,17 +2,15 @@ package com.llmmanager.service.orchestration;
 
 import com.llmmanager.agent.agent.LlmChatAgent;
 import com.llmmanager.agent.dto.ChatRequest;
+import com.llmmanager.agent.graph.GraphWorkflowExecutor;
 import com.llmmanager.agent.message.MediaMessage;
-import com.llmmanager.service.core.service.ChannelService;
-import com.llmmanager.service.core.service.LlmModelService;
+import com.llmmanager.agent.template.CompiledPromptTemplate;
 import com.llmmanager.service.core.entity.Agent;
-import com.llmmanager.service.core.entity.Channel;
-import com.llmmanager.service.core.entity.LlmModel;
 import com.llmmanager.service.dto.ChatStreamChunk;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.PromptTemplate;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
@@ -25,7 +23,8 @@ import java.util.Map;
  * LLM执行服务 - 业务逻辑编排层
  *
  * 核心设计：
- * - 负责获取模型配置、Channel配置
+ * - 负责获取模型配置、Channel配置（模型配置了渠道池时附带渠道池，由 Agent 层负载均衡和故障转移）；
+ *   两者合并为按模型缓存的请求模板（ChatModelProvider.getRequestTemplate），单次对话不再查询模型 / 渠道表
  * - 调用 llm-agent 执行对话
  * - 统一返回 ChatStreamChunk（流式）或 String（同步）
  * - 格式转换（ChatResponse → ChatStreamChunk）在此层处理
@@ -35,19 +34,16 @@ import java.util.Map;
 public class LlmExecutionService {
 
     @Resource
-    private LlmModelService llmModelService;
+    private LlmChatAgent llmChatAgent;
 
     @Resource
-    private ChannelService channelService;
+    private StreamCancellationTracker streamCancellationTracker;
 
     @Resource
-    private LlmChatAgent llmChatAgent;
-
-    @Value("${spring.ai.openai.api-key:}")
-    private String defaultApiKey;
+    private ChatModelProvider chatModelProvider;
 
-    @Value("${spring.ai.openai.base-url:https://api.openai.com}")
-    private String defaultBaseUrl;
+    @Resource
+    private GraphWorkflowExecutor graphWorkflowExecutor;
 
     // ==================== 同步对话 ====================
 
@@ -55,9 +51,7 @@ public class LlmExecutionService {
      * 普通对话
      */
     public String chat(Long modelId, String userMessage) {
-        LlmModel model = getModel(modelId);
-        Channel channel = getChannel(model);
-        ChatRequest request = buildRequest(channel, model, userMessage, null, model.getTemperature());
+        ChatRequest request = buildRequest(modelId, userMessage, null, null);
         return llmChatAgent.chat(request);
     }
 
@@ -65,9 +59,7 @@ public class LlmExecutionService {
      * 普通对话（支持 systemPrompt，用于 OpenAI 兼容 API）
      */
     public String chat(Long modelId, String userMessage, String conversationCode, String systemPrompt) {
-        LlmModel model = getModel(modelId);
-        Channel channel = getChannel(model);
-        ChatRequest request = buildRequest(channel, model, userMessage, systemPrompt, model.getTemperature());
+        ChatRequest request = buildRequest(modelId, userMessage, systemPrompt, null);
         return llmChatAgent.chat(request, conversationCode);
     }
 
@@ -75,9 +67,7 @@ public class LlmExecutionService {
      * 带工具调用的对话
      */
     public String chatWithTools(Long modelId, String userMessage, String conversationCode, List<String> toolNames) {
-        LlmModel model = getModel(modelId);
-        Channel channel = getChannel(model);
-        ChatRequest request = buildRequest(channel, model, userMessage, null, model.getTemperature())
+        ChatRequest request = buildRequest(modelId, userMessage, null, null)
                 .toBuilder()
                 .enableTools(true)
                 .toolNames(toolNames)
@@ -91,9 +81,7 @@ public class LlmExecutionService {
     public String chatWithMedia(Long modelId, String userMessage,
                                  List<MediaMessage.MediaContent> mediaContents,
                                  String conversationCode) {
-        LlmModel model = getModel(modelId);
-        Channel channel = getChannel(model);
-        ChatRequest request = buildRequest(channel, model, userMessage, null, model.getTemperature())
+        ChatRequest request = buildRequest(modelId, userMessage, null, null)
                 .toBuilder()
                 .mediaContents(mediaContents)
                 .build();
@@ -102,13 +90,43 @@ public class LlmExecutionService {
 
     /**
      * 使用模板进行对话
+     *
+     * 只含 {key} 占位符的模板使用按内容缓存的编译结果单遍渲染；
+     * 包含 StringTemplate 其它语法或变量值为集合时仍交给 PromptTemplate。
      */
     public String chatWithTemplate(Long modelId, String templateContent, Map<String, Object> variables) {
-        PromptTemplate template = new PromptTemplate(templateContent);
-        String message = template.render(variables);
+        CompiledPromptTemplate compiled = CompiledPromptTemplate.of(templateContent);
+        String message = compiled.isPlain() && CompiledPromptTemplate.hasOnlyScalarValues(variables)
+                ? compiled.render(variables)
+                : new PromptTemplate(templateContent).render(variables);
         return chat(modelId, message);
     }
 
+    // ==================== 完整消息列表（OpenAI 兼容接口）====================
+
+    /**
+     * 使用客户端提供的完整消息列表对话
+     *
+     * 消息列表原样发送给模型（含 assistant / tool 消息和多模态片段），不读写服务端会话历史
+     *
+     * @param temperature 为 null 时使用模型默认温度
+     * @param topP        为 null 时不传
+     * @param maxTokens   为 null 时不传
+     */
+    public String chatWithMessages(Long modelId, List<Message> messages,
+                                   Double temperature, Double topP, Integer maxTokens) {
+        return llmChatAgent.chat(buildMessagesRequest(modelId, messages, temperature, topP, maxTokens), null);
+    }
+
+    /**
+     * 使用客户端提供的完整消息列表流式对话（不读写服务端会话历史）
+     */
+    public Flux<ChatStreamChunk> streamWithMessages(Long modelId, List<Message> messages,
+                                                    Double temperature, Double topP, Integer maxTokens) {
+        ChatRequest request = buildMessagesRequest(modelId, messages, temperature, topP, maxTokens);
+        return toChunkStream(request, null, request.getModelIdentifier());
+    }
+
     // ==================== 流式对话（统一返回 ChatStreamChunk）====================
 
     /**
@@ -123,8 +141,7 @@ public class LlmExecutionService {
      */
     public Flux<ChatStreamChunk> stream(Long modelId, String userMessage, String conversationCode,
                                          String thinkingMode, String reasoningFormat) {
-        LlmModel model = getModel(modelId);
-        return executeStream(model, userMessage, null, model.getTemperature(), conversationCode,
+        return executeStream(modelId, userMessage, null, null, conversationCode,
                 null, false, null, null, thinkingMode, reasoningFormat);
     }
 
@@ -146,8 +163,7 @@ public class LlmExecutionService {
      * 流式对话（支持 systemPrompt，用于 OpenAI 兼容 API）
      */
     public Flux<ChatStreamChunk> streamChat(Long modelId, String userMessage, String conversationCode, String systemPrompt) {
-        LlmModel model = getModel(modelId);
-        return executeStream(model, userMessage, systemPrompt, model.getTemperature(), conversationCode,
+        return executeStream(modelId, userMessage, systemPrompt, null, conversationCode,
                 null, false, null, null, null, null);
     }
 
@@ -156,9 +172,8 @@ public class LlmExecutionService {
      */
     public Flux<ChatStreamChunk> streamWithAgent(Agent agent, String userMessage, String conversationCode,
                                                    String thinkingMode, String reasoningFormat) {
-        LlmModel model = getModel(agent.getLlmModelId());
-        Double temp = agent.getTemperatureOverride() != null ? agent.getTemperatureOverride() : model.getTemperature();
-        return executeStream(model, userMessage, agent.getSystemPrompt(), temp, conversationCode,
+        return executeStream(agent.getLlmModelId(), userMessage, agent.getSystemPrompt(),
+                agent.getTemperatureOverride(), conversationCode,
                 null, false, null, null, thinkingMode, reasoningFormat);
     }
 
@@ -187,11 +202,8 @@ public class LlmExecutionService {
      * 智能体同步对话（支持会话历史）
      */
     public String chatWithAgent(Agent agent, String userMessage, String conversationCode) {
-        LlmModel model = getModel(agent.getLlmModelId());
-        Channel channel = getChannel(model);
-        Double temp = agent.getTemperatureOverride() != null ? agent.getTemperatureOverride() : model.getTemperature();
-
-        ChatRequest request = buildRequest(channel, model, userMessage, agent.getSystemPrompt(), temp);
+        ChatRequest request = buildRequest(agent.getLlmModelId(), userMessage, agent.getSystemPrompt(),
+                agent.getTemperatureOverride());
         return llmChatAgent.chat(request, conversationCode);
     }
 
@@ -211,8 +223,7 @@ public class LlmExecutionService {
                                                   String conversationCode, List<String> toolNames,
                                                   boolean enableMcpTools, List<String> mcpServerCodes,
                                                   String thinkingMode, String reasoningFormat) {
-        LlmModel model = getModel(modelId);
-        return executeStream(model, userMessage, null, model.getTemperature(), conversationCode,
+        return executeStream(modelId, userMessage, null, null, conversationCode,
                 toolNames, enableMcpTools, mcpServerCodes, null, thinkingMode, reasoningFormat);
     }
 
@@ -222,8 +233,7 @@ public class LlmExecutionService {
     public Flux<ChatStreamChunk> streamWithTools(Long modelId, String userMessage,
                                                   String conversationCode, List<String> toolNames,
                                                   String thinkingMode, String reasoningFormat) {
-        LlmModel model = getModel(modelId);
-        return executeStream(model, userMessage, null, model.getTemperature(), conversationCode,
+        return executeStream(modelId, userMessage, null, null, conversationCode,
                 toolNames, false, null, null, thinkingMode, reasoningFormat);
     }
 
@@ -241,8 +251,7 @@ public class LlmExecutionService {
     public Flux<ChatStreamChunk> streamWithMedia(Long modelId, String userMessage,
                                                   List<MediaMessage.MediaContent> mediaContents,
                                                   String conversationCode, String thinkingMode, String reasoningFormat) {
-        LlmModel model = getModel(modelId);
-        return executeStream(model, userMessage, null, model.getTemperature(), conversationCode,
+        return executeStream(modelId, userMessage, null, null, conversationCode,
                 null, false, null, mediaContents, thinkingMode, reasoningFormat);
     }
 
@@ -259,27 +268,21 @@ public class LlmExecutionService {
 
     /**
      * 执行流式请求并转换为 ChatStreamChunk
+     *
+     * @param temperature 温度覆盖值，为 null 时使用模型默认温度
      */
-    private Flux<ChatStreamChunk> executeStream(LlmModel model, String userMessage, String systemPrompt,
+    private Flux<ChatStreamChunk> executeStream(Long modelId, String userMessage, String systemPrompt,
                                                  Double temperature, String conversationCode,
                                                  List<String> toolNames,
                                                  boolean enableMcpTools, List<String> mcpServerCodes,
                                                  List<MediaMessage.MediaContent> mediaContents,
                                                  String thinkingMode, String reasoningFormat) {
-        log.info("[LlmExecutionService] executeStream - thinkingMode: '{}', reasoningFormat: '{}', enableMcpTools: {}",
+        log.debug("[LlmExecutionService] executeStream - thinkingMode: '{}', reasoningFormat: '{}', enableMcpTools: {}",
                 thinkingMode, reasoningFormat, enableMcpTools);
 
-        Channel channel = getChannel(model);
-
-        // 构建请求
-        ChatRequest.ChatRequestBuilder builder = ChatRequest.builder()
-                .channelId(channel.getId())
-                .apiKey(StringUtils.hasText(channel.getApiKey()) ? channel.getApiKey() : defaultApiKey)
-                .baseUrl(StringUtils.hasText(channel.getBaseUrl()) ? channel.getBaseUrl() : defaultBaseUrl)
-                .modelIdentifier(model.getModelIdentifier())
-                .temperature(temperature)
-                .systemPrompt(systemPrompt)
-                .userMessage(userMessage);
+        // 基于模型请求模板构建
+        ChatRequest.ChatRequestBuilder builder = buildRequest(modelId, userMessage, systemPrompt, temperature)
+                .toBuilder();
 
         // 本地工具调用
         if (toolNames != null && !toolNames.isEmpty()) {
@@ -315,14 +318,22 @@ public class LlmExecutionService {
         }
 
         ChatRequest request = builder.build();
-        log.info("[LlmExecutionService] ChatRequest - thinkingMode: '{}', reasoningFormat: {}",
+        log.debug("[LlmExecutionService] ChatRequest - thinkingMode: '{}', reasoningFormat: {}",
                 request.getThinkingMode(), request.getReasoningFormat());
 
         String convCode = StringUtils.hasText(conversationCode) ? conversationCode : null;
+        return toChunkStream(request, convCode, request.getModelIdentifier());
+    }
 
-        // 调用 Agent 层获取 ChatResponse 流，转换为 ChatStreamChunk
-        return llmChatAgent.stream(request, convCode)
-                .mapNotNull(this::convertToChunk)
+    /**
+     * 调用 Agent 层获取 ChatResponse 流，转换为 ChatStreamChunk
+     *
+     * 客户端断开时取消信号沿此链传到上游 HTTP 流，并将未完成轮次标记为中断
+     */
+    private Flux<ChatStreamChunk> toChunkStream(ChatRequest request, String convCode, String modelIdentifier) {
+        Flux<ChatStreamChunk> chunkFlux = llmChatAgent.stream(request, convCode)
+                .mapNotNull(this::convertToChunk);
+        return streamCancellationTracker.track(chunkFlux, convCode, modelIdentifier)
                 .concatWith(Flux.just(ChatStreamChunk.done()));
     }
 
@@ -374,60 +385,39 @@ public class LlmExecutionService {
     }
 
     /**
-     * 获取模型
-     */
-    private LlmModel getModel(Long modelId) {
-        LlmModel model = llmModelService.getById(modelId);
-        if (model == null) {
-            throw new RuntimeException("Model not found: " + modelId);
-        }
-        return model;
-    }
-
-    /**
-     * 获取 Channel 配置
+     * 基于模型请求模板构建 ChatRequest
+     *
+     * @param temperature 温度覆盖值，为 null 时使用模型默认温度
      */
-    private Channel getChannel(LlmModel model) {
-        if (model.getChannelId() == null) {
-            throw new RuntimeException(String.format(
-                "模型 [ID=%d, Name=%s] 未关联任何渠道",
-                model.getId(), model.getName()
-            ));
-        }
-
-        Channel channel = channelService.getById(model.getChannelId());
-        if (channel == null) {
-            throw new RuntimeException(String.format(
-                "模型 [ID=%d] 关联的渠道 [ID=%d] 不存在",
-                model.getId(), model.getChannelId()
-            ));
+    private ChatRequest buildRequest(Long modelId, String userMessage, String systemPrompt, Double temperature) {
+        ChatRequest.ChatRequestBuilder builder = chatModelProvider.getRequestTemplate(modelId).toBuilder()
+                .systemPrompt(systemPrompt)
+                .userMessage(userMessage);
+        if (temperature != null) {
+            builder.temperature(temperature);
         }
-        return channel;
+        return builder.build();
     }
 
     /**
-     * 构建 ChatRequest
+     * 构建完整消息列表请求（忽略 systemPrompt / userMessage）
      */
-    private ChatRequest buildRequest(Channel channel, LlmModel model,
-                                      String userMessage, String systemPrompt, Double temperature) {
-        String apiKey = StringUtils.hasText(channel.getApiKey()) ? channel.getApiKey() : defaultApiKey;
-        String baseUrl = StringUtils.hasText(channel.getBaseUrl()) ? channel.getBaseUrl() : defaultBaseUrl;
-
-        return ChatRequest.builder()
-                .channelId(channel.getId())
-                .apiKey(apiKey)
-                .baseUrl(baseUrl)
-                .modelIdentifier(model.getModelIdentifier())
-                .temperature(temperature)
-                .systemPrompt(systemPrompt)
-                .userMessage(userMessage)
+    private ChatRequest buildMessagesRequest(Long modelId, List<Message> messages,
+                                             Double temperature, Double topP, Integer maxTokens) {
+        return buildRequest(modelId, null, null, temperature)
+                .toBuilder()
+                .messages(messages)
+                .topP(topP)
+                .maxTokens(maxTokens)
                 .build();
     }
 
     /**
-     * 清除指定 Channel 的缓存
+     * 清除指定 Channel 的缓存（ChatModel、编译后的工作流），失效会广播到所有节点
      */
     public void clearCacheForChannel(Long channelId) {
         llmChatAgent.clearCacheForChannel(channelId);
+        chatModelProvider.clearCacheForChannel(channelId);
+        graphWorkflowExecutor.clearCacheForChannel(channelId);
     }
 }
@@ -12,7 +12,7 @@ import com.llmmanager.agent.review.context.HumanReviewContext;
 import com.llmmanager.agent.review.context.HumanReviewContextHolder;
 import com.llmmanager.agent.review.exception.HumanReviewRequiredException;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.tool.ToolCallback;
 import org.springframework.stereotype.Service;
 
@@ -213,7 +213,7 @@ public class ReactAgentExecutionService {
     public Map<String, Object> executeAllInOneAgent(Long modelId, String message) {
         log.info("[ReactAgentExecution] 执行全能助手，modelId: {}", modelId);
 
-        OpenAiChatModel chatModel = chatModelProvider.getChatModelByModelId(modelId);
+        ChatModel chatModel = chatModelProvider.getChatModelByModelId(modelId);
         List<ToolCallback> tools = toolRegistry.getAllToolCallbacks();
 
         AgentWrapper agent = AgentWrapper.builder()
@@ -244,7 +244,7 @@ public class ReactAgentExecutionService {
     public Map<String, Object> executeResearchPipeline(Long modelId, String message) {
         log.info("[ReactAgentExecution] 执行研究流水线，modelId: {}", modelId);
 
-        OpenAiChatModel chatModel = chatModelProvider.getChatModelByModelId(modelId);
+        ChatModel chatModel = chatModelProvider.getChatModelByModelId(modelId);
 
         // 创建多个专业 Agent
         AgentWrapper researchAgent = AgentWrapper.builder()
@@ -299,7 +299,7 @@ public class ReactAgentExecutionService {
     public Map<String, Object> executeEnterpriseTeam(Long modelId, String message) {
         log.info("[ReactAgentExecution] 执行企业智能助手团队，modelId: {}", modelId);
 
-        OpenAiChatModel chatModel = chatModelProvider.getChatModelByModelId(modelId);
+        ChatModel chatModel = chatModelProvider.getChatModelByModelId(modelId);
 
         // 创建专业 Worker Agents
         AgentWrapper weatherAgent = AgentWrapper.builder()
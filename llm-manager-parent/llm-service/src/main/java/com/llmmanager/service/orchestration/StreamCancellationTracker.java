@@ -0,0 +1,131 @@
+package com.llmmanager.service.orchestration;
+
+import com.llmmanager.agent.routing.CoalescedCancellation;
+import com.llmmanager.agent.storage.core.service.ConversationTurnService;
+import com.llmmanager.service.dto.ChatStreamChunk;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import javax.annotation.Resource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 流式对话取消跟踪器
+ *
+ * 客户端断开 SSE 连接时，Spring MVC 取消对 Flux 的订阅，取消信号沿 Flux 链传到
+ * LlmChatAgent.stream() 的上游 HTTP 流，上游请求随即关闭、停止生成。本类在这条链上：
+ * - 统计已输出的增量块数（取消时上游尚未返回 usage，无法得到准确 token 数，指标按增量块计）
+ * - 取消时把会话最近的未完成轮次标记为 INTERRUPTED（不作为完整轮次保存）
+ * - 记录指标：
+ *   - llm.stream.cancelled (Counter)           - 被取消的流式对话数
+ *   - llm.stream.cancelled.chunks (Summary)    - 取消前已输出的增量块数
+ *   - llm.stream.chunks.saved (Counter)        - 估算少生成的增量块数（同模型完整回答的平均块数 - 已输出）
+ *
+ * 合并的流式请求（RequestCoalescer）只有最后一个订阅者断开时上游才会被取消，
+ * 其余订阅者断开不计入上述指标、也不标记轮次中断（通过 Context 中的 CoalescedCancellation 判断）。
+ */
+@Slf4j
+@Component
+public class StreamCancellationTracker {
+
+    /**
+     * 平均回答长度的平滑系数（EWMA）
+     */
+    private static final double EWMA_ALPHA = 0.1;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private ConversationTurnService conversationTurnService;
+
+    /**
+     * 各模型完整回答的平均增量块数（用于估算取消节省量）
+     */
+    private final Map<String, Double> averageCompletionChunks = new ConcurrentHashMap<>();
+
+    /**
+     * 跟踪流式对话的完成 / 取消
+     *
+     * @param chunkFlux        ChatStreamChunk 流
+     * @param conversationCode 会话标识（可为空，为空时不更新轮次状态）
+     * @param model            模型标识（指标标签）
+     * @return 附加了跟踪逻辑的流
+     */
+    public Flux<ChatStreamChunk> track(Flux<ChatStreamChunk> chunkFlux, String conversationCode, String model) {
+        String modelTag = model != null ? model : "unknown";
+        return Flux.defer(() -> {
+            AtomicInteger generated = new AtomicInteger();
+            CoalescedCancellation cancellation = new CoalescedCancellation();
+            return chunkFlux
+                    .doOnNext(chunk -> {
+                        if (chunk.hasContent()) {
+                            generated.incrementAndGet();
+                        }
+                    })
+                    .doOnComplete(() -> recordCompletion(modelTag, generated.get()))
+                    // doFinally 在取消信号传到上游之后执行，此时 RequestCoalescer 已判断是否真正取消了上游
+                    .doFinally(signal -> {
+                        if (signal == SignalType.CANCEL) {
+                            onCancel(conversationCode, modelTag, generated.get(), cancellation);
+                        }
+                    })
+                    .contextWrite(Context.of(CoalescedCancellation.CONTEXT_KEY, cancellation));
+        });
+    }
+
+    private void recordCompletion(String model, int chunks) {
+        averageCompletionChunks.merge(model, (double) chunks,
+                (average, current) -> average + EWMA_ALPHA * (current - average));
+    }
+
+    private void onCancel(String conversationCode, String model, int generated, CoalescedCancellation cancellation) {
+        if (!cancellation.isUpstreamCancelled()) {
+            log.debug("[StreamCancellationTracker] 合并流的订阅者断开，上游继续为其它订阅者输出, model: {}", model);
+            return;
+        }
+        double average = averageCompletionChunks.getOrDefault(model, 0d);
+        long saved = Math.max(0, Math.round(average) - generated);
+
+        log.info("[StreamCancellationTracker] 客户端断开，已取消上游流, model: {}, conversationCode: {}, 已输出块数: {}, 估算少生成: {}",
+                model, conversationCode, generated, saved);
+
+        Counter.builder("llm.stream.cancelled")
+                .tag("model", model)
+                .description("客户端断开导致取消的流式对话数")
+                .register(meterRegistry)
+                .increment();
+        DistributionSummary.builder("llm.stream.cancelled.chunks")
+                .tag("model", model)
+                .description("取消前已输出的增量块数")
+                .register(meterRegistry)
+                .record(generated);
+        Counter.builder("llm.stream.chunks.saved")
+                .tag("model", model)
+                .description("取消上游流估算少生成的增量块数")
+                .register(meterRegistry)
+                .increment(saved);
+
+        if (conversationCode == null) {
+            return;
+        }
+        // 取消回调可能运行在容器线程上，数据库更新放到弹性线程池
+        Schedulers.boundedElastic().schedule(() -> {
+            try {
+                // 取消时没有 usage，已生成量按增量块数近似记录
+                conversationTurnService.markInterrupted(conversationCode, generated, "Client disconnected");
+            } catch (Exception e) {
+                log.warn("[StreamCancellationTracker] 标记轮次中断失败, conversationCode: {}", conversationCode, e);
+            }
+        });
+    }
+}
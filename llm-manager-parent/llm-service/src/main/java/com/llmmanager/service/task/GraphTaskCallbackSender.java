@@ -0,0 +1,110 @@
+package com.llmmanager.service.task;
+
+import com.llmmanager.agent.config.AsyncTaskProperties;
+import com.llmmanager.agent.tools.NetworkAddressGuard;
+import com.llmmanager.agent.tools.PinnedHttpClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.Resource;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 异步任务结果回调发送器
+ *
+ * 以 POST application/json 投递任务结果，请求头：
+ * - X-LLM-Task-Code：任务 Code（接收方据此去重，同一任务可能被投递多次）
+ * - X-LLM-Delivery-Attempt：第几次投递（从 1 开始）
+ * - X-LLM-Signature：sha256=HMAC-SHA256(secret, body)，仅配置了 callback.secret 时携带
+ *
+ * 2xx 视为投递成功，其余状态码和网络异常由 GraphTaskWorker 按指数退避重试。
+ * 回调地址只允许 http/https；未开启 allowPrivateNetwork 时拒绝回环、内网、链路本地地址，避免被用来探测内网。
+ */
+@Slf4j
+@Component
+public class GraphTaskCallbackSender {
+
+    public static final String HEADER_TASK_CODE = "X-LLM-Task-Code";
+    public static final String HEADER_ATTEMPT = "X-LLM-Delivery-Attempt";
+    public static final String HEADER_SIGNATURE = "X-LLM-Signature";
+
+    @Resource
+    private AsyncTaskProperties properties;
+
+    /**
+     * 校验回调地址
+     *
+     * @throws IllegalArgumentException 地址不合法或指向不允许的网络
+     */
+    public void validate(String callbackUrl) {
+        URI uri;
+        try {
+            uri = URI.create(callbackUrl);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("回调地址格式错误: " + callbackUrl);
+        }
+        String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase(Locale.ROOT) : "";
+        if (!"http".equals(scheme) && !"https".equals(scheme)) {
+            throw new IllegalArgumentException("回调地址仅支持 http/https: " + callbackUrl);
+        }
+        if (!StringUtils.hasText(uri.getHost())) {
+            throw new IllegalArgumentException("回调地址缺少主机名: " + callbackUrl);
+        }
+        if (!Boolean.TRUE.equals(properties.getCallback().getAllowPrivateNetwork())) {
+            NetworkAddressGuard.checkPublicHost(uri.getHost());
+        }
+    }
+
+    /**
+     * 投递一次回调
+     *
+     * @return HTTP 状态码
+     * @throws IOException 网络异常或超时
+     */
+    public int send(String callbackUrl, String taskCode, int attempt, String body) throws IOException {
+        // 投递时再次校验，并直接连接校验时解析出的地址，防止 DNS 解析结果在提交后或连接时变为内网地址
+        validate(callbackUrl);
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Content-Type", "application/json");
+        headers.put(HEADER_TASK_CODE, taskCode);
+        headers.put(HEADER_ATTEMPT, String.valueOf(attempt));
+        String secret = properties.getCallback().getSecret();
+        if (StringUtils.hasText(secret)) {
+            headers.put(HEADER_SIGNATURE, "sha256=" + sign(secret, body));
+        }
+
+        int timeoutMs = properties.getCallback().getTimeoutMs().intValue();
+        try (PinnedHttpClient.Response response = PinnedHttpClient.send(URI.create(callbackUrl),
+                Boolean.TRUE.equals(properties.getCallback().getAllowPrivateNetwork()), "POST", headers,
+                body.getBytes(StandardCharsets.UTF_8), timeoutMs, timeoutMs)) {
+            log.debug("[GraphTaskCallback] 回调已投递: taskCode={}, attempt={}, status={}", taskCode, attempt, response.statusCode());
+            return response.statusCode();
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * HMAC-SHA256 签名（十六进制小写），接收方用同一密钥对原始请求体计算后比较
+     */
+    public static String sign(String secret, String body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(body.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 不可用", e);
+        }
+    }
+}
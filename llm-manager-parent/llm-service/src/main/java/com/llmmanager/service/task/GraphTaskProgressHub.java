@@ -0,0 +1,87 @@
+package com.llmmanager.service.task;
+
+import com.llmmanager.agent.config.AsyncTaskProperties;
+import com.llmmanager.agent.stream.ExecutionEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 异步任务进度广播（本节点内存）
+ *
+ * 任务在本节点开始执行时打开一个重放通道，执行事件（node_start / token / tool_end ...）写入通道，
+ * SSE 订阅者加入时先收到最近 progressReplaySize 个事件再接收后续事件；任务结束后关闭并移除通道。
+ *
+ * 只覆盖本节点执行的任务：排队中或在其它节点执行的任务由 GraphTaskWorker.watch 查询任务状态推送 status 事件。
+ */
+@Component
+public class GraphTaskProgressHub {
+
+    /**
+     * 并发写入冲突时的重试策略
+     */
+    private static final Sinks.EmitFailureHandler EMIT_RETRY = Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100));
+
+    @Resource
+    private AsyncTaskProperties properties;
+
+    private final Map<String, Sinks.Many<ExecutionEvent>> channels = new ConcurrentHashMap<>();
+
+    /**
+     * 打开任务的进度通道（任务开始执行时调用）
+     */
+    public void open(String taskCode) {
+        int replaySize = Math.max(1, properties.getProgressReplaySize());
+        channels.put(taskCode, Sinks.many().replay().limit(replaySize));
+    }
+
+    /**
+     * 写入进度事件（多个执行线程可能同时写入，冲突时自旋重试）
+     */
+    public void publish(String taskCode, ExecutionEvent event) {
+        Sinks.Many<ExecutionEvent> channel = channels.get(taskCode);
+        if (channel != null) {
+            channel.emitNext(event, EMIT_RETRY);
+        }
+    }
+
+    /**
+     * 关闭通道：写入最后一个事件后结束，已订阅的 SSE 随之结束
+     */
+    public void close(String taskCode, ExecutionEvent last) {
+        Sinks.Many<ExecutionEvent> channel = channels.remove(taskCode);
+        if (channel != null) {
+            if (last != null) {
+                channel.emitNext(last, EMIT_RETRY);
+            }
+            channel.emitComplete(EMIT_RETRY);
+        }
+    }
+
+    /**
+     * 任务是否正在本节点执行
+     */
+    public boolean isActive(String taskCode) {
+        return channels.containsKey(taskCode);
+    }
+
+    /**
+     * 订阅任务进度（任务不在本节点执行时返回空流）
+     */
+    public Flux<ExecutionEvent> subscribe(String taskCode) {
+        Sinks.Many<ExecutionEvent> channel = channels.get(taskCode);
+        return channel != null ? channel.asFlux() : Flux.empty();
+    }
+
+    /**
+     * 本节点打开的进度通道数
+     */
+    public int size() {
+        return channels.size();
+    }
+}
@@ -0,0 +1,811 @@
+package com.llmmanager.service.task;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.llmmanager.agent.concurrent.VirtualThreads;
+import com.llmmanager.agent.config.AsyncTaskProperties;
+import com.llmmanager.agent.graph.workflow.DeepResearchWorkflow.ResearchProgress;
+import com.llmmanager.agent.storage.core.entity.GraphTask;
+import com.llmmanager.agent.storage.core.entity.GraphWorkflow;
+import com.llmmanager.agent.storage.core.service.GraphTaskService;
+import com.llmmanager.agent.stream.ExecutionEvent;
+import com.llmmanager.service.orchestration.DynamicReactAgentExecutionService;
+import com.llmmanager.service.orchestration.DynamicWorkflowExecutionService;
+import com.llmmanager.service.orchestration.GraphExecutionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 异步任务 Worker（DeepResearch / 动态工作流 / ReactAgent）
+ *
+ * 异步接口只把任务写入 a_graph_tasks（PENDING）并立即返回 taskCode，由 Worker 在后台执行：
+ * - 认领：每个轮询周期按空闲槽位认领任务，优先级高的先执行；同优先级时正在执行任务少的 API Key 先执行，
+ *   单个 API Key 同时执行的任务数不超过 maxRunningPerKey（集群范围，认领 UPDATE 中校验，多节点恰好同时认领时为尽力保证），
+ *   避免一个调用方占满执行槽位
+ * - 租约：与 DocumentIngestionWorker 相同，认领时写入租约、执行期间心跳续约，节点宕机后由其它节点回收
+ * - 取消：PENDING 任务直接取消；RUNNING 任务在本节点立即中止，在其它节点由持有节点下次心跳时发现并中止
+ * - 结果获取：轮询任务状态、SSE 订阅进度（watch）、回调地址（任务结束后投递，失败按指数退避重试）
+ *
+ * 执行线程池大小固定为 concurrency（虚拟线程模式下为虚拟线程），工作流内部的 LLM 调用仍由各执行服务调度。
+ *
+ * 指标：
+ * - llm.tasks (Counter, type, status)              - 提交 / 成功 / 失败 / 重试 / 取消的任务数
+ * - llm.tasks.running (Gauge)                      - 本节点正在执行的任务数
+ * - llm.tasks.queue.wait (Timer, type)             - 提交到开始执行的排队时间
+ * - llm.tasks.duration (Timer, type, status)       - 执行耗时
+ * - llm.tasks.callbacks (Counter, status)          - 回调投递成功 / 重试 / 失败次数
+ */
+@Slf4j
+@Component
+public class GraphTaskWorker {
+
+    @Resource
+    private AsyncTaskProperties properties;
+
+    @Resource
+    private GraphTaskService taskService;
+
+    @Resource
+    private GraphTaskProgressHub progressHub;
+
+    @Resource
+    private GraphTaskCallbackSender callbackSender;
+
+    @Resource
+    private GraphExecutionService graphExecutionService;
+
+    @Resource
+    private DynamicWorkflowExecutionService dynamicWorkflowExecutionService;
+
+    @Resource
+    private DynamicReactAgentExecutionService dynamicReactAgentExecutionService;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+
+    /**
+     * 本节点正在执行的任务（Key: 任务 ID）
+     */
+    private final Map<Long, RunningTask> running = new ConcurrentHashMap<>();
+
+    /**
+     * 正在投递的回调数
+     */
+    private final AtomicInteger callbacksInFlight = new AtomicInteger();
+
+    private String nodeId;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService executor;
+    private ExecutorService callbackExecutor;
+
+    /**
+     * 提交参数
+     *
+     * @param apiKeyId    提交任务的 API Key ID（公平调度分组，管理后台提交为 null）
+     * @param priority    优先级（为空时使用 defaultPriority，限制在 0 ~ maxPriority）
+     * @param callbackUrl 结果回调地址（可选）
+     */
+    public record SubmitOptions(Long apiKeyId, Integer priority, String callbackUrl) {
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        nodeId = StringUtils.hasText(properties.getNodeId()) ? properties.getNodeId() : defaultNodeId();
+        int concurrency = Math.max(1, properties.getConcurrency());
+        long pollIntervalMs = properties.getPollIntervalMs();
+        long heartbeatIntervalMs = properties.getHeartbeatIntervalMs();
+
+        executor = Executors.newFixedThreadPool(concurrency, VirtualThreads.threadFactory("graph-task-worker-"));
+        callbackExecutor = Executors.newFixedThreadPool(Math.max(1, properties.getCallback().getConcurrency()),
+                VirtualThreads.threadFactory("graph-task-callback-"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "graph-task-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::poll, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::dispatchCallbacks, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        Gauge.builder("llm.tasks.running", running, Map::size).register(meterRegistry);
+
+        log.info("[GraphTaskWorker] 启动: nodeId={}, concurrency={}, maxRunningPerKey={}, leaseMs={}, heartbeatMs={}",
+                nodeId, concurrency, properties.getMaxRunningPerKey(), properties.getLeaseMs(), heartbeatIntervalMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        callbackExecutor.shutdown();
+        executor.shutdown();
+        try {
+            // 未完成的任务不再续约，租约过期后由其它节点接管（或执行次数耗尽后标记失败）
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("[GraphTaskWorker] 停止时仍有 {} 个任务在执行，租约过期后由其它节点接管", running.size());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 是否启用异步任务（未启用时异步接口返回错误，同步接口不受影响）
+     */
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(properties.getEnabled());
+    }
+
+    // ==================== 提交 ====================
+
+    /**
+     * 提交 DeepResearch 任务
+     */
+    public GraphTask submitResearch(Long modelId, String question, SubmitOptions options) {
+        GraphTask task = newTask(GraphTask.TaskType.RESEARCH, options);
+        task.setModelId(modelId);
+        task.setQuestion(question);
+        return enqueue(task);
+    }
+
+    /**
+     * 提交动态工作流任务（保存工作流配置快照，执行期间修改工作流不影响已提交的任务）
+     */
+    public GraphTask submitWorkflow(GraphWorkflow workflow, Map<String, Object> initialState, SubmitOptions options) {
+        GraphTask task = newTask(GraphTask.TaskType.WORKFLOW, options);
+        task.setGraphWorkflowId(workflow.getId());
+        task.setModelId(workflow.getLlmModelId());
+        task.setTargetSlug(workflow.getSlug());
+        task.setGraphConfigSnapshot(workflow.getGraphConfig());
+        task.setInputParams(toJson(initialState));
+        Object question = initialState.get("question");
+        task.setQuestion(question != null ? question.toString() : null);
+        Object conversationCode = initialState.get("conversation_code");
+        task.setConversationCode(conversationCode != null ? conversationCode.toString() : null);
+        return enqueue(task);
+    }
+
+    /**
+     * 提交 ReactAgent 任务
+     */
+    public GraphTask submitReactAgent(String slug, String message, String conversationCode, SubmitOptions options) {
+        GraphTask task = newTask(GraphTask.TaskType.REACT_AGENT, options);
+        task.setTargetSlug(slug);
+        task.setQuestion(message);
+        task.setConversationCode(conversationCode);
+        return enqueue(task);
+    }
+
+    /**
+     * @throws IllegalStateException    未启用或该 API Key 未结束的任务数已达上限
+     * @throws IllegalArgumentException 回调地址不合法
+     */
+    private GraphTask newTask(GraphTask.TaskType type, SubmitOptions options) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("异步任务未启用（llm.async-tasks.enabled=false）");
+        }
+        if (StringUtils.hasText(options.callbackUrl())) {
+            callbackSender.validate(options.callbackUrl());
+        }
+        int maxActive = properties.getMaxActivePerKey();
+        if (maxActive > 0 && taskService.countActiveByApiKey(options.apiKeyId()) >= maxActive) {
+            throw new IllegalStateException("未结束的任务数已达上限 " + maxActive + "，请等待已提交的任务完成后再提交");
+        }
+
+        int priority = options.priority() != null ? options.priority() : properties.getDefaultPriority();
+        priority = Math.max(0, Math.min(properties.getMaxPriority(), priority));
+        GraphTask task = GraphTask.createAsync(type, priority, Math.max(1, properties.getMaxAttempts()));
+        task.setApiKeyId(options.apiKeyId());
+        task.setCallbackUrl(StringUtils.hasText(options.callbackUrl()) ? options.callbackUrl() : null);
+        return task;
+    }
+
+    private GraphTask enqueue(GraphTask task) {
+        GraphTask saved = taskService.enqueue(task);
+        count(task.getTaskType(), "submitted");
+        return saved;
+    }
+
+    // ==================== 查询 / 取消 ====================
+
+    /**
+     * 查询任务（走主库）
+     */
+    public GraphTask getTask(String taskCode) {
+        return taskService.getByTaskCode(taskCode);
+    }
+
+    /**
+     * 任务视图：状态、排队位置、结果、回调状态
+     */
+    public Map<String, Object> getTaskView(GraphTask task) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("taskCode", task.getTaskCode());
+        view.put("taskType", task.getTaskType());
+        view.put("status", task.getStatus());
+        view.put("targetSlug", task.getTargetSlug());
+        view.put("modelId", task.getModelId());
+        view.put("conversationCode", task.getConversationCode());
+        view.put("priority", task.getPriority());
+        view.put("attempts", task.getAttempts());
+        view.put("maxAttempts", task.getMaxAttempts());
+        if (GraphTask.TaskStatus.PENDING.name().equals(task.getStatus())) {
+            view.put("queuePosition", taskService.countAhead(task));
+        }
+        view.put("answer", task.getAnswer());
+        view.put("analysis", task.getAnalysis());
+        view.put("qualityScore", task.getQualityScore());
+        view.put("iterationCount", task.getIterationCount());
+        view.put("result", parseResult(task.getResultData()));
+        view.put("errorMessage", task.getErrorMessage());
+        view.put("totalDurationMs", task.getTotalDurationMs());
+        view.put("createTime", format(task.getCreateTime()));
+        view.put("startTime", format(task.getStartTime()));
+        view.put("endTime", format(task.getEndTime()));
+        view.put("callbackUrl", task.getCallbackUrl());
+        view.put("callbackStatus", task.getCallbackStatus());
+        view.put("callbackAttempts", task.getCallbackAttempts());
+        view.put("callbackError", task.getCallbackError());
+        return view;
+    }
+
+    /**
+     * 取消未结束的任务
+     *
+     * @return 任务已结束时返回 false
+     */
+    public boolean cancel(GraphTask task) {
+        if (!taskService.cancel(task.getTaskCode())) {
+            return false;
+        }
+        RunningTask run = running.get(task.getId());
+        if (run != null) {
+            run.cancel("任务已取消");
+        }
+        count(task.getTaskType(), "cancelled");
+        log.info("[GraphTaskWorker] 任务已取消: taskCode={}, 本节点执行中={}", task.getTaskCode(), run != null);
+        triggerCallbacks();
+        return true;
+    }
+
+    /**
+     * 订阅任务进度
+     *
+     * 事件：status（排队 / 状态变化）→ 执行事件（start / node_start / token / tool_end ...，仅本节点执行时）→ status（结束）
+     * - 任务在本节点执行：先重放最近的执行事件，再实时推送
+     * - 排队中或在其它节点执行：按 statusPollIntervalMs 查询任务状态，状态或排队位置变化时推送 status
+     * - 失败重试重新入队后继续跟随，任务结束（SUCCESS / FAILED / CANCELLED）后流结束
+     */
+    public Flux<ExecutionEvent> watch(String taskCode) {
+        return watch(taskCode, new AtomicReference<>());
+    }
+
+    private Flux<ExecutionEvent> watch(String taskCode, AtomicReference<String> lastStatus) {
+        Duration interval = Duration.ofMillis(Math.max(200, properties.getStatusPollIntervalMs()));
+
+        Flux<ExecutionEvent> untilRunningHere = Flux.interval(Duration.ZERO, interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> loadTask(taskCode))
+                .takeUntil(task -> task.isEmpty() || task.get().isFinished() || progressHub.isActive(taskCode))
+                .flatMap(task -> Mono.justOrEmpty(task.flatMap(t -> statusIfChanged(t, lastStatus))));
+
+        Flux<ExecutionEvent> progress = Flux.defer(() -> progressHub.subscribe(taskCode))
+                .doOnNext(event -> {
+                    if (event.getType() == ExecutionEvent.EventType.STATUS) {
+                        lastStatus.set(statusKey(event.getData()));
+                    }
+                });
+
+        Flux<ExecutionEvent> afterRun = loadTask(taskCode).flatMapMany(task -> {
+            if (task.isEmpty()) {
+                return Flux.empty();
+            }
+            if (task.get().isFinished()) {
+                return Mono.justOrEmpty(statusIfChanged(task.get(), lastStatus));
+            }
+            // 执行失败后重新入队，或在本节点的执行被中止后由其它节点接管
+            return watch(taskCode, lastStatus);
+        });
+
+        return untilRunningHere.concatWith(progress).concatWith(afterRun);
+    }
+
+    private Mono<Optional<GraphTask>> loadTask(String taskCode) {
+        return Mono.fromCallable(() -> Optional.ofNullable(taskService.getByTaskCode(taskCode)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Optional<ExecutionEvent> statusIfChanged(GraphTask task, AtomicReference<String> lastStatus) {
+        Map<String, Object> view = getTaskView(task);
+        String key = statusKey(view);
+        if (key.equals(lastStatus.getAndSet(key))) {
+            return Optional.empty();
+        }
+        return Optional.of(ExecutionEvent.status(view));
+    }
+
+    private static String statusKey(Map<String, Object> view) {
+        return view.get("status") + ":" + view.get("attempts") + ":" + view.get("queuePosition");
+    }
+
+    /**
+     * 队列统计（各状态任务数、本节点执行情况）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("nodeId", nodeId);
+        stats.put("concurrency", properties.getConcurrency());
+        stats.put("maxRunningPerKey", properties.getMaxRunningPerKey());
+        stats.put("running", running.size());
+        stats.put("callbacksInFlight", callbacksInFlight.get());
+        stats.put("tasks", taskService.countByStatus());
+        return stats;
+    }
+
+    // ==================== 调度 ====================
+
+    /**
+     * 回收过期租约并按空闲槽位公平认领任务
+     */
+    private void poll() {
+        try {
+            taskService.recoverExpiredLeases();
+
+            int free = Math.max(1, properties.getConcurrency()) - running.size();
+            if (free <= 0) {
+                return;
+            }
+            for (GraphTask task : taskService.claim(nodeId, free, properties.getLeaseMs(), properties.getMaxRunningPerKey())) {
+                RunningTask run = new RunningTask(task);
+                running.put(task.getId(), run);
+                try {
+                    executor.execute(() -> execute(run));
+                } catch (RejectedExecutionException e) {
+                    // 线程池已关闭（应用停止中）：撤销认领，交还给其它节点
+                    running.remove(task.getId());
+                    boolean released = taskService.releaseClaim(task, nodeId);
+                    log.warn("[GraphTaskWorker] 执行线程池拒绝任务，{}: taskCode={}",
+                            released ? "已撤销认领" : "撤销认领失败，等待租约过期后回收", task.getTaskCode());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("[GraphTaskWorker] 轮询任务失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 为本节点正在执行的任务续约；续约失败（已取消或租约被回收）时中止执行
+     */
+    private void heartbeat() {
+        long leaseMs = properties.getLeaseMs();
+        for (RunningTask run : running.values()) {
+            GraphTask task = run.task;
+            try {
+                if (taskService.renewLease(task, nodeId, leaseMs)) {
+                    continue;
+                }
+                GraphTask latest = taskService.getById(task.getId());
+                boolean cancelled = latest != null && GraphTask.TaskStatus.CANCELLED.name().equals(latest.getStatus());
+                log.warn("[GraphTaskWorker] 任务{}，中止本节点的执行: taskCode={}",
+                        cancelled ? "已取消" : "租约已丢失", task.getTaskCode());
+                run.cancel(cancelled ? "任务已取消" : "租约已丢失");
+            } catch (Exception e) {
+                log.warn("[GraphTaskWorker] 心跳续约失败: taskCode={}, error={}", task.getTaskCode(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 执行单个任务
+     */
+    private void execute(RunningTask run) {
+        GraphTask task = run.task;
+        long startTime = System.currentTimeMillis();
+        recordQueueWait(task);
+        progressHub.open(task.getTaskCode());
+        try {
+            Map<String, Object> result = runTask(run);
+            if (run.cancelReason != null) {
+                log.info("[GraphTaskWorker] 任务已中止（{}）: taskCode={}", run.cancelReason, task.getTaskCode());
+                return;
+            }
+            long durationMs = System.currentTimeMillis() - startTime;
+            applyResult(task, result);
+            task.setTotalDurationMs(durationMs);
+            if (taskService.markSucceeded(task, nodeId)) {
+                count(task.getTaskType(), "succeeded");
+                recordDuration(task.getTaskType(), "succeeded", durationMs);
+                log.info("[GraphTaskWorker] 任务完成: taskCode={}, type={}, apiKeyId={}, attempt={}, 耗时={}ms",
+                        task.getTaskCode(), task.getTaskType(), task.getApiKeyId(), task.getAttempts(), durationMs);
+            } else {
+                log.warn("[GraphTaskWorker] 任务完成但租约已丢失，结果不写回: taskCode={}", task.getTaskCode());
+            }
+        } catch (Exception e) {
+            if (run.cancelReason != null) {
+                log.info("[GraphTaskWorker] 任务已中止（{}）: taskCode={}", run.cancelReason, task.getTaskCode());
+            } else {
+                log.error("[GraphTaskWorker] 任务执行失败: taskCode={}, type={}", task.getTaskCode(), task.getTaskType(), e);
+                finishFailed(task, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName(),
+                        System.currentTimeMillis() - startTime);
+            }
+        } finally {
+            running.remove(task.getId());
+            progressHub.close(task.getTaskCode(), finalStatus(task));
+            triggerCallbacks();
+        }
+    }
+
+    /**
+     * 执行结束后的任务状态事件（作为进度通道的最后一个事件）
+     */
+    private ExecutionEvent finalStatus(GraphTask task) {
+        try {
+            GraphTask latest = taskService.getById(task.getId());
+            return latest != null ? ExecutionEvent.status(getTaskView(latest)) : null;
+        } catch (Exception e) {
+            log.warn("[GraphTaskWorker] 查询任务最终状态失败: taskCode={}, error={}", task.getTaskCode(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 按任务类型执行，阻塞到结束、取消或超时
+     *
+     * @return 执行结果（与同步接口结构一致）
+     */
+    private Map<String, Object> runTask(RunningTask run) throws Exception {
+        GraphTask task = run.task;
+        GraphTask.TaskType type = GraphTask.TaskType.valueOf(task.getTaskType());
+        if (type == GraphTask.TaskType.RESEARCH) {
+            return runResearch(run);
+        }
+        Flux<ExecutionEvent> events;
+        if (type == GraphTask.TaskType.WORKFLOW) {
+            Map<String, Object> initialState = StringUtils.hasText(task.getInputParams())
+                    ? objectMapper.readValue(task.getInputParams(), new TypeReference<Map<String, Object>>() {
+                    })
+                    : new HashMap<>();
+            events = dynamicWorkflowExecutionService.executeWorkflowStream(
+                    task.getGraphConfigSnapshot(), task.getModelId(), initialState);
+        } else {
+            events = dynamicReactAgentExecutionService.executeStream(
+                    task.getTargetSlug(), task.getQuestion(), task.getConversationCode());
+        }
+
+        AtomicReference<Map<String, Object>> result = new AtomicReference<>();
+        AtomicReference<String> error = new AtomicReference<>();
+        await(events.doOnNext(event -> {
+            progressHub.publish(task.getTaskCode(), event);
+            if (event.getType() == ExecutionEvent.EventType.COMPLETE) {
+                result.set(event.getData());
+            } else if (event.getType() == ExecutionEvent.EventType.ERROR) {
+                error.set(String.valueOf(event.getData().get("error")));
+            }
+        }), run);
+
+        if (run.cancelReason != null) {
+            return null;
+        }
+        if (error.get() != null) {
+            throw new IllegalStateException(error.get());
+        }
+        if (result.get() == null) {
+            throw new IllegalStateException("执行结束但未返回结果");
+        }
+        return result.get();
+    }
+
+    /**
+     * 阻塞等待执行流结束；取消或超过 taskTimeoutMs 时取消执行流（上游 LLM 请求随之中止）
+     */
+    private void await(Flux<?> execution, RunningTask run) {
+        long timeoutMs = properties.getTaskTimeoutMs();
+        AtomicBoolean timedOut = new AtomicBoolean();
+        execution.takeUntilOther(run.cancelSignal.asMono())
+                .takeUntilOther(Mono.delay(Duration.ofMillis(timeoutMs)).doOnNext(tick -> timedOut.set(true)))
+                .blockLast();
+        if (timedOut.get() && run.cancelReason == null) {
+            throw new IllegalStateException("执行超时（超过 " + timeoutMs + "ms）");
+        }
+    }
+
+    /**
+     * DeepResearch：每个节点的进度作为 node_end 事件推送，最后一次进度即研究结果
+     */
+    private Map<String, Object> runResearch(RunningTask run) {
+        GraphTask task = run.task;
+        Map<String, Object> startData = new HashMap<>();
+        startData.put("modelId", task.getModelId());
+        progressHub.publish(task.getTaskCode(), ExecutionEvent.start(startData));
+
+        AtomicReference<ResearchProgress> last = new AtomicReference<>();
+        await(Flux.defer(() -> graphExecutionService.deepResearchStream(task.getModelId(), task.getQuestion()))
+                .doOnNext(progress -> {
+                    last.set(progress);
+                    progressHub.publish(task.getTaskCode(), ExecutionEvent.nodeEnd(progress.getNodeName(), researchData(progress)));
+                }), run);
+
+        if (run.cancelReason != null) {
+            return null;
+        }
+        if (last.get() == null) {
+            throw new IllegalStateException("深度研究未返回结果");
+        }
+        Map<String, Object> result = researchData(last.get());
+        result.put("question", task.getQuestion());
+        result.put("success", true);
+        progressHub.publish(task.getTaskCode(), ExecutionEvent.complete(result));
+        return result;
+    }
+
+    private static Map<String, Object> researchData(ResearchProgress progress) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("answer", progress.getCurrentAnswer());
+        data.put("analysis", progress.getAnalysis());
+        data.put("qualityScore", progress.getQualityScore());
+        data.put("iterationCount", progress.getIterationCount());
+        return data;
+    }
+
+    /**
+     * 从执行结果提取 answer 等字段写回任务
+     */
+    @SuppressWarnings("unchecked")
+    private void applyResult(GraphTask task, Map<String, Object> result) {
+        task.setResultData(toJson(result));
+        if (GraphTask.TaskType.RESEARCH.name().equals(task.getTaskType())) {
+            task.setAnswer(asText(result.get("answer")));
+            task.setAnalysis(asText(result.get("analysis")));
+            task.setQualityScore(result.get("qualityScore") instanceof Number n ? n.intValue() : null);
+            task.setIterationCount(result.get("iterationCount") instanceof Number n ? n.intValue() : 0);
+        } else if (GraphTask.TaskType.WORKFLOW.name().equals(task.getTaskType())) {
+            Map<String, Object> state = result.get("data") instanceof Map<?, ?> data ? (Map<String, Object>) data : Map.of();
+            Object answer = state.getOrDefault("final_answer", state.getOrDefault("answer", state.get("result")));
+            task.setAnswer(asText(answer));
+        } else {
+            task.setAnswer(asText(result.getOrDefault("result", result.get("finalResult"))));
+        }
+    }
+
+    /**
+     * 任务失败：仍有执行次数时按指数退避重新入队，否则标记 FAILED
+     */
+    private void finishFailed(GraphTask task, String error, long durationMs) {
+        int attempt = Math.max(1, task.getAttempts() != null ? task.getAttempts() : 1);
+        long backoffMs = Math.min(properties.getMaxRetryBackoffMs(),
+                properties.getRetryBackoffMs() * (1L << Math.min(20, attempt - 1)));
+
+        String status;
+        try {
+            status = taskService.markFailed(task, nodeId, error, backoffMs, durationMs);
+        } catch (Exception e) {
+            log.warn("[GraphTaskWorker] 更新任务失败状态失败，租约过期后重新处理: taskCode={}, error={}",
+                    task.getTaskCode(), e.getMessage());
+            return;
+        }
+        if (status == null) {
+            log.warn("[GraphTaskWorker] 任务失败但租约已丢失，结果不写回: taskCode={}", task.getTaskCode());
+        } else if (GraphTask.TaskStatus.FAILED.name().equals(status)) {
+            count(task.getTaskType(), "failed");
+            recordDuration(task.getTaskType(), "failed", durationMs);
+        } else {
+            count(task.getTaskType(), "retry");
+            log.warn("[GraphTaskWorker] 任务失败，{}ms 后重试: taskCode={}, attempt={}/{}, error={}",
+                    backoffMs, task.getTaskCode(), attempt, task.getMaxAttempts(), error);
+        }
+    }
+
+    // ==================== 结果回调 ====================
+
+    /**
+     * 任务结束后尽快投递回调（不等下一个轮询周期）
+     */
+    private void triggerCallbacks() {
+        if (scheduler != null && !scheduler.isShutdown()) {
+            try {
+                scheduler.execute(this::dispatchCallbacks);
+            } catch (Exception e) {
+                log.debug("[GraphTaskWorker] 回调调度已停止: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 按空闲槽位认领到期的回调并投递
+     */
+    private void dispatchCallbacks() {
+        try {
+            AsyncTaskProperties.CallbackConfig config = properties.getCallback();
+            int free = Math.max(1, config.getConcurrency()) - callbacksInFlight.get();
+            if (free <= 0) {
+                return;
+            }
+            // 认领期间其它节点不会投递同一回调，认领时长需覆盖一次投递的超时
+            long leaseMs = config.getTimeoutMs() * 3;
+            for (GraphTask task : taskService.claimDueCallbacks(free, leaseMs)) {
+                callbacksInFlight.incrementAndGet();
+                callbackExecutor.execute(() -> {
+                    try {
+                        deliver(task);
+                    } finally {
+                        callbacksInFlight.decrementAndGet();
+                    }
+                });
+            }
+        } catch (Exception e) {
+            log.warn("[GraphTaskWorker] 调度回调失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 投递一次回调：2xx 为成功，否则按指数退避重试，次数耗尽后回调状态为 FAILED
+     */
+    private void deliver(GraphTask task) {
+        AsyncTaskProperties.CallbackConfig config = properties.getCallback();
+        int attempt = (task.getCallbackAttempts() != null ? task.getCallbackAttempts() : 0) + 1;
+        int maxAttempts = Math.max(1, config.getMaxAttempts());
+        String error;
+        try {
+            Map<String, Object> payload = getTaskView(task);
+            payload.put("event", "task." + task.getStatus().toLowerCase());
+            int status = callbackSender.send(task.getCallbackUrl(), task.getTaskCode(), attempt, toJson(payload));
+            if (status / 100 == 2) {
+                taskService.markCallbackDelivered(task);
+                countCallback("delivered");
+                log.info("[GraphTaskWorker] 回调投递成功: taskCode={}, attempt={}", task.getTaskCode(), attempt);
+                return;
+            }
+            error = "HTTP " + status;
+        } catch (IllegalArgumentException e) {
+            // 地址不再合法（如解析到内网地址），不再重试
+            error = e.getMessage();
+            maxAttempts = attempt;
+        } catch (Exception e) {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+
+        long backoffMs = Math.min(config.getMaxRetryBackoffMs(),
+                config.getRetryBackoffMs() * (1L << Math.min(20, attempt - 1)));
+        String status = taskService.markCallbackFailed(task, error, maxAttempts, backoffMs);
+        if (GraphTask.CallbackStatus.FAILED.name().equals(status)) {
+            countCallback("failed");
+            log.error("[GraphTaskWorker] 回调投递次数耗尽: taskCode={}, attempts={}, error={}",
+                    task.getTaskCode(), attempt, error);
+        } else {
+            countCallback("retry");
+            log.warn("[GraphTaskWorker] 回调投递失败，{}ms 后重试: taskCode={}, attempt={}/{}, error={}",
+                    backoffMs, task.getTaskCode(), attempt, maxAttempts, error);
+        }
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private void recordQueueWait(GraphTask task) {
+        if (task.getCreateTime() != null && task.getStartTime() != null) {
+            Duration wait = Duration.between(task.getCreateTime(), task.getStartTime());
+            Timer.builder("llm.tasks.queue.wait")
+                    .tag("type", task.getTaskType())
+                    .register(meterRegistry)
+                    .record(wait.isNegative() ? Duration.ZERO : wait);
+        }
+    }
+
+    private void recordDuration(String type, String status, long durationMs) {
+        Timer.builder("llm.tasks.duration")
+                .tag("type", type)
+                .tag("status", status)
+                .register(meterRegistry)
+                .record(Duration.ofMillis(durationMs));
+    }
+
+    private void count(String type, String status) {
+        Counter.builder("llm.tasks").tag("type", type).tag("status", status).register(meterRegistry).increment();
+    }
+
+    private void countCallback(String status) {
+        Counter.builder("llm.tasks.callbacks").tag("status", status).register(meterRegistry).increment();
+    }
+
+    private Object parseResult(String resultData) {
+        if (!StringUtils.hasText(resultData)) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(resultData, Object.class);
+        } catch (JsonProcessingException e) {
+            return resultData;
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            // 工作流状态中可能有无法序列化的对象，退化为文本保存
+            log.warn("[GraphTaskWorker] 结果序列化失败，按文本保存: {}", e.getMessage());
+            try {
+                return objectMapper.writeValueAsString(Map.of("text", String.valueOf(value)));
+            } catch (JsonProcessingException ignored) {
+                return "{}";
+            }
+        }
+    }
+
+    private static String asText(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static String format(Object time) {
+        return time != null ? time.toString() : null;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + ":" + ManagementFactory.getRuntimeMXBean().getPid();
+    }
+
+    /**
+     * 本节点正在执行的任务（cancelSignal 触发后执行流被取消，上游 LLM 请求随之中止）
+     */
+    private static class RunningTask {
+
+        final GraphTask task;
+        final Sinks.One<Boolean> cancelSignal = Sinks.one();
+        volatile String cancelReason;
+
+        RunningTask(GraphTask task) {
+            this.task = task;
+        }
+
+        void cancel(String reason) {
+            cancelReason = reason;
+            cancelSignal.tryEmitValue(true);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.llmmanager.service.config;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.llmmanager.agent.config.ReadWriteRoutingProperties;
+import com.llmmanager.agent.storage.datasource.DataSourceRouteContext;
+import com.llmmanager.agent.storage.datasource.ReadOnlyRoute;
+import com.llmmanager.agent.storage.datasource.ReadOnlyRouteAspect;
+import com.llmmanager.agent.storage.datasource.ReadWriteRoutingDataSource;
+import com.llmmanager.agent.storage.datasource.RecentWriteTracker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 读写分离路由验证（两个内嵌 H2 实例分别充当主库和从库，手动运行）
+ *
+ * 运行参数（-D）：
+ * - windowMs：读己之写窗口，默认 300
+ * - replicaMaxActive：从库连接池大小，默认 2
+ *
+ * 每个库的 harness_node 表写入各自的名字，查询返回哪个名字就说明连接来自哪个连接池。
+ * 依次验证：默认走主库、@ReadOnlyRoute 走从库、读己之写窗口、事务内走主库、callOnPrimary、
+ * 从库连接池占满时主库写入不受影响、从库不可用时回落主库，最后输出各连接池指标。
+ */
+public class ReadWriteRoutingHarness {
+
+    private static int failures = 0;
+
+    public static void main(String[] args) throws Exception {
+        long windowMs = Long.getLong("windowMs", 300L);
+        int replicaMaxActive = Integer.getInteger("replicaMaxActive", 2);
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean("windowMs", Long.class, () -> windowMs);
+        context.registerBean("replicaMaxActive", Integer.class, () -> replicaMaxActive);
+        context.register(HarnessConfig.class);
+        context.refresh();
+
+        HarnessDao dao = context.getBean(HarnessDao.class);
+        RecentWriteTracker tracker = context.getBean(RecentWriteTracker.class);
+        ReadWriteRoutingDataSource routing = context.getBean(ReadWriteRoutingDataSource.class);
+        TransactionTemplate transactionTemplate = context.getBean(TransactionTemplate.class);
+        DruidDataSource replicaPool = context.getBean("replicaPool", DruidDataSource.class);
+        MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+
+        System.out.println("=== 路由 ===");
+        check("未标注的查询走主库", "primary", dao.currentNode());
+        check("@ReadOnlyRoute 查询走从库", "replica", dao.adminNode());
+        check("从库的消息数（模拟复制延迟，少一条）", "2", String.valueOf(dao.countMessages("conv-a")));
+
+        System.out.println("=== 读己之写 ===");
+        dao.appendMessage("conv-a");
+        tracker.markWritten("conv-a");
+        check("刚写入的会话走主库", "primary", dao.conversationNode("conv-a"));
+        check("刚写入的会话读到新消息", "4", String.valueOf(dao.countMessages("conv-a")));
+        check("其它会话仍走从库", "replica", dao.conversationNode("conv-b"));
+        Thread.sleep(windowMs + 100);
+        check("窗口过后回到从库", "replica", dao.conversationNode("conv-a"));
+
+        System.out.println("=== 强制主库 ===");
+        check("事务内走主库", "primary", transactionTemplate.execute(status -> dao.adminNode()));
+        check("callOnPrimary 内走主库", "primary", DataSourceRouteContext.callOnPrimary(dao::adminNode));
+        check("路由上下文已清理", DataSourceRouteContext.Route.PRIMARY.name(), DataSourceRouteContext.current().name());
+
+        System.out.println("=== 连接池隔离 ===");
+        int holders = replicaMaxActive * 2;
+        ExecutorService executor = Executors.newFixedThreadPool(holders);
+        CountDownLatch started = new CountDownLatch(holders);
+        for (int i = 0; i < holders; i++) {
+            executor.submit(() -> {
+                started.countDown();
+                dao.holdConnection(500);
+            });
+        }
+        started.await();
+        Thread.sleep(50);
+        List<Long> writeMillis = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            long start = System.nanoTime();
+            dao.appendMessage("conv-c");
+            writeMillis.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        long maxWrite = writeMillis.stream().mapToLong(Long::longValue).max().orElse(0);
+        System.out.printf("  从库连接池 active=%d / max=%d, waiting=%d；主库写入 20 次最大耗时 %dms%n",
+                replicaPool.getActiveCount(), replicaPool.getMaxActive(), replicaPool.getWaitThreadCount(), maxWrite);
+        check("从库占满时主库写入不排队", "true", String.valueOf(maxWrite < 200));
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        System.out.println("=== 从库不可用 ===");
+        replicaPool.close();
+        check("从库关闭后回落主库", "primary", dao.adminNode());
+        check("从库进入冷却", "false", String.valueOf(routing.getReplicaStatus().get("replica")));
+        check("冷却期内直接走主库", "primary", dao.adminNode());
+
+        System.out.println("=== 指标 ===");
+        meterRegistry.getMeters().stream()
+                .filter(meter -> meter.getId().getName().startsWith("llm.datasource"))
+                .forEach(meter -> System.out.printf("  %s%s = %s%n", meter.getId().getName(),
+                        meter.getId().getTags(), meter.measure().iterator().next().getValue()));
+
+        context.close();
+        System.out.println(failures == 0 ? "ALL PASSED" : failures + " FAILED");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static void check(String name, String expected, String actual) {
+        boolean passed = expected.equals(actual);
+        if (!passed) {
+            failures++;
+        }
+        System.out.printf("  [%s] %s: expected=%s, actual=%s%n", passed ? "PASS" : "FAIL", name, expected, actual);
+    }
+
+    /**
+     * 建一个内嵌库：harness_node 记录库名，harness_messages 存 messageCount 条 conv-a 消息
+     */
+    private static DruidDataSource createPool(String name, int maxActive, int messageCount) {
+        DruidDataSource pool = new DruidDataSource();
+        pool.setName(name);
+        pool.setUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        pool.setUsername("sa");
+        pool.setPassword("");
+        pool.setInitialSize(1);
+        pool.setMinIdle(1);
+        pool.setMaxActive(maxActive);
+        pool.setMaxWait(2000);
+        pool.setFailFast(true);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(pool);
+        jdbcTemplate.execute("CREATE TABLE harness_node (name VARCHAR(32))");
+        jdbcTemplate.update("INSERT INTO harness_node VALUES (?)", name);
+        jdbcTemplate.execute("CREATE TABLE harness_messages (id BIGINT AUTO_INCREMENT PRIMARY KEY,"
+                + " conversation_code VARCHAR(64))");
+        for (int i = 0; i < messageCount; i++) {
+            jdbcTemplate.update("INSERT INTO harness_messages (conversation_code) VALUES ('conv-a')");
+        }
+        return pool;
+    }
+
+    @Configuration
+    @EnableAspectJAutoProxy(proxyTargetClass = true)
+    static class HarnessConfig {
+
+        @Bean
+        public ReadWriteRoutingProperties readWriteRoutingProperties(Long windowMs) {
+            ReadWriteRoutingProperties properties = new ReadWriteRoutingProperties();
+            properties.setEnabled(true);
+            properties.setReadYourWritesWindowMs(windowMs);
+            properties.setReplicaCooldownMs(60_000L);
+            return properties;
+        }
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        public RecentWriteTracker recentWriteTracker() {
+            return new RecentWriteTracker();
+        }
+
+        @Bean
+        public ReadOnlyRouteAspect readOnlyRouteAspect() {
+            return new ReadOnlyRouteAspect();
+        }
+
+        @Bean(destroyMethod = "close")
+        public DruidDataSource primaryPool() {
+            return createPool("primary", 10, 3);
+        }
+
+        @Bean(destroyMethod = "close")
+        public DruidDataSource replicaPool(Integer replicaMaxActive) {
+            return createPool("replica", replicaMaxActive, 2);
+        }
+
+        @Bean
+        public ReadWriteRoutingDataSource routingDataSource(DruidDataSource primaryPool, DruidDataSource replicaPool,
+                                                           ReadWriteRoutingProperties properties,
+                                                           MeterRegistry meterRegistry) {
+            ReadWriteDataSourceConfig.registerPoolMetrics(primaryPool, meterRegistry);
+            ReadWriteDataSourceConfig.registerPoolMetrics(replicaPool, meterRegistry);
+            return new ReadWriteRoutingDataSource(primaryPool, Map.of("replica", replicaPool),
+                    properties.getReplicaCooldownMs(), meterRegistry);
+        }
+
+        @Bean
+        public TransactionTemplate transactionTemplate(ReadWriteRoutingDataSource routingDataSource) {
+            return new TransactionTemplate(new DataSourceTransactionManager(routingDataSource));
+        }
+
+        @Bean
+        public HarnessDao harnessDao(ReadWriteRoutingDataSource routingDataSource) {
+            return new HarnessDao(new JdbcTemplate(routingDataSource));
+        }
+    }
+
+    /**
+     * 模拟 Service：写入 / 聊天链路方法不标注，管理查询方法标注 @ReadOnlyRoute
+     */
+    public static class HarnessDao {
+
+        private final JdbcTemplate jdbcTemplate;
+
+        public HarnessDao(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        public String currentNode() {
+            return jdbcTemplate.queryForObject("SELECT name FROM harness_node", String.class);
+        }
+
+        public void appendMessage(String conversationCode) {
+            jdbcTemplate.update("INSERT INTO harness_messages (conversation_code) VALUES (?)", conversationCode);
+        }
+
+        @ReadOnlyRoute
+        public String adminNode() {
+            return currentNode();
+        }
+
+        @ReadOnlyRoute(conversationArg = 0)
+        public String conversationNode(String conversationCode) {
+            return currentNode();
+        }
+
+        @ReadOnlyRoute(conversationArg = 0)
+        public int countMessages(String conversationCode) {
+            Integer count = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM harness_messages WHERE conversation_code = ?", Integer.class, conversationCode);
+            return count != null ? count : 0;
+        }
+
+        @ReadOnlyRoute
+        public void holdConnection(long millis) {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            });
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.llmmanager.service.orchestration;
+
+import com.llmmanager.agent.config.CoalescingProperties;
+import com.llmmanager.agent.model.ThinkingAwareOpenAiApi;
+import com.llmmanager.agent.routing.FailoverChatModel;
+import com.llmmanager.agent.routing.RequestCoalescer;
+import com.llmmanager.agent.storage.core.service.ConversationTurnService;
+import com.llmmanager.service.dto.ChatStreamChunk;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 流式对话断开验证（本地 Mock OpenAI 服务，手动运行）
+ *
+ * 运行参数（-D）：
+ * - streams：并发流数量，默认 50
+ * - port：Mock 服务端口，默认 18931
+ *
+ * Mock 服务每 50ms 输出一个增量块、共 200 块（约 10 秒），并统计仍打开的上游连接数（写入失败即视为客户端已断开）。
+ * 依次验证：
+ * - 并发流在随机时间断开后，上游连接在 2 秒内全部关闭，取消指标和轮次中断与断开数一致
+ * - 合并的流式请求：跟随者断开时上游保持、不计取消；最后一个订阅者断开时上游关闭并计一次取消
+ */
+public class StreamDisconnectHarness {
+
+    private static final int CHUNK_COUNT = 200;
+
+    private static final long CHUNK_INTERVAL_MS = 50;
+
+    private static final AtomicInteger openConnections = new AtomicInteger();
+
+    private static final AtomicInteger interruptedTurns = new AtomicInteger();
+
+    private static int failures = 0;
+
+    public static void main(String[] args) throws Exception {
+        int streams = Integer.getInteger("streams", 50);
+        int port = Integer.getInteger("port", 18931);
+        HttpServer server = startServer(port);
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        StreamCancellationTracker tracker = new StreamCancellationTracker();
+        ReflectionTestUtils.setField(tracker, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(tracker, "conversationTurnService", turnServiceStub());
+
+        CoalescingProperties coalescingProperties = new CoalescingProperties();
+        coalescingProperties.setEnabled(true);
+        coalescingProperties.setStreamEnabled(true);
+        RequestCoalescer coalescer = new RequestCoalescer();
+        ReflectionTestUtils.setField(coalescer, "properties", coalescingProperties);
+        ReflectionTestUtils.setField(coalescer, "meterRegistry", meterRegistry);
+        coalescer.init();
+
+        ChatModel chatModel = OpenAiChatModel.builder()
+                .openAiApi(new ThinkingAwareOpenAiApi("http://localhost:" + port, "sk-mock"))
+                .defaultOptions(OpenAiChatOptions.builder().model("mock-model").build())
+                .retryTemplate(FailoverChatModel.NO_RETRY_TEMPLATE)
+                .build();
+
+        try {
+            System.out.println("=== 并发流随机断开（" + streams + " 路） ===");
+            List<Disposable> subscriptions = new ArrayList<>();
+            for (int i = 0; i < streams; i++) {
+                subscriptions.add(tracker.track(toChunks(chatModel.stream(new Prompt("你好"))), "conv-" + i, "mock-model")
+                        .subscribe());
+            }
+            check("上游连接全部建立", "true", String.valueOf(await(() -> openConnections.get() == streams, 5000)));
+
+            // 在 0.2~1.5 秒内的随机时刻逐个断开
+            long[] disconnectAt = ThreadLocalRandom.current().longs(streams, 200, 1500).sorted().toArray();
+            long startedAt = System.currentTimeMillis();
+            for (int i = 0; i < streams; i++) {
+                Thread.sleep(Math.max(0, startedAt + disconnectAt[i] - System.currentTimeMillis()));
+                subscriptions.get(i).dispose();
+            }
+            long disposedAt = System.currentTimeMillis();
+            check("断开后上游连接 2 秒内全部关闭", "true", String.valueOf(await(() -> openConnections.get() == 0, 2000)));
+            System.out.printf("  上游连接关闭耗时: %d ms%n", System.currentTimeMillis() - disposedAt);
+            check("取消计数", String.valueOf(streams), String.valueOf(cancelledCount(meterRegistry)));
+            check("轮次中断数", "true", String.valueOf(await(() -> interruptedTurns.get() == streams, 2000)));
+
+            System.out.println("=== 合并流：跟随者断开 ===");
+            Flux<ChatResponse> shared = coalescer.stream("coalesce-key", "mock-model", () -> chatModel.stream(new Prompt("你好")));
+            Disposable leader = tracker.track(toChunks(shared), "conv-leader", "mock-model").subscribe();
+            Disposable follower = tracker.track(toChunks(shared), "conv-follower", "mock-model").subscribe();
+            check("合并后只有一个上游连接", "true", String.valueOf(await(() -> openConnections.get() == 1, 3000)));
+            Thread.sleep(300);
+            follower.dispose();
+            Thread.sleep(500);
+            check("跟随者断开后上游保持", "1", String.valueOf(openConnections.get()));
+            check("跟随者断开不计取消", String.valueOf(streams), String.valueOf(cancelledCount(meterRegistry)));
+            check("跟随者断开不中断轮次", String.valueOf(streams), String.valueOf(interruptedTurns.get()));
+
+            System.out.println("=== 合并流：最后一个订阅者断开 ===");
+            leader.dispose();
+            check("上游连接关闭", "true", String.valueOf(await(() -> openConnections.get() == 0, 2000)));
+            check("计一次取消", String.valueOf(streams + 1), String.valueOf(cancelledCount(meterRegistry)));
+            check("中断 leader 轮次", "true", String.valueOf(await(() -> interruptedTurns.get() == streams + 1, 2000)));
+
+            System.out.println("=== 指标 ===");
+            meterRegistry.getMeters().stream()
+                    .filter(meter -> meter.getId().getName().startsWith("llm.stream"))
+                    .forEach(meter -> System.out.printf("  %s%s = %s%n", meter.getId().getName(),
+                            meter.getId().getTags(), meter.measure().iterator().next().getValue()));
+        } finally {
+            server.stop(0);
+        }
+
+        System.out.println(failures == 0 ? "ALL PASSED" : failures + " FAILED");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static Flux<ChatStreamChunk> toChunks(Flux<ChatResponse> responses) {
+        return responses
+                .filter(response -> response.getResult() != null && response.getResult().getOutput().getText() != null)
+                .map(response -> ChatStreamChunk.ofContent(response.getResult().getOutput().getText()));
+    }
+
+    private static long cancelledCount(MeterRegistry meterRegistry) {
+        return (long) meterRegistry.find("llm.stream.cancelled").counters().stream()
+                .mapToDouble(counter -> counter.count())
+                .sum();
+    }
+
+    private static boolean await(BooleanSupplier condition, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(20);
+        }
+        return true;
+    }
+
+    /**
+     * 只记录 markInterrupted 调用，其它方法返回默认值
+     */
+    private static ConversationTurnService turnServiceStub() {
+        ConcurrentHashMap<String, Boolean> interrupted = new ConcurrentHashMap<>();
+        return (ConversationTurnService) Proxy.newProxyInstance(
+                ConversationTurnService.class.getClassLoader(),
+                new Class<?>[]{ConversationTurnService.class},
+                (proxy, method, methodArgs) -> {
+                    if ("markInterrupted".equals(method.getName())) {
+                        if (interrupted.putIfAbsent((String) methodArgs[0], Boolean.TRUE) == null) {
+                            interruptedTurns.incrementAndGet();
+                        }
+                        return true;
+                    }
+                    Class<?> returnType = method.getReturnType();
+                    if (returnType == boolean.class) {
+                        return false;
+                    }
+                    if (returnType == int.class) {
+                        return 0;
+                    }
+                    return null;
+                });
+    }
+
+    private static HttpServer startServer(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/v1/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            openConnections.incrementAndGet();
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int i = 0; i < CHUNK_COUNT; i++) {
+                    out.write(("data: {\"id\":\"1\",\"object\":\"chat.completion.chunk\",\"created\":0,\"model\":\"mock-model\","
+                            + "\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"块" + i + "\"}}]}\n\n")
+                            .getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    Thread.sleep(CHUNK_INTERVAL_MS);
+                }
+                out.write(("data: {\"id\":\"1\",\"object\":\"chat.completion.chunk\",\"created\":0,\"model\":\"mock-model\","
+                        + "\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}]}\n\ndata: [DONE]\n\n")
+                        .getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                // 客户端已断开
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                openConnections.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static void check(String name, String expected, String actual) {
+        boolean passed = expected.equals(actual);
+        if (!passed) {
+            failures++;
+        }
+        System.out.printf("  [%s] %s: expected=%s, actual=%s%n", passed ? "PASS" : "FAIL", name, expected, actual);
+    }
+}
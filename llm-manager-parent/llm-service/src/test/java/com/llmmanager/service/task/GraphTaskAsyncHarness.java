@@ -0,0 +1,558 @@
+package com.llmmanager.service.task;
+
+import com.llmmanager.agent.config.AsyncTaskProperties;
+import com.llmmanager.agent.model.ThinkingAwareOpenAiApi;
+import com.llmmanager.agent.storage.core.entity.GraphTask;
+import com.llmmanager.agent.storage.core.service.GraphTaskService;
+import com.llmmanager.agent.stream.ExecutionEvent;
+import com.llmmanager.service.orchestration.DynamicReactAgentExecutionService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.beans.BeanUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * 异步任务验证（本地 Mock LLM + 本地回调接收端，手动运行）
+ *
+ * 启动两个本地服务：
+ * - Mock OpenAI（18931）：流式返回若干分片，消息中含 slow 时持续约 3 秒
+ * - 回调接收端（18932）：每个任务的第一次投递返回 500，之后返回 200，并校验 X-LLM-Signature
+ *
+ * 任务状态保存在内存版 GraphTaskService 中（与 GraphTaskMapper 的 SQL 语义一致），
+ * ReactAgent 执行替换为直接调用 Mock LLM 的流式输出。依次验证：
+ * 未结束任务数上限、优先级与按 API Key 公平调度（maxRunningPerKey = 1）、SSE 进度、取消执行中的任务、
+ * 回调失败重试后投递成功且签名正确、执行线程池拒绝时撤销认领，最后输出队列统计。
+ */
+public class GraphTaskAsyncHarness {
+
+    private static final int LLM_PORT = 18931;
+    private static final int WEBHOOK_PORT = 18932;
+    private static final String SECRET = "harness-secret";
+    private static final String CALLBACK_URL = "http://localhost:" + WEBHOOK_PORT + "/hooks/task";
+
+    private static int failures = 0;
+
+    public static void main(String[] args) throws Exception {
+        WebhookReceiver webhook = new WebhookReceiver();
+        HttpServer llmServer = startMockLlm();
+        HttpServer webhookServer = webhook.start();
+
+        AsyncTaskProperties properties = new AsyncTaskProperties();
+        properties.setEnabled(true);
+        properties.setConcurrency(2);
+        properties.setMaxRunningPerKey(1);
+        properties.setMaxActivePerKey(4);
+        properties.setPollIntervalMs(100L);
+        properties.setHeartbeatIntervalMs(500L);
+        properties.setLeaseMs(5000L);
+        properties.setStatusPollIntervalMs(200L);
+        properties.getCallback().setSecret(SECRET);
+        properties.getCallback().setRetryBackoffMs(200L);
+        properties.getCallback().setAllowPrivateNetwork(true);
+
+        InMemoryGraphTaskService taskService = new InMemoryGraphTaskService();
+        GraphTaskProgressHub progressHub = new GraphTaskProgressHub();
+        ReflectionTestUtils.setField(progressHub, "properties", properties);
+        GraphTaskCallbackSender callbackSender = new GraphTaskCallbackSender();
+        ReflectionTestUtils.setField(callbackSender, "properties", properties);
+
+        GraphTaskWorker worker = new GraphTaskWorker();
+        ReflectionTestUtils.setField(worker, "properties", properties);
+        ReflectionTestUtils.setField(worker, "taskService", taskService);
+        ReflectionTestUtils.setField(worker, "progressHub", progressHub);
+        ReflectionTestUtils.setField(worker, "callbackSender", callbackSender);
+        ReflectionTestUtils.setField(worker, "dynamicReactAgentExecutionService", new MockReactAgentService(chatModel()));
+        ReflectionTestUtils.setField(worker, "meterRegistry", new SimpleMeterRegistry());
+
+        try {
+            System.out.println("=== 1. 提交（Worker 未启动，任务排队） ===");
+            List<GraphTask> submitted = new ArrayList<>();
+            for (int i = 1; i <= 3; i++) {
+                submitted.add(worker.submitReactAgent("mock-agent", "A" + i, null, options(1L, 0)));
+            }
+            submitted.add(worker.submitReactAgent("mock-agent", "B1", null, options(2L, 0)));
+            submitted.add(worker.submitReactAgent("mock-agent", "B2", null, options(2L, 0)));
+            submitted.add(worker.submitReactAgent("mock-agent", "A4", null, options(1L, 9)));
+            Map<String, String> names = new HashMap<>();
+            submitted.forEach(task -> names.put(task.getTaskCode(), task.getQuestion()));
+
+            String rejected = "accepted";
+            try {
+                worker.submitReactAgent("mock-agent", "A5", null, options(1L, 0));
+            } catch (IllegalStateException e) {
+                rejected = "rejected";
+            }
+            check("API Key 未结束任务数达到上限后拒绝提交", "rejected", rejected);
+            check("A4 排队位置（优先级最高）", "0",
+                    String.valueOf(worker.getTaskView(taskService.getById(submitted.get(5).getId())).get("queuePosition")));
+
+            String b2 = submitted.get(4).getTaskCode();
+            List<ExecutionEvent> b2Events = new CopyOnWriteArrayList<>();
+            worker.watch(b2).subscribe(b2Events::add);
+
+            System.out.println("=== 2. 启动 Worker（concurrency = 2, maxRunningPerKey = 1） ===");
+            worker.start();
+            boolean finished = waitUntil(() -> submitted.stream()
+                    .allMatch(task -> taskService.getById(task.getId()).isFinished()), 30000);
+            check("6 个任务全部结束", "true", String.valueOf(finished));
+            List<String> startOrder = taskService.startOrder.stream().map(names::get).collect(Collectors.toList());
+            System.out.println("  执行顺序: " + startOrder);
+            check("优先级最高的 A4 最先执行", "A4", startOrder.get(0));
+            check("B1 与 A4 同时执行（A 已达到单 Key 上限）", "B1", startOrder.get(1));
+            check("单个 API Key 同时执行的最大任务数", "1", String.valueOf(taskService.maxRunningPerKey()));
+            check("全部成功", "SUCCESS", submitted.stream()
+                    .map(task -> taskService.getById(task.getId()).getStatus()).distinct().collect(Collectors.joining(",")));
+            check("结果写回 answer", "true",
+                    String.valueOf(taskService.getById(submitted.get(0).getId()).getAnswer().startsWith("mock answer")));
+
+            System.out.println("=== 3. SSE 进度（B2） ===");
+            waitUntil(() -> !b2Events.isEmpty() && isFinalStatus(b2Events.get(b2Events.size() - 1)), 5000);
+            List<String> types = b2Events.stream().map(event -> event.getType().getCode()).distinct().collect(Collectors.toList());
+            System.out.println("  事件类型: " + types);
+            check("首个事件为排队状态", "status:PENDING",
+                    b2Events.get(0).getType().getCode() + ":" + b2Events.get(0).getData().get("status"));
+            check("包含执行事件 start / token / complete", "true",
+                    String.valueOf(types.containsAll(List.of("start", "token", "complete"))));
+            ExecutionEvent last = b2Events.get(b2Events.size() - 1);
+            check("最后一个事件为结束状态", "status:SUCCESS", last.getType().getCode() + ":" + last.getData().get("status"));
+
+            System.out.println("=== 4. 取消执行中的任务 ===");
+            GraphTask slow = worker.submitReactAgent("mock-agent", "slow C1", null, options(3L, 0));
+            waitUntil(() -> GraphTask.TaskStatus.RUNNING.name().equals(taskService.getById(slow.getId()).getStatus()), 5000);
+            Thread.sleep(500);
+            long cancelAt = System.currentTimeMillis();
+            check("取消成功", "true", String.valueOf(worker.cancel(taskService.getById(slow.getId()))));
+            waitUntil(() -> worker.getStats().get("running").equals(0), 5000);
+            System.out.println("  取消后本节点执行结束耗时: " + (System.currentTimeMillis() - cancelAt) + "ms");
+            check("任务状态", "CANCELLED", taskService.getById(slow.getId()).getStatus());
+            check("再次取消返回 false", "false", String.valueOf(worker.cancel(taskService.getById(slow.getId()))));
+
+            System.out.println("=== 5. 结果回调 ===");
+            List<GraphTask> all = new ArrayList<>(submitted);
+            all.add(slow);
+            waitUntil(() -> all.stream().noneMatch(task ->
+                    GraphTask.CallbackStatus.PENDING.name().equals(taskService.getById(task.getId()).getCallbackStatus())), 15000);
+            check("回调状态", "DELIVERED", all.stream()
+                    .map(task -> taskService.getById(task.getId()).getCallbackStatus()).distinct().collect(Collectors.joining(",")));
+            check("每个任务投递 2 次（第 1 次 500）", "2", all.stream()
+                    .map(task -> String.valueOf(taskService.getById(task.getId()).getCallbackAttempts()))
+                    .distinct().collect(Collectors.joining(",")));
+            check("签名校验失败次数", "0", String.valueOf(webhook.badSignatures.get()));
+            check("取消任务的回调事件", "true",
+                    String.valueOf(webhook.lastBody(slow.getTaskCode()).contains("\"event\":\"task.cancelled\"")));
+
+            System.out.println("=== 6. 执行线程池拒绝任务 ===");
+            // 停止调度线程后手动轮询一次，避免与后台轮询交错
+            ((ScheduledExecutorService) ReflectionTestUtils.getField(worker, "scheduler")).shutdownNow();
+            ((ExecutorService) ReflectionTestUtils.getField(worker, "executor")).shutdown();
+            GraphTask rejectedTask = worker.submitReactAgent("mock-agent", "D1", null, options(4L, 0));
+            ReflectionTestUtils.invokeMethod(worker, "poll");
+            GraphTask released = taskService.getById(rejectedTask.getId());
+            check("被认领过一次", "true", String.valueOf(taskService.startOrder.contains(rejectedTask.getTaskCode())));
+            check("撤销认领后回到 PENDING", "PENDING", released.getStatus());
+            check("撤销认领不计执行次数", "0", String.valueOf(released.getAttempts()));
+            check("租约已清除", "null", String.valueOf(released.getLeaseOwner()));
+            check("本节点执行数", "0", String.valueOf(worker.getStats().get("running")));
+
+            System.out.println("=== 7. 队列统计 ===");
+            System.out.println("  " + worker.getStats());
+        } finally {
+            worker.stop();
+            llmServer.stop(0);
+            webhookServer.stop(0);
+        }
+
+        System.out.println(failures == 0 ? "ALL PASSED" : failures + " FAILED");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static GraphTaskWorker.SubmitOptions options(Long apiKeyId, int priority) {
+        return new GraphTaskWorker.SubmitOptions(apiKeyId, priority, CALLBACK_URL);
+    }
+
+    private static boolean isFinalStatus(ExecutionEvent event) {
+        return event.getType() == ExecutionEvent.EventType.STATUS
+                && GraphTask.TaskStatus.SUCCESS.name().equals(event.getData().get("status"));
+    }
+
+    private static boolean waitUntil(BooleanSupplier condition, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (System.currentTimeMillis() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return condition.getAsBoolean();
+    }
+
+    private static void check(String name, String expected, String actual) {
+        boolean passed = expected.equals(actual);
+        if (!passed) {
+            failures++;
+        }
+        System.out.printf("  [%s] %s: expected=%s, actual=%s%n", passed ? "PASS" : "FAIL", name, expected, actual);
+    }
+
+    // ==================== Mock LLM ====================
+
+    private static ChatModel chatModel() {
+        return OpenAiChatModel.builder()
+                .openAiApi(new ThinkingAwareOpenAiApi("http://localhost:" + LLM_PORT, "sk-mock"))
+                .defaultOptions(OpenAiChatOptions.builder().model("mock-model").build())
+                .build();
+    }
+
+    /**
+     * 流式返回 "mock answer" 的若干分片，每个分片间隔 80ms；消息中含 slow 时返回 40 个分片
+     */
+    private static HttpServer startMockLlm() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(LLM_PORT), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/v1/chat/completions", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            int chunks = body.contains("slow") ? 40 : 6;
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int i = 0; i < chunks; i++) {
+                    String text = i == 0 ? "mock answer" : " " + i;
+                    write(out, "{\"id\":\"1\",\"object\":\"chat.completion.chunk\",\"created\":0,\"model\":\"mock-model\","
+                            + "\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"" + text + "\"}}]}");
+                    Thread.sleep(80);
+                }
+                write(out, "{\"id\":\"1\",\"object\":\"chat.completion.chunk\",\"created\":0,\"model\":\"mock-model\","
+                        + "\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}]}");
+                write(out, "[DONE]");
+            } catch (IOException | InterruptedException e) {
+                // 客户端取消订阅后连接被关闭
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static void write(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * ReactAgent 执行替换为直接调用 Mock LLM（事件结构与 executeStream 一致）
+     */
+    static class MockReactAgentService extends DynamicReactAgentExecutionService {
+
+        private final ChatModel chatModel;
+
+        MockReactAgentService(ChatModel chatModel) {
+            this.chatModel = chatModel;
+        }
+
+        @Override
+        public Flux<ExecutionEvent> executeStream(String slug, String message, String conversationCode) {
+            return Flux.defer(() -> {
+                StringBuilder answer = new StringBuilder();
+                Map<String, Object> startData = new HashMap<>();
+                startData.put("slug", slug);
+                return Flux.concat(
+                        Mono.just(ExecutionEvent.start(startData)),
+                        chatModel.stream(new Prompt(message))
+                                .mapNotNull(response -> response.getResult() != null
+                                        ? response.getResult().getOutput().getText() : null)
+                                .filter(text -> !text.isEmpty())
+                                .doOnNext(answer::append)
+                                .map(text -> ExecutionEvent.token(slug, text)),
+                        Mono.fromSupplier(() -> {
+                            Map<String, Object> result = new HashMap<>();
+                            result.put("success", true);
+                            result.put("result", answer.toString());
+                            return ExecutionEvent.complete(result);
+                        }));
+            });
+        }
+    }
+
+    // ==================== 回调接收端 ====================
+
+    static class WebhookReceiver {
+
+        final Map<String, List<String>> bodies = new ConcurrentHashMap<>();
+        final AtomicLong badSignatures = new AtomicLong();
+
+        HttpServer start() throws IOException {
+            HttpServer server = HttpServer.create(new InetSocketAddress(WEBHOOK_PORT), 0);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.createContext("/hooks/task", this::handle);
+            server.start();
+            return server;
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            String taskCode = exchange.getRequestHeaders().getFirst(GraphTaskCallbackSender.HEADER_TASK_CODE);
+            String signature = exchange.getRequestHeaders().getFirst(GraphTaskCallbackSender.HEADER_SIGNATURE);
+            if (!("sha256=" + GraphTaskCallbackSender.sign(SECRET, body)).equals(signature)) {
+                badSignatures.incrementAndGet();
+            }
+            List<String> received = bodies.computeIfAbsent(taskCode, k -> new CopyOnWriteArrayList<>());
+            received.add(body);
+            exchange.sendResponseHeaders(received.size() == 1 ? 500 : 200, -1);
+            exchange.close();
+        }
+
+        String lastBody(String taskCode) {
+            List<String> received = bodies.getOrDefault(taskCode, List.of());
+            return received.isEmpty() ? "" : received.get(received.size() - 1);
+        }
+    }
+
+    // ==================== 内存版任务存储 ====================
+
+    /**
+     * 与 GraphTaskMapper 条件更新语义一致的内存实现（返回副本，模拟每次从数据库读取）
+     */
+    static class InMemoryGraphTaskService extends GraphTaskService {
+
+        private final Map<Long, GraphTask> rows = new LinkedHashMap<>();
+        private final AtomicLong ids = new AtomicLong();
+        private final Map<Long, Integer> maxRunning = new HashMap<>();
+        final List<String> startOrder = new CopyOnWriteArrayList<>();
+
+        @Override
+        public synchronized GraphTask enqueue(GraphTask task) {
+            task.setId(ids.incrementAndGet());
+            task.setCreateTime(LocalDateTime.now());
+            task.setNextRunTime(LocalDateTime.now());
+            rows.put(task.getId(), copy(task));
+            return copy(task);
+        }
+
+        @Override
+        public synchronized GraphTask getById(Long id) {
+            return copy(rows.get(id));
+        }
+
+        @Override
+        public synchronized GraphTask getByTaskCode(String taskCode) {
+            return rows.values().stream().filter(row -> row.getTaskCode().equals(taskCode))
+                    .findFirst().map(InMemoryGraphTaskService::copy).orElse(null);
+        }
+
+        @Override
+        public synchronized List<GraphTask> claim(String owner, int limit, long leaseMs, int maxRunningPerKey) {
+            LocalDateTime now = LocalDateTime.now();
+            List<GraphTask> candidates = rows.values().stream()
+                    .filter(row -> is(row, GraphTask.TaskStatus.PENDING) && !row.getNextRunTime().isAfter(now))
+                    .sorted(Comparator.comparing(GraphTask::getPriority).reversed().thenComparing(GraphTask::getId))
+                    .collect(Collectors.toList());
+            List<GraphTask> claimed = new ArrayList<>();
+            for (GraphTask row : fairOrder(candidates, countRunningByApiKey(), maxRunningPerKey, limit)) {
+                row.setStatus(GraphTask.TaskStatus.RUNNING.name());
+                row.setLeaseOwner(owner);
+                row.setLeaseUntil(now.plusNanos(leaseMs * 1_000_000));
+                row.setStartTime(now);
+                row.setAttempts(row.getAttempts() + 1);
+                startOrder.add(row.getTaskCode());
+                claimed.add(copy(row));
+            }
+            countRunningByApiKey().forEach((key, count) -> maxRunning.merge(key, count, Math::max));
+            return claimed;
+        }
+
+        @Override
+        public synchronized boolean releaseClaim(GraphTask task, String owner) {
+            GraphTask row = rows.get(task.getId());
+            if (!is(row, GraphTask.TaskStatus.RUNNING) || !owner.equals(row.getLeaseOwner())) {
+                return false;
+            }
+            row.setStatus(GraphTask.TaskStatus.PENDING.name());
+            row.setNextRunTime(LocalDateTime.now());
+            row.setStartTime(null);
+            row.setAttempts(Math.max(0, row.getAttempts() - 1));
+            row.setLeaseOwner(null);
+            row.setLeaseUntil(null);
+            return true;
+        }
+
+        @Override
+        public synchronized boolean renewLease(GraphTask task, String owner, long leaseMs) {
+            GraphTask row = rows.get(task.getId());
+            if (!is(row, GraphTask.TaskStatus.RUNNING) || !owner.equals(row.getLeaseOwner())) {
+                return false;
+            }
+            row.setLeaseUntil(LocalDateTime.now().plusNanos(leaseMs * 1_000_000));
+            return true;
+        }
+
+        @Override
+        public synchronized boolean markSucceeded(GraphTask task, String owner) {
+            GraphTask row = rows.get(task.getId());
+            if (!is(row, GraphTask.TaskStatus.RUNNING) || !owner.equals(row.getLeaseOwner())) {
+                return false;
+            }
+            row.setAnswer(task.getAnswer());
+            row.setAnalysis(task.getAnalysis());
+            row.setResultData(task.getResultData());
+            row.setTotalDurationMs(task.getTotalDurationMs());
+            finish(row, GraphTask.TaskStatus.SUCCESS, null);
+            return true;
+        }
+
+        @Override
+        public synchronized String markFailed(GraphTask task, String owner, String error, long backoffMs, long durationMs) {
+            GraphTask row = rows.get(task.getId());
+            if (!is(row, GraphTask.TaskStatus.RUNNING) || !owner.equals(row.getLeaseOwner())) {
+                return null;
+            }
+            if (row.getAttempts() >= row.getMaxAttempts()) {
+                row.setTotalDurationMs(durationMs);
+                finish(row, GraphTask.TaskStatus.FAILED, error);
+                return GraphTask.TaskStatus.FAILED.name();
+            }
+            row.setStatus(GraphTask.TaskStatus.PENDING.name());
+            row.setNextRunTime(LocalDateTime.now().plusNanos(backoffMs * 1_000_000));
+            row.setLeaseOwner(null);
+            row.setErrorMessage(error);
+            return GraphTask.TaskStatus.PENDING.name();
+        }
+
+        @Override
+        public synchronized boolean cancel(String taskCode) {
+            GraphTask row = rows.values().stream().filter(r -> r.getTaskCode().equals(taskCode)).findFirst().orElse(null);
+            if (row == null || row.isFinished()) {
+                return false;
+            }
+            finish(row, GraphTask.TaskStatus.CANCELLED, null);
+            return true;
+        }
+
+        @Override
+        public int recoverExpiredLeases() {
+            return 0;
+        }
+
+        @Override
+        public synchronized int countAhead(GraphTask task) {
+            int priority = task.getPriority();
+            return (int) rows.values().stream()
+                    .filter(row -> is(row, GraphTask.TaskStatus.PENDING))
+                    .filter(row -> row.getPriority() > priority || (row.getPriority() == priority && row.getId() < task.getId()))
+                    .count();
+        }
+
+        @Override
+        public synchronized int countActiveByApiKey(Long apiKeyId) {
+            return (int) rows.values().stream()
+                    .filter(row -> Objects.equals(row.getApiKeyId(), apiKeyId) && !row.isFinished())
+                    .count();
+        }
+
+        @Override
+        public synchronized Map<Long, Integer> countRunningByApiKey() {
+            Map<Long, Integer> counts = new HashMap<>();
+            rows.values().stream().filter(row -> is(row, GraphTask.TaskStatus.RUNNING))
+                    .forEach(row -> counts.merge(row.getApiKeyId(), 1, Integer::sum));
+            return counts;
+        }
+
+        @Override
+        public synchronized Map<String, Long> countByStatus() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (GraphTask.TaskStatus status : GraphTask.TaskStatus.values()) {
+                counts.put(status.name(), rows.values().stream().filter(row -> is(row, status)).count());
+            }
+            return counts;
+        }
+
+        @Override
+        public synchronized List<GraphTask> claimDueCallbacks(int limit, long leaseMs) {
+            LocalDateTime now = LocalDateTime.now();
+            return rows.values().stream()
+                    .filter(row -> GraphTask.CallbackStatus.PENDING.name().equals(row.getCallbackStatus())
+                            && !row.getNextCallbackTime().isAfter(now))
+                    .limit(limit)
+                    .peek(row -> row.setNextCallbackTime(now.plusNanos(leaseMs * 1_000_000)))
+                    .map(InMemoryGraphTaskService::copy)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public synchronized boolean markCallbackDelivered(GraphTask task) {
+            GraphTask row = rows.get(task.getId());
+            row.setCallbackStatus(GraphTask.CallbackStatus.DELIVERED.name());
+            row.setCallbackAttempts(row.getCallbackAttempts() + 1);
+            row.setCallbackError(null);
+            return true;
+        }
+
+        @Override
+        public synchronized String markCallbackFailed(GraphTask task, String error, int maxAttempts, long backoffMs) {
+            GraphTask row = rows.get(task.getId());
+            row.setCallbackAttempts(row.getCallbackAttempts() + 1);
+            row.setCallbackError(error);
+            if (row.getCallbackAttempts() >= maxAttempts) {
+                row.setCallbackStatus(GraphTask.CallbackStatus.FAILED.name());
+                return GraphTask.CallbackStatus.FAILED.name();
+            }
+            row.setNextCallbackTime(LocalDateTime.now().plusNanos(backoffMs * 1_000_000));
+            return GraphTask.CallbackStatus.PENDING.name();
+        }
+
+        synchronized int maxRunningPerKey() {
+            return maxRunning.values().stream().max(Integer::compare).orElse(0);
+        }
+
+        private static void finish(GraphTask row, GraphTask.TaskStatus status, String error) {
+            row.setStatus(status.name());
+            row.setEndTime(LocalDateTime.now());
+            row.setLeaseOwner(null);
+            row.setLeaseUntil(null);
+            row.setErrorMessage(error);
+            if (row.getCallbackUrl() != null && !row.getCallbackUrl().isEmpty()) {
+                row.setCallbackStatus(GraphTask.CallbackStatus.PENDING.name());
+                row.setNextCallbackTime(LocalDateTime.now());
+            }
+        }
+
+        private static boolean is(GraphTask row, GraphTask.TaskStatus status) {
+            return status.name().equals(row.getStatus());
+        }
+
+        private static GraphTask copy(GraphTask source) {
+            if (source == null) {
+                return null;
+            }
+            GraphTask target = new GraphTask();
+            BeanUtils.copyProperties(source, target);
+            return target;
+        }
+    }
+}